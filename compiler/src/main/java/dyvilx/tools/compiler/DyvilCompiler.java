@@ -10,8 +10,11 @@ import dyvilx.tools.compiler.config.ArgumentParser;
 import dyvilx.tools.compiler.config.CompilerConfig;
 import dyvilx.tools.compiler.lang.I18n;
 import dyvilx.tools.compiler.library.Library;
+import dyvilx.tools.compiler.phase.DependencyScheduler;
 import dyvilx.tools.compiler.phase.ICompilerPhase;
+import dyvilx.tools.compiler.phase.Profiler;
 import dyvilx.tools.compiler.sources.FileFinder;
+import dyvilx.tools.compiler.sources.IncrementalCache;
 import dyvilx.tools.compiler.util.Util;
 
 import java.io.File;
@@ -21,6 +24,7 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
 
 import static dyvilx.tools.compiler.sources.DyvilFileType.*;
 
@@ -33,7 +37,12 @@ public class DyvilCompiler extends BasicTool
 	public final Set<ICompilerPhase> phases = new TreeSet<>();
 	public final CompilerConfig      config = this.createConfig();
 
-	public final FileFinder fileFinder = new FileFinder();
+	public final FileFinder          fileFinder = new FileFinder();
+	public final DependencyScheduler scheduler  = new DependencyScheduler();
+
+	private ForkJoinPool     workerPool;
+	private IncrementalCache incrementalCache;
+	private Profiler         profiler;
 
 	protected CompilerConfig createConfig()
 	{
@@ -47,6 +56,11 @@ public class DyvilCompiler extends BasicTool
 		try
 		{
 			this.run(arguments);
+
+			if (this.profiler != null)
+			{
+				this.profiler.report(this, this.config.getProfileFile());
+			}
 		}
 		finally
 		{
@@ -65,6 +79,11 @@ public class DyvilCompiler extends BasicTool
 			return;
 		}
 
+		if (this.config.getProfileFile() != null)
+		{
+			this.profiler = new Profiler();
+		}
+
 		if (this.config.isDebug())
 		{
 			this.log(I18n.get("compiler.init", DyvilCompiler.VERSION, DyvilCompiler.DYVIL_VERSION));
@@ -84,6 +103,7 @@ public class DyvilCompiler extends BasicTool
 			return;
 		}
 
+		this.setupIncremental();
 		this.loadLibraries();
 		this.findFiles();
 
@@ -97,6 +117,11 @@ public class DyvilCompiler extends BasicTool
 			return; // applyPhases prints a message
 		}
 
+		if (this.incrementalCache != null && !this.applyIncrementalPhases())
+		{
+			return; // applyPhases prints a message
+		}
+
 		if (!this.config.isDebug())
 		{
 			return;
@@ -117,10 +142,40 @@ public class DyvilCompiler extends BasicTool
 		}
 	}
 
+	private void setupIncremental()
+	{
+		if (!this.config.isIncremental() || this.config.getOutputDir() == null)
+		{
+			return;
+		}
+		if (this.phases.contains(ICompilerPhase.CLEAN))
+		{
+			this.warn(I18n.get("incremental.clean"));
+			return;
+		}
+
+		this.incrementalCache = new IncrementalCache(this);
+		this.incrementalCache.load();
+		this.incrementalCache.removeDeletedSources();
+
+		this.scheduler.setTrackExternalFiles(true);
+		this.fileFinder.setUnitFilter(this.incrementalCache::needsCompilation);
+	}
+
 	public void loadLibraries()
 	{
 		final List<Library> libraries = this.config.libraries;
 
+		if (this.incrementalCache != null)
+		{
+			// Units that are not compiled are loaded from their outputs, which take precedence over other libraries
+			final Library outputLibrary = this.createLibrary(this.config.getOutputDir());
+			if (outputLibrary != null)
+			{
+				libraries.add(0, outputLibrary);
+			}
+		}
+
 		// Make sure to add the dyvil and java libraries at the end
 		libraries.add(Library.dyvilLibrary);
 		libraries.add(Library.javaLibrary);
@@ -134,7 +189,7 @@ public class DyvilCompiler extends BasicTool
 			library.loadLibrary();
 		}
 
-		Package.initRoot(this);
+		this.initRootPackage();
 
 		if (this.config.isDebug())
 		{
@@ -144,6 +199,38 @@ public class DyvilCompiler extends BasicTool
 		}
 	}
 
+	/**
+	 * Creates the library for the given classpath entry.
+	 *
+	 * @param file
+	 * 	the jar file or directory
+	 *
+	 * @return the library, or {@code null} if the file does not exist or is not a library
+	 */
+	public Library createLibrary(File file)
+	{
+		return Library.load(file);
+	}
+
+	protected void initRootPackage()
+	{
+		Package.initRoot(this);
+	}
+
+	/**
+	 * Converts a path from the compiler arguments to a file. Relative paths are resolved against the working directory
+	 * of the process.
+	 *
+	 * @param path
+	 * 	the path from the arguments
+	 *
+	 * @return the file
+	 */
+	public File resolveFile(String path)
+	{
+		return new File(path);
+	}
+
 	private void findFiles()
 	{
 		this.setupFileFinder();
@@ -159,9 +246,7 @@ public class DyvilCompiler extends BasicTool
 
 		Package.init();
 
-		// sort compilation units by case insensitive absolute path to ensure consistency across filesystems
-		this.fileFinder.units.sort(
-			Comparator.comparing(unit -> unit.getFileSource().file().getAbsolutePath(), String.CASE_INSENSITIVE_ORDER));
+		this.sortUnits();
 
 		if (this.config.isDebug())
 		{
@@ -176,6 +261,13 @@ public class DyvilCompiler extends BasicTool
 		}
 	}
 
+	private void sortUnits()
+	{
+		// sort compilation units by case insensitive absolute path to ensure consistency across filesystems
+		this.fileFinder.units.sort(
+			Comparator.comparing(unit -> unit.getFileSource().file().getAbsolutePath(), String.CASE_INSENSITIVE_ORDER));
+	}
+
 	protected void setupFileFinder()
 	{
 		this.fileFinder.registerFileType(DYVIL_EXTENSION, DYVIL_UNIT);
@@ -192,7 +284,7 @@ public class DyvilCompiler extends BasicTool
 			{
 				try
 				{
-					phase.apply(this);
+					this.applyPhase(phase);
 				}
 				catch (Exception e)
 				{
@@ -217,7 +309,7 @@ public class DyvilCompiler extends BasicTool
 			{
 				final long startTime = System.nanoTime();
 
-				phase.apply(this);
+				this.applyPhase(phase);
 
 				final long endTime = System.nanoTime();
 				this.log(I18n.get("phase.completed", phase.getName(), Util.toTime(endTime - startTime)));
@@ -232,6 +324,61 @@ public class DyvilCompiler extends BasicTool
 		return true;
 	}
 
+	private void applyPhase(ICompilerPhase phase)
+	{
+		if (this.profiler != null)
+		{
+			this.profiler.applyPhase(this, phase);
+		}
+		else
+		{
+			phase.apply(this);
+		}
+	}
+
+	/**
+	 * Updates the incremental compilation cache with the units compiled by {@link #applyPhases()}, and applies the
+	 * phases again to all units that are affected by API changes of these units, until no more units are affected.
+	 */
+	private boolean applyIncrementalPhases()
+	{
+		try
+		{
+			while (true)
+			{
+				this.incrementalCache.update(this.fileFinder.units);
+				if (this.isCompilationFailed())
+				{
+					return true;
+				}
+
+				this.fileFinder.units.clear();
+				if (!this.incrementalCache.findInvalidatedUnits(this.fileFinder))
+				{
+					return true;
+				}
+
+				this.sortUnits();
+
+				if (this.config.isDebug())
+				{
+					final int unitCount = this.fileFinder.units.size();
+					this.log(I18n.get("incremental.round",
+					                  unitCount == 1 ? I18n.get("units.1") : I18n.get("units.n", unitCount)));
+				}
+
+				if (!this.applyPhases())
+				{
+					return false;
+				}
+			}
+		}
+		finally
+		{
+			this.incrementalCache.save();
+		}
+	}
+
 	public void clean()
 	{
 		File[] files = this.config.getOutputDir().listFiles();
@@ -266,6 +413,18 @@ public class DyvilCompiler extends BasicTool
 	}
 
 	public void shutdown()
+	{
+		if (this.workerPool != null)
+		{
+			this.workerPool.shutdown();
+			this.workerPool = null;
+		}
+
+		this.unloadLibraries();
+		this.closeLogger();
+	}
+
+	protected void unloadLibraries()
 	{
 		for (Library library : this.config.libraries)
 		{
@@ -275,6 +434,27 @@ public class DyvilCompiler extends BasicTool
 
 	// ----- GETTERS AND SETTERS -----
 
+	/**
+	 * @return the profiler that records the phases of this compilation, or {@code null} if profiling is disabled
+	 */
+	public Profiler getProfiler()
+	{
+		return this.profiler;
+	}
+
+	/**
+	 * @return the pool used to process compilation units in parallel, created on first access with as many threads as
+	 * configured by {@link CompilerConfig#getJobs()}.
+	 */
+	public synchronized ForkJoinPool getWorkerPool()
+	{
+		if (this.workerPool == null)
+		{
+			this.workerPool = new ForkJoinPool(Math.max(1, this.config.getJobs()));
+		}
+		return this.workerPool;
+	}
+
 	@Override
 	protected boolean useAnsiColors()
 	{
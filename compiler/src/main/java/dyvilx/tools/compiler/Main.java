@@ -1,9 +1,21 @@
 package dyvilx.tools.compiler;
 
+import dyvilx.tools.compiler.daemon.CompilerDaemon;
+
+import java.io.IOException;
+import java.util.Arrays;
+
 public final class Main
 {
-	public static void main(String[] args)
+	public static void main(String[] args) throws IOException
 	{
+		if (args.length > 0 && "--daemon".equals(args[0]))
+		{
+			// --daemon [port [daemon-file]]
+			CompilerDaemon.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+
 		System.exit(new DyvilCompiler().run(System.in, System.out, System.err, args));
 	}
 }
@@ -21,6 +21,16 @@ public final class IIncInstruction implements IInstruction
 		return Opcodes.IINC;
 	}
 
+	public int getIndex()
+	{
+		return this.index;
+	}
+
+	public int getValue()
+	{
+		return this.value;
+	}
+
 	@Override
 	public void write(MethodVisitor writer) throws BytecodeException
 	{
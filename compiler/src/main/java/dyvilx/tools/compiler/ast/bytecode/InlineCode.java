@@ -0,0 +1,353 @@
+package dyvilx.tools.compiler.ast.bytecode;
+
+import dyvil.reflect.Opcodes;
+import dyvilx.tools.asm.Label;
+import dyvilx.tools.compiler.ast.type.IType;
+import dyvilx.tools.compiler.ast.type.builtin.Types;
+import dyvilx.tools.compiler.backend.ClassFormat;
+import dyvilx.tools.compiler.backend.exception.BytecodeException;
+import dyvilx.tools.compiler.backend.method.Frame;
+import dyvilx.tools.compiler.backend.method.MethodWriter;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The recorded bytecode of a method body that can be copied into another method. Labels and exception handlers are
+ * copied, local variables are moved above the locals of the surrounding code, returns become jumps to the end of the
+ * copied code and all line numbers are attributed to a single line. Frames are computed by the {@link MethodWriter} as
+ * for any other code.
+ */
+public class InlineCode extends InstructionList
+{
+	/**
+	 * Writes a replacement for a single instruction.
+	 */
+	@FunctionalInterface
+	public interface Substitution
+	{
+		/**
+		 * @return {@code true} if the instruction at the given index was replaced, {@code false} if it should be written
+		 * normally
+		 */
+		boolean write(MethodWriter writer, int index) throws BytecodeException;
+	}
+
+	// the number of instructions, excluding labels and try-catch blocks
+	protected int size;
+	// the index of the last instruction, excluding labels
+	protected int lastIndex;
+	// the number of local variable slots used by the code
+	protected int maxLocals;
+	protected int returns;
+	protected boolean hasHandlers;
+
+	// labels that have to be visited with a frame
+	protected Set<Label> targets;
+	// labels that start or end a try block
+	protected Set<Label> tryLabels;
+
+	public InlineCode()
+	{
+	}
+
+	public int size()
+	{
+		return this.size;
+	}
+
+	public int getMaxLocals()
+	{
+		return this.maxLocals;
+	}
+
+	public boolean hasHandlers()
+	{
+		return this.hasHandlers;
+	}
+
+	// --------------- Analysis ---------------
+
+	/**
+	 * Collects the jump targets and local variables of the recorded instructions.
+	 *
+	 * @return {@code false} if the code contains instructions that cannot be copied
+	 */
+	public boolean analyze()
+	{
+		final Set<Label> targets = this.targets = Collections.newSetFromMap(new IdentityHashMap<>());
+		final Set<Label> tryLabels = this.tryLabels = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		for (int i = 0; i < this.instructionCount; i++)
+		{
+			final IInstruction instruction = this.instructions[i];
+			final int opcode = instruction.getOpcode();
+
+			if (instruction instanceof LabelInstruction)
+			{
+				continue;
+			}
+			if (instruction instanceof TryCatchInstruction)
+			{
+				final TryCatchInstruction tryCatch = (TryCatchInstruction) instruction;
+				targets.add(tryCatch.getHandler());
+				tryLabels.add(tryCatch.getStart());
+				tryLabels.add(tryCatch.getEnd());
+				this.hasHandlers = true;
+				continue;
+			}
+
+			this.size++;
+			this.lastIndex = i;
+
+			switch (opcode)
+			{
+			case Opcodes.JSR:
+			case Opcodes.RET:
+				return false;
+			case Opcodes.TABLESWITCH:
+			{
+				final TableSwitchInstruction tableSwitch = (TableSwitchInstruction) instruction;
+				targets.add(tableSwitch.getDefaultHandler());
+				Collections.addAll(targets, tableSwitch.getHandlers());
+				continue;
+			}
+			case Opcodes.LOOKUPSWITCH:
+			{
+				final LookupSwitchInstruction lookupSwitch = (LookupSwitchInstruction) instruction;
+				targets.add(lookupSwitch.getDefaultHandler());
+				Collections.addAll(targets, lookupSwitch.getHandlers());
+				continue;
+			}
+			}
+
+			if (instruction instanceof JumpInstruction)
+			{
+				targets.add(((JumpInstruction) instruction).getTarget());
+			}
+			else if (instruction instanceof VarInstruction)
+			{
+				final int index = ((VarInstruction) instruction).getIndex();
+				final boolean twoWord = opcode == Opcodes.LLOAD || opcode == Opcodes.DLOAD || opcode == Opcodes.LSTORE
+				                        || opcode == Opcodes.DSTORE;
+				this.maxLocals = Math.max(this.maxLocals, index + (twoWord ? 2 : 1));
+			}
+			else if (instruction instanceof IIncInstruction)
+			{
+				this.maxLocals = Math.max(this.maxLocals, ((IIncInstruction) instruction).getIndex() + 1);
+			}
+			else if (Opcodes.isReturnOpcode(opcode))
+			{
+				this.returns++;
+			}
+		}
+		return true;
+	}
+
+	// --------------- Writing ---------------
+
+	/**
+	 * Copies the instructions from the given index to the end of the code. Local variables below {@code aliases.length}
+	 * are replaced with the variables in the {@code aliases} array, all other variables are moved by {@code offset}.
+	 * Returns leave their value on the stack and continue after the copied code.
+	 *
+	 * @param localCount
+	 * 	the number of local variables of the surrounding code that are still available after the copied code
+	 * @param returnType
+	 * 	the type of the value left on the stack by the returns, or {@code void} if the returned values are discarded
+	 * @param substitution
+	 * 	replaces single instructions, or {@code null}
+	 */
+	public void writeCode(MethodWriter writer, int start, int[] aliases, int offset, int localCount, IType returnType,
+		                     int lineNumber, Substitution substitution) throws BytecodeException
+	{
+		final int stackCount = writer.getFrame().stackCount();
+
+		// Exception Handlers
+
+		final Map<Label, Label> labels = new IdentityHashMap<>();
+		for (int i = 0; i < this.instructionCount; i++)
+		{
+			final IInstruction instruction = this.instructions[i];
+			if (instruction instanceof TryCatchInstruction)
+			{
+				final TryCatchInstruction tryCatch = (TryCatchInstruction) instruction;
+				writer.visitTryCatchBlock(mapLabel(labels, tryCatch.getStart()), mapLabel(labels, tryCatch.getEnd()),
+				                          mapLabel(labels, tryCatch.getHandler()), tryCatch.getType());
+			}
+		}
+
+		// Instructions
+
+		writer.visitLineNumber(lineNumber);
+
+		final Label end = new Label();
+		boolean jumpToEnd = false;
+
+		for (int i = start; i < this.instructionCount; i++)
+		{
+			final IInstruction instruction = this.instructions[i];
+			final int opcode = instruction.getOpcode();
+
+			if (substitution != null && substitution.write(writer, i))
+			{
+				continue;
+			}
+
+			if (instruction instanceof LabelInstruction)
+			{
+				final Label label = ((LabelInstruction) instruction).getLabel();
+				this.writeLabel(writer, label, mapLabel(labels, label), labels);
+			}
+			else if (instruction instanceof TryCatchInstruction)
+			{
+				// already written
+			}
+			else if (instruction instanceof VarInstruction)
+			{
+				final int index = ((VarInstruction) instruction).getIndex();
+				writer.visitVarInsn(opcode, mapLocal(index, aliases, offset));
+			}
+			else if (instruction instanceof IIncInstruction)
+			{
+				final IIncInstruction iinc = (IIncInstruction) instruction;
+				writer.visitIincInsn(mapLocal(iinc.getIndex(), aliases, offset), iinc.getValue());
+			}
+			else if (instruction instanceof JumpInstruction)
+			{
+				writer.visitJumpInsn(opcode, mapLabel(labels, ((JumpInstruction) instruction).getTarget()));
+			}
+			else if (instruction instanceof TableSwitchInstruction)
+			{
+				final TableSwitchInstruction tableSwitch = (TableSwitchInstruction) instruction;
+				writer.visitTableSwitchInsn(tableSwitch.getStart(), tableSwitch.getEnd(),
+				                            mapLabel(labels, tableSwitch.getDefaultHandler()),
+				                            mapLabels(labels, tableSwitch.getHandlers()));
+			}
+			else if (instruction instanceof LookupSwitchInstruction)
+			{
+				final LookupSwitchInstruction lookupSwitch = (LookupSwitchInstruction) instruction;
+				writer.visitLookupSwitchInsn(mapLabel(labels, lookupSwitch.getDefaultHandler()),
+				                             lookupSwitch.getKeys(), mapLabels(labels, lookupSwitch.getHandlers()));
+			}
+			else if (Opcodes.isReturnOpcode(opcode))
+			{
+				final boolean last = i == this.lastIndex;
+				writeReturn(writer, opcode, returnType, stackCount, localCount, last ? null : end);
+				jumpToEnd |= !last;
+			}
+			else
+			{
+				instruction.write(writer);
+			}
+		}
+
+		if (jumpToEnd)
+		{
+			writer.visitTargetLabel(end);
+		}
+	}
+
+	private static int mapLocal(int index, int[] aliases, int offset)
+	{
+		return index < aliases.length ? aliases[index] : index + offset;
+	}
+
+	private void writeLabel(MethodWriter writer, Label label, Label newLabel, Map<Label, Label> labels)
+	{
+		if (this.targets.contains(label))
+		{
+			writer.visitTargetLabel(newLabel);
+		}
+		else
+		{
+			writer.visitLabel(newLabel);
+		}
+
+		// The frame of an exception handler is the frame at the start of its try block, with only the exception on
+		// the stack
+		for (int i = 0; i < this.instructionCount; i++)
+		{
+			final IInstruction instruction = this.instructions[i];
+			if (!(instruction instanceof TryCatchInstruction))
+			{
+				continue;
+			}
+
+			final TryCatchInstruction tryCatch = (TryCatchInstruction) instruction;
+			final Label handler = mapLabel(labels, tryCatch.getHandler());
+			if (tryCatch.getStart() != label || handler.info != null)
+			{
+				continue;
+			}
+
+			final Frame frame = writer.getFrame().copy();
+			while (frame.stackCount() > 0)
+			{
+				frame.pop();
+			}
+			frame.push(tryCatch.getType() == null ? "java/lang/Throwable" : tryCatch.getType());
+			handler.info = frame;
+		}
+	}
+
+	private static void writeReturn(MethodWriter writer, int opcode, IType returnType, int stackCount, int localCount,
+		                               Label end) throws BytecodeException
+	{
+		// a void return type discards the returned value
+		final int valueCount = opcode == Opcodes.RETURN || Types.isVoid(returnType) ? 0 : 1;
+		final Frame frame = writer.getFrame();
+
+		if (valueCount > 0)
+		{
+			// different returns can have different types, but the result has the declared return type
+			frame.set(returnType.getFrameType());
+		}
+
+		if (frame.stackCount() > stackCount + valueCount)
+		{
+			// Remove the values below the return value, which would be discarded by the return instruction
+			final int tempLocal = writer.localCount();
+			if (valueCount > 0)
+			{
+				writer.visitVarInsn(Opcodes.ISTORE + (opcode - Opcodes.IRETURN), tempLocal);
+			}
+			while (frame.stackCount() > stackCount)
+			{
+				writer.visitInsn(ClassFormat.isTwoWord(frame.peek()) ? Opcodes.POP2 : Opcodes.POP);
+			}
+			if (valueCount > 0)
+			{
+				writer.visitVarInsn(Opcodes.ILOAD + (opcode - Opcodes.IRETURN), tempLocal);
+			}
+		}
+
+		if (end == null)
+		{
+			return;
+		}
+
+		// the locals of the copied code are not available after it
+		final int locals = writer.localCount();
+		writer.resetLocals(localCount);
+		writer.visitJumpInsn(Opcodes.GOTO, end);
+		writer.resetLocals(locals);
+	}
+
+	private static Label mapLabel(Map<Label, Label> labels, Label label)
+	{
+		return labels.computeIfAbsent(label, l -> new Label());
+	}
+
+	private static Label[] mapLabels(Map<Label, Label> labels, Label[] array)
+	{
+		final Label[] result = new Label[array.length];
+		for (int i = 0; i < array.length; i++)
+		{
+			result[i] = mapLabel(labels, array[i]);
+		}
+		return result;
+	}
+}
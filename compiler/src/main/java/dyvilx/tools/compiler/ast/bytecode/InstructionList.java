@@ -19,7 +19,7 @@ public class InstructionList
 		int index = this.instructionCount++;
 		if (index >= this.instructions.length)
 		{
-			IInstruction[] temp = new IInstruction[this.instructionCount];
+			IInstruction[] temp = new IInstruction[index << 1];
 			System.arraycopy(this.instructions, 0, temp, 0, this.instructions.length);
 			this.instructions = temp;
 		}
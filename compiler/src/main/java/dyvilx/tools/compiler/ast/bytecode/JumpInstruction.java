@@ -22,6 +22,11 @@ public final class JumpInstruction implements IInstruction
 		return this.opcode;
 	}
 
+	public Label getTarget()
+	{
+		return this.target;
+	}
+
 	@Override
 	public void write(MethodVisitor writer) throws BytecodeException
 	{
@@ -19,6 +19,11 @@ public class LDCInstruction implements IInstruction
 		return Opcodes.LDC;
 	}
 
+	public Object getArgument()
+	{
+		return this.argument;
+	}
+
 	@Override
 	public void write(MethodVisitor writer) throws BytecodeException
 	{
@@ -0,0 +1,38 @@
+package dyvilx.tools.compiler.ast.bytecode;
+
+import dyvilx.tools.asm.Label;
+import dyvilx.tools.asm.MethodVisitor;
+import dyvilx.tools.compiler.backend.exception.BytecodeException;
+
+public class LabelInstruction implements IInstruction
+{
+	private Label label;
+
+	public LabelInstruction(Label label)
+	{
+		this.label = label;
+	}
+
+	@Override
+	public int getOpcode()
+	{
+		return -1;
+	}
+
+	public Label getLabel()
+	{
+		return this.label;
+	}
+
+	@Override
+	public void write(MethodVisitor writer) throws BytecodeException
+	{
+		writer.visitLabel(this.label);
+	}
+
+	@Override
+	public void toString(String prefix, StringBuilder buffer)
+	{
+		buffer.append(this.label).append(':');
+	}
+}
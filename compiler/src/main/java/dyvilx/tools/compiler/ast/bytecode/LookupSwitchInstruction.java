@@ -25,6 +25,21 @@ public class LookupSwitchInstruction implements IInstruction
 		return Opcodes.LOOKUPSWITCH;
 	}
 
+	public Label getDefaultHandler()
+	{
+		return this.defaultHandler;
+	}
+
+	public int[] getKeys()
+	{
+		return this.keys;
+	}
+
+	public Label[] getHandlers()
+	{
+		return this.handlers;
+	}
+
 	@Override
 	public void write(MethodVisitor writer) throws BytecodeException
 	{
@@ -21,6 +21,11 @@ public class MultiArrayInstruction implements IInstruction
 		return Opcodes.MULTIANEWARRAY;
 	}
 
+	public String getType()
+	{
+		return this.type;
+	}
+
 	@Override
 	public void write(MethodVisitor writer) throws BytecodeException
 	{
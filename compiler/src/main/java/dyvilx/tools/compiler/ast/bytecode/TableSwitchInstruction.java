@@ -27,6 +27,26 @@ public class TableSwitchInstruction implements IInstruction
 		return Opcodes.TABLESWITCH;
 	}
 
+	public int getStart()
+	{
+		return this.start;
+	}
+
+	public int getEnd()
+	{
+		return this.end;
+	}
+
+	public Label getDefaultHandler()
+	{
+		return this.defaultHandler;
+	}
+
+	public Label[] getHandlers()
+	{
+		return this.handlers;
+	}
+
 	@Override
 	public void write(MethodVisitor writer) throws BytecodeException
 	{
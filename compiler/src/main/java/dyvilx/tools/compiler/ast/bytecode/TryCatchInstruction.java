@@ -25,6 +25,26 @@ public class TryCatchInstruction implements IInstruction
 		return -1;
 	}
 
+	public Label getStart()
+	{
+		return this.start;
+	}
+
+	public Label getEnd()
+	{
+		return this.end;
+	}
+
+	public Label getHandler()
+	{
+		return this.handler;
+	}
+
+	public String getType()
+	{
+		return this.type;
+	}
+
 	@Override
 	public void write(MethodVisitor writer) throws BytecodeException
 	{
@@ -26,6 +26,11 @@ public class TypeInstruction implements IInstruction
 		return this.opcode;
 	}
 
+	public String getType()
+	{
+		return this.type;
+	}
+
 	@Override
 	public void write(MethodVisitor writer) throws BytecodeException
 	{
@@ -135,6 +135,15 @@ public class ClassBody implements ASTNode, Resolvable, IMemberConsumer<IField>
 	}
 
 	public Iterable<IField> fields()
+	{
+		return this.createdFields();
+	}
+
+	/**
+	 * @return the fields that exist in this body. Unlike {@link #fields()}, this never creates the members of an
+	 * external class that were not loaded yet.
+	 */
+	public final Iterable<IField> createdFields()
 	{
 		return () -> new ArrayIterator<>(this.fields, 0, this.fieldCount);
 	}
@@ -354,6 +363,15 @@ public class ClassBody implements ASTNode, Resolvable, IMemberConsumer<IField>
 	}
 
 	public Collection<IMethod> allMethods()
+	{
+		return this.createdMethods();
+	}
+
+	/**
+	 * @return the methods and property accessors that exist in this body. Unlike {@link #allMethods()}, this never
+	 * creates the members of an external class that were not loaded yet.
+	 */
+	public final Collection<IMethod> createdMethods()
 	{
 		final ArrayList<IMethod> result = new ArrayList<>(
 			this.methodCount + this.propertyCount * 2 + this.fieldCount * 2);
@@ -599,11 +617,12 @@ public class ClassBody implements ASTNode, Resolvable, IMemberConsumer<IField>
 		 * as many property getters and setters as there are fields. At the end, we compute the next power of two that
 		 * is larger than our sum, and use it as the cache size.
 		 */
-		final int cacheSize = MathUtils.nextPowerOf2(this.methodCount + (this.propertyCount << 1) + this.fieldCount);
+		final int cacheSize = MathUtils.nextPowerOf2(this.getNamedMethodCacheCapacity());
 		final int mask = cacheSize - 1;
 		this.namedMethodCache = new MethodLink[cacheSize];
 
-		for (IMethod method : this.allMethods())
+		// members that are created later are added by addToCache
+		for (IMethod method : this.createdMethods())
 		{
 			addToCache(this.namedMethodCache, method, mask);
 		}
@@ -611,6 +630,14 @@ public class ClassBody implements ASTNode, Resolvable, IMemberConsumer<IField>
 		return this.namedMethodCache;
 	}
 
+	/**
+	 * @return the expected number of distinct method names in this body, used to size the named method cache
+	 */
+	protected int getNamedMethodCacheCapacity()
+	{
+		return this.methodCount + (this.propertyCount << 1) + this.fieldCount;
+	}
+
 	public List<IMethod> getImplicitMethodCache()
 	{
 		if (this.implicitCache != null)
@@ -675,6 +702,15 @@ public class ClassBody implements ASTNode, Resolvable, IMemberConsumer<IField>
 	// region Constructors
 
 	public Iterable<IConstructor> constructors()
+	{
+		return this.createdConstructors();
+	}
+
+	/**
+	 * @return the constructors that exist in this body. Unlike {@link #constructors()}, this never creates the members
+	 * of an external class that were not loaded yet.
+	 */
+	public final Iterable<IConstructor> createdConstructors()
 	{
 		return () -> new ArrayIterator<>(this.constructors, 0, this.constructorCount);
 	}
@@ -138,24 +138,29 @@ public class CodeConstructor extends AbstractConstructor
 
 		if (this.value != null)
 		{
-			this.value = this.value.resolve(markers, context);
-
-			final IValue typedValue = this.value.withType(Types.VOID, Types.VOID, markers, context);
-			if (typedValue == null)
-			{
-				Marker marker = Markers.semanticError(this.position, "constructor.return.type");
-				marker.addInfo(Markers.getSemantic("return.type", this.value.getType()));
-				markers.add(marker);
-			}
-			else
-			{
-				this.value = typedValue;
-			}
+			this.resolveValue(markers, context);
 		}
 
 		context.pop();
 	}
 
+	private void resolveValue(MarkerList markers, IContext context)
+	{
+		this.value = this.value.resolve(markers, context);
+
+		final IValue typedValue = this.value.withType(Types.VOID, Types.VOID, markers, context);
+		if (typedValue == null)
+		{
+			Marker marker = Markers.semanticError(this.position, "constructor.return.type");
+			marker.addInfo(Markers.getSemantic("return.type", this.value.getType()));
+			markers.add(marker);
+		}
+		else
+		{
+			this.value = typedValue;
+		}
+	}
+
 	private void resolveInitCall(MarkerList markers, IContext context)
 	{
 		if (this.initializerCall != null)
@@ -182,6 +187,21 @@ public class CodeConstructor extends AbstractConstructor
 		this.initializerCall = new InitializerCall(this.position, true, ArgumentList.EMPTY, superType, match);
 	}
 
+	@Override
+	public void replaceValue(IValue value, MarkerList markers, IContext context)
+	{
+		this.value = value;
+
+		context = context.push(this);
+
+		value.resolveTypes(markers, context);
+		this.resolveValue(markers, context);
+		this.value.checkTypes(markers, context);
+		this.value.check(markers, this);
+
+		context.pop();
+	}
+
 	@Override
 	public void checkTypes(MarkerList markers, IContext context)
 	{
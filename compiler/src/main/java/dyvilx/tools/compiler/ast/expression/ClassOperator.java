@@ -111,6 +111,11 @@ public final class ClassOperator implements IValue
 		this.type = type;
 	}
 
+	public IType getOperandType()
+	{
+		return this.type;
+	}
+
 	@Override
 	public IValue withType(IType type, ITypeContext typeContext, MarkerList markers, IContext context)
 	{
@@ -118,6 +118,7 @@ public interface IValue extends ASTNode, Typed, WriteableExpression
 	// Pseudo-Expressions
 	int VARIABLE         = 232;
 	int MEMBER_STATEMENT = 233;
+	int DESTRUCTURING    = 234;
 
 	// Special Types only used by the compiler
 	int REFERENCE          = 240;
@@ -471,6 +472,21 @@ public interface IValue extends ASTNode, Typed, WriteableExpression
 		return localIndex;
 	}
 
+	/**
+	 * Writes this tuple value and stores its values in new local variables, without creating the tuple. This is used
+	 * when the tuple is only destructured.
+	 *
+	 * @param types
+	 * 	the array that receives the types of the local variables. Its length is the arity of the tuple
+	 *
+	 * @return the local variable indices of the values, or {@code null} if nothing was written because the tuple has to
+	 * be created
+	 */
+	default int[] writeStoreTupleValues(MethodWriter writer, IType[] types) throws BytecodeException
+	{
+		return null;
+	}
+
 	default void writeAnnotationValue(AnnotationVisitor visitor, String key)
 	{
 		final Object value = this.toObject();
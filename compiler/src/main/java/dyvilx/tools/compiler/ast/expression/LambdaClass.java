@@ -0,0 +1,45 @@
+package dyvilx.tools.compiler.ast.expression;
+
+import dyvilx.tools.compiler.ast.header.ICompilable;
+import dyvilx.tools.compiler.backend.classes.ClassWriter;
+import dyvilx.tools.compiler.backend.exception.BytecodeException;
+import dyvilx.tools.compiler.sources.DyvilFileType;
+
+/**
+ * The class generated for a lambda expression with {@code --precompile-lambdas}, see {@link
+ * LambdaExpr#writeLambdaClass(ClassWriter)}.
+ */
+class LambdaClass implements ICompilable
+{
+	private final LambdaExpr lambda;
+
+	public LambdaClass(LambdaExpr lambda)
+	{
+		this.lambda = lambda;
+	}
+
+	@Override
+	public String getFileName()
+	{
+		final String internalName = this.getInternalName();
+		return internalName.substring(internalName.lastIndexOf('/') + 1) + DyvilFileType.CLASS_EXTENSION;
+	}
+
+	@Override
+	public String getInternalName()
+	{
+		return this.lambda.getLambdaClassName();
+	}
+
+	@Override
+	public String getFullName()
+	{
+		return this.getInternalName().replace('/', '.');
+	}
+
+	@Override
+	public void write(ClassWriter writer) throws BytecodeException
+	{
+		this.lambda.writeLambdaClass(writer);
+	}
+}
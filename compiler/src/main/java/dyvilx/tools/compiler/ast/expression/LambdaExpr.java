@@ -5,10 +5,12 @@ import dyvil.collection.Iterables;
 import dyvil.lang.Formattable;
 import dyvil.lang.Name;
 import dyvil.reflect.Modifiers;
+import dyvil.reflect.Opcodes;
 import dyvil.source.position.SourcePosition;
 import dyvilx.tools.asm.Handle;
 import dyvilx.tools.asm.Type;
 import dyvilx.tools.compiler.ast.attribute.AttributeList;
+import dyvilx.tools.compiler.ast.bytecode.InlineCode;
 import dyvilx.tools.compiler.ast.classes.IClass;
 import dyvilx.tools.compiler.ast.constructor.IConstructor;
 import dyvilx.tools.compiler.ast.context.IContext;
@@ -32,6 +34,7 @@ import dyvilx.tools.compiler.ast.header.ClassCompilable;
 import dyvilx.tools.compiler.ast.header.IClassCompilableList;
 import dyvilx.tools.compiler.ast.header.ICompilableList;
 import dyvilx.tools.compiler.ast.method.IMethod;
+import dyvilx.tools.compiler.ast.method.Specialization;
 import dyvilx.tools.compiler.ast.parameter.*;
 import dyvilx.tools.compiler.ast.type.IType;
 import dyvilx.tools.compiler.ast.type.TypeList;
@@ -40,6 +43,8 @@ import dyvilx.tools.compiler.ast.type.compound.FunctionType;
 import dyvilx.tools.compiler.backend.ClassFormat;
 import dyvilx.tools.compiler.backend.classes.ClassWriter;
 import dyvilx.tools.compiler.backend.exception.BytecodeException;
+import dyvilx.tools.compiler.backend.method.Frame;
+import dyvilx.tools.compiler.backend.method.InlineCodeVisitor;
 import dyvilx.tools.compiler.backend.method.MethodWriter;
 import dyvilx.tools.compiler.backend.method.MethodWriterImpl;
 import dyvilx.tools.compiler.config.Formatting;
@@ -58,6 +63,20 @@ public class LambdaExpr implements IValue, ClassCompilable, IDefaultContext, IPa
 	                                                  + "Ljava/lang/invoke/MethodHandle;"
 	                                                  + "Ljava/lang/invoke/MethodType;" + ClassFormat.BSM_TAIL);
 
+	public static final Handle SPECIALIZED_BOOTSTRAP = new Handle(ClassFormat.H_INVOKESTATIC,
+	                                                              "dyvil/runtime/LambdaMetafactory", "specialized",
+	                                                              ClassFormat.BSM_HEAD + "Ljava/lang/invoke/MethodType;"
+	                                                              + "Ljava/lang/invoke/MethodHandle;"
+	                                                              + "Ljava/lang/invoke/MethodType;"
+	                                                              + "Ljava/lang/String;"
+	                                                              + "Ljava/lang/invoke/MethodType;"
+	                                                              + ClassFormat.BSM_TAIL);
+
+	public static final Handle PRECOMPILED_BOOTSTRAP = new Handle(ClassFormat.H_INVOKESTATIC,
+	                                                              "dyvil/runtime/LambdaMetafactory", "precompiled",
+	                                                              ClassFormat.BSM_HEAD + "Ljava/lang/Class;"
+	                                                              + ClassFormat.BSM_TAIL);
+
 	public static final TypeChecker.MarkerSupplier LAMBDA_MARKER_SUPPLIER = TypeChecker.markerSupplier(
 		"lambda.value.type.incompatible", "return.type", "value.type");
 
@@ -68,6 +87,8 @@ public class LambdaExpr implements IValue, ClassCompilable, IDefaultContext, IPa
 	public static final  int IMPLICIT_PARAMETERS  = 0b00100000;
 	private static final int EXPLICIT_RETURN      = 0b01000000;
 	private static final int LAMBDA_TYPE_INFERRED = 0b10000000;
+	private static final int PRECOMPILED          = 0b100000000;
+	private static final int INLINED              = 0b1000000000;
 
 	// =============== Fields ===============
 
@@ -116,6 +137,17 @@ public class LambdaExpr implements IValue, ClassCompilable, IDefaultContext, IPa
 	 */
 	private String descriptor;
 
+	/**
+	 * The internal name of the lambda class generated at compile time, or {@code null} if the class is generated by the
+	 * {@code LambdaMetafactory} at runtime
+	 */
+	private String lambdaClassName;
+
+	/**
+	 * The recorded body of an inlined lambda expression
+	 */
+	private InlineCode inlineCode;
+
 	// =============== Constructors ===============
 
 	public LambdaExpr(SourcePosition position)
@@ -247,6 +279,11 @@ public class LambdaExpr implements IValue, ClassCompilable, IDefaultContext, IPa
 		this.flags = this.flags & ~HANDLE_TYPE_MASK | handleType;
 	}
 
+	public String getLambdaClassName()
+	{
+		return this.lambdaClassName;
+	}
+
 	private boolean hasImplicitReturnType()
 	{
 		return this.returnType == null || (this.flags & EXPLICIT_RETURN) == 0;
@@ -776,6 +813,11 @@ public class LambdaExpr implements IValue, ClassCompilable, IDefaultContext, IPa
 	@Override
 	public void check(MarkerList markers, IContext context)
 	{
+		if (context.getCompilationContext().config.precompileLambdas())
+		{
+			this.flags |= PRECOMPILED;
+		}
+
 		this.parameters.check(markers, context);
 
 		if (this.returnType != null && (this.flags & EXPLICIT_RETURN) != 0)
@@ -814,7 +856,15 @@ public class LambdaExpr implements IValue, ClassCompilable, IDefaultContext, IPa
 
 		this.value = this.value.cleanup(compilableList, classCompilableList);
 
-		if (this.captureHelper == null || !this.captureHelper.hasCaptures())
+		if ((this.flags & INLINED) != 0)
+		{
+			// the body is written where the lambda expression is invoked, so neither a method nor a class is needed
+			return this;
+		}
+
+		final boolean precompiled = (this.flags & PRECOMPILED) != 0 && !isInterface(classCompilableList);
+
+		if (!precompiled && (this.captureHelper == null || !this.captureHelper.hasCaptures()))
 		{
 			// Check if we can use a direct method reference
 			if (this.value instanceof AbstractCall)
@@ -848,13 +898,26 @@ public class LambdaExpr implements IValue, ClassCompilable, IDefaultContext, IPa
 			}
 		}
 
+		final int index = classCompilableList.classCompilableCount();
 		this.owner = classCompilableList.getInternalName();
-		this.name = "lambda$" + classCompilableList.classCompilableCount();
+		this.name = "lambda$" + index;
 		classCompilableList.addClassCompilable(this);
 
+		if (precompiled)
+		{
+			this.lambdaClassName = this.owner + "$Lambda$" + index;
+			compilableList.addCompilable(new LambdaClass(this));
+		}
+
 		return this;
 	}
 
+	private static boolean isInterface(IClassCompilableList classCompilableList)
+	{
+		// interfaces cannot declare the package-private lambda method that the lambda class needs to call
+		return classCompilableList instanceof IClass && ((IClass) classCompilableList).isInterface();
+	}
+
 	// --------------- Direct Reference Transformation (via cleanup) ---------------
 
 	private boolean checkCall(IValue receiver, ArgumentList arguments, IMethod method)
@@ -925,6 +988,12 @@ public class LambdaExpr implements IValue, ClassCompilable, IDefaultContext, IPa
 	@Override
 	public void writeExpression(MethodWriter writer, IType type) throws BytecodeException
 	{
+		if (this.lambdaClassName != null)
+		{
+			this.writePrecompiled(writer, type);
+			return;
+		}
+
 		int handleType = this.getHandleType();
 		if (handleType == 0)
 		{
@@ -944,8 +1013,45 @@ public class LambdaExpr implements IValue, ClassCompilable, IDefaultContext, IPa
 		final Handle handle = new Handle(handleType, this.owner, this.name, desc);
 
 		writer.visitLineNumber(this.lineNumber());
-		writer.visitInvokeDynamicInsn(invokedName, invokedType, BOOTSTRAP, methodDescriptorType, handle,
-		                              lambdaDescriptorType);
+
+		final Specialization specialization = this.getSpecialization();
+		if (specialization != null)
+		{
+			writer.visitInvokeDynamicInsn(invokedName, invokedType, SPECIALIZED_BOOTSTRAP, methodDescriptorType, handle,
+			                              lambdaDescriptorType, specialization.getName(),
+			                              Type.getMethodType(specialization.getDescriptor()));
+		}
+		else
+		{
+			writer.visitInvokeDynamicInsn(invokedName, invokedType, BOOTSTRAP, methodDescriptorType, handle,
+			                              lambdaDescriptorType);
+		}
+
+		if (type != null)
+		{
+			this.type.writeCast(writer, type, this.lineNumber());
+		}
+	}
+
+	/**
+	 * @return the specialized variant of the functional method for the type arguments of the lambda type, which the
+	 * lambda class implements in addition to the functional method, or {@code null}
+	 */
+	private Specialization getSpecialization()
+	{
+		return Specialization.resolve(this.method, this.type::resolveType);
+	}
+
+	private void writePrecompiled(MethodWriter writer, IType type) throws BytecodeException
+	{
+		if (this.captureHelper != null)
+		{
+			this.captureHelper.writeCaptures(writer, this.lineNumber());
+		}
+
+		writer.visitLineNumber(this.lineNumber());
+		writer.visitInvokeDynamicInsn(this.method.getInternalName(), this.getInvokeDescriptor(),
+		                              PRECOMPILED_BOOTSTRAP, Type.getObjectType(this.lambdaClassName));
 
 		if (type != null)
 		{
@@ -963,16 +1069,22 @@ public class LambdaExpr implements IValue, ClassCompilable, IDefaultContext, IPa
 			return;
 		}
 
-		final boolean thisCaptured = this.captureHelper != null && this.captureHelper.isThisCaptured();
-
+		// the precompiled lambda class is a separate class, so it can only call a package-private method
+		final int modifiers = this.lambdaClassName != null ?
+			                      Modifiers.STATIC | Modifiers.SYNTHETIC :
+			                      Modifiers.PRIVATE | Modifiers.STATIC;
 		final MethodWriter methodWriter = new MethodWriterImpl(writer, writer.visitMethod(
-			Modifiers.PRIVATE | Modifiers.STATIC, this.name, this.getTargetDescriptor(), null, null));
+			modifiers, this.name, this.getTargetDescriptor(), null, null));
+		this.writeMethod(methodWriter);
+	}
 
+	private void writeMethod(MethodWriter methodWriter) throws BytecodeException
+	{
 		if (this.captureHelper != null)
 		{
 			final int index;
 
-			if (thisCaptured)
+			if (this.captureHelper.isThisCaptured())
 			{
 				methodWriter.setLocalType(0, this.captureHelper.getThisType().getFrameType());
 				index = 1;
@@ -994,6 +1106,313 @@ public class LambdaExpr implements IValue, ClassCompilable, IDefaultContext, IPa
 		methodWriter.visitEnd(this.returnType);
 	}
 
+	// --------------- Inlining ---------------
+
+	public boolean isInlined()
+	{
+		return (this.flags & INLINED) != 0;
+	}
+
+	/**
+	 * Marks this lambda expression as inlined if the given method is its functional method. This must only be called
+	 * if the lambda expression is invoked exactly once through that method and never used as an object otherwise. The
+	 * body is then written in place of the invocation by {@link #writeInvocation(MethodWriter, int, int)}, and the
+	 * captured variables can be accessed directly instead of through references.
+	 *
+	 * @return {@code true}, if this lambda expression was marked as inlined
+	 */
+	public boolean setInlined(String owner, String name, String desc)
+	{
+		final IMethod method = this.method;
+		if (method == null || this.name != null)
+		{
+			// not resolved, or already cleaned up
+			return false;
+		}
+		if (!name.equals(method.getInternalName()) || !desc.equals(method.getDescriptor()) || !owner.equals(
+			method.getEnclosingClass().getInternalName()) || Frame.getArgumentCount(desc) != this.parameters.size())
+		{
+			return false;
+		}
+
+		this.flags |= INLINED;
+		if (this.captureHelper != null)
+		{
+			for (CaptureVariable capture : this.captureHelper)
+			{
+				capture.setInlined();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the body of this inlined lambda expression in place of an invocation of its functional method. The
+	 * arguments of the invocation have to be on the stack, and the result of the functional method is left on the
+	 * stack.
+	 *
+	 * @param localCount
+	 * 	the index of the first local variable that can be used for the parameters and locals of the body
+	 */
+	public void writeInvocation(MethodWriter writer, int localCount, int lineNumber) throws BytecodeException
+	{
+		final InlineCode code = this.getInlineCode(writer);
+		final int[] aliases = this.getCaptureAliases();
+
+		final int locals = writer.localCount();
+		final int start = Math.max(localCount, locals);
+		for (int i = locals; i < start; i++)
+		{
+			writer.setLocalType(i, ClassFormat.TOP);
+		}
+
+		// Stack
+
+		final int parameterCount = this.parameters.size();
+		final int spillCount = code.hasHandlers() ? writer.getFrame().stackCount() - parameterCount : 0;
+		final int[] spillSlots = new int[spillCount];
+		int end = start;
+
+		if (spillCount > 0)
+		{
+			// exception handlers clear the operand stack, so the values below the arguments are stored in locals
+			final Frame frame = writer.getFrame().copy();
+			for (int i = 0; i < parameterCount; i++)
+			{
+				frame.pop();
+			}
+			for (int i = 0; i < spillCount; i++)
+			{
+				spillSlots[i] = end;
+				end += ClassFormat.isTwoWord(frame.pop()) ? 2 : 1;
+			}
+		}
+
+		// Parameters
+
+		final int offset = end - aliases.length;
+		final Type[] methodTypes = Type.getArgumentTypes(this.method.getDescriptor());
+		final Type[] lambdaTypes = Type.getArgumentTypes(this.getLambdaDescriptor());
+
+		for (int i = parameterCount - 1; i >= 0; i--)
+		{
+			final IParameter parameter = this.parameters.get(i);
+			if (!methodTypes[i].equals(lambdaTypes[i]))
+			{
+				erasedType(methodTypes[i]).writeCast(writer, parameter.getType(), lineNumber);
+			}
+			writer.visitVarInsn(parameter.getInternalType().getStoreOpcode(), offset + parameter.getLocalIndex());
+		}
+		for (int i = 0; i < spillCount; i++)
+		{
+			writer.visitVarInsn(Opcodes.AUTO_STORE, spillSlots[i]);
+		}
+
+		// Body
+
+		code.writeCode(writer, 0, aliases, offset, end, this.returnType, lineNumber, null);
+		writer.resetLocals(end);
+
+		if (spillCount > 0)
+		{
+			final boolean hasValue = !Types.isVoid(this.returnType);
+			if (hasValue)
+			{
+				writer.visitVarInsn(this.returnType.getStoreOpcode(), end);
+			}
+			for (int i = spillCount - 1; i >= 0; i--)
+			{
+				writer.visitVarInsn(Opcodes.AUTO_LOAD, spillSlots[i]);
+			}
+			if (hasValue)
+			{
+				writer.visitVarInsn(this.returnType.getLoadOpcode(), end);
+			}
+		}
+
+		final Type methodReturnType = Type.getReturnType(this.method.getDescriptor());
+		if (!methodReturnType.equals(Type.getReturnType(this.getLambdaDescriptor())))
+		{
+			this.returnType.writeCast(writer, erasedType(methodReturnType), lineNumber);
+		}
+
+		writer.resetLocals(locals);
+	}
+
+	private synchronized InlineCode getInlineCode(MethodWriter writer) throws BytecodeException
+	{
+		if (this.inlineCode == null)
+		{
+			final InlineCode code = new InlineCode();
+			this.writeMethod(new MethodWriterImpl(writer.getClassWriter(), new InlineCodeVisitor(code)));
+			code.analyze();
+			this.inlineCode = code;
+		}
+		return this.inlineCode;
+	}
+
+	/**
+	 * @return the local variables of the enclosing code that are accessed by the captures of the recorded body
+	 */
+	private int[] getCaptureAliases()
+	{
+		if (this.captureHelper == null)
+		{
+			return new int[0];
+		}
+
+		// the captured instance is always stored in local 0
+		int slots = this.captureHelper.isThisCaptured() ? 1 : 0;
+		for (CaptureVariable capture : this.captureHelper)
+		{
+			slots = Math.max(slots, capture.getLocalIndex() + capture.getInternalType().getLocalSlots());
+		}
+
+		final int[] aliases = new int[slots];
+		for (CaptureVariable capture : this.captureHelper)
+		{
+			final int index = capture.getLocalIndex();
+			final int alias = capture.getVariable().getLocalIndex();
+			for (int i = 0, count = capture.getInternalType().getLocalSlots(); i < count; i++)
+			{
+				aliases[index + i] = alias + i;
+			}
+		}
+		return aliases;
+	}
+
+	// --------------- Lambda Class Compilation ---------------
+
+	/**
+	 * Writes the lambda class, which has the same structure as the classes generated by the {@code AnonymousClassLMF}
+	 * at runtime: One final field per captured value, a constructor that takes the captured values, a {@code
+	 * toString()} method and the implementation of the functional method, which calls the synthetic lambda method. If
+	 * the functional interface declares a specialized variant of the functional method for the type arguments of the
+	 * lambda type, it is implemented the same way.
+	 */
+	void writeLambdaClass(ClassWriter writer) throws BytecodeException
+	{
+		final String className = this.lambdaClassName;
+		final Type[] captureTypes = Type.getArgumentTypes(this.getInvokeDescriptor());
+		final int captureCount = captureTypes.length;
+
+		writer.visit(ClassFormat.CLASS_VERSION, ClassFormat.ACC_SUPER | Modifiers.FINAL | Modifiers.SYNTHETIC,
+		             className, null, "java/lang/Object", new String[] { this.type.getInternalName() });
+
+		for (int i = 0; i < captureCount; i++)
+		{
+			writer.visitField(Modifiers.PRIVATE | Modifiers.FINAL, "arg$" + (i + 1), captureTypes[i].getDescriptor(),
+			                  null, null).visitEnd();
+		}
+
+		// Constructor
+
+		final MethodWriter initWriter = new MethodWriterImpl(writer, writer.visitMethod(
+			Modifiers.SYNTHETIC, "<init>", Type.getMethodDescriptor(Type.VOID_TYPE, captureTypes), null, null));
+
+		initWriter.setLocalType(0, className);
+		for (int i = 0, local = 1; i < captureCount; local += captureTypes[i].getSize(), i++)
+		{
+			initWriter.setLocalType(local, Frame.fieldType(captureTypes[i].getDescriptor()));
+		}
+
+		initWriter.visitCode();
+		initWriter.visitVarInsn(Opcodes.ALOAD, 0);
+		initWriter.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		for (int i = 0, local = 1; i < captureCount; local += captureTypes[i].getSize(), i++)
+		{
+			initWriter.visitVarInsn(Opcodes.ALOAD, 0);
+			initWriter.visitVarInsn(captureTypes[i].getOpcode(Opcodes.ILOAD), local);
+			initWriter.visitFieldInsn(Opcodes.PUTFIELD, className, "arg$" + (i + 1), captureTypes[i].getDescriptor());
+		}
+		initWriter.visitEnd(Types.VOID);
+
+		// toString
+
+		final MethodWriter toStringWriter = new MethodWriterImpl(writer, writer.visitMethod(
+			Modifiers.PUBLIC, "toString", "()Ljava/lang/String;", null, null));
+
+		toStringWriter.setLocalType(0, className);
+		toStringWriter.visitCode();
+		toStringWriter.visitLdcInsn(
+			'<' + this.type.getInternalName().replace('/', '.') + "::" + this.method.getInternalName() + '>');
+		toStringWriter.visitInsn(Opcodes.ARETURN);
+		toStringWriter.visitEnd();
+
+		// Functional Method
+
+		this.writeLambdaClassMethod(writer, captureTypes, this.method.getInternalName(), this.method.getDescriptor());
+
+		final Specialization specialization = this.getSpecialization();
+		if (specialization != null)
+		{
+			// calls through the variant don't have to box their arguments and the return value
+			this.writeLambdaClassMethod(writer, captureTypes, specialization.getName(), specialization.getDescriptor());
+		}
+	}
+
+	/**
+	 * Writes a method of the lambda class with the given name and descriptor, which passes the captured values and its
+	 * arguments to the synthetic lambda method, and converts the arguments and the return value between the types of
+	 * the method and the types of the lambda method.
+	 */
+	private void writeLambdaClassMethod(ClassWriter writer, Type[] captureTypes, String name, String methodDescriptor)
+		throws BytecodeException
+	{
+		final String className = this.lambdaClassName;
+		final int lineNumber = this.lineNumber();
+		final Type[] methodTypes = Type.getArgumentTypes(methodDescriptor);
+		final Type methodReturnType = Type.getReturnType(methodDescriptor);
+		final Type[] lambdaTypes = Type.getArgumentTypes(this.getLambdaDescriptor());
+
+		final MethodWriter methodWriter = new MethodWriterImpl(writer, writer.visitMethod(
+			Modifiers.PUBLIC, name, methodDescriptor, null, null));
+
+		methodWriter.setLocalType(0, className);
+		for (int i = 0, local = 1; i < methodTypes.length; local += methodTypes[i].getSize(), i++)
+		{
+			methodWriter.setLocalType(local, Frame.fieldType(methodTypes[i].getDescriptor()));
+		}
+
+		methodWriter.visitCode();
+		for (int i = 0; i < captureTypes.length; i++)
+		{
+			methodWriter.visitVarInsn(Opcodes.ALOAD, 0);
+			methodWriter.visitFieldInsn(Opcodes.GETFIELD, className, "arg$" + (i + 1), captureTypes[i].getDescriptor());
+		}
+		for (int i = 0, local = 1; i < methodTypes.length; local += methodTypes[i].getSize(), i++)
+		{
+			methodWriter.visitVarInsn(methodTypes[i].getOpcode(Opcodes.ILOAD), local);
+			if (!methodTypes[i].equals(lambdaTypes[i]))
+			{
+				erasedType(methodTypes[i]).writeCast(methodWriter, this.parameters.get(i).getType(), lineNumber);
+			}
+		}
+
+		methodWriter.visitLineNumber(lineNumber);
+		methodWriter.visitMethodInsn(Opcodes.INVOKESTATIC, this.owner, this.name, this.getTargetDescriptor(), false);
+
+		if (!methodReturnType.equals(Type.getReturnType(this.getLambdaDescriptor())))
+		{
+			this.returnType.writeCast(methodWriter, erasedType(methodReturnType), lineNumber);
+		}
+		if (methodReturnType.getSort() != Type.VOID)
+		{
+			methodWriter.visitInsn(methodReturnType.getOpcode(Opcodes.IRETURN));
+		}
+		else
+		{
+			methodWriter.visitInsn(Opcodes.RETURN);
+		}
+		methodWriter.visitEnd();
+	}
+
+	private static IType erasedType(Type type)
+	{
+		// reference types are checked and cast based on the lambda types, so their exact erasure is not needed
+		return type.getSort() >= Type.ARRAY ? Types.OBJECT : Types.fromASMType(type);
+	}
+
 	// --------------- Formatting ---------------
 
 	@Override
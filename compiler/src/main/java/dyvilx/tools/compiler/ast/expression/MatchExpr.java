@@ -16,6 +16,7 @@ import dyvilx.tools.compiler.ast.header.ICompilableList;
 import dyvilx.tools.compiler.ast.pattern.Pattern;
 import dyvilx.tools.compiler.ast.type.IType;
 import dyvilx.tools.compiler.ast.type.builtin.Types;
+import dyvilx.tools.compiler.ast.type.compound.TupleType;
 import dyvilx.tools.compiler.backend.exception.BytecodeException;
 import dyvilx.tools.compiler.backend.method.MethodWriter;
 import dyvilx.tools.compiler.config.Formatting;
@@ -423,7 +424,11 @@ public class MatchExpr implements IValue
 		final int localCount = writer.localCount();
 		final IType matchedType = this.matchedValue.getType();
 
-		final int varIndex = this.matchedValue.writeStore(writer, null);
+		// if the tuple is only ever destructured, its values are matched directly and it is not created
+		final int arity = this.getDestructuredArity(matchedType);
+		final IType[] types = arity > 0 ? new IType[arity] : null;
+		final int[] varIndices = arity > 0 ? this.matchedValue.writeStoreTupleValues(writer, types) : null;
+		final int varIndex = varIndices == null ? this.matchedValue.writeStore(writer, null) : -1;
 
 		final int localCountInner = writer.localCount();
 
@@ -438,7 +443,14 @@ public class MatchExpr implements IValue
 				exhaustive = true;
 			}
 
-			c.pattern.writeJumpOnMismatch(writer, varIndex, elseLabel);
+			if (varIndices != null)
+			{
+				c.pattern.writeJumpOnMismatch(writer, varIndices, types, elseLabel);
+			}
+			else
+			{
+				c.pattern.writeJumpOnMismatch(writer, varIndex, elseLabel);
+			}
 			if (c.condition != null)
 			{
 				c.condition.writeInvJump(writer, elseLabel);
@@ -468,13 +480,41 @@ public class MatchExpr implements IValue
 		writer.visitTargetLabel(elseLabel);
 		if (!exhaustive)
 		{
-			this.writeMatchError(writer, varIndex, matchedType);
+			if (varIndices != null)
+			{
+				this.writeMatchError(writer, varIndices, types);
+			}
+			else
+			{
+				this.writeMatchError(writer, varIndex, matchedType);
+			}
 		}
 
 		writer.visitTargetLabel(endLabel);
 		writer.resetLocals(localCount);
 	}
 
+	/**
+	 * Returns the arity of the matched tuple if all cases can be matched against its values, or {@code 0} otherwise.
+	 */
+	private int getDestructuredArity(IType matchedType)
+	{
+		final int arity = TupleType.getArity(matchedType);
+		if (arity == 0)
+		{
+			return 0;
+		}
+
+		for (int i = 0; i < this.caseCount; i++)
+		{
+			if (!this.cases[i].pattern.isDestructuring(arity))
+			{
+				return 0;
+			}
+		}
+		return arity;
+	}
+
 	private void writeMatchError(MethodWriter writer, int varIndex, IType matchedType) throws BytecodeException
 	{
 		final int lineNumber = this.lineNumber();
@@ -485,6 +525,24 @@ public class MatchExpr implements IValue
 		writer.visitVarInsn(matchedType.getLoadOpcode(), varIndex);
 		matchedType.writeCast(writer, Types.OBJECT, lineNumber);
 
+		this.writeMatchErrorInit(writer, lineNumber);
+	}
+
+	private void writeMatchError(MethodWriter writer, int[] varIndices, IType[] types) throws BytecodeException
+	{
+		final int lineNumber = this.lineNumber();
+
+		writer.visitTypeInsn(Opcodes.NEW, "dyvil/util/MatchError");
+
+		writer.visitInsn(Opcodes.DUP);
+		// the tuple is only created if no case matches
+		TupleType.writeTuple(writer, varIndices, types, lineNumber);
+
+		this.writeMatchErrorInit(writer, lineNumber);
+	}
+
+	private void writeMatchErrorInit(MethodWriter writer, int lineNumber) throws BytecodeException
+	{
 		writer.visitLineNumber(lineNumber);
 		writer
 			.visitMethodInsn(Opcodes.INVOKESPECIAL, "dyvil/util/MatchError", "<init>", "(Ljava/lang/Object;)V", false);
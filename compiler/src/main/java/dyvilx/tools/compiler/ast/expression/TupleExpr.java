@@ -264,6 +264,27 @@ public class TupleExpr implements IValue
 		}
 	}
 
+	// --------------- Destructuring ---------------
+
+	@Override
+	public int[] writeStoreTupleValues(MethodWriter writer, IType[] types) throws BytecodeException
+	{
+		final int arity = this.values.size();
+		if (arity != types.length)
+		{
+			return null;
+		}
+
+		final int[] varIndices = new int[arity];
+		for (int i = 0; i < arity; i++)
+		{
+			final IValue value = this.values.get(i);
+			types[i] = value.getType();
+			varIndices[i] = value.writeStore(writer, null);
+		}
+		return varIndices;
+	}
+
 	@Override
 	public String toString()
 	{
@@ -18,6 +18,7 @@ import dyvilx.tools.compiler.ast.method.intrinsic.Intrinsics;
 import dyvilx.tools.compiler.ast.parameter.ArgumentList;
 import dyvilx.tools.compiler.ast.type.IType;
 import dyvilx.tools.compiler.ast.type.builtin.Types;
+import dyvilx.tools.compiler.ast.type.compound.TupleType;
 import dyvilx.tools.compiler.backend.method.MethodWriter;
 import dyvilx.tools.compiler.backend.exception.BytecodeException;
 import dyvilx.tools.compiler.transform.Deprecation;
@@ -362,6 +363,11 @@ public abstract class AbstractCall implements ICall, IReceiverAccess, OptionalCh
 	@Override
 	public IValue cleanup(ICompilableList compilableList, IClassCompilableList classCompilableList)
 	{
+		if (this.method != null)
+		{
+			this.cleanupCall(classCompilableList);
+		}
+
 		if (this.receiver != null)
 		{
 			this.receiver = this.receiver.cleanup(compilableList, classCompilableList);
@@ -376,6 +382,11 @@ public abstract class AbstractCall implements ICall, IReceiverAccess, OptionalCh
 		return this;
 	}
 
+	protected void cleanupCall(IClassCompilableList classCompilableList)
+	{
+		this.method.cleanupCall(this.receiver, this.arguments, classCompilableList);
+	}
+
 	// Inlined for performance
 	@Override
 	public int lineNumber()
@@ -398,6 +409,14 @@ public abstract class AbstractCall implements ICall, IReceiverAccess, OptionalCh
 		this.method.writeCall(writer, this.receiver, this.arguments, this.genericData, type, this.lineNumber());
 	}
 
+	@Override
+	public int[] writeStoreTupleValues(MethodWriter writer, IType[] types) throws BytecodeException
+	{
+		final IType[] valueTypes = TupleType.getValueTypes(this.getType(), types.length);
+		System.arraycopy(valueTypes, 0, types, 0, types.length);
+		return this.method.writeCallTupleValues(writer, this.receiver, this.arguments, types, this.lineNumber());
+	}
+
 	@Override
 	public void writeJump(MethodWriter writer, Label dest) throws BytecodeException
 	{
@@ -4,6 +4,7 @@ import dyvil.reflect.Opcodes;
 import dyvilx.tools.asm.Label;
 import dyvilx.tools.compiler.ast.expression.IValue;
 import dyvilx.tools.compiler.ast.field.Variable;
+import dyvilx.tools.compiler.ast.header.IClassCompilableList;
 import dyvilx.tools.compiler.ast.method.IMethod;
 import dyvilx.tools.compiler.ast.parameter.ArgumentList;
 import dyvilx.tools.compiler.ast.type.IType;
@@ -37,6 +38,13 @@ public class MethodAssignment extends MethodCall
 		return null;
 	}
 
+	@Override
+	protected void cleanupCall(IClassCompilableList classCompilableList)
+	{
+		// the receiver and argument are stored in variables if the result is used, so lambda expressions are always
+		// evaluated and cannot be inlined
+	}
+
 	@Override
 	public void writeExpression(MethodWriter writer, IType type) throws BytecodeException
 	{
@@ -18,6 +18,7 @@ import dyvilx.tools.compiler.ast.structure.RootPackage;
 import dyvilx.tools.compiler.ast.type.IType;
 import dyvilx.tools.compiler.ast.type.TypeList;
 import dyvilx.tools.compiler.backend.classes.ClassWriter;
+import dyvilx.tools.compiler.backend.classes.ExternalMemberVisitor;
 import dyvilx.tools.compiler.backend.exception.BytecodeException;
 import dyvilx.tools.compiler.backend.method.MethodWriter;
 import dyvilx.tools.compiler.sources.DyvilFileType;
@@ -25,8 +26,10 @@ import dyvilx.tools.parsing.marker.MarkerList;
 
 import java.io.DataInput;
 import java.io.DataOutput;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 public final class ExternalClass extends AbstractClass
 {
@@ -41,8 +44,13 @@ public final class ExternalClass extends AbstractClass
 
 	// =============== Fields ===============
 
-	private byte                resolved;
-	private Map<String, String> innerTypes; // inner name -> full internal name
+	private          byte                resolving; // guarded by Package.rootPackage
+	private volatile byte                resolved;
+	private          Map<String, String> innerTypes; // inner name -> full internal name
+
+	// members that were not created yet, see loadMembers
+	private          byte[]              classFile; // guarded by Package.rootPackage
+	private volatile Set<String>         unloadedMembers;
 
 	// =============== Properties ===============
 
@@ -124,112 +132,211 @@ public final class ExternalClass extends AbstractClass
 
 	public void clearResolved()
 	{
-		this.resolved = 0;
-	}
-
-	private IContext getCombiningContext()
-	{
-		return new CombiningContext(this, Package.rootPackage);
+		synchronized (Package.rootPackage)
+		{
+			this.resolving = 0;
+			this.resolved = 0;
+		}
 	}
 
-	private void resolveMetadata()
+	// --------------- Lazy Members ---------------
+
+	/**
+	 * Registers the members that are created on demand from the given class file.
+	 *
+	 * @param classFile
+	 * 	the class file of this class
+	 * @param memberKeys
+	 * 	the {@linkplain ExternalMemberVisitor#getMemberKey(String) keys} of the members that were not created yet
+	 */
+	public void setUnloadedMembers(byte[] classFile, Set<String> memberKeys)
 	{
-		if ((this.resolved & METADATA) != 0)
+		synchronized (Package.rootPackage)
 		{
-			return;
+			this.classFile = classFile;
+			this.unloadedMembers = memberKeys;
 		}
+	}
 
-		this.resolved |= METADATA;
-
-		final IContext context = this.getCombiningContext();
+	/**
+	 * @return {@code true} if some members of this class were not created yet. In that case, the body of this class can
+	 * be modified by other threads, and must only be accessed while holding the lock on the root package.
+	 */
+	public boolean hasUnloadedMembers()
+	{
+		return this.unloadedMembers != null;
+	}
 
-		this.metadata = IClassMetadata.getClassMetadata(this, this.attributes.flags());
-		this.metadata.resolveTypesBeforeBody(null, context);
-		this.metadata.resolveTypesAfterBody(null, context);
+	/**
+	 * @return the number of member keys whose fields, methods or constructors were not created yet
+	 */
+	public int unloadedMemberCount()
+	{
+		final Set<String> unloaded = this.unloadedMembers;
+		return unloaded == null ? 0 : unloaded.size();
 	}
 
-	private void resolveGenerics()
+	/**
+	 * Creates all fields, methods or constructors with the given key, if they were not created yet.
+	 *
+	 * @param key
+	 * 	the unqualified member name, or {@link ExternalMemberVisitor#CONSTRUCTOR_KEY} for constructors
+	 */
+	public void loadMembers(String key)
 	{
-		if ((this.resolved & GENERICS) != 0)
+		if (this.unloadedMembers == null)
 		{
 			return;
 		}
 
-		this.resolved |= GENERICS;
+		synchronized (Package.rootPackage)
+		{
+			final Set<String> unloaded = this.unloadedMembers;
+			if (unloaded == null || !unloaded.remove(key))
+			{
+				return;
+			}
+
+			ExternalMemberVisitor.loadMembers(this, this.classFile, Collections.singleton(key));
+
+			if (unloaded.isEmpty())
+			{
+				this.classFile = null;
+				this.unloadedMembers = null;
+			}
+		}
+	}
 
-		final int typeParams;
-		if (this.typeParameters == null || (typeParams = this.typeParameters.size()) <= 0)
+	/**
+	 * Creates all fields, methods and constructors that were not created yet.
+	 */
+	public void loadAllMembers()
+	{
+		if (this.unloadedMembers == null)
 		{
 			return;
 		}
 
-		final IContext context = this.getCombiningContext();
-
-		for (int i = 0; i < typeParams; i++)
+		synchronized (Package.rootPackage)
 		{
-			final ITypeParameter typeParameter = this.typeParameters.get(i);
-			typeParameter.resolveTypes(null, context);
+			final Set<String> unloaded = this.unloadedMembers;
+			if (unloaded == null)
+			{
+				return;
+			}
+
+			ExternalMemberVisitor.loadMembers(this, this.classFile, unloaded);
+
+			this.classFile = null;
+			this.unloadedMembers = null;
 		}
 	}
 
-	private void resolveSuperType()
+	private IContext getCombiningContext()
 	{
-		if ((this.resolved & SUPER_TYPE) != 0)
+		return new CombiningContext(this, Package.rootPackage);
+	}
+
+	/**
+	 * Runs the given lazy resolution action at most once per flag. Resolution is serialized using the root package as a
+	 * global lock, so that other threads never observe partially resolved state. Recursive requests for the same flag
+	 * on the resolving thread return immediately, as they did before. If the action throws, the flag is not marked as
+	 * resolved, so that the next request tries again.
+	 */
+	private void resolve(int flag, Runnable action)
+	{
+		if ((this.resolved & flag) != 0)
 		{
 			return;
 		}
 
-		this.resolved |= SUPER_TYPE;
-
-		if (this.superType != null)
+		synchronized (Package.rootPackage)
 		{
-			final IContext context = this.getCombiningContext();
-			this.superType = this.superType.resolveType(null, context);
+			if (((this.resolved | this.resolving) & flag) != 0)
+			{
+				return;
+			}
+
+			this.resolving |= flag;
+			try
+			{
+				action.run();
+				this.resolved |= flag;
+			}
+			finally
+			{
+				this.resolving &= ~flag;
+			}
 		}
 	}
 
-	private void resolveInterfaces()
+	private void resolveMetadata()
 	{
-		if ((this.resolved & INTERFACES) != 0)
-		{
-			return;
-		}
+		this.resolve(METADATA, () -> {
+			final IContext context = this.getCombiningContext();
 
-		this.resolved |= INTERFACES;
-		this.interfaces.resolveTypes(null, this.getCombiningContext());
+			this.metadata = IClassMetadata.getClassMetadata(this, this.attributes.flags());
+			this.metadata.resolveTypesBeforeBody(null, context);
+			this.metadata.resolveTypesAfterBody(null, context);
+		});
 	}
 
-	private void resolveAnnotations()
+	private void resolveGenerics()
 	{
-		if ((this.resolved & ANNOTATIONS) != 0)
-		{
-			return;
-		}
+		this.resolve(GENERICS, () -> {
+			final int typeParams;
+			if (this.typeParameters == null || (typeParams = this.typeParameters.size()) <= 0)
+			{
+				return;
+			}
 
-		this.resolved |= ANNOTATIONS;
-		this.attributes.resolveTypes(null, RootPackage.rootPackage, this);
+			final IContext context = this.getCombiningContext();
+
+			for (int i = 0; i < typeParams; i++)
+			{
+				final ITypeParameter typeParameter = this.typeParameters.get(i);
+				typeParameter.resolveTypes(null, context);
+			}
+		});
 	}
 
-	private void resolveMemberClasses()
+	private void resolveSuperType()
 	{
-		if ((this.resolved & MEMBER_CLASSES) != 0)
-		{
-			return;
-		}
+		this.resolve(SUPER_TYPE, () -> {
+			if (this.superType != null)
+			{
+				final IContext context = this.getCombiningContext();
+				this.superType = this.superType.resolveType(null, context);
+			}
+		});
+	}
 
-		this.resolved |= MEMBER_CLASSES;
-		if (this.innerTypes == null)
-		{
-			return;
-		}
+	private void resolveInterfaces()
+	{
+		this.resolve(INTERFACES, () -> this.interfaces.resolveTypes(null, this.getCombiningContext()));
+	}
 
-		for (Map.Entry<String, String> entry : this.innerTypes.entrySet())
-		{
-			final String innerName = entry.getKey();
-			this.resolveClass(Name.fromRaw(innerName)); // adds the class to the body
-		}
-		this.innerTypes.clear(); // we no longer need this
-		this.innerTypes = null;
+	private void resolveAnnotations()
+	{
+		this.resolve(ANNOTATIONS, () -> this.attributes.resolveTypes(null, RootPackage.rootPackage, this));
+	}
+
+	private void resolveMemberClasses()
+	{
+		this.resolve(MEMBER_CLASSES, () -> {
+			if (this.innerTypes == null)
+			{
+				return;
+			}
+
+			for (Map.Entry<String, String> entry : this.innerTypes.entrySet())
+			{
+				final String innerName = entry.getKey();
+				this.resolveClass(Name.fromRaw(innerName)); // adds the class to the body
+			}
+			this.innerTypes.clear(); // we no longer need this
+			this.innerTypes = null;
+		});
 	}
 
 	// --------------- Resolution ---------------
@@ -248,15 +355,30 @@ public final class ExternalClass extends AbstractClass
 			return null;
 		}
 
-		final String internal = this.innerTypes.get(name.qualified);
-		if (internal == null)
+		synchronized (Package.rootPackage)
 		{
-			return null;
+			// another thread may have loaded the class while we were waiting for the lock
+			final IClass loadedClass = this.body.getClasses().get(name);
+			if (loadedClass != null)
+			{
+				return loadedClass;
+			}
+
+			if (this.innerTypes == null)
+			{
+				return null;
+			}
+
+			final String internal = this.innerTypes.get(name.qualified);
+			if (internal == null)
+			{
+				return null;
+			}
+
+			// Resolve the class name and add it to the body
+			final String fileName = internal + DyvilFileType.CLASS_EXTENSION;
+			return Package.loadExternalClass(fileName, this.body::addClass);
 		}
-
-		// Resolve the class name and add it to the body
-		final String fileName = internal + DyvilFileType.CLASS_EXTENSION;
-		return Package.loadExternalClass(fileName, this.body::addClass);
 	}
 
 	@Override
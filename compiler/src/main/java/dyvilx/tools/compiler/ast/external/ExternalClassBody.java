@@ -0,0 +1,275 @@
+package dyvilx.tools.compiler.ast.external;
+
+import dyvil.annotation.internal.NonNull;
+import dyvil.lang.Name;
+import dyvilx.tools.compiler.ast.classes.ClassBody;
+import dyvilx.tools.compiler.ast.classes.IClass;
+import dyvilx.tools.compiler.ast.constructor.IConstructor;
+import dyvilx.tools.compiler.ast.expression.IValue;
+import dyvilx.tools.compiler.ast.field.IField;
+import dyvilx.tools.compiler.ast.generic.ITypeContext;
+import dyvilx.tools.compiler.ast.method.IMethod;
+import dyvilx.tools.compiler.ast.method.MatchList;
+import dyvilx.tools.compiler.ast.parameter.ArgumentList;
+import dyvilx.tools.compiler.ast.parameter.ParameterList;
+import dyvilx.tools.compiler.ast.structure.Package;
+import dyvilx.tools.compiler.ast.type.IType;
+import dyvilx.tools.compiler.backend.classes.ExternalMemberVisitor;
+import dyvilx.tools.parsing.marker.MarkerList;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The body of an {@link ExternalClass}. Lookups by name only create the members with that name; all other accessors
+ * create all remaining members of the class first. While the class still has members that were not created, the body
+ * can be modified concurrently, so lookups are performed while holding the lock on the root package.
+ */
+public class ExternalClassBody extends ClassBody
+{
+	public ExternalClassBody(ExternalClass externalClass)
+	{
+		super(externalClass);
+	}
+
+	private ExternalClass externalClass()
+	{
+		return (ExternalClass) this.enclosingClass;
+	}
+
+	private boolean load(Name name)
+	{
+		return this.load(name.unqualified);
+	}
+
+	/**
+	 * Creates the members with the given key.
+	 *
+	 * @return {@code true} if the body has to be accessed with the lock on the root package held
+	 */
+	private boolean load(String key)
+	{
+		final ExternalClass externalClass = this.externalClass();
+		externalClass.loadMembers(key);
+		return externalClass.hasUnloadedMembers();
+	}
+
+	private void loadAll()
+	{
+		this.externalClass().loadAllMembers();
+	}
+
+	// --------------- Fields ---------------
+
+	@Override
+	public Iterable<IField> fields()
+	{
+		this.loadAll();
+		return super.fields();
+	}
+
+	@Override
+	public Iterable<IField> enumConstants()
+	{
+		this.loadAll();
+		return super.enumConstants();
+	}
+
+	@Override
+	public int fieldCount()
+	{
+		this.loadAll();
+		return super.fieldCount();
+	}
+
+	@Override
+	public IField getField(int index)
+	{
+		this.loadAll();
+		return super.getField(index);
+	}
+
+	@Override
+	public IField getField(Name name)
+	{
+		if (!this.load(name))
+		{
+			return super.getField(name);
+		}
+		synchronized (Package.rootPackage)
+		{
+			return super.getField(name);
+		}
+	}
+
+	@Override
+	public IValue resolveImplicit(IType type)
+	{
+		this.loadAll();
+		return super.resolveImplicit(type);
+	}
+
+	// --------------- Methods ---------------
+
+	@Override
+	public Iterable<IMethod> methods()
+	{
+		this.loadAll();
+		return super.methods();
+	}
+
+	@Override
+	public Collection<IMethod> allMethods()
+	{
+		this.loadAll();
+		return super.allMethods();
+	}
+
+	@Override
+	public int methodCount()
+	{
+		this.loadAll();
+		return super.methodCount();
+	}
+
+	@Override
+	public IMethod getMethod(int index)
+	{
+		this.loadAll();
+		return super.getMethod(index);
+	}
+
+	@Override
+	public IMethod getMethod(Name name)
+	{
+		if (!this.load(name))
+		{
+			return super.getMethod(name);
+		}
+		synchronized (Package.rootPackage)
+		{
+			return super.getMethod(name);
+		}
+	}
+
+	@Override
+	public void getMethodMatches(MatchList<IMethod> list, IValue receiver, Name name, ArgumentList arguments)
+	{
+		if (name == null)
+		{
+			this.loadAll();
+			super.getMethodMatches(list, receiver, null, arguments);
+			return;
+		}
+
+		if (!this.load(name))
+		{
+			super.getMethodMatches(list, receiver, name, arguments);
+			return;
+		}
+		synchronized (Package.rootPackage)
+		{
+			super.getMethodMatches(list, receiver, name, arguments);
+		}
+	}
+
+	@Override
+	protected int getNamedMethodCacheCapacity()
+	{
+		// the cache is built from the members created so far, so reserve space for the others
+		return super.getNamedMethodCacheCapacity() + this.externalClass().unloadedMemberCount();
+	}
+
+	@Override
+	public void getImplicitMatches(MatchList<IMethod> list, IValue value, IType targetType)
+	{
+		this.loadAll();
+		super.getImplicitMatches(list, value, targetType);
+	}
+
+	@Override
+	public boolean checkImplements(IMethod candidate, ITypeContext typeContext)
+	{
+		if (!this.load(candidate.getName()))
+		{
+			return super.checkImplements(candidate, typeContext);
+		}
+		synchronized (Package.rootPackage)
+		{
+			return super.checkImplements(candidate, typeContext);
+		}
+	}
+
+	@Override
+	public void checkMethods(MarkerList markers, IClass checkedClass, ITypeContext typeContext)
+	{
+		this.loadAll();
+		super.checkMethods(markers, checkedClass, typeContext);
+	}
+
+	@Override
+	public List<IMethod> getImplicitMethodCache()
+	{
+		this.loadAll();
+		return super.getImplicitMethodCache();
+	}
+
+	// --------------- Constructors ---------------
+
+	@Override
+	public Iterable<IConstructor> constructors()
+	{
+		this.loadAll();
+		return super.constructors();
+	}
+
+	@Override
+	public int constructorCount()
+	{
+		this.loadAll();
+		return super.constructorCount();
+	}
+
+	@Override
+	public IConstructor getConstructor(int index)
+	{
+		this.loadAll();
+		return super.getConstructor(index);
+	}
+
+	@Override
+	public IConstructor getConstructor(ParameterList parameters)
+	{
+		if (!this.load(ExternalMemberVisitor.CONSTRUCTOR_KEY))
+		{
+			return super.getConstructor(parameters);
+		}
+		synchronized (Package.rootPackage)
+		{
+			return super.getConstructor(parameters);
+		}
+	}
+
+	@Override
+	public void getConstructorMatches(MatchList<IConstructor> list, ArgumentList arguments)
+	{
+		if (!this.load(ExternalMemberVisitor.CONSTRUCTOR_KEY))
+		{
+			super.getConstructorMatches(list, arguments);
+			return;
+		}
+		synchronized (Package.rootPackage)
+		{
+			super.getConstructorMatches(list, arguments);
+		}
+	}
+
+	// --------------- Formatting ---------------
+
+	@Override
+	public void toString(@NonNull String prefix, @NonNull StringBuilder buffer)
+	{
+		this.loadAll();
+		super.toString(prefix, buffer);
+	}
+}
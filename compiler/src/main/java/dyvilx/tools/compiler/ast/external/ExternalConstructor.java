@@ -35,7 +35,8 @@ public final class ExternalConstructor extends AbstractConstructor implements IE
 
 	// =============== Fields ===============
 
-	private byte resolved;
+	private          byte resolving; // guarded by Package.rootPackage
+	private volatile byte resolved;
 
 	// =============== Constructors ===============
 
@@ -78,17 +79,44 @@ public final class ExternalConstructor extends AbstractConstructor implements IE
 
 	// - - - - - - - - Exceptions - - - - - - - -
 
-	private void resolveExceptions()
+	/**
+	 * Runs the given lazy resolution action at most once per flag, serialized with the root package lock like {@link
+	 * ExternalClass}. The flag is only published once the action completed, so other threads never observe a partially
+	 * resolved constructor.
+	 */
+	private void resolve(int flag, Runnable action)
 	{
-		if (this.exceptions == null || (this.resolved & EXCEPTIONS) != 0)
+		if ((this.resolved & flag) != 0)
 		{
 			return;
 		}
 
-		this.resolved |= EXCEPTIONS;
+		synchronized (Package.rootPackage)
+		{
+			if (((this.resolved | this.resolving) & flag) != 0)
+			{
+				return;
+			}
+
+			this.resolving |= flag;
+			try
+			{
+				action.run();
+				this.resolved |= flag;
+			}
+			finally
+			{
+				this.resolving &= ~flag;
+			}
+		}
+	}
 
-		final IContext context = this.getExternalContext();
-		this.exceptions.resolveTypes(null, context);
+	private void resolveExceptions()
+	{
+		if (this.exceptions != null)
+		{
+			this.resolve(EXCEPTIONS, () -> this.exceptions.resolveTypes(null, this.getExternalContext()));
+		}
 	}
 
 	@Override
@@ -17,7 +17,8 @@ public final class ExternalField extends Field
 	private static final int RETURN_TYPE    = 1 << 1;
 	private static final int CONSTANT_VALUE = 1 << 2;
 
-	private int resolved = CONSTANT_VALUE;
+	private          int resolving; // guarded by Package.rootPackage
+	private volatile int resolved = CONSTANT_VALUE;
 	private Object constantValue;
 
 	public ExternalField(IClass iclass, Name name, String desc, IType type)
@@ -47,35 +48,59 @@ public final class ExternalField extends Field
 		this.attributes.resolveTypes(null, RootPackage.rootPackage, this);
 	}
 
-	private void resolveReturnType()
-	{
-		this.resolved |= RETURN_TYPE;
-		this.type = this.type.resolveType(null, this.getCombiningContext());
-	}
-
-	private void resolveConstantValue()
+	/**
+	 * Runs the given lazy resolution action at most once per flag, serialized with the root package lock like {@link
+	 * ExternalClass}. The flag is only published once the action completed, so other threads never observe a partially
+	 * resolved field.
+	 */
+	private void resolve(int flag, Runnable action)
 	{
-		if ((this.resolved & RETURN_TYPE) == 0)
+		if ((this.resolved & flag) != 0)
 		{
-			this.resolveReturnType();
+			return;
 		}
 
-		this.resolved |= CONSTANT_VALUE;
-
-		final IValue value = IValue.fromObject(this.constantValue);
-		if (value != null)
+		synchronized (Package.rootPackage)
 		{
-			this.value = value.withType(this.type, null, null, this.getCombiningContext());
+			if (((this.resolved | this.resolving) & flag) != 0)
+			{
+				return;
+			}
+
+			this.resolving |= flag;
+			try
+			{
+				action.run();
+				this.resolved |= flag;
+			}
+			finally
+			{
+				this.resolving &= ~flag;
+			}
 		}
 	}
 
+	private void resolveReturnType()
+	{
+		this.resolve(RETURN_TYPE, () -> this.type = this.type.resolveType(null, this.getCombiningContext()));
+	}
+
+	private void resolveConstantValue()
+	{
+		this.resolveReturnType();
+		this.resolve(CONSTANT_VALUE, () -> {
+			final IValue value = IValue.fromObject(this.constantValue);
+			if (value != null)
+			{
+				this.value = value.withType(this.type, null, null, this.getCombiningContext());
+			}
+		});
+	}
+
 	@Override
 	public IType getType()
 	{
-		if ((this.resolved & RETURN_TYPE) == 0)
-		{
-			this.resolveReturnType();
-		}
+		this.resolveReturnType();
 		return this.type;
 	}
 
@@ -89,10 +114,7 @@ public final class ExternalField extends Field
 	@Override
 	public IValue getValue()
 	{
-		if ((this.resolved & CONSTANT_VALUE) == 0)
-		{
-			this.resolveConstantValue();
-		}
+		this.resolveConstantValue();
 		return super.getValue();
 	}
 
@@ -38,7 +38,8 @@ public final class ExternalMethod extends AbstractMethod implements IExternalCal
 
 	// =============== Fields ===============
 
-	private byte resolved;
+	private          byte resolving; // guarded by Package.rootPackage
+	private volatile byte resolved;
 
 	// =============== Constructors ===============
 
@@ -54,17 +55,45 @@ public final class ExternalMethod extends AbstractMethod implements IExternalCal
 
 	// --------------- Getters and Setters ---------------
 
-	// - - - - - - - - Return Type - - - - - - - -
+	// - - - - - - - - Resolution - - - - - - - -
 
-	private void resolveReturnType()
+	/**
+	 * Runs the given lazy resolution action at most once per flag, serialized with the root package lock like {@link
+	 * ExternalClass}. The flag is only published once the action completed, so other threads never observe a partially
+	 * resolved method.
+	 */
+	private void resolve(int flag, Runnable action)
 	{
-		if ((this.resolved & RETURN_TYPE) != 0)
+		if ((this.resolved & flag) != 0)
 		{
 			return;
 		}
 
-		this.resolved |= RETURN_TYPE;
-		this.type = this.type.resolveType(null, this.getExternalContext());
+		synchronized (Package.rootPackage)
+		{
+			if (((this.resolved | this.resolving) & flag) != 0)
+			{
+				return;
+			}
+
+			this.resolving |= flag;
+			try
+			{
+				action.run();
+				this.resolved |= flag;
+			}
+			finally
+			{
+				this.resolving &= ~flag;
+			}
+		}
+	}
+
+	// - - - - - - - - Return Type - - - - - - - -
+
+	private void resolveReturnType()
+	{
+		this.resolve(RETURN_TYPE, () -> this.type = this.type.resolveType(null, this.getExternalContext()));
 	}
 
 	@Override
@@ -78,13 +107,11 @@ public final class ExternalMethod extends AbstractMethod implements IExternalCal
 
 	private void resolveParameters()
 	{
-		if ((this.resolved & PARAMETERS) != 0)
-		{
-			return;
-		}
-
-		this.resolved |= PARAMETERS;
+		this.resolve(PARAMETERS, this::removeSyntheticParameters);
+	}
 
+	private void removeSyntheticParameters()
+	{
 		if (this.typeParameters != null)
 		{
 			for (int i = this.typeParameters.size() - 1; i >= 0; i--)
@@ -127,14 +154,10 @@ public final class ExternalMethod extends AbstractMethod implements IExternalCal
 
 	private void resolveThisType()
 	{
-		if (this.thisType == null || (this.resolved & THIS_TYPE) != 0)
+		if (this.thisType != null)
 		{
-			return;
+			this.resolve(THIS_TYPE, () -> this.setThisType(this.thisType.resolveType(null, this.getExternalContext())));
 		}
-
-		this.resolved |= THIS_TYPE;
-
-		this.setThisType(this.thisType.resolveType(null, this.getExternalContext()));
 	}
 
 	@Override
@@ -148,14 +171,10 @@ public final class ExternalMethod extends AbstractMethod implements IExternalCal
 
 	private void resolveExceptions()
 	{
-		if (this.exceptions == null || (this.resolved & EXCEPTIONS) != 0)
+		if (this.exceptions != null)
 		{
-			return;
+			this.resolve(EXCEPTIONS, () -> this.exceptions.resolveTypes(null, this.getExternalContext()));
 		}
-
-		this.resolved |= EXCEPTIONS;
-
-		this.exceptions.resolveTypes(null, this.getExternalContext());
 	}
 
 	@Override
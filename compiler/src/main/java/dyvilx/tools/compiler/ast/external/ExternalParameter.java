@@ -11,13 +11,15 @@ import dyvilx.tools.compiler.ast.header.ICompilableList;
 import dyvilx.tools.compiler.ast.method.ICallableMember;
 import dyvilx.tools.compiler.ast.method.IExternalCallableMember;
 import dyvilx.tools.compiler.ast.parameter.AbstractParameter;
+import dyvilx.tools.compiler.ast.structure.Package;
 import dyvilx.tools.compiler.ast.type.IType;
 import dyvilx.tools.compiler.backend.method.MethodWriter;
 import dyvilx.tools.parsing.marker.MarkerList;
 
 public class ExternalParameter extends AbstractParameter
 {
-	private boolean resolved;
+	private          boolean resolving; // guarded by Package.rootPackage
+	private volatile boolean resolved;
 
 	public ExternalParameter(ICallableMember callable, Name name, IType type)
 	{
@@ -29,6 +31,10 @@ public class ExternalParameter extends AbstractParameter
 		super(callable, null, name, type, attributes);
 	}
 
+	/**
+	 * Resolves the type of this parameter once, serialized with the root package lock like {@link ExternalClass}. The
+	 * flag is only published once the type is resolved, so other threads never observe an unresolved type.
+	 */
 	private void resolveTypes()
 	{
 		if (this.resolved)
@@ -36,9 +42,24 @@ public class ExternalParameter extends AbstractParameter
 			return;
 		}
 
-		this.resolved = true;
-
-		this.resolveTypes(null, ((IExternalCallableMember) this.method).getExternalContext());
+		synchronized (Package.rootPackage)
+		{
+			if (this.resolved || this.resolving)
+			{
+				return;
+			}
+
+			this.resolving = true;
+			try
+			{
+				this.resolveTypes(null, ((IExternalCallableMember) this.method).getExternalContext());
+				this.resolved = true;
+			}
+			finally
+			{
+				this.resolving = false;
+			}
+		}
 	}
 
 	public void addTypeAnnotation(Annotation annotation, TypePath path)
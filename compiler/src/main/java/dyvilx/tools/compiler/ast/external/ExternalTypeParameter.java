@@ -12,6 +12,7 @@ import dyvilx.tools.compiler.ast.generic.ITypeParametric;
 import dyvilx.tools.compiler.ast.generic.TypeParameter;
 import dyvilx.tools.compiler.ast.header.IClassCompilableList;
 import dyvilx.tools.compiler.ast.header.ICompilableList;
+import dyvilx.tools.compiler.ast.structure.Package;
 import dyvilx.tools.compiler.ast.structure.RootPackage;
 import dyvilx.tools.compiler.ast.type.IType;
 import dyvilx.tools.compiler.backend.exception.BytecodeException;
@@ -27,10 +28,12 @@ public class ExternalTypeParameter extends TypeParameter
 	private static final int UPPER_BOUND  = 1;
 	private static final int LOWER_BOUND  = 2;
 	private static final int REIFIED_KIND = 4;
+	private static final int SPECIALIZED  = 8;
 
 	// =============== Fields ===============
 
-	private byte resolved;
+	private          byte resolving; // guarded by Package.rootPackage
+	private volatile byte resolved;
 
 	// =============== Constructors ===============
 
@@ -73,54 +76,91 @@ public class ExternalTypeParameter extends TypeParameter
 		this.attributes.resolveTypes(null, RootPackage.rootPackage, this);
 	}
 
+	// --------------- Resolution ---------------
+
+	/**
+	 * Runs the given lazy resolution action at most once per flag, serialized with the root package lock like {@link
+	 * ExternalClass}. The flag is only published once the action completed, so other threads never observe a partially
+	 * resolved type parameter.
+	 */
+	private void resolve(int flag, Runnable action)
+	{
+		if ((this.resolved & flag) != 0)
+		{
+			return;
+		}
+
+		synchronized (Package.rootPackage)
+		{
+			if (((this.resolved | this.resolving) & flag) != 0)
+			{
+				return;
+			}
+
+			this.resolving |= flag;
+			try
+			{
+				action.run();
+				this.resolved |= flag;
+			}
+			finally
+			{
+				this.resolving &= ~flag;
+			}
+		}
+	}
+
 	// --------------- Reification ---------------
 
 	@Override
 	public Reified.Type getReifiedKind()
 	{
-		if ((this.resolved & REIFIED_KIND) == 0)
-		{
-			this.resolved |= REIFIED_KIND;
-			this.computeReifiedKind();
-		}
+		this.resolve(REIFIED_KIND, this::computeReifiedKind);
 		return this.reifiedKind;
 	}
 
+	// --------------- Specialization ---------------
+
+	@Override
+	public IType[] getSpecializedTypes()
+	{
+		this.resolve(SPECIALIZED, this::computeSpecializedTypes);
+		return this.specializedTypes;
+	}
+
 	// --------------- Upper Bound ---------------
 
 	@Override
 	public IType getUpperBound()
 	{
-		final IType upperBound = super.getUpperBound();
-		if ((this.resolved & UPPER_BOUND) != 0 || upperBound == null)
-		{
-			return upperBound;
-		}
-
-		this.resolved |= UPPER_BOUND;
-		final IType resolved = upperBound.resolveType(null, this.generic.getTypeParameterContext());
-		this.setUpperBound(resolved);
-		return resolved;
+		this.resolve(UPPER_BOUND, this::resolveUpperBounds);
+		return super.getUpperBound();
 	}
 
 	@Override
 	public IType[] getUpperBounds()
 	{
-		IType[] upperBounds = super.getUpperBounds();
-		if ((this.resolved & UPPER_BOUND) != 0 || upperBounds == null)
+		this.resolve(UPPER_BOUND, this::resolveUpperBounds);
+		return super.getUpperBounds();
+	}
+
+	private void resolveUpperBounds()
+	{
+		final IType[] upperBounds = super.getUpperBounds();
+		if (upperBounds == null)
 		{
-			return upperBounds;
+			return;
 		}
 
-		this.resolved |= UPPER_BOUND;
-
 		final IContext typeParameterContext = this.generic.getTypeParameterContext();
 		final IType[] resolvedUpperBounds = Arrays.stream(upperBounds)
 		                                          .map(t -> t.resolveType(null, typeParameterContext))
 		                                          .toArray(IType[]::new);
 
 		this.setUpperBounds(resolvedUpperBounds);
-		return resolvedUpperBounds;
+
+		// compute both cached representations before the flag is published
+		super.getUpperBound();
 	}
 
 	// --------------- Lower Bound ---------------
@@ -128,15 +168,12 @@ public class ExternalTypeParameter extends TypeParameter
 	@Override
 	public IType getLowerBound()
 	{
-		if ((this.resolved & LOWER_BOUND) == 0)
-		{
-			this.resolved |= LOWER_BOUND;
-
+		this.resolve(LOWER_BOUND, () -> {
 			if (this.lowerBound != null)
 			{
 				this.lowerBound = this.lowerBound.resolveType(null, RootPackage.rootPackage);
 			}
-		}
+		});
 		return this.lowerBound;
 	}
 
@@ -3,6 +3,7 @@ package dyvilx.tools.compiler.ast.field;
 import dyvilx.tools.asm.Label;
 import dyvilx.tools.compiler.ast.context.IContext;
 import dyvilx.tools.compiler.ast.expression.IValue;
+import dyvilx.tools.compiler.ast.field.capture.CaptureDataMember;
 import dyvilx.tools.compiler.ast.member.MemberKind;
 import dyvilx.tools.compiler.ast.type.IType;
 import dyvilx.tools.compiler.backend.method.MethodWriter;
@@ -41,6 +42,18 @@ public interface IVariable extends IDataMember
 		return false;
 	}
 
+	/**
+	 * Requests a reference type for this variable because it is assigned and captured by the given capture. Unlike
+	 * {@link #setReferenceType()}, the reference is not needed if the capture is inlined and can access the variable
+	 * directly.
+	 *
+	 * @return {@code true}, if this variable supports references
+	 */
+	default boolean setReferenceType(CaptureDataMember capture)
+	{
+		return this.setReferenceType();
+	}
+
 	IType getInternalType();
 
 	@Override
@@ -10,6 +10,7 @@ import dyvilx.tools.compiler.ast.constructor.IConstructor;
 import dyvilx.tools.compiler.ast.context.IContext;
 import dyvilx.tools.compiler.ast.expression.IValue;
 import dyvilx.tools.compiler.ast.expression.WriteableExpression;
+import dyvilx.tools.compiler.ast.field.capture.CaptureDataMember;
 import dyvilx.tools.compiler.ast.header.IClassCompilableList;
 import dyvilx.tools.compiler.ast.header.ICompilableList;
 import dyvilx.tools.compiler.ast.member.AbstractMember;
@@ -25,6 +26,8 @@ import dyvilx.tools.compiler.util.Markers;
 import dyvilx.tools.parsing.marker.MarkerList;
 
 import java.lang.annotation.ElementType;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Variable extends AbstractMember implements IVariable
 {
@@ -34,6 +37,10 @@ public class Variable extends AbstractMember implements IVariable
 	// Metadata
 	protected IType refType;
 
+	// the reference type required by captures that assign the variable, unless all of them are inlined
+	protected IType                   captureRefType;
+	protected List<CaptureDataMember> captures;
+
 	/**
 	 * Marks if this variable is assigned anywhere. This is used to check if it is effectively final.
 	 */
@@ -139,7 +146,19 @@ public class Variable extends AbstractMember implements IVariable
 	@Override
 	public IType getReferenceType()
 	{
-		return this.refType;
+		if (this.refType != null || this.captures == null)
+		{
+			return this.refType;
+		}
+
+		for (CaptureDataMember capture : this.captures)
+		{
+			if (!capture.isInlined())
+			{
+				return this.captureRefType;
+			}
+		}
+		return null;
 	}
 
 	@Override
@@ -152,10 +171,26 @@ public class Variable extends AbstractMember implements IVariable
 		return true;
 	}
 
+	@Override
+	public boolean setReferenceType(CaptureDataMember capture)
+	{
+		if (this.captures == null)
+		{
+			this.captureRefType = this.type.getSimpleRefType();
+			this.captures = new ArrayList<>();
+		}
+		if (!this.captures.contains(capture))
+		{
+			this.captures.add(capture);
+		}
+		return true;
+	}
+
 	@Override
 	public IType getInternalType()
 	{
-		return this.refType == null ? this.type : this.refType;
+		final IType refType = this.getReferenceType();
+		return refType == null ? this.type : refType;
 	}
 
 	@Override
@@ -256,7 +291,7 @@ public class Variable extends AbstractMember implements IVariable
 	@Override
 	public void writeInit(MethodWriter writer, IValue value) throws BytecodeException
 	{
-		if (this.refType != null)
+		if (this.getReferenceType() != null)
 		{
 			writeRefInit(this, writer, value);
 			return;
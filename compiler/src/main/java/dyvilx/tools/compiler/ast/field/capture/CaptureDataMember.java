@@ -47,6 +47,15 @@ public abstract class CaptureDataMember implements IDataMember
 		this.localIndex = localIndex;
 	}
 
+	/**
+	 * @return {@code true}, if the code that accesses this capture is inlined into the scope of the captured variable,
+	 * so the variable does not need to be wrapped in a reference
+	 */
+	public boolean isInlined()
+	{
+		return false;
+	}
+
 	@Override
 	public SourcePosition getPosition()
 	{
@@ -159,7 +168,7 @@ public abstract class CaptureDataMember implements IDataMember
 		if (this.variable.isAssigned() && !this.variable.hasModifier(Modifiers.FINAL))
 		{
 			// Reference Capture is required
-			this.variable.setReferenceType();
+			this.variable.setReferenceType(this);
 		}
 	}
 
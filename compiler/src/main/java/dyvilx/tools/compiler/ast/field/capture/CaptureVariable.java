@@ -18,6 +18,8 @@ public class CaptureVariable extends CaptureDataMember implements IVariable
 {
 	public static Function<? super IVariable, CaptureVariable> FACTORY = CaptureVariable::new;
 
+	private boolean inlined;
+
 	public CaptureVariable()
 	{
 	}
@@ -39,10 +41,26 @@ public class CaptureVariable extends CaptureDataMember implements IVariable
 		return this.variable.isAssigned();
 	}
 
+	@Override
+	public boolean isInlined()
+	{
+		if (!this.inlined)
+		{
+			return false;
+		}
+		// a capture of a capture can only access the variable directly if the enclosing capture is inlined as well
+		return !(this.variable instanceof CaptureDataMember) || ((CaptureDataMember) this.variable).isInlined();
+	}
+
+	public void setInlined()
+	{
+		this.inlined = true;
+	}
+
 	@Override
 	public boolean setAssigned()
 	{
-		return this.variable.setAssigned() && this.variable.setReferenceType();
+		return this.variable.setAssigned() && this.variable.setReferenceType(this);
 	}
 
 	@Override
@@ -57,6 +75,12 @@ public class CaptureVariable extends CaptureDataMember implements IVariable
 		return this.variable.setReferenceType();
 	}
 
+	@Override
+	public boolean setReferenceType(CaptureDataMember capture)
+	{
+		return this.variable.setReferenceType(capture);
+	}
+
 	private WriteableExpression asWriteableExpression()
 	{
 		return (writer, type) -> writer.visitVarInsn(Opcodes.ALOAD, this.localIndex);
@@ -87,7 +111,14 @@ public class CaptureVariable extends CaptureDataMember implements IVariable
 		int lineNumber) throws BytecodeException
 	{
 		final IType referenceType = this.variable.getReferenceType();
-		assert referenceType != null;
+		if (referenceType == null)
+		{
+			// the capture is inlined, so the local variable is assigned directly
+			final IType type = this.getType();
+			value.writeExpression(writer, type);
+			writer.visitVarInsn(type.getStoreOpcode(), this.localIndex);
+			return;
+		}
 
 		referenceType.resolveField(Names.value).writeSet(writer, this.asWriteableExpression(), value, lineNumber);
 	}
@@ -97,7 +128,14 @@ public class CaptureVariable extends CaptureDataMember implements IVariable
 		@NonNull WriteableExpression value, int lineNumber) throws BytecodeException
 	{
 		final IType referenceType = this.variable.getReferenceType();
-		assert referenceType != null;
+		if (referenceType == null)
+		{
+			final IType type = this.getType();
+			value.writeExpression(writer, type);
+			writer.visitInsn(Opcodes.AUTO_DUP);
+			writer.visitVarInsn(type.getStoreOpcode(), this.localIndex);
+			return;
+		}
 
 		referenceType.resolveField(Names.value).writeSetCopy(writer, this.asWriteableExpression(), value, lineNumber);
 	}
@@ -15,6 +15,7 @@ import dyvilx.tools.compiler.ast.header.IClassCompilableList;
 import dyvilx.tools.compiler.ast.header.ICompilableList;
 import dyvilx.tools.compiler.ast.parameter.CodeParameter;
 import dyvilx.tools.compiler.ast.type.IType;
+import dyvilx.tools.compiler.ast.type.builtin.Types;
 import dyvilx.tools.compiler.backend.exception.BytecodeException;
 import dyvilx.tools.compiler.backend.method.MethodWriter;
 import dyvilx.tools.compiler.util.Markers;
@@ -140,6 +141,7 @@ public class CodeTypeParameter extends TypeParameter
 
 		this.attributes.resolve(markers, context);
 		this.computeReifiedKind();
+		this.computeSpecializedTypes();
 	}
 
 	// --------------- Diagnostic Phases ---------------
@@ -174,6 +176,30 @@ public class CodeTypeParameter extends TypeParameter
 		{
 			upperBound.check(markers, context);
 		}
+
+		if (this.specializedTypes != null)
+		{
+			this.checkSpecializedTypes(markers);
+		}
+	}
+
+	private void checkSpecializedTypes(MarkerList markers)
+	{
+		if (this.getReifiedKind() != null)
+		{
+			markers.add(Markers.semanticWarning(this.position, "type_parameter.specialized.reified", this.name));
+			return;
+		}
+
+		final IType upperBound = this.getUpperBound();
+		for (IType type : this.specializedTypes)
+		{
+			if (!Types.isSuperType(upperBound, type))
+			{
+				markers.add(Markers.semanticWarning(this.position, "type_parameter.specialized.bound", this.name,
+				                                    type));
+			}
+		}
 	}
 
 	// --------------- Compilation Phases ---------------
@@ -239,6 +265,7 @@ public class CodeTypeParameter extends TypeParameter
 		copy.getAttributes().addAll(this.getAttributes());
 		copy.setUpperBound(this.getUpperBound());
 		copy.setLowerBound(this.getLowerBound());
+		copy.specializedTypes = this.specializedTypes;
 		return copy;
 	}
 }
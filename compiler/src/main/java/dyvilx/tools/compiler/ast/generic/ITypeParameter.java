@@ -60,6 +60,10 @@ public interface ITypeParameter extends ASTNode, Resolvable, Named, Attributable
 
 	void setReifyParameter(IParameter parameter);
 
+	// --------------- Specialization ---------------
+
+	IType[] getSpecializedTypes();
+
 	// --------------- Variance ---------------
 
 	Variance getVariance();
@@ -14,6 +14,7 @@ import dyvilx.tools.compiler.ast.expression.constant.EnumValue;
 import dyvilx.tools.compiler.ast.field.IDataMember;
 import dyvilx.tools.compiler.ast.method.IMethod;
 import dyvilx.tools.compiler.ast.method.MatchList;
+import dyvilx.tools.compiler.ast.method.Specialization;
 import dyvilx.tools.compiler.ast.parameter.ArgumentList;
 import dyvilx.tools.compiler.ast.parameter.IParameter;
 import dyvilx.tools.compiler.ast.type.IType;
@@ -59,6 +60,8 @@ public abstract class TypeParameter implements ITypeParameter
 	protected Reified.Type reifiedKind; // defaults to null (not reified)
 	protected IParameter   reifyParameter;
 
+	protected IType[] specializedTypes; // defaults to null (not specialized)
+
 	private final IType covariantType = new CovariantTypeVarType(this);
 
 	// =============== Constructors ===============
@@ -174,6 +177,30 @@ public abstract class TypeParameter implements ITypeParameter
 		this.reifyParameter = parameter;
 	}
 
+	// --------------- Specialization ---------------
+
+	protected void computeSpecializedTypes()
+	{
+		if (this.specializedTypes != null)
+		{
+			return;
+		}
+
+		final Annotation specializedAnnotation = this.getAnnotation(Types.SPECIALIZED_CLASS);
+		if (specializedAnnotation != null)
+		{
+			final IParameter parameter = Types.SPECIALIZED_CLASS.getParameters().get(0);
+			final IValue value = specializedAnnotation.getArguments().get(parameter);
+			this.specializedTypes = Specialization.getSpecializedTypes(value);
+		}
+	}
+
+	@Override
+	public IType[] getSpecializedTypes()
+	{
+		return this.specializedTypes;
+	}
+
 	// --------------- Variance ---------------
 
 	@Override
@@ -1,19 +1,179 @@
 package dyvilx.tools.compiler.ast.header;
 
 import dyvil.reflect.Modifiers;
+import dyvil.source.position.Positioned;
+import dyvil.source.position.SourcePosition;
 import dyvilx.tools.compiler.DyvilCompiler;
+import dyvilx.tools.compiler.ast.classes.ClassBody;
 import dyvilx.tools.compiler.ast.classes.IClass;
 import dyvilx.tools.compiler.ast.consumer.IClassConsumer;
+import dyvilx.tools.compiler.ast.constructor.IConstructor;
+import dyvilx.tools.compiler.ast.constructor.IInitializer;
+import dyvilx.tools.compiler.ast.context.IContext;
+import dyvilx.tools.compiler.ast.expression.IValue;
+import dyvilx.tools.compiler.ast.field.IField;
+import dyvilx.tools.compiler.ast.field.IProperty;
+import dyvilx.tools.compiler.ast.method.ICallableMember;
+import dyvilx.tools.compiler.ast.method.IMethod;
+import dyvilx.tools.compiler.ast.statement.StatementList;
 import dyvilx.tools.compiler.ast.structure.Package;
 import dyvilx.tools.compiler.parser.DyvilSymbols;
+import dyvilx.tools.compiler.parser.SemicolonInference;
 import dyvilx.tools.compiler.parser.header.SourceFileParser;
+import dyvilx.tools.compiler.parser.statement.StatementListParser;
 import dyvilx.tools.compiler.sources.DyvilFileType;
+import dyvilx.tools.compiler.util.Markers;
+import dyvilx.tools.parsing.IParserManager;
+import dyvilx.tools.parsing.Parser;
 import dyvilx.tools.parsing.ParserManager;
+import dyvilx.tools.parsing.TextEdit;
+import dyvilx.tools.parsing.TokenIterator;
+import dyvilx.tools.parsing.lexer.BaseSymbols;
+import dyvilx.tools.parsing.lexer.DyvilLexer;
+import dyvilx.tools.parsing.marker.Marker;
+import dyvilx.tools.parsing.marker.MarkerList;
+import dyvilx.tools.parsing.token.IToken;
+import dyvilx.tools.parsing.token.TokenBuffer;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ClassUnit extends SourceHeader implements IClassConsumer
 {
+	// =============== Classes ===============
+
+	/**
+	 * The {@code { ... }} body of a method or constructor, given as the token indices of its braces.
+	 */
+	private static final class MemberBody
+	{
+		final ICallableMember member;
+
+		int open;
+		int close;
+
+		MemberBody(ICallableMember member, int open, int close)
+		{
+			this.member = member;
+			this.open = open;
+			this.close = close;
+		}
+	}
+
+	/**
+	 * Maps positions after an edited member body from the old text to the new text. All reused tokens are moved like
+	 * the closing brace of the body: by the change of the column if they are on the same line, and by the change of the
+	 * line otherwise.
+	 */
+	private static final class PositionShift
+	{
+		final int oldLine;
+		final int oldColumn;
+		final int newLine;
+		final int newColumn;
+
+		PositionShift(int oldLine, int oldColumn, int newLine, int newColumn)
+		{
+			this.oldLine = oldLine;
+			this.oldColumn = oldColumn;
+			this.newLine = newLine;
+			this.newColumn = newColumn;
+		}
+
+		private boolean isShifted(int line, int column)
+		{
+			return line > this.oldLine || line == this.oldLine && column >= this.oldColumn;
+		}
+
+		private int line(int line, int column)
+		{
+			return this.isShifted(line, column) ? line - this.oldLine + this.newLine : line;
+		}
+
+		private int column(int line, int column)
+		{
+			return line == this.oldLine && column >= this.oldColumn ? column - this.oldColumn + this.newColumn : column;
+		}
+
+		SourcePosition apply(SourcePosition position)
+		{
+			if (position == null || !this.isShifted(position.endLine(), position.endColumn()))
+			{
+				return position;
+			}
+
+			final int startLine = position.startLine();
+			final int startColumn = position.startColumn();
+			final int endLine = position.endLine();
+			final int endColumn = position.endColumn();
+			return SourcePosition.apply(this.line(startLine, startColumn), this.line(endLine, endColumn),
+			                            this.column(startLine, startColumn), this.column(endLine, endColumn));
+		}
+
+		Marker apply(Marker marker)
+		{
+			final SourcePosition position = this.apply(marker.getPosition());
+			if (position == marker.getPosition())
+			{
+				return marker;
+			}
+
+			final Marker shifted = new Marker(position, marker.getLevel(), marker.getMessage());
+			shifted.getInfo().addAll(marker.getInfo());
+			return shifted;
+		}
+
+		void applyTo(Positioned node)
+		{
+			node.setPosition(this.apply(node.getPosition()));
+		}
+
+		void applyToMembers(IClass iclass)
+		{
+			this.applyTo(iclass);
+
+			final ClassBody body = iclass.getBody();
+			if (body == null)
+			{
+				return;
+			}
+
+			this.applyTo(body);
+			for (IField field : body.fields())
+			{
+				this.applyTo(field);
+			}
+			for (IProperty property : body.properties())
+			{
+				this.applyTo(property);
+			}
+			for (IMethod method : body.methods())
+			{
+				this.applyTo(method);
+			}
+			for (IConstructor constructor : body.constructors())
+			{
+				this.applyTo(constructor);
+			}
+			for (IInitializer initializer : body.initializers())
+			{
+				this.applyTo(initializer);
+			}
+			for (IClass innerClass : body.getClasses())
+			{
+				this.applyToMembers(innerClass);
+			}
+		}
+	}
+
+	// =============== Fields ===============
+
+	/**
+	 * The bodies of all methods and constructors, in token order. Only available if tokens are retained.
+	 */
+	private List<MemberBody> memberBodies;
+
 	// =============== Constructors ===============
 
 	public ClassUnit(DyvilCompiler compiler, Package pack, File input, File output)
@@ -55,9 +215,230 @@ public class ClassUnit extends SourceHeader implements IClassConsumer
 	@Override
 	public void parse()
 	{
-		new ParserManager(DyvilSymbols.INSTANCE, this.tokens.iterator(), this.markers)
-			.parse(new SourceFileParser(this));
-		this.tokens = null;
+		final ParserManager manager = new ParserManager(DyvilSymbols.INSTANCE, this.tokens.iterator(), this.markers);
+		manager.parse(new SourceFileParser(this));
+		this.logParseStatistics(manager);
+
+		if (!this.retainTokens)
+		{
+			this.tokens = null;
+			return;
+		}
+
+		this.memberBodies = new ArrayList<>();
+		for (IClass iclass : this.classes)
+		{
+			this.addMemberBodies(iclass);
+		}
+		this.memberBodies.sort((body1, body2) -> Integer.compare(body1.open, body2.open));
+	}
+
+	private void addMemberBodies(IClass iclass)
+	{
+		final ClassBody body = iclass.getBody();
+		if (body == null)
+		{
+			return;
+		}
+
+		for (ICallableMember method : body.methods())
+		{
+			this.addMemberBody(method);
+		}
+		for (ICallableMember constructor : body.constructors())
+		{
+			this.addMemberBody(constructor);
+		}
+		for (IClass innerClass : body.getClasses())
+		{
+			this.addMemberBodies(innerClass);
+		}
+	}
+
+	private void addMemberBody(ICallableMember member)
+	{
+		if (!(member.getValue() instanceof StatementList))
+		{
+			// expression and lambda bodies are not updated incrementally
+			return;
+		}
+
+		final TokenBuffer buffer = this.tokens.getBuffer();
+		final SourcePosition position = member.getValue().getPosition();
+		final int open = buffer.indexOf(position.startLine(), position.startColumn());
+		if (open < 0 || buffer.type(open) != BaseSymbols.OPEN_CURLY_BRACKET)
+		{
+			return;
+		}
+
+		// find the matching closing brace
+		final int size = buffer.size();
+		for (int i = open + 1, depth = 1; i < size; i++)
+		{
+			switch (buffer.type(i))
+			{
+			case BaseSymbols.OPEN_CURLY_BRACKET:
+				depth++;
+				continue;
+			case BaseSymbols.CLOSE_CURLY_BRACKET:
+				if (--depth == 0)
+				{
+					this.memberBodies.add(new MemberBody(member, open, i));
+					return;
+				}
+			}
+		}
+	}
+
+	// --------------- Incremental Updates ---------------
+
+	/**
+	 * Applies the given edit to the source text of this unit, and updates the tokens and the AST accordingly. Only the
+	 * tokens around the edit are re-lexed. If the edit is contained in the body of a single method or constructor, only
+	 * that body is parsed again, and the member is resolved and checked again in its original context; all other
+	 * members keep their resolved AST nodes.
+	 * <p>
+	 * This requires that tokens were {@linkplain #setRetainTokens(boolean) retained} while parsing, and is meant to be
+	 * used after the {@code CHECK} phase. The markers after the edited body, and the positions of all classes and
+	 * members, are shifted to the new text. Positions of expressions and types within other members are not updated.
+	 *
+	 * @param edit
+	 * 	the text edit
+	 *
+	 * @return the member that was updated, or {@code null} if the edit cannot be applied incrementally and the unit has
+	 * to be compiled again from the new text
+	 */
+	public ICallableMember reparse(TextEdit edit)
+	{
+		if (this.tokens == null || this.memberBodies == null)
+		{
+			return null;
+		}
+
+		final String oldText = this.fileSource.text();
+		final String newText = edit.apply(oldText);
+		final TokenBuffer oldTokens = this.tokens.getBuffer();
+		final MarkerList lexerMarkers = new MarkerList(Markers.INSTANCE);
+
+		final int reused = new DyvilLexer(lexerMarkers, DyvilSymbols.INSTANCE)
+			                   .relex(this.tokens, oldText, newText, edit, SemicolonInference::inferSemicolon);
+		if (reused < 0)
+		{
+			return null;
+		}
+
+		this.fileSource.load(newText);
+
+		final TokenBuffer newTokens = this.tokens.getBuffer();
+		final int delta = newTokens.size() - oldTokens.size();
+		final int changed = firstChange(oldTokens, newTokens, reused);
+
+		// find the outermost member body that contains all changed tokens
+		MemberBody memberBody = null;
+		for (MemberBody body : this.memberBodies)
+		{
+			if (body.open < changed && reused <= body.close)
+			{
+				memberBody = body;
+				break;
+			}
+		}
+		if (memberBody == null)
+		{
+			this.memberBodies = null;
+			return null;
+		}
+
+		final ICallableMember member = memberBody.member;
+		final int oldClose = memberBody.close;
+		final int newClose = oldClose + delta;
+
+		// remove the markers of the body, they are reported again below
+		final int open = memberBody.open;
+		final int startLine = oldTokens.startLine(open);
+		final int startColumn = oldTokens.startColumn(open);
+		final int endLine = oldTokens.endLine(oldClose);
+		final int endColumn = oldTokens.endColumn(oldClose);
+		this.markers.removeIf(marker -> {
+			final SourcePosition position = marker.getPosition();
+			final int line = position.startLine();
+			final int column = position.startColumn();
+			return (line > startLine || line == startLine && column >= startColumn) //
+			       && (line < endLine || line == endLine && column < endColumn);
+		});
+
+		// move the markers and members after the body like its closing brace
+		final PositionShift shift = new PositionShift(endLine, endColumn, newTokens.endLine(newClose),
+		                                              newTokens.endColumn(newClose));
+		this.markers.replaceAll(shift::apply);
+		for (IClass iclass : this.classes)
+		{
+			shift.applyToMembers(iclass);
+		}
+
+		// update the token indices of the following bodies, and forget the bodies of nested classes
+		this.memberBodies.removeIf(body -> body.open > open && body.close <= oldClose);
+		for (MemberBody body : this.memberBodies)
+		{
+			if (body.open > oldClose)
+			{
+				body.open += delta;
+				body.close += delta;
+			}
+		}
+		memberBody.close = newClose;
+
+		// parse the body
+		final IValue[] value = new IValue[1];
+		final StatementListParser parser = new StatementListParser(body -> value[0] = body);
+		parser.setParent(new Parser()
+		{
+			@Override
+			public void parse(IParserManager pm, IToken token)
+			{
+				// stop after the closing brace
+				pm.stop();
+			}
+		});
+
+		final TokenIterator iterator = new TokenIterator(newTokens.get(open));
+		new ParserManager(DyvilSymbols.INSTANCE, iterator, this.markers).parse(parser);
+
+		// resolve and check the new body in the context of its enclosing classes, the signature is already resolved
+		final IContext context = pushClasses(this.getContext(), member.getEnclosingClass());
+		member.replaceValue(value[0], this.markers, context);
+
+		this.markers.addAll(lexerMarkers);
+		return member;
+	}
+
+	private static IContext pushClasses(IContext context, IClass iclass)
+	{
+		if (iclass == null)
+		{
+			return context;
+		}
+		return pushClasses(context, iclass.getEnclosingClass()).push(iclass);
+	}
+
+	/**
+	 * @return the index of the first token that was changed or moved, at most {@code reused}
+	 */
+	private static int firstChange(TokenBuffer oldTokens, TokenBuffer newTokens, int reused)
+	{
+		final int size = Math.min(reused, newTokens.size());
+		for (int i = 0; i < size; i++)
+		{
+			if (!newTokens.isSameToken(i, oldTokens, i) //
+			    || newTokens.startLine(i) != oldTokens.startLine(i)
+			    || newTokens.startColumn(i) != oldTokens.startColumn(i)
+			    || newTokens.endLine(i) != oldTokens.endLine(i)
+			    || newTokens.endColumn(i) != oldTokens.endColumn(i))
+			{
+				return i;
+			}
+		}
+		return size;
 	}
 
 	@Override
@@ -49,71 +49,76 @@ public interface ICompilationUnit extends ASTNode
 		}
 
 		final int errors = markers.getErrors();
-		final MarkerStyle style = compiler.config.getMarkerStyle();
-		final boolean colors = compiler.config.useAnsiColors();
-		final MarkerPrinter printer = new MarkerPrinter(source, style, colors);
 
-		if (compiler.config.isDebug())
+		// keep the output of one unit together when units are compiled in parallel
+		synchronized (compiler)
 		{
-			compiler.log(I18n.get("unit.problems", fileType.getLocalizedName(), name, source.file()));
-			compiler.log("");
-		}
-
-		final OutputStreamWriter writer = new OutputStreamWriter(
-			style == MarkerStyle.JAVAC ? compiler.getErrorOutput() : compiler.getOutput());
-		printer.print(markers, writer);
-		try
-		{
-			writer.flush();
-		}
-		catch (IOException ex)
-		{
-			ex.printStackTrace(compiler.getErrorOutput());
-		}
+			final MarkerStyle style = compiler.config.getMarkerStyle();
+			final boolean colors = compiler.config.useAnsiColors();
+			final MarkerPrinter printer = new MarkerPrinter(source, style, colors);
 
-		if (compiler.config.isDebug())
-		{
-			final StringBuilder summary = new StringBuilder();
-
-			final int warnings = markers.getWarnings();
-			if (warnings > 0)
+			if (compiler.config.isDebug())
 			{
-				final String warningsStr =
-					warnings == 1 ? I18n.get("unit.warnings.1") : I18n.get("unit.warnings.n", warnings);
+				compiler.log(I18n.get("unit.problems", fileType.getLocalizedName(), name, source.file()));
+				compiler.log("");
+			}
 
-				if (colors)
-				{
-					Console.appendStyled(summary, warningsStr, Console.ANSI_YELLOW);
-				}
-				else
-				{
-					summary.append(warningsStr);
-				}
+			final OutputStreamWriter writer = new OutputStreamWriter(
+				style == MarkerStyle.JAVAC ? compiler.getErrorOutput() : compiler.getOutput());
+			printer.print(markers, writer);
+			try
+			{
+				writer.flush();
+			}
+			catch (IOException ex)
+			{
+				ex.printStackTrace(compiler.getErrorOutput());
 			}
 
-			if (errors > 0)
+			if (compiler.config.isDebug())
 			{
+				final StringBuilder summary = new StringBuilder();
+
+				final int warnings = markers.getWarnings();
 				if (warnings > 0)
 				{
-					summary.append(", ");
+					final String warningsStr =
+						warnings == 1 ? I18n.get("unit.warnings.1") : I18n.get("unit.warnings.n", warnings);
+
+					if (colors)
+					{
+						Console.appendStyled(summary, warningsStr, Console.ANSI_YELLOW);
+					}
+					else
+					{
+						summary.append(warningsStr);
+					}
 				}
 
-				if (colors)
+				if (errors > 0)
 				{
-					summary.append(Console.ANSI_RED);
+					if (warnings > 0)
+					{
+						summary.append(", ");
+					}
+
+					if (colors)
+					{
+						summary.append(Console.ANSI_RED);
+					}
+
+					summary.append(errors == 1 ? I18n.get("unit.errors.1") : I18n.get("unit.errors.n", errors));
+					summary.append(": ");
+					summary.append(I18n.get("unit.problems.not_compiled", name, fileType.getLocalizedName()));
+
+					if (colors)
+					{
+						summary.append(Console.ANSI_RESET);
+					}
 				}
 
-				summary.append(errors == 1 ? I18n.get("unit.errors.1") : I18n.get("unit.errors.n", errors));
-				summary.append(": ");
-				summary.append(I18n.get("unit.problems.not_compiled", name, fileType.getLocalizedName()));
-
-				if (colors)
-				{
-					summary.append(Console.ANSI_RESET);
-				}
+				compiler.log(summary.toString());
 			}
-
-			compiler.log(summary.toString());
 		}
 
 		if (errors > 0)
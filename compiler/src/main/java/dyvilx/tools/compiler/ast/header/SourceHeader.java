@@ -18,6 +18,7 @@ import dyvilx.tools.compiler.parser.header.SourceFileParser;
 import dyvilx.tools.compiler.sources.DyvilFileType;
 import dyvilx.tools.compiler.util.Markers;
 import dyvilx.tools.compiler.util.Util;
+import dyvilx.tools.parsing.ParseMemo;
 import dyvilx.tools.parsing.ParserManager;
 import dyvilx.tools.parsing.TokenList;
 import dyvilx.tools.parsing.lexer.DyvilLexer;
@@ -27,6 +28,8 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class SourceHeader extends AbstractHeader implements ISourceHeader, IDefaultContext
 {
@@ -35,9 +38,16 @@ public class SourceHeader extends AbstractHeader implements ISourceHeader, IDefa
 	protected TokenList  tokens;
 	protected MarkerList markers = new MarkerList(Markers.INSTANCE);
 
+	/**
+	 * If {@code true}, the token list is kept after parsing, so the unit can be updated incrementally.
+	 */
+	protected boolean retainTokens;
+
 	public final FileSource fileSource;
 	public final File       outputDirectory;
 
+	protected final List<File> outputFiles = new ArrayList<>();
+
 	protected final DyvilCompiler compiler;
 
 	// =============== Constructors ===============
@@ -72,6 +82,24 @@ public class SourceHeader extends AbstractHeader implements ISourceHeader, IDefa
 		return this.fileSource;
 	}
 
+	public TokenList getTokens()
+	{
+		return this.tokens;
+	}
+
+	public void setRetainTokens(boolean retainTokens)
+	{
+		this.retainTokens = retainTokens;
+	}
+
+	/**
+	 * @return the class and object files written by the {@link #compile()} phase
+	 */
+	public List<File> getOutputFiles()
+	{
+		return this.outputFiles;
+	}
+
 	@Override
 	public HeaderDeclaration getHeaderDeclaration()
 	{
@@ -119,15 +147,27 @@ public class SourceHeader extends AbstractHeader implements ISourceHeader, IDefa
 		if (this.load())
 		{
 			this.tokens = new DyvilLexer(this.markers, DyvilSymbols.INSTANCE).tokenize(this.fileSource.text());
-			SemicolonInference.inferSemicolons(this.tokens.first());
+			SemicolonInference.inferSemicolons(this.tokens);
+			this.compiler.scheduler.recordNames(this, this.tokens);
 		}
 	}
 
 	@Override
 	public void parse()
 	{
-		new ParserManager(DyvilSymbols.INSTANCE, this.tokens.iterator(), this.markers)
-			.parse(new SourceFileParser(this).withFlags(SourceFileParser.NO_CLASSES));
+		final ParserManager manager = new ParserManager(DyvilSymbols.INSTANCE, this.tokens.iterator(), this.markers);
+		manager.parse(new SourceFileParser(this).withFlags(SourceFileParser.NO_CLASSES));
+		this.logParseStatistics(manager);
+	}
+
+	protected void logParseStatistics(ParserManager manager)
+	{
+		final ParseMemo memo = manager.getMemo();
+		if (this.compiler.config.isDebug() && memo.getRescannedTokens() > 0)
+		{
+			this.compiler.log(I18n.get("unit.parse.rescanned", this.fileSource.file(), memo.getRescannedTokens(),
+			                           memo.getMemoHits(), memo.getSkippedTokens()));
+		}
 	}
 
 	@Override
@@ -213,11 +253,14 @@ public class SourceHeader extends AbstractHeader implements ISourceHeader, IDefa
 		{
 			final File file = new File(this.outputDirectory, this.name.qualified + DyvilFileType.OBJECT_EXTENSION);
 			ObjectFormat.write(this.compiler, file, this);
+			this.outputFiles.add(file);
 		}
 
 		for (IClass iclass : this.classes)
 		{
-			ClassWriter.compile(this.compiler, new File(this.outputDirectory, iclass.getFileName()), iclass);
+			final File file = new File(this.outputDirectory, iclass.getFileName());
+			ClassWriter.compile(this.compiler, file, iclass);
+			this.outputFiles.add(file);
 		}
 
 		for (int i = 0; i < this.innerClassCount; i++)
@@ -225,6 +268,7 @@ public class SourceHeader extends AbstractHeader implements ISourceHeader, IDefa
 			final ICompilable compilable = this.innerClasses[i];
 			final File file = new File(this.outputDirectory, compilable.getFileName());
 			ClassWriter.compile(this.compiler, file, compilable);
+			this.outputFiles.add(file);
 		}
 	}
 
@@ -2,6 +2,8 @@ package dyvilx.tools.compiler.ast.imports;
 
 import dyvil.source.position.SourcePosition;
 import dyvilx.tools.compiler.ast.context.IContext;
+import dyvilx.tools.compiler.ast.structure.Package;
+import dyvilx.tools.compiler.phase.DependencyScheduler;
 import dyvilx.tools.parsing.marker.MarkerList;
 
 import java.io.DataInput;
@@ -35,6 +37,11 @@ public final class WildcardImport extends Import
 		{
 			this.parent.resolveTypes(markers, context, parentContext, KindedImport.PARENT);
 			this.context = this.parent.asParentContext();
+
+			if (this.context instanceof Package)
+			{
+				DependencyScheduler.recordDependency((Package) this.context);
+			}
 		}
 	}
 
@@ -20,6 +20,7 @@ import dyvilx.tools.compiler.ast.context.IContext;
 import dyvilx.tools.compiler.ast.context.IDefaultContext;
 import dyvilx.tools.compiler.ast.context.ILabelContext;
 import dyvilx.tools.compiler.ast.expression.IValue;
+import dyvilx.tools.compiler.ast.expression.LambdaExpr;
 import dyvilx.tools.compiler.ast.expression.ThisExpr;
 import dyvilx.tools.compiler.ast.expression.access.FieldAccess;
 import dyvilx.tools.compiler.ast.field.IAccessible;
@@ -30,13 +31,16 @@ import dyvilx.tools.compiler.ast.generic.GenericData;
 import dyvilx.tools.compiler.ast.generic.ITypeContext;
 import dyvilx.tools.compiler.ast.generic.ITypeParameter;
 import dyvilx.tools.compiler.ast.generic.TypeParameterList;
+import dyvilx.tools.compiler.ast.header.IClassCompilableList;
 import dyvilx.tools.compiler.ast.header.IHeaderUnit;
 import dyvilx.tools.compiler.ast.member.AbstractMember;
+import dyvilx.tools.compiler.ast.method.intrinsic.InlineIntrinsicData;
 import dyvilx.tools.compiler.ast.method.intrinsic.IntrinsicData;
 import dyvilx.tools.compiler.ast.method.intrinsic.Intrinsics;
 import dyvilx.tools.compiler.ast.parameter.ArgumentList;
 import dyvilx.tools.compiler.ast.parameter.IParameter;
 import dyvilx.tools.compiler.ast.parameter.ParameterList;
+import dyvilx.tools.compiler.ast.structure.Package;
 import dyvilx.tools.compiler.ast.type.IType;
 import dyvilx.tools.compiler.ast.type.Mutability;
 import dyvilx.tools.compiler.ast.type.TypeList;
@@ -886,6 +890,28 @@ public abstract class AbstractMethod extends AbstractMember implements IMethod,
 		markers.add(Markers.withText(receiver.getPosition(), MarkerLevel.ERROR, builder.toString()));
 	}
 
+	@Override
+	public void cleanupCall(IValue receiver, ArgumentList arguments, IClassCompilableList classCompilableList)
+	{
+		if (!Package.rootPackage.getCompilationContext().config.inlineMethods())
+		{
+			return;
+		}
+
+		if (receiver instanceof LambdaExpr)
+		{
+			// the lambda expression is invoked immediately, so its body can be written in place of the call
+			((LambdaExpr) receiver).setInlined(this.enclosingClass.getInternalName(), this.getInternalName(),
+			                                   this.getDescriptor());
+		}
+
+		if (this.intrinsicData instanceof InlineIntrinsicData)
+		{
+			((InlineIntrinsicData) this.intrinsicData)
+				.inlineFunctions(receiver, arguments, classCompilableList.getInternalName());
+		}
+	}
+
 	// --------------- Override Checking ---------------
 
 	@Override
@@ -955,9 +981,10 @@ public abstract class AbstractMethod extends AbstractMember implements IMethod,
 		return this.hasModifier(Modifiers.INTRINSIC);
 	}
 
-	private boolean useIntrinsicBytecode()
+	private boolean useIntrinsicBytecode(MethodWriter writer, IValue receiver, ArgumentList arguments)
 	{
-		return this.intrinsicData != null && this.intrinsicData.getCompilerCode() == 0;
+		return this.intrinsicData != null && this.intrinsicData.getCompilerCode() == 0
+		       && this.intrinsicData.isApplicable(writer, receiver, arguments);
 	}
 
 	@Override
@@ -1110,12 +1137,26 @@ public abstract class AbstractMethod extends AbstractMember implements IMethod,
 	public void writeCall(MethodWriter writer, IValue receiver, ArgumentList arguments, ITypeContext typeContext,
 		IType targetType, int lineNumber) throws BytecodeException
 	{
-		if (this.useIntrinsicBytecode())
+		if (this.useIntrinsicBytecode(writer, receiver, arguments))
 		{
 			this.intrinsicData.writeIntrinsic(writer, receiver, arguments, lineNumber);
 		}
 		else
 		{
+			final Specialization specialization = this.getSpecialization(receiver, arguments, typeContext);
+			if (specialization != null)
+			{
+				this.writeReceiver(writer, receiver);
+				specialization.writeArguments(writer, arguments);
+				this.writeInvoke(writer, receiver, specialization.getName(), specialization.getDescriptor(),
+				                 lineNumber);
+
+				// the variant returns the primitive type, which needs to be boxed if no target type is given
+				specialization.getReturnType()
+				              .writeCast(writer, targetType != null ? targetType : this.getType(), lineNumber);
+				return;
+			}
+
 			this.writeArgumentsAndInvoke(writer, receiver, arguments, typeContext, lineNumber);
 		}
 
@@ -1125,11 +1166,61 @@ public abstract class AbstractMethod extends AbstractMember implements IMethod,
 		}
 	}
 
+	@Override
+	public int[] writeCallTupleValues(MethodWriter writer, IValue receiver, ArgumentList arguments, IType[] types,
+		int lineNumber) throws BytecodeException
+	{
+		if (this.intrinsicData instanceof InlineIntrinsicData && this.useIntrinsicBytecode(writer, receiver, arguments))
+		{
+			// the inlined code stores the values instead of creating the returned tuple
+			return ((InlineIntrinsicData) this.intrinsicData)
+				       .writeTupleValues(writer, receiver, arguments, types, lineNumber);
+		}
+		return null;
+	}
+
+	private Specialization getSpecialization(IValue receiver, ArgumentList arguments, ITypeContext typeContext)
+	{
+		if (typeContext == null || !arguments.hasParameterOrder())
+		{
+			return null;
+		}
+
+		if (receiver != null)
+		{
+			if (isInlinedLambda(receiver))
+			{
+				// the body of the lambda expression is written instead of an invocation
+				return null;
+			}
+			if (receiver.valueTag() == IValue.SUPER)
+			{
+				// super calls have to invoke exactly the overridden method
+				return null;
+			}
+			if (receiver.isIgnoredClassAccess())
+			{
+				if (receiver.getType().hasTag(IType.TYPE_VAR))
+				{
+					// static virtual calls are linked dynamically by name and descriptor
+					return null;
+				}
+			}
+			else if (this.hasModifier(Modifiers.INFIX) && !this.parameters.isEmpty())
+			{
+				// the receiver is passed as the first argument
+				return null;
+			}
+		}
+
+		return Specialization.resolve(this, typeContext);
+	}
+
 	@Override
 	public void writeJump(MethodWriter writer, Label dest, IValue receiver, ArgumentList arguments,
 		ITypeContext typeContext, int lineNumber) throws BytecodeException
 	{
-		if (this.useIntrinsicBytecode())
+		if (this.useIntrinsicBytecode(writer, receiver, arguments))
 		{
 			this.intrinsicData.writeIntrinsic(writer, dest, receiver, arguments, lineNumber);
 			return;
@@ -1144,7 +1235,7 @@ public abstract class AbstractMethod extends AbstractMember implements IMethod,
 	public void writeInvJump(MethodWriter writer, Label dest, IValue receiver, ArgumentList arguments,
 		ITypeContext typeContext, int lineNumber) throws BytecodeException
 	{
-		if (this.useIntrinsicBytecode())
+		if (this.useIntrinsicBytecode(writer, receiver, arguments))
 		{
 			this.intrinsicData.writeInvIntrinsic(writer, dest, receiver, arguments, lineNumber);
 			return;
@@ -1158,11 +1249,23 @@ public abstract class AbstractMethod extends AbstractMember implements IMethod,
 	private void writeArgumentsAndInvoke(MethodWriter writer, IValue receiver, ArgumentList arguments,
 		ITypeContext typeContext, int lineNumber) throws BytecodeException
 	{
+		if (isInlinedLambda(receiver))
+		{
+			this.writeArguments(writer, receiver, arguments);
+			((LambdaExpr) receiver).writeInvocation(writer, writer.localCount(), lineNumber);
+			return;
+		}
+
 		this.writeReceiver(writer, receiver);
 		this.writeArguments(writer, receiver, arguments);
 		this.writeInvoke(writer, receiver, arguments, typeContext, lineNumber);
 	}
 
+	private static boolean isInlinedLambda(IValue receiver)
+	{
+		return receiver instanceof LambdaExpr && ((LambdaExpr) receiver).isInlined();
+	}
+
 	protected void writeReceiver(MethodWriter writer, IValue receiver) throws BytecodeException
 	{
 		if (receiver == null)
@@ -1218,11 +1321,15 @@ public abstract class AbstractMethod extends AbstractMember implements IMethod,
 			this.typeParameters.writeArguments(writer, typeContext);
 		}
 
+		this.writeInvoke(writer, receiver, this.getInternalName(), this.getDescriptor(), lineNumber);
+	}
+
+	private void writeInvoke(MethodWriter writer, IValue receiver, String mangledName, String descriptor,
+		int lineNumber) throws BytecodeException
+	{
 		writer.visitLineNumber(lineNumber);
 
 		final int opcode;
-		final String mangledName = this.getInternalName();
-		final String descriptor = this.getDescriptor();
 
 		if (this.hasModifier(Modifiers.EXTENSION) // extension
 		    && !this.isStatic() // non-static
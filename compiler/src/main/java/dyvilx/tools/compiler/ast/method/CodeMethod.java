@@ -20,10 +20,12 @@ import dyvilx.tools.compiler.ast.generic.ITypeParameter;
 import dyvilx.tools.compiler.ast.generic.TypeParameterList;
 import dyvilx.tools.compiler.ast.header.IClassCompilableList;
 import dyvilx.tools.compiler.ast.header.ICompilableList;
+import dyvilx.tools.compiler.ast.method.intrinsic.InlineIntrinsicData;
 import dyvilx.tools.compiler.ast.method.intrinsic.IntrinsicData;
 import dyvilx.tools.compiler.ast.method.intrinsic.Intrinsics;
 import dyvilx.tools.compiler.ast.parameter.IParameter;
 import dyvilx.tools.compiler.ast.parameter.ParameterList;
+import dyvilx.tools.compiler.ast.structure.Package;
 import dyvilx.tools.compiler.ast.type.IType;
 import dyvilx.tools.compiler.ast.type.IType.TypePosition;
 import dyvilx.tools.compiler.ast.type.builtin.PrimitiveType;
@@ -170,17 +172,38 @@ public class CodeMethod extends AbstractMethod
 
 		if (this.value != null)
 		{
-			this.value = this.value.resolve(markers, context);
-
-			final TypeChecker.MarkerSupplier markerSupplier = TypeChecker.markerSupplier("method.type.incompatible",
-			                                                                             "method.type", "value.type",
-			                                                                             this.name);
-			this.value = TypeChecker.convertValue(this.value, this.type, null, markers, context, markerSupplier);
+			this.resolveValue(markers, context);
 		}
 
 		context.pop();
 	}
 
+	private void resolveValue(MarkerList markers, IContext context)
+	{
+		this.value = this.value.resolve(markers, context);
+
+		final TypeChecker.MarkerSupplier markerSupplier = TypeChecker.markerSupplier("method.type.incompatible",
+		                                                                             "method.type", "value.type",
+		                                                                             this.name);
+		this.value = TypeChecker.convertValue(this.value, this.type, null, markers, context, markerSupplier);
+	}
+
+	@Override
+	public void replaceValue(IValue value, MarkerList markers, IContext context)
+	{
+		this.value = value;
+
+		context = context.push(this);
+
+		value.resolveTypes(markers, context);
+		this.resolveValue(markers, context);
+		this.value.resolveStatement(this, markers);
+		this.value.checkTypes(markers, context);
+		this.value.check(markers, this);
+
+		context.pop();
+	}
+
 	@Override
 	public void checkTypes(MarkerList markers, IContext context)
 	{
@@ -567,6 +590,20 @@ public class CodeMethod extends AbstractMethod
 		{
 			this.value = this.value.cleanup(compilableList, classCompilableList);
 		}
+
+		if (intrinsic == null && this.value != null && this.hasModifier(Modifiers.INLINE) && this.intrinsicData == null)
+		{
+			// recording the body requires that it has been cleaned up
+			final InlineIntrinsicData inlineData = new InlineIntrinsicData(this, this::writeInlineBody);
+			this.intrinsicData = inlineData;
+
+			if (Package.rootPackage.getCompilationContext().config.inlineMethods())
+			{
+				// record the body while CLEANUP runs sequentially, so that the parallel COMPILE phase never writes the
+				// body of a method that belongs to another unit
+				inlineData.load();
+			}
+		}
 	}
 
 	// --------------- Intrinsics ---------------
@@ -592,6 +629,31 @@ public class CodeMethod extends AbstractMethod
 		}
 	}
 
+	private void writeInlineBody(MethodWriter writer) throws BytecodeException
+	{
+		if (!this.isStatic())
+		{
+			writer.setLocalType(0, this.enclosingClass.getInternalName());
+
+			if (this.hasModifier(Modifiers.EXTENSION))
+			{
+				writer.visitParameter(0, "this", this.getThisType(), 0);
+			}
+		}
+
+		for (IParameter parameter : this.parameters)
+		{
+			// like IParameter.writeParameter, but without annotations
+			final int localIndex = writer.localCount();
+			parameter.setLocalIndex(localIndex);
+			writer.visitParameter(localIndex, parameter.getQualifiedLabel(), parameter.getInternalType(), 0);
+		}
+
+		writer.visitCode();
+		this.value.writeExpression(writer, this.type);
+		writer.visitEnd(this.type);
+	}
+
 	// --------------- Compilation ---------------
 
 	private boolean needsSignature()
@@ -602,6 +664,12 @@ public class CodeMethod extends AbstractMethod
 	@Override
 	public void write(ClassWriter writer) throws BytecodeException
 	{
+		if (this.intrinsicData instanceof InlineIntrinsicData)
+		{
+			// record the body for inlining before it is written
+			((InlineIntrinsicData) this.intrinsicData).load();
+		}
+
 		final boolean interfaceClass = this.enclosingClass.isInterface();
 		final boolean staticAbstract = this.hasModifier(Modifiers.STATIC | Modifiers.ABSTRACT);
 
@@ -665,6 +733,8 @@ public class CodeMethod extends AbstractMethod
 		}
 		this.parameters.writeLocals(methodWriter, start, end);
 
+		this.writeSpecializations(writer, javaFlags);
+
 		if (this.hasModifier(Modifiers.EXTENSION) || this.overrideMethods == null)
 		{
 			return;
@@ -723,6 +793,45 @@ public class CodeMethod extends AbstractMethod
 		}
 	}
 
+	private void writeSpecializations(ClassWriter writer, int javaFlags) throws BytecodeException
+	{
+		final int lineNumber = this.lineNumber();
+
+		/*
+		 * Contains entries in the format 'mangledName(paramTypes)returnType'
+		 * Used to ensure unique variant methods
+		 */
+		final Set<String> descriptors = new HashSet<>();
+
+		// Variants of this method, which box their arguments
+		final int access = javaFlags & (Modifiers.PUBLIC | Modifiers.PROTECTED | Modifiers.PRIVATE | Modifiers.STATIC)
+		                   | Modifiers.SYNTHETIC;
+		for (Specialization specialization : Specialization.getVariants(this))
+		{
+			if (descriptors.add(specialization.getName() + specialization.getDescriptor()))
+			{
+				specialization.write(writer, access, this, lineNumber);
+			}
+		}
+
+		if (this.overrideMethods == null || this.hasModifier(Modifiers.EXTENSION)
+		    || Specialization.hasReifiedTypeParameters(this))
+		{
+			return;
+		}
+
+		// Variants of overridden methods whose type parameters are bound to primitive types by the enclosing class
+		final IType thisType = this.enclosingClass.getThisType();
+		for (IMethod overrideMethod : this.overrideMethods)
+		{
+			final Specialization specialization = Specialization.resolve(overrideMethod, thisType::resolveType);
+			if (specialization != null && descriptors.add(specialization.getName() + specialization.getDescriptor()))
+			{
+				specialization.write(writer, Modifiers.PUBLIC | Modifiers.SYNTHETIC, this, lineNumber);
+			}
+		}
+	}
+
 	private void writeBridgeParameters(MethodWriter methodWriter, IMethod overrideMethod)
 	{
 		final int lineNumber = this.lineNumber();
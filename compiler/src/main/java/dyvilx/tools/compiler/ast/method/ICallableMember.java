@@ -4,6 +4,7 @@ import dyvil.lang.Name;
 import dyvil.reflect.Modifiers;
 import dyvil.source.position.SourcePosition;
 import dyvilx.tools.compiler.ast.attribute.AttributeList;
+import dyvilx.tools.compiler.ast.context.IContext;
 import dyvilx.tools.compiler.ast.expression.IValue;
 import dyvilx.tools.compiler.ast.member.ClassMember;
 import dyvilx.tools.compiler.ast.parameter.CodeParameter;
@@ -12,6 +13,7 @@ import dyvilx.tools.compiler.ast.parameter.IParametric;
 import dyvilx.tools.compiler.ast.type.IType;
 import dyvilx.tools.compiler.ast.type.TypeList;
 import dyvilx.tools.compiler.ast.type.Typed;
+import dyvilx.tools.parsing.marker.MarkerList;
 
 public interface ICallableMember extends ClassMember, IOverloadable, Typed, IParametric
 {
@@ -23,6 +25,20 @@ public interface ICallableMember extends ClassMember, IOverloadable, Typed, IPar
 
 	void setValue(IValue value);
 
+	/**
+	 * Replaces the value of this member after the {@code CHECK} phase, and runs the resolution and checking phases on
+	 * the new value. The signature of the member was already resolved and is not resolved again.
+	 *
+	 * @param value
+	 * 	the new, unresolved value
+	 * @param context
+	 * 	the context of the enclosing class
+	 */
+	default void replaceValue(IValue value, MarkerList markers, IContext context)
+	{
+		throw new UnsupportedOperationException("replaceValue");
+	}
+
 	// - - - - - - - - Exceptions - - - - - - - -
 
 	TypeList getExceptions();
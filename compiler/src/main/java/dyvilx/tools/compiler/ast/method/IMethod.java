@@ -10,6 +10,7 @@ import dyvilx.tools.compiler.ast.expression.IValue;
 import dyvilx.tools.compiler.ast.generic.GenericData;
 import dyvilx.tools.compiler.ast.generic.ITypeContext;
 import dyvilx.tools.compiler.ast.generic.ITypeParametricMember;
+import dyvilx.tools.compiler.ast.header.IClassCompilableList;
 import dyvilx.tools.compiler.ast.member.MemberKind;
 import dyvilx.tools.compiler.ast.method.intrinsic.IntrinsicData;
 import dyvilx.tools.compiler.ast.parameter.ArgumentList;
@@ -118,6 +119,14 @@ public interface IMethod extends ICallableMember, ITypeParametricMember, IContex
 	void checkCall(MarkerList markers, SourcePosition position, IContext context, IValue instance,
 		ArgumentList arguments, ITypeContext typeContext);
 
+	/**
+	 * Called during cleanup of a call to this method, before the receiver and arguments are cleaned up. Lambda
+	 * expressions that are only invoked by the code of this method can be marked as inlined here.
+	 */
+	default void cleanupCall(IValue receiver, ArgumentList arguments, IClassCompilableList classCompilableList)
+	{
+	}
+
 	// --------------- Override Checking ---------------
 
 	/**
@@ -155,6 +164,24 @@ public interface IMethod extends ICallableMember, ITypeParametricMember, IContex
 	void writeCall(MethodWriter writer, IValue receiver, ArgumentList arguments, ITypeContext typeContext,
 		IType targetType, int lineNumber) throws BytecodeException;
 
+	/**
+	 * Writes a call of this method, which returns a tuple, and stores the values of the tuple in new local variables
+	 * without creating it.
+	 *
+	 * @param types
+	 * 	the types of the local variables
+	 *
+	 * @return the local variable indices of the values, or {@code null} if nothing was written because the tuple has to
+	 * be created
+	 *
+	 * @see IValue#writeStoreTupleValues(MethodWriter, IType[])
+	 */
+	default int[] writeCallTupleValues(MethodWriter writer, IValue receiver, ArgumentList arguments, IType[] types,
+		int lineNumber) throws BytecodeException
+	{
+		return null;
+	}
+
 	void writeInvoke(MethodWriter writer, IValue receiver, ArgumentList arguments, ITypeContext typeContext,
 		int lineNumber) throws BytecodeException;
 
@@ -0,0 +1,455 @@
+package dyvilx.tools.compiler.ast.method;
+
+import dyvil.reflect.Modifiers;
+import dyvil.reflect.Opcodes;
+import dyvilx.tools.compiler.ast.classes.IClass;
+import dyvilx.tools.compiler.ast.expression.ArrayExpr;
+import dyvilx.tools.compiler.ast.expression.ClassOperator;
+import dyvilx.tools.compiler.ast.expression.IValue;
+import dyvilx.tools.compiler.ast.generic.ITypeContext;
+import dyvilx.tools.compiler.ast.generic.ITypeParameter;
+import dyvilx.tools.compiler.ast.generic.ITypeParametric;
+import dyvilx.tools.compiler.ast.parameter.ArgumentList;
+import dyvilx.tools.compiler.ast.parameter.IParameter;
+import dyvilx.tools.compiler.ast.parameter.ParameterList;
+import dyvilx.tools.compiler.ast.type.IType;
+import dyvilx.tools.compiler.ast.type.builtin.Types;
+import dyvilx.tools.compiler.ast.type.typevar.TypeVarType;
+import dyvilx.tools.compiler.backend.classes.ClassWriter;
+import dyvilx.tools.compiler.backend.exception.BytecodeException;
+import dyvilx.tools.compiler.backend.method.MethodWriter;
+import dyvilx.tools.compiler.backend.method.MethodWriterImpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A primitive variant of a method whose parameter or return types are type parameters annotated with {@link
+ * dyvil.annotation.Specialized @Specialized}. For every combination of the specialized primitive types and reference
+ * types, except for the one with only reference types, the declaring class contains a variant named {@code
+ * <name>$<descriptors>} that takes and returns the primitive types in place of the type parameters, e.g. {@code
+ * apply$ID(I)D} for {@code apply(Object)Object} with {@code P1 = int} and {@code R = double}. Type parameters bound to
+ * reference types keep their erasure and use the descriptor {@code L}, e.g. {@code apply$IL(I)Object} for {@code P1 =
+ * int} and {@code R = String}.
+ * <p>
+ * The variants declared together with the generic method box their arguments and delegate to it, so they are always
+ * safe to call. Subclasses that bind the type parameters to primitive types override them to call their own method
+ * without boxing, and call sites whose type arguments are specialized primitive types invoke the variant instead of
+ * the generic method.
+ */
+public final class Specialization
+{
+	// =============== Constants ===============
+
+	public static final IType[] DEFAULT_TYPES = { Types.INT, Types.LONG, Types.FLOAT, Types.DOUBLE };
+
+	/**
+	 * The maximum number of variants of a single method. Methods that would need more variants are not specialized.
+	 */
+	public static final int MAX_VARIANTS = 64;
+
+	/**
+	 * The descriptor of type parameters bound to reference types in variant names
+	 */
+	public static final char REFERENCE_DESCRIPTOR = 'L';
+
+	// =============== Fields ===============
+
+	private final IMethod          method;
+	private final ITypeParameter[] typeParameters;
+
+	/**
+	 * The primitive type of each type parameter, or {@code null} for type parameters bound to reference types
+	 */
+	private final IType[] types;
+
+	private String name;
+	private String descriptor;
+
+	// =============== Constructors ===============
+
+	private Specialization(IMethod method, ITypeParameter[] typeParameters, IType[] types)
+	{
+		this.method = method;
+		this.typeParameters = typeParameters;
+		this.types = types;
+	}
+
+	// =============== Static Methods ===============
+
+	// --------------- Annotation ---------------
+
+	public static IType[] getSpecializedTypes(IValue value)
+	{
+		if (value == null || value.valueTag() != IValue.ARRAY)
+		{
+			return DEFAULT_TYPES;
+		}
+
+		final List<IType> types = new ArrayList<>();
+		for (IValue element : ((ArrayExpr) value).getValues())
+		{
+			if (element.valueTag() != IValue.CLASS_OPERATOR)
+			{
+				continue;
+			}
+
+			final IType type = ((ClassOperator) element).getOperandType();
+			if (type.isPrimitive() && type != Types.VOID
+			    && types.stream().noneMatch(t -> t.getTypecode() == type.getTypecode()))
+			{
+				types.add(type);
+			}
+		}
+		return types.isEmpty() ? null : types.toArray(new IType[0]);
+	}
+
+	private static int indexOf(IType[] types, IType type)
+	{
+		for (int i = 0; i < types.length; i++)
+		{
+			if (types[i].getTypecode() == type.getTypecode())
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	// --------------- Type Parameters ---------------
+
+	/**
+	 * Returns the specialized type parameters that the given method can be specialized for, i.e. the specialized type
+	 * parameters of the enclosing class and the method that are directly used as parameter or return types. The class
+	 * type parameters come first, in declaration order.
+	 *
+	 * @param method
+	 * 	the method
+	 *
+	 * @return the specialized type parameters, or {@code null} if the method cannot be specialized
+	 */
+	public static ITypeParameter[] getTypeParameters(IMethod method)
+	{
+		if (method.isNested() || method.hasModifier(Modifiers.EXTENSION) || method.isVariadic()
+		    || method.isStatic() && method.hasModifier(Modifiers.ABSTRACT) || hasReifiedTypeParameters(method))
+		{
+			return null;
+		}
+
+		final List<ITypeParameter> typeParameters = new ArrayList<>();
+		if (!method.isStatic())
+		{
+			addTypeParameters(typeParameters, method.getEnclosingClass(), method);
+		}
+		addTypeParameters(typeParameters, method, method);
+
+		if (typeParameters.isEmpty())
+		{
+			return null;
+		}
+
+		// every type parameter can also be bound to a reference type, and the variant with only reference types is
+		// the method itself
+		int combinations = 1;
+		for (ITypeParameter typeParameter : typeParameters)
+		{
+			combinations *= typeParameter.getSpecializedTypes().length + 1;
+			if (combinations - 1 > MAX_VARIANTS)
+			{
+				return null;
+			}
+		}
+		return typeParameters.toArray(new ITypeParameter[0]);
+	}
+
+	public static boolean hasReifiedTypeParameters(IMethod method)
+	{
+		if (!method.isTypeParametric())
+		{
+			return false;
+		}
+
+		for (ITypeParameter typeParameter : method.getTypeParameters())
+		{
+			if (typeParameter.getReifiedKind() != null)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void addTypeParameters(List<ITypeParameter> list, ITypeParametric generic, IMethod method)
+	{
+		if (!generic.isTypeParametric())
+		{
+			return;
+		}
+
+		for (ITypeParameter typeParameter : generic.getTypeParameters())
+		{
+			if (typeParameter.getSpecializedTypes() != null && isReferenced(method, typeParameter))
+			{
+				list.add(typeParameter);
+			}
+		}
+	}
+
+	private static boolean isReferenced(IMethod method, ITypeParameter typeParameter)
+	{
+		if (isTypeVariable(method.getType(), typeParameter))
+		{
+			return true;
+		}
+
+		for (IParameter parameter : method.getParameters())
+		{
+			if (isTypeVariable(parameter.getType(), typeParameter))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isTypeVariable(IType type, ITypeParameter typeParameter)
+	{
+		return type.typeTag() == IType.TYPE_VAR && ((TypeVarType) type).getTypeVariable() == typeParameter;
+	}
+
+	// --------------- Variants ---------------
+
+	/**
+	 * @param method
+	 * 	the method
+	 *
+	 * @return all variants of the given method, or an empty list if the method cannot be specialized
+	 */
+	public static List<Specialization> getVariants(IMethod method)
+	{
+		final ITypeParameter[] typeParameters = getTypeParameters(method);
+		if (typeParameters == null)
+		{
+			return Collections.emptyList();
+		}
+
+		final List<Specialization> variants = new ArrayList<>();
+		addVariants(variants, method, typeParameters, new IType[typeParameters.length], 0);
+		return variants;
+	}
+
+	private static void addVariants(List<Specialization> list, IMethod method, ITypeParameter[] typeParameters,
+		IType[] types, int index)
+	{
+		if (index == typeParameters.length)
+		{
+			if (!isReferenceOnly(types))
+			{
+				list.add(new Specialization(method, typeParameters, types.clone()));
+			}
+			return;
+		}
+
+		for (IType type : typeParameters[index].getSpecializedTypes())
+		{
+			types[index] = type;
+			addVariants(list, method, typeParameters, types, index + 1);
+		}
+
+		types[index] = null;
+		addVariants(list, method, typeParameters, types, index + 1);
+	}
+
+	private static boolean isReferenceOnly(IType[] types)
+	{
+		for (IType type : types)
+		{
+			if (type != null)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Selects the variant of the given method for the type arguments in the given type context.
+	 *
+	 * @param method
+	 * 	the method
+	 * @param typeContext
+	 * 	the type context that maps the type parameters of the method and its enclosing class to type arguments
+	 *
+	 * @return the variant, or {@code null} if any of the specialized type parameters is not mapped to a type, or if
+	 * none of them is mapped to one of its specialized primitive types
+	 */
+	public static Specialization resolve(IMethod method, ITypeContext typeContext)
+	{
+		final ITypeParameter[] typeParameters = getTypeParameters(method);
+		if (typeParameters == null)
+		{
+			return null;
+		}
+
+		final IType[] types = new IType[typeParameters.length];
+		for (int i = 0; i < typeParameters.length; i++)
+		{
+			final IType type = typeContext.resolveType(typeParameters[i]);
+			if (type == null)
+			{
+				return null;
+			}
+			if (type.isPrimitive())
+			{
+				// primitive types that are not specialized are boxed, like reference types
+				final IType[] specializedTypes = typeParameters[i].getSpecializedTypes();
+				final int index = indexOf(specializedTypes, type);
+				types[i] = index >= 0 ? specializedTypes[index] : null;
+			}
+		}
+		return isReferenceOnly(types) ? null : new Specialization(method, typeParameters, types);
+	}
+
+	// =============== Properties ===============
+
+	public IMethod getMethod()
+	{
+		return this.method;
+	}
+
+	public String getName()
+	{
+		if (this.name != null)
+		{
+			return this.name;
+		}
+
+		final StringBuilder buffer = new StringBuilder(this.method.getInternalName()).append('$');
+		for (IType type : this.types)
+		{
+			if (type != null)
+			{
+				type.appendExtendedName(buffer);
+			}
+			else
+			{
+				buffer.append(REFERENCE_DESCRIPTOR);
+			}
+		}
+		return this.name = buffer.toString();
+	}
+
+	public String getDescriptor()
+	{
+		if (this.descriptor != null)
+		{
+			return this.descriptor;
+		}
+
+		final StringBuilder buffer = new StringBuilder().append('(');
+		for (IParameter parameter : this.method.getParameters())
+		{
+			final IType type = this.getSpecializedType(parameter.getType());
+			(type != null ? type : parameter.getInternalType()).appendExtendedName(buffer);
+		}
+		buffer.append(')');
+		this.getReturnType().appendExtendedName(buffer);
+		return this.descriptor = buffer.toString();
+	}
+
+	public IType getReturnType()
+	{
+		final IType type = this.method.getType();
+		final IType specializedType = this.getSpecializedType(type);
+		return specializedType != null ? specializedType : type;
+	}
+
+	public IType getParameterType(IParameter parameter)
+	{
+		final IType specializedType = this.getSpecializedType(parameter.getType());
+		return specializedType != null ? specializedType : parameter.getCovariantType();
+	}
+
+	/**
+	 * @return the primitive type in place of the given type, or {@code null} if it is not a type parameter bound to a
+	 * primitive type
+	 */
+	private IType getSpecializedType(IType type)
+	{
+		for (int i = 0; i < this.typeParameters.length; i++)
+		{
+			if (isTypeVariable(type, this.typeParameters[i]))
+			{
+				return this.types[i];
+			}
+		}
+		return null;
+	}
+
+	// =============== Methods ===============
+
+	// --------------- Call Compilation ---------------
+
+	public void writeArguments(MethodWriter writer, ArgumentList arguments) throws BytecodeException
+	{
+		final ParameterList parameters = this.method.getParameters();
+		for (int i = 0, count = parameters.size(); i < count; i++)
+		{
+			final IParameter parameter = parameters.get(i);
+			arguments.get(i, parameter.getLabel()).writeExpression(writer, this.getParameterType(parameter));
+		}
+	}
+
+	// --------------- Compilation ---------------
+
+	/**
+	 * Writes this variant as a method that converts its arguments, calls the given target method and converts the
+	 * result back. The target is either the generic method itself or a method that overrides it.
+	 *
+	 * @param writer
+	 * 	the class writer
+	 * @param access
+	 * 	the access flags of the variant
+	 * @param target
+	 * 	the method to delegate to
+	 * @param lineNumber
+	 * 	the line number for the call
+	 */
+	public void write(ClassWriter writer, int access, IMethod target, int lineNumber) throws BytecodeException
+	{
+		final IClass targetClass = target.getEnclosingClass();
+		final MethodWriter methodWriter = new MethodWriterImpl(writer, writer.visitMethod(
+			access, this.getName(), this.getDescriptor(), null, target.getInternalExceptions()));
+
+		methodWriter.visitCode();
+
+		if (!target.isStatic())
+		{
+			methodWriter.setLocalType(0, targetClass.getInternalName());
+			methodWriter.visitVarInsn(Opcodes.ALOAD, 0);
+		}
+
+		final ParameterList parameters = this.method.getParameters();
+		final ParameterList targetParameters = target.getParameters();
+		for (int i = 0, count = parameters.size(); i < count; i++)
+		{
+			final IParameter parameter = parameters.get(i);
+			final IType type = this.getParameterType(parameter);
+			final int localIndex = methodWriter.localCount();
+
+			methodWriter.visitParameter(localIndex, parameter.getQualifiedLabel(), type, 0);
+			methodWriter.visitVarInsn(type.getLoadOpcode(), localIndex);
+			type.writeCast(methodWriter, targetParameters.get(i).getCovariantType(), lineNumber);
+		}
+
+		final IType returnType = this.getReturnType();
+
+		methodWriter.visitLineNumber(lineNumber);
+		methodWriter.visitMethodInsn(target.getInvokeOpcode(), targetClass.getInternalName(), target.getInternalName(),
+		                             target.getDescriptor(), targetClass.isInterface());
+		target.getType().writeCast(methodWriter, returnType, lineNumber);
+		methodWriter.visitInsn(returnType.getReturnOpcode());
+		methodWriter.visitEnd();
+	}
+}
@@ -1,215 +1,1086 @@
 package dyvilx.tools.compiler.ast.method.intrinsic;
 
+import dyvil.reflect.Modifiers;
 import dyvil.reflect.Opcodes;
 import dyvilx.tools.asm.Label;
-import dyvilx.tools.compiler.ast.bytecode.IInstruction;
-import dyvilx.tools.compiler.ast.bytecode.InstructionList;
-import dyvilx.tools.compiler.ast.bytecode.VarInstruction;
+import dyvilx.tools.asm.Type;
+import dyvilx.tools.compiler.ast.bytecode.*;
+import dyvilx.tools.compiler.ast.classes.ClassBody;
+import dyvilx.tools.compiler.ast.classes.IClass;
+import dyvilx.tools.compiler.ast.constructor.IConstructor;
 import dyvilx.tools.compiler.ast.expression.IValue;
+import dyvilx.tools.compiler.ast.expression.LambdaExpr;
+import dyvilx.tools.compiler.ast.external.ExternalClass;
+import dyvilx.tools.compiler.ast.field.IField;
+import dyvilx.tools.compiler.ast.member.ClassMember;
 import dyvilx.tools.compiler.ast.method.IMethod;
+import dyvilx.tools.compiler.ast.method.Specialization;
 import dyvilx.tools.compiler.ast.parameter.ArgumentList;
 import dyvilx.tools.compiler.ast.parameter.ParameterList;
+import dyvilx.tools.compiler.ast.structure.Package;
 import dyvilx.tools.compiler.ast.type.IType;
-import dyvilx.tools.compiler.backend.method.MethodWriter;
+import dyvilx.tools.compiler.ast.type.builtin.PrimitiveType;
+import dyvilx.tools.compiler.ast.type.builtin.Types;
+import dyvilx.tools.compiler.ast.type.compound.TupleType;
+import dyvilx.tools.compiler.backend.ClassFormat;
+import dyvilx.tools.compiler.backend.classes.ClassWriter;
+import dyvilx.tools.compiler.backend.classes.ExternalMemberVisitor;
 import dyvilx.tools.compiler.backend.exception.BytecodeException;
+import dyvilx.tools.compiler.backend.method.Frame;
+import dyvilx.tools.compiler.backend.method.InlineCodeVisitor;
+import dyvilx.tools.compiler.backend.method.MethodWriter;
+import dyvilx.tools.compiler.backend.method.MethodWriterImpl;
+import dyvilx.tools.compiler.config.CompilerConfig;
 
-public class InlineIntrinsicData extends InstructionList implements IntrinsicData
-{
-	public static final boolean ENABLE_INLINE = false;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
+/**
+ * The bytecode of an {@code inline} method, which is copied to call sites instead of invoking the method.
+ * <p>
+ * The instructions are either recorded from the class file of an external method, or from the body of a source method
+ * once it has been cleaned up. Recording happens in the sequential CLEANUP phase and is guarded by the lock of this
+ * object, because it writes the body of the method. When inlining, the arguments are stored in fresh local variables
+ * above the locals of the calling method, labels and exception handlers are copied, returns become jumps to the end of
+ * the inlined code and all line numbers are attributed to the call site. Frames are computed by the
+ * {@link MethodWriter} as for any other code. If a method cannot be inlined at a call site, it is invoked normally.
+ * <p>
+ * Lambda expressions that are passed to the method and invoked exactly once by its code can be inlined as well: they
+ * are marked during cleanup of the call, and their body replaces the interface call at the call site.
+ */
+public class InlineIntrinsicData extends InlineCode implements IntrinsicData
+{
 	protected final IMethod method;
 
-	private boolean preProcessed;
+	private final Consumer<? super MethodWriter> source;
+
+	private boolean loaded;
+	private boolean inlinable;
+
+	// the local variable index of each argument; the last element is the index of the first non-argument local
+	private int[] argumentSlots;
+	// the number of leading arguments that are loaded exactly once at the start of the method, and the index of the
+	// first instruction after these loads
+	private int directArguments;
+	private int bodyStart;
 
-	private int storedParameters;
-	private int returnIndex;
-	private int maxLocals;
-	private int parameterSlots;
+	// for each argument that is a function only invoked once, the index of its load and of the invocation; -1 for all
+	// other arguments
+	private int[] functionLoads;
+	private int[] functionCalls;
+
+	// the arity of the tuple returned by the method if every return creates a new tuple, or 0. Such tuples can be
+	// replaced with their values when the call is destructured
+	private int         tupleArity;
+	// for each instruction, whether it is skipped when the returned tuple is replaced, i.e. the creation of the tuple
+	// and the boxing of its primitive values
+	private boolean[]   tupleSkips;
+	// for each constructor call of a returned tuple, the types of the values on the stack, or null
+	private IType[][]   tupleValueTypes;
+
+	private static final int[] NO_ALIASES = {};
+
+	// whether all classes and members referenced by the code are accessible from the calling class
+	private final Map<String, Boolean> accessibility = new ConcurrentHashMap<>();
 
 	public InlineIntrinsicData(IMethod method)
+	{
+		this(method, null);
+	}
+
+	/**
+	 * @param method
+	 * 	the inline method
+	 * @param source
+	 * 	writes the body of the method to the given writer, or {@code null} if the instructions are added directly
+	 */
+	public InlineIntrinsicData(IMethod method, Consumer<? super MethodWriter> source)
 	{
 		this.method = method;
+		this.source = source;
 	}
 
-	public void setMaxLocals(int maxLocals)
+	// --------------- Loading ---------------
+
+	/**
+	 * Records the instructions of source methods and determines if and how the method can be inlined. Writing the body
+	 * of a source method while it is recorded is not safe, so this has to be called before the method itself is
+	 * written.
+	 */
+	public synchronized void load()
 	{
-		this.maxLocals = maxLocals;
+		if (this.loaded)
+		{
+			return;
+		}
+
+		if (this.source != null)
+		{
+			this.source.accept(new MethodWriterImpl(new ClassWriter(), new InlineCodeVisitor(this)));
+		}
+
+		this.inlinable = this.preProcess();
+		this.loaded = true;
 	}
 
-	private void preWrite(MethodWriter writer, IValue instance, ArgumentList arguments, int localCount)
+	private boolean preProcess()
 	{
-		if (!this.preProcessed)
+		final IMethod method = this.method;
+		if (Specialization.hasReifiedTypeParameters(method))
+		{
+			// reified type arguments are passed as additional arguments
+			return false;
+		}
+		if (!method.isStatic() && !method.hasModifier(Modifiers.PRIVATE) && !method.hasModifier(Modifiers.FINAL) && (
+			method.hasModifier(Modifiers.EXTENSION) || !method.getEnclosingClass().hasModifier(Modifiers.FINAL))
+		    && !isInlineDefault(method))
 		{
-			this.preProcessed = true;
-			this.preProcess();
+			// the method could be overridden, or is an extension method that is linked dynamically
+			return false;
 		}
 
-		for (int i = 0; i < this.storedParameters; i++)
+		// Argument Slots
+
+		final ParameterList parameters = method.getParameters();
+		final int receiverCount = method.isStatic() ? 0 : 1;
+		final int argumentCount = receiverCount + parameters.size();
+		final int[] argumentSlots = this.argumentSlots = new int[argumentCount + 1];
+
+		int slot = 0;
+		for (int i = 0; i < argumentCount; i++)
 		{
-			final IType type = IntrinsicData.writeArgument(writer, this.method, i, instance, arguments);
-			writer.visitVarInsn(type.getStoreOpcode(), localCount);
-			localCount = writer.localCount();
+			argumentSlots[i] = slot;
+			slot += (i < receiverCount ? method.getReceiverType() : parameters.get(i - receiverCount).getCovariantType())
+				        .getLocalSlots();
 		}
+		argumentSlots[argumentCount] = slot;
+
+		// Labels and Instructions
+
+		if (!this.analyze())
+		{
+			return false;
+		}
+		for (int i = 0; i < this.instructionCount; i++)
+		{
+			if (this.instructions[i].getOpcode() == Opcodes.INVOKEDYNAMIC)
+			{
+				// call sites may link to methods that are not accessible from other classes
+				return false;
+			}
+		}
+		if (this.returns == 0)
+		{
+			// the method never returns normally
+			return false;
+		}
+
+		this.maxLocals = Math.max(this.maxLocals, argumentSlots[argumentCount]);
+		this.preProcessArguments(argumentCount);
+		this.preProcessFunctions(argumentCount);
+		this.preProcessTuples();
+		return true;
 	}
 
-	private void preProcess()
+	/**
+	 * Returns {@code true} if the given method is annotated with {@code @InlineDefault}, i.e. its overrides behave
+	 * like its body, so that it can be inlined even though it is not final.
+	 */
+	private static boolean isInlineDefault(IMethod method)
 	{
-		final ParameterList parameterList = this.method.getParameters();
-		int parameterSlots = 0;
+		return Types.INLINEDEFAULT_CLASS != null && !method.hasModifier(Modifiers.EXTENSION)
+		       && method.getAnnotation(Types.INLINEDEFAULT_CLASS) != null;
+	}
+
+	private void preProcessArguments(int argumentCount)
+	{
+		final int[] argumentSlots = this.argumentSlots;
+
+		// Find the leading loads of the first arguments in order. These arguments can be written directly instead of
+		// being stored in local variables, which also keeps their evaluation order.
+		final int[] prefixEnds = new int[argumentCount + 1];
+		int direct = 0;
+		int index = 0;
+		while (index < this.instructionCount && direct < argumentCount)
+		{
+			final IInstruction instruction = this.instructions[index];
+			if (instruction instanceof LabelInstruction)
+			{
+				final Label label = ((LabelInstruction) instruction).getLabel();
+				if (this.targets.contains(label) || this.tryLabels.contains(label))
+				{
+					break;
+				}
+				index++;
+				continue;
+			}
+			if (!Opcodes.isLoadOpcode(instruction.getOpcode())
+			    || ((VarInstruction) instruction).getIndex() != argumentSlots[direct])
+			{
+				break;
+			}
 
-		for (int i = 0, parameterCount = parameterList.size(); i < parameterCount; i++)
+			index++;
+			prefixEnds[++direct] = index;
+		}
+
+		// Arguments that are accessed anywhere else have to be stored
+		for (int i = prefixEnds[direct]; i < this.instructionCount && direct > 0; i++)
 		{
-			parameterSlots += parameterList.get(i).getCovariantType().getLocalSlots();
+			final IInstruction instruction = this.instructions[i];
+			final int varIndex;
+			if (instruction instanceof VarInstruction)
+			{
+				varIndex = ((VarInstruction) instruction).getIndex();
+			}
+			else if (instruction instanceof IIncInstruction)
+			{
+				varIndex = ((IIncInstruction) instruction).getIndex();
+			}
+			else
+			{
+				continue;
+			}
+
+			while (direct > 0 && varIndex < argumentSlots[direct])
+			{
+				direct--;
+			}
 		}
-		this.parameterSlots = parameterSlots;
 
-		final int[] accessCounts = new int[this.maxLocals];
-		int lastStoredIndex = -1;
+		this.directArguments = direct;
+		this.bodyStart = prefixEnds[direct];
+	}
+
+	private void preProcessFunctions(int argumentCount)
+	{
+		final int[] functionLoads = this.functionLoads = new int[argumentCount];
+		final int[] functionCalls = this.functionCalls = new int[argumentCount];
+
+		for (int i = 0; i < argumentCount; i++)
+		{
+			final int load = this.findOnlyLoad(this.argumentSlots[i], this.argumentSlots[i + 1]);
+			final int call = load < 0 ? -1 : this.findInvocation(load);
+			functionLoads[i] = call < 0 ? -1 : load;
+			functionCalls[i] = call;
+		}
+	}
 
+	/**
+	 * Returns the index of the only instruction that accesses the given local variable, if that instruction loads a
+	 * reference, or {@code -1} otherwise.
+	 */
+	private int findOnlyLoad(int start, int end)
+	{
+		int load = -1;
 		for (int i = 0; i < this.instructionCount; i++)
+		{
+			final IInstruction instruction = this.instructions[i];
+			final int varIndex;
+			if (instruction instanceof VarInstruction)
+			{
+				varIndex = ((VarInstruction) instruction).getIndex();
+			}
+			else if (instruction instanceof IIncInstruction)
+			{
+				varIndex = ((IIncInstruction) instruction).getIndex();
+			}
+			else
+			{
+				continue;
+			}
+
+			if (varIndex < start || varIndex >= end)
+			{
+				continue;
+			}
+			if (load >= 0 || instruction.getOpcode() != Opcodes.ALOAD)
+			{
+				return -1;
+			}
+			load = i;
+		}
+		return load;
+	}
+
+	/**
+	 * Returns the index of the interface call that uses the value loaded by the given instruction as its receiver, if
+	 * only the arguments of the call are computed between the load and the call, or {@code -1} otherwise.
+	 */
+	private int findInvocation(int load)
+	{
+		// the number of values above the loaded value
+		int depth = 0;
+
+		for (int i = load + 1; i < this.instructionCount; i++)
 		{
 			final IInstruction instruction = this.instructions[i];
 			final int opcode = instruction.getOpcode();
 
-			if (Opcodes.isLoadOpcode(opcode))
+			if (instruction instanceof MethodInstruction)
 			{
-				final int varIndex = ((VarInstruction) instruction).getIndex();
+				final String desc = ((MethodInstruction) instruction).getDesc();
+				final int argumentCount = Frame.getArgumentCount(desc);
+				if (opcode == Opcodes.INVOKEINTERFACE && depth == argumentCount)
+				{
+					return i;
+				}
 
-				if (accessCounts[varIndex]++ == 0)
+				depth -= opcode == Opcodes.INVOKESTATIC ? argumentCount : argumentCount + 1;
+				if (depth < 0)
 				{
-					// Local Variable loaded for the first time -> might not need to store it
-					continue;
+					return -1;
 				}
+				if (desc.charAt(desc.length() - 1) != 'V')
+				{
+					depth++;
+				}
+				continue;
+			}
 
-				// Local Variable loaded at least two times -> need to store it and all parameters before
-				if (varIndex > lastStoredIndex && varIndex < parameterSlots)
+			switch (opcode)
+			{
+			case Opcodes.ACONST_NULL:
+			case Opcodes.ICONST_M1:
+			case Opcodes.ICONST_0:
+			case Opcodes.ICONST_1:
+			case Opcodes.ICONST_2:
+			case Opcodes.ICONST_3:
+			case Opcodes.ICONST_4:
+			case Opcodes.ICONST_5:
+			case Opcodes.LCONST_0:
+			case Opcodes.LCONST_1:
+			case Opcodes.FCONST_0:
+			case Opcodes.FCONST_1:
+			case Opcodes.FCONST_2:
+			case Opcodes.DCONST_0:
+			case Opcodes.DCONST_1:
+			case Opcodes.BIPUSH:
+			case Opcodes.SIPUSH:
+			case Opcodes.LDC:
+			case Opcodes.GETSTATIC:
+			case Opcodes.ILOAD:
+			case Opcodes.LLOAD:
+			case Opcodes.FLOAD:
+			case Opcodes.DLOAD:
+			case Opcodes.ALOAD:
+				depth++;
+				continue;
+			case Opcodes.CHECKCAST:
+			case Opcodes.GETFIELD:
+				if (depth == 0)
 				{
-					lastStoredIndex = varIndex;
+					return -1;
 				}
+				continue;
+			}
+			return -1;
+		}
+		return -1;
+	}
+
+	private void preProcessTuples()
+	{
+		final int arity = TupleType.getArity(this.method.getType());
+		if (arity == 0)
+		{
+			return;
+		}
+
+		final String owner = TupleType.getTupleClass(arity).getInternalName();
+		final String desc = TupleType.getConstructorDescriptor(arity);
+		final boolean[] skips = new boolean[this.instructionCount];
+		final IType[][] valueTypes = new IType[this.instructionCount][];
+
+		for (int i = 0; i < this.instructionCount; i++)
+		{
+			if (this.instructions[i].getOpcode() != Opcodes.ARETURN)
+			{
+				continue;
+			}
+
+			// every return has to return a tuple that was created right before
+			final int init = this.previousInstruction(i);
+			if (init < 0 || !isConstructorCall(this.instructions[init], owner, desc))
+			{
+				return;
 			}
-			else if (Opcodes.isReturnOpcode(opcode))
+
+			final int start = this.findCreation(init, owner, desc);
+			if (start < 0)
 			{
-				this.returnIndex = i;
+				return;
 			}
+
+			skips[start] = skips[start + 1] = true;
+			valueTypes[init] = this.findValueTypes(start + 2, init, arity, skips);
 		}
 
-		this.storedParameters = lastStoredIndex + 1;
+		this.tupleArity = arity;
+		this.tupleSkips = skips;
+		this.tupleValueTypes = valueTypes;
 	}
 
-	private void writeInstruction(IInstruction instruction, MethodWriter writer, IValue instance, ArgumentList arguments,
-		                             int localCount)
+	/**
+	 * Returns the index of the instruction before the given one, skipping labels that are not jump targets, or
+	 * {@code -1} if the given instruction can be reached by a jump.
+	 */
+	private int previousInstruction(int index)
 	{
-		final int opcode = instruction.getOpcode();
-		if (Opcodes.isLoadOpcode(opcode))
+		for (int i = index - 1; i >= 0; i--)
 		{
-			final int varIndex = ((VarInstruction) instruction).getIndex();
-			if (varIndex >= this.storedParameters && varIndex < this.parameterSlots)
+			final IInstruction instruction = this.instructions[i];
+			if (!(instruction instanceof LabelInstruction))
 			{
-				// Accessing Parameter, not stored -> load it
-				final int argIndex = getArgumentIndex(varIndex, this.method);
-				IntrinsicData.writeArgument(writer, this.method, argIndex, instance, arguments);
-				return;
+				return i;
 			}
+			if (this.targets.contains(((LabelInstruction) instruction).getLabel()))
+			{
+				return -1;
+			}
+		}
+		return -1;
+	}
 
-			writer.visitVarInsn(instruction.getOpcode(), localCount + varIndex);
-			return;
+	private static boolean isConstructorCall(IInstruction instruction, String owner, String desc)
+	{
+		if (instruction.getOpcode() != Opcodes.INVOKESPECIAL)
+		{
+			return false;
 		}
-		if (Opcodes.isStoreOpcode(opcode))
+
+		final MethodInstruction call = (MethodInstruction) instruction;
+		return owner.equals(call.getOwner()) && "<init>".equals(call.getName()) && desc.equals(call.getDesc());
+	}
+
+	/**
+	 * Returns the index of the {@code NEW} instruction that creates the object initialized by the given constructor
+	 * call, if it is followed by a {@code DUP}, or {@code -1} otherwise.
+	 */
+	private int findCreation(int init, String owner, String desc)
+	{
+		// the number of constructor calls of nested objects of the same class
+		int depth = 0;
+
+		for (int i = init - 1; i >= 0; i--)
 		{
-			final int varIndex = ((VarInstruction) instruction).getIndex();
-			writer.visitVarInsn(instruction.getOpcode(), localCount + varIndex);
-			return;
+			final IInstruction instruction = this.instructions[i];
+			if (isConstructorCall(instruction, owner, desc))
+			{
+				depth++;
+			}
+			else if (instruction.getOpcode() == Opcodes.NEW && owner.equals(((TypeInstruction) instruction).getType()))
+			{
+				if (depth > 0)
+				{
+					depth--;
+					continue;
+				}
+				return this.instructions[i + 1].getOpcode() == Opcodes.DUP ? i : -1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the types of the values passed to the constructor call at the given end index. Primitive values that
+	 * are boxed only to be passed to the constructor are marked as skipped, so that they keep their primitive type.
+	 * This only succeeds for straight-line code, otherwise all values are objects.
+	 */
+	private IType[] findValueTypes(int start, int end, int arity, boolean[] skips)
+	{
+		final IType[] types = new IType[arity];
+		Arrays.fill(types, Types.OBJECT);
+
+		// for each value on the stack, the index of the instruction that boxed it, or -1
+		final int[] stack = new int[end - start + 1];
+		int depth = 0;
+
+		for (int i = start; i < end; i++)
+		{
+			final IInstruction instruction = this.instructions[i];
+			final int opcode = instruction.getOpcode();
+			final int pops;
+			final boolean push;
+
+			if (instruction instanceof LabelInstruction)
+			{
+				if (this.targets.contains(((LabelInstruction) instruction).getLabel()))
+				{
+					return types;
+				}
+				continue;
+			}
+			if (instruction instanceof MethodInstruction)
+			{
+				final String desc = ((MethodInstruction) instruction).getDesc();
+				final int argumentCount = Frame.getArgumentCount(desc);
+				pops = opcode == Opcodes.INVOKESTATIC ? argumentCount : argumentCount + 1;
+				if (depth < pops)
+				{
+					return types;
+				}
+
+				depth -= pops;
+				if (desc.charAt(desc.length() - 1) != 'V')
+				{
+					stack[depth++] = getBoxedType((MethodInstruction) instruction) != null ? i : -1;
+				}
+				continue;
+			}
+
+			if (opcode >= Opcodes.ACONST_NULL && opcode <= Opcodes.LDC || Opcodes.isLoadOpcode(opcode)
+			    || opcode == Opcodes.GETSTATIC)
+			{
+				pops = 0;
+				push = true;
+			}
+			else if (Opcodes.isStoreOpcode(opcode) || opcode == Opcodes.POP)
+			{
+				pops = 1;
+				push = false;
+			}
+			else if (opcode >= Opcodes.IALOAD && opcode <= Opcodes.SALOAD // array loads
+			         || opcode >= Opcodes.IADD && opcode <= Opcodes.DREM // arithmetic
+			         || opcode >= Opcodes.ISHL && opcode <= Opcodes.LXOR // bitwise
+			         || opcode >= Opcodes.LCMP && opcode <= Opcodes.DCMPG) // comparison
+			{
+				pops = 2;
+				push = true;
+			}
+			else if (opcode >= Opcodes.INEG && opcode <= Opcodes.DNEG || opcode >= Opcodes.I2L && opcode <= Opcodes.I2S
+			         || opcode == Opcodes.GETFIELD || opcode == Opcodes.CHECKCAST || opcode == Opcodes.INSTANCEOF
+			         || opcode == Opcodes.ARRAYLENGTH)
+			{
+				pops = 1;
+				push = true;
+			}
+			else if (opcode == Opcodes.IINC || opcode == Opcodes.NOP)
+			{
+				continue;
+			}
+			else
+			{
+				return types;
+			}
+
+			if (depth < pops)
+			{
+				return types;
+			}
+			depth -= pops;
+			if (push)
+			{
+				stack[depth++] = -1;
+			}
+		}
+
+		if (depth != arity)
+		{
+			return types;
+		}
+
+		for (int i = 0; i < arity; i++)
+		{
+			final int box = stack[i];
+			if (box >= 0)
+			{
+				skips[box] = true;
+				types[i] = getBoxedType((MethodInstruction) this.instructions[box]);
+			}
+		}
+		return types;
+	}
+
+	/**
+	 * Returns the primitive type boxed by the given {@code valueOf} call of a wrapper class, or {@code null} if it is
+	 * another method call.
+	 */
+	private static IType getBoxedType(MethodInstruction call)
+	{
+		if (call.getOpcode() != Opcodes.INVOKESTATIC || !"valueOf".equals(call.getName()))
+		{
+			return null;
 		}
 
-		instruction.write(writer);
+		final IType type = PrimitiveType.getPrimitiveType(call.getOwner());
+		if (type == null || !type.isPrimitive() || Types.isVoid(type))
+		{
+			return null;
+		}
+
+		final String desc = '(' + type.getExtendedName() + ")L" + call.getOwner() + ';';
+		return desc.equals(call.getDesc()) ? type : null;
 	}
 
-	private static int getArgumentIndex(int varIndex, IMethod method)
+	// --------------- Function Inlining ---------------
+
+	/**
+	 * Marks lambda expressions passed to a call of this method as inlined, if they are invoked exactly once by the code
+	 * of this method. The invocation is then replaced with the body of the lambda expression, so no function object is
+	 * created and variables captured by the lambda expression can stay local variables.
+	 *
+	 * @param callerName
+	 * 	the internal name of the class that contains the call
+	 */
+	public void inlineFunctions(IValue receiver, ArgumentList arguments, String callerName)
 	{
-		final ParameterList params = method.getParameters();
-		for (int i = 0, count = params.size(); i < count; i++)
+		if (!this.isApplicable(callerName, receiver) || this.hasHandlers)
+		{
+			// the method would be invoked normally at call sites with values on the stack
+			return;
+		}
+
+		for (int i = 0; i < this.functionCalls.length; i++)
 		{
-			if (params.get(i).getLocalIndex() == varIndex)
+			if (this.functionCalls[i] < 0)
 			{
-				return i;
+				continue;
+			}
+
+			final IValue argument = IntrinsicData.getArgument(this.method, i, receiver, arguments);
+			if (argument instanceof LambdaExpr)
+			{
+				final MethodInstruction call = (MethodInstruction) this.instructions[this.functionCalls[i]];
+				((LambdaExpr) argument).setInlined(call.getOwner(), call.getName(), call.getDesc());
 			}
 		}
+	}
 
-		return 0;
+	private LambdaExpr[] getInlinedFunctions(IValue receiver, ArgumentList arguments)
+	{
+		LambdaExpr[] functions = null;
+		for (int i = 0, count = this.argumentSlots.length - 1; i < count; i++)
+		{
+			final IValue argument = IntrinsicData.getArgument(this.method, i, receiver, arguments);
+			if (argument instanceof LambdaExpr && ((LambdaExpr) argument).isInlined())
+			{
+				if (functions == null)
+				{
+					functions = new LambdaExpr[count];
+				}
+				functions[i] = (LambdaExpr) argument;
+			}
+		}
+		return functions;
 	}
 
+	// --------------- Applicability ---------------
+
 	@Override
-	public void writeIntrinsic(MethodWriter writer, IValue receiver, ArgumentList arguments, int lineNumber)
-		throws BytecodeException
+	public boolean isApplicable(MethodWriter writer, IValue receiver, ArgumentList arguments)
 	{
-		final int localCount = writer.localCount();
-		this.preWrite(writer, receiver, arguments, localCount);
+		if (this.getInlinedFunctions(receiver, arguments) != null)
+		{
+			// the lambda expressions were prepared for inlining during cleanup and cannot be passed as objects
+			return true;
+		}
 
-		for (int i = 0; i < this.returnIndex; i++)
+		final String callerName = writer.getClassWriter().getInternalName();
+		if (callerName == null || !this.isApplicable(callerName, receiver))
 		{
-			this.writeInstruction(this.instructions[i], writer, receiver, arguments, localCount);
+			// the call site is not part of a class, e.g. when recording another inline method
+			return false;
 		}
 
-		writer.resetLocals(localCount);
+		// exception handlers clear the operand stack, including the values of the calling method
+		return !this.hasHandlers || writer.getFrame().stackCount() == 0;
 	}
 
-	@Override
-	public void writeIntrinsic(MethodWriter writer, Label dest, IValue receiver, ArgumentList arguments, int lineNumber)
-		throws BytecodeException
+	private boolean isApplicable(String callerName, IValue receiver)
 	{
-		final int localCount = writer.localCount();
-		this.preWrite(writer, receiver, arguments, localCount);
+		final CompilerConfig config = Package.rootPackage.getCompilationContext().config;
+		if (!config.inlineMethods())
+		{
+			return false;
+		}
 
-		// Write all except the last Instruction
-		final int lastIndex = this.returnIndex - 1;
-		for (int i = 0; i < lastIndex; i++)
+		this.load();
+		if (!this.inlinable || this.size > config.getMaxInlineSize())
 		{
-			this.writeInstruction(this.instructions[i], writer, receiver, arguments, localCount);
+			return false;
 		}
 
-		// Write the last Instruction as a jump instruction
-		final IInstruction lastInstruction = this.instructions[lastIndex];
-		final int jumpOpcode = Opcodes.getJumpOpcode(lastInstruction.getOpcode());
-		if (jumpOpcode >= 0)
+		if (!this.method.isStatic())
 		{
-			writer.visitJumpInsn(jumpOpcode, dest);
+			if (receiver == null || receiver.isIgnoredClassAccess())
+			{
+				return false;
+			}
 		}
-		else
+		else if (receiver != null && !receiver.isIgnoredClassAccess() && !this.method.hasModifier(Modifiers.INFIX))
 		{
-			this.writeInstruction(lastInstruction, writer, receiver, arguments, localCount);
-			writer.visitJumpInsn(Opcodes.IFNE, dest);
+			// the receiver is evaluated and discarded
+			return false;
 		}
 
-		writer.resetLocals(localCount);
+		final Boolean cached = this.accessibility.get(callerName);
+		if (cached != null)
+		{
+			return cached;
+		}
+
+		final IClass caller = Package.rootPackage.resolveGlobalClass(callerName);
+		final boolean accessible;
+		synchronized (Package.rootPackage)
+		{
+			accessible = caller != null && this.isAccessibleFrom(caller);
+		}
+		this.accessibility.put(callerName, accessible);
+		return accessible;
+	}
+
+	private boolean isAccessibleFrom(IClass caller)
+	{
+		for (int i = 0; i < this.instructionCount; i++)
+		{
+			final IInstruction instruction = this.instructions[i];
+			final boolean accessible;
+
+			if (instruction instanceof MethodInstruction)
+			{
+				final MethodInstruction insn = (MethodInstruction) instruction;
+				accessible = isMemberAccessible(caller, insn.getOwner(), insn.getName(), insn.getDesc(), false);
+			}
+			else if (instruction instanceof FieldInstruction)
+			{
+				final FieldInstruction insn = (FieldInstruction) instruction;
+				accessible = isMemberAccessible(caller, insn.getOwner(), insn.getFieldName(), insn.getDesc(), true);
+			}
+			else if (instruction instanceof TypeInstruction)
+			{
+				accessible = isTypeAccessible(caller, ((TypeInstruction) instruction).getType());
+			}
+			else if (instruction instanceof MultiArrayInstruction)
+			{
+				accessible = isTypeAccessible(caller, ((MultiArrayInstruction) instruction).getType());
+			}
+			else if (instruction instanceof TryCatchInstruction)
+			{
+				final String type = ((TryCatchInstruction) instruction).getType();
+				accessible = type == null || isTypeAccessible(caller, type);
+			}
+			else if (instruction instanceof LDCInstruction)
+			{
+				final Object argument = ((LDCInstruction) instruction).getArgument();
+				accessible = !(argument instanceof Type) || isTypeAccessible(caller,
+				                                                              ((Type) argument).getInternalName());
+			}
+			else
+			{
+				continue;
+			}
+
+			if (!accessible)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isTypeAccessible(IClass caller, String internalName)
+	{
+		if (internalName.charAt(0) != '[')
+		{
+			return isClassAccessible(caller, internalName);
+		}
+
+		final Type elementType = Type.getType(internalName).getElementType();
+		return elementType.getSort() != Type.OBJECT || isClassAccessible(caller, elementType.getInternalName());
+	}
+
+	private static boolean isClassAccessible(IClass caller, String internalName)
+	{
+		if (internalName.equals(caller.getInternalName()))
+		{
+			return true;
+		}
+
+		final IClass iclass = Package.rootPackage.resolveGlobalClass(internalName);
+		return iclass != null && isAccessible(caller, iclass, iclass.getAccessLevel());
+	}
+
+	private static boolean isMemberAccessible(IClass caller, String owner, String name, String desc, boolean field)
+	{
+		if (owner.equals(caller.getInternalName()))
+		{
+			return true;
+		}
+		if (owner.charAt(0) == '[')
+		{
+			// array methods, i.e. clone
+			return isTypeAccessible(caller, owner);
+		}
+
+		final IClass ownerClass = Package.rootPackage.resolveGlobalClass(owner);
+		if (ownerClass == null || !isAccessible(caller, ownerClass, ownerClass.getAccessLevel()))
+		{
+			return false;
+		}
+
+		final ClassMember member = findMember(ownerClass, name, desc, field);
+		return member != null && isAccessible(caller, member.getEnclosingClass(), member.getAccessLevel());
+	}
+
+	private static boolean isAccessible(IClass caller, IClass declaringClass, int accessLevel)
+	{
+		if (declaringClass == caller)
+		{
+			return true;
+		}
+
+		switch (accessLevel & ~Modifiers.INTERNAL)
+		{
+		case Modifiers.PUBLIC:
+			return true;
+		case Modifiers.PROTECTED:
+			// protected members are only accessible on instances of the calling class, so only allow them if they
+			// are accessible anyway
+		case Modifiers.PACKAGE:
+			return declaringClass != null && declaringClass.getPackage() == caller.getPackage();
+		}
+		return false;
 	}
 
+	private static ClassMember findMember(IClass iclass, String name, String desc, boolean field)
+	{
+		if (iclass instanceof ExternalClass)
+		{
+			((ExternalClass) iclass).loadMembers(ExternalMemberVisitor.getMemberKey(name));
+		}
+
+		final ClassBody body = iclass.getBody();
+		if (body != null)
+		{
+			if (field)
+			{
+				for (IField member : body.createdFields())
+				{
+					if (name.equals(member.getInternalName()) && desc.equals(member.getDescriptor()))
+					{
+						return member;
+					}
+				}
+			}
+			else if ("<init>".equals(name))
+			{
+				for (IConstructor member : body.createdConstructors())
+				{
+					if (desc.equals(member.getDescriptor()))
+					{
+						return member;
+					}
+				}
+				// constructors are not inherited
+				return null;
+			}
+			else
+			{
+				for (IMethod member : body.createdMethods())
+				{
+					if (name.equals(member.getInternalName()) && desc.equals(member.getDescriptor()))
+					{
+						return member;
+					}
+				}
+			}
+		}
+
+		final IType superType = iclass.getSuperType();
+		if (superType != null)
+		{
+			final IClass superClass = superType.getTheClass();
+			final ClassMember member = superClass == null ? null : findMember(superClass, name, desc, field);
+			if (member != null)
+			{
+				return member;
+			}
+		}
+
+		for (IType interfaceType : iclass.getInterfaces())
+		{
+			final IClass interfaceClass = interfaceType.getTheClass();
+			final ClassMember member = interfaceClass == null ? null : findMember(interfaceClass, name, desc, field);
+			if (member != null)
+			{
+				return member;
+			}
+		}
+		return null;
+	}
+
+	// --------------- Writing ---------------
+
 	@Override
-	public void writeInvIntrinsic(MethodWriter writer, Label dest, IValue receiver, ArgumentList arguments,
-		                             int lineNumber) throws BytecodeException
+	public void writeIntrinsic(MethodWriter writer, IValue receiver, ArgumentList arguments, int lineNumber)
+		throws BytecodeException
+	{
+		this.write(writer, receiver, arguments, lineNumber, null, null);
+	}
+
+	/**
+	 * Writes the code of the method, which returns a tuple, and stores the values of the tuple in new local variables
+	 * instead of creating it.
+	 *
+	 * @param types
+	 * 	the types of the local variables
+	 *
+	 * @return the local variable indices of the values, or {@code null} if nothing was written because the method
+	 * does not always return a new tuple
+	 */
+	public int[] writeTupleValues(MethodWriter writer, IValue receiver, ArgumentList arguments, IType[] types,
+		int lineNumber) throws BytecodeException
+	{
+		final int arity = types.length;
+		if (this.tupleArity != arity)
+		{
+			return null;
+		}
+
+		// the values stay available after the locals of the inlined code are reset
+		final int[] varIndices = new int[arity];
+		int local = writer.localCount();
+		for (int i = 0; i < arity; i++)
+		{
+			varIndices[i] = local;
+			for (int slots = types[i].getLocalSlots(); slots > 0; slots--)
+			{
+				writer.setLocalType(local++, ClassFormat.TOP);
+			}
+		}
+
+		this.write(writer, receiver, arguments, lineNumber, varIndices, types);
+		return varIndices;
+	}
+
+	/**
+	 * @param varIndices
+	 * 	the local variables that receive the values of the returned tuple, or {@code null} if the tuple is returned
+	 */
+	private void write(MethodWriter writer, IValue receiver, ArgumentList arguments, int lineNumber, int[] varIndices,
+		IType[] types) throws BytecodeException
 	{
 		final int localCount = writer.localCount();
-		this.preWrite(writer, receiver, arguments, localCount);
+		final int directSlots = this.argumentSlots[this.directArguments];
+		final LambdaExpr[] functions = this.getInlinedFunctions(receiver, arguments);
 
-		// Write all except the last Instruction
-		final int lastIndex = this.returnIndex - 1;
-		for (int i = 0; i < lastIndex; i++)
+		// Arguments
+
+		for (int i = 0, count = this.argumentSlots.length - 1; i < count; i++)
 		{
-			this.writeInstruction(this.instructions[i], writer, receiver, arguments, localCount);
+			if (functions != null && functions[i] != null)
+			{
+				// the lambda expression is not evaluated, but its body is written in place of the invocation
+				if (i >= this.directArguments)
+				{
+					writer.setLocalType(localCount + this.argumentSlots[i] - directSlots, ClassFormat.TOP);
+				}
+				continue;
+			}
+
+			final IType type = IntrinsicData.writeArgument(writer, this.method, i, receiver, arguments);
+
+			if (i == 0 && !this.method.isStatic() && !this.method.hasModifier(Modifiers.EXTENSION)
+			    && receiver.valueTag() != IValue.THIS)
+			{
+				// the invocation would throw a NullPointerException for a null receiver
+				writer.visitInsn(Opcodes.DUP);
+				writer.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Object", "getClass", "()Ljava/lang/Class;",
+				                       false);
+				writer.visitInsn(Opcodes.POP);
+			}
+
+			if (i >= this.directArguments)
+			{
+				writer.visitVarInsn(type.getStoreOpcode(), localCount + this.argumentSlots[i] - directSlots);
+			}
 		}
 
-		// Write the last Instruction as an inverse jump instruction
-		final IInstruction lastInstruction = this.instructions[lastIndex];
-		final int jumpOpcode = Opcodes.getInvJumpOpcode(lastInstruction.getOpcode());
-		if (jumpOpcode >= 0)
+		// Instructions
+
+		final Substitution functionSubstitution;
+		if (functions == null)
 		{
-			writer.visitJumpInsn(jumpOpcode, dest);
+			functionSubstitution = null;
 		}
 		else
 		{
-			this.writeInstruction(lastInstruction, writer, receiver, arguments, localCount);
-			writer.visitJumpInsn(Opcodes.IFEQ, dest);
+			// the locals of inlined lambda expressions are placed above the locals of this method
+			final int functionLocals = localCount + this.maxLocals - directSlots;
+			functionSubstitution = (w, index) -> {
+				for (int i = 0; i < functions.length; i++)
+				{
+					if (functions[i] == null)
+					{
+						continue;
+					}
+					if (index == this.functionLoads[i])
+					{
+						return true;
+					}
+					if (index == this.functionCalls[i])
+					{
+						functions[i].writeInvocation(w, functionLocals, lineNumber);
+						return true;
+					}
+				}
+				return false;
+			};
 		}
 
+		if (varIndices == null)
+		{
+			this.writeCode(writer, this.bodyStart, NO_ALIASES, localCount - directSlots, localCount,
+			               this.method.getType(), lineNumber, functionSubstitution);
+			writer.resetLocals(localCount);
+			return;
+		}
+
+		// the tuple is not created, and its values are stored instead of calling the constructor
+		final Substitution tupleSubstitution = (w, index) -> {
+			if (this.tupleSkips[index])
+			{
+				return true;
+			}
+
+			final IType[] valueTypes = this.tupleValueTypes[index];
+			if (valueTypes == null)
+			{
+				return functionSubstitution != null && functionSubstitution.write(w, index);
+			}
+
+			for (int i = valueTypes.length - 1; i >= 0; i--)
+			{
+				valueTypes[i].writeCast(w, types[i], lineNumber);
+				w.visitVarInsn(types[i].getStoreOpcode(), varIndices[i]);
+			}
+			return true;
+		};
+
+		this.writeCode(writer, this.bodyStart, NO_ALIASES, localCount - directSlots, localCount, Types.VOID,
+		               lineNumber, tupleSubstitution);
+
 		writer.resetLocals(localCount);
 	}
+
+	@Override
+	public void writeIntrinsic(MethodWriter writer, Label dest, IValue receiver, ArgumentList arguments, int lineNumber)
+		throws BytecodeException
+	{
+		this.writeIntrinsic(writer, receiver, arguments, lineNumber);
+		this.method.getType().writeCast(writer, Types.BOOLEAN, lineNumber);
+		writer.visitJumpInsn(Opcodes.IFNE, dest);
+	}
+
+	@Override
+	public void writeInvIntrinsic(MethodWriter writer, Label dest, IValue receiver, ArgumentList arguments,
+		                             int lineNumber) throws BytecodeException
+	{
+		this.writeIntrinsic(writer, receiver, arguments, lineNumber);
+		this.method.getType().writeCast(writer, Types.BOOLEAN, lineNumber);
+		writer.visitJumpInsn(Opcodes.IFEQ, dest);
+	}
 }
@@ -19,6 +19,15 @@ public interface IntrinsicData
 		return 0;
 	}
 
+	/**
+	 * Returns {@code true} if the intrinsic bytecode can be written for a call with the given receiver and arguments,
+	 * or {@code false} if the method has to be invoked normally.
+	 */
+	default boolean isApplicable(MethodWriter writer, IValue receiver, ArgumentList arguments)
+	{
+		return true;
+	}
+
 	void writeIntrinsic(MethodWriter writer, IValue receiver, ArgumentList arguments, int lineNumber)
 		throws BytecodeException;
 
@@ -41,6 +50,24 @@ public interface IntrinsicData
 		writer.visitInsnAtLine(insn, lineNumber);
 	}
 
+	static IValue getArgument(IMethod method, int index, IValue receiver, ArgumentList arguments)
+	{
+		final ParameterList params = method.getParameters();
+
+		if (receiver == null || receiver.isIgnoredClassAccess())
+		{
+			return arguments.get(index, params.get(index).getLabel());
+		}
+
+		if (index == 0)
+		{
+			return receiver;
+		}
+
+		final IParameter parameter = params.get(method.hasModifier(INFIX) ? index : index - 1);
+		return arguments.get(index - 1, parameter.getLabel());
+	}
+
 	static IType writeArgument(MethodWriter writer, IMethod method, int index, IValue receiver, ArgumentList arguments)
 		throws BytecodeException
 	{
@@ -11,6 +11,7 @@ import dyvilx.tools.compiler.ast.classes.IClass;
 import dyvilx.tools.compiler.ast.context.IContext;
 import dyvilx.tools.compiler.ast.expression.IValue;
 import dyvilx.tools.compiler.ast.field.Variable;
+import dyvilx.tools.compiler.ast.field.capture.CaptureDataMember;
 import dyvilx.tools.compiler.ast.member.MemberKind;
 import dyvilx.tools.compiler.ast.method.ICallableMember;
 import dyvilx.tools.compiler.ast.type.IType;
@@ -125,6 +126,12 @@ public abstract class AbstractParameter extends Variable implements IParameter
 		return false;
 	}
 
+	@Override
+	public boolean setReferenceType(CaptureDataMember capture)
+	{
+		return false;
+	}
+
 	@Override
 	public String getInternalName()
 	{
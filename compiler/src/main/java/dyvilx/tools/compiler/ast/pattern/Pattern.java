@@ -154,4 +154,31 @@ public interface Pattern extends ASTNode, Typed
 	}
 
 	void writeJumpOnMismatch(MethodWriter writer, int varIndex, Label target) throws BytecodeException;
+
+	// - - - - - - - - Tuple Destructuring - - - - - - - -
+
+	/**
+	 * Returns {@code true} if this pattern can be matched against the values of a tuple expression of the given arity
+	 * without creating the tuple. In that case, the values are stored in separate local variables and matched using
+	 * {@link #writeJumpOnMismatch(MethodWriter, int[], IType[], Label)}.
+	 */
+	default boolean isDestructuring(int arity)
+	{
+		return this.isWildcard();
+	}
+
+	default void writeJumpOnMatch(MethodWriter writer, int[] varIndices, IType[] types, Label target)
+		throws BytecodeException
+	{
+		final Label rightLabel = new Label();
+		this.writeJumpOnMismatch(writer, varIndices, types, rightLabel);
+		writer.visitJumpInsn(Opcodes.GOTO, target);
+		writer.visitLabel(rightLabel);
+	}
+
+	default void writeJumpOnMismatch(MethodWriter writer, int[] varIndices, IType[] types, Label target)
+		throws BytecodeException
+	{
+		// wildcards match any tuple
+	}
 }
@@ -230,6 +230,38 @@ public final class TuplePattern extends AbstractPattern implements PatternList
 		}
 	}
 
+	@Override
+	public boolean isDestructuring(int arity)
+	{
+		return arity == this.patternCount;
+	}
+
+	@Override
+	public void writeJumpOnMismatch(MethodWriter writer, int[] varIndices, IType[] types, Label target)
+		throws BytecodeException
+	{
+		final int lineNumber = this.lineNumber();
+		final IType tupleType = this.getType();
+		final TypeParameterList typeParameters = tupleType.getTheClass().getTypeParameters();
+
+		for (int i = 0; i < this.patternCount; i++)
+		{
+			if (this.patterns[i].isWildcard())
+			{
+				// Skip wildcard patterns
+				continue;
+			}
+
+			final IType valueType = types[i];
+			writer.visitVarInsn(valueType.getLoadOpcode(), varIndices[i]);
+
+			final IType targetType = Types.resolveTypeSafely(tupleType, typeParameters.get(i));
+
+			valueType.writeCast(writer, targetType, lineNumber);
+			this.patterns[i].writeJumpOnMismatch(writer, -1, target);
+		}
+	}
+
 	@Override
 	public void toString(@NonNull String indent, @NonNull StringBuilder buffer)
 	{
@@ -5,6 +5,7 @@ import dyvil.source.position.SourcePosition;
 import dyvilx.tools.asm.Label;
 import dyvilx.tools.compiler.ast.field.IDataMember;
 import dyvilx.tools.compiler.ast.pattern.Pattern;
+import dyvilx.tools.compiler.ast.type.IType;
 import dyvilx.tools.compiler.backend.exception.BytecodeException;
 import dyvilx.tools.compiler.backend.method.MethodWriter;
 
@@ -75,6 +76,20 @@ public class AndPattern extends BinaryPattern
 		this.right.writeJumpOnMismatch(writer, varIndex, target);
 	}
 
+	@Override
+	public boolean isDestructuring(int arity)
+	{
+		return this.left.isDestructuring(arity) && this.right.isDestructuring(arity);
+	}
+
+	@Override
+	public void writeJumpOnMismatch(MethodWriter writer, int[] varIndices, IType[] types, Label target)
+		throws BytecodeException
+	{
+		this.left.writeJumpOnMismatch(writer, varIndices, types, target);
+		this.right.writeJumpOnMismatch(writer, varIndices, types, target);
+	}
+
 	// --------------- Formatting ---------------
 
 	@Override
@@ -3,6 +3,7 @@ package dyvilx.tools.compiler.ast.pattern.operator;
 import dyvil.source.position.SourcePosition;
 import dyvilx.tools.asm.Label;
 import dyvilx.tools.compiler.ast.pattern.Pattern;
+import dyvilx.tools.compiler.ast.type.IType;
 import dyvilx.tools.compiler.backend.method.MethodWriter;
 import dyvilx.tools.compiler.backend.exception.BytecodeException;
 
@@ -94,6 +95,30 @@ public class OrPattern extends BinaryPattern
 		writer.resetLocals(locals);
 	}
 
+	@Override
+	public boolean isDestructuring(int arity)
+	{
+		return this.left.isDestructuring(arity) && this.right.isDestructuring(arity);
+	}
+
+	@Override
+	public void writeJumpOnMismatch(MethodWriter writer, int[] varIndices, IType[] types, Label target)
+		throws BytecodeException
+	{
+		final int locals = writer.localCount();
+		final Label targetLabel = new Label();
+
+		this.left.writeJumpOnMatch(writer, varIndices, types, targetLabel);
+
+		writer.resetLocals(locals);
+
+		this.right.writeJumpOnMismatch(writer, varIndices, types, target);
+
+		writer.visitLabel(targetLabel);
+
+		writer.resetLocals(locals);
+	}
+
 	// --------------- Formatting ---------------
 
 	@Override
@@ -0,0 +1,300 @@
+package dyvilx.tools.compiler.ast.statement;
+
+import dyvil.lang.Formattable;
+import dyvil.lang.Name;
+import dyvil.reflect.Modifiers;
+import dyvil.reflect.Opcodes;
+import dyvil.source.position.SourcePosition;
+import dyvilx.tools.compiler.ast.attribute.AttributeList;
+import dyvilx.tools.compiler.ast.consumer.IDataMemberConsumer;
+import dyvilx.tools.compiler.ast.context.IContext;
+import dyvilx.tools.compiler.ast.expression.AbstractValue;
+import dyvilx.tools.compiler.ast.expression.IValue;
+import dyvilx.tools.compiler.ast.field.IVariable;
+import dyvilx.tools.compiler.ast.field.Variable;
+import dyvilx.tools.compiler.ast.header.IClassCompilableList;
+import dyvilx.tools.compiler.ast.header.ICompilableList;
+import dyvilx.tools.compiler.ast.type.IType;
+import dyvilx.tools.compiler.ast.type.builtin.Types;
+import dyvilx.tools.compiler.ast.type.compound.TupleType;
+import dyvilx.tools.compiler.backend.exception.BytecodeException;
+import dyvilx.tools.compiler.backend.method.MethodWriter;
+import dyvilx.tools.compiler.config.Formatting;
+import dyvilx.tools.compiler.util.Markers;
+import dyvilx.tools.parsing.marker.Marker;
+import dyvilx.tools.parsing.marker.MarkerList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Declares one local variable for each value of a tuple, as in {@code let (a, b) = f()}. Variables named {@code _}
+ * are not declared. If the tuple is created by a tuple expression or an inlined call, its values are stored directly
+ * and the tuple is never created.
+ */
+public class DestructuringStatement extends AbstractValue implements IStatement, IDataMemberConsumer<IVariable>
+{
+	// =============== Fields ===============
+
+	protected final List<IVariable> variables = new ArrayList<>();
+
+	protected IValue value;
+
+	// =============== Constructors ===============
+
+	public DestructuringStatement(SourcePosition position)
+	{
+		this.position = position;
+	}
+
+	// =============== Properties ===============
+
+	public List<IVariable> getVariables()
+	{
+		return this.variables;
+	}
+
+	public IValue getValue()
+	{
+		return this.value;
+	}
+
+	public void setValue(IValue value)
+	{
+		this.value = value;
+	}
+
+	// =============== Methods ===============
+
+	@Override
+	public int valueTag()
+	{
+		return DESTRUCTURING;
+	}
+
+	@Override
+	public void addDataMember(IVariable dataMember)
+	{
+		this.variables.add(dataMember);
+	}
+
+	@Override
+	public IVariable createDataMember(SourcePosition position, Name name, IType type, AttributeList attributes)
+	{
+		return new Variable(position, name, type, attributes);
+	}
+
+	// --------------- Resolution Phases ---------------
+
+	@Override
+	public void resolveTypes(MarkerList markers, IContext context)
+	{
+		for (IVariable variable : this.variables)
+		{
+			variable.resolveTypes(markers, context);
+		}
+
+		if (this.value != null)
+		{
+			this.value.resolveTypes(markers, context);
+		}
+	}
+
+	@Override
+	public IValue resolve(MarkerList markers, IContext context)
+	{
+		if (this.value == null)
+		{
+			markers.add(Markers.semanticError(this.position, "destructuring.uninitialized"));
+			this.resolveVariables(markers, context, null);
+			return this;
+		}
+
+		this.value = this.value.resolve(markers, context);
+
+		final IType valueType = this.value.getType();
+		final int arity = this.variables.size();
+		if (TupleType.getArity(valueType) != arity)
+		{
+			if (this.value.isResolved())
+			{
+				final Marker marker = Markers.semanticError(this.value.getPosition(), "destructuring.arity", arity);
+				marker.addInfo(Markers.getSemantic("value.type", valueType));
+				markers.add(marker);
+			}
+			this.resolveVariables(markers, context, null);
+			return this;
+		}
+
+		final IType[] valueTypes = TupleType.getValueTypes(valueType, arity);
+		this.resolveVariables(markers, context, valueTypes);
+
+		for (int i = 0; i < arity; i++)
+		{
+			final IVariable variable = this.variables.get(i);
+			final IType type = variable.getType();
+			if (!Types.isSuperType(type, valueTypes[i]))
+			{
+				final Marker marker = Markers.semanticError(variable.getPosition(), "destructuring.type.incompatible",
+				                                            variable.getName());
+				marker.addInfo(Markers.getSemantic("variable.type", type));
+				marker.addInfo(Markers.getSemantic("tuple.element.type", valueTypes[i]));
+				markers.add(marker);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Resolves the variables. Variables declared without a type get the type of their value, or {@code any} if the
+	 * types of the values are unknown.
+	 */
+	private void resolveVariables(MarkerList markers, IContext context, IType[] valueTypes)
+	{
+		for (int i = 0, count = this.variables.size(); i < count; i++)
+		{
+			final IVariable variable = this.variables.get(i);
+			if (variable.getType() == Types.UNKNOWN)
+			{
+				variable.setType(valueTypes != null ? valueTypes[i] : Types.ANY);
+			}
+			variable.resolve(markers, context);
+		}
+	}
+
+	@Override
+	public void checkTypes(MarkerList markers, IContext context)
+	{
+		this.value.checkTypes(markers, context);
+
+		for (IVariable variable : this.variables)
+		{
+			variable.checkTypes(markers, context);
+		}
+	}
+
+	@Override
+	public void check(MarkerList markers, IContext context)
+	{
+		this.value.check(markers, context);
+
+		for (IVariable variable : this.variables)
+		{
+			variable.check(markers, context);
+		}
+	}
+
+	@Override
+	public IValue foldConstants()
+	{
+		this.value = this.value.foldConstants();
+
+		for (IVariable variable : this.variables)
+		{
+			variable.foldConstants();
+		}
+		return this;
+	}
+
+	@Override
+	public IValue cleanup(ICompilableList compilableList, IClassCompilableList classCompilableList)
+	{
+		this.value = this.value.cleanup(compilableList, classCompilableList);
+
+		for (IVariable variable : this.variables)
+		{
+			variable.cleanup(compilableList, classCompilableList);
+		}
+		return this;
+	}
+
+	// --------------- Compilation ---------------
+
+	@Override
+	public void writeStatement(MethodWriter writer) throws BytecodeException
+	{
+		final int lineNumber = this.lineNumber();
+		final int arity = this.variables.size();
+		final IType[] types = new IType[arity];
+		final int[] varIndices = this.value.writeStoreTupleValues(writer, types);
+
+		if (varIndices != null)
+		{
+			// the tuple was not created
+			for (int i = 0; i < arity; i++)
+			{
+				final IVariable variable = this.variables.get(i);
+				if (variable.getName() == null)
+				{
+					continue;
+				}
+
+				writer.visitVarInsn(types[i].getLoadOpcode(), varIndices[i]);
+				types[i].writeCast(writer, variable.getType(), lineNumber);
+				variable.writeInit(writer, null);
+			}
+			return;
+		}
+
+		final IType tupleType = this.value.getType();
+		final String internalTupleClassName = tupleType.getInternalName();
+		final IType[] valueTypes = TupleType.getValueTypes(tupleType, arity);
+		final int tupleIndex = this.value.writeStore(writer, null);
+
+		for (int i = 0; i < arity; i++)
+		{
+			final IVariable variable = this.variables.get(i);
+			if (variable.getName() == null)
+			{
+				continue;
+			}
+
+			writer.visitVarInsn(Opcodes.ALOAD, tupleIndex);
+			writer.visitFieldInsn(Opcodes.GETFIELD, internalTupleClassName, "_" + (i + 1), "Ljava/lang/Object;");
+			Types.OBJECT.writeCast(writer, valueTypes[i], lineNumber);
+			valueTypes[i].writeCast(writer, variable.getType(), lineNumber);
+			variable.writeInit(writer, null);
+		}
+	}
+
+	// --------------- Formatting ---------------
+
+	@Override
+	public String toString()
+	{
+		return Formattable.toString(this);
+	}
+
+	@Override
+	public void toString(String prefix, StringBuilder buffer)
+	{
+		final int count = this.variables.size();
+		buffer.append(count > 0 && !this.variables.get(0).hasModifier(Modifiers.FINAL) ? "var (" : "let (");
+
+		for (int i = 0; i < count; i++)
+		{
+			if (i > 0)
+			{
+				buffer.append(", ");
+			}
+
+			final IVariable variable = this.variables.get(i);
+			final Name name = variable.getName();
+			buffer.append(name != null ? name.toString() : "_");
+
+			final IType type = variable.getType();
+			if (type != null && type != Types.UNKNOWN)
+			{
+				Formatting.appendSeparator(buffer, "variable.type_ascription", ':');
+				type.toString(prefix, buffer);
+			}
+		}
+
+		buffer.append(')');
+		Formatting.appendSeparator(buffer, "field.assignment", '=');
+		if (this.value != null)
+		{
+			this.value.toString(prefix, buffer);
+		}
+	}
+}
@@ -384,6 +384,11 @@ public class StatementList implements IValue, IValueList, IDefaultContext, ILabe
 				this.addVariable((VariableStatement) resolvedValue, markers, context);
 				continue;
 			}
+			if (valueTag == IValue.DESTRUCTURING)
+			{
+				this.addVariables((DestructuringStatement) resolvedValue, markers, context);
+				continue;
+			}
 			if (valueTag == IValue.MEMBER_STATEMENT)
 			{
 				this.addMethod((MemberStatement) resolvedValue, markers);
@@ -456,17 +461,37 @@ public class StatementList implements IValue, IValueList, IDefaultContext, ILabe
 		}
 
 		// Variable Name Shadowing
-		final IDataMember dataMember = context.resolveField(variableName);
-		if (dataMember != null && dataMember.isLocal() && !variable.hasModifier(Modifiers.GENERATED))
-		{
-			markers.add(Markers.semantic(initializer.getPosition(), "variable.shadow", variableName));
-		}
+		checkShadowing(variable, initializer.getPosition(), markers, context);
 
 		// Actually add the Variable to the List (this has to happen after checking for shadowed variables)
 
 		this.addVariable(variable);
 	}
 
+	protected void addVariables(DestructuringStatement statement, MarkerList markers, IContext context)
+	{
+		for (IVariable variable : statement.getVariables())
+		{
+			// variables named _ are not declared
+			if (variable.getName() != null)
+			{
+				checkShadowing(variable, variable.getPosition(), markers, context);
+				this.addVariable(variable);
+			}
+		}
+	}
+
+	private static void checkShadowing(IVariable variable, SourcePosition position, MarkerList markers,
+		IContext context)
+	{
+		final Name variableName = variable.getName();
+		final IDataMember dataMember = context.resolveField(variableName);
+		if (dataMember != null && dataMember.isLocal() && !variable.hasModifier(Modifiers.GENERATED))
+		{
+			markers.add(Markers.semantic(position, "variable.shadow", variableName));
+		}
+	}
+
 	public void addVariable(IVariable variable)
 	{
 		if (this.variables == null)
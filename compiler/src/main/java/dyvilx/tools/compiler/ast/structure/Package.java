@@ -7,19 +7,22 @@ import dyvilx.tools.compiler.ast.context.IDefaultContext;
 import dyvilx.tools.compiler.ast.external.ExternalClass;
 import dyvilx.tools.compiler.ast.external.ExternalHeader;
 import dyvilx.tools.compiler.ast.header.AbstractHeader;
+import dyvilx.tools.compiler.ast.header.ICompilationUnit;
 import dyvilx.tools.compiler.ast.header.IHeaderUnit;
 import dyvilx.tools.compiler.ast.member.Named;
 import dyvilx.tools.compiler.backend.ObjectFormat;
 import dyvilx.tools.compiler.backend.classes.ExternalClassVisitor;
 import dyvilx.tools.compiler.library.Library;
+import dyvilx.tools.compiler.phase.DependencyScheduler;
+import dyvilx.tools.compiler.phase.Profiler;
 import dyvilx.tools.compiler.sources.DyvilFileType;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -56,10 +59,12 @@ public class Package implements Named, IDefaultContext
 	protected String fullName;
 	protected String internalName;
 
-	protected List<IHeaderUnit> headers = new ArrayList<>();
+	// the collections below are shared between the worker threads of parallel compiler phases
 
-	protected Map<String, ExternalClass> externalClassCache = new HashMap<>();
-	protected Map<String, Package>       subPackages        = new HashMap<>();
+	protected List<IHeaderUnit> headers = new CopyOnWriteArrayList<>();
+
+	protected Map<String, ExternalClass> externalClassCache = new ConcurrentHashMap<>();
+	protected Map<String, Package>       subPackages        = new ConcurrentHashMap<>();
 
 	// =============== Constructors ===============
 
@@ -183,15 +188,13 @@ public class Package implements Named, IDefaultContext
 
 	public Package createSubPackage(String name)
 	{
-		Package pack = this.subPackages.get(name);
+		final Package pack = this.subPackages.get(name);
 		if (pack != null)
 		{
 			return pack;
 		}
 
-		pack = new Package(this, Name.fromRaw(name));
-		this.subPackages.put(name, pack);
-		return pack;
+		return this.subPackages.computeIfAbsent(name, n -> new Package(this, Name.fromRaw(n)));
 	}
 
 	@Override
@@ -208,15 +211,12 @@ public class Package implements Named, IDefaultContext
 			return pack;
 		}
 
+		final String directory = this.getDirectory();
 		for (Library library : rootPackage.compiler.config.libraries)
 		{
-			try (final Stream<String> stream = library.listPackageNames(this.getDirectory()))
+			if (library.containsPackage(directory, name))
 			{
-				// use this approach instead of isSubPackage to protect against case-insensitive matches
-				if (stream.anyMatch(name::equals))
-				{
-					return this.createSubPackage(name);
-				}
+				return this.createSubPackage(name);
 			}
 		}
 
@@ -235,6 +235,20 @@ public class Package implements Named, IDefaultContext
 		this.headers.add(unit);
 	}
 
+	/**
+	 * Removes all compilation units from this package and its sub-packages, keeping only headers and classes loaded
+	 * from libraries.
+	 */
+	protected void removeCompilationUnits()
+	{
+		this.headers.removeIf(header -> header instanceof ICompilationUnit);
+
+		for (Package subPackage : this.subPackages.values())
+		{
+			subPackage.removeCompilationUnits();
+		}
+	}
+
 	@Override
 	public IHeaderUnit resolveHeader(Name name)
 	{
@@ -242,6 +256,7 @@ public class Package implements Named, IDefaultContext
 		{
 			if (unit.getName() == name)
 			{
+				DependencyScheduler.recordDependency(unit);
 				return unit;
 			}
 		}
@@ -255,17 +270,31 @@ public class Package implements Named, IDefaultContext
 
 	private IHeaderUnit loadHeader(Name name)
 	{
-		String fileName = this.getDirectory() + name.qualified + DyvilFileType.OBJECT_EXTENSION;
-		for (Library library : rootPackage.compiler.config.libraries)
+		synchronized (rootPackage)
 		{
-			IHeaderUnit header = this.loadHeader(fileName, name, library);
-			if (header != null)
+			// another thread may have loaded the header while we were waiting for the lock
+			for (IHeaderUnit unit : this.headers)
 			{
-				return header;
+				if (unit.getName() == name)
+				{
+					DependencyScheduler.recordDependency(unit);
+					return unit;
+				}
 			}
-		}
 
-		return null;
+			String fileName = this.getDirectory() + name.qualified + DyvilFileType.OBJECT_EXTENSION;
+			for (Library library : rootPackage.compiler.config.libraries)
+			{
+				IHeaderUnit header = this.loadHeader(fileName, name, library);
+				if (header != null)
+				{
+					DependencyScheduler.recordDependency(header);
+					return header;
+				}
+			}
+
+			return null;
+		}
 	}
 
 	private IHeaderUnit loadHeader(String fileName, Name name, Library library)
@@ -315,6 +344,7 @@ public class Package implements Named, IDefaultContext
 			final IClass c = header.resolveClass(name);
 			if (c != null)
 			{
+				DependencyScheduler.recordDependency(header);
 				return c;
 			}
 		}
@@ -376,37 +406,90 @@ public class Package implements Named, IDefaultContext
 
 	private ExternalClass resolveExternalClass(String simpleDescriptor)
 	{
+		if (DependencyScheduler.isTrackingExternalFiles())
+		{
+			DependencyScheduler
+				.recordExternalDependency(this.getDirectory() + simpleDescriptor + DyvilFileType.CLASS_EXTENSION);
+		}
+
+		final Profiler profiler = rootPackage.compiler.getProfiler();
+
 		// try to resolve by external cache, using qualified name
 		final ExternalClass cachedExternalClass = this.externalClassCache.get(simpleDescriptor);
 		if (cachedExternalClass != null)
 		{
+			if (profiler != null)
+			{
+				profiler.externalClassCacheHit();
+			}
 			return cachedExternalClass;
 		}
 
-		return loadExternalClass(this.getDirectory() + simpleDescriptor + DyvilFileType.CLASS_EXTENSION,
-		                         result -> this.externalClassCache.put(simpleDescriptor, result));
+		synchronized (rootPackage)
+		{
+			// another thread may have loaded the class while we were waiting for the lock
+			final ExternalClass loadedExternalClass = this.externalClassCache.get(simpleDescriptor);
+			if (loadedExternalClass != null)
+			{
+				if (profiler != null)
+				{
+					profiler.externalClassCacheHit();
+				}
+				return loadedExternalClass;
+			}
+
+			if (profiler != null)
+			{
+				profiler.externalClassCacheMiss();
+			}
+
+			return loadExternalClass(this.getDirectory() + simpleDescriptor + DyvilFileType.CLASS_EXTENSION,
+			                         result -> this.externalClassCache.put(simpleDescriptor, result));
+		}
 	}
 
+	/**
+	 * Loads the external class from the given class file, searching all libraries in order. The consumer is called with
+	 * the new class before its class file is read, which allows self-referencing classes to be resolved from a cache.
+	 * <p>
+	 * Loading is serialized using the {@linkplain #rootPackage root package} as a global lock, so that parallel
+	 * compiler phases never create two instances for the same class file.
+	 *
+	 * @param fileName
+	 * 	the path of the class file relative to the library root
+	 * @param consumer
+	 * 	the consumer that registers the class before it is loaded
+	 *
+	 * @return the loaded class, or {@code null} if no library contains the class file
+	 */
 	public static ExternalClass loadExternalClass(String fileName, Consumer<? super ExternalClass> consumer)
 	{
 		final DyvilCompiler compiler = rootPackage.compiler;
-		for (Library library : compiler.config.libraries)
+		if (compiler.getProfiler() != null)
+		{
+			compiler.getProfiler().externalClassLoaded();
+		}
+
+		synchronized (rootPackage)
 		{
-			try (final InputStream inputStream = library.getInputStream(fileName))
+			for (Library library : compiler.config.libraries)
 			{
-				if (inputStream != null)
+				try (final InputStream inputStream = library.getInputStream(fileName))
 				{
-					final ExternalClass externalClass = new ExternalClass();
-					consumer.accept(externalClass);
-					return ExternalClassVisitor.loadClass(compiler, externalClass, inputStream);
+					if (inputStream != null)
+					{
+						final ExternalClass externalClass = new ExternalClass();
+						consumer.accept(externalClass);
+						return ExternalClassVisitor.loadClass(compiler, externalClass, inputStream);
+					}
+				}
+				catch (IOException exception)
+				{
+					throw new RuntimeException(exception);
 				}
 			}
-			catch (IOException exception)
-			{
-				throw new RuntimeException(exception);
-			}
+			return null;
 		}
-		return null;
 	}
 
 	// --------------- Formatting ---------------
@@ -4,9 +4,10 @@ import dyvil.lang.Name;
 import dyvilx.tools.compiler.DyvilCompiler;
 import dyvilx.tools.compiler.ast.classes.IClass;
 import dyvilx.tools.compiler.ast.external.ExternalClass;
+import dyvilx.tools.compiler.phase.Profiler;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class RootPackage extends Package
 {
@@ -16,7 +17,7 @@ public final class RootPackage extends Package
 
 	// --------------- Cache ---------------
 
-	private final Map<String, ExternalClass> globalExternalClassCache = new HashMap<>();
+	private final Map<String, ExternalClass> globalExternalClassCache = new ConcurrentHashMap<>();
 
 	// =============== Constructors ===============
 
@@ -31,6 +32,19 @@ public final class RootPackage extends Package
 
 	// =============== Methods ===============
 
+	/**
+	 * Prepares this root package for another compilation with the given compiler. All compilation units of the
+	 * previous compilation are removed, while the packages, headers and classes loaded from libraries are kept.
+	 *
+	 * @param compiler
+	 * 	the compiler of the next compilation
+	 */
+	public void reset(DyvilCompiler compiler)
+	{
+		this.compiler = compiler;
+		this.removeCompilationUnits();
+	}
+
 	// --------------- External Resolution ---------------
 
 	public Package resolveGlobalPackage(String descriptor)
@@ -50,11 +64,20 @@ public final class RootPackage extends Package
 
 	public IClass resolveGlobalClass(String descriptor)
 	{
+		final Profiler profiler = this.compiler.getProfiler();
 		final ExternalClass cached = this.globalExternalClassCache.get(descriptor);
 		if (cached != null)
 		{
+			if (profiler != null)
+			{
+				profiler.globalExternalClassCacheHit();
+			}
 			return cached;
 		}
+		if (profiler != null)
+		{
+			profiler.globalExternalClassCacheMiss();
+		}
 
 		Package pack = this;
 		int nextIndex;
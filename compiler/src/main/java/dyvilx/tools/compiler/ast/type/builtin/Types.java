@@ -95,7 +95,9 @@ public final class Types
 	public static IClass MUTABLE_CLASS;
 	public static IClass IMMUTABLE_CLASS;
 	public static IClass REIFIED_CLASS;
+	public static IClass SPECIALIZED_CLASS;
 	public static IClass OVERLOADPRIORITY_CLASS;
+	public static IClass INLINEDEFAULT_CLASS;
 	public static IClass SWITCHOPTIMIZED_CLASS;
 	public static IClass FUNCTIONALINTERFACE_CLASS;
 
@@ -136,7 +138,9 @@ public final class Types
 		MUTABLE_CLASS = Package.dyvilAnnotation.resolveClass("Mutable");
 		IMMUTABLE_CLASS = Package.dyvilAnnotation.resolveClass("Immutable");
 		REIFIED_CLASS = Package.dyvilAnnotation.resolveClass("Reified");
+		SPECIALIZED_CLASS = Package.dyvilAnnotation.resolveClass("Specialized");
 		OVERLOADPRIORITY_CLASS = Package.dyvilAnnotation.resolveClass("OverloadPriority");
+		INLINEDEFAULT_CLASS = Package.dyvilAnnotation.resolveClass("InlineDefault");
 		SWITCHOPTIMIZED_CLASS = Package.dyvilAnnotation.resolveClass("SwitchOptimized");
 		FUNCTIONALINTERFACE_CLASS = Package.javaLang.resolveClass("FunctionalInterface");
 
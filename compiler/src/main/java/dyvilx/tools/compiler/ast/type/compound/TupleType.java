@@ -4,6 +4,7 @@ import dyvil.annotation.internal.NonNull;
 import dyvil.reflect.Opcodes;
 import dyvilx.tools.compiler.ast.classes.IClass;
 import dyvilx.tools.compiler.ast.context.IContext;
+import dyvilx.tools.compiler.ast.generic.TypeParameterList;
 import dyvilx.tools.compiler.ast.structure.Package;
 import dyvilx.tools.compiler.ast.type.IType;
 import dyvilx.tools.compiler.ast.type.TypeList;
@@ -82,6 +83,60 @@ public class TupleType extends ResolvedGenericType
 		return descriptors[typeCount] = buffer.toString();
 	}
 
+	/**
+	 * @return the number of values of the given tuple type, or {@code 0} if it is not a tuple type
+	 */
+	public static int getArity(IType type)
+	{
+		final IClass theClass = type.getTheClass();
+		if (theClass == null)
+		{
+			return 0;
+		}
+
+		final int arity = theClass.typeArity();
+		return arity > 1 && arity < MAX_ARITY && getTupleClass(arity) == theClass ? arity : 0;
+	}
+
+	/**
+	 * @return the types of the values of the given tuple type
+	 */
+	public static IType[] getValueTypes(IType type, int arity)
+	{
+		final TypeParameterList typeParameters = getTupleClass(arity).getTypeParameters();
+		final IType[] types = new IType[arity];
+		for (int i = 0; i < arity; i++)
+		{
+			types[i] = Types.resolveTypeSafely(type, typeParameters.get(i));
+		}
+		return types;
+	}
+
+	/**
+	 * Creates a tuple from values that are stored in local variables.
+	 *
+	 * @param varIndices
+	 * 	the local variable indices of the values
+	 * @param types
+	 * 	the types of the local variables
+	 */
+	public static void writeTuple(MethodWriter writer, int[] varIndices, IType[] types, int lineNumber)
+		throws BytecodeException
+	{
+		final int arity = varIndices.length;
+		final String internal = getTupleClass(arity).getInternalName();
+		writer.visitTypeInsn(Opcodes.NEW, internal);
+		writer.visitInsn(Opcodes.DUP);
+
+		for (int i = 0; i < arity; i++)
+		{
+			writer.visitVarInsn(types[i].getLoadOpcode(), varIndices[i]);
+			types[i].writeCast(writer, Types.OBJECT, lineNumber);
+		}
+
+		writer.visitMethodInsn(Opcodes.INVOKESPECIAL, internal, "<init>", getConstructorDescriptor(arity), false);
+	}
+
 	@Override
 	public int typeTag()
 	{
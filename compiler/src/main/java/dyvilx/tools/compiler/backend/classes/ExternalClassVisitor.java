@@ -8,35 +8,44 @@ import dyvilx.tools.compiler.ast.attribute.annotation.Annotation;
 import dyvilx.tools.compiler.ast.attribute.annotation.AnnotationUtil;
 import dyvilx.tools.compiler.ast.attribute.annotation.ExternalAnnotation;
 import dyvilx.tools.compiler.ast.attribute.modifiers.ModifierUtil;
-import dyvilx.tools.compiler.ast.classes.ClassBody;
 import dyvilx.tools.compiler.ast.external.*;
 import dyvilx.tools.compiler.ast.generic.ITypeParameter;
 import dyvilx.tools.compiler.ast.parameter.ClassParameter;
-import dyvilx.tools.compiler.ast.parameter.ParameterList;
 import dyvilx.tools.compiler.ast.structure.Package;
 import dyvilx.tools.compiler.ast.type.IType;
 import dyvilx.tools.compiler.ast.type.TypeList;
 import dyvilx.tools.compiler.backend.ClassFormat;
 import dyvilx.tools.compiler.backend.annotation.*;
 import dyvilx.tools.compiler.backend.field.ExternalFieldVisitor;
-import dyvilx.tools.compiler.backend.method.ExternalMethodVisitor;
 
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static dyvilx.tools.compiler.backend.ClassFormat.*;
 
 public class ExternalClassVisitor implements ClassVisitor
 {
+	private static final byte[] DYVIL_NAME_BYTES = AnnotationUtil.DYVIL_NAME.getBytes(StandardCharsets.US_ASCII);
+
 	public final ExternalClass theClass;
 	public final List<String>  classParameters = new ArrayList<>();
+	public final Set<String>   memberKeys      = new HashSet<>();
 
 	public ExternalClassVisitor(ExternalClass theClass)
 	{
 		this.theClass = theClass;
 	}
 
+	/**
+	 * Loads the given class from the class file. Fields, methods and constructors are not created immediately; the
+	 * class keeps the class file and materializes them on demand (see {@link ExternalClass#loadMembers(String)}).
+	 * Classes that rename members with {@code @DyvilName} are loaded eagerly, because the names of their members are
+	 * only known after reading the annotations.
+	 */
 	public static ExternalClass loadClass(DyvilCompiler compiler, ExternalClass externalClass, InputStream inputStream)
 	{
 		try
@@ -46,6 +55,15 @@ public class ExternalClassVisitor implements ClassVisitor
 
 			reader.accept(visitor, dyvilx.tools.asm.ClassReader.SKIP_FRAMES);
 
+			if (containsDyvilName(reader.b))
+			{
+				ExternalMemberVisitor.loadMembers(externalClass, reader.b, null);
+			}
+			else if (!visitor.memberKeys.isEmpty())
+			{
+				externalClass.setUnloadedMembers(reader.b, visitor.memberKeys);
+			}
+
 			return externalClass;
 		}
 		catch (Throwable ex)
@@ -56,6 +74,25 @@ public class ExternalClassVisitor implements ClassVisitor
 		return null;
 	}
 
+	private static boolean containsDyvilName(byte[] classFile)
+	{
+		// the descriptor is ASCII, so its modified UTF-8 form in the constant pool is identical
+		final byte[] pattern = DYVIL_NAME_BYTES;
+		outer:
+		for (int i = 0, end = classFile.length - pattern.length; i <= end; i++)
+		{
+			for (int j = 0; j < pattern.length; j++)
+			{
+				if (classFile[i + j] != pattern[j])
+				{
+					continue outer;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
 	// ------------------------------ ClassVisitor Implementation ------------------------------
 
 	// --------------- Class ---------------
@@ -66,7 +103,7 @@ public class ExternalClassVisitor implements ClassVisitor
 		this.theClass.setJavaFlags(access);
 		this.theClass.setInternalName(name);
 
-		this.theClass.setBody(new ClassBody(this.theClass));
+		this.theClass.setBody(new ExternalClassBody(this.theClass));
 
 		int index = name.lastIndexOf('$');
 		if (index == -1)
@@ -204,110 +241,39 @@ public class ExternalClassVisitor implements ClassVisitor
 	@Override
 	public FieldVisitor visitField(int access, String name, String desc, String signature, Object value)
 	{
-		IType type = ClassFormat.readFieldType(signature == null ? desc : signature);
-
-		if (this.classParameters.contains(name))
+		if (!this.classParameters.contains(name))
 		{
-			final ClassParameter param = new ExternalClassParameter(this.theClass, Name.fromQualified(name), desc,
-			                                                        type);
-			param.setJavaFlags(access);
-			this.theClass.getParameters().add(param);
-			return new ExternalFieldVisitor(param);
-		}
-
-		final ExternalField field = new ExternalField(this.theClass, Name.fromQualified(name), desc, type);
-		field.setJavaFlags(access);
-
-		if (value != null)
-		{
-			field.setConstantValue(value);
+			this.memberKeys.add(ExternalMemberVisitor.getMemberKey(name));
+			return null;
 		}
 
-		this.theClass.getBody().addDataMember(field);
-
-		return new ExternalFieldVisitor(field);
+		final IType type = ClassFormat.readFieldType(signature == null ? desc : signature);
+		final ClassParameter param = new ExternalClassParameter(this.theClass, Name.fromQualified(name), desc, type);
+		param.setJavaFlags(access);
+		this.theClass.getParameters().add(param);
+		return new ExternalFieldVisitor(param);
 	}
 
 	@Override
 	public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions)
 	{
-		if ((access & Modifiers.SYNTHETIC) != 0)
+		if (ExternalMemberVisitor.isMember(this.theClass, access, name))
 		{
+			this.memberKeys.add(ExternalMemberVisitor.getMemberKey(name));
 			return null;
 		}
 
-		switch (name)
+		if (!this.theClass.isAnnotation() || (access & (Modifiers.SYNTHETIC | Modifiers.STATIC)) != 0
+		    || name.startsWith("<"))
 		{
-		case "<clinit>":
 			return null;
-		case "<init>":
-			if (this.theClass.hasModifier(Modifiers.ENUM))
-			{
-				return null;
-			}
-
-			final ExternalConstructor ctor = new ExternalConstructor(this.theClass);
-			ctor.setJavaFlags(access);
-
-			if (signature != null)
-			{
-				readConstructorType(signature, ctor);
-			}
-			else
-			{
-				readConstructorType(desc, ctor);
-
-				if (exceptions != null)
-				{
-					readExceptions(exceptions, ctor.getExceptions());
-				}
-			}
-
-			if ((access & Modifiers.ACC_VARARGS) != 0)
-			{
-				final ParameterList parameterList = ctor.getExternalParameterList();
-				parameterList.get(parameterList.size() - 1).setVarargs();
-			}
-
-			this.theClass.getBody().addConstructor(ctor);
-
-			return new ExternalMethodVisitor(ctor);
-		}
-
-		if (this.theClass.isAnnotation() && (access & Modifiers.STATIC) == 0)
-		{
-			final ClassParameter param = new ExternalClassParameter(this.theClass, Name.fromQualified(name),
-			                                                        desc.substring(2), readReturnType(desc));
-			param.setJavaFlags(access);
-			this.theClass.getParameters().add(param);
-			return new AnnotationClassVisitor(param);
-		}
-
-		final ExternalMethod method = new ExternalMethod(this.theClass, name, desc, signature);
-		method.setJavaFlags(access);
-
-		if (signature != null)
-		{
-			readMethodType(signature, method);
-		}
-		else
-		{
-			readMethodType(desc, method);
-
-			if (exceptions != null)
-			{
-				readExceptions(exceptions, method.getExceptions());
-			}
-		}
-
-		if ((access & Modifiers.ACC_VARARGS) != 0)
-		{
-			final ParameterList parameterList = method.getExternalParameterList();
-			parameterList.get(parameterList.size() - 1).setVarargs();
 		}
 
-		this.theClass.getBody().addMethod(method);
-		return new ExternalMethodVisitor(method);
+		final ClassParameter param = new ExternalClassParameter(this.theClass, Name.fromQualified(name),
+		                                                        desc.substring(2), readReturnType(desc));
+		param.setJavaFlags(access);
+		this.theClass.getParameters().add(param);
+		return new AnnotationClassVisitor(param);
 	}
 
 	// --------------- End ---------------
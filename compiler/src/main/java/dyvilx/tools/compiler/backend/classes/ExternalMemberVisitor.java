@@ -0,0 +1,237 @@
+package dyvilx.tools.compiler.backend.classes;
+
+import dyvil.lang.Name;
+import dyvil.reflect.Modifiers;
+import dyvilx.tools.asm.*;
+import dyvilx.tools.compiler.ast.external.ExternalClass;
+import dyvilx.tools.compiler.ast.external.ExternalConstructor;
+import dyvilx.tools.compiler.ast.external.ExternalField;
+import dyvilx.tools.compiler.ast.external.ExternalMethod;
+import dyvilx.tools.compiler.ast.parameter.ParameterList;
+import dyvilx.tools.compiler.ast.type.IType;
+import dyvilx.tools.compiler.backend.ClassFormat;
+import dyvilx.tools.compiler.backend.field.ExternalFieldVisitor;
+import dyvilx.tools.compiler.backend.method.ExternalMethodVisitor;
+
+import java.util.Set;
+
+import static dyvilx.tools.compiler.backend.ClassFormat.*;
+
+/**
+ * A class visitor that creates the fields, methods and constructors of an {@link ExternalClass} from its class file.
+ * Only members whose {@linkplain #getMemberKey(String) key} is in the given set are created, which allows external
+ * classes to materialize their members on demand. Class parameters are created by the {@link ExternalClassVisitor} and
+ * skipped here.
+ */
+public class ExternalMemberVisitor implements ClassVisitor
+{
+	// =============== Constants ===============
+
+	public static final String CONSTRUCTOR_KEY = "<init>";
+
+	// =============== Fields ===============
+
+	private final ExternalClass theClass;
+	private final Set<String>   keys;
+
+	// =============== Constructors ===============
+
+	public ExternalMemberVisitor(ExternalClass theClass, Set<String> keys)
+	{
+		this.theClass = theClass;
+		this.keys = keys;
+	}
+
+	// =============== Static Methods ===============
+
+	/**
+	 * Creates the members of the given class with the given keys.
+	 *
+	 * @param theClass
+	 * 	the class to add the members to
+	 * @param classFile
+	 * 	the class file of the class
+	 * @param keys
+	 * 	the keys of the members to create, or {@code null} to create all members
+	 */
+	public static void loadMembers(ExternalClass theClass, byte[] classFile, Set<String> keys)
+	{
+		new ClassReader(classFile).accept(new ExternalMemberVisitor(theClass, keys), ClassReader.SKIP_FRAMES);
+	}
+
+	/**
+	 * Returns the key of a field or method with the given name in the class file. Members are looked up by the
+	 * unqualified form of their name, so members with the same key are always materialized together.
+	 *
+	 * @param name
+	 * 	the name of the member in the class file
+	 *
+	 * @return the key
+	 */
+	public static String getMemberKey(String name)
+	{
+		return CONSTRUCTOR_KEY.equals(name) ? CONSTRUCTOR_KEY : Name.fromQualified(name).unqualified;
+	}
+
+	private boolean accept(String name)
+	{
+		return this.keys == null || this.keys.contains(getMemberKey(name));
+	}
+
+	// ------------------------------ ClassVisitor Implementation ------------------------------
+
+	@Override
+	public void visit(int version, int access, String name, String signature, String superName, String[] interfaces)
+	{
+	}
+
+	@Override
+	public void visitSource(String source, String debug)
+	{
+	}
+
+	@Override
+	public void visitOuterClass(String owner, String name, String desc)
+	{
+	}
+
+	@Override
+	public AnnotationVisitor visitAnnotation(String desc, boolean visible)
+	{
+		return null;
+	}
+
+	@Override
+	public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible)
+	{
+		return null;
+	}
+
+	@Override
+	public void visitAttribute(Attribute attr)
+	{
+	}
+
+	@Override
+	public void visitInnerClass(String name, String outerName, String innerName, int access)
+	{
+	}
+
+	// --------------- Members ---------------
+
+	@Override
+	public FieldVisitor visitField(int access, String name, String desc, String signature, Object value)
+	{
+		if (!this.accept(name) || this.theClass.getParameters().get(Name.fromQualified(name)) != null)
+		{
+			return null;
+		}
+
+		final IType type = ClassFormat.readFieldType(signature == null ? desc : signature);
+		final ExternalField field = new ExternalField(this.theClass, Name.fromQualified(name), desc, type);
+		field.setJavaFlags(access);
+
+		if (value != null)
+		{
+			field.setConstantValue(value);
+		}
+
+		this.theClass.getBody().addDataMember(field);
+
+		return new ExternalFieldVisitor(field);
+	}
+
+	@Override
+	public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions)
+	{
+		if (!isMember(this.theClass, access, name) || !this.accept(name))
+		{
+			return null;
+		}
+
+		if (CONSTRUCTOR_KEY.equals(name))
+		{
+			final ExternalConstructor ctor = new ExternalConstructor(this.theClass);
+			ctor.setJavaFlags(access);
+
+			if (signature != null)
+			{
+				readConstructorType(signature, ctor);
+			}
+			else
+			{
+				readConstructorType(desc, ctor);
+
+				if (exceptions != null)
+				{
+					readExceptions(exceptions, ctor.getExceptions());
+				}
+			}
+
+			if ((access & Modifiers.ACC_VARARGS) != 0)
+			{
+				final ParameterList parameterList = ctor.getExternalParameterList();
+				parameterList.get(parameterList.size() - 1).setVarargs();
+			}
+
+			this.theClass.getBody().addConstructor(ctor);
+
+			return new ExternalMethodVisitor(ctor);
+		}
+
+		final ExternalMethod method = new ExternalMethod(this.theClass, name, desc, signature);
+		method.setJavaFlags(access);
+
+		if (signature != null)
+		{
+			readMethodType(signature, method);
+		}
+		else
+		{
+			readMethodType(desc, method);
+
+			if (exceptions != null)
+			{
+				readExceptions(exceptions, method.getExceptions());
+			}
+		}
+
+		if ((access & Modifiers.ACC_VARARGS) != 0)
+		{
+			final ParameterList parameterList = method.getExternalParameterList();
+			parameterList.get(parameterList.size() - 1).setVarargs();
+		}
+
+		this.theClass.getBody().addMethod(method);
+		return new ExternalMethodVisitor(method);
+	}
+
+	/**
+	 * @return {@code true} if the method with the given access flags and name becomes a method or constructor of the
+	 * class, {@code false} if it is skipped or a class parameter of an annotation class
+	 */
+	static boolean isMember(ExternalClass theClass, int access, String name)
+	{
+		if ((access & Modifiers.SYNTHETIC) != 0)
+		{
+			return false;
+		}
+
+		switch (name)
+		{
+		case "<clinit>":
+			return false;
+		case CONSTRUCTOR_KEY:
+			return !theClass.hasModifier(Modifiers.ENUM);
+		}
+
+		return !theClass.isAnnotation() || (access & Modifiers.STATIC) != 0;
+	}
+
+	// --------------- End ---------------
+
+	@Override
+	public void visitEnd()
+	{
+	}
+}
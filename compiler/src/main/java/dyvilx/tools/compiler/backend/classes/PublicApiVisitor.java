@@ -0,0 +1,348 @@
+package dyvilx.tools.compiler.backend.classes;
+
+import dyvil.reflect.Modifiers;
+import dyvilx.tools.asm.*;
+import dyvilx.tools.compiler.ast.attribute.modifiers.ModifierUtil;
+
+/**
+ * A class visitor that strips everything from a class file that is not visible to other compilation units, i.e. method
+ * bodies, debug information and private members. Two class files that only differ in their implementation have the
+ * same stripped representation. The bodies of {@code inline} methods are kept, because they are copied into the code
+ * of other compilation units.
+ */
+public final class PublicApiVisitor implements ClassVisitor
+{
+	private final ClassVisitor delegate;
+
+	public PublicApiVisitor(ClassVisitor delegate)
+	{
+		this.delegate = delegate;
+	}
+
+	/**
+	 * @param bytes
+	 * 	the class file
+	 *
+	 * @return the class file without non-inline method bodies, debug information and private members
+	 */
+	public static byte[] strip(byte[] bytes)
+	{
+		final dyvilx.tools.asm.ClassWriter writer = new dyvilx.tools.asm.ClassWriter(0);
+		new ClassReader(bytes)
+			.accept(new PublicApiVisitor(writer),
+			        ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+		return writer.toByteArray();
+	}
+
+	private static boolean isPrivate(int access)
+	{
+		return (access & ASMConstants.ACC_PRIVATE) != 0;
+	}
+
+	@Override
+	public void visit(int version, int access, String name, String signature, String superName, String[] interfaces)
+	{
+		this.delegate.visit(version, access, name, signature, superName, interfaces);
+	}
+
+	@Override
+	public void visitSource(String source, String debug)
+	{
+	}
+
+	@Override
+	public void visitOuterClass(String owner, String name, String desc)
+	{
+		this.delegate.visitOuterClass(owner, name, desc);
+	}
+
+	@Override
+	public AnnotationVisitor visitAnnotation(String desc, boolean visible)
+	{
+		return this.delegate.visitAnnotation(desc, visible);
+	}
+
+	@Override
+	public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible)
+	{
+		return this.delegate.visitTypeAnnotation(typeRef, typePath, desc, visible);
+	}
+
+	@Override
+	public void visitAttribute(Attribute attr)
+	{
+		this.delegate.visitAttribute(attr);
+	}
+
+	@Override
+	public void visitInnerClass(String name, String outerName, String innerName, int access)
+	{
+		if (!isPrivate(access))
+		{
+			this.delegate.visitInnerClass(name, outerName, innerName, access);
+		}
+	}
+
+	@Override
+	public FieldVisitor visitField(int access, String name, String desc, String signature, Object value)
+	{
+		return isPrivate(access) ? null : this.delegate.visitField(access, name, desc, signature, value);
+	}
+
+	@Override
+	public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions)
+	{
+		if (isPrivate(access))
+		{
+			return null;
+		}
+
+		final MethodVisitor delegate = this.delegate.visitMethod(access, name, desc, signature, exceptions);
+		return delegate == null ? null : new InlineMethodVisitor(delegate);
+	}
+
+	@Override
+	public void visitEnd()
+	{
+		this.delegate.visitEnd();
+	}
+
+	/**
+	 * Forwards a method and only visits its code if the method is {@code inline}. The modifier is read from the
+	 * {@link ModifierUtil#DYVIL_MODIFIERS} annotation, which is visited before the code.
+	 */
+	private static final class InlineMethodVisitor implements MethodVisitor
+	{
+		private final MethodVisitor delegate;
+
+		private boolean inline;
+
+		InlineMethodVisitor(MethodVisitor delegate)
+		{
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void visitParameter(String name, int access)
+		{
+			this.delegate.visitParameter(name, access);
+		}
+
+		@Override
+		public AnnotationVisitor visitAnnotationDefault()
+		{
+			return this.delegate.visitAnnotationDefault();
+		}
+
+		@Override
+		public AnnotationVisitor visitAnnotation(String desc, boolean visible)
+		{
+			final AnnotationVisitor delegate = this.delegate.visitAnnotation(desc, visible);
+			if (!ModifierUtil.DYVIL_MODIFIERS.equals(desc) || delegate == null)
+			{
+				return delegate;
+			}
+
+			return new AnnotationVisitor()
+			{
+				@Override
+				public void visit(String name, Object value)
+				{
+					if ("value".equals(name) && value instanceof Number
+					    && (((Number) value).longValue() & Modifiers.INLINE) != 0)
+					{
+						InlineMethodVisitor.this.inline = true;
+					}
+					delegate.visit(name, value);
+				}
+
+				@Override
+				public void visitEnum(String name, String desc, String value)
+				{
+					delegate.visitEnum(name, desc, value);
+				}
+
+				@Override
+				public AnnotationVisitor visitAnnotation(String name, String desc)
+				{
+					return delegate.visitAnnotation(name, desc);
+				}
+
+				@Override
+				public AnnotationVisitor visitArray(String name)
+				{
+					return delegate.visitArray(name);
+				}
+
+				@Override
+				public void visitEnd()
+				{
+					delegate.visitEnd();
+				}
+			};
+		}
+
+		@Override
+		public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible)
+		{
+			return this.delegate.visitTypeAnnotation(typeRef, typePath, desc, visible);
+		}
+
+		@Override
+		public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible)
+		{
+			return this.delegate.visitParameterAnnotation(parameter, desc, visible);
+		}
+
+		@Override
+		public void visitAttribute(Attribute attr)
+		{
+			this.delegate.visitAttribute(attr);
+		}
+
+		@Override
+		public boolean visitCode()
+		{
+			return this.inline && this.delegate.visitCode();
+		}
+
+		@Override
+		public void visitFrame(int type, int nLocal, Object[] local, int nStack, Object[] stack)
+		{
+			this.delegate.visitFrame(type, nLocal, local, nStack, stack);
+		}
+
+		@Override
+		public void visitInsn(int opcode)
+		{
+			this.delegate.visitInsn(opcode);
+		}
+
+		@Override
+		public void visitIntInsn(int opcode, int operand)
+		{
+			this.delegate.visitIntInsn(opcode, operand);
+		}
+
+		@Override
+		public void visitVarInsn(int opcode, int var)
+		{
+			this.delegate.visitVarInsn(opcode, var);
+		}
+
+		@Override
+		public void visitTypeInsn(int opcode, String type)
+		{
+			this.delegate.visitTypeInsn(opcode, type);
+		}
+
+		@Override
+		public void visitFieldInsn(int opcode, String owner, String name, String desc)
+		{
+			this.delegate.visitFieldInsn(opcode, owner, name, desc);
+		}
+
+		@Override
+		public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf)
+		{
+			this.delegate.visitMethodInsn(opcode, owner, name, desc, itf);
+		}
+
+		@Override
+		public void visitInvokeDynamicInsn(String name, String desc, Handle bsm, Object... bsmArgs)
+		{
+			this.delegate.visitInvokeDynamicInsn(name, desc, bsm, bsmArgs);
+		}
+
+		@Override
+		public void visitJumpInsn(int opcode, Label label)
+		{
+			this.delegate.visitJumpInsn(opcode, label);
+		}
+
+		@Override
+		public void visitLabel(Label label)
+		{
+			this.delegate.visitLabel(label);
+		}
+
+		@Override
+		public void visitLdcInsn(Object cst)
+		{
+			this.delegate.visitLdcInsn(cst);
+		}
+
+		@Override
+		public void visitIincInsn(int var, int increment)
+		{
+			this.delegate.visitIincInsn(var, increment);
+		}
+
+		@Override
+		public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels)
+		{
+			this.delegate.visitTableSwitchInsn(min, max, dflt, labels);
+		}
+
+		@Override
+		public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels)
+		{
+			this.delegate.visitLookupSwitchInsn(dflt, keys, labels);
+		}
+
+		@Override
+		public void visitMultiANewArrayInsn(String desc, int dims)
+		{
+			this.delegate.visitMultiANewArrayInsn(desc, dims);
+		}
+
+		@Override
+		public AnnotationVisitor visitInsnAnnotation(int typeRef, TypePath typePath, String desc, boolean visible)
+		{
+			return this.delegate.visitInsnAnnotation(typeRef, typePath, desc, visible);
+		}
+
+		@Override
+		public void visitTryCatchBlock(Label start, Label end, Label handler, String type)
+		{
+			this.delegate.visitTryCatchBlock(start, end, handler, type);
+		}
+
+		@Override
+		public AnnotationVisitor visitTryCatchAnnotation(int typeRef, TypePath typePath, String desc, boolean visible)
+		{
+			return this.delegate.visitTryCatchAnnotation(typeRef, typePath, desc, visible);
+		}
+
+		@Override
+		public void visitLocalVariable(String name, String desc, String signature, Label start, Label end, int index)
+		{
+			this.delegate.visitLocalVariable(name, desc, signature, start, end, index);
+		}
+
+		@Override
+		public AnnotationVisitor visitLocalVariableAnnotation(int typeRef, TypePath typePath, Label[] start,
+			                                                     Label[] end, int[] index, String desc, boolean visible)
+		{
+			return this.delegate.visitLocalVariableAnnotation(typeRef, typePath, start, end, index, desc, visible);
+		}
+
+		@Override
+		public void visitLineNumber(int line, Label start)
+		{
+			this.delegate.visitLineNumber(line, start);
+		}
+
+		@Override
+		public void visitMaxs(int maxStack, int maxLocals)
+		{
+			this.delegate.visitMaxs(maxStack, maxLocals);
+		}
+
+		@Override
+		public void visitEnd()
+		{
+			this.delegate.visitEnd();
+		}
+	}
+}
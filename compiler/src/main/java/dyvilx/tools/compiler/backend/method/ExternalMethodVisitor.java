@@ -7,7 +7,6 @@ import dyvilx.tools.compiler.ast.attribute.annotation.Annotation;
 import dyvilx.tools.compiler.ast.attribute.annotation.AnnotationUtil;
 import dyvilx.tools.compiler.ast.attribute.annotation.ExternalAnnotation;
 import dyvilx.tools.compiler.ast.attribute.modifiers.ModifierUtil;
-import dyvilx.tools.compiler.ast.bytecode.*;
 import dyvilx.tools.compiler.ast.method.IExternalCallableMember;
 import dyvilx.tools.compiler.ast.method.IMethod;
 import dyvilx.tools.compiler.ast.method.intrinsic.InlineIntrinsicData;
@@ -24,7 +23,7 @@ public final class ExternalMethodVisitor implements MethodVisitor
 {
 	private final IExternalCallableMember method;
 	private       InlineIntrinsicData     intrinsicData;
-	private       boolean                 unsupportedInline;
+	private       InlineCodeVisitor       codeVisitor;
 	private       int                     parameterIndex;
 	private       String[]                localNames;
 
@@ -127,9 +126,11 @@ public final class ExternalMethodVisitor implements MethodVisitor
 	@Override
 	public boolean visitCode()
 	{
-		if (InlineIntrinsicData.ENABLE_INLINE && this.method.hasModifier(Modifiers.INLINE))
+		if (this.method.hasModifier(Modifiers.INLINE) && !this.method.hasModifier(Modifiers.INTRINSIC))
 		{
+			// record the code so it can be inlined at call sites
 			this.intrinsicData = new InlineIntrinsicData((IMethod) this.method);
+			this.codeVisitor = new InlineCodeVisitor(this.intrinsicData);
 			return true;
 		}
 		return false;
@@ -143,84 +144,85 @@ public final class ExternalMethodVisitor implements MethodVisitor
 	@Override
 	public void visitInsn(int opcode)
 	{
-		this.intrinsicData.addInstruction(new Instruction(opcode));
+		this.codeVisitor.visitInsn(opcode);
 	}
 
 	@Override
 	public void visitIntInsn(int opcode, int operand)
 	{
-		this.intrinsicData.addInstruction(new IntInstruction(opcode, operand));
+		this.codeVisitor.visitIntInsn(opcode, operand);
 	}
 
 	@Override
 	public void visitVarInsn(int opcode, int var)
 	{
-		this.intrinsicData.addInstruction(new VarInstruction(opcode, var));
+		this.codeVisitor.visitVarInsn(opcode, var);
 	}
 
 	@Override
 	public void visitTypeInsn(int opcode, String type)
 	{
-		this.intrinsicData.addInstruction(new TypeInstruction(opcode, type));
+		this.codeVisitor.visitTypeInsn(opcode, type);
 	}
 
 	@Override
 	public void visitFieldInsn(int opcode, String owner, String name, String desc)
 	{
-		this.intrinsicData.addInstruction(new FieldInstruction(opcode, owner, name, desc));
+		this.codeVisitor.visitFieldInsn(opcode, owner, name, desc);
 	}
 
 	@Override
 	public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf)
 	{
-		this.intrinsicData.addInstruction(new MethodInstruction(opcode, owner, name, desc, itf));
+		this.codeVisitor.visitMethodInsn(opcode, owner, name, desc, itf);
 	}
 
 	@Override
 	public void visitInvokeDynamicInsn(String name, String desc, Handle bsm, Object... bsmArgs)
 	{
-		this.intrinsicData.addInstruction(new InvokeDynamicInstruction(name, desc, bsm, bsmArgs));
+		this.codeVisitor.visitInvokeDynamicInsn(name, desc, bsm, bsmArgs);
 	}
 
 	@Override
 	public void visitJumpInsn(int opcode, Label label)
 	{
-		this.unsupportedInline = true;
+		this.codeVisitor.visitJumpInsn(opcode, label);
 	}
 
 	@Override
 	public void visitLabel(Label label)
 	{
+		this.codeVisitor.visitLabel(label);
 	}
 
 	@Override
 	public void visitLdcInsn(Object cst)
 	{
-		this.intrinsicData.addInstruction(new LDCInstruction(cst));
+		this.codeVisitor.visitLdcInsn(cst);
 	}
 
 	@Override
 	public void visitIincInsn(int var, int increment)
 	{
-		this.intrinsicData.addInstruction(new IIncInstruction(var, increment));
+		this.codeVisitor.visitIincInsn(var, increment);
 	}
 
 	@Override
 	public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels)
 	{
-		this.unsupportedInline = true;
+		this.codeVisitor.visitTableSwitchInsn(min, max, dflt, labels);
 	}
 
 	@Override
 	public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels)
 	{
-		this.unsupportedInline = true;
+		this.codeVisitor.visitLookupSwitchInsn(dflt, keys, labels);
 	}
 
 	@Override
 	public void visitMultiANewArrayInsn(String desc, int dims)
 	{
-		this.intrinsicData.addInstruction(new MultiArrayInstruction(desc, dims));
+		this.codeVisitor.visitMultiANewArrayInsn(desc, dims);
 	}
 
 	@Override
@@ -232,7 +234,7 @@ public final class ExternalMethodVisitor implements MethodVisitor
 	@Override
 	public void visitTryCatchBlock(Label start, Label end, Label handler, String type)
 	{
-		this.unsupportedInline = true;
+		this.codeVisitor.visitTryCatchBlock(start, end, handler, type);
 	}
 
 	@Override
@@ -257,13 +259,12 @@ public final class ExternalMethodVisitor implements MethodVisitor
 	public void visitMaxs(int maxStack, int maxLocals)
 	{
 		this.localNames = new String[maxLocals];
-		this.intrinsicData.setMaxLocals(maxLocals);
 	}
 
 	@Override
 	public void visitEnd()
 	{
-		if (this.intrinsicData != null && !this.unsupportedInline)
+		if (this.intrinsicData != null)
 		{
 			this.method.setIntrinsicData(this.intrinsicData);
 		}
@@ -0,0 +1,193 @@
+package dyvilx.tools.compiler.backend.method;
+
+import dyvilx.tools.asm.*;
+import dyvilx.tools.compiler.ast.bytecode.*;
+
+/**
+ * A method visitor that records the code of an {@code inline} method or a lambda body as a list of instructions.
+ * Frames, line numbers and local variable information are not recorded, because they are recomputed or replaced at
+ * the call site.
+ */
+public class InlineCodeVisitor implements MethodVisitor
+{
+	private final InstructionList instructions;
+
+	public InlineCodeVisitor(InstructionList instructions)
+	{
+		this.instructions = instructions;
+	}
+
+	@Override
+	public void visitParameter(String name, int access)
+	{
+	}
+
+	@Override
+	public AnnotationVisitor visitAnnotationDefault()
+	{
+		return null;
+	}
+
+	@Override
+	public AnnotationVisitor visitAnnotation(String desc, boolean visible)
+	{
+		return null;
+	}
+
+	@Override
+	public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible)
+	{
+		return null;
+	}
+
+	@Override
+	public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible)
+	{
+		return null;
+	}
+
+	@Override
+	public void visitAttribute(Attribute attr)
+	{
+	}
+
+	@Override
+	public boolean visitCode()
+	{
+		return true;
+	}
+
+	@Override
+	public void visitFrame(int type, int nLocal, Object[] local, int nStack, Object[] stack)
+	{
+	}
+
+	@Override
+	public void visitInsn(int opcode)
+	{
+		this.instructions.addInstruction(new Instruction(opcode));
+	}
+
+	@Override
+	public void visitIntInsn(int opcode, int operand)
+	{
+		this.instructions.addInstruction(new IntInstruction(opcode, operand));
+	}
+
+	@Override
+	public void visitVarInsn(int opcode, int var)
+	{
+		this.instructions.addInstruction(new VarInstruction(opcode, var));
+	}
+
+	@Override
+	public void visitTypeInsn(int opcode, String type)
+	{
+		this.instructions.addInstruction(new TypeInstruction(opcode, type));
+	}
+
+	@Override
+	public void visitFieldInsn(int opcode, String owner, String name, String desc)
+	{
+		this.instructions.addInstruction(new FieldInstruction(opcode, owner, name, desc));
+	}
+
+	@Override
+	public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf)
+	{
+		this.instructions.addInstruction(new MethodInstruction(opcode, owner, name, desc, itf));
+	}
+
+	@Override
+	public void visitInvokeDynamicInsn(String name, String desc, Handle bsm, Object... bsmArgs)
+	{
+		this.instructions.addInstruction(new InvokeDynamicInstruction(name, desc, bsm, bsmArgs));
+	}
+
+	@Override
+	public void visitJumpInsn(int opcode, Label label)
+	{
+		this.instructions.addInstruction(new JumpInstruction(opcode, label));
+	}
+
+	@Override
+	public void visitLabel(Label label)
+	{
+		this.instructions.addInstruction(new LabelInstruction(label));
+	}
+
+	@Override
+	public void visitLdcInsn(Object cst)
+	{
+		this.instructions.addInstruction(new LDCInstruction(cst));
+	}
+
+	@Override
+	public void visitIincInsn(int var, int increment)
+	{
+		this.instructions.addInstruction(new IIncInstruction(var, increment));
+	}
+
+	@Override
+	public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels)
+	{
+		this.instructions.addInstruction(new TableSwitchInstruction(min, max, dflt, labels));
+	}
+
+	@Override
+	public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels)
+	{
+		this.instructions.addInstruction(new LookupSwitchInstruction(dflt, keys, labels));
+	}
+
+	@Override
+	public void visitMultiANewArrayInsn(String desc, int dims)
+	{
+		this.instructions.addInstruction(new MultiArrayInstruction(desc, dims));
+	}
+
+	@Override
+	public AnnotationVisitor visitInsnAnnotation(int typeRef, TypePath typePath, String desc, boolean visible)
+	{
+		return null;
+	}
+
+	@Override
+	public void visitTryCatchBlock(Label start, Label end, Label handler, String type)
+	{
+		this.instructions.addInstruction(new TryCatchInstruction(start, end, handler, type));
+	}
+
+	@Override
+	public AnnotationVisitor visitTryCatchAnnotation(int typeRef, TypePath typePath, String desc, boolean visible)
+	{
+		return null;
+	}
+
+	@Override
+	public void visitLocalVariable(String name, String desc, String signature, Label start, Label end, int index)
+	{
+	}
+
+	@Override
+	public AnnotationVisitor visitLocalVariableAnnotation(int typeRef, TypePath typePath, Label[] start, Label[] end,
+		                                                     int[] index, String desc, boolean visible)
+	{
+		return null;
+	}
+
+	@Override
+	public void visitLineNumber(int line, Label start)
+	{
+	}
+
+	@Override
+	public void visitMaxs(int maxStack, int maxLocals)
+	{
+	}
+
+	@Override
+	public void visitEnd()
+	{
+	}
+}
@@ -3,6 +3,7 @@ package dyvilx.tools.compiler.backend.method;
 import dyvil.reflect.Opcodes;
 import dyvilx.tools.asm.*;
 import dyvilx.tools.compiler.ast.type.IType;
+import dyvilx.tools.compiler.backend.classes.ClassWriter;
 import dyvilx.tools.compiler.backend.exception.BytecodeException;
 
 import java.util.function.Consumer;
@@ -15,6 +16,8 @@ public interface MethodWriter extends AnnotatableVisitor, TypeAnnotatableVisitor
 
 	boolean hasReturn();
 
+	ClassWriter getClassWriter();
+
 	// Annotations
 
 	@Override
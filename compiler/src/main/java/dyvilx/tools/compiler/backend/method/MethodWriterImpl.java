@@ -53,6 +53,12 @@ public final class MethodWriterImpl implements MethodWriter
 		return this.hasReturn;
 	}
 
+	@Override
+	public ClassWriter getClassWriter()
+	{
+		return this.cw;
+	}
+
 	@Override
 	public boolean visitCode()
 	{
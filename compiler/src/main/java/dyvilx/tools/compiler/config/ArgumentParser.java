@@ -123,7 +123,7 @@ public final class ArgumentParser
 
 	private static void loadConfigFile(String source, DyvilCompiler compiler)
 	{
-		final File file = new File(source);
+		final File file = compiler.resolveFile(source);
 		if (!file.exists())
 		{
 			compiler.error(I18n.get("config.not_found", source));
@@ -25,6 +25,10 @@ public class CompilerConfig
 	public static final int OPTIMIZE_CONSTANT_FOLDING  = 5;
 	public static final int DEFAULT_MAX_CONSTANT_DEPTH = 10;
 
+	public static final int DEFAULT_JOBS = 1;
+
+	public static final int DEFAULT_MAX_INLINE_SIZE = 64;
+
 	// =============== Fields ===============
 
 	private final DyvilCompiler compiler;
@@ -37,6 +41,7 @@ public class CompilerConfig
 	private boolean     ansiColors;
 	private boolean deprecatedWarnings = true;
 	private MarkerStyle markerStyle = MarkerStyle.DYVIL;
+	private File        profileFile;
 
 	// - - - - - - - - Sources - - - - - - - -
 
@@ -55,6 +60,16 @@ public class CompilerConfig
 
 	private int maxConstantDepth = DEFAULT_MAX_CONSTANT_DEPTH;
 
+	private int jobs = DEFAULT_JOBS;
+
+	private boolean incremental;
+
+	private boolean precompileLambdas;
+
+	private boolean inlineMethods;
+
+	private int maxInlineSize = DEFAULT_MAX_INLINE_SIZE;
+
 	// - - - - - - - - Output - - - - - - - -
 
 	private File outputDir;
@@ -112,6 +127,20 @@ public class CompilerConfig
 		this.markerStyle = markerStyle;
 	}
 
+	/**
+	 * @return the file the {@link dyvilx.tools.compiler.phase.Profiler} writes to, or {@code null} if profiling is
+	 * disabled
+	 */
+	public File getProfileFile()
+	{
+		return this.profileFile;
+	}
+
+	public void setProfileFile(File profileFile)
+	{
+		this.profileFile = profileFile;
+	}
+
 	// - - - - - - - - Sources - - - - - - - -
 
 	public List<File> getSourceDirs()
@@ -177,7 +206,7 @@ public class CompilerConfig
 
 	public void loadLibrary(String file)
 	{
-		final Library load = Library.load(new File(file));
+		final Library load = this.compiler.createLibrary(this.compiler.resolveFile(file));
 		if (load != null)
 		{
 			this.libraries.add(load);
@@ -210,6 +239,81 @@ public class CompilerConfig
 		this.maxConstantDepth = maxConstantDepth;
 	}
 
+	/**
+	 * @return the number of worker threads used by phases that can process compilation units in parallel. A value of
+	 * {@code 1} means that all phases run sequentially on the calling thread.
+	 */
+	public int getJobs()
+	{
+		return this.jobs;
+	}
+
+	public void setJobs(int jobs)
+	{
+		this.jobs = jobs;
+	}
+
+	public boolean isParallel()
+	{
+		return this.jobs > 1;
+	}
+
+	/**
+	 * @return {@code true} if only changed units and units affected by API changes should be compiled, using the
+	 * {@link dyvilx.tools.compiler.sources.IncrementalCache} in the output directory
+	 */
+	public boolean isIncremental()
+	{
+		return this.incremental;
+	}
+
+	public void setIncremental(boolean incremental)
+	{
+		this.incremental = incremental;
+	}
+
+	/**
+	 * @return {@code true} if the classes that implement lambda expressions should be generated at compile time and
+	 * written as class files, instead of being generated by the {@code dyvil.runtime.LambdaMetafactory} when a lambda
+	 * expression is first evaluated
+	 */
+	public boolean precompileLambdas()
+	{
+		return this.precompileLambdas;
+	}
+
+	public void setPrecompileLambdas(boolean precompileLambdas)
+	{
+		this.precompileLambdas = precompileLambdas;
+	}
+
+	/**
+	 * @return {@code true} if calls to methods declared {@code inline} should be replaced with a copy of the method's
+	 * bytecode, as long as the method is not larger than {@link #getMaxInlineSize()}
+	 */
+	public boolean inlineMethods()
+	{
+		return this.inlineMethods;
+	}
+
+	public void setInlineMethods(boolean inlineMethods)
+	{
+		this.inlineMethods = inlineMethods;
+	}
+
+	/**
+	 * @return the maximum number of bytecode instructions of an {@code inline} method that is inlined at call sites
+	 */
+	public int getMaxInlineSize()
+	{
+		return this.maxInlineSize;
+	}
+
+	public void setMaxInlineSize(int maxInlineSize)
+	{
+		this.maxInlineSize = maxInlineSize;
+	}
+
 	// - - - - - - - - Output - - - - - - - -
 
 	public File getOutputDir()
@@ -229,12 +333,23 @@ public class CompilerConfig
 		options.addOption(null, "no-deprecated", false, "disables warnings for deprecated symbols");
 		options.addOption("D", "debug", false, "enables debug output");
 		options.addOption("A", "ansi", false, "enables colored output using ANSI color codes");
+		options.addOption(null, "profile", true,
+		                  "records the time, allocations and markers of each phase per compilation unit and writes them as JSON to the given file");
 		options.addOption("M", "marker-style", true,
 		                  "sets the output style of diagnostic markers. supported values: dyvil, gcc, machine (case-insensitive)");
 		options.addOption("C", "max-constant-depth", true,
 		                  "sets the maximum constant depth for constant expression resolution. can be any non-negative integer");
 		options.addOption("F", "max-constant-folding", true,
 		                  "sets the maximum constant folding depth. can be any non-negative integer, 0 = no constant folding");
+		options.addOption(null, "incremental", false,
+		                  "only compiles changed source files and source files affected by their API changes");
+		options.addOption(null, "precompile-lambdas", false,
+		                  "generates the classes that implement lambda expressions at compile time instead of at runtime");
+		options.addOption(null, "inline", false, "inlines the bytecode of methods declared 'inline' at their call sites");
+		options.addOption(null, "max-inline-size", true,
+		                  "sets the maximum number of bytecode instructions of inlined methods. can be any non-negative integer");
+		options.addOption("j", "jobs", true,
+		                  "sets the number of threads used to process compilation units in parallel. can be any positive integer, 0 = number of available processors");
 
 		// dump-dir is used by REPL
 		// g/gensrc-dir are used by GenSrc
@@ -288,6 +403,14 @@ public class CompilerConfig
 
 		this.setAnsiColors(cmd.hasOption("ansi"));
 		this.setDeprecatedWarnings(!cmd.hasOption("no-deprecated"));
+		this.setIncremental(cmd.hasOption("incremental"));
+		this.setPrecompileLambdas(cmd.hasOption("precompile-lambdas"));
+		this.setInlineMethods(cmd.hasOption("inline"));
+
+		if (cmd.hasOption("profile"))
+		{
+			this.setProfileFile(this.compiler.resolveFile(cmd.getOptionValue("profile")));
+		}
 
 		if (cmd.hasOption("max-constant-folding"))
 		{
@@ -316,6 +439,33 @@ public class CompilerConfig
 			}
 		}
 
+		if (cmd.hasOption("max-inline-size"))
+		{
+			final String size = cmd.getOptionValue("max-inline-size");
+			try
+			{
+				this.setMaxInlineSize(Integer.parseUnsignedInt(size));
+			}
+			catch (Exception ignored)
+			{
+				this.compiler.warn(I18n.get("option.max-inline-size.invalid", size));
+			}
+		}
+
+		if (cmd.hasOption("jobs"))
+		{
+			final String jobs = cmd.getOptionValue("jobs");
+			try
+			{
+				final int value = Integer.parseUnsignedInt(jobs);
+				this.setJobs(value == 0 ? Runtime.getRuntime().availableProcessors() : value);
+			}
+			catch (Exception ignored)
+			{
+				this.compiler.warn(I18n.get("option.jobs.invalid", jobs));
+			}
+		}
+
 		if (cmd.hasOption("marker-style"))
 		{
 			final String optionValue = cmd.getOptionValue("marker-style");
@@ -334,7 +484,7 @@ public class CompilerConfig
 		{
 			for (final String sourceDir : cmd.getOptionValues("source-dirs"))
 			{
-				this.sourceDirs.add(new File(sourceDir));
+				this.sourceDirs.add(this.compiler.resolveFile(sourceDir));
 			}
 		}
 
@@ -364,7 +514,7 @@ public class CompilerConfig
 
 		if (cmd.hasOption("output-dir"))
 		{
-			this.setOutputDir(new File(cmd.getOptionValue("output-dir")));
+			this.setOutputDir(this.compiler.resolveFile(cmd.getOptionValue("output-dir")));
 		}
 	}
 }
@@ -2,17 +2,17 @@ package dyvilx.tools.compiler.config;
 
 import dyvilx.tools.parsing.lexer.CharacterTypes;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class Formatting
 {
 	private static ResourceBundle BUNDLE = ResourceBundle.getBundle("dyvilx.tools.compiler.config.Formatting");
 
-	private static Map<String, Boolean> booleanMap = new HashMap<>();
-	private static Map<String, Integer> integerMap = new HashMap<>();
+	private static Map<String, Boolean> booleanMap = new ConcurrentHashMap<>();
+	private static Map<String, Integer> integerMap = new ConcurrentHashMap<>();
 
 	private Formatting()
 	{
@@ -0,0 +1,393 @@
+package dyvilx.tools.compiler.daemon;
+
+import dyvilx.tools.compiler.DyvilCompiler;
+import dyvilx.tools.compiler.ast.structure.Package;
+import dyvilx.tools.compiler.lang.I18n;
+import dyvilx.tools.compiler.library.Library;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * A resident compiler process that accepts compile requests on a local socket. Between requests, the daemon keeps the
+ * {@linkplain Package#rootPackage root package} with all classes and headers loaded from libraries, as well as the
+ * libraries themselves, so that repeated builds skip JVM startup and library warm-up.
+ * <p>
+ * Libraries are reused as long as their files do not change on disk. If any library changed, or a request uses a
+ * different classpath, the root package is discarded and rebuilt from scratch.
+ * <p>
+ * Requests are processed one at a time, because the compiler uses global state. The protocol is implemented by the
+ * {@link DaemonClient}.
+ * <p>
+ * The daemon only listens on the loopback interface. When it starts, it writes its port and a random access token to
+ * the {@linkplain #getDefaultDaemonFile() daemon file}, which only the current user can read, and rejects requests
+ * that do not start with that token. Relative paths in the compiler arguments are resolved against the working
+ * directory sent by the client.
+ */
+public class CompilerDaemon
+{
+	// =============== Constants ===============
+
+	public static final int DEFAULT_PORT = 7412;
+
+	private static final int TOKEN_BYTES   = 32;
+	private static final int MAX_ARGUMENTS = 1 << 16;
+
+	// --------------- Frame Types ---------------
+
+	static final byte FRAME_EXIT   = 0;
+	static final byte FRAME_OUTPUT = 1;
+	static final byte FRAME_ERROR  = 2;
+
+	// =============== Classes ===============
+
+	private static final class CachedLibrary
+	{
+		final Library library;
+		final long    fingerprint;
+
+		CachedLibrary(Library library, long fingerprint)
+		{
+			this.library = library;
+			this.fingerprint = fingerprint;
+		}
+	}
+
+	private static final class FrameOutputStream extends OutputStream
+	{
+		private final DataOutputStream out;
+		private final byte             type;
+
+		FrameOutputStream(DataOutputStream out, byte type)
+		{
+			this.out = out;
+			this.type = type;
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			this.write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			// both frame streams share the socket stream
+			synchronized (this.out)
+			{
+				this.out.writeByte(this.type);
+				this.out.writeInt(len);
+				this.out.write(b, off, len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException
+		{
+			this.out.flush();
+		}
+	}
+
+	// =============== Fields ===============
+
+	private final int         port;
+	private final File        daemonFile;
+	private final PrintStream log;
+
+	private byte[] token;
+
+	private final Map<File, CachedLibrary> libraries = new HashMap<>();
+
+	/**
+	 * The libraries the current root package was loaded from, in classpath order.
+	 */
+	private List<Library> rootLibraries;
+
+	// =============== Constructors ===============
+
+	public CompilerDaemon(int port, File daemonFile, PrintStream log)
+	{
+		this.port = port;
+		this.daemonFile = daemonFile;
+		this.log = log;
+	}
+
+	// =============== Properties ===============
+
+	/**
+	 * @return the file that a daemon started without an explicit daemon file writes its port and access token to
+	 */
+	public static File getDefaultDaemonFile()
+	{
+		return new File(System.getProperty("user.home"), ".dyvil/compiler-daemon");
+	}
+
+	// =============== Methods ===============
+
+	// --------------- Server ---------------
+
+	public void run() throws IOException
+	{
+		boolean published = false;
+		try (ServerSocket server = new ServerSocket(this.port, 0, InetAddress.getLoopbackAddress()))
+		{
+			final String token = createToken();
+			this.token = token.getBytes(StandardCharsets.UTF_8);
+			writeDaemonFile(this.daemonFile, server.getLocalPort(), token);
+			published = true;
+
+			this.log.println(I18n.get("daemon.started", server.getLocalPort(), this.daemonFile));
+
+			while (!server.isClosed())
+			{
+				try (Socket socket = server.accept())
+				{
+					this.handle(socket);
+				}
+				catch (IOException ex)
+				{
+					this.log.println(I18n.get("daemon.request.failed", ex.getMessage()));
+				}
+			}
+		}
+		finally
+		{
+			if (published)
+			{
+				Files.deleteIfExists(this.daemonFile.toPath());
+			}
+
+			for (CachedLibrary cached : this.libraries.values())
+			{
+				cached.library.unloadLibrary();
+			}
+		}
+	}
+
+	private void handle(Socket socket) throws IOException
+	{
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+		final FrameOutputStream output = new FrameOutputStream(out, FRAME_OUTPUT);
+		final FrameOutputStream error = new FrameOutputStream(out, FRAME_ERROR);
+
+		// the whole request is read before it is rejected, because closing a socket with unread input resets the
+		// connection before the client can read the response
+		final byte[] token = in.readUTF().getBytes(StandardCharsets.UTF_8);
+		final File workingDirectory = new File(in.readUTF());
+		final int argCount = in.readInt();
+		if (argCount < 0 || argCount > MAX_ARGUMENTS)
+		{
+			throw new IOException("invalid argument count " + argCount);
+		}
+
+		final String[] args = new String[argCount];
+		for (int i = 0; i < argCount; i++)
+		{
+			args[i] = in.readUTF();
+		}
+
+		if (!MessageDigest.isEqual(token, this.token))
+		{
+			this.log.println(I18n.get("daemon.unauthorized"));
+			reject(out, error, I18n.get("daemon.unauthorized"));
+			return;
+		}
+
+		if (!workingDirectory.isAbsolute() || !workingDirectory.isDirectory())
+		{
+			reject(out, error, I18n.get("daemon.working_directory.invalid", workingDirectory));
+			return;
+		}
+
+		final DaemonCompiler compiler = new DaemonCompiler(this, workingDirectory);
+		final int exitCode = compiler.run(null, output, error, args);
+
+		writeExit(out, exitCode);
+	}
+
+	private static void reject(DataOutputStream out, OutputStream error, String message) throws IOException
+	{
+		error.write((message + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+		writeExit(out, 1);
+	}
+
+	private static void writeExit(DataOutputStream out, int exitCode) throws IOException
+	{
+		synchronized (out)
+		{
+			out.writeByte(FRAME_EXIT);
+			out.writeInt(exitCode);
+			out.flush();
+		}
+	}
+
+	// --------------- Daemon File ---------------
+
+	private static String createToken()
+	{
+		final byte[] bytes = new byte[TOKEN_BYTES];
+		new SecureRandom().nextBytes(bytes);
+
+		final StringBuilder builder = new StringBuilder(TOKEN_BYTES * 2);
+		for (byte b : bytes)
+		{
+			builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Writes the port and access token to the given file. The file is created with permissions for the current user
+	 * only, and replaced atomically, so that other users can never read the token.
+	 */
+	static void writeDaemonFile(File file, int port, String token) throws IOException
+	{
+		final Path path = file.getAbsoluteFile().toPath();
+		final Path directory = path.getParent();
+		Files.createDirectories(directory);
+
+		final String prefix = path.getFileName().toString();
+		final Path temp;
+		if (directory.getFileSystem().supportedFileAttributeViews().contains("posix"))
+		{
+			final Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-------");
+			temp = Files.createTempFile(directory, prefix, ".tmp", PosixFilePermissions.asFileAttribute(permissions));
+		}
+		else
+		{
+			temp = Files.createTempFile(directory, prefix, ".tmp");
+			final File tempFile = temp.toFile();
+			tempFile.setReadable(false, false);
+			tempFile.setWritable(false, false);
+			tempFile.setReadable(true, true);
+			tempFile.setWritable(true, true);
+		}
+
+		try
+		{
+			Files.write(temp, (port + " " + token).getBytes(StandardCharsets.UTF_8));
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally
+		{
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	// --------------- Library Cache ---------------
+
+	/**
+	 * Returns the library for the given classpath entry, reusing the library of a previous request if the file did not
+	 * change since then.
+	 */
+	Library getLibrary(File file)
+	{
+		if (file == null || !file.exists())
+		{
+			return null;
+		}
+
+		final File key = file.getAbsoluteFile();
+		final long fingerprint = fingerprint(key);
+		final CachedLibrary cached = this.libraries.get(key);
+
+		if (cached != null)
+		{
+			if (cached.fingerprint == fingerprint)
+			{
+				return cached.library;
+			}
+
+			cached.library.unloadLibrary();
+			this.libraries.remove(key);
+		}
+
+		final Library library = Library.load(key);
+		if (library != null)
+		{
+			this.libraries.put(key, new CachedLibrary(library, fingerprint));
+		}
+		return library;
+	}
+
+	/**
+	 * Initializes the root package for the given compiler. The root package of the previous request is reused if it was
+	 * loaded from exactly the same library instances, which implies that none of the library files changed.
+	 */
+	void initRootPackage(DaemonCompiler compiler)
+	{
+		final List<Library> libraries = compiler.config.libraries;
+
+		if (Package.rootPackage != null && this.rootLibraries != null && sameLibraries(this.rootLibraries, libraries))
+		{
+			Package.rootPackage.reset(compiler);
+			return;
+		}
+
+		Package.initRoot(compiler);
+		this.rootLibraries = new ArrayList<>(libraries);
+	}
+
+	private static boolean sameLibraries(List<Library> a, List<Library> b)
+	{
+		if (a.size() != b.size())
+		{
+			return false;
+		}
+		for (int i = 0, size = a.size(); i < size; i++)
+		{
+			if (a.get(i) != b.get(i))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Computes a value that changes whenever the given jar file or the contents of the given directory change.
+	 */
+	private static long fingerprint(File file)
+	{
+		if (!file.isDirectory())
+		{
+			return file.lastModified() * 31 + file.length();
+		}
+
+		try (Stream<Path> paths = Files.walk(file.toPath()))
+		{
+			return paths.mapToLong(path -> {
+				final File child = path.toFile();
+				return (child.lastModified() * 31 + child.length()) * 31 + path.hashCode();
+			}).sum();
+		}
+		catch (IOException | UncheckedIOException ex)
+		{
+			return System.nanoTime(); // never matches a previous fingerprint
+		}
+	}
+
+	// =============== Static Methods ===============
+
+	public static void main(String[] args) throws IOException
+	{
+		final int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		final File daemonFile = args.length > 1 ? new File(args[1]) : getDefaultDaemonFile();
+		new CompilerDaemon(port, daemonFile, System.out).run();
+	}
+}
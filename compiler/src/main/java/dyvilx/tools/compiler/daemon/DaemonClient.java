@@ -0,0 +1,130 @@
+package dyvilx.tools.compiler.daemon;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Sends a compile request to a running {@link CompilerDaemon} and forwards its output.
+ */
+public final class DaemonClient
+{
+	private DaemonClient()
+	{
+		// no instances
+	}
+
+	/**
+	 * Runs the compiler with the given arguments in the daemon that wrote the given daemon file.
+	 *
+	 * @param daemonFile
+	 * 	the file containing the port and access token of the daemon
+	 * @param out
+	 * 	the stream to forward the compiler output to
+	 * @param err
+	 * 	the stream to forward the compiler error output to
+	 * @param args
+	 * 	the compiler arguments
+	 *
+	 * @return the exit code of the compiler
+	 *
+	 * @throws IOException
+	 * 	if the daemon file cannot be read, the daemon is not running or the connection failed
+	 */
+	public static int compile(File daemonFile, OutputStream out, OutputStream err, String... args) throws IOException
+	{
+		final String contents = new String(Files.readAllBytes(daemonFile.toPath()), StandardCharsets.UTF_8).trim();
+		final int separator = contents.indexOf(' ');
+		if (separator < 0)
+		{
+			throw new IOException("Invalid daemon file '" + daemonFile + "'");
+		}
+
+		final int port;
+		try
+		{
+			port = Integer.parseInt(contents.substring(0, separator));
+		}
+		catch (NumberFormatException ex)
+		{
+			throw new IOException("Invalid daemon file '" + daemonFile + "'", ex);
+		}
+		return compile(port, contents.substring(separator + 1), out, err, args);
+	}
+
+	/**
+	 * Runs the compiler with the given arguments in the daemon listening on the given port.
+	 *
+	 * @param port
+	 * 	the port of the daemon
+	 * @param token
+	 * 	the access token of the daemon
+	 * @param out
+	 * 	the stream to forward the compiler output to
+	 * @param err
+	 * 	the stream to forward the compiler error output to
+	 * @param args
+	 * 	the compiler arguments
+	 *
+	 * @return the exit code of the compiler
+	 *
+	 * @throws IOException
+	 * 	if the daemon is not running or the connection failed
+	 */
+	public static int compile(int port, String token, OutputStream out, OutputStream err, String... args)
+		throws IOException
+	{
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port))
+		{
+			final DataOutputStream request = new DataOutputStream(
+				new BufferedOutputStream(socket.getOutputStream()));
+			request.writeUTF(token);
+			request.writeUTF(new File("").getAbsolutePath());
+			request.writeInt(args.length);
+			for (String arg : args)
+			{
+				request.writeUTF(arg);
+			}
+			request.flush();
+
+			final DataInputStream response = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			while (true)
+			{
+				final byte type = response.readByte();
+				if (type == CompilerDaemon.FRAME_EXIT)
+				{
+					out.flush();
+					err.flush();
+					return response.readInt();
+				}
+
+				final byte[] bytes = new byte[response.readInt()];
+				response.readFully(bytes);
+				(type == CompilerDaemon.FRAME_ERROR ? err : out).write(bytes);
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		// DaemonClient [--daemon-file <file>] [compiler arguments...]
+		if (args.length > 0 && "--daemon-file".equals(args[0]))
+		{
+			if (args.length < 2)
+			{
+				System.err.println("Usage: DaemonClient [--daemon-file <file>] [compiler arguments...]");
+				System.exit(1);
+				return;
+			}
+
+			final String[] compilerArgs = new String[args.length - 2];
+			System.arraycopy(args, 2, compilerArgs, 0, compilerArgs.length);
+			System.exit(compile(new File(args[1]), System.out, System.err, compilerArgs));
+			return;
+		}
+
+		System.exit(compile(CompilerDaemon.getDefaultDaemonFile(), System.out, System.err, args));
+	}
+}
@@ -0,0 +1,48 @@
+package dyvilx.tools.compiler.daemon;
+
+import dyvilx.tools.compiler.DyvilCompiler;
+import dyvilx.tools.compiler.library.Library;
+
+import java.io.File;
+
+/**
+ * A compiler that runs a single request of a {@link CompilerDaemon}, and obtains its libraries and root package from
+ * the daemon instead of loading them from scratch. Relative paths in the arguments are resolved against the working
+ * directory of the client, because the working directory of the daemon process cannot be changed.
+ */
+public class DaemonCompiler extends DyvilCompiler
+{
+	private final CompilerDaemon daemon;
+	private final File           workingDirectory;
+
+	public DaemonCompiler(CompilerDaemon daemon, File workingDirectory)
+	{
+		this.daemon = daemon;
+		this.workingDirectory = workingDirectory;
+	}
+
+	@Override
+	public File resolveFile(String path)
+	{
+		final File file = new File(path);
+		return file.isAbsolute() ? file : new File(this.workingDirectory, path);
+	}
+
+	@Override
+	public Library createLibrary(File file)
+	{
+		return this.daemon.getLibrary(file);
+	}
+
+	@Override
+	protected void initRootPackage()
+	{
+		this.daemon.initRootPackage(this);
+	}
+
+	@Override
+	protected void unloadLibraries()
+	{
+		// the libraries stay loaded for the next request
+	}
+}
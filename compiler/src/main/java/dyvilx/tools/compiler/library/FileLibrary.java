@@ -3,10 +3,34 @@ package dyvilx.tools.compiler.library;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
+/**
+ * A library that is a directory on disk. Its index is built when the library is loaded, but the directory may still
+ * change afterwards, e.g. if it is the output directory of an incremental build. Creating, deleting or renaming a file
+ * updates the modification time of its parent directory, so when a lookup misses the index, the directory is indexed
+ * again if it was modified since it was last indexed.
+ */
 public class FileLibrary extends Library
 {
+	// =============== Constants ===============
+
+	/**
+	 * The coarsest resolution of directory modification times of common file systems (FAT), in milliseconds.
+	 * Directories modified less than this long before they were indexed are considered modified afterwards.
+	 */
+	private static final long MODIFICATION_TIME_RESOLUTION = 2000L;
+
+	// =============== Fields ===============
+
+	// the time each directory was last indexed, or indexTime if it was only indexed when the library was loaded
+	private final Map<String, Long> directoryIndexTimes = new HashMap<>(); // guarded by this
+	private       long              indexTime;
+
 	// =============== Constructors ===============
 
 	public FileLibrary(File root)
@@ -19,13 +43,59 @@ public class FileLibrary extends Library
 	// --------------- Loading and Unloading ---------------
 
 	@Override
-	public void loadLibrary()
+	public synchronized void loadLibrary()
 	{
+		this.indexTime = System.currentTimeMillis();
+		this.directoryIndexTimes.clear();
+		this.index = LibraryIndex.ofDirectory(this.file);
 	}
 
 	@Override
-	public void unloadLibrary()
+	public synchronized void unloadLibrary()
+	{
+		this.index = null;
+	}
+
+	// --------------- Index ---------------
+
+	private static String getParent(String path)
+	{
+		final int slash = path.lastIndexOf('/');
+		return slash < 0 ? "" : path.substring(0, slash);
+	}
+
+	/**
+	 * Indexes the given directory again if it was modified since it was last indexed.
+	 *
+	 * @return {@code true} if the directory was indexed again
+	 */
+	private boolean refresh(String directory)
+	{
+		final File file = this.getFile(directory);
+		final long lastModified = file.lastModified(); // 0 if the directory does not exist
+		if (lastModified == 0L)
+		{
+			return false;
+		}
+
+		final long indexTime = this.directoryIndexTimes.getOrDefault(directory, this.indexTime);
+		if (lastModified < indexTime - MODIFICATION_TIME_RESOLUTION)
+		{
+			return false;
+		}
+
+		this.directoryIndexTimes.put(directory, System.currentTimeMillis());
+		this.index.addDirectoryContents(file, directory);
+		return true;
+	}
+
+	private synchronized boolean containsFile(String fileName)
 	{
+		if (this.index == null || this.index.containsFile(fileName))
+		{
+			return true;
+		}
+		return this.refresh(getParent(fileName)) && this.index.containsFile(fileName);
 	}
 
 	// --------------- Access ---------------
@@ -38,6 +108,11 @@ public class FileLibrary extends Library
 	@Override
 	public InputStream getInputStream(String fileName)
 	{
+		if (!this.containsFile(fileName))
+		{
+			return null;
+		}
+
 		try
 		{
 			return new BufferedInputStream(new FileInputStream(this.getFile(fileName)));
@@ -62,4 +137,53 @@ public class FileLibrary extends Library
 			return Stream.empty();
 		}
 	}
+
+	@Override
+	public synchronized Stream<String> listPackageNames(String directory)
+	{
+		if (this.index == null)
+		{
+			return super.listPackageNames(directory);
+		}
+
+		this.refresh(directory);
+		return copy(this.index.listPackageNames(directory));
+	}
+
+	@Override
+	public synchronized boolean containsPackage(String directory, String name)
+	{
+		if (this.index == null)
+		{
+			return super.containsPackage(directory, name);
+		}
+
+		if (this.index.containsPackage(directory, name))
+		{
+			return true;
+		}
+		return this.refresh(directory) && this.index.containsPackage(directory, name);
+	}
+
+	@Override
+	public synchronized Stream<String> listFileNames(String directory)
+	{
+		if (this.index == null)
+		{
+			return super.listFileNames(directory);
+		}
+
+		this.refresh(directory);
+		return copy(this.index.listFileNames(directory));
+	}
+
+	/**
+	 * Copies the given stream over the index, so that it can be consumed while other threads update the index.
+	 */
+	private static Stream<String> copy(Stream<String> stream)
+	{
+		final List<String> list = new ArrayList<>();
+		stream.forEach(list::add);
+		return list.stream();
+	}
 }
@@ -29,9 +29,17 @@ public final class JarLibrary extends Library
 	@Override
 	public void loadLibrary()
 	{
+		if (this.jarFileSystem != null && this.jarFileSystem.isOpen())
+		{
+			return; // already loaded, e.g. by a previous compilation in the same daemon
+		}
+
 		try
 		{
 			this.jarFileSystem = FileSystems.newFileSystem(this.file.toPath(), null);
+
+			final LibraryIndex index = LibraryIndex.read(this.file);
+			this.index = index != null ? index : LibraryIndex.ofJar(this.file);
 		}
 		catch (Exception ex)
 		{
@@ -48,6 +56,8 @@ public final class JarLibrary extends Library
 			if (this.jarFileSystem != null)
 			{
 				this.jarFileSystem.close();
+				this.jarFileSystem = null;
+				this.index = null;
 			}
 		}
 		catch (IOException ignored)
@@ -60,6 +70,11 @@ public final class JarLibrary extends Library
 	@Override
 	public InputStream getInputStream(String fileName)
 	{
+		if (this.index != null && !this.index.containsFile(fileName))
+		{
+			return null;
+		}
+
 		final Path path = this.jarFileSystem.getPath(fileName);
 		if (!Files.exists(path, EMPTY_LINK_OPTIONS))
 		{
@@ -94,6 +109,11 @@ public final class JarLibrary extends Library
 	@Override
 	public Stream<String> listPackageNames(String directory)
 	{
+		if (this.index != null)
+		{
+			return this.index.listPackageNames(directory);
+		}
+
 		// zip paths somehow retain the trailing / when calling getFileName, so we have to remove it here
 		return super.listPackageNames(directory).map(s -> s.replace("/", ""));
 	}
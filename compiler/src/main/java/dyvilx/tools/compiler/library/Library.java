@@ -39,6 +39,12 @@ public abstract class Library
 
 	protected final File file;
 
+	/**
+	 * The index of the packages and files in this library, built by {@link #loadLibrary()}. If it is {@code null}, all
+	 * lookups fall back to listing the directories of the library.
+	 */
+	protected LibraryIndex index;
+
 	// =============== Constructors ===============
 
 	protected Library(File file)
@@ -92,6 +98,11 @@ public abstract class Library
 		return this.file;
 	}
 
+	public LibraryIndex getIndex()
+	{
+		return this.index;
+	}
+
 	// =============== Methods ===============
 
 	// --------------- Loading and Unloading ---------------
@@ -111,9 +122,27 @@ public abstract class Library
 
 	public Stream<String> listPackageNames(String directory)
 	{
+		if (this.index != null)
+		{
+			return this.index.listPackageNames(directory);
+		}
 		return this.listPackagePaths(directory).map(p -> p.getFileName().toString());
 	}
 
+	public boolean containsPackage(String directory, String name)
+	{
+		if (this.index != null)
+		{
+			return this.index.containsPackage(directory, name);
+		}
+
+		try (final Stream<String> stream = this.listPackageNames(directory))
+		{
+			// use this approach instead of Files.isDirectory to protect against case-insensitive matches
+			return stream.anyMatch(name::equals);
+		}
+	}
+
 	// --------------- File Access ---------------
 
 	public abstract InputStream getInputStream(String fileName);
@@ -127,6 +156,10 @@ public abstract class Library
 
 	public Stream<String> listFileNames(String directory)
 	{
+		if (this.index != null)
+		{
+			return this.index.listFileNames(directory);
+		}
 		return this.listFilePaths(directory).map(p -> p.getFileName().toString());
 	}
 
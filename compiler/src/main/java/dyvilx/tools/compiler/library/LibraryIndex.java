@@ -0,0 +1,280 @@
+package dyvilx.tools.compiler.library;
+
+import java.io.*;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * An in-memory index of the packages and files in a library, which turns package and class lookups into hash lookups
+ * instead of directory listings. Directories are identified by their slash-separated path relative to the library
+ * root, without leading or trailing slashes; the root directory is the empty string.
+ * <p>
+ * The index of a jar file can be persisted next to it (see {@link #getIndexFile(File)}), which allows libraries to
+ * ship a pre-built index. A persisted index is only used while the size and modification time of the jar file match.
+ */
+public final class LibraryIndex
+{
+	// =============== Constants ===============
+
+	public static final String FILE_EXTENSION = ".dyvil-index";
+
+	private static final int FILE_VERSION = 1;
+
+	// =============== Fields ===============
+
+	private final Map<String, Set<String>> packages = new HashMap<>();
+	private final Map<String, Set<String>> files    = new HashMap<>();
+
+	// =============== Static Methods ===============
+
+	public static File getIndexFile(File jarFile)
+	{
+		return new File(jarFile.getPath() + FILE_EXTENSION);
+	}
+
+	private static String normalize(String directory)
+	{
+		int start = 0;
+		int end = directory.length();
+		while (start < end && directory.charAt(start) == '/')
+		{
+			start++;
+		}
+		while (end > start && directory.charAt(end - 1) == '/')
+		{
+			end--;
+		}
+		return directory.substring(start, end);
+	}
+
+	// --------------- Building ---------------
+
+	public static LibraryIndex ofJar(File jarFile) throws IOException
+	{
+		final LibraryIndex index = new LibraryIndex();
+		try (ZipFile zipFile = new ZipFile(jarFile))
+		{
+			for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements(); )
+			{
+				final ZipEntry entry = entries.nextElement();
+				if (entry.isDirectory())
+				{
+					index.addDirectory(entry.getName());
+				}
+				else
+				{
+					index.addFile(entry.getName());
+				}
+			}
+		}
+		return index;
+	}
+
+	public static LibraryIndex ofDirectory(File directory)
+	{
+		final LibraryIndex index = new LibraryIndex();
+		index.addDirectory(directory, "", true);
+		return index;
+	}
+
+	/**
+	 * Adds the files and subdirectories that are directly contained in the given directory, e.g. after new files
+	 * were written to it.
+	 *
+	 * @param directory
+	 * 	the directory on disk
+	 * @param path
+	 * 	the path of the directory relative to the library root
+	 */
+	public void addDirectoryContents(File directory, String path)
+	{
+		path = normalize(path);
+		if (!path.isEmpty())
+		{
+			this.addDirectory(path);
+		}
+		this.addDirectory(directory, path, false);
+	}
+
+	private void addDirectory(File directory, String path, boolean recursive)
+	{
+		final File[] children = directory.listFiles();
+		if (children == null)
+		{
+			return;
+		}
+
+		for (File child : children)
+		{
+			final String childPath = path.isEmpty() ? child.getName() : path + '/' + child.getName();
+			if (child.isDirectory())
+			{
+				this.addDirectory(childPath);
+				if (recursive)
+				{
+					this.addDirectory(child, childPath, true);
+				}
+			}
+			else
+			{
+				this.addFile(childPath);
+			}
+		}
+	}
+
+	public void addDirectory(String path)
+	{
+		path = normalize(path);
+		while (!path.isEmpty())
+		{
+			final int slash = path.lastIndexOf('/');
+			final String parent = slash < 0 ? "" : path.substring(0, slash);
+
+			if (!this.packages.computeIfAbsent(parent, k -> new HashSet<>()).add(path.substring(slash + 1)))
+			{
+				return; // the parent directories were already added
+			}
+			path = parent;
+		}
+	}
+
+	public void addFile(String path)
+	{
+		path = normalize(path);
+		final int slash = path.lastIndexOf('/');
+		final String directory = slash < 0 ? "" : path.substring(0, slash);
+
+		this.files.computeIfAbsent(directory, k -> new HashSet<>()).add(path.substring(slash + 1));
+		this.addDirectory(directory);
+	}
+
+	// --------------- Persistence ---------------
+
+	/**
+	 * Reads the persisted index of the given jar file.
+	 *
+	 * @return the index, or {@code null} if there is no index file or it is outdated
+	 */
+	public static LibraryIndex read(File jarFile)
+	{
+		final File indexFile = getIndexFile(jarFile);
+		if (!indexFile.exists())
+		{
+			return null;
+		}
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile))))
+		{
+			if (in.readShort() != FILE_VERSION || in.readLong() != jarFile.length()
+			    || in.readLong() != jarFile.lastModified())
+			{
+				return null;
+			}
+
+			final LibraryIndex index = new LibraryIndex();
+			for (int i = 0, count = in.readInt(); i < count; i++)
+			{
+				index.addDirectory(in.readUTF());
+			}
+			for (int i = 0, count = in.readInt(); i < count; i++)
+			{
+				final String directory = in.readUTF();
+				final String prefix = directory.isEmpty() ? "" : directory + '/';
+				for (int j = 0, files = in.readInt(); j < files; j++)
+				{
+					index.addFile(prefix + in.readUTF());
+				}
+			}
+			return index;
+		}
+		catch (IOException ex)
+		{
+			return null;
+		}
+	}
+
+	public void write(File jarFile) throws IOException
+	{
+		try (DataOutputStream out = new DataOutputStream(
+			new BufferedOutputStream(new FileOutputStream(getIndexFile(jarFile)))))
+		{
+			out.writeShort(FILE_VERSION);
+			out.writeLong(jarFile.length());
+			out.writeLong(jarFile.lastModified());
+
+			// only leaf directories have to be written, their parents are added implicitly
+			final List<String> leaves = new ArrayList<>();
+			for (Map.Entry<String, Set<String>> entry : this.packages.entrySet())
+			{
+				final String prefix = entry.getKey().isEmpty() ? "" : entry.getKey() + '/';
+				for (String name : entry.getValue())
+				{
+					final String path = prefix + name;
+					if (!this.packages.containsKey(path))
+					{
+						leaves.add(path);
+					}
+				}
+			}
+
+			out.writeInt(leaves.size());
+			for (String leaf : leaves)
+			{
+				out.writeUTF(leaf);
+			}
+
+			out.writeInt(this.files.size());
+			for (Map.Entry<String, Set<String>> entry : this.files.entrySet())
+			{
+				out.writeUTF(entry.getKey());
+				out.writeInt(entry.getValue().size());
+				for (String name : entry.getValue())
+				{
+					out.writeUTF(name);
+				}
+			}
+		}
+	}
+
+	// --------------- Lookup ---------------
+
+	public boolean containsPackage(String directory, String name)
+	{
+		final Set<String> names = this.packages.get(normalize(directory));
+		return names != null && names.contains(name);
+	}
+
+	public boolean containsFile(String path)
+	{
+		path = normalize(path);
+		final int slash = path.lastIndexOf('/');
+		final Set<String> names = this.files.get(slash < 0 ? "" : path.substring(0, slash));
+		return names != null && names.contains(path.substring(slash + 1));
+	}
+
+	public Stream<String> listPackageNames(String directory)
+	{
+		return this.packages.getOrDefault(normalize(directory), Collections.emptySet()).stream();
+	}
+
+	public Stream<String> listFileNames(String directory)
+	{
+		return this.files.getOrDefault(normalize(directory), Collections.emptySet()).stream();
+	}
+
+	// =============== Main ===============
+
+	/**
+	 * Writes the index files for the given jar files, e.g. when packaging a library.
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		for (String arg : args)
+		{
+			final File jarFile = new File(arg);
+			ofJar(jarFile).write(jarFile);
+		}
+	}
+}
@@ -1,9 +1,11 @@
 package dyvilx.tools.compiler.parser;
 
+import dyvilx.tools.parsing.TokenList;
 import dyvilx.tools.parsing.lexer.BaseSymbols;
 import dyvilx.tools.parsing.lexer.Tokens;
 import dyvilx.tools.parsing.token.IToken;
 import dyvilx.tools.parsing.token.InferredSemicolon;
+import dyvilx.tools.parsing.token.TokenBuffer;
 
 public final class SemicolonInference
 {
@@ -12,6 +14,29 @@ public final class SemicolonInference
 		// no instances
 	}
 
+	/**
+	 * Inserts inferred semicolons into the given token list. The buffer of a compact token list is processed in place
+	 * by index, without creating token objects or copying the buffer.
+	 *
+	 * @param tokens
+	 * 	the token list
+	 */
+	public static void inferSemicolons(TokenList tokens)
+	{
+		if (!tokens.isCompact())
+		{
+			inferSemicolons(tokens.first());
+			return;
+		}
+
+		final TokenBuffer buffer = tokens.getBuffer();
+		if (buffer.inferSemicolons(SemicolonInference::inferSemicolon) > 0)
+		{
+			// re-link the start and EOF tokens with the moved tokens
+			tokens.replaceBuffer(buffer);
+		}
+	}
+
 	public static void inferSemicolons(IToken first)
 	{
 		if (first == null)
@@ -37,10 +62,22 @@ public final class SemicolonInference
 		}
 	}
 
+	/**
+	 * The semicolon inference rule for tokens in a {@link TokenBuffer}, e.g. for {@link
+	 * dyvilx.tools.parsing.lexer.Lexer#relex}.
+	 */
+	public static boolean inferSemicolon(TokenBuffer buffer, int prev, int next)
+	{
+		return inferSemicolon(buffer.type(prev), buffer.endLine(prev), buffer.type(next), buffer.startLine(next));
+	}
+
 	private static boolean inferSemicolon(IToken prev, IToken next)
 	{
-		final int prevLine = prev.endLine();
-		final int nextLine = next.startLine();
+		return inferSemicolon(prev.type(), prev.endLine(), next.type(), next.startLine());
+	}
+
+	private static boolean inferSemicolon(int prevType, int prevLine, int nextType, int nextLine)
+	{
 		if (nextLine == prevLine)
 		{
 			// Obviously never infer a semicolon between tokens on the same line
@@ -54,7 +91,6 @@ public final class SemicolonInference
 		}
 
 		// Check last token on line in question
-		final int prevType = prev.type();
 
 		if ((prevType & Tokens.KEYWORD) == 0)
 		{
@@ -94,8 +130,6 @@ public final class SemicolonInference
 
 		// Check first token on the next line
 
-		final int nextType = next.type();
-
 		// Check for other token types
 		switch (nextType)
 		{
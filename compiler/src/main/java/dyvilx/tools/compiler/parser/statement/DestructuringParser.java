@@ -0,0 +1,112 @@
+package dyvilx.tools.compiler.parser.statement;
+
+import dyvil.reflect.Modifiers;
+import dyvilx.tools.compiler.ast.attribute.AttributeList;
+import dyvilx.tools.compiler.ast.expression.IValue;
+import dyvilx.tools.compiler.ast.statement.DestructuringStatement;
+import dyvilx.tools.compiler.parser.DyvilKeywords;
+import dyvilx.tools.compiler.parser.classes.DataMemberParser;
+import dyvilx.tools.compiler.parser.expression.ExpressionParser;
+import dyvilx.tools.parsing.IParserManager;
+import dyvilx.tools.parsing.Parser;
+import dyvilx.tools.parsing.lexer.BaseSymbols;
+import dyvilx.tools.parsing.token.IToken;
+
+import java.util.function.Consumer;
+
+/**
+ * Parses destructuring declarations of the form {@code let|var ( name [: type], ... ) = value}.
+ */
+public class DestructuringParser extends Parser
+{
+	// =============== Constants ===============
+
+	private static final int DECLARATOR = 1;
+	private static final int OPEN_PAREN = 2;
+	private static final int VARIABLE   = 3;
+	private static final int SEPARATOR  = 4;
+	private static final int EQUALS     = 5;
+
+	// =============== Fields ===============
+
+	protected final Consumer<IValue> consumer;
+
+	private DestructuringStatement statement;
+	private boolean                let;
+
+	// =============== Constructors ===============
+
+	public DestructuringParser(Consumer<IValue> consumer)
+	{
+		this.consumer = consumer;
+		this.mode = DECLARATOR;
+	}
+
+	// =============== Methods ===============
+
+	@Override
+	public void parse(IParserManager pm, IToken token)
+	{
+		final int type = token.type();
+		switch (this.mode)
+		{
+		case DECLARATOR:
+			this.mode = OPEN_PAREN;
+			this.statement = new DestructuringStatement(token.raw());
+			// let ( ... ) = ...
+			// var ( ... ) = ...
+			this.let = type == DyvilKeywords.LET;
+			return;
+		case OPEN_PAREN:
+			this.mode = VARIABLE;
+			if (type != BaseSymbols.OPEN_PARENTHESIS)
+			{
+				pm.reparse();
+				pm.report(token, "destructuring.open_paren");
+			}
+			return;
+		case VARIABLE:
+			if (type == BaseSymbols.CLOSE_PARENTHESIS)
+			{
+				this.mode = EQUALS;
+				return;
+			}
+
+			final AttributeList attributes = new AttributeList();
+			if (this.let)
+			{
+				attributes.addFlag(Modifiers.FINAL);
+			}
+			pm.pushParser(new DataMemberParser<>(attributes, this.statement), true);
+			this.mode = SEPARATOR;
+			return;
+		case SEPARATOR:
+			switch (type)
+			{
+			case BaseSymbols.COMMA:
+				this.mode = VARIABLE;
+				return;
+			case BaseSymbols.CLOSE_PARENTHESIS:
+				this.mode = EQUALS;
+				return;
+			}
+			this.mode = EQUALS;
+			pm.reparse();
+			pm.report(token, "destructuring.close_paren");
+			return;
+		case EQUALS:
+			this.mode = END;
+			if (type != BaseSymbols.EQUALS)
+			{
+				pm.report(token, "destructuring.assignment");
+				pm.reparse();
+				return;
+			}
+			pm.pushParser(new ExpressionParser(this.statement::setValue));
+			return;
+		case END:
+			this.consumer.accept(this.statement);
+			pm.popParser(true);
+		}
+	}
+}
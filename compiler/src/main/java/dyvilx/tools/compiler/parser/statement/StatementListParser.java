@@ -50,6 +50,13 @@ public final class StatementListParser extends Parser implements IMemberConsumer
 	private static final int LABEL_END             = 1 << 5;
 	private static final int SEPARATOR             = 1 << 6;
 
+	/**
+	 * The memo key for the speculative parse of member statements (local variables, properties and methods). The
+	 * attempt only depends on the tokens, and nested statement lists are parsed again by the expression parser when it
+	 * fails, so memoizing it avoids re-scanning deeply nested lambdas and closures over and over.
+	 */
+	private static final Object MEMBER_STATEMENT = new Object();
+
 	// =============== Fields ===============
 
 	// --------------- Constructor ---------------
@@ -195,11 +202,21 @@ public final class StatementListParser extends Parser implements IMemberConsumer
 			case DyvilKeywords.LABEL:
 				this.mode = LABEL_NAME;
 				return;
+			case DyvilKeywords.LET:
+			case DyvilKeywords.VAR:
+				if (token.next().type() == BaseSymbols.OPEN_PARENTHESIS)
+				{
+					// let ( ... ) = ...
+					this.mode = SEPARATOR;
+					pm.pushParser(new DestructuringParser(this::addStatement), true);
+					return;
+				}
+				break;
 			}
 
 			this.mode = SEPARATOR;
 			final MemberParser<IVariable> parser = new MemberParser<>(this).withFlags(MemberParser.NO_FIELD_PROPERTIES);
-			if (this.tryParserManager.tryParse(pm, parser, token, EXIT_ON_ROOT))
+			if (this.tryParserManager.tryParse(pm, parser, token, EXIT_ON_ROOT, MEMBER_STATEMENT))
 			{
 				return;
 			}
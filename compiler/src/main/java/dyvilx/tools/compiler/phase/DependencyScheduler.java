@@ -0,0 +1,523 @@
+package dyvilx.tools.compiler.phase;
+
+import dyvil.lang.Name;
+import dyvilx.tools.compiler.DyvilCompiler;
+import dyvilx.tools.compiler.ast.classes.IClass;
+import dyvilx.tools.compiler.ast.header.ICompilationUnit;
+import dyvilx.tools.compiler.ast.header.IHeaderUnit;
+import dyvilx.tools.compiler.ast.structure.Package;
+import dyvilx.tools.compiler.lang.I18n;
+import dyvilx.tools.compiler.sources.DyvilFileType;
+import dyvilx.tools.parsing.TokenList;
+import dyvilx.tools.parsing.lexer.Tokens;
+import dyvilx.tools.parsing.token.IToken;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Schedules the semantic phases of compilation units according to the dependencies between them. A unit depends on
+ * another unit if it imports or references a class or header declared in that unit. Dependencies are recorded while
+ * the phases run, via the {@link #recordDependency(IHeaderUnit)} and {@link #recordDependency(Package)} hooks.
+ * <p>
+ * References that are only resolved while a phase runs are not recorded before the phase is scheduled. Thus, the
+ * schedule conservatively assumes that a unit also depends on all other units in the same package, and on every unit
+ * that declares a header or class whose name occurs as an identifier in its source (see
+ * {@link #recordNames(ICompilationUnit, TokenList)}). References that are not written in the source of a unit, such as
+ * inferred member types, are covered transitively: the unit that declares the member names the type in its own
+ * source, so the unit that declares the type is processed before it, and it is processed before the referencing unit.
+ * <p>
+ * When scheduling a phase, the dependency graph is split into strongly connected components. The units of one
+ * component are processed sequentially on one worker, in the order of {@link dyvilx.tools.compiler.sources.FileFinder#units}.
+ * A component is only started after all components it depends on have completed, and independent components run in
+ * parallel on the {@linkplain DyvilCompiler#getWorkerPool() worker pool} of the compiler. Since every unit reports to
+ * its own {@link dyvilx.tools.parsing.marker.MarkerList}, the diagnostics of a unit do not depend on the worker that
+ * processed it.
+ */
+public class DependencyScheduler
+{
+	// =============== Static Fields ===============
+
+	/**
+	 * The dependencies of the unit that is currently processed by this thread, or {@code null}.
+	 */
+	private static final ThreadLocal<Dependencies> CURRENT_DEPENDENCIES = new ThreadLocal<>();
+
+	// =============== Fields ===============
+
+	private final Map<ICompilationUnit, Dependencies> dependencies = new ConcurrentHashMap<>();
+
+	private boolean trackExternalFiles;
+
+	// =============== Static Methods ===============
+
+	/**
+	 * Records that the unit currently processed by this thread depends on the given header. If the header is not a
+	 * compilation unit, its object file is recorded as an external file dependency, if those are tracked.
+	 *
+	 * @param header
+	 * 	the header that was resolved
+	 */
+	public static void recordDependency(IHeaderUnit header)
+	{
+		final Dependencies current = CURRENT_DEPENDENCIES.get();
+		if (current == null)
+		{
+			return;
+		}
+
+		if (header instanceof ICompilationUnit)
+		{
+			current.units.add((ICompilationUnit) header);
+		}
+		else if (current.externalFiles != null)
+		{
+			current.externalFiles.add(
+				header.getPackage().getDirectory() + header.getName().qualified + DyvilFileType.OBJECT_EXTENSION);
+		}
+	}
+
+	/**
+	 * Records that the unit currently processed by this thread depends on all compilation units in the given package,
+	 * e.g. because of a wildcard import.
+	 *
+	 * @param pack
+	 * 	the package that was imported
+	 */
+	public static void recordDependency(Package pack)
+	{
+		final Dependencies current = CURRENT_DEPENDENCIES.get();
+		if (current == null)
+		{
+			return;
+		}
+
+		for (IHeaderUnit header : pack.getHeaders())
+		{
+			if (header instanceof ICompilationUnit)
+			{
+				current.units.add((ICompilationUnit) header);
+			}
+		}
+	}
+
+	/**
+	 * Records the identifiers that occur in the tokens of the given unit. When scheduling a phase, the unit is assumed
+	 * to depend on every unit that declares a header or class with one of these names, whether or not the reference has
+	 * been resolved yet.
+	 *
+	 * @param unit
+	 * 	the unit that was tokenized
+	 * @param tokens
+	 * 	the tokens of the unit
+	 */
+	public void recordNames(ICompilationUnit unit, TokenList tokens)
+	{
+		final Set<Name> names = new HashSet<>();
+		for (IToken token : tokens)
+		{
+			if (Tokens.isIdentifier(token.type()))
+			{
+				names.add(token.nameValue());
+			}
+		}
+		this.getDependencies(unit).names = names;
+	}
+
+	/**
+	 * @return {@code true} if the unit currently processed by this thread records the library files it depends on
+	 */
+	public static boolean isTrackingExternalFiles()
+	{
+		final Dependencies current = CURRENT_DEPENDENCIES.get();
+		return current != null && current.externalFiles != null;
+	}
+
+	/**
+	 * Records that the unit currently processed by this thread depends on the given library file. Only has an effect
+	 * if {@link #isTrackingExternalFiles()} is {@code true}.
+	 *
+	 * @param fileName
+	 * 	the path of the file relative to the library root, e.g. {@code dyvil/lang/Name.class}
+	 */
+	public static void recordExternalDependency(String fileName)
+	{
+		final Dependencies current = CURRENT_DEPENDENCIES.get();
+		if (current != null && current.externalFiles != null)
+		{
+			current.externalFiles.add(fileName);
+		}
+	}
+
+	// =============== Properties ===============
+
+	/**
+	 * Enables recording of the library files (classes and object files) that units depend on. This is needed for
+	 * incremental compilation, where unchanged units are loaded from the output directory as library files.
+	 */
+	public void setTrackExternalFiles(boolean trackExternalFiles)
+	{
+		this.trackExternalFiles = trackExternalFiles;
+	}
+
+	/**
+	 * @return the compilation units the given unit was recorded to depend on
+	 */
+	public Set<ICompilationUnit> getUnitDependencies(ICompilationUnit unit)
+	{
+		return this.getDependencies(unit).units;
+	}
+
+	/**
+	 * @return the library files the given unit was recorded to depend on, or an empty set if they are not tracked
+	 */
+	public Set<String> getExternalDependencies(ICompilationUnit unit)
+	{
+		final Set<String> externalFiles = this.getDependencies(unit).externalFiles;
+		return externalFiles != null ? externalFiles : Collections.emptySet();
+	}
+
+	// =============== Methods ===============
+
+	private Dependencies getDependencies(ICompilationUnit unit)
+	{
+		return this.dependencies.computeIfAbsent(unit, u -> new Dependencies(this.trackExternalFiles));
+	}
+
+	/**
+	 * Applies the action to the given unit, recording all dependencies that are resolved while doing so.
+	 */
+	private void applyRecording(DyvilCompiler compiler, String phaseName, Consumer<ICompilationUnit> action,
+		ICompilationUnit unit)
+	{
+		final Dependencies previous = CURRENT_DEPENDENCIES.get();
+		CURRENT_DEPENDENCIES.set(this.getDependencies(unit));
+		try
+		{
+			Profiler.apply(compiler, phaseName, action, unit);
+		}
+		catch (Exception e)
+		{
+			compiler.error(I18n.get("phase.failed.unit", phaseName, unit.getFileSource().file()), e);
+		}
+		finally
+		{
+			CURRENT_DEPENDENCIES.set(previous);
+		}
+	}
+
+	/**
+	 * Applies the action to all units in the order of the file finder, on the current thread. Dependencies are
+	 * recorded nonetheless.
+	 */
+	public void applySequential(DyvilCompiler compiler, String phaseName, Consumer<ICompilationUnit> action)
+	{
+		for (ICompilationUnit unit : compiler.fileFinder.units)
+		{
+			this.applyRecording(compiler, phaseName, action, unit);
+		}
+	}
+
+	/**
+	 * Applies the action to all units, processing independent strongly connected components of the dependency graph
+	 * in parallel if the compiler is configured to do so.
+	 */
+	public void apply(DyvilCompiler compiler, String phaseName, Consumer<ICompilationUnit> action)
+	{
+		final List<ICompilationUnit> units = compiler.fileFinder.units;
+		if (!compiler.config.isParallel() || units.size() <= 1)
+		{
+			this.applySequential(compiler, phaseName, action);
+			return;
+		}
+
+		final Map<Name, List<ICompilationUnit>> declarations = getDeclarations(units);
+		final Map<ICompilationUnit, Collection<ICompilationUnit>> graph = new IdentityHashMap<>(units.size());
+		for (ICompilationUnit unit : units)
+		{
+			graph.put(unit, this.getDependencies(unit, units, declarations));
+		}
+
+		final List<List<ICompilationUnit>> components = computeComponents(units, graph);
+		final Map<ICompilationUnit, Integer> componentIndices = new IdentityHashMap<>(units.size());
+		for (int i = 0, count = components.size(); i < count; i++)
+		{
+			for (ICompilationUnit unit : components.get(i))
+			{
+				componentIndices.put(unit, i);
+			}
+		}
+
+		// components are ordered such that all dependencies of a component come before it
+		final ForkJoinPool pool = compiler.getWorkerPool();
+		final CompletableFuture<?>[] futures = new CompletableFuture<?>[components.size()];
+
+		for (int i = 0, count = components.size(); i < count; i++)
+		{
+			final List<ICompilationUnit> component = components.get(i);
+			final Set<Integer> predecessors = new TreeSet<>();
+
+			for (ICompilationUnit unit : component)
+			{
+				for (ICompilationUnit dependency : graph.get(unit))
+				{
+					final Integer index = componentIndices.get(dependency);
+					if (index != null && index != i)
+					{
+						predecessors.add(index);
+					}
+				}
+			}
+
+			final Runnable task = () -> {
+				for (ICompilationUnit unit : component)
+				{
+					this.applyRecording(compiler, phaseName, action, unit);
+				}
+			};
+
+			if (predecessors.isEmpty())
+			{
+				futures[i] = CompletableFuture.runAsync(task, pool);
+				continue;
+			}
+
+			final CompletableFuture<?>[] dependencies = new CompletableFuture<?>[predecessors.size()];
+			int j = 0;
+			for (int index : predecessors)
+			{
+				dependencies[j++] = futures[index];
+			}
+			futures[i] = CompletableFuture.allOf(dependencies).thenRunAsync(task, pool);
+		}
+
+		CompletableFuture.allOf(futures).join();
+	}
+
+	/**
+	 * @return the units that declare a header or class with the given name, for all names declared by the given units
+	 */
+	private static Map<Name, List<ICompilationUnit>> getDeclarations(List<ICompilationUnit> units)
+	{
+		final Map<Name, List<ICompilationUnit>> declarations = new HashMap<>();
+		for (ICompilationUnit unit : units)
+		{
+			if (!(unit instanceof IHeaderUnit))
+			{
+				continue;
+			}
+
+			final IHeaderUnit header = (IHeaderUnit) unit;
+			declarations.computeIfAbsent(header.getName(), n -> new ArrayList<>()).add(unit);
+			for (IClass iclass : header.getClasses())
+			{
+				declarations.computeIfAbsent(iclass.getName(), n -> new ArrayList<>()).add(unit);
+			}
+		}
+		return declarations;
+	}
+
+	/**
+	 * @return the recorded dependencies of the unit, the units in the same package, and the units that declare a name
+	 * that occurs in the unit
+	 */
+	private Collection<ICompilationUnit> getDependencies(ICompilationUnit unit, List<ICompilationUnit> units,
+		Map<Name, List<ICompilationUnit>> declarations)
+	{
+		final Dependencies dependencies = this.getDependencies(unit);
+		final Set<ICompilationUnit> result = Collections.newSetFromMap(new IdentityHashMap<>());
+		result.addAll(dependencies.units);
+
+		for (Name name : dependencies.names)
+		{
+			final List<ICompilationUnit> declaringUnits = declarations.get(name);
+			if (declaringUnits != null)
+			{
+				result.addAll(declaringUnits);
+			}
+		}
+
+		if (unit instanceof IHeaderUnit)
+		{
+			final Package pack = ((IHeaderUnit) unit).getPackage();
+			for (ICompilationUnit other : units)
+			{
+				if (other instanceof IHeaderUnit && ((IHeaderUnit) other).getPackage() == pack)
+				{
+					result.add(other);
+				}
+			}
+		}
+
+		result.remove(unit);
+		return result;
+	}
+
+	// --------------- Strongly Connected Components ---------------
+
+	/**
+	 * Computes the strongly connected components of the dependency graph using Tarjan's algorithm. The resulting list
+	 * is in reverse topological order, i.e. every component comes after all components it depends on. The units within
+	 * a component are sorted by their position in the given list, so that their processing order is deterministic.
+	 */
+	private static List<List<ICompilationUnit>> computeComponents(List<ICompilationUnit> units,
+		Map<ICompilationUnit, Collection<ICompilationUnit>> graph)
+	{
+		final int count = units.size();
+		final Map<ICompilationUnit, Integer> indices = new IdentityHashMap<>(count);
+		for (int i = 0; i < count; i++)
+		{
+			indices.put(units.get(i), i);
+		}
+
+		// adjacency lists by unit index
+		final int[][] edges = new int[count][];
+		for (int i = 0; i < count; i++)
+		{
+			final Collection<ICompilationUnit> dependencies = graph.get(units.get(i));
+			final int[] targets = new int[dependencies.size()];
+			int size = 0;
+			for (ICompilationUnit dependency : dependencies)
+			{
+				final Integer index = indices.get(dependency);
+				if (index != null && index != i)
+				{
+					targets[size++] = index;
+				}
+			}
+			edges[i] = Arrays.copyOf(targets, size);
+		}
+
+		return new Tarjan(units, edges).run();
+	}
+
+	private static final class Dependencies
+	{
+		final Set<ICompilationUnit> units = ConcurrentHashMap.newKeySet();
+		final Set<String>           externalFiles;
+
+		// the identifiers in the source of the unit, recorded after tokenizing
+		Set<Name> names = Collections.emptySet();
+
+		Dependencies(boolean trackExternalFiles)
+		{
+			this.externalFiles = trackExternalFiles ? ConcurrentHashMap.newKeySet() : null;
+		}
+	}
+
+	/**
+	 * An iterative implementation of Tarjan's strongly connected components algorithm, to avoid stack overflows on long
+	 * dependency chains.
+	 */
+	private static final class Tarjan
+	{
+		private final List<ICompilationUnit> units;
+		private final int[][]                edges;
+
+		private final int[]     index;
+		private final int[]     lowLink;
+		private final boolean[] onStack;
+		private final int[]     stack;
+		private int stackSize;
+		private int nextIndex = 1; // 0 = unvisited
+
+		private final List<List<ICompilationUnit>> components = new ArrayList<>();
+
+		Tarjan(List<ICompilationUnit> units, int[][] edges)
+		{
+			final int count = units.size();
+			this.units = units;
+			this.edges = edges;
+			this.index = new int[count];
+			this.lowLink = new int[count];
+			this.onStack = new boolean[count];
+			this.stack = new int[count];
+		}
+
+		List<List<ICompilationUnit>> run()
+		{
+			final int count = this.units.size();
+			final int[] callStack = new int[count];
+			final int[] edgeIndex = new int[count];
+
+			for (int root = 0; root < count; root++)
+			{
+				if (this.index[root] != 0)
+				{
+					continue;
+				}
+
+				int depth = 0;
+				callStack[0] = root;
+				this.visit(root);
+
+				while (depth >= 0)
+				{
+					final int node = callStack[depth];
+					final int[] targets = this.edges[node];
+
+					if (edgeIndex[node] < targets.length)
+					{
+						final int target = targets[edgeIndex[node]++];
+						if (this.index[target] == 0)
+						{
+							this.visit(target);
+							callStack[++depth] = target;
+						}
+						else if (this.onStack[target])
+						{
+							this.lowLink[node] = Math.min(this.lowLink[node], this.index[target]);
+						}
+						continue;
+					}
+
+					if (this.lowLink[node] == this.index[node])
+					{
+						this.popComponent(node);
+					}
+
+					depth--;
+					if (depth >= 0)
+					{
+						final int parent = callStack[depth];
+						this.lowLink[parent] = Math.min(this.lowLink[parent], this.lowLink[node]);
+					}
+				}
+			}
+
+			return this.components;
+		}
+
+		private void visit(int node)
+		{
+			this.index[node] = this.lowLink[node] = this.nextIndex++;
+			this.stack[this.stackSize++] = node;
+			this.onStack[node] = true;
+		}
+
+		private void popComponent(int root)
+		{
+			final List<Integer> members = new ArrayList<>();
+			int member;
+			do
+			{
+				member = this.stack[--this.stackSize];
+				this.onStack[member] = false;
+				members.add(member);
+			}
+			while (member != root);
+
+			Collections.sort(members);
+
+			final List<ICompilationUnit> component = new ArrayList<>(members.size());
+			for (int i : members)
+			{
+				component.add(this.units.get(i));
+			}
+			this.components.add(component);
+		}
+	}
+}
@@ -40,7 +40,7 @@ public class FoldConstantPhase implements ICompilerPhase
 		{
 			for (ICompilationUnit unit : compiler.fileFinder.units)
 			{
-				unit.foldConstants();
+				Profiler.apply(compiler, this.getName(), ICompilationUnit::foldConstants, unit);
 			}
 		}
 	}
@@ -18,14 +18,14 @@ public interface ICompilerPhase extends Comparable<ICompilerPhase>
 	ICompilerPhase CLEAN = new CompilerPhase(0, "CLEAN", DyvilCompiler::clean);
 
 	/**
-	 * Splits the input file into {@link IdentifierToken Tokens} using {@link DyvilLexer}.
+	 * Splits the input file into {@link IdentifierToken Tokens} using {@link DyvilLexer}. Runs in parallel if enabled.
 	 */
-	ICompilerPhase TOKENIZE = new SequentialCompilerPhase(10, "TOKENIZE", ICompilationUnit::tokenize);
+	ICompilerPhase TOKENIZE = new ParallelCompilerPhase(10, "TOKENIZE", ICompilationUnit::tokenize);
 
 	/**
-	 * Parses the list of tokens generated by {@link #TOKENIZE}.
+	 * Parses the list of tokens generated by {@link #TOKENIZE}. Runs in parallel if enabled.
 	 */
-	ICompilerPhase PARSE = new SequentialCompilerPhase(20, "PARSE", ICompilationUnit::parse);
+	ICompilerPhase PARSE = new ParallelCompilerPhase(20, "PARSE", ICompilationUnit::parse);
 
 	/**
 	 * Prints the AST.
@@ -46,14 +46,14 @@ public interface ICompilerPhase extends Comparable<ICompilerPhase>
 	ICompilerPhase RESOLVE_TYPES = new ResolveTypesPhase(50);
 
 	/**
-	 * Resolves methods and field names.
+	 * Resolves methods and field names. Independent units are resolved in parallel if enabled.
 	 */
-	ICompilerPhase RESOLVE = new SequentialCompilerPhase(60, "RESOLVE", ICompilationUnit::resolve);
+	ICompilerPhase RESOLVE = new ScheduledCompilerPhase(60, "RESOLVE", ICompilationUnit::resolve);
 
 	/**
 	 * Resolves other things such as lambda expressions or annotations and checks types.
 	 */
-	ICompilerPhase CHECK_TYPES = new SequentialCompilerPhase(70, "CHECK_TYPES", ICompilationUnit::checkTypes);
+	ICompilerPhase CHECK_TYPES = new ScheduledCompilerPhase(70, "CHECK_TYPES", ICompilationUnit::checkTypes);
 
 	/**
 	 * Checks for semantical errors. The general contract of this method is that it should not be mandatory for a
@@ -73,9 +73,10 @@ public interface ICompilerPhase extends Comparable<ICompilerPhase>
 	ICompilerPhase CLEANUP = new SequentialCompilerPhase(100, "CLEANUP", ICompilationUnit::cleanup);
 
 	/**
-	 * Compiles the AST to byte code and stores the generated .class files in the bin directory.
+	 * Compiles the AST to byte code and stores the generated .class files in the bin directory. Runs in parallel if
+	 * enabled.
 	 */
-	ICompilerPhase COMPILE = new SequentialCompilerPhase(200, "COMPILE", ICompilationUnit::compile);
+	ICompilerPhase COMPILE = new ParallelCompilerPhase(200, "COMPILE", ICompilationUnit::compile);
 
 	String getName();
 
@@ -3,46 +3,121 @@ package dyvilx.tools.compiler.phase;
 import dyvil.annotation.internal.NonNull;
 import dyvilx.tools.compiler.DyvilCompiler;
 import dyvilx.tools.compiler.ast.header.ICompilationUnit;
+import dyvilx.tools.compiler.lang.I18n;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Consumer;
 
+/**
+ * A compiler phase that applies a unit-local action to all compilation units. If the compiler is configured to use
+ * more than one job (see {@link dyvilx.tools.compiler.config.CompilerConfig#getJobs()}), the units are processed
+ * concurrently on the {@linkplain DyvilCompiler#getWorkerPool() worker pool} of the compiler. Otherwise, this phase
+ * behaves exactly like a {@link SequentialCompilerPhase}.
+ * <p>
+ * The action must only modify state that belongs to the unit it is applied to, or shared state that is safe for
+ * concurrent access.
+ */
 public class ParallelCompilerPhase implements ICompilerPhase
 {
-	private final int                        id;
-	private final String                     name;
+	// =============== Fields ===============
+
+	private final int    id;
+	private final String name;
+
 	private final Consumer<ICompilationUnit> apply;
 
+	// =============== Constructors ===============
+
 	public ParallelCompilerPhase(int id, String name, Consumer<ICompilationUnit> apply)
 	{
 		this.id = id;
 		this.name = name;
 		this.apply = apply;
 	}
-	
+
+	// =============== Properties ===============
+
 	@Override
 	public String getName()
 	{
 		return this.name;
 	}
-	
+
 	@Override
 	public int getID()
 	{
 		return this.id;
 	}
-	
+
+	// =============== Methods ===============
+
+	// --------------- Phase Apply ---------------
+
 	@Override
 	public void apply(DyvilCompiler compiler)
 	{
-		compiler.fileFinder.units.parallelStream().forEach(this.apply);
+		final List<ICompilationUnit> units = compiler.fileFinder.units;
+
+		if (!compiler.config.isParallel() || units.size() <= 1)
+		{
+			for (ICompilationUnit unit : units)
+			{
+				this.apply(compiler, unit);
+			}
+			return;
+		}
+
+		final ForkJoinPool pool = compiler.getWorkerPool();
+		final List<ForkJoinTask<?>> tasks = new ArrayList<>(units.size());
+
+		for (ICompilationUnit unit : units)
+		{
+			tasks.add(pool.submit(() -> this.apply(compiler, unit)));
+		}
+
+		for (ForkJoinTask<?> task : tasks)
+		{
+			task.join();
+		}
+	}
+
+	private void apply(DyvilCompiler compiler, ICompilationUnit unit)
+	{
+		try
+		{
+			Profiler.apply(compiler, this.name, this.apply, unit);
+		}
+		catch (Exception e)
+		{
+			compiler.error(I18n.get("phase.failed.unit", this.getName(), unit.getFileSource().file()), e);
+		}
 	}
-	
+
+	// --------------- Comparison, Equals and Hash Code ---------------
+
 	@Override
 	public int compareTo(@NonNull ICompilerPhase o)
 	{
 		return Integer.compare(this.id, o.getID());
 	}
-	
+
+	@Override
+	public boolean equals(Object o)
+	{
+		return o instanceof ICompilerPhase && this.getID() == ((ICompilerPhase) o).getID();
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return this.getID();
+	}
+
+	// --------------- Formatting ---------------
+
 	@Override
 	public String toString()
 	{
@@ -0,0 +1,386 @@
+package dyvilx.tools.compiler.phase;
+
+import dyvilx.tools.compiler.DyvilCompiler;
+import dyvilx.tools.compiler.ast.header.ICompilationUnit;
+import dyvilx.tools.compiler.lang.I18n;
+import dyvilx.tools.compiler.util.Util;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Records the cost of each compiler phase for each compilation unit. Enabled with the {@code --profile=<file>} option.
+ * <p>
+ * For every phase and unit, the wall time, the CPU time and the bytes allocated by the thread that processed the unit
+ * are recorded, as well as the number of markers the unit reported in that phase. In addition, loading of library
+ * classes and the external class caches of the {@link dyvilx.tools.compiler.ast.structure.Package}s are counted. At
+ * the end of the compilation, the results are written to the profile file as JSON, and the slowest units are logged.
+ */
+public class Profiler
+{
+	// =============== Constants ===============
+
+	/**
+	 * The number of units listed in the table of slowest units.
+	 */
+	public static final int SLOWEST_UNITS = 10;
+
+	// =============== Classes ===============
+
+	private static final class Entry
+	{
+		int  runs;
+		long wallTime;
+		long cpuTime;
+		long allocatedBytes;
+		int  markers;
+
+		void add(Entry entry)
+		{
+			this.runs += entry.runs;
+			this.wallTime += entry.wallTime;
+			this.cpuTime += entry.cpuTime;
+			this.allocatedBytes += entry.allocatedBytes;
+			this.markers += entry.markers;
+		}
+	}
+
+	private static final class UnitProfile
+	{
+		final String file;
+
+		final Map<String, Entry> phases = new LinkedHashMap<>();
+		final Entry              total  = new Entry();
+
+		UnitProfile(String file)
+		{
+			this.file = file;
+		}
+	}
+
+	// =============== Fields ===============
+
+	private final ThreadMXBean                    threads;
+	private final com.sun.management.ThreadMXBean allocations;
+
+	private final Map<String, Long>                  phaseTimes = new LinkedHashMap<>();
+	private final Map<ICompilationUnit, UnitProfile> units      = new ConcurrentHashMap<>();
+
+	// --------------- Counters ---------------
+
+	private final AtomicLong externalClassLoads             = new AtomicLong();
+	private final AtomicLong externalClassCacheHits         = new AtomicLong();
+	private final AtomicLong externalClassCacheMisses       = new AtomicLong();
+	private final AtomicLong globalExternalClassCacheHits   = new AtomicLong();
+	private final AtomicLong globalExternalClassCacheMisses = new AtomicLong();
+
+	// =============== Constructors ===============
+
+	public Profiler()
+	{
+		final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads.isCurrentThreadCpuTimeSupported())
+		{
+			threads.setThreadCpuTimeEnabled(true);
+			this.threads = threads;
+		}
+		else
+		{
+			this.threads = null;
+		}
+
+		if (threads instanceof com.sun.management.ThreadMXBean //
+		    && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported())
+		{
+			this.allocations = (com.sun.management.ThreadMXBean) threads;
+			this.allocations.setThreadAllocatedMemoryEnabled(true);
+		}
+		else
+		{
+			this.allocations = null;
+		}
+	}
+
+	// =============== Static Methods ===============
+
+	/**
+	 * Applies the action of the given phase to the unit, recording it if the compiler has a profiler.
+	 */
+	public static void apply(DyvilCompiler compiler, String phaseName, Consumer<ICompilationUnit> action,
+		ICompilationUnit unit)
+	{
+		final Profiler profiler = compiler.getProfiler();
+		if (profiler == null)
+		{
+			action.accept(unit);
+			return;
+		}
+		profiler.record(phaseName, action, unit);
+	}
+
+	// =============== Methods ===============
+
+	// --------------- Recording ---------------
+
+	private long cpuTime()
+	{
+		return this.threads != null ? this.threads.getCurrentThreadCpuTime() : 0L;
+	}
+
+	private long allocatedBytes()
+	{
+		if (this.allocations == null)
+		{
+			return 0L;
+		}
+		return this.allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Applies the phase to all units and records its total wall time.
+	 */
+	public void applyPhase(DyvilCompiler compiler, ICompilerPhase phase)
+	{
+		final long startTime = System.nanoTime();
+		try
+		{
+			phase.apply(compiler);
+		}
+		finally
+		{
+			this.phaseTimes.merge(phase.getName(), System.nanoTime() - startTime, Long::sum);
+		}
+	}
+
+	private void record(String phaseName, Consumer<ICompilationUnit> action, ICompilationUnit unit)
+	{
+		final int startMarkers = unit.getMarkers().size();
+		final long startAllocated = this.allocatedBytes();
+		final long startCpu = this.cpuTime();
+		final long startTime = System.nanoTime();
+
+		try
+		{
+			action.accept(unit);
+		}
+		finally
+		{
+			final Entry entry = new Entry();
+			entry.runs = 1;
+			entry.wallTime = System.nanoTime() - startTime;
+			entry.cpuTime = this.cpuTime() - startCpu;
+			entry.allocatedBytes = this.allocatedBytes() - startAllocated;
+			entry.markers = unit.getMarkers().size() - startMarkers;
+
+			final UnitProfile profile = this.units.computeIfAbsent(unit, u -> new UnitProfile(
+				u.getFileSource().file().getPath()));
+
+			// the phases of a unit may be applied on different worker threads
+			synchronized (profile)
+			{
+				profile.phases.computeIfAbsent(phaseName, n -> new Entry()).add(entry);
+				profile.total.add(entry);
+			}
+		}
+	}
+
+	// - - - - - - - - Counters - - - - - - - -
+
+	public void externalClassLoaded()
+	{
+		this.externalClassLoads.incrementAndGet();
+	}
+
+	public void externalClassCacheHit()
+	{
+		this.externalClassCacheHits.incrementAndGet();
+	}
+
+	public void externalClassCacheMiss()
+	{
+		this.externalClassCacheMisses.incrementAndGet();
+	}
+
+	public void globalExternalClassCacheHit()
+	{
+		this.globalExternalClassCacheHits.incrementAndGet();
+	}
+
+	public void globalExternalClassCacheMiss()
+	{
+		this.globalExternalClassCacheMisses.incrementAndGet();
+	}
+
+	// --------------- Reporting ---------------
+
+	private List<UnitProfile> sortedUnits()
+	{
+		final List<UnitProfile> units = new ArrayList<>(this.units.values());
+		units.sort((u1, u2) -> Long.compare(u2.total.wallTime, u1.total.wallTime));
+		return units;
+	}
+
+	/**
+	 * Writes the profile to the given file and logs the slowest units.
+	 */
+	public void report(DyvilCompiler compiler, File file)
+	{
+		final List<UnitProfile> units = this.sortedUnits();
+
+		try (Writer writer = new BufferedWriter(
+			new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)))
+		{
+			this.writeJson(writer, units);
+			compiler.log(I18n.get("profile.written", file));
+		}
+		catch (IOException ex)
+		{
+			compiler.error(I18n.get("profile.error", file), ex);
+		}
+
+		final int count = Math.min(SLOWEST_UNITS, units.size());
+		if (count == 0)
+		{
+			return;
+		}
+
+		compiler.log(I18n.get("profile.slowest", count));
+		compiler.log(String.format("%14s %14s %12s %8s  %-16s %s", "Wall", "CPU", "Allocated", "Markers",
+		                           "Slowest Phase", "File"));
+
+		for (int i = 0; i < count; i++)
+		{
+			final UnitProfile unit = units.get(i);
+			final Entry total = unit.total;
+
+			String slowestPhase = "";
+			long slowestTime = -1L;
+			for (Map.Entry<String, Entry> phase : unit.phases.entrySet())
+			{
+				if (phase.getValue().wallTime > slowestTime)
+				{
+					slowestPhase = phase.getKey();
+					slowestTime = phase.getValue().wallTime;
+				}
+			}
+
+			compiler.log(String.format("%14s %14s %12s %8d  %-16s %s", Util.toTime(total.wallTime),
+			                           Util.toTime(total.cpuTime), formatBytes(total.allocatedBytes), total.markers,
+			                           slowestPhase, unit.file));
+		}
+	}
+
+	private static String formatBytes(long bytes)
+	{
+		if (bytes < 1024L)
+		{
+			return bytes + " B";
+		}
+		if (bytes < 1024L * 1024L)
+		{
+			return String.format("%.1f KiB", bytes / 1024.0);
+		}
+		return String.format("%.1f MiB", bytes / (1024.0 * 1024.0));
+	}
+
+	// - - - - - - - - JSON - - - - - - - -
+
+	private void writeJson(Writer writer, List<UnitProfile> units) throws IOException
+	{
+		writer.write("{\n");
+		writer.write("  \"cpuTimeSupported\": " + (this.threads != null) + ",\n");
+		writer.write("  \"allocatedBytesSupported\": " + (this.allocations != null) + ",\n");
+
+		// phases
+		writer.write("  \"phases\": [");
+		boolean first = true;
+		for (Map.Entry<String, Long> phase : this.phaseTimes.entrySet())
+		{
+			writer.write(first ? "\n" : ",\n");
+			writer.write("    { \"name\": " + jsonString(phase.getKey()) + ", \"wallNanos\": " + phase.getValue()
+			             + " }");
+			first = false;
+		}
+		writer.write("\n  ],\n");
+
+		// counters
+		writer.write("  \"externalClasses\": {\n");
+		writer.write("    \"loadExternalClass\": " + this.externalClassLoads.get() + ",\n");
+		writer.write("    \"externalClassCache\": { \"hits\": " + this.externalClassCacheHits.get() + ", \"misses\": "
+		             + this.externalClassCacheMisses.get() + " },\n");
+		writer.write("    \"globalExternalClassCache\": { \"hits\": " + this.globalExternalClassCacheHits.get()
+		             + ", \"misses\": " + this.globalExternalClassCacheMisses.get() + " }\n");
+		writer.write("  },\n");
+
+		// units
+		writer.write("  \"units\": [");
+		first = true;
+		for (UnitProfile unit : units)
+		{
+			writer.write(first ? "\n" : ",\n");
+			writer.write("    {\n");
+			writer.write("      \"file\": " + jsonString(unit.file) + ",\n");
+			writer.write("      \"total\": " + jsonEntry(unit.total) + ",\n");
+			writer.write("      \"phases\": {");
+
+			boolean firstPhase = true;
+			for (Map.Entry<String, Entry> phase : unit.phases.entrySet())
+			{
+				writer.write(firstPhase ? "\n" : ",\n");
+				writer.write("        " + jsonString(phase.getKey()) + ": " + jsonEntry(phase.getValue()));
+				firstPhase = false;
+			}
+			writer.write("\n      }\n");
+			writer.write("    }");
+			first = false;
+		}
+		writer.write("\n  ]\n");
+		writer.write("}\n");
+	}
+
+	private static String jsonEntry(Entry entry)
+	{
+		return "{ \"runs\": " + entry.runs + ", \"wallNanos\": " + entry.wallTime + ", \"cpuNanos\": " + entry.cpuTime
+		       + ", \"allocatedBytes\": " + entry.allocatedBytes + ", \"markers\": " + entry.markers + " }";
+	}
+
+	private static String jsonString(String value)
+	{
+		final StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0, length = value.length(); i < length; i++)
+		{
+			final char c = value.charAt(i);
+			switch (c)
+			{
+			case '"':
+				builder.append("\\\"");
+				continue;
+			case '\\':
+				builder.append("\\\\");
+				continue;
+			case '\n':
+				builder.append("\\n");
+				continue;
+			case '\r':
+				builder.append("\\r");
+				continue;
+			case '\t':
+				builder.append("\\t");
+				continue;
+			}
+			if (c < 0x20)
+			{
+				builder.append(String.format("\\u%04x", (int) c));
+				continue;
+			}
+			builder.append(c);
+		}
+		return builder.append('"').toString();
+	}
+}
@@ -32,10 +32,8 @@ public class ResolveHeaderPhase implements ICompilerPhase
 		Types.initHeaders();
 		compiler.checkLibraries();
 
-		for (ICompilationUnit unit : compiler.fileFinder.units)
-		{
-			unit.resolveHeaders();
-		}
+		// records the import dependencies used to schedule the following phases
+		compiler.scheduler.applySequential(compiler, NAME, ICompilationUnit::resolveHeaders);
 	}
 
 	@Override
@@ -42,10 +42,7 @@ public class ResolveTypesPhase implements ICompilerPhase
 			compiler.log(I18n.get("library.types.loaded", Util.toTime(System.nanoTime() - now)));
 		}
 
-		for (ICompilationUnit unit : compiler.fileFinder.units)
-		{
-			unit.resolveTypes();
-		}
+		compiler.scheduler.apply(compiler, NAME, ICompilationUnit::resolveTypes);
 	}
 
 	@Override
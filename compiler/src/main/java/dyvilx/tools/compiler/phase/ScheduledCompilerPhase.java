@@ -0,0 +1,83 @@
+package dyvilx.tools.compiler.phase;
+
+import dyvil.annotation.internal.NonNull;
+import dyvilx.tools.compiler.DyvilCompiler;
+import dyvilx.tools.compiler.ast.header.ICompilationUnit;
+
+import java.util.function.Consumer;
+
+/**
+ * A compiler phase that applies an action to all compilation units in the order determined by the
+ * {@link DependencyScheduler} of the compiler. Units that do not depend on each other are processed in parallel if the
+ * compiler is configured to use more than one job.
+ */
+public class ScheduledCompilerPhase implements ICompilerPhase
+{
+	// =============== Fields ===============
+
+	private final int    id;
+	private final String name;
+
+	private final Consumer<ICompilationUnit> apply;
+
+	// =============== Constructors ===============
+
+	public ScheduledCompilerPhase(int id, String name, Consumer<ICompilationUnit> apply)
+	{
+		this.id = id;
+		this.name = name;
+		this.apply = apply;
+	}
+
+	// =============== Properties ===============
+
+	@Override
+	public String getName()
+	{
+		return this.name;
+	}
+
+	@Override
+	public int getID()
+	{
+		return this.id;
+	}
+
+	// =============== Methods ===============
+
+	// --------------- Phase Apply ---------------
+
+	@Override
+	public void apply(DyvilCompiler compiler)
+	{
+		compiler.scheduler.apply(compiler, this.name, this.apply);
+	}
+
+	// --------------- Comparison, Equals and Hash Code ---------------
+
+	@Override
+	public int compareTo(@NonNull ICompilerPhase o)
+	{
+		return Integer.compare(this.id, o.getID());
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		return o instanceof ICompilerPhase && this.getID() == ((ICompilerPhase) o).getID();
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return this.getID();
+	}
+
+	// --------------- Formatting ---------------
+
+	@Override
+	public String toString()
+	{
+		return this.name;
+	}
+}
@@ -50,7 +50,7 @@ public class SequentialCompilerPhase implements ICompilerPhase
 		{
 			try
 			{
-				this.apply.accept(unit);
+				Profiler.apply(compiler, this.name, this.apply, unit);
 			}
 			catch (Exception e)
 			{
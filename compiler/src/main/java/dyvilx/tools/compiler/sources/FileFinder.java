@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 public class FileFinder
 {
@@ -17,11 +18,24 @@ public class FileFinder
 	public final List<File>             files = new ArrayList<>();
 	public final List<ICompilationUnit> units = new ArrayList<>();
 
+	private Predicate<File> unitFilter;
+
 	public void registerFileType(String extension, FileType fileType)
 	{
 		this.fileTypes.put(extension, fileType);
 	}
 
+	/**
+	 * Sets a filter that decides whether a compilation unit should be created for a source file of a known file type.
+	 *
+	 * @param unitFilter
+	 * 	the filter, or {@code null} to create units for all source files
+	 */
+	public void setUnitFilter(Predicate<File> unitFilter)
+	{
+		this.unitFilter = unitFilter;
+	}
+
 	public void process(DyvilCompiler compiler, File source, File output, Package pack)
 	{
 		if (source.isDirectory())
@@ -70,6 +84,11 @@ public class FileFinder
 			return; // Skip: Unknown File Type
 		}
 
+		if (this.unitFilter != null && !this.unitFilter.test(source))
+		{
+			return; // Skip: Filtered, e.g. up to date
+		}
+
 		final ICompilationUnit unit = fileType.createUnit(compiler, pack, source, output);
 		if (unit == null)
 		{
@@ -0,0 +1,427 @@
+package dyvilx.tools.compiler.sources;
+
+import dyvilx.tools.compiler.DyvilCompiler;
+import dyvilx.tools.compiler.ast.header.ICompilationUnit;
+import dyvilx.tools.compiler.ast.header.SourceHeader;
+import dyvilx.tools.compiler.ast.structure.Package;
+import dyvilx.tools.compiler.backend.classes.PublicApiVisitor;
+import dyvilx.tools.compiler.lang.I18n;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * The cache used for incremental compilation. It is stored in the output directory and contains an entry for every
+ * compilation unit that was compiled successfully, consisting of
+ * <ul>
+ * <li>a hash of the source file contents,</li>
+ * <li>a hash of the public API of all class and object files written for the unit,</li>
+ * <li>the list of these output files, and</li>
+ * <li>the source files of the units it depends on.</li>
+ * </ul>
+ * <p>
+ * Units are only compiled if their source file changed, if any of their outputs is missing, or if the public API of a
+ * unit they depend on changed. All other units are loaded from their outputs in the output directory, which is added
+ * as the first library for that purpose.
+ */
+public class IncrementalCache
+{
+	// =============== Constants ===============
+
+	public static final String FILE_NAME = ".dyvilc-cache";
+
+	private static final int FILE_VERSION = 1;
+
+	// =============== Classes ===============
+
+	private static final class Entry
+	{
+		final String source; // absolute source file path
+		final String output; // absolute output file path, as passed to FileFinder.process
+		final String packageName; // internal package name
+
+		String       contentHash;
+		String       apiHash;
+		List<String> outputs      = new ArrayList<>(); // relative to the output directory, '/'-separated
+		Set<String>  dependencies = new TreeSet<>(); // absolute source file paths
+
+		Entry(String source, String output, String packageName)
+		{
+			this.source = source;
+			this.output = output;
+			this.packageName = packageName;
+		}
+	}
+
+	// =============== Fields ===============
+
+	private final DyvilCompiler compiler;
+	private final File          outputDir;
+	private final File          cacheFile;
+
+	private final Map<String, Entry>  entries       = new HashMap<>();
+	private final Map<String, String> contentHashes = new HashMap<>();
+	private final Set<String>         compiled      = new HashSet<>();
+	private final Set<String>         invalidated   = new LinkedHashSet<>();
+
+	// =============== Constructors ===============
+
+	public IncrementalCache(DyvilCompiler compiler)
+	{
+		this.compiler = compiler;
+		this.outputDir = compiler.config.getOutputDir();
+		this.cacheFile = new File(this.outputDir, FILE_NAME);
+	}
+
+	// =============== Methods ===============
+
+	// --------------- Loading and Saving ---------------
+
+	public void load()
+	{
+		if (!this.cacheFile.exists())
+		{
+			return;
+		}
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.cacheFile))))
+		{
+			if (in.readShort() != FILE_VERSION)
+			{
+				return; // outdated cache format, compile everything
+			}
+
+			for (int i = 0, count = in.readInt(); i < count; i++)
+			{
+				final Entry entry = new Entry(in.readUTF(), in.readUTF(), in.readUTF());
+				entry.contentHash = in.readUTF();
+				entry.apiHash = in.readUTF();
+
+				for (int j = 0, outputs = in.readInt(); j < outputs; j++)
+				{
+					entry.outputs.add(in.readUTF());
+				}
+				for (int j = 0, dependencies = in.readInt(); j < dependencies; j++)
+				{
+					entry.dependencies.add(in.readUTF());
+				}
+
+				this.entries.put(entry.source, entry);
+			}
+		}
+		catch (IOException ex)
+		{
+			this.entries.clear();
+			this.compiler.warn(I18n.get("incremental.cache.invalid", this.cacheFile));
+		}
+	}
+
+	public void save()
+	{
+		//noinspection ResultOfMethodCallIgnored
+		this.outputDir.mkdirs();
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.cacheFile))))
+		{
+			out.writeShort(FILE_VERSION);
+			out.writeInt(this.entries.size());
+
+			for (Entry entry : this.entries.values())
+			{
+				out.writeUTF(entry.source);
+				out.writeUTF(entry.output);
+				out.writeUTF(entry.packageName);
+				out.writeUTF(entry.contentHash);
+				out.writeUTF(entry.apiHash);
+
+				out.writeInt(entry.outputs.size());
+				for (String output : entry.outputs)
+				{
+					out.writeUTF(output);
+				}
+				out.writeInt(entry.dependencies.size());
+				for (String dependency : entry.dependencies)
+				{
+					out.writeUTF(dependency);
+				}
+			}
+		}
+		catch (IOException ex)
+		{
+			this.compiler.error(I18n.get("incremental.cache.save", this.cacheFile), ex);
+		}
+	}
+
+	// --------------- Source Filtering ---------------
+
+	/**
+	 * Determines whether the given source file has to be compiled. This is the case if the file is new, changed, was
+	 * invalidated by an API change of one of its dependencies, or if any of its outputs or dependencies were deleted.
+	 *
+	 * @param source
+	 * 	the source file
+	 *
+	 * @return {@code true} if the file has to be compiled, {@code false} if its outputs can be used
+	 */
+	public boolean needsCompilation(File source)
+	{
+		final String path = source.getAbsolutePath();
+		if (this.invalidated.contains(path))
+		{
+			return true;
+		}
+
+		final Entry entry = this.entries.get(path);
+		if (entry == null || !entry.contentHash.equals(this.getContentHash(source)))
+		{
+			return true;
+		}
+
+		for (String output : entry.outputs)
+		{
+			if (!new File(this.outputDir, output).exists())
+			{
+				return true;
+			}
+		}
+		for (String dependency : entry.dependencies)
+		{
+			if (!new File(dependency).exists())
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private String getContentHash(File source)
+	{
+		return this.contentHashes.computeIfAbsent(source.getAbsolutePath(), path -> {
+			try
+			{
+				return hash(Files.readAllBytes(source.toPath()));
+			}
+			catch (IOException ex)
+			{
+				return ""; // forces compilation, which reports the error
+			}
+		});
+	}
+
+	/**
+	 * Removes the entries of source files that no longer exist, and deletes their outputs.
+	 */
+	public void removeDeletedSources()
+	{
+		for (Iterator<Entry> iterator = this.entries.values().iterator(); iterator.hasNext(); )
+		{
+			final Entry entry = iterator.next();
+			if (new File(entry.source).exists())
+			{
+				continue;
+			}
+
+			this.deleteOutputs(entry.outputs);
+			iterator.remove();
+		}
+	}
+
+	private void deleteOutputs(Collection<String> outputs)
+	{
+		for (String output : outputs)
+		{
+			//noinspection ResultOfMethodCallIgnored
+			new File(this.outputDir, output).delete();
+		}
+	}
+
+	// --------------- Updating ---------------
+
+	/**
+	 * Updates the entries of the given units after they went through all phases. Units with errors are removed from
+	 * the cache, so that they are compiled again in the next run. If the public API of a unit changed, all units that
+	 * depend on it and were not compiled yet are invalidated.
+	 *
+	 * @param units
+	 * 	the units that were compiled
+	 */
+	public void update(List<ICompilationUnit> units)
+	{
+		final Map<String, String> outputOwners = new HashMap<>();
+		for (Entry entry : this.entries.values())
+		{
+			for (String output : entry.outputs)
+			{
+				outputOwners.put(output, entry.source);
+			}
+		}
+
+		final List<Entry> changedApis = new ArrayList<>();
+
+		for (ICompilationUnit unit : units)
+		{
+			final File source = unit.getFileSource().file();
+			final String path = source.getAbsolutePath();
+
+			this.compiled.add(path);
+			this.invalidated.remove(path);
+
+			final Entry oldEntry = this.entries.remove(path);
+			if (!(unit instanceof SourceHeader) || unit.getMarkers().getErrors() > 0)
+			{
+				continue;
+			}
+
+			final SourceHeader header = (SourceHeader) unit;
+			final Entry entry = new Entry(path, new File(header.outputDirectory, source.getName()).getAbsolutePath(),
+			                              header.getPackage().getInternalName());
+
+			entry.contentHash = this.getContentHash(source);
+			for (File output : header.getOutputFiles())
+			{
+				entry.outputs.add(this.relativize(output));
+			}
+			entry.apiHash = this.computeApiHash(entry.outputs);
+
+			for (ICompilationUnit dependency : this.compiler.scheduler.getUnitDependencies(unit))
+			{
+				entry.dependencies.add(dependency.getFileSource().file().getAbsolutePath());
+			}
+			for (String file : this.compiler.scheduler.getExternalDependencies(unit))
+			{
+				final String owner = outputOwners.get(file);
+				if (owner != null)
+				{
+					entry.dependencies.add(owner);
+				}
+			}
+			entry.dependencies.remove(path);
+
+			if (oldEntry != null)
+			{
+				final Set<String> removedOutputs = new HashSet<>(oldEntry.outputs);
+				removedOutputs.removeAll(entry.outputs);
+				this.deleteOutputs(removedOutputs);
+			}
+
+			if (oldEntry == null || !oldEntry.apiHash.equals(entry.apiHash))
+			{
+				changedApis.add(entry);
+			}
+
+			this.entries.put(path, entry);
+		}
+
+		for (Entry changed : changedApis)
+		{
+			for (Entry entry : this.entries.values())
+			{
+				if (entry.dependencies.contains(changed.source) && !this.compiled.contains(entry.source))
+				{
+					this.invalidated.add(entry.source);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the units that were invalidated by the last {@link #update(List)} to the given file finder, and clears the
+	 * set of invalidated units.
+	 *
+	 * @return {@code true} if any units were added
+	 */
+	public boolean findInvalidatedUnits(FileFinder fileFinder)
+	{
+		if (this.invalidated.isEmpty())
+		{
+			return false;
+		}
+
+		for (String path : this.invalidated)
+		{
+			final Entry entry = this.entries.get(path);
+			fileFinder.process(this.compiler, new File(entry.source), new File(entry.output),
+			                   this.getPackage(entry.packageName));
+		}
+		this.invalidated.clear();
+		return true;
+	}
+
+	private Package getPackage(String internalName)
+	{
+		Package pack = Package.rootPackage;
+		if (internalName.isEmpty())
+		{
+			return pack;
+		}
+
+		for (String part : internalName.split("/"))
+		{
+			pack = pack.createSubPackage(part);
+		}
+		return pack;
+	}
+
+	private String relativize(File output)
+	{
+		return this.outputDir.toPath().relativize(output.toPath()).toString().replace(File.separatorChar, '/');
+	}
+
+	// --------------- Hashing ---------------
+
+	private String computeApiHash(List<String> outputs)
+	{
+		final MessageDigest digest = newDigest();
+		final List<String> sorted = new ArrayList<>(outputs);
+		Collections.sort(sorted);
+
+		for (String output : sorted)
+		{
+			digest.update(output.getBytes());
+
+			final byte[] bytes;
+			try
+			{
+				bytes = Files.readAllBytes(new File(this.outputDir, output).toPath());
+			}
+			catch (IOException ex)
+			{
+				continue; // the missing file causes recompilation in the next run
+			}
+
+			digest.update(output.endsWith(DyvilFileType.CLASS_EXTENSION) ? PublicApiVisitor.strip(bytes) : bytes);
+		}
+
+		return toHex(digest.digest());
+	}
+
+	private static String hash(byte[] bytes)
+	{
+		return toHex(newDigest().digest(bytes));
+	}
+
+	private static MessageDigest newDigest()
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-1");
+		}
+		catch (NoSuchAlgorithmException ex)
+		{
+			throw new Error(ex); // every Java platform has to support SHA-1
+		}
+	}
+
+	private static String toHex(byte[] bytes)
+	{
+		final StringBuilder builder = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes)
+		{
+			builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,81 @@
+package dyvilx.tools.compiler;
+
+import dyvil.lang.Name;
+import dyvilx.tools.compiler.ast.classes.ClassBody;
+import dyvilx.tools.compiler.ast.external.ExternalClass;
+import dyvilx.tools.compiler.ast.method.IMethod;
+import dyvilx.tools.compiler.ast.method.MatchList;
+import dyvilx.tools.compiler.ast.parameter.ArgumentList;
+import dyvilx.tools.compiler.ast.structure.Package;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.junit.Assert.*;
+
+/**
+ * Looks up methods by name in a library class that was not used by the compiled sources, and checks that only the
+ * members with that name are created.
+ */
+public class ExternalMemberLoadingTest
+{
+	private static final String SOURCE = "package ext\n\nclass Main {}\n";
+
+	private static final String CLASS_NAME = "java/util/zip/Adler32";
+
+	private static TestCompilation compilation;
+
+	@BeforeClass
+	public static void compile()
+	{
+		compilation = TestCompilation.compile(TestCompilation.writeSources("ext/Main.dyv", SOURCE));
+	}
+
+	private static void lookup(ClassBody body, String name)
+	{
+		body.getMethodMatches(new MatchList<>(null), null, Name.fromRaw(name), ArgumentList.EMPTY);
+	}
+
+	private static void assertCreated(Collection<IMethod> methods, String... names)
+	{
+		assertFalse(methods.isEmpty());
+		for (IMethod method : methods)
+		{
+			final String name = method.getName().unqualified;
+			assertTrue(name, Arrays.asList(names).contains(name));
+		}
+	}
+
+	@Test
+	public void compilesWithoutErrors()
+	{
+		assertEquals(compilation.output, 0, compilation.exitCode);
+	}
+
+	@Test
+	public void namedLookupCreatesOnlyThatName()
+	{
+		final ExternalClass iclass = (ExternalClass) Package.rootPackage.resolveGlobalClass(CLASS_NAME);
+		assertNotNull(iclass);
+
+		final ClassBody body = iclass.getBody();
+		assertTrue(iclass.hasUnloadedMembers());
+		assertTrue(body.createdMethods().isEmpty());
+
+		lookup(body, "getValue");
+		assertTrue(iclass.hasUnloadedMembers());
+		assertCreated(body.createdMethods(), "getValue");
+
+		// the named method cache was built by the first lookup, members created later must still be found
+		lookup(body, "reset");
+		assertTrue(iclass.hasUnloadedMembers());
+		assertCreated(body.createdMethods(), "getValue", "reset");
+		assertNotNull(body.getMethod(Name.fromRaw("reset")));
+
+		// accessors that are not keyed by name create all remaining members
+		assertTrue(body.methodCount() > 2);
+		assertFalse(iclass.hasUnloadedMembers());
+	}
+}
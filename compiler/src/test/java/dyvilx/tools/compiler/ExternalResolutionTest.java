@@ -0,0 +1,111 @@
+package dyvilx.tools.compiler;
+
+import dyvilx.tools.compiler.ast.classes.ClassBody;
+import dyvilx.tools.compiler.ast.classes.IClass;
+import dyvilx.tools.compiler.ast.generic.ITypeParameter;
+import dyvilx.tools.compiler.ast.generic.TypeParameterList;
+import dyvilx.tools.compiler.ast.method.IMethod;
+import dyvilx.tools.compiler.ast.parameter.IParameter;
+import dyvilx.tools.compiler.ast.structure.Package;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Resolves the members of library classes that were not used by the compiled sources from several threads at once,
+ * and checks that every thread observes the same fully resolved signatures.
+ */
+public class ExternalResolutionTest
+{
+	private static final String SOURCE = "package ext\n\nclass Main {}\n";
+
+	private static final String[] CLASSES = { "dyvil/collection/Iterables", "dyvil/collection/Sets",
+		"dyvil/lang/Optionals" };
+
+	private static final int THREADS = 8;
+
+	private static TestCompilation compilation;
+
+	@BeforeClass
+	public static void compile()
+	{
+		compilation = TestCompilation.compile(TestCompilation.writeSources("ext/Main.dyv", SOURCE));
+	}
+
+	private static String describe(IMethod method)
+	{
+		final StringBuilder builder = new StringBuilder(method.getInternalName());
+
+		final TypeParameterList typeParameters = method.getTypeParameters();
+		for (int i = 0, count = typeParameters == null ? 0 : typeParameters.size(); i < count; i++)
+		{
+			final ITypeParameter typeParameter = typeParameters.get(i);
+			builder.append('<').append(typeParameter.getName()).append(':').append(typeParameter.getUpperBound())
+			       .append(' ').append(typeParameter.getReifiedKind()).append('>');
+		}
+
+		builder.append('(').append(method.getThisType()).append(';');
+		for (IParameter parameter : method.getParameters().getParameters())
+		{
+			builder.append(parameter.getName()).append(':').append(parameter.getType()).append(',');
+		}
+		return builder.append(')').append(method.getType()).toString();
+	}
+
+	private static List<String> describeAll(IClass iclass)
+	{
+		final ClassBody body = iclass.getBody();
+		final List<String> signatures = new ArrayList<>();
+		for (int i = 0, count = body.methodCount(); i < count; i++)
+		{
+			signatures.add(describe(body.getMethod(i)));
+		}
+		return signatures;
+	}
+
+	@Test
+	public void compilesWithoutErrors()
+	{
+		assertEquals(compilation.output, 0, compilation.exitCode);
+	}
+
+	@Test
+	public void concurrentResolution() throws InterruptedException, ExecutionException
+	{
+		final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try
+		{
+			for (String className : CLASSES)
+			{
+				final IClass iclass = Package.rootPackage.resolveGlobalClass(className);
+				assertNotNull(className, iclass);
+
+				final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+				final List<Future<List<String>>> futures = new ArrayList<>();
+				for (int i = 0; i < THREADS; i++)
+				{
+					futures.add(executor.submit(() -> {
+						barrier.await();
+						return describeAll(iclass);
+					}));
+				}
+
+				final List<String> expected = describeAll(iclass);
+				assertFalse(className, expected.isEmpty());
+				for (Future<List<String>> future : futures)
+				{
+					assertEquals(className, expected, future.get());
+				}
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package dyvilx.tools.compiler;
+
+import dyvilx.tools.compiler.sources.IncrementalCache;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compiles the same sources repeatedly with {@code --incremental} and checks which outputs are written again. Outputs
+ * are reset to an old modification time before each recompilation, so that rewritten files can be detected.
+ */
+public class IncrementalCompilationTest
+{
+	private static final String A      = "package inc\n\nclass A {\n\tstatic func value() -> int = 1\n}\n";
+	private static final String A_BODY = "package inc\n\nclass A {\n\tstatic func value() -> int = 2\n}\n";
+	private static final String A_API  = "package inc\n\nclass A {\n\tstatic func value() -> int = 1\n\n"
+	                                     + "\tstatic func other() -> int = 0\n}\n";
+	private static final String B      = "package inc\n\nclass B {\n\tstatic func value() -> int = A.value() + 1\n}\n";
+	private static final String C      = "package inc\n\nclass C {\n\tstatic func value() -> int = 3\n}\n";
+
+	private File sourceDir;
+	private File outputDir;
+
+	@Before
+	public void compileAll() throws ReflectiveOperationException
+	{
+		this.sourceDir = TestCompilation.writeSources("inc/A.dyv", A, "inc/B.dyv", B, "inc/C.dyv", C);
+		this.outputDir = TestCompilation.createTempDir("out");
+
+		final TestCompilation compilation = this.compile();
+		assertTrue(new File(this.outputDir, IncrementalCache.FILE_NAME).exists());
+		assertEquals(2, compilation.invoke("inc.B", "value"));
+	}
+
+	private TestCompilation compile()
+	{
+		final TestCompilation compilation = TestCompilation.fork(this.sourceDir, this.outputDir, "--incremental");
+		assertEquals(compilation.output, 0, compilation.exitCode);
+		return compilation;
+	}
+
+	private TestCompilation recompile()
+	{
+		for (String name : new String[] { "A", "B", "C" })
+		{
+			final File classFile = this.classFile(name);
+			if (classFile.exists())
+			{
+				assertTrue(classFile.setLastModified(0));
+			}
+		}
+		return this.compile();
+	}
+
+	private File classFile(String name)
+	{
+		return new File(this.outputDir, "inc/" + name + ".class");
+	}
+
+	private boolean isRewritten(String name)
+	{
+		return this.classFile(name).lastModified() != 0;
+	}
+
+	@Test
+	public void unchangedSourcesAreNotRecompiled()
+	{
+		this.recompile();
+
+		assertFalse(this.isRewritten("A"));
+		assertFalse(this.isRewritten("B"));
+		assertFalse(this.isRewritten("C"));
+	}
+
+	@Test
+	public void bodyChangeDoesNotRecompileDependents() throws ReflectiveOperationException
+	{
+		TestCompilation.writeSources(this.sourceDir, "inc/A.dyv", A_BODY);
+		final TestCompilation compilation = this.recompile();
+
+		assertTrue(this.isRewritten("A"));
+		assertFalse(this.isRewritten("B"));
+		assertFalse(this.isRewritten("C"));
+		assertEquals(3, compilation.invoke("inc.B", "value"));
+	}
+
+	@Test
+	public void apiChangeRecompilesDependents() throws ReflectiveOperationException
+	{
+		TestCompilation.writeSources(this.sourceDir, "inc/A.dyv", A_API);
+		final TestCompilation compilation = this.recompile();
+
+		assertTrue(this.isRewritten("A"));
+		assertTrue(this.isRewritten("B"));
+		assertFalse(this.isRewritten("C"));
+		assertEquals(0, compilation.invoke("inc.A", "other"));
+		assertEquals(2, compilation.invoke("inc.B", "value"));
+	}
+
+	@Test
+	public void deletedSourceRemovesOutputs()
+	{
+		assertTrue(new File(this.sourceDir, "inc/C.dyv").delete());
+		this.recompile();
+
+		assertFalse(this.classFile("C").exists());
+		assertFalse(this.isRewritten("A"));
+		assertFalse(this.isRewritten("B"));
+	}
+
+	@Test
+	public void deletedOutputIsRecompiled()
+	{
+		assertTrue(this.classFile("C").delete());
+		this.recompile();
+
+		assertTrue(this.classFile("C").exists());
+		assertFalse(this.isRewritten("A"));
+		assertFalse(this.isRewritten("B"));
+	}
+}
@@ -0,0 +1,170 @@
+package dyvilx.tools.compiler;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compiles calls to {@code inline} methods with {@code --inline} and checks which calls are replaced with the body of
+ * the method, and that the inlined code computes the same results.
+ */
+public class InlineTest
+{
+	private static final String LIB = "package inl\n\n"
+	                                  + "class Lib {\n"
+	                                  + "\tprivate static var secret: int = 40\n\n"
+	                                  + "\tstatic inline func sign(x: int) -> int {\n"
+	                                  + "\t\tif x < 0 { return -1 }\n"
+	                                  + "\t\tif x > 0 { return 1 }\n"
+	                                  + "\t\treturn 0\n"
+	                                  + "\t}\n\n"
+	                                  + "\tstatic inline func parse(s: String) -> int {\n"
+	                                  + "\t\ttry {\n"
+	                                  + "\t\t\treturn Integer.parseInt(s)\n"
+	                                  + "\t\t}\n"
+	                                  + "\t\tcatch ex: NumberFormatException {\n"
+	                                  + "\t\t\treturn -1\n"
+	                                  + "\t\t}\n"
+	                                  + "\t}\n\n"
+	                                  + "\tstatic inline func mix(a: long, b: double, c: int) -> double {\n"
+	                                  + "\t\tlet sum = a + c\n"
+	                                  + "\t\tlet scaled = b * 2\n"
+	                                  + "\t\treturn sum + scaled\n"
+	                                  + "\t}\n\n"
+	                                  + "\tstatic inline func add(a: int, b: int) -> int = a + b\n\n"
+	                                  + "\tstatic inline func revealSecret() -> int = secret + 2\n\n"
+	                                  + "\tstatic func ownSecret() -> int = revealSecret()\n"
+	                                  + "}\n\n"
+	                                  + "final class Counter {\n"
+	                                  + "\tvar count: int = 0\n\n"
+	                                  + "\tinline func next() -> int {\n"
+	                                  + "\t\tthis.count += 1\n"
+	                                  + "\t\treturn this.count\n"
+	                                  + "\t}\n"
+	                                  + "}\n";
+
+	private static final String CALLS = "package inl\n\n"
+	                                    + "class Calls {\n"
+	                                    + "\tstatic func signs() -> int = Lib.sign(-5) * 10 + Lib.sign(7)\n\n"
+	                                    + "\tstatic func zeroSign() -> int = Lib.sign(0)\n\n"
+	                                    + "\tstatic func parsed() -> int = Lib.parse(\"42\")\n\n"
+	                                    + "\tstatic func parseFailed() -> int = Lib.parse(\"x\")\n\n"
+	                                    + "\tstatic func parseOnStack() -> int = 1 + Lib.parse(\"41\")\n\n"
+	                                    + "\tstatic func mixed() -> double = Lib.mix(40L, 0.5, 1)\n\n"
+	                                    + "\tstatic func stack() -> int = 20 + Lib.add(10, Lib.add(5, 7))\n\n"
+	                                    + "\tstatic func secret() -> int = Lib.revealSecret()\n\n"
+	                                    + "\tstatic func next(c: Counter) -> int = c.next()\n\n"
+	                                    + "\tstatic func counter() -> int {\n"
+	                                    + "\t\tlet c = Counter()\n"
+	                                    + "\t\tc.next()\n"
+	                                    + "\t\treturn c.next()\n"
+	                                    + "\t}\n"
+	                                    + "}\n";
+
+	private static final String[] SOURCES = { "inl/Lib.dyv", LIB, "inl/Calls.dyv", CALLS };
+
+	private static TestCompilation compilation;
+
+	@BeforeClass
+	public static void compile()
+	{
+		compilation = TestCompilation.compile(TestCompilation.writeSources(SOURCES), "--inline");
+	}
+
+	private static List<String> calls(String method)
+	{
+		return compilation.getMethodCalls("inl/Calls", method);
+	}
+
+	@Test
+	public void compilesWithoutErrors()
+	{
+		assertEquals(compilation.output, 0, compilation.exitCode);
+	}
+
+	@Test
+	public void multipleReturns() throws ReflectiveOperationException
+	{
+		assertFalse(calls("signs()I").contains("inl/Lib.sign(I)I"));
+		assertEquals(-9, compilation.invoke("inl.Calls", "signs"));
+		assertEquals(0, compilation.invoke("inl.Calls", "zeroSign"));
+	}
+
+	@Test
+	public void tryCatch() throws ReflectiveOperationException
+	{
+		final String parse = "inl/Lib.parse(Ljava/lang/String;)I";
+		assertFalse(calls("parsed()I").contains(parse));
+		assertEquals(42, compilation.invoke("inl.Calls", "parsed"));
+		assertEquals(-1, compilation.invoke("inl.Calls", "parseFailed"));
+
+		// exception handlers would clear the operand stack of the caller
+		assertTrue(calls("parseOnStack()I").contains(parse));
+		assertEquals(42, compilation.invoke("inl.Calls", "parseOnStack"));
+	}
+
+	@Test
+	public void wideLocals() throws ReflectiveOperationException
+	{
+		assertFalse(calls("mixed()D").contains("inl/Lib.mix(JDI)D"));
+		assertEquals(42.0, compilation.invoke("inl.Calls", "mixed"));
+	}
+
+	@Test
+	public void nonEmptyStack() throws ReflectiveOperationException
+	{
+		assertFalse(calls("stack()I").contains("inl/Lib.add(II)I"));
+		assertEquals(42, compilation.invoke("inl.Calls", "stack"));
+	}
+
+	@Test
+	public void inaccessibleCallee() throws ReflectiveOperationException
+	{
+		// the body reads a private field, so it can only be inlined into its own class
+		assertTrue(calls("secret()I").contains("inl/Lib.revealSecret()I"));
+		assertFalse(compilation.getMethodCalls("inl/Lib", "ownSecret()I").contains("inl/Lib.revealSecret()I"));
+
+		assertEquals(42, compilation.invoke("inl.Calls", "secret"));
+		assertEquals(42, compilation.invoke("inl.Lib", "ownSecret"));
+	}
+
+	@Test
+	public void receiver() throws ReflectiveOperationException
+	{
+		assertFalse(calls("counter()I").contains("inl/Counter.next()I"));
+		assertEquals(2, compilation.invoke("inl.Calls", "counter"));
+	}
+
+	@Test
+	public void nullReceiver() throws ReflectiveOperationException
+	{
+		final Class<?> counterClass = compilation.loadClass("inl.Counter");
+		assertFalse(calls("next(Linl/Counter;)I").contains("inl/Counter.next()I"));
+
+		try
+		{
+			compilation.loadClass("inl.Calls").getMethod("next", counterClass).invoke(null, (Object) null);
+			fail("inlined call on a null receiver");
+		}
+		catch (InvocationTargetException ex)
+		{
+			assertTrue(ex.getCause() instanceof NullPointerException);
+		}
+	}
+
+	@Test
+	public void disabledByDefault() throws ReflectiveOperationException
+	{
+		final File outputDir = TestCompilation.createTempDir("out");
+		final TestCompilation defaults = TestCompilation.fork(TestCompilation.writeSources(SOURCES), outputDir);
+		assertEquals(defaults.output, 0, defaults.exitCode);
+
+		assertTrue(defaults.getMethodCalls("inl/Calls", "stack()I").contains("inl/Lib.add(II)I"));
+		assertEquals(42, defaults.invoke("inl.Calls", "stack"));
+	}
+}
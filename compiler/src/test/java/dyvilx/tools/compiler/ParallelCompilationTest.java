@@ -0,0 +1,62 @@
+package dyvilx.tools.compiler;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compiles the functional tests with several worker threads and runs the resulting test classes.
+ */
+public class ParallelCompilationTest
+{
+	private static final File SOURCE_DIR = new File("../tests/src/test/dyvil");
+
+	private static TestCompilation compilation;
+
+	@BeforeClass
+	public static void compile()
+	{
+		compilation = TestCompilation.compile(SOURCE_DIR, "--jobs=4");
+	}
+
+	@Test
+	public void compilesWithoutErrors()
+	{
+		assertEquals(compilation.output, 0, compilation.exitCode);
+	}
+
+	@Test
+	public void runsCompiledTests() throws ClassNotFoundException
+	{
+		final File testDir = new File(compilation.outputDir, "dyvil/test/lang");
+		final String[] classFiles = testDir.list((dir, name) -> name.endsWith("Test.class"));
+		assertTrue(classFiles != null && classFiles.length > 0);
+
+		final List<Class<?>> testClasses = new ArrayList<>();
+		for (String classFile : classFiles)
+		{
+			final String className = classFile.substring(0, classFile.length() - ".class".length());
+			testClasses.add(compilation.loadClass("dyvil.test.lang." + className));
+		}
+
+		final Result result = JUnitCore.runClasses(testClasses.toArray(new Class<?>[0]));
+		final StringBuilder failures = new StringBuilder();
+		for (Failure failure : result.getFailures())
+		{
+			failures.append(failure).append('\n');
+		}
+
+		assertFalse(result.getRunCount() == 0);
+		assertEquals(failures.toString(), 0, result.getFailureCount());
+	}
+}
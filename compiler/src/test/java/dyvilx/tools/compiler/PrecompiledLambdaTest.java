@@ -0,0 +1,105 @@
+package dyvilx.tools.compiler;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.function.IntSupplier;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compiles lambda expressions with {@code --precompile-lambdas} and runs the generated {@code <Owner>$Lambda$<n>}
+ * classes.
+ */
+public class PrecompiledLambdaTest
+{
+	private static final String SOURCE = "package lambdas\n\n"
+	                                     + "import java.util.function.{ IntSupplier, IntUnaryOperator }\n\n"
+	                                     + "class Lambdas {\n"
+	                                     + "\tvar offset: int = 0\n\n"
+	                                     + "\tstatic func apply(f: -> int) -> int = f()\n\n"
+	                                     + "\tstatic func map(x: int, f: int -> int) -> int = f(x)\n\n"
+	                                     + "\tstatic func supplier() -> IntSupplier = => 42\n\n"
+	                                     + "\tstatic func capturing() -> IntUnaryOperator {\n"
+	                                     + "\t\tlet a = 40\n"
+	                                     + "\t\treturn x => x + a\n"
+	                                     + "\t}\n\n"
+	                                     + "\tstatic func constant() -> int = apply(=> 42)\n\n"
+	                                     + "\tstatic func parameter() -> int = map(20, x => x * 2 + 2)\n\n"
+	                                     + "\tstatic func captureLocals() -> int {\n"
+	                                     + "\t\tlet a = 40\n"
+	                                     + "\t\tlet b = 2\n"
+	                                     + "\t\treturn apply(=> a + b)\n"
+	                                     + "\t}\n\n"
+	                                     + "\tstatic func captureVar() -> int {\n"
+	                                     + "\t\tvar sum = 0\n"
+	                                     + "\t\tlet add: int -> int = i => { sum += i; sum }\n"
+	                                     + "\t\tadd(40)\n"
+	                                     + "\t\tadd(2)\n"
+	                                     + "\t\treturn sum\n"
+	                                     + "\t}\n\n"
+	                                     + "\tfunc plusOffset() -> int = apply(=> this.offset + 2)\n\n"
+	                                     + "\tstatic func captureThis() -> int {\n"
+	                                     + "\t\tlet lambdas = Lambdas()\n"
+	                                     + "\t\tlambdas.offset = 40\n"
+	                                     + "\t\treturn lambdas.plusOffset()\n"
+	                                     + "\t}\n"
+	                                     + "}\n";
+
+	private static final String LAMBDA_CLASS_PREFIX = "lambdas.Lambdas$Lambda$";
+
+	private static TestCompilation compilation;
+
+	@BeforeClass
+	public static void compile()
+	{
+		compilation = TestCompilation.compile(TestCompilation.writeSources("lambdas/Lambdas.dyv", SOURCE),
+		                                      "--precompile-lambdas");
+	}
+
+	@Test
+	public void compilesWithoutErrors()
+	{
+		assertEquals(compilation.output, 0, compilation.exitCode);
+	}
+
+	@Test
+	public void writesLambdaClasses()
+	{
+		final File dir = new File(compilation.outputDir, "lambdas");
+		final String[] lambdaClasses = dir.list((d, name) -> name.matches("Lambdas\\$Lambda\\$\\d+\\.class"));
+		assertNotNull(lambdaClasses);
+		assertEquals(7, lambdaClasses.length);
+	}
+
+	@Test
+	public void lambdaObjectsArePrecompiledClasses() throws ReflectiveOperationException
+	{
+		final IntSupplier supplier = (IntSupplier) compilation.invoke("lambdas.Lambdas", "supplier");
+		assertTrue(supplier.getClass().getName().startsWith(LAMBDA_CLASS_PREFIX));
+		assertEquals(42, supplier.getAsInt());
+
+		final IntUnaryOperator capturing = (IntUnaryOperator) compilation.invoke("lambdas.Lambdas", "capturing");
+		assertTrue(capturing.getClass().getName().startsWith(LAMBDA_CLASS_PREFIX));
+		assertNotSame(supplier.getClass(), capturing.getClass());
+		assertEquals(42, capturing.applyAsInt(2));
+		assertEquals(50, capturing.applyAsInt(10));
+	}
+
+	@Test
+	public void nonCapturing() throws ReflectiveOperationException
+	{
+		assertEquals(42, compilation.invoke("lambdas.Lambdas", "constant"));
+		assertEquals(42, compilation.invoke("lambdas.Lambdas", "parameter"));
+	}
+
+	@Test
+	public void capturing() throws ReflectiveOperationException
+	{
+		assertEquals(42, compilation.invoke("lambdas.Lambdas", "captureLocals"));
+		assertEquals(42, compilation.invoke("lambdas.Lambdas", "captureVar"));
+		assertEquals(42, compilation.invoke("lambdas.Lambdas", "captureThis"));
+	}
+}
@@ -0,0 +1,152 @@
+package dyvilx.tools.compiler;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compiles sources with {@code --profile} and checks the phases, units and counters in the written profile and the
+ * table of slowest units in the log.
+ */
+public class ProfileTest
+{
+	private static final String[] SOURCES = {
+		"prof/A.dyv", "package prof\n\nclass A {\n\tfunc f() -> int = 1\n}\n", //
+		"prof/B.dyv", "package prof\n\nclass B {\n\tfunc g() -> java.util.List<String> = new java.util.ArrayList<String>"
+		              + "\n\tfunc h() -> int = new A().f()\n}\n",
+	};
+
+	private static final Pattern UNIT_PATTERN = Pattern.compile(
+		"\"file\": \"(.*?)\",\\s*\"total\": \\{ \"runs\": (\\d+), \"wallNanos\": (\\d+), \"cpuNanos\": (\\d+), "
+		+ "\"allocatedBytes\": (\\d+), \"markers\": (\\d+) }");
+
+	private static TestCompilation compilation;
+	private static String          profile;
+
+	@BeforeClass
+	public static void compile() throws IOException
+	{
+		final File profileFile = new File(TestCompilation.createTempDir("profile"), "profile.json");
+		compilation = TestCompilation.compile(TestCompilation.writeSources(SOURCES), "--profile=" + profileFile);
+		profile = new String(Files.readAllBytes(profileFile.toPath()), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return the totals of each unit in the given profile, by file name
+	 */
+	private static Map<String, long[]> unitTotals(String profile)
+	{
+		final Map<String, long[]> totals = new HashMap<>();
+		final Matcher matcher = UNIT_PATTERN.matcher(profile);
+		while (matcher.find())
+		{
+			final long[] values = new long[5];
+			for (int i = 0; i < 5; i++)
+			{
+				values[i] = Long.parseLong(matcher.group(i + 2));
+			}
+			totals.put(new File(matcher.group(1)).getName(), values);
+		}
+		return totals;
+	}
+
+	@Test
+	public void compilesWithoutErrors()
+	{
+		assertEquals(compilation.output, 0, compilation.exitCode);
+		assertTrue(compilation.output, compilation.output.contains("Wrote compilation profile"));
+	}
+
+	@Test
+	public void recordsPhases()
+	{
+		for (String phase : new String[] { "TOKENIZE", "PARSE", "RESOLVE_TYPES", "RESOLVE", "CHECK_TYPES", "COMPILE" })
+		{
+			assertTrue(phase, Pattern.compile("\\{ \"name\": \"" + phase + "\", \"wallNanos\": \\d+ }").matcher(profile)
+			                         .find());
+		}
+		assertTrue(profile, profile.contains("\"cpuTimeSupported\": "));
+		assertTrue(profile, profile.contains("\"allocatedBytesSupported\": "));
+	}
+
+	@Test
+	public void recordsUnits()
+	{
+		final Map<String, long[]> totals = unitTotals(profile);
+		assertEquals(profile, 2, totals.size());
+
+		for (String file : new String[] { "A.dyv", "B.dyv" })
+		{
+			final long[] total = totals.get(file);
+			assertNotNull(file, total);
+			assertTrue(file, total[0] >= 5); // runs, at least one per per-unit phase
+			assertTrue(file, total[1] > 0); // wall time
+			assertEquals(file, 0, total[4]); // markers
+
+			// every unit lists its phases
+			final int unit = profile.indexOf(file);
+			final int end = profile.indexOf("\n    }", unit);
+			assertTrue(file, profile.substring(unit, end).contains("\"PARSE\": { \"runs\": 1"));
+		}
+	}
+
+	@Test
+	public void countsExternalClasses()
+	{
+		final Matcher matcher = Pattern.compile("\"loadExternalClass\": (\\d+)").matcher(profile);
+		assertTrue(profile, matcher.find());
+		assertTrue(profile, Long.parseLong(matcher.group(1)) > 0);
+		assertTrue(profile, profile.contains("\"externalClassCache\": { \"hits\": "));
+		assertTrue(profile, profile.contains("\"globalExternalClassCache\": { \"hits\": "));
+	}
+
+	@Test
+	public void logsSlowestUnits()
+	{
+		final String output = compilation.output;
+		assertTrue(output, output.contains("Slowest 2 compilation units:"));
+		assertTrue(output, output.contains("Slowest Phase"));
+		assertTrue(output, output.contains("A.dyv"));
+		assertTrue(output, output.contains("B.dyv"));
+	}
+
+	@Test
+	public void countsMarkersOfFailedUnits() throws IOException
+	{
+		final File sourceDir = TestCompilation.writeSources("prof/C.dyv",
+		                                                    "package prof\n\nclass C {\n\tfunc f() -> Missing = null\n}\n",
+		                                                    "prof/D.dyv", "package prof\n\nclass D {}\n");
+		final File profileFile = new File(TestCompilation.createTempDir("profile"), "profile.json");
+		final TestCompilation compilation = TestCompilation.fork(sourceDir, TestCompilation.createTempDir("out"),
+		                                                         "--profile=" + profileFile);
+
+		// the profile is written even though the compilation failed
+		assertNotEquals(compilation.output, 0, compilation.exitCode);
+		final Map<String, long[]> totals = unitTotals(
+			new String(Files.readAllBytes(profileFile.toPath()), StandardCharsets.UTF_8));
+		assertTrue(compilation.output, totals.get("C.dyv")[4] > 0);
+		assertEquals(compilation.output, 0, totals.get("D.dyv")[4]);
+	}
+
+	@Test
+	public void reportsUnwritableProfile()
+	{
+		final File sourceDir = TestCompilation.writeSources("prof/E.dyv", "package prof\n\nclass E {}\n");
+		final File directory = TestCompilation.createTempDir("profile");
+		final TestCompilation compilation = TestCompilation.fork(sourceDir, TestCompilation.createTempDir("out"),
+		                                                         "--profile=" + directory);
+
+		assertTrue(compilation.output, compilation.output.contains("Failed to write compilation profile"));
+		assertTrue(compilation.output, compilation.output.contains("Slowest 1 compilation units:"));
+	}
+}
@@ -0,0 +1,204 @@
+package dyvilx.tools.compiler;
+
+import dyvil.source.position.SourcePosition;
+import dyvilx.tools.compiler.ast.header.ClassUnit;
+import dyvilx.tools.compiler.ast.header.ICompilationUnit;
+import dyvilx.tools.compiler.ast.header.SourceHeader;
+import dyvilx.tools.compiler.ast.method.ICallableMember;
+import dyvilx.tools.compiler.ast.method.IMethod;
+import dyvilx.tools.compiler.phase.ICompilerPhase;
+import dyvilx.tools.parsing.TextEdit;
+import dyvilx.tools.parsing.marker.Marker;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Edits the body of a method in the middle of a checked compilation unit with {@link ClassUnit#reparse(TextEdit)}, and
+ * checks the markers and positions of the following members, and that the updated unit still compiles and runs.
+ */
+public class ReparseTest
+{
+	private static final String[] SOURCES = {
+		"reparse/Shift.dyv", "package reparse\n\nclass Shift {\n" //
+		                     + "\tstatic func first() -> int {\n\t\treturn 1\n\t}\n\n" // lines 4 - 6
+		                     + "\tstatic func middle() -> int {\n\t\treturn 2\n\t}\n\n" // lines 8 - 10
+		                     + "\tstatic func last() -> String {\n\t\treturn missing\n\t}\n\n" // lines 12 - 14
+		                     + "\tstatic func end() -> int = 4\n}\n", // line 16
+		"reparse/SameLine.dyv", "package reparse\n\nclass SameLine {\n"
+		                        + "\tstatic func f() -> int { return 2 }; static func g() -> String = missing\n}\n",
+		"reparse/Signature.dyv", "package reparse\n\nclass Signature {\n"
+		                         + "\tstatic func sum(first: int = 1, rest: int...) -> int {\n\t\treturn first\n\t}\n\n"
+		                         + "\tstatic func call() -> int = sum() + sum(2, 3)\n}\n",
+	};
+
+	/**
+	 * Keeps the tokens of all units and stops after the {@code CHECK} phase, like an editor that updates the units
+	 * afterwards.
+	 */
+	private static final class EditorCompiler extends DyvilCompiler
+	{
+		@Override
+		protected boolean applyPhases()
+		{
+			this.phases.remove(ICompilerPhase.CLEANUP);
+			this.phases.remove(ICompilerPhase.COMPILE);
+			for (ICompilationUnit unit : this.fileFinder.units)
+			{
+				((SourceHeader) unit).setRetainTokens(true);
+			}
+			return super.applyPhases();
+		}
+
+		@Override
+		public void shutdown()
+		{
+			// the libraries stay loaded until the units were updated
+		}
+
+		void close()
+		{
+			super.shutdown();
+		}
+	}
+
+	private static EditorCompiler  compiler;
+	private static TestCompilation compilation;
+
+	@BeforeClass
+	public static void compile()
+	{
+		compiler = new EditorCompiler();
+		compilation = TestCompilation.compile(compiler, TestCompilation.writeSources(SOURCES),
+		                                      TestCompilation.createTempDir("out"));
+	}
+
+	@AfterClass
+	public static void close()
+	{
+		compiler.close();
+	}
+
+	private static ClassUnit unit(String fileName)
+	{
+		for (ICompilationUnit unit : compiler.fileFinder.units)
+		{
+			if (unit.getFileSource().file().getName().equals(fileName))
+			{
+				return (ClassUnit) unit;
+			}
+		}
+		throw new AssertionError(fileName);
+	}
+
+	private static IMethod method(ClassUnit unit, String name)
+	{
+		for (IMethod method : unit.getClasses().get(0).getBody().methods())
+		{
+			if (method.getName().unqualified.equals(name))
+			{
+				return method;
+			}
+		}
+		throw new AssertionError(name);
+	}
+
+	private static ICallableMember edit(ClassUnit unit, String oldText, String newText)
+	{
+		final int offset = unit.getFileSource().text().indexOf(oldText);
+		assertTrue(oldText, offset >= 0);
+		return unit.reparse(new TextEdit(offset, oldText.length(), newText));
+	}
+
+	private static List<SourcePosition> markerPositions(ClassUnit unit)
+	{
+		final List<SourcePosition> positions = new ArrayList<>();
+		for (Marker marker : unit.getMarkers())
+		{
+			positions.add(marker.getPosition());
+		}
+		return positions;
+	}
+
+	@Test
+	public void shiftsFollowingMembersAndMarkers()
+	{
+		final ClassUnit unit = unit("Shift.dyv");
+
+		// the only marker reports the unresolved identifier in the last method
+		final List<SourcePosition> markers = markerPositions(unit);
+		assertEquals(markers.toString(), 1, markers.size());
+		final SourcePosition marker = markers.get(0);
+		assertEquals(13, marker.startLine());
+
+		final IMethod middle = method(unit, "middle");
+		assertSame(middle, edit(unit, "return 2", "let x = 40\n\t\treturn x + 2"));
+
+		// everything after the body of the middle method moved down by one line
+		final SourcePosition shifted = markerPositions(unit).get(0);
+		assertEquals(14, shifted.startLine());
+		assertEquals(marker.startColumn(), shifted.startColumn());
+		assertEquals(marker.endColumn(), shifted.endColumn());
+
+		assertEquals(4, method(unit, "first").getPosition().startLine());
+		assertEquals(8, middle.getPosition().startLine());
+		assertEquals(13, method(unit, "last").getPosition().startLine());
+		assertEquals(17, method(unit, "end").getPosition().startLine());
+
+		// markers of the edited body are replaced, the others are kept
+		edit(unit, "return x + 2", "return \"s\"");
+		assertEquals(2, markerPositions(unit).size());
+		edit(unit, "return \"s\"", "return x + 2");
+		assertEquals(1, markerPositions(unit).size());
+		assertEquals(14, markerPositions(unit).get(0).startLine());
+
+		// removing the line again restores the original positions
+		edit(unit, "let x = 40\n\t\treturn x + 2", "return 2");
+		assertEquals(marker.startLine(), markerPositions(unit).get(0).startLine());
+		assertEquals(12, method(unit, "last").getPosition().startLine());
+		assertEquals(16, method(unit, "end").getPosition().startLine());
+	}
+
+	@Test
+	public void shiftsColumnsOnTheSameLine()
+	{
+		final ClassUnit unit = unit("SameLine.dyv");
+		final SourcePosition marker = markerPositions(unit).get(0);
+		final SourcePosition g = method(unit, "g").getPosition();
+		final SourcePosition f = method(unit, "f").getPosition();
+
+		assertSame(method(unit, "f"), edit(unit, "return 2", "return 2 + 40"));
+
+		final SourcePosition shifted = markerPositions(unit).get(0);
+		assertEquals(marker.startLine(), shifted.startLine());
+		assertEquals(marker.startColumn() + 5, shifted.startColumn());
+		assertEquals(marker.endColumn() + 5, shifted.endColumn());
+		assertEquals(g.startColumn() + 5, method(unit, "g").getPosition().startColumn());
+		assertEquals(f.startColumn(), method(unit, "f").getPosition().startColumn());
+	}
+
+	@Test
+	public void doesNotResolveTheSignatureAgain() throws ReflectiveOperationException
+	{
+		final ClassUnit unit = unit("Signature.dyv");
+		final IMethod sum = method(unit, "sum");
+		assertTrue(sum.isVariadic());
+		assertTrue(markerPositions(unit).isEmpty());
+
+		// the parameters with default values and the variadic parameter are resolved once, only the body is replaced
+		assertSame(sum, edit(unit, "return first", "return first + 10"));
+		assertSame(sum, edit(unit, "return first + 10", "return first + 20"));
+		assertTrue(markerPositions(unit).toString(), markerPositions(unit).isEmpty());
+		assertEquals(2, sum.getParameters().size());
+		assertTrue(sum.isVariadic());
+
+		unit.cleanup();
+		unit.compile();
+		assertEquals((1 + 20) + (2 + 20), compilation.invoke("reparse.Signature", "call"));
+	}
+}
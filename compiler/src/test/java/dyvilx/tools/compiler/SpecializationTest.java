@@ -0,0 +1,214 @@
+package dyvilx.tools.compiler;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compiles methods with {@code @Specialized} type parameters and checks the generated primitive variants, the
+ * variants overridden by primitive-bound subclasses and implemented by lambda classes, and which method each call site
+ * invokes.
+ */
+public class SpecializationTest
+{
+	private static final String SOURCE = "package spec\n\n"
+	                                     + "@FunctionalInterface\n"
+	                                     + "interface Fn<@Specialized type -P, @Specialized type +R> {\n"
+	                                     + "\tfunc apply(_ p: P) -> R\n"
+	                                     + "}\n\n"
+	                                     + "class Inc implements Fn<int, int> {\n"
+	                                     + "\toverride func apply(_ p: int) -> int = p + 1\n"
+	                                     + "}\n\n"
+	                                     + "class Box<@Specialized type T> {\n"
+	                                     + "\tfunc get(_ x: T) -> T = x\n"
+	                                     + "}\n\n"
+	                                     + "class IntBox extends Box<int> {\n"
+	                                     + "\toverride func get(_ x: int) -> int = super.get(x) + 1\n"
+	                                     + "}\n\n"
+	                                     + "class Calls {\n"
+	                                     + "\tstatic func callInt(f: Fn<int, int>) -> int = f.apply(41)\n\n"
+	                                     + "\tstatic func callStr(f: Fn<String, String>) -> String = f.apply(\"a\")\n\n"
+	                                     + "\tstatic func inc() -> int = callInt(Inc())\n\n"
+	                                     + "\tstatic func lambda() -> int = callInt(x => x * 2)\n\n"
+	                                     + "\tstatic func string() -> String = callStr(s => s + \"b\")\n\n"
+	                                     + "\tstatic func box() -> int = IntBox().get(41)\n\n"
+	                                     + "\tstatic func length(f: Fn<String, int>) -> int = f.apply(\"abc\")\n\n"
+	                                     + "\tstatic func describe(f: Fn<int, String>) -> String = f.apply(7)\n\n"
+	                                     + "\tstatic func lengthLambda() -> int = length(s => s.length())\n\n"
+	                                     + "\tstatic func describeLambda() -> String = describe(i => \"#\\(i)\")\n\n"
+	                                     + "\tstatic func doubler() -> Fn<int, int> = x => x * 2\n\n"
+	                                     + "\tstatic func adder(n: int) -> Fn<int, int> = x => x + n\n\n"
+	                                     + "\tstatic func describer() -> Fn<int, String> = i => \"#\\(i)\"\n"
+	                                     + "}\n";
+
+	private static final String GENERIC_APPLY = "spec/Fn.apply(Ljava/lang/Object;)Ljava/lang/Object;";
+	private static final String INT_APPLY     = "spec/Fn.apply$II(I)I";
+
+	private static File            sourceDir;
+	private static TestCompilation compilation;
+
+	@BeforeClass
+	public static void compile()
+	{
+		sourceDir = TestCompilation.writeSources("spec/Spec.dyv", SOURCE);
+		compilation = TestCompilation.compile(sourceDir);
+	}
+
+	@Test
+	public void compilesWithoutErrors()
+	{
+		assertEquals(compilation.output, 0, compilation.exitCode);
+	}
+
+	@Test
+	public void variantIsEmitted() throws ReflectiveOperationException
+	{
+		final Method variant = compilation.loadClass("spec.Fn").getDeclaredMethod("apply$II", int.class);
+		assertEquals(int.class, variant.getReturnType());
+		assertTrue(variant.isSynthetic());
+		assertFalse(Modifier.isAbstract(variant.getModifiers()));
+
+		// the variant boxes its argument and delegates to the generic method
+		final List<String> calls = compilation.getMethodCalls("spec/Fn", "apply$II(I)I");
+		assertTrue(calls.toString(), calls.contains(GENERIC_APPLY));
+
+		// every combination of the default specialized types
+		compilation.loadClass("spec.Fn").getDeclaredMethod("apply$JD", long.class);
+		compilation.loadClass("spec.Box").getDeclaredMethod("get$F", float.class);
+
+		// and of the specialized types with reference types, except for the generic method itself
+		assertEquals(int.class, compilation.loadClass("spec.Fn").getDeclaredMethod("apply$LI", Object.class)
+		                                   .getReturnType());
+		assertEquals(Object.class, compilation.loadClass("spec.Fn").getDeclaredMethod("apply$IL", int.class)
+		                                      .getReturnType());
+		for (Method method : compilation.loadClass("spec.Fn").getDeclaredMethods())
+		{
+			assertNotEquals("apply$LL", method.getName());
+		}
+	}
+
+	@Test
+	public void primitiveSubclassOverridesVariant() throws ReflectiveOperationException
+	{
+		final Method variant = compilation.loadClass("spec.Inc").getDeclaredMethod("apply$II", int.class);
+		assertEquals(int.class, variant.getReturnType());
+
+		// the override calls the primitive method without boxing
+		final List<String> calls = compilation.getMethodCalls("spec/Inc", "apply$II(I)I");
+		assertEquals(1, calls.size());
+		assertEquals("spec/Inc.apply(I)I", calls.get(0));
+
+		compilation.loadClass("spec.IntBox").getDeclaredMethod("get$I", int.class);
+	}
+
+	@Test
+	public void primitiveCallSiteInvokesVariant() throws ReflectiveOperationException
+	{
+		final List<String> calls = compilation.getMethodCalls("spec/Calls", "callInt(Lspec/Fn;)I");
+		assertTrue(calls.toString(), calls.contains(INT_APPLY));
+		assertFalse(calls.toString(), calls.contains(GENERIC_APPLY));
+
+		assertEquals(42, compilation.invoke("spec.Calls", "inc"));
+		assertEquals(82, compilation.invoke("spec.Calls", "lambda"));
+	}
+
+	@Test
+	public void referenceCallSiteInvokesGenericMethod() throws ReflectiveOperationException
+	{
+		final List<String> calls = compilation.getMethodCalls("spec/Calls", "callStr(Lspec/Fn;)Ljava/lang/String;");
+		assertTrue(calls.toString(), calls.contains(GENERIC_APPLY));
+		assertFalse(calls.toString(), calls.contains(INT_APPLY));
+
+		assertEquals("ab", compilation.invoke("spec.Calls", "string"));
+	}
+
+	@Test
+	public void superCallInvokesGenericMethod() throws ReflectiveOperationException
+	{
+		final List<String> calls = compilation.getMethodCalls("spec/IntBox", "get(I)I");
+		assertTrue(calls.toString(), calls.contains("spec/Box.get(Ljava/lang/Object;)Ljava/lang/Object;"));
+		assertFalse(calls.toString(), calls.contains("spec/Box.get$I(I)I"));
+
+		assertEquals(42, compilation.invoke("spec.Calls", "box"));
+	}
+
+	@Test
+	public void referenceTypeArgumentInvokesVariant() throws ReflectiveOperationException
+	{
+		final List<String> lengthCalls = compilation.getMethodCalls("spec/Calls", "length(Lspec/Fn;)I");
+		assertTrue(lengthCalls.toString(), lengthCalls.contains("spec/Fn.apply$LI(Ljava/lang/Object;)I"));
+		assertFalse(lengthCalls.toString(), lengthCalls.contains(GENERIC_APPLY));
+
+		final List<String> describeCalls = compilation.getMethodCalls("spec/Calls",
+		                                                              "describe(Lspec/Fn;)Ljava/lang/String;");
+		assertTrue(describeCalls.toString(), describeCalls.contains("spec/Fn.apply$IL(I)Ljava/lang/Object;"));
+		assertFalse(describeCalls.toString(), describeCalls.contains(GENERIC_APPLY));
+
+		assertEquals(3, compilation.invoke("spec.Calls", "lengthLambda"));
+		assertEquals("#7", compilation.invoke("spec.Calls", "describeLambda"));
+	}
+
+	// --------------- Lambda Classes ---------------
+
+	/**
+	 * Checks that the class of the given lambda object declares the variant itself, instead of inheriting the default
+	 * method that boxes the arguments and calls the generic method.
+	 */
+	private static Method assertDeclaresVariant(Object lambda, String name, Class<?>... parameterTypes)
+		throws ReflectiveOperationException
+	{
+		final Method variant = lambda.getClass().getMethod(name, parameterTypes);
+		assertEquals(lambda.getClass(), variant.getDeclaringClass());
+		return variant;
+	}
+
+	@Test
+	public void lambdaImplementsVariant() throws ReflectiveOperationException
+	{
+		final Object doubler = compilation.invoke("spec.Calls", "doubler");
+		assertEquals(42, assertDeclaresVariant(doubler, "apply$II", int.class).invoke(doubler, 21));
+
+		final Object adder = compilation.loadClass("spec.Calls").getMethod("adder", int.class).invoke(null, 40);
+		assertEquals(42, assertDeclaresVariant(adder, "apply$II", int.class).invoke(adder, 2));
+
+		final Object describer = compilation.invoke("spec.Calls", "describer");
+		assertEquals("#7", assertDeclaresVariant(describer, "apply$IL", int.class).invoke(describer, 7));
+
+		// the generic method is still implemented
+		final Method apply = compilation.loadClass("spec.Fn").getMethod("apply", Object.class);
+		assertEquals(42, apply.invoke(doubler, 21));
+		assertEquals("#7", apply.invoke(describer, 7));
+	}
+
+	@Test
+	public void precompiledLambdaImplementsVariant() throws ReflectiveOperationException
+	{
+		final TestCompilation precompiled = TestCompilation.fork(sourceDir, TestCompilation.createTempDir("out"),
+		                                                         "--precompile-lambdas");
+		assertEquals(precompiled.output, 0, precompiled.exitCode);
+
+		final Object doubler = precompiled.invoke("spec.Calls", "doubler");
+		assertTrue(doubler.getClass().getName(), doubler.getClass().getName().startsWith("spec.Calls$Lambda$"));
+		assertEquals(42, assertDeclaresVariant(doubler, "apply$II", int.class).invoke(doubler, 21));
+
+		// the variant calls the lambda method without going through the generic method
+		final String internalName = doubler.getClass().getName().replace('.', '/');
+		final List<String> calls = precompiled.getMethodCalls(internalName, "apply$II(I)I");
+		assertEquals(calls.toString(), 1, calls.size());
+		assertTrue(calls.get(0), calls.get(0).startsWith("spec/Calls."));
+		assertTrue(calls.get(0), calls.get(0).endsWith("(I)I"));
+
+		final Object adder = precompiled.loadClass("spec.Calls").getMethod("adder", int.class).invoke(null, 40);
+		assertEquals(42, assertDeclaresVariant(adder, "apply$II", int.class).invoke(adder, 2));
+
+		final Object describer = precompiled.invoke("spec.Calls", "describer");
+		assertEquals("#7", assertDeclaresVariant(describer, "apply$IL", int.class).invoke(describer, 7));
+		assertEquals("#8", precompiled.loadClass("spec.Fn").getMethod("apply", Object.class).invoke(describer, 8));
+	}
+}
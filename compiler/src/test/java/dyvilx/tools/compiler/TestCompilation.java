@@ -0,0 +1,280 @@
+package dyvilx.tools.compiler;
+
+import dyvilx.tools.asm.ClassReader;
+import dyvilx.tools.asm.ClassVisitor;
+import dyvilx.tools.asm.MethodVisitor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Runs the compiler on a source directory and gives access to the generated classes. The compiler keeps global state
+ * in static fields, so each test class should compile its sources only once (the test task forks a JVM per class).
+ */
+public final class TestCompilation
+{
+	public final File   sourceDir;
+	public final File   outputDir;
+	public final int    exitCode;
+	public final String output;
+
+	private ClassLoader classLoader;
+
+	private TestCompilation(File sourceDir, File outputDir, int exitCode, String output)
+	{
+		this.sourceDir = sourceDir;
+		this.outputDir = outputDir;
+		this.exitCode = exitCode;
+		this.output = output;
+	}
+
+	// =============== Static Methods ===============
+
+	/**
+	 * Writes the given sources to a new temporary directory.
+	 *
+	 * @param files
+	 * 	pairs of relative file names and file contents
+	 *
+	 * @return the source directory
+	 */
+	public static File writeSources(String... files)
+	{
+		final File sourceDir = createTempDir("src");
+		writeSources(sourceDir, files);
+		return sourceDir;
+	}
+
+	public static void writeSources(File sourceDir, String... files)
+	{
+		for (int i = 0; i < files.length; i += 2)
+		{
+			final File file = new File(sourceDir, files[i]);
+			file.getParentFile().mkdirs();
+			try
+			{
+				Files.write(file.toPath(), files[i + 1].getBytes(StandardCharsets.UTF_8));
+			}
+			catch (IOException ex)
+			{
+				throw new UncheckedIOException(ex);
+			}
+		}
+	}
+
+	public static File createTempDir(String prefix)
+	{
+		try
+		{
+			final File dir = Files.createTempDirectory("dyvil-" + prefix).toFile();
+			dir.deleteOnExit();
+			return dir;
+		}
+		catch (IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	public static TestCompilation compile(File sourceDir, String... options)
+	{
+		return compile(sourceDir, createTempDir("out"), options);
+	}
+
+	public static TestCompilation compile(File sourceDir, File outputDir, String... options)
+	{
+		return compile(new DyvilCompiler(), sourceDir, outputDir, options);
+	}
+
+	/**
+	 * Runs the given compiler, e.g. a subclass that keeps the compilation units for further inspection.
+	 */
+	public static TestCompilation compile(DyvilCompiler compiler, File sourceDir, File outputDir, String... options)
+	{
+		final List<String> arguments = arguments(sourceDir, outputDir, options);
+
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final int exitCode = compiler.run(System.in, output, output, arguments.toArray(new String[0]));
+		return new TestCompilation(sourceDir, outputDir, exitCode, new String(output.toByteArray(),
+		                                                                       StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Runs the compiler in a new JVM. Unlike {@link #compile(File, File, String...)}, this can be used any number of
+	 * times in the same test class, e.g. to compile the same sources repeatedly.
+	 */
+	public static TestCompilation fork(File sourceDir, File outputDir, String... options)
+	{
+		final List<String> command = new ArrayList<>();
+		command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(Main.class.getName());
+		command.addAll(arguments(sourceDir, outputDir, options));
+
+		try
+		{
+			final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+			final ByteArrayOutputStream output = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[4096];
+			try (InputStream in = process.getInputStream())
+			{
+				for (int read; (read = in.read(buffer)) >= 0; )
+				{
+					output.write(buffer, 0, read);
+				}
+			}
+
+			final int exitCode = process.waitFor();
+			return new TestCompilation(sourceDir, outputDir, exitCode, new String(output.toByteArray(),
+			                                                                       StandardCharsets.UTF_8));
+		}
+		catch (IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static List<String> arguments(File sourceDir, File outputDir, String... options)
+	{
+		final List<String> arguments = new ArrayList<>();
+		arguments.add("compile");
+		arguments.add("--source-dirs=" + sourceDir.getPath());
+		arguments.add("--output-dir=" + outputDir.getPath());
+		arguments.add("--classpath=" + testClassPath());
+		arguments.addAll(Arrays.asList(options));
+		return arguments;
+	}
+
+	/**
+	 * @return the locations of JUnit and Hamcrest, so that compiled sources can use them
+	 */
+	private static String testClassPath()
+	{
+		return location("org.junit.Test") + File.pathSeparatorChar + location("org.hamcrest.Matcher");
+	}
+
+	private static String location(String className)
+	{
+		try
+		{
+			return Class.forName(className).getProtectionDomain().getCodeSource().getLocation().getPath();
+		}
+		catch (ClassNotFoundException ex)
+		{
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	// =============== Methods ===============
+
+	public boolean isSuccessful()
+	{
+		return this.exitCode == 0;
+	}
+
+	public File getClassFile(String internalName)
+	{
+		return new File(this.outputDir, internalName + ".class");
+	}
+
+	public byte[] getClassBytes(String internalName)
+	{
+		try
+		{
+			return Files.readAllBytes(this.getClassFile(internalName).toPath());
+		}
+		catch (IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	/**
+	 * Returns the methods invoked by a method of a generated class.
+	 *
+	 * @param internalName
+	 * 	the internal name of the class
+	 * @param method
+	 * 	the name and descriptor of the method, e.g. {@code apply(I)I}
+	 *
+	 * @return the invoked methods in the order of the instructions, in the format {@code owner.name(descriptor)}
+	 */
+	public List<String> getMethodCalls(String internalName, String method)
+	{
+		final List<String> calls = new ArrayList<>();
+		final MethodVisitor methodVisitor = visitor(MethodVisitor.class, (m, args) -> {
+			if ("visitMethodInsn".equals(m.getName()))
+			{
+				calls.add(args[1] + "." + args[2] + args[3]);
+			}
+			return null;
+		});
+		final ClassVisitor classVisitor = visitor(ClassVisitor.class, (m, args) -> {
+			final boolean match = "visitMethod".equals(m.getName()) && method.equals(args[1] + (String) args[2]);
+			return match ? methodVisitor : null;
+		});
+
+		new ClassReader(this.getClassBytes(internalName)).accept(classVisitor, ClassReader.SKIP_FRAMES);
+		return calls;
+	}
+
+	private static <T> T visitor(Class<T> type, BiFunction<Method, Object[], Object> handler)
+	{
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, m, args) -> {
+			final Object result = handler.apply(m, args);
+			// visitCode returns whether the code should be visited
+			return result == null && m.getReturnType() == boolean.class ? Boolean.TRUE : result;
+		}));
+	}
+
+	public ClassLoader getClassLoader()
+	{
+		if (this.classLoader != null)
+		{
+			return this.classLoader;
+		}
+
+		try
+		{
+			final URL[] urls = { this.outputDir.toURI().toURL() };
+			return this.classLoader = new URLClassLoader(urls, TestCompilation.class.getClassLoader());
+		}
+		catch (MalformedURLException ex)
+		{
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	public Class<?> loadClass(String name) throws ClassNotFoundException
+	{
+		return Class.forName(name, true, this.getClassLoader());
+	}
+
+	/**
+	 * Invokes a static method without parameters of the given class.
+	 */
+	public Object invoke(String className, String methodName) throws ReflectiveOperationException
+	{
+		return this.loadClass(className).getMethod(methodName).invoke(null);
+	}
+}
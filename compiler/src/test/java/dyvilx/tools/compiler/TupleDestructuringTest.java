@@ -0,0 +1,133 @@
+package dyvilx.tools.compiler;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compiles tuples that are only destructured, by {@code match} expressions and {@code let (a, b) = ...} declarations,
+ * with {@code --inline}, and checks that tuples returned by inlined calls are neither created nor boxed.
+ */
+public class TupleDestructuringTest
+{
+	private static final String LIB = "package tup\n\n"
+	                                  + "class Lib {\n"
+	                                  + "\tstatic inline func divMod(a: int, b: int) -> (int, int) = (a / b, a % b)\n\n"
+	                                  + "\tstatic inline func minMax(a: long, b: long) -> (long, long) {\n"
+	                                  + "\t\tif a < b { return (a, b) }\n"
+	                                  + "\t\treturn (b, a)\n"
+	                                  + "\t}\n\n"
+	                                  + "\tstatic func pair(a: int, b: String) -> (int, String) = (a, b)\n"
+	                                  + "}\n";
+
+	private static final String CALLS = "package tup\n\n"
+	                                    + "import dyvil.util.Timing\n\n"
+	                                    + "class Calls {\n"
+	                                    + "\tstatic func matched() -> int = Lib.divMod(47, 5) match {\n"
+	                                    + "\t\tcase (0, _) => -1\n"
+	                                    + "\t\tcase (var q, var r) => q * 10 + r\n"
+	                                    + "\t}\n\n"
+	                                    + "\tstatic func declared() -> long {\n"
+	                                    + "\t\tlet (min, max) = Lib.minMax(40L, 2L)\n"
+	                                    + "\t\treturn max * 100 + min\n"
+	                                    + "\t}\n\n"
+	                                    + "\tstatic func literal() -> int {\n"
+	                                    + "\t\tvar (a, _, c: int) = (40, \"unused\", 1)\n"
+	                                    + "\t\ta += c\n"
+	                                    + "\t\treturn a + c\n"
+	                                    + "\t}\n\n"
+	                                    + "\tstatic func notInlined() -> int {\n"
+	                                    + "\t\tlet (n, s) = Lib.pair(40, \"xy\")\n"
+	                                    + "\t\treturn n + s.length()\n"
+	                                    + "\t}\n\n"
+	                                    + "\tstatic func timed() -> int {\n"
+	                                    + "\t\tlet (result, time) = Timing.nanoTimed { 40 + 2 }\n"
+	                                    + "\t\tif time < 0 { return -1 }\n"
+	                                    + "\t\treturn result\n"
+	                                    + "\t}\n"
+	                                    + "}\n";
+
+	private static final String[] SOURCES = { "tup/Lib.dyv", LIB, "tup/Calls.dyv", CALLS };
+
+	private static final String TUPLE_INIT = "dyvil/tuple/Tuple$Of2.<init>(Ljava/lang/Object;Ljava/lang/Object;)V";
+
+	private static TestCompilation compilation;
+
+	@BeforeClass
+	public static void compile()
+	{
+		compilation = TestCompilation.compile(TestCompilation.writeSources(SOURCES), "--inline");
+	}
+
+	private static List<String> calls(String method)
+	{
+		return compilation.getMethodCalls("tup/Calls", method);
+	}
+
+	private static void assertNotBoxed(List<String> calls)
+	{
+		for (String call : calls)
+		{
+			assertFalse(calls.toString(), call.endsWith(".valueOf(I)Ljava/lang/Integer;"));
+			assertFalse(calls.toString(), call.endsWith(".valueOf(J)Ljava/lang/Long;"));
+		}
+	}
+
+	@Test
+	public void compilesWithoutErrors()
+	{
+		assertEquals(compilation.output, 0, compilation.exitCode);
+	}
+
+	@Test
+	public void matchInlinedCall() throws ReflectiveOperationException
+	{
+		final List<String> calls = calls("matched()I");
+		assertFalse(calls.contains("tup/Lib.divMod(II)Ldyvil/tuple/Tuple$Of2;"));
+		assertFalse(calls.contains(TUPLE_INIT));
+		assertNotBoxed(calls);
+		assertEquals(92, compilation.invoke("tup.Calls", "matched"));
+	}
+
+	@Test
+	public void declareFromInlinedCall() throws ReflectiveOperationException
+	{
+		// both returns of the method store the values instead of creating a tuple
+		final List<String> calls = calls("declared()J");
+		assertFalse(calls.contains(TUPLE_INIT));
+		assertNotBoxed(calls);
+		assertEquals(4002L, compilation.invoke("tup.Calls", "declared"));
+	}
+
+	@Test
+	public void declareFromTupleExpression() throws ReflectiveOperationException
+	{
+		final List<String> calls = calls("literal()I");
+		for (String call : calls)
+		{
+			assertFalse(calls.toString(), call.startsWith("dyvil/tuple/Tuple$Of3.<init>"));
+		}
+		assertNotBoxed(calls);
+		assertEquals(42, compilation.invoke("tup.Calls", "literal"));
+	}
+
+	@Test
+	public void declareFromCall() throws ReflectiveOperationException
+	{
+		// the tuple is returned by the method, so its fields are read
+		assertTrue(calls("notInlined()I").contains("tup/Lib.pair(ILjava/lang/String;)Ldyvil/tuple/Tuple$Of2;"));
+		assertEquals(42, compilation.invoke("tup.Calls", "notInlined"));
+	}
+
+	@Test
+	public void declareFromTiming() throws ReflectiveOperationException
+	{
+		// the method and the lambda expression are both inlined from the library
+		final List<String> calls = calls("timed()I");
+		assertFalse(calls.toString(), calls.contains(TUPLE_INIT));
+		assertEquals(42, compilation.invoke("tup.Calls", "timed"));
+	}
+}
@@ -0,0 +1,150 @@
+package dyvilx.tools.compiler.daemon;
+
+import dyvilx.tools.compiler.TestCompilation;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.EnumSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Starts a {@link CompilerDaemon} on a free port and checks the access token, the daemon file and the handling of the
+ * working directory of the client.
+ */
+public class CompilerDaemonTest
+{
+	private static File   daemonFile;
+	private static int    port;
+	private static String token;
+
+	@BeforeClass
+	public static void startDaemon() throws IOException, InterruptedException
+	{
+		daemonFile = new File(TestCompilation.createTempDir("daemon"), "compiler-daemon");
+
+		final CompilerDaemon daemon = new CompilerDaemon(0, daemonFile, new PrintStream(new ByteArrayOutputStream()));
+		final Thread thread = new Thread(() -> {
+			try
+			{
+				daemon.run();
+			}
+			catch (IOException ex)
+			{
+				throw new UncheckedIOException(ex);
+			}
+		});
+		thread.setDaemon(true);
+		thread.start();
+
+		for (int i = 0; i < 500 && !daemonFile.exists(); i++)
+		{
+			Thread.sleep(10);
+		}
+
+		final String[] contents = new String(Files.readAllBytes(daemonFile.toPath()), StandardCharsets.UTF_8).split(" ");
+		port = Integer.parseInt(contents[0]);
+		token = contents[1];
+	}
+
+	/**
+	 * Sends a raw request and returns the exit code; the error output is appended to the given builder.
+	 */
+	private static int request(String token, String workingDirectory, StringBuilder errors, String... args)
+		throws IOException
+	{
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port))
+		{
+			final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+			out.writeUTF(token);
+			out.writeUTF(workingDirectory);
+			out.writeInt(args.length);
+			for (String arg : args)
+			{
+				out.writeUTF(arg);
+			}
+			out.flush();
+
+			final DataInputStream in = new DataInputStream(socket.getInputStream());
+			while (true)
+			{
+				final byte type = in.readByte();
+				if (type == CompilerDaemon.FRAME_EXIT)
+				{
+					return in.readInt();
+				}
+
+				final byte[] bytes = new byte[in.readInt()];
+				in.readFully(bytes);
+				if (type == CompilerDaemon.FRAME_ERROR)
+				{
+					errors.append(new String(bytes, StandardCharsets.UTF_8));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void daemonFileIsPrivate() throws IOException
+	{
+		assertEquals(64, token.length());
+
+		if (Files.getFileStore(daemonFile.toPath()).supportsFileAttributeView("posix"))
+		{
+			assertEquals(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE),
+			             Files.getPosixFilePermissions(daemonFile.toPath()));
+		}
+	}
+
+	@Test
+	public void rejectsInvalidToken() throws IOException
+	{
+		final StringBuilder errors = new StringBuilder();
+		assertEquals(1, request("invalid", daemonFile.getParent(), errors, "--help"));
+		assertFalse(errors.length() == 0);
+
+		assertEquals(1, DaemonClient.compile(port, "", new ByteArrayOutputStream(), new ByteArrayOutputStream()));
+	}
+
+	@Test
+	public void rejectsRelativeWorkingDirectory() throws IOException
+	{
+		final StringBuilder errors = new StringBuilder();
+		assertEquals(1, request(token, "relative", errors, "compile"));
+		assertTrue(errors.toString(), errors.indexOf("relative") >= 0);
+	}
+
+	@Test
+	public void resolvesRelativePathsAgainstClient() throws IOException
+	{
+		final File workingDirectory = TestCompilation.createTempDir("client");
+		TestCompilation.writeSources(new File(workingDirectory, "src"), "rel/Main.dyv",
+		                             "package rel\n\nclass Main {}\n");
+
+		final StringBuilder errors = new StringBuilder();
+		final int exitCode = request(token, workingDirectory.getAbsolutePath(), errors, "compile", "--source-dirs=src",
+		                             "--output-dir=out");
+
+		assertEquals(errors.toString(), 0, exitCode);
+		assertTrue(new File(workingDirectory, "out/rel/Main.class").exists());
+		assertFalse(new File("out/rel/Main.class").exists());
+	}
+
+	@Test
+	public void clientReadsDaemonFile() throws IOException
+	{
+		final ByteArrayOutputStream err = new ByteArrayOutputStream();
+		final File missing = new File(daemonFile.getParentFile(), "missing");
+		final int exitCode = DaemonClient.compile(daemonFile, new ByteArrayOutputStream(), err, "--source-dirs",
+		                                          missing.getAbsolutePath());
+
+		// the request was accepted, but the compiler found no sources
+		assertEquals(err.toString(), 0, exitCode);
+	}
+}
@@ -0,0 +1,94 @@
+package dyvilx.tools.compiler.library;
+
+import dyvilx.tools.compiler.TestCompilation;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a directory library finds files and packages that were written after its index was built, such as new
+ * classes in the output directory of an incremental build.
+ */
+public class FileLibraryTest
+{
+	private static final long OLD = System.currentTimeMillis() - 3_600_000L;
+
+	private File        root;
+	private FileLibrary library;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		this.root = TestCompilation.createTempDir("lib");
+		write("a/B.class");
+
+		// pretend that the directories were last changed long before the library is loaded
+		new File(this.root, "a").setLastModified(OLD);
+		this.root.setLastModified(OLD);
+
+		this.library = new FileLibrary(this.root);
+		this.library.loadLibrary();
+	}
+
+	private void write(String path) throws IOException
+	{
+		final File file = new File(this.root, path);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), new byte[] { 1 });
+	}
+
+	private boolean canRead(String path) throws IOException
+	{
+		try (InputStream stream = this.library.getInputStream(path))
+		{
+			return stream != null;
+		}
+	}
+
+	@Test
+	public void indexedFiles() throws IOException
+	{
+		assertTrue(this.canRead("a/B.class"));
+		assertFalse(this.canRead("a/Missing.class"));
+		assertFalse(this.canRead("missing/Missing.class"));
+		assertTrue(this.library.containsPackage("", "a"));
+		assertFalse(this.library.containsPackage("", "missing"));
+	}
+
+	@Test
+	public void fileWrittenAfterLoading() throws IOException
+	{
+		write("a/C.class");
+
+		assertTrue(this.canRead("a/C.class"));
+		assertEquals("[B.class, C.class]", this.library.listFileNames("a").sorted().collect(Collectors.toList())
+		                                               .toString());
+	}
+
+	@Test
+	public void packageCreatedAfterLoading() throws IOException
+	{
+		write("a/d/E.class");
+
+		assertTrue(this.library.containsPackage("a", "d"));
+		assertTrue(this.canRead("a/d/E.class"));
+		assertTrue(this.library.listPackageNames("a").anyMatch("d"::equals));
+	}
+
+	@Test
+	public void unmodifiedDirectoryIsNotListed() throws IOException
+	{
+		// the directory looks unchanged since the index was built, so the index is trusted
+		write("a/F.class");
+		new File(this.root, "a").setLastModified(OLD);
+
+		assertFalse(this.canRead("a/F.class"));
+	}
+}
@@ -0,0 +1,70 @@
+package dyvilx.tools.parsing;
+
+import dyvilx.tools.parsing.token.IToken;
+
+import java.util.Iterator;
+
+import static dyvilx.tools.parsing.lexer.Tokens.*;
+import static org.junit.Assert.*;
+
+public final class TokenAssert
+{
+	private TokenAssert()
+	{
+		// no instances
+	}
+
+	/**
+	 * Asserts that both token lists contain tokens with the same types, positions and values, including inferred
+	 * semicolons.
+	 */
+	public static void assertSameTokens(String message, TokenList expected, TokenList actual)
+	{
+		final Iterator<IToken> expectedIterator = expected.iterator();
+		final Iterator<IToken> actualIterator = actual.iterator();
+
+		for (int index = 0; expectedIterator.hasNext(); index++)
+		{
+			final IToken expectedToken = expectedIterator.next();
+			assertTrue(message + ": missing token " + index + " " + expectedToken, actualIterator.hasNext());
+			assertSameToken(message + ": token " + index, expectedToken, actualIterator.next());
+		}
+		assertFalse(message + ": additional tokens", actualIterator.hasNext());
+	}
+
+	public static void assertSameToken(String message, IToken expected, IToken actual)
+	{
+		final int type = expected.type();
+		assertEquals(message + " type", type, actual.type());
+		assertEquals(message + " inferred", expected.isInferred(), actual.isInferred());
+		assertEquals(message + " start line", expected.startLine(), actual.startLine());
+		assertEquals(message + " end line", expected.endLine(), actual.endLine());
+		assertEquals(message + " start column", expected.startColumn(), actual.startColumn());
+		assertEquals(message + " end column", expected.endColumn(), actual.endColumn());
+
+		if (isIdentifier(type))
+		{
+			assertEquals(message + " name", expected.nameValue(), actual.nameValue());
+		}
+		else if ((type & (STRING | SINGLE_QUOTED_STRING | VERBATIM_STRING | VERBATIM_CHAR)) != 0)
+		{
+			assertEquals(message + " string", expected.stringValue(), actual.stringValue());
+		}
+		else if (type == INT)
+		{
+			assertEquals(message + " int", expected.intValue(), actual.intValue());
+		}
+		else if (type == LONG)
+		{
+			assertEquals(message + " long", expected.longValue(), actual.longValue());
+		}
+		else if (type == FLOAT)
+		{
+			assertEquals(message + " float", expected.floatValue(), actual.floatValue(), 0F);
+		}
+		else if (type == DOUBLE)
+		{
+			assertEquals(message + " double", expected.doubleValue(), actual.doubleValue(), 0D);
+		}
+	}
+}
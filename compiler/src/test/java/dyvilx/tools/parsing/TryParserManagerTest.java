@@ -0,0 +1,180 @@
+package dyvilx.tools.parsing;
+
+import dyvilx.tools.compiler.parser.DyvilSymbols;
+import dyvilx.tools.compiler.util.Markers;
+import dyvilx.tools.parsing.lexer.BaseSymbols;
+import dyvilx.tools.parsing.lexer.DyvilLexer;
+import dyvilx.tools.parsing.lexer.Tokens;
+import dyvilx.tools.parsing.marker.MarkerList;
+import dyvilx.tools.parsing.token.IToken;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs speculative parses with and without memo keys, and checks which failures are recorded in the {@link ParseMemo}
+ * of the enclosing parser manager and how often the parser sees the tokens.
+ */
+public class TryParserManagerTest
+{
+	private static final Object KEY       = new Object();
+	private static final Object OTHER_KEY = new Object();
+
+	/**
+	 * Parses identifiers up to a semicolon, and fails at any other token. The memo key contract holds, since the
+	 * outcome only depends on the tokens.
+	 */
+	private static class IdentifierListParser extends Parser
+	{
+		int parsedTokens;
+
+		@Override
+		public void parse(IParserManager pm, IToken token)
+		{
+			this.parsedTokens++;
+
+			final int type = token.type();
+			if (type == BaseSymbols.SEMICOLON)
+			{
+				pm.popParser();
+				return;
+			}
+			if (!Tokens.isIdentifier(type))
+			{
+				pm.report(token, "parser.unexpected");
+			}
+		}
+
+		@Override
+		public boolean reportErrors()
+		{
+			// fail on the first error instead of reporting it
+			return false;
+		}
+	}
+
+	private static ParserManager parserManager(String code)
+	{
+		final MarkerList markers = new MarkerList(Markers.INSTANCE);
+		final TokenList tokens = new DyvilLexer(markers, DyvilSymbols.INSTANCE).tokenize(code);
+		return new ParserManager(DyvilSymbols.INSTANCE, tokens.iterator(), markers);
+	}
+
+	private static IToken first(ParserManager pm)
+	{
+		return pm.getTokens().next();
+	}
+
+	private static boolean tryParse(ParserManager pm, Parser parser, IToken token, Object key)
+	{
+		return new TryParserManager(DyvilSymbols.INSTANCE).tryParse(pm, parser, token, TryParserManager.EXIT_ON_ROOT,
+		                                                            key);
+	}
+
+	@Test
+	public void failureIsMemoized()
+	{
+		final ParserManager pm = parserManager("a b 1 c;");
+		final IToken first = first(pm);
+		final ParseMemo memo = pm.getMemo();
+
+		final IdentifierListParser parser = new IdentifierListParser();
+		assertFalse(tryParse(pm, parser, first, KEY));
+		assertEquals(3, parser.parsedTokens);
+		assertEquals(3, memo.getRescannedTokens());
+
+		// the tokens are rewound to the start token
+		assertSame(first, pm.getTokens().next());
+
+		// the second attempt fails without running the parser
+		final IdentifierListParser second = new IdentifierListParser();
+		assertFalse(tryParse(pm, second, first, KEY));
+		assertEquals(0, second.parsedTokens);
+		assertEquals(1, memo.getMemoHits());
+		assertEquals(3, memo.getSkippedTokens());
+		assertEquals(3, memo.getRescannedTokens());
+		assertSame(first, pm.getTokens().next());
+	}
+
+	@Test
+	public void failureIsOnlyMemoizedForItsKeyAndToken()
+	{
+		final ParserManager pm = parserManager("a b 1 c;");
+		final IToken first = first(pm);
+		final ParseMemo memo = pm.getMemo();
+
+		assertFalse(tryParse(pm, new IdentifierListParser(), first, KEY));
+
+		final IdentifierListParser otherKey = new IdentifierListParser();
+		assertFalse(tryParse(pm, otherKey, first, OTHER_KEY));
+		assertEquals(3, otherKey.parsedTokens);
+
+		final IdentifierListParser otherToken = new IdentifierListParser();
+		assertFalse(tryParse(pm, otherToken, first.next(), KEY));
+		assertEquals(2, otherToken.parsedTokens);
+
+		// attempts without a key are counted, but never recorded
+		final IdentifierListParser noKey = new IdentifierListParser();
+		assertFalse(tryParse(pm, noKey, first.next(), null));
+		assertFalse(tryParse(pm, noKey, first.next(), null));
+		assertEquals(4, noKey.parsedTokens);
+
+		assertEquals(0, memo.getMemoHits());
+		assertEquals(3 + 3 + 2 + 2 + 2, memo.getRescannedTokens());
+	}
+
+	@Test
+	public void successIsNotMemoized()
+	{
+		final ParserManager pm = parserManager("a b; c");
+		final IToken first = first(pm);
+		final ParseMemo memo = pm.getMemo();
+
+		final IdentifierListParser parser = new IdentifierListParser();
+		assertTrue(tryParse(pm, parser, first, KEY));
+		assertEquals(3, parser.parsedTokens);
+
+		// the tokens continue after the parsed ones
+		assertEquals("c", pm.getTokens().next().stringValue());
+
+		final IdentifierListParser again = new IdentifierListParser();
+		assertTrue(tryParse(pm, again, first, KEY));
+		assertEquals(3, again.parsedTokens);
+		assertEquals(0, memo.getMemoHits());
+		assertEquals(0, memo.getRescannedTokens());
+	}
+
+	@Test
+	public void nestedAttemptsShareTheMemo()
+	{
+		final ParserManager pm = parserManager("a b 1 c;");
+		final IToken first = first(pm);
+		final IToken second = first.next();
+		final boolean[] nestedResult = { true };
+
+		// on its first token, the outer parser speculatively parses the following tokens with the nested try manager
+		final IdentifierListParser outer = new IdentifierListParser()
+		{
+			@Override
+			public void parse(IParserManager pm, IToken token)
+			{
+				if (this.parsedTokens == 0)
+				{
+					nestedResult[0] = new TryParserManager(DyvilSymbols.INSTANCE)
+						                  .tryParse(pm, new IdentifierListParser(), token.next(),
+						                            TryParserManager.EXIT_ON_ROOT, OTHER_KEY);
+				}
+				super.parse(pm, token);
+			}
+		};
+
+		assertFalse(tryParse(pm, outer, first, KEY));
+		assertFalse(nestedResult[0]);
+
+		// both failures were recorded in the memo of the root parser manager
+		final ParseMemo memo = pm.getMemo();
+		assertTrue(memo.hasFailed(KEY, first));
+		assertTrue(memo.hasFailed(OTHER_KEY, second));
+		assertFalse(memo.hasFailed(OTHER_KEY, first));
+	}
+}
@@ -0,0 +1,195 @@
+package dyvilx.tools.parsing.lexer;
+
+import dyvil.lang.Name;
+import dyvilx.tools.compiler.parser.DyvilSymbols;
+import dyvilx.tools.compiler.parser.SemicolonInference;
+import dyvilx.tools.compiler.util.Markers;
+import dyvilx.tools.parsing.TokenList;
+import dyvilx.tools.parsing.marker.MarkerList;
+import dyvilx.tools.parsing.token.*;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static dyvilx.tools.parsing.TokenAssert.assertSameTokens;
+import static org.junit.Assert.*;
+
+/**
+ * Compares the tokens stored in a {@link TokenBuffer}, including the semicolons inferred by index, with the linked
+ * token objects the lexer created before tokens were buffered.
+ */
+public class BufferedLexerTest
+{
+	private static final File[] SOURCE_DIRS = {
+		new File("../tests/src/test/dyvil"), new File("../library/src/main/dyvil")
+	};
+
+	/**
+	 * A token list that stores every token as a linked token object, like the lexer did before tokens were buffered.
+	 */
+	private static final class LinkedTokenList extends TokenList
+	{
+		@Override
+		public void appendSymbol(Symbols symbols, int type, int line, int startColumn)
+		{
+			this.append(new SymbolToken(symbols, type, line, startColumn));
+		}
+
+		@Override
+		public void appendIdentifier(Name name, int type, int line, int startColumn, int endColumn)
+		{
+			this.append(new IdentifierToken(name, type, line, startColumn, endColumn));
+		}
+
+		@Override
+		public void appendString(String value, int type, int startLine, int endLine, int startColumn, int endColumn)
+		{
+			this.append(new StringToken(value, type, startLine, endLine, startColumn, endColumn));
+		}
+
+		@Override
+		public void appendInt(int value, int line, int startColumn, int endColumn)
+		{
+			this.append(new IntToken(value, line, startColumn, endColumn));
+		}
+
+		@Override
+		public void appendLong(long value, int line, int startColumn, int endColumn)
+		{
+			this.append(new LongToken(value, line, startColumn, endColumn));
+		}
+
+		@Override
+		public void appendFloat(float value, int line, int startColumn, int endColumn)
+		{
+			this.append(new FloatToken(value, line, startColumn, endColumn));
+		}
+
+		@Override
+		public void appendDouble(double value, int line, int startColumn, int endColumn)
+		{
+			this.append(new DoubleToken(value, line, startColumn, endColumn));
+		}
+	}
+
+	private static TokenList lexBuffered(String code)
+	{
+		final TokenList tokens = new DyvilLexer(new MarkerList(Markers.INSTANCE), DyvilSymbols.INSTANCE).tokenize(code);
+		assertTrue(tokens.isCompact());
+
+		SemicolonInference.inferSemicolons(tokens);
+		return tokens;
+	}
+
+	private static TokenList lexLinked(String code)
+	{
+		final DyvilLexer lexer = new DyvilLexer(new MarkerList(Markers.INSTANCE), DyvilSymbols.INSTANCE);
+		final TokenList tokens = new LinkedTokenList();
+
+		// lex into our list, the way sub-lexers append to the list of the enclosing lexer
+		lexer.tokens = tokens;
+		lexer.subLexer = true;
+		lexer.tokenize(code, 0, 1, 0);
+		tokens.append(new EndToken(lexer.getCursor(), lexer.getLine()));
+		assertFalse(tokens.isCompact());
+
+		SemicolonInference.inferSemicolons(tokens);
+		return tokens;
+	}
+
+	private static void assertSameLexing(String name, String code)
+	{
+		assertSameTokens(name, lexLinked(code), lexBuffered(code));
+	}
+
+	@Test
+	public void literals()
+	{
+		assertSameLexing("literals", "let a = 1\nlet b = 2L\nlet c = 3.5F\nlet d = 4.25\nlet e = 0xFF\n"
+		                             + "let f = 'c'\nlet g = @\"verbatim\"\nlet h = @'v'\n");
+	}
+
+	@Test
+	public void identifiers()
+	{
+		assertSameLexing("identifiers", "func `special name`(x: int) -> int = x +++ 1\n"
+		                                 + "let y = a.b?.c!!.d\n_ = `multi\nline`\n");
+	}
+
+	@Test
+	public void stringInterpolation()
+	{
+		assertSameLexing("stringInterpolation", "let s = \"a\\(b)c\\(\"d\\(e + f(g))\")h\"\nprint s\n"
+		                                         + "let t = \"multi\nline \\(x)\n\"\n");
+	}
+
+	@Test
+	public void semicolonInference()
+	{
+		assertSameLexing("semicolonInference", "class A {\n\tfunc f() -> int {\n\t\tlet x = 1\n\t\t\t+ 2\n\t\tx\n"
+		                                        + "\t}\n\n\tlet y = [\n\t\t1,\n\t\t2\n\t]\n}\n");
+	}
+
+	@Test
+	public void inferenceKeepsBuffer()
+	{
+		final TokenList tokens = new DyvilLexer(new MarkerList(Markers.INSTANCE), DyvilSymbols.INSTANCE)
+			                         .tokenize("a\nb\n\nc");
+		final TokenBuffer buffer = tokens.getBuffer();
+		final IToken first = tokens.first();
+
+		SemicolonInference.inferSemicolons(tokens);
+
+		// the semicolons are inserted into the lexed buffer, and the views created before are replaced
+		assertSame(buffer, tokens.getBuffer());
+		assertEquals(5, buffer.size());
+		assertTrue(buffer.isInferred(1));
+		assertTrue(buffer.isInferred(3));
+		assertNotSame(first, tokens.first());
+
+		int count = 0;
+		for (IToken token = tokens.first(); token.type() != Tokens.EOF; token = token.next())
+		{
+			assertSame(token, token.next().prev());
+			count++;
+		}
+		assertEquals(5, count);
+	}
+
+	@Test
+	public void emptyAndInvalid()
+	{
+		assertSameLexing("empty", "");
+		assertSameLexing("whitespace", "\n\n\t\n");
+		assertSameLexing("unclosed", "let s = \"abc\nlet t = 'x");
+		assertSameLexing("invalid", "let i = 99999999999\nlet j = 1.2.3\n");
+	}
+
+	@Test
+	public void sourceFiles() throws IOException
+	{
+		int count = 0;
+		for (File sourceDir : SOURCE_DIRS)
+		{
+			final List<Path> files;
+			try (Stream<Path> stream = Files.walk(sourceDir.toPath()))
+			{
+				files = stream.filter(path -> path.toString().endsWith(".dyv")).collect(Collectors.toList());
+			}
+
+			for (Path file : files)
+			{
+				assertSameLexing(file.toString(), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+				count++;
+			}
+		}
+		assertTrue(count > 0);
+	}
+}
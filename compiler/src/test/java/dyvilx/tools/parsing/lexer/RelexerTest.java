@@ -0,0 +1,136 @@
+package dyvilx.tools.parsing.lexer;
+
+import dyvilx.tools.compiler.parser.DyvilSymbols;
+import dyvilx.tools.compiler.parser.SemicolonInference;
+import dyvilx.tools.compiler.util.Markers;
+import dyvilx.tools.parsing.TextEdit;
+import dyvilx.tools.parsing.TokenList;
+import dyvilx.tools.parsing.marker.MarkerList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static dyvilx.tools.parsing.TokenAssert.assertSameTokens;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that re-lexing a token list after an edit gives the same tokens, positions and inferred semicolons as lexing
+ * the new text from scratch, and that undoing the edit restores the original tokens.
+ */
+@RunWith(Parameterized.class)
+public class RelexerTest
+{
+	private static final String METHOD = "\tfunc g() -> String = \"g: \\(this.f(1)) and \\(2)\"\n";
+
+	private static final String CLASS = "class A {\n\tfunc f(x: int) -> int {\n\t\tlet y = x * 2\n\t\treturn y + 1\n"
+	                                    + "\t}\n\n" + METHOD + "}\n";
+
+	private static final String STRINGS = "let s = \"a\\(b + c)d\"\nlet t = \"x\\(\"y\\(z)\")\"\nlet u = 1\n";
+
+	private static final String LINES = "let a = b\n\t+ c\nlet d = [\n\t1,\n\t2\n]\nprint(a, d)\n";
+
+	private final String   name;
+	private final String   oldText;
+	private final TextEdit edit;
+
+	public RelexerTest(String name, String oldText, TextEdit edit)
+	{
+		this.name = name;
+		this.oldText = oldText;
+		this.edit = edit;
+	}
+
+	/**
+	 * @return a test case that removes {@code removedLength} characters at the first occurrence of {@code anchor} in
+	 * {@code text} and inserts {@code insertedText}
+	 */
+	private static Object[] edit(String name, String text, String anchor, int removedLength, String insertedText)
+	{
+		final int offset = text.indexOf(anchor);
+		if (offset < 0)
+		{
+			throw new IllegalArgumentException(name + ": anchor not found");
+		}
+		return new Object[] { name, text, new TextEdit(offset, removedLength, insertedText) };
+	}
+
+	@Parameters(name = "{0}")
+	public static List<Object[]> cases()
+	{
+		return Arrays.asList(
+			// identifiers and literals
+			edit("rename identifier", CLASS, "y = x", 1, "yy"),
+			edit("change number", CLASS, "2\n", 1, "2.5"),
+			edit("insert statement", CLASS, "\t\treturn", 0, "\t\tprint(y)\n"),
+			edit("delete member", CLASS, METHOD, METHOD.length(), ""),
+			edit("insert at start", CLASS, "class", 0, "// comment\n"),
+			edit("delete at end", CLASS, "\n}\n", 3, ""),
+			edit("replace all", CLASS, "class", CLASS.length(), "let x = 1\n"),
+			edit("start block comment", CLASS, "\t\tlet y", 0, "/* "),
+			edit("backtick identifier", CLASS, "x * 2", 1, "`x\ny`"),
+
+			// string interpolations
+			edit("edit interpolated expression", STRINGS, "b + c", 1, "bb"),
+			edit("edit string part", STRINGS, "d\"", 1, "ddd"),
+			edit("insert interpolation", STRINGS, "d\"", 0, "\\(e)"),
+			edit("remove interpolation", STRINGS, "\\(b + c)", 8, ""),
+			edit("edit nested interpolation", STRINGS, "z)", 1, "w + v"),
+			edit("unclose string", STRINGS, "d\"", 2, "d"),
+			edit("close string", STRINGS, "let u", 0, "\"\n"),
+			edit("newline in string", STRINGS, "a\\(", 1, "a\n"),
+			edit("newline in interpolation", STRINGS, "+ c)", 0, "\n"),
+			edit("interpolation in method", CLASS, "\\(2)", 4, "\\(3 + 4)"),
+
+			// newlines before later tokens
+			edit("insert newline", LINES, "+ c", 1, "+\n"),
+			edit("remove newline before operator", LINES, "\n\t+ c", 2, " "),
+			edit("remove newline before statement", LINES, "\nlet d", 1, " "),
+			edit("insert newline in list", LINES, "1,", 2, "1\n,"),
+			edit("insert blank lines", LINES, "print", 0, "\n\n\n"),
+			edit("join all lines", LINES, "\n]", 2, "]"),
+			edit("insert semicolon", LINES, "\nprint", 0, ";"));
+	}
+
+	private static TokenList lex(String text)
+	{
+		final TokenList tokens = new DyvilLexer(new MarkerList(Markers.INSTANCE), DyvilSymbols.INSTANCE).tokenize(text);
+		SemicolonInference.inferSemicolons(tokens);
+		return tokens;
+	}
+
+	private static void relex(TokenList tokens, String oldText, String newText, TextEdit edit)
+	{
+		final int reused = new DyvilLexer(new MarkerList(Markers.INSTANCE), DyvilSymbols.INSTANCE)
+			                   .relex(tokens, oldText, newText, edit, SemicolonInference::inferSemicolon);
+		assertTrue(reused >= 0);
+	}
+
+	@Test
+	public void relexMatchesFullLex()
+	{
+		final String newText = this.edit.apply(this.oldText);
+		final TokenList tokens = lex(this.oldText);
+
+		relex(tokens, this.oldText, newText, this.edit);
+		assertSameTokens(this.name, lex(newText), tokens);
+		assertTrue(tokens.isCompact());
+	}
+
+	@Test
+	public void undoRestoresTokens()
+	{
+		final String newText = this.edit.apply(this.oldText);
+		final TokenList tokens = lex(this.oldText);
+		relex(tokens, this.oldText, newText, this.edit);
+
+		final String removedText = this.oldText.substring(this.edit.getOffset(), this.edit.getOldEnd());
+		final TextEdit undo = new TextEdit(this.edit.getOffset(), this.edit.getInsertedText().length(), removedText);
+		relex(tokens, newText, this.oldText, undo);
+
+		assertSameTokens(this.name + " (undo)", lex(this.oldText), tokens);
+	}
+}
@@ -0,0 +1,133 @@
+package dyvil.collection;
+
+import dyvil.collection.mutable.HashMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the open-addressing {@link HashMap} with {@link java.util.HashMap}. Each benchmark works on {@code size}
+ * random keys, half of which are present in the prefilled maps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HashMapBenchmark
+{
+	@Param({ "16", "1024", "65536" })
+	public int size;
+
+	private Integer[] keys;
+
+	private HashMap<Integer, Integer>           dyvilMap;
+	private java.util.HashMap<Integer, Integer> javaMap;
+
+	@Setup
+	public void setup()
+	{
+		final Random random = new Random(0);
+		this.keys = new Integer[this.size];
+		for (int i = 0; i < this.size; i++)
+		{
+			this.keys[i] = random.nextInt();
+		}
+
+		this.dyvilMap = new HashMap<>();
+		this.javaMap = new java.util.HashMap<>();
+		for (int i = 0; i < this.size; i += 2)
+		{
+			this.dyvilMap.put(this.keys[i], i);
+			this.javaMap.put(this.keys[i], i);
+		}
+	}
+
+	// =============== Put ===============
+
+	@Benchmark
+	public HashMap<Integer, Integer> dyvilPut()
+	{
+		final HashMap<Integer, Integer> map = new HashMap<>();
+		for (Integer key : this.keys)
+		{
+			map.put(key, key);
+		}
+		return map;
+	}
+
+	@Benchmark
+	public java.util.HashMap<Integer, Integer> javaPut()
+	{
+		final java.util.HashMap<Integer, Integer> map = new java.util.HashMap<>();
+		for (Integer key : this.keys)
+		{
+			map.put(key, key);
+		}
+		return map;
+	}
+
+	// =============== Get ===============
+
+	@Benchmark
+	public void dyvilGet(Blackhole blackhole)
+	{
+		for (Integer key : this.keys)
+		{
+			blackhole.consume(this.dyvilMap.get(key));
+		}
+	}
+
+	@Benchmark
+	public void javaGet(Blackhole blackhole)
+	{
+		for (Integer key : this.keys)
+		{
+			blackhole.consume(this.javaMap.get(key));
+		}
+	}
+
+	// =============== Remove ===============
+
+	@Benchmark
+	public HashMap<Integer, Integer> dyvilRemove()
+	{
+		final HashMap<Integer, Integer> map = new HashMap<>(this.dyvilMap);
+		for (Integer key : this.keys)
+		{
+			map.removeKey(key);
+		}
+		return map;
+	}
+
+	@Benchmark
+	public java.util.HashMap<Integer, Integer> javaRemove()
+	{
+		final java.util.HashMap<Integer, Integer> map = new java.util.HashMap<>(this.javaMap);
+		for (Integer key : this.keys)
+		{
+			map.remove(key);
+		}
+		return map;
+	}
+
+	// =============== Iterate ===============
+
+	@Benchmark
+	public void dyvilIterate(Blackhole blackhole)
+	{
+		for (Entry<Integer, Integer> entry : this.dyvilMap)
+		{
+			blackhole.consume(entry.getValue());
+		}
+	}
+
+	@Benchmark
+	public void javaIterate(Blackhole blackhole)
+	{
+		for (java.util.Map.Entry<Integer, Integer> entry : this.javaMap.entrySet())
+		{
+			blackhole.consume(entry.getValue());
+		}
+	}
+}
@@ -9,6 +9,7 @@ import dyvil.collection.immutable.AppendList;
 import dyvil.collection.immutable.ArrayList;
 import dyvil.collection.immutable.EmptyList;
 import dyvil.collection.immutable.SingletonList;
+import dyvil.collection.immutable.TrieList;
 import dyvil.lang.LiteralConvertible;
 import dyvil.ref.ObjectRef;
 import dyvil.util.ImmutableException;
@@ -116,13 +117,13 @@ public interface ImmutableList<@Covariant E> extends List<E>, ImmutableCollectio
 	@NonNull
 	static <E> Builder<E> builder()
 	{
-		return ArrayList.builder();
+		return TrieList.builder();
 	}
 
 	@NonNull
 	static <E> Builder<E> builder(int capacity)
 	{
-		return ArrayList.builder(capacity);
+		return TrieList.builder(capacity);
 	}
 
 	@NonNull
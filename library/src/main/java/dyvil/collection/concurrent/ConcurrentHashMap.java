@@ -0,0 +1,123 @@
+package dyvil.collection.concurrent;
+
+import dyvil.annotation.internal.NonNull;
+import dyvil.collection.Entry;
+import dyvil.collection.ImmutableMap;
+import dyvil.collection.Map;
+import dyvil.collection.MutableMap;
+import dyvil.collection.impl.AbstractConcurrentMap;
+import dyvil.lang.LiteralConvertible;
+
+/**
+ * A thread-safe hash map backed by a {@link java.util.concurrent.ConcurrentHashMap}. Reads never block, and writes only
+ * lock the hash bin of the affected key, so the map can be shared as a lookup table between many threads.
+ *
+ * @see AbstractConcurrentMap
+ */
+@LiteralConvertible.FromArray
+public class ConcurrentHashMap<K, V> extends AbstractConcurrentMap<K, V>
+{
+	private static final long serialVersionUID = -1960452637151254302L;
+
+	// Factory Methods
+
+	@NonNull
+	public static <K, V> ConcurrentHashMap<K, V> singleton(K key, V value)
+	{
+		final ConcurrentHashMap<K, V> result = new ConcurrentHashMap<>();
+		result.map.put(key, value);
+		return result;
+	}
+
+	@NonNull
+	public static <K, V> ConcurrentHashMap<K, V> apply()
+	{
+		return new ConcurrentHashMap<>();
+	}
+
+	@NonNull
+	@SafeVarargs
+	public static <K, V> ConcurrentHashMap<K, V> apply(@NonNull Entry<? extends K, ? extends V> @NonNull ... entries)
+	{
+		return from(entries);
+	}
+
+	@NonNull
+	public static <K, V> ConcurrentHashMap<K, V> from(@NonNull Entry<? extends K, ? extends V> @NonNull [] array)
+	{
+		final ConcurrentHashMap<K, V> result = new ConcurrentHashMap<>(array.length);
+		for (Entry<? extends K, ? extends V> entry : array)
+		{
+			result.map.put(entry.getKey(), entry.getValue());
+		}
+		return result;
+	}
+
+	@NonNull
+	public static <K, V> ConcurrentHashMap<K, V> from(@NonNull Map<? extends K, ? extends V> map)
+	{
+		return new ConcurrentHashMap<>(map);
+	}
+
+	// Constructors
+
+	public ConcurrentHashMap()
+	{
+		super(new java.util.concurrent.ConcurrentHashMap<>());
+	}
+
+	public ConcurrentHashMap(int capacity)
+	{
+		super(new java.util.concurrent.ConcurrentHashMap<>(capacity));
+	}
+
+	public ConcurrentHashMap(@NonNull Map<? extends K, ? extends V> map)
+	{
+		this(map.size());
+		this.putAll(map);
+	}
+
+	// Implementation Methods
+
+	@NonNull
+	@Override
+	public MutableMap<K, V> copy()
+	{
+		return new ConcurrentHashMap<>(this);
+	}
+
+	@NonNull
+	@Override
+	public <RK, RV> MutableMap<RK, RV> emptyCopy()
+	{
+		return new ConcurrentHashMap<>();
+	}
+
+	@NonNull
+	@Override
+	public <RK, RV> MutableMap<RK, RV> emptyCopy(int capacity)
+	{
+		return new ConcurrentHashMap<>(capacity);
+	}
+
+	@NonNull
+	@Override
+	public <RK, RV> ImmutableMap.Builder<RK, RV> immutableBuilder()
+	{
+		return dyvil.collection.immutable.HashMap.builder();
+	}
+
+	@NonNull
+	@Override
+	public <RK, RV> ImmutableMap.Builder<RK, RV> immutableBuilder(int capacity)
+	{
+		return dyvil.collection.immutable.HashMap.builder(capacity);
+	}
+
+	@NonNull
+	@Override
+	public java.util.Map<K, V> toJava()
+	{
+		return new java.util.concurrent.ConcurrentHashMap<>(this.map);
+	}
+}
@@ -0,0 +1,70 @@
+package dyvil.collection.concurrent;
+
+import dyvil.annotation.internal.NonNull;
+import dyvil.collection.mutable.MapBasedSet;
+import dyvil.lang.LiteralConvertible;
+
+/**
+ * A thread-safe hash set backed by a {@link ConcurrentHashMap}. Adding and removing single elements is atomic. Like the
+ * backing map, the set does not permit {@code null} elements.
+ */
+@LiteralConvertible.FromArray
+public class ConcurrentHashSet<E> extends MapBasedSet<E>
+{
+	private static final long serialVersionUID = -5318421069725340471L;
+
+	@NonNull
+	public static <E> ConcurrentHashSet<E> apply()
+	{
+		return new ConcurrentHashSet<>();
+	}
+
+	@NonNull
+	@SafeVarargs
+	public static <E> ConcurrentHashSet<E> apply(@NonNull E... elements)
+	{
+		return new ConcurrentHashSet<>(elements);
+	}
+
+	@NonNull
+	public static <E> ConcurrentHashSet<E> from(E @NonNull [] array)
+	{
+		return new ConcurrentHashSet<>(array);
+	}
+
+	@NonNull
+	public static <E> ConcurrentHashSet<E> from(@NonNull Iterable<? extends E> iterable)
+	{
+		return new ConcurrentHashSet<>(iterable);
+	}
+
+	public ConcurrentHashSet()
+	{
+		super(new ConcurrentHashMap<>());
+	}
+
+	public ConcurrentHashSet(int capacity)
+	{
+		super(new ConcurrentHashMap<>(capacity));
+	}
+
+	public ConcurrentHashSet(E @NonNull [] elements)
+	{
+		this();
+
+		for (E element : elements)
+		{
+			this.map.put(element, true);
+		}
+	}
+
+	public ConcurrentHashSet(@NonNull Iterable<? extends E> iterable)
+	{
+		this();
+
+		for (E element : iterable)
+		{
+			this.map.put(element, true);
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package dyvil.collection.concurrent;
+
+import dyvil.annotation.internal.NonNull;
+import dyvil.annotation.internal.Nullable;
+import dyvil.collection.Deque;
+import dyvil.collection.impl.AbstractConcurrentQueue;
+
+import java.util.Iterator;
+
+/**
+ * A lock-free double-ended queue backed by a {@link java.util.concurrent.ConcurrentLinkedDeque}. The {@link
+ * dyvil.collection.Queue} operations inherited from {@link AbstractConcurrentQueue} add elements at the end and remove
+ * them from the front, and the {@link dyvil.collection.Stack} operations add and remove elements at the front.
+ *
+ * @see AbstractConcurrentQueue
+ */
+public class ConcurrentLinkedDeque<E> extends AbstractConcurrentQueue<E> implements Deque<E>
+{
+	private static final long serialVersionUID = -6853120637407953853L;
+
+	// Factory Methods
+
+	@NonNull
+	public static <E> ConcurrentLinkedDeque<E> apply()
+	{
+		return new ConcurrentLinkedDeque<>();
+	}
+
+	@NonNull
+	@SafeVarargs
+	public static <E> ConcurrentLinkedDeque<E> apply(@NonNull E... elements)
+	{
+		return new ConcurrentLinkedDeque<>(elements);
+	}
+
+	@NonNull
+	public static <E> ConcurrentLinkedDeque<E> from(@NonNull Iterable<? extends E> iterable)
+	{
+		return new ConcurrentLinkedDeque<>(iterable);
+	}
+
+	// Constructors
+
+	public ConcurrentLinkedDeque()
+	{
+		super(new java.util.concurrent.ConcurrentLinkedDeque<>());
+	}
+
+	public ConcurrentLinkedDeque(E @NonNull [] elements)
+	{
+		this();
+		for (E element : elements)
+		{
+			this.queue.offer(element);
+		}
+	}
+
+	public ConcurrentLinkedDeque(@NonNull Iterable<? extends E> iterable)
+	{
+		this();
+		for (E element : iterable)
+		{
+			this.queue.offer(element);
+		}
+	}
+
+	// Implementation Methods
+
+	private java.util.concurrent.ConcurrentLinkedDeque<E> deque()
+	{
+		return (java.util.concurrent.ConcurrentLinkedDeque<E>) this.queue;
+	}
+
+	@NonNull
+	@Override
+	public Iterator<E> reverseIterator()
+	{
+		return this.deque().descendingIterator();
+	}
+
+	@Nullable
+	@Override
+	public E getFirst()
+	{
+		return this.deque().peekFirst();
+	}
+
+	@Nullable
+	@Override
+	public E getLast()
+	{
+		return this.deque().peekLast();
+	}
+
+	@Nullable
+	@Override
+	public E peek(int index)
+	{
+		for (E element : this.queue)
+		{
+			if (index-- == 0)
+			{
+				return element;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void addFirst(E element)
+	{
+		this.deque().offerFirst(element);
+	}
+
+	@Override
+	public void addLast(E element)
+	{
+		this.deque().offerLast(element);
+	}
+
+	@Nullable
+	@Override
+	public E removeFirst()
+	{
+		return this.deque().pollFirst();
+	}
+
+	@Nullable
+	@Override
+	public E removeLast()
+	{
+		return this.deque().pollLast();
+	}
+
+	@Override
+	public boolean removeFirst(@Nullable Object element)
+	{
+		return element != null && this.deque().removeFirstOccurrence(element);
+	}
+
+	@Override
+	public boolean removeLast(@Nullable Object element)
+	{
+		return element != null && this.deque().removeLastOccurrence(element);
+	}
+
+	@Nullable
+	@Override
+	public E element()
+	{
+		return this.deque().peekFirst();
+	}
+
+	@Override
+	public void offer(E element)
+	{
+		this.deque().offerLast(element);
+	}
+
+	@Nullable
+	@Override
+	public E remove()
+	{
+		return this.deque().pollFirst();
+	}
+
+	@NonNull
+	@Override
+	protected <R> ConcurrentLinkedDeque<R> emptyCopy()
+	{
+		return new ConcurrentLinkedDeque<>();
+	}
+
+	@NonNull
+	@Override
+	public ConcurrentLinkedDeque<E> copy()
+	{
+		return new ConcurrentLinkedDeque<>(this);
+	}
+}
@@ -0,0 +1,76 @@
+package dyvil.collection.concurrent;
+
+import dyvil.annotation.internal.NonNull;
+import dyvil.collection.impl.AbstractConcurrentQueue;
+
+/**
+ * A lock-free FIFO queue backed by a {@link java.util.concurrent.ConcurrentLinkedQueue}.
+ *
+ * @see AbstractConcurrentQueue
+ */
+public class ConcurrentLinkedQueue<E> extends AbstractConcurrentQueue<E>
+{
+	private static final long serialVersionUID = 4719436180290557310L;
+
+	// Factory Methods
+
+	@NonNull
+	public static <E> ConcurrentLinkedQueue<E> apply()
+	{
+		return new ConcurrentLinkedQueue<>();
+	}
+
+	@NonNull
+	@SafeVarargs
+	public static <E> ConcurrentLinkedQueue<E> apply(@NonNull E... elements)
+	{
+		return new ConcurrentLinkedQueue<>(elements);
+	}
+
+	@NonNull
+	public static <E> ConcurrentLinkedQueue<E> from(@NonNull Iterable<? extends E> iterable)
+	{
+		return new ConcurrentLinkedQueue<>(iterable);
+	}
+
+	// Constructors
+
+	public ConcurrentLinkedQueue()
+	{
+		super(new java.util.concurrent.ConcurrentLinkedQueue<>());
+	}
+
+	public ConcurrentLinkedQueue(E @NonNull [] elements)
+	{
+		this();
+		for (E element : elements)
+		{
+			this.queue.offer(element);
+		}
+	}
+
+	public ConcurrentLinkedQueue(@NonNull Iterable<? extends E> iterable)
+	{
+		this();
+		for (E element : iterable)
+		{
+			this.queue.offer(element);
+		}
+	}
+
+	// Implementation Methods
+
+	@NonNull
+	@Override
+	protected <R> ConcurrentLinkedQueue<R> emptyCopy()
+	{
+		return new ConcurrentLinkedQueue<>();
+	}
+
+	@NonNull
+	@Override
+	public ConcurrentLinkedQueue<E> copy()
+	{
+		return new ConcurrentLinkedQueue<>(this);
+	}
+}
@@ -0,0 +1,155 @@
+package dyvil.collection.concurrent;
+
+import dyvil.annotation.internal.NonNull;
+import dyvil.annotation.internal.Nullable;
+import dyvil.collection.Entry;
+import dyvil.collection.ImmutableMap;
+import dyvil.collection.Map;
+import dyvil.collection.MutableMap;
+import dyvil.collection.impl.AbstractConcurrentMap;
+import dyvil.lang.LiteralConvertible;
+
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A thread-safe sorted map backed by a {@link ConcurrentSkipListMap}. All operations are lock-free, and iteration
+ * returns the entries in ascending key order.
+ *
+ * @see AbstractConcurrentMap
+ */
+@LiteralConvertible.FromArray
+public class ConcurrentTreeMap<K, V> extends AbstractConcurrentMap<K, V>
+{
+	private static final long serialVersionUID = 2964402937514180312L;
+
+	// Factory Methods
+
+	@NonNull
+	public static <K extends Comparable<K>, V> ConcurrentTreeMap<K, V> singleton(K key, V value)
+	{
+		final ConcurrentTreeMap<K, V> result = new ConcurrentTreeMap<>();
+		result.map.put(key, value);
+		return result;
+	}
+
+	@NonNull
+	public static <K, V> ConcurrentTreeMap<K, V> apply()
+	{
+		return new ConcurrentTreeMap<>();
+	}
+
+	@NonNull
+	@SafeVarargs
+	public static <K extends Comparable<K>, V> ConcurrentTreeMap<K, V> apply(
+		@NonNull Entry<? extends K, ? extends V> @NonNull ... entries)
+	{
+		return from(entries);
+	}
+
+	@NonNull
+	public static <K extends Comparable<K>, V> ConcurrentTreeMap<K, V> from(
+		@NonNull Entry<? extends K, ? extends V> @NonNull [] array)
+	{
+		final ConcurrentTreeMap<K, V> result = new ConcurrentTreeMap<>();
+		for (Entry<? extends K, ? extends V> entry : array)
+		{
+			result.map.put(entry.getKey(), entry.getValue());
+		}
+		return result;
+	}
+
+	@NonNull
+	public static <K extends Comparable<K>, V> ConcurrentTreeMap<K, V> from(@NonNull Map<? extends K, ? extends V> map)
+	{
+		return new ConcurrentTreeMap<>(map);
+	}
+
+	// Constructors
+
+	public ConcurrentTreeMap()
+	{
+		super(new ConcurrentSkipListMap<>());
+	}
+
+	public ConcurrentTreeMap(Comparator<? super K> comparator)
+	{
+		super(new ConcurrentSkipListMap<>(comparator));
+	}
+
+	public ConcurrentTreeMap(@NonNull Map<? extends K, ? extends V> map)
+	{
+		this();
+		this.putAll(map);
+	}
+
+	public ConcurrentTreeMap(@NonNull Map<? extends K, ? extends V> map, Comparator<? super K> comparator)
+	{
+		this(comparator);
+		this.putAll(map);
+	}
+
+	// Implementation Methods
+
+	@Nullable
+	public Comparator<? super K> comparator()
+	{
+		return ((ConcurrentSkipListMap<K, V>) this.map).comparator();
+	}
+
+	@Nullable
+	public K firstKey()
+	{
+		final java.util.Map.Entry<K, V> entry = ((ConcurrentSkipListMap<K, V>) this.map).firstEntry();
+		return entry == null ? null : entry.getKey();
+	}
+
+	@Nullable
+	public K lastKey()
+	{
+		final java.util.Map.Entry<K, V> entry = ((ConcurrentSkipListMap<K, V>) this.map).lastEntry();
+		return entry == null ? null : entry.getKey();
+	}
+
+	@NonNull
+	@Override
+	public MutableMap<K, V> copy()
+	{
+		return new ConcurrentTreeMap<>(this, this.comparator());
+	}
+
+	@NonNull
+	@Override
+	public <RK, RV> MutableMap<RK, RV> emptyCopy()
+	{
+		return new ConcurrentTreeMap<>();
+	}
+
+	@NonNull
+	@Override
+	public <RK, RV> MutableMap<RK, RV> emptyCopy(int capacity)
+	{
+		return new ConcurrentTreeMap<>();
+	}
+
+	@NonNull
+	@Override
+	public <RK, RV> ImmutableMap.Builder<RK, RV> immutableBuilder()
+	{
+		return dyvil.collection.immutable.TreeMap.builder();
+	}
+
+	@NonNull
+	@Override
+	public <RK, RV> ImmutableMap.Builder<RK, RV> immutableBuilder(int capacity)
+	{
+		return dyvil.collection.immutable.TreeMap.builder();
+	}
+
+	@NonNull
+	@Override
+	public java.util.Map<K, V> toJava()
+	{
+		return new ConcurrentSkipListMap<>((ConcurrentSkipListMap<K, V>) this.map);
+	}
+}
@@ -0,0 +1,72 @@
+package dyvil.collection.concurrent;
+
+import dyvil.annotation.internal.NonNull;
+import dyvil.collection.mutable.MapBasedSet;
+import dyvil.lang.LiteralConvertible;
+
+import java.util.Comparator;
+
+/**
+ * A thread-safe sorted set backed by a {@link ConcurrentTreeMap}. Adding and removing single elements is atomic. Like
+ * the backing map, the set does not permit {@code null} elements.
+ */
+@LiteralConvertible.FromArray
+public class ConcurrentTreeSet<E> extends MapBasedSet<E>
+{
+	private static final long serialVersionUID = 8149953207462319034L;
+
+	@NonNull
+	public static <E> ConcurrentTreeSet<E> apply()
+	{
+		return new ConcurrentTreeSet<>();
+	}
+
+	@NonNull
+	@SafeVarargs
+	public static <E> ConcurrentTreeSet<E> apply(@NonNull E... elements)
+	{
+		return new ConcurrentTreeSet<>(elements);
+	}
+
+	@NonNull
+	public static <E> ConcurrentTreeSet<E> from(E @NonNull [] array)
+	{
+		return new ConcurrentTreeSet<>(array);
+	}
+
+	@NonNull
+	public static <E> ConcurrentTreeSet<E> from(@NonNull Iterable<? extends E> iterable)
+	{
+		return new ConcurrentTreeSet<>(iterable);
+	}
+
+	public ConcurrentTreeSet()
+	{
+		super(new ConcurrentTreeMap<>());
+	}
+
+	public ConcurrentTreeSet(Comparator<? super E> comparator)
+	{
+		super(new ConcurrentTreeMap<>(comparator));
+	}
+
+	public ConcurrentTreeSet(E @NonNull [] elements)
+	{
+		this();
+
+		for (E element : elements)
+		{
+			this.map.put(element, true);
+		}
+	}
+
+	public ConcurrentTreeSet(@NonNull Iterable<? extends E> iterable)
+	{
+		this();
+
+		for (E element : iterable)
+		{
+			this.map.put(element, true);
+		}
+	}
+}
@@ -162,23 +162,15 @@ public class ArrayList<E> extends AbstractArrayList<E> implements ImmutableList<
 	@Override
 	public ImmutableList<E> added(E element)
 	{
-		Object[] array = new Object[this.size + 1];
-		System.arraycopy(this.elements, 0, array, 0, this.size);
-		array[this.size] = element;
-		return new ArrayList<>((E[]) array, this.size + 1, true);
+		// further additions to the result do not copy the whole list
+		return TrieList.from(this).added(element);
 	}
 
 	@NonNull
 	@Override
 	public ImmutableList<E> union(@NonNull Collection<? extends E> collection)
 	{
-		int len = collection.size();
-		Object[] array = new Object[this.size + len];
-		System.arraycopy(this.elements, 0, array, 0, this.size);
-
-		Object[] array1 = collection.toArray();
-		System.arraycopy(array1, 0, array, this.size, len);
-		return new ArrayList<>((E[]) array, this.size + len, true);
+		return TrieList.from(this).union(collection);
 	}
 
 	@NonNull
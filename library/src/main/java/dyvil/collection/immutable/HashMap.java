@@ -2,24 +2,38 @@ package dyvil.collection.immutable;
 
 import dyvil.annotation.Immutable;
 import dyvil.annotation.internal.NonNull;
+import dyvil.annotation.internal.Nullable;
 import dyvil.collection.*;
 import dyvil.collection.impl.AbstractHashMap;
+import dyvil.collection.impl.HashTrie;
 import dyvil.lang.LiteralConvertible;
 import dyvil.ref.ObjectRef;
 import dyvil.util.ImmutableException;
+import dyvil.util.Option;
+import dyvil.util.Some;
 
+import java.io.IOException;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.Objects;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 
+/**
+ * An immutable map backed by a {@link HashTrie}. Adding or removing a single entry copies only O(log<sub>32</sub> n)
+ * nodes and shares the rest of the trie with the original map. The {@link Builder} and the bulk operations modify the
+ * trie of the new map in place until it is returned.
+ */
 @LiteralConvertible.FromArray
 @Immutable
-public class HashMap<K, V> extends AbstractHashMap<K, V> implements ImmutableMap<K, V>
+public class HashMap<K, V> implements ImmutableMap<K, V>
 {
 	public static class Builder<K, V> implements ImmutableMap.Builder<K, V>
 	{
-		private HashMap<K, V> map;
+		private HashMap<K, V>  map;
+		private HashTrie.Edit edit = new HashTrie.Edit(true);
 
 		public Builder()
 		{
@@ -39,7 +53,7 @@ public class HashMap<K, V> extends AbstractHashMap<K, V> implements ImmutableMap
 				throw new IllegalStateException("Already built!");
 			}
 
-			this.map.putInternal(key, value);
+			this.map.putInternal(this.edit, key, value);
 		}
 
 		@Override
@@ -47,20 +61,23 @@ public class HashMap<K, V> extends AbstractHashMap<K, V> implements ImmutableMap
 		{
 			HashMap<K, V> map = this.map;
 			this.map = null;
-			map.flatten();
+			this.edit = null;
 			return map;
 		}
 	}
 
 	private static final long serialVersionUID = -1489214367993445801L;
 
+	private transient HashTrie.Node<K, V> root = HashTrie.empty();
+	private transient int                 size;
+
 	// Factory Methods
 
 	@NonNull
 	public static <K, V> HashMap<K, V> singleton(K key, V value)
 	{
 		final HashMap<K, V> result = new HashMap<>(1);
-		result.putInternal(key, value);
+		result.putInternal(new HashTrie.Edit(true), key, value);
 		return result;
 	}
 
@@ -129,97 +146,248 @@ public class HashMap<K, V> extends AbstractHashMap<K, V> implements ImmutableMap
 
 	protected HashMap()
 	{
-		super();
 	}
 
 	protected HashMap(int capacity)
 	{
-		super(capacity);
+		if (capacity < 0)
+		{
+			throw new IllegalArgumentException("Invalid Capacity: " + capacity);
+		}
 	}
 
 	public HashMap(@NonNull Entry<? extends K, ? extends V> @NonNull [] entries)
 	{
-		super(entries);
+		final HashTrie.Edit edit = new HashTrie.Edit(true);
+		for (Entry<? extends K, ? extends V> entry : entries)
+		{
+			this.putInternal(edit, entry.getKey(), entry.getValue());
+		}
 	}
 
 	public HashMap(@NonNull Iterable<? extends @NonNull Entry<? extends K, ? extends V>> iterable)
 	{
-		super(iterable);
+		this.putAllInternal(new HashTrie.Edit(true), iterable);
 	}
 
 	public HashMap(@NonNull SizedIterable<? extends @NonNull Entry<? extends K, ? extends V>> iterable)
 	{
-		super(iterable);
+		this.putAllInternal(new HashTrie.Edit(true), iterable);
 	}
 
 	public HashMap(@NonNull Set<? extends @NonNull Entry<? extends K, ? extends V>> set)
 	{
-		super(set);
+		this.putAllInternal(new HashTrie.Edit(true), set);
 	}
 
 	public HashMap(@NonNull Map<? extends K, ? extends V> map)
 	{
-		super(map);
+		if (map instanceof HashMap)
+		{
+			// share the trie
+			final HashMap<K, V> hashMap = (HashMap<K, V>) map;
+			this.root = hashMap.root;
+			this.size = hashMap.size;
+			return;
+		}
+
+		this.putAllInternal(new HashTrie.Edit(true), map);
 	}
 
 	public HashMap(@NonNull AbstractHashMap<? extends K, ? extends V> hashMap)
 	{
-		super(hashMap);
+		this.putAllInternal(new HashTrie.Edit(true), hashMap);
+	}
+
+	private HashMap(HashTrie.Node<K, V> root, int size)
+	{
+		this.root = root;
+		this.size = size;
 	}
 
 	// Implementation Methods
 
+	private void putInternal(HashTrie.@NonNull Edit edit, K key, V value)
+	{
+		this.root = HashTrie.put(this.root, edit, key, value);
+		this.size += edit.getSizeDelta();
+	}
+
+	private void putAllInternal(HashTrie.@NonNull Edit edit,
+		@NonNull Iterable<? extends @NonNull Entry<? extends K, ? extends V>> entries)
+	{
+		for (Entry<? extends K, ? extends V> entry : entries)
+		{
+			this.putInternal(edit, entry.getKey(), entry.getValue());
+		}
+	}
+
+	private void removeInternal(HashTrie.@NonNull Edit edit, Object key)
+	{
+		this.root = HashTrie.remove(this.root, edit, key);
+		this.size += edit.getSizeDelta();
+	}
+
+	@Override
+	public int size()
+	{
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return this.size == 0;
+	}
+
 	@NonNull
 	@Override
-	public ObjectRef<V> subscript_$amp(K key)
+	public Iterator<Entry<K, V>> iterator()
 	{
-		return new ObjectRef<V>()
+		return new HashTrie.LeafIterator<K, V, Entry<K, V>>(this.root)
 		{
-			private final HashEntry<K, V> entry = HashMap.this.getEntryInternal(key);
+			@Override
+			protected Entry<K, V> get(HashTrie.@NonNull Leaf<K, V> leaf)
+			{
+				return leaf;
+			}
 
+			@NonNull
 			@Override
-			public V get()
+			public String toString()
 			{
-				return this.entry.get();
+				return "EntryIterator(" + HashMap.this + ")";
 			}
+		};
+	}
 
+	@NonNull
+	@Override
+	public Iterator<K> keyIterator()
+	{
+		return new HashTrie.LeafIterator<K, V, K>(this.root)
+		{
 			@Override
-			public void set(V value)
+			protected K get(HashTrie.@NonNull Leaf<K, V> leaf)
 			{
-				throw new ImmutableException("set() on Immutable Map Entry Reference");
+				return leaf.getKey();
+			}
+
+			@NonNull
+			@Override
+			public String toString()
+			{
+				return "KeyIterator(" + HashMap.this + ")";
+			}
+		};
+	}
+
+	@NonNull
+	@Override
+	public Iterator<V> valueIterator()
+	{
+		return new HashTrie.LeafIterator<K, V, V>(this.root)
+		{
+			@Override
+			protected V get(HashTrie.@NonNull Leaf<K, V> leaf)
+			{
+				return leaf.getValue();
+			}
+
+			@NonNull
+			@Override
+			public String toString()
+			{
+				return "ValueIterator(" + HashMap.this + ")";
 			}
 		};
 	}
 
 	@Override
-	protected void addEntry(int hash, K key, V value, int index)
+	public void forEach(@NonNull Consumer<? super Entry<K, V>> action)
 	{
-		this.entries[index] = new HashEntry<>(key, value, hash, this.entries[index]);
-		this.size++;
+		HashTrie.forEach(this.root, action);
 	}
 
 	@Override
-	protected void removeEntry(@NonNull HashEntry<K, V> entry)
+	public void forEach(@NonNull BiConsumer<? super K, ? super V> action)
 	{
-		throw new ImmutableException("Iterator.remove() on Immutable Map");
+		HashTrie.forEach(this.root, leaf -> action.accept(leaf.getKey(), leaf.getValue()));
+	}
+
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return HashTrie.find(this.root, key) != null;
+	}
+
+	@Override
+	public boolean contains(Object key, Object value)
+	{
+		final Entry<K, V> entry = HashTrie.find(this.root, key);
+		return entry != null && Objects.equals(entry.getValue(), value);
+	}
+
+	@Override
+	public @Nullable V get(Object key)
+	{
+		final Entry<K, V> entry = HashTrie.find(this.root, key);
+		return entry == null ? null : entry.getValue();
+	}
+
+	@Nullable
+	@Override
+	public Entry<K, V> getEntry(Object key)
+	{
+		return HashTrie.find(this.root, key);
+	}
+
+	@NonNull
+	@Override
+	public Option<V> getOption(Object key)
+	{
+		final Entry<K, V> entry = HashTrie.find(this.root, key);
+		return entry == null ? Option.apply() : new Some<>(entry.getValue());
+	}
+
+	@NonNull
+	@Override
+	public ObjectRef<V> subscript_$amp(K key)
+	{
+		return new ObjectRef<V>()
+		{
+			private final Entry<K, V> entry = HashTrie.find(HashMap.this.root, key);
+
+			@Override
+			public V get()
+			{
+				return this.entry == null ? null : this.entry.getValue();
+			}
+
+			@Override
+			public void set(V value)
+			{
+				throw new ImmutableException("set() on Immutable Map Entry Reference");
+			}
+		};
 	}
 
 	@NonNull
 	@Override
 	public ImmutableMap<K, V> withEntry(K key, V value)
 	{
-		HashMap<K, V> copy = new HashMap<>(this);
-		copy.ensureCapacity(this.size + 1);
-		copy.putInternal(key, value);
-		return copy;
+		final HashTrie.Edit edit = new HashTrie.Edit(false);
+		final HashTrie.Node<K, V> root = HashTrie.put(this.root, edit, key, value);
+		return root == this.root ? this : new HashMap<>(root, this.size + edit.getSizeDelta());
 	}
 
 	@NonNull
 	@Override
 	public ImmutableMap<K, V> union(@NonNull Map<? extends K, ? extends V> map)
 	{
-		HashMap<K, V> copy = new HashMap<>(this);
-		copy.putAllInternal(map);
+		// the in-place edit only modifies nodes it created, so the trie of this map is not changed
+		final HashMap<K, V> copy = new HashMap<>(this.root, this.size);
+		copy.putAllInternal(new HashTrie.Edit(true), map);
 		return copy;
 	}
 
@@ -227,80 +395,41 @@ public class HashMap<K, V> extends AbstractHashMap<K, V> implements ImmutableMap
 	@Override
 	public ImmutableMap<K, V> keyRemoved(Object key)
 	{
-		HashMap<K, V> copy = new HashMap<>(this.size);
-		for (Entry<K, V> entry : this)
-		{
-			K entryKey = entry.getKey();
-			if (!Objects.equals(entryKey, key))
-			{
-				copy.putInternal(entryKey, entry.getValue());
-			}
-		}
-		return copy;
+		final HashTrie.Edit edit = new HashTrie.Edit(false);
+		final HashTrie.Node<K, V> root = HashTrie.remove(this.root, edit, key);
+		return root == this.root ? this : new HashMap<>(root, this.size + edit.getSizeDelta());
 	}
 
 	@NonNull
 	@Override
 	public ImmutableMap<K, V> removed(Object key, Object value)
 	{
-		HashMap<K, V> copy = new HashMap<>(this.size);
-		for (Entry<K, V> entry : this)
-		{
-			K entryKey = entry.getKey();
-			V entryValue = entry.getValue();
-			if (!Objects.equals(entryKey, key) || !Objects.equals(entryValue, value))
-			{
-				copy.putInternal(entryKey, entryValue);
-			}
-		}
-		return copy;
+		return this.contains(key, value) ? this.keyRemoved(key) : this;
 	}
 
 	@NonNull
 	@Override
 	public ImmutableMap<K, V> valueRemoved(Object value)
 	{
-		HashMap<K, V> copy = new HashMap<>(this.size);
-		for (Entry<K, V> entry : this)
-		{
-			V entryValue = entry.getValue();
-			if (!Objects.equals(entryValue, value))
-			{
-				copy.putInternal(entry.getKey(), entryValue);
-			}
-		}
-		return copy;
+		return this.filtered((k, v) -> !Objects.equals(v, value));
 	}
 
 	@NonNull
 	@Override
 	public ImmutableMap<K, V> difference(@NonNull Map<?, ?> map)
 	{
-		HashMap<K, V> copy = new HashMap<>(this.size);
-		for (Entry<K, V> entry : this)
-		{
-			K entryKey = entry.getKey();
-			V entryValue = entry.getValue();
-			if (!map.contains(entryKey, entryValue))
-			{
-				copy.putInternal(entryKey, entryValue);
-			}
-		}
-		return copy;
+		return this.filtered((k, v) -> !map.contains(k, v));
 	}
 
 	@NonNull
 	@Override
 	public ImmutableMap<K, V> keyDifference(@NonNull Collection<?> keys)
 	{
-		HashMap<K, V> copy = new HashMap<>(this.size);
-		for (Entry<K, V> entry : this)
+		final HashMap<K, V> copy = new HashMap<>(this.root, this.size);
+		final HashTrie.Edit edit = new HashTrie.Edit(true);
+		for (Object key : keys)
 		{
-			K entryKey = entry.getKey();
-			if (!keys.contains(entryKey))
-			{
-				copy.putInternal(entryKey, entry.getValue());
-			}
+			copy.removeInternal(edit, key);
 		}
 		return copy;
 	}
@@ -309,11 +438,12 @@ public class HashMap<K, V> extends AbstractHashMap<K, V> implements ImmutableMap
 	@Override
 	public <NK> ImmutableMap<NK, V> keyMapped(@NonNull BiFunction<? super K, ? super V, ? extends NK> mapper)
 	{
-		HashMap<NK, V> copy = new HashMap<>(this.size);
+		final HashMap<NK, V> copy = new HashMap<>(this.size);
+		final HashTrie.Edit edit = new HashTrie.Edit(true);
 		for (Entry<K, V> entry : this)
 		{
 			V value = entry.getValue();
-			copy.putInternal(mapper.apply(entry.getKey(), value), value);
+			copy.putInternal(edit, mapper.apply(entry.getKey(), value), value);
 		}
 		return copy;
 	}
@@ -322,11 +452,12 @@ public class HashMap<K, V> extends AbstractHashMap<K, V> implements ImmutableMap
 	@Override
 	public <NV> ImmutableMap<K, NV> valueMapped(@NonNull BiFunction<? super K, ? super V, ? extends NV> mapper)
 	{
-		HashMap<K, NV> copy = new HashMap<>(this.size);
+		final HashMap<K, NV> copy = new HashMap<>(this.size);
+		final HashTrie.Edit edit = new HashTrie.Edit(true);
 		for (Entry<K, V> entry : this)
 		{
 			K key = entry.getKey();
-			copy.putInternal(key, mapper.apply(key, entry.getValue()));
+			copy.putInternal(edit, key, mapper.apply(key, entry.getValue()));
 		}
 		return copy;
 	}
@@ -335,13 +466,14 @@ public class HashMap<K, V> extends AbstractHashMap<K, V> implements ImmutableMap
 	@Override
 	public <NK, NV> ImmutableMap<NK, NV> entryMapped(@NonNull BiFunction<? super K, ? super V, ? extends @NonNull Entry<? extends NK, ? extends NV>> mapper)
 	{
-		HashMap<NK, NV> copy = new HashMap<>(this.size);
+		final HashMap<NK, NV> copy = new HashMap<>(this.size);
+		final HashTrie.Edit edit = new HashTrie.Edit(true);
 		for (Entry<K, V> entry : this)
 		{
 			Entry<? extends NK, ? extends NV> newEntry = mapper.apply(entry.getKey(), entry.getValue());
 			if (newEntry != null)
 			{
-				copy.putInternal(newEntry.getKey(), newEntry.getValue());
+				copy.putInternal(edit, newEntry.getKey(), newEntry.getValue());
 			}
 		}
 		return copy;
@@ -351,15 +483,15 @@ public class HashMap<K, V> extends AbstractHashMap<K, V> implements ImmutableMap
 	@Override
 	public <NK, NV> ImmutableMap<NK, NV> flatMapped(@NonNull BiFunction<? super K, ? super V, ? extends @NonNull Iterable<? extends @NonNull Entry<? extends NK, ? extends NV>>> mapper)
 	{
-		HashMap<NK, NV> copy = new HashMap<>(this.size);
+		final HashMap<NK, NV> copy = new HashMap<>(this.size);
+		final HashTrie.Edit edit = new HashTrie.Edit(true);
 		for (Entry<K, V> entry : this)
 		{
 			for (Entry<? extends NK, ? extends NV> newEntry : mapper.apply(entry.getKey(), entry.getValue()))
 			{
-				copy.putInternal(newEntry.getKey(), newEntry.getValue());
+				copy.putInternal(edit, newEntry.getKey(), newEntry.getValue());
 			}
 		}
-		copy.flatten();
 		return copy;
 	}
 
@@ -367,27 +499,29 @@ public class HashMap<K, V> extends AbstractHashMap<K, V> implements ImmutableMap
 	@Override
 	public ImmutableMap<K, V> filtered(@NonNull BiPredicate<? super K, ? super V> predicate)
 	{
-		HashMap<K, V> copy = new HashMap<>(this.size);
+		// removes the rejected entries, so the result shares all unchanged nodes with this map
+		final HashMap<K, V> copy = new HashMap<>(this.root, this.size);
+		final HashTrie.Edit edit = new HashTrie.Edit(true);
 		for (Entry<K, V> entry : this)
 		{
 			K key = entry.getKey();
-			V value = entry.getValue();
-			if (predicate.test(key, value))
+			if (!predicate.test(key, entry.getValue()))
 			{
-				copy.putInternal(key, value);
+				copy.removeInternal(edit, key);
 			}
 		}
-		return copy;
+		return copy.size == this.size ? this : copy;
 	}
 
 	@NonNull
 	@Override
 	public ImmutableMap<V, K> inverted()
 	{
-		HashMap<V, K> copy = new HashMap<>(this.size);
+		final HashMap<V, K> copy = new HashMap<>(this.size);
+		final HashTrie.Edit edit = new HashTrie.Edit(true);
 		for (Entry<K, V> entry : this)
 		{
-			copy.putInternal(entry.getValue(), entry.getKey());
+			copy.putInternal(edit, entry.getValue(), entry.getKey());
 		}
 		return copy;
 	}
@@ -396,14 +530,28 @@ public class HashMap<K, V> extends AbstractHashMap<K, V> implements ImmutableMap
 	@Override
 	public ImmutableMap<K, V> copy()
 	{
-		return this.immutableCopy();
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public <RK, RV> MutableMap<RK, RV> emptyCopy()
+	{
+		return new dyvil.collection.mutable.HashMap<>();
+	}
+
+	@NonNull
+	@Override
+	public <RK, RV> MutableMap<RK, RV> emptyCopy(int capacity)
+	{
+		return new dyvil.collection.mutable.HashMap<>(capacity);
 	}
 
 	@NonNull
 	@Override
 	public MutableMap<K, V> mutable()
 	{
-		return this.mutableCopy();
+		return new dyvil.collection.mutable.HashMap<>(this);
 	}
 
 	@Override
@@ -421,6 +569,56 @@ public class HashMap<K, V> extends AbstractHashMap<K, V> implements ImmutableMap
 	@Override
 	public java.util.@NonNull Map<K, V> toJava()
 	{
-		return Collections.unmodifiableMap(super.toJava());
+		final java.util.HashMap<K, V> map = new java.util.HashMap<>(this.size);
+		HashTrie.forEach(this.root, leaf -> map.put(leaf.getKey(), leaf.getValue()));
+		return Collections.unmodifiableMap(map);
+	}
+
+	@NonNull
+	@Override
+	public String toString()
+	{
+		return Map.mapToString(this);
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		return Map.mapEquals(this, obj);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Map.mapHashCode(this);
+	}
+
+	private void writeObject(java.io.@NonNull ObjectOutputStream out) throws IOException
+	{
+		out.defaultWriteObject();
+
+		out.writeInt(this.size);
+
+		// Write key-value pairs, sequentially
+		for (Entry<K, V> entry : this)
+		{
+			out.writeObject(entry.getKey());
+			out.writeObject(entry.getValue());
+		}
+	}
+
+	private void readObject(java.io.@NonNull ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+
+		final int size = in.readInt();
+		final HashTrie.Edit edit = new HashTrie.Edit(true);
+
+		this.root = HashTrie.empty();
+		this.size = 0;
+		for (int i = 0; i < size; i++)
+		{
+			this.putInternal(edit, (K) in.readObject(), (V) in.readObject());
+		}
 	}
 }
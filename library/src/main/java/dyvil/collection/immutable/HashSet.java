@@ -5,19 +5,28 @@ import dyvil.annotation.internal.NonNull;
 import dyvil.annotation.internal.Nullable;
 import dyvil.collection.*;
 import dyvil.collection.impl.AbstractHashSet;
+import dyvil.collection.impl.HashTrie;
 import dyvil.lang.LiteralConvertible;
-import dyvil.util.ImmutableException;
 
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
+/**
+ * An immutable set backed by a {@link HashTrie}. Adding or removing a single element copies only O(log<sub>32</sub> n)
+ * nodes and shares the rest of the trie with the original set. The {@link Builder} and the bulk operations modify the
+ * trie of the new set in place until it is returned.
+ */
 @LiteralConvertible.FromArray
 @Immutable
-public class HashSet<E> extends AbstractHashSet<E> implements ImmutableSet<E>
+public class HashSet<E> implements ImmutableSet<E>
 {
 	public static class Builder<E> implements ImmutableSet.Builder<E>
 	{
-		private HashSet<E> set;
+		private HashSet<E>    set;
+		private HashTrie.Edit edit = new HashTrie.Edit(true);
 
 		public Builder()
 		{
@@ -37,7 +46,7 @@ public class HashSet<E> extends AbstractHashSet<E> implements ImmutableSet<E>
 				throw new IllegalStateException("Already built!");
 			}
 
-			this.set.addInternal(element);
+			this.set.addInternal(this.edit, element);
 		}
 
 		@Override
@@ -45,12 +54,16 @@ public class HashSet<E> extends AbstractHashSet<E> implements ImmutableSet<E>
 		{
 			HashSet<E> set = this.set;
 			this.set = null;
+			this.edit = null;
 			return set;
 		}
 	}
 
 	private static final long serialVersionUID = -1698577535888129119L;
 
+	private transient HashTrie.Node<E, Object> root = HashTrie.empty();
+	private transient int                      size;
+
 	// Factory Methods
 
 	@NonNull
@@ -106,94 +119,155 @@ public class HashSet<E> extends AbstractHashSet<E> implements ImmutableSet<E>
 
 	protected HashSet()
 	{
-		super();
 	}
 
 	protected HashSet(int capacity)
 	{
-		super(capacity);
+		if (capacity < 0)
+		{
+			throw new IllegalArgumentException("Invalid Capacity: " + capacity);
+		}
 	}
 
 	public HashSet(E @NonNull [] elements)
 	{
-		super(elements);
+		final HashTrie.Edit edit = new HashTrie.Edit(true);
+		for (E element : elements)
+		{
+			this.addInternal(edit, element);
+		}
 	}
 
 	public HashSet(@NonNull Iterable<? extends E> iterable)
 	{
-		super(iterable);
+		this.addAllInternal(new HashTrie.Edit(true), iterable);
 	}
 
 	public HashSet(@NonNull SizedIterable<? extends E> iterable)
 	{
-		super(iterable);
+		this.addAllInternal(new HashTrie.Edit(true), iterable);
 	}
 
 	public HashSet(@NonNull Set<? extends E> set)
 	{
-		super(set);
+		if (set instanceof HashSet)
+		{
+			// share the trie
+			final HashSet<E> hashSet = (HashSet<E>) set;
+			this.root = hashSet.root;
+			this.size = hashSet.size;
+			return;
+		}
+
+		this.addAllInternal(new HashTrie.Edit(true), set);
 	}
 
 	public HashSet(@NonNull AbstractHashSet<? extends E> hashSet)
 	{
-		super(hashSet);
+		this.addAllInternal(new HashTrie.Edit(true), hashSet);
+	}
+
+	private HashSet(HashTrie.Node<E, Object> root, int size)
+	{
+		this.root = root;
+		this.size = size;
 	}
 
 	// Implementation Methods
 
+	private void addInternal(HashTrie.@NonNull Edit edit, E element)
+	{
+		this.root = HashTrie.put(this.root, edit, element, null);
+		this.size += edit.getSizeDelta();
+	}
+
+	private void addAllInternal(HashTrie.@NonNull Edit edit, @NonNull Iterable<? extends E> elements)
+	{
+		for (E element : elements)
+		{
+			this.addInternal(edit, element);
+		}
+	}
+
+	private void removeInternal(HashTrie.@NonNull Edit edit, Object element)
+	{
+		this.root = HashTrie.remove(this.root, edit, element);
+		this.size += edit.getSizeDelta();
+	}
+
 	@Override
-	protected void addElement(int hash, E element, int index)
+	public int size()
 	{
-		this.elements[index] = new HashElement<>(element, hash, this.elements[index]);
-		this.size++;
+		return this.size;
 	}
 
 	@Override
-	protected void removeElement(@NonNull HashElement<E> element)
+	public boolean isEmpty()
 	{
-		throw new ImmutableException("Iterator.remove() on Immutable Set");
+		return this.size == 0;
+	}
+
+	@NonNull
+	@Override
+	public Iterator<E> iterator()
+	{
+		return new HashTrie.LeafIterator<E, Object, E>(this.root)
+		{
+			@Override
+			protected E get(HashTrie.@NonNull Leaf<E, Object> leaf)
+			{
+				return leaf.getKey();
+			}
+
+			@NonNull
+			@Override
+			public String toString()
+			{
+				return "HashSetIterator(" + HashSet.this + ")";
+			}
+		};
+	}
+
+	@Override
+	public void forEach(@NonNull Consumer<? super E> action)
+	{
+		HashTrie.forEach(this.root, leaf -> action.accept(leaf.getKey()));
+	}
+
+	@Override
+	public boolean contains(@Nullable Object element)
+	{
+		return HashTrie.find(this.root, element) != null;
 	}
 
 	@NonNull
 	@Override
 	public ImmutableSet<E> added(E element)
 	{
-		HashSet<E> newSet = new HashSet<>(this);
-		newSet.ensureCapacityInternal(this.size + 1);
-		newSet.addInternal(element);
-		return newSet;
+		final HashTrie.Edit edit = new HashTrie.Edit(false);
+		final HashTrie.Node<E, Object> root = HashTrie.put(this.root, edit, element, null);
+		return root == this.root ? this : new HashSet<>(root, this.size + edit.getSizeDelta());
 	}
 
 	@NonNull
 	@Override
 	public ImmutableSet<E> removed(@Nullable Object element)
 	{
-		HashSet<E> newSet = new HashSet<>(this.size);
-
-		for (E element1 : this)
-		{
-			if (element1 != element && (element == null || !element.equals(element1)))
-			{
-				newSet.addInternal(element1);
-			}
-		}
-		return newSet;
+		final HashTrie.Edit edit = new HashTrie.Edit(false);
+		final HashTrie.Node<E, Object> root = HashTrie.remove(this.root, edit, element);
+		return root == this.root ? this : new HashSet<>(root, this.size + edit.getSizeDelta());
 	}
 
 	@NonNull
 	@Override
 	public ImmutableSet<E> difference(@NonNull Collection<?> collection)
 	{
-		HashSet<E> newSet = new HashSet<>(this.size);
-
-		for (E element1 : this)
+		final HashSet<E> newSet = new HashSet<>(this.root, this.size);
+		final HashTrie.Edit edit = new HashTrie.Edit(true);
+		for (Object element : collection)
 		{
-			if (!collection.contains(element1))
-			{
-				newSet.addInternal(element1);
-			}
+			newSet.removeInternal(edit, element);
 		}
-
 		return newSet;
 	}
 
@@ -201,29 +275,16 @@ public class HashSet<E> extends AbstractHashSet<E> implements ImmutableSet<E>
 	@Override
 	public ImmutableSet<E> intersection(@NonNull Collection<? extends E> collection)
 	{
-		HashSet<E> newSet = new HashSet<>(this.size);
-
-		for (E element1 : this)
-		{
-			if (collection.contains(element1))
-			{
-				newSet.addInternal(element1);
-			}
-		}
-
-		return newSet;
+		return this.filtered(collection::contains);
 	}
 
 	@NonNull
 	@Override
 	public ImmutableSet<E> union(@NonNull Collection<? extends E> collection)
 	{
-		HashSet<E> newSet = new HashSet<>(this);
-		newSet.ensureCapacity(this.size + collection.size());
-		for (E element : collection)
-		{
-			newSet.addInternal(element);
-		}
+		// the in-place edit only modifies nodes it created, so the trie of this set is not changed
+		final HashSet<E> newSet = new HashSet<>(this.root, this.size);
+		newSet.addAllInternal(new HashTrie.Edit(true), collection);
 		return newSet;
 	}
 
@@ -231,21 +292,18 @@ public class HashSet<E> extends AbstractHashSet<E> implements ImmutableSet<E>
 	@Override
 	public ImmutableSet<E> symmetricDifference(@NonNull Collection<? extends E> collection)
 	{
-		HashSet<E> newSet = new HashSet<>(this.size + collection.size());
+		final HashSet<E> newSet = new HashSet<>(this.root, this.size);
+		final HashTrie.Edit edit = new HashTrie.Edit(true);
 
-		for (E element : this)
+		for (E element : collection)
 		{
-			if (!collection.contains(element))
+			if (this.contains(element))
 			{
-				newSet.addInternal(element);
+				newSet.removeInternal(edit, element);
 			}
-		}
-
-		for (E element : collection)
-		{
-			if (!this.contains(element))
+			else
 			{
-				newSet.addInternal(element);
+				newSet.addInternal(edit, element);
 			}
 		}
 		return newSet;
@@ -255,11 +313,12 @@ public class HashSet<E> extends AbstractHashSet<E> implements ImmutableSet<E>
 	@Override
 	public <R> ImmutableSet<R> mapped(@NonNull Function<? super E, ? extends R> mapper)
 	{
-		HashSet<R> newSet = new HashSet<>(this.size);
+		final HashSet<R> newSet = new HashSet<>(this.size);
+		final HashTrie.Edit edit = new HashTrie.Edit(true);
 
 		for (E element : this)
 		{
-			newSet.addInternal(mapper.apply(element));
+			newSet.addInternal(edit, mapper.apply(element));
 		}
 		return newSet;
 	}
@@ -268,16 +327,13 @@ public class HashSet<E> extends AbstractHashSet<E> implements ImmutableSet<E>
 	@Override
 	public <R> ImmutableSet<R> flatMapped(@NonNull Function<? super E, ? extends @NonNull Iterable<? extends R>> mapper)
 	{
-		HashSet<R> newSet = new HashSet<>(this.size << 2);
+		final HashSet<R> newSet = new HashSet<>(this.size << 2);
+		final HashTrie.Edit edit = new HashTrie.Edit(true);
 
 		for (E element : this)
 		{
-			for (R newElement : mapper.apply(element))
-			{
-				newSet.addInternal(newElement);
-			}
+			newSet.addAllInternal(edit, mapper.apply(element));
 		}
-		newSet.flatten();
 		return newSet;
 	}
 
@@ -285,23 +341,39 @@ public class HashSet<E> extends AbstractHashSet<E> implements ImmutableSet<E>
 	@Override
 	public ImmutableSet<E> filtered(@NonNull Predicate<? super E> predicate)
 	{
-		HashSet<E> newSet = new HashSet<>(this.size);
+		// removes the rejected elements, so the result shares all unchanged nodes with this set
+		final HashSet<E> newSet = new HashSet<>(this.root, this.size);
+		final HashTrie.Edit edit = new HashTrie.Edit(true);
 
 		for (E element : this)
 		{
-			if (predicate.test(element))
+			if (!predicate.test(element))
 			{
-				newSet.addInternal(element);
+				newSet.removeInternal(edit, element);
 			}
 		}
-		return newSet;
+		return newSet.size == this.size ? this : newSet;
 	}
 
 	@NonNull
 	@Override
 	public ImmutableSet<E> copy()
 	{
-		return new HashSet<>(this);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public <RE> MutableSet<RE> emptyCopy()
+	{
+		return new dyvil.collection.mutable.HashSet<>();
+	}
+
+	@NonNull
+	@Override
+	public <RE> MutableSet<RE> emptyCopy(int capacity)
+	{
+		return new dyvil.collection.mutable.HashSet<>(capacity);
 	}
 
 	@NonNull
@@ -311,9 +383,70 @@ public class HashSet<E> extends AbstractHashSet<E> implements ImmutableSet<E>
 		return new dyvil.collection.mutable.HashSet<>(this);
 	}
 
+	@Override
+	public <RE> ImmutableSet.@NonNull Builder<RE> immutableBuilder()
+	{
+		return builder();
+	}
+
+	@Override
+	public <RE> ImmutableSet.@NonNull Builder<RE> immutableBuilder(int capacity)
+	{
+		return builder(capacity);
+	}
+
 	@Override
 	public java.util.@NonNull Set<E> toJava()
 	{
-		return java.util.Collections.unmodifiableSet(super.toJava());
+		final java.util.HashSet<E> set = new java.util.HashSet<>(this.size);
+		HashTrie.forEach(this.root, leaf -> set.add(leaf.getKey()));
+		return java.util.Collections.unmodifiableSet(set);
+	}
+
+	@NonNull
+	@Override
+	public String toString()
+	{
+		return Collection.collectionToString(this);
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		return Set.setEquals(this, obj);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Set.setHashCode(this);
+	}
+
+	private void writeObject(java.io.@NonNull ObjectOutputStream out) throws IOException
+	{
+		out.defaultWriteObject();
+
+		out.writeInt(this.size);
+
+		// Write elements, sequentially
+		for (E element : this)
+		{
+			out.writeObject(element);
+		}
+	}
+
+	private void readObject(java.io.@NonNull ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+
+		final int size = in.readInt();
+		final HashTrie.Edit edit = new HashTrie.Edit(true);
+
+		this.root = HashTrie.empty();
+		this.size = 0;
+		for (int i = 0; i < size; i++)
+		{
+			this.addInternal(edit, (E) in.readObject());
+		}
 	}
 }
@@ -151,7 +151,7 @@ public class SingletonList<E> implements ImmutableList<E>
 	@Override
 	public ImmutableList<E> union(@NonNull Collection<? extends E> collection)
 	{
-		return new PrependList<>(this.element, (ImmutableList<E>) ImmutableList.linked(collection));
+		return TrieList.apply(this.element).union(collection);
 	}
 
 	@NonNull
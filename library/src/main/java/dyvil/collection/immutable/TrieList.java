@@ -0,0 +1,781 @@
+package dyvil.collection.immutable;
+
+import dyvil.annotation.Immutable;
+import dyvil.annotation.internal.NonNull;
+import dyvil.collection.*;
+import dyvil.lang.LiteralConvertible;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A persistent vector, i.e. an immutable list stored in a bit-partitioned trie with a branching factor of 32 and a
+ * separate tail array that holds the last up to 32 elements.
+ * <p>
+ * {@link #get(int)} and {@link #updated(int, Object)} take O(log<sub>32</sub> n) steps, and {@link #added(Object)}
+ * only copies the tail in most cases, so both are effectively constant time. Adding many elements with the {@link
+ * Builder} or {@link #union(Collection)} fills the tail in place and copies one path of the trie per 32 elements. All
+ * versions share the unchanged parts of the trie.
+ * <p>
+ * {@link #subList(int, int)} shares the trie with the original list, unless the sub list is no longer than one tail.
+ * The elements in front of a shared sub list are retained until the sub list becomes unreachable.
+ */
+@LiteralConvertible.FromArray
+@Immutable
+public class TrieList<E> implements ImmutableList<E>
+{
+	public static class Builder<E> implements ImmutableList.Builder<E>
+	{
+		private Object[] root;
+		private int      shift;
+		private int      start;
+		private int      count;
+		private Object[] tail;
+
+		public Builder()
+		{
+			this.root = EMPTY_NODE;
+			this.shift = BITS;
+			this.tail = new Object[WIDTH];
+		}
+
+		public Builder(int capacity)
+		{
+			this();
+			if (capacity < 0)
+			{
+				throw new IllegalArgumentException("Invalid Capacity: " + capacity);
+			}
+		}
+
+		private Builder(@NonNull TrieList<E> list)
+		{
+			this.root = list.root;
+			this.shift = list.shift;
+			this.start = list.start;
+			this.count = list.start + list.size;
+
+			// the builder owns its tail array, so it can be filled in place
+			final int tailCount = this.count - tailOffset(this.count);
+			this.tail = new Object[WIDTH];
+			System.arraycopy(list.tail, 0, this.tail, 0, tailCount);
+		}
+
+		@Override
+		public void add(E element)
+		{
+			if (this.tail == null)
+			{
+				throw new IllegalStateException("Already built");
+			}
+
+			final int count = this.count;
+			final int tailCount = count - tailOffset(count);
+			if (tailCount < WIDTH)
+			{
+				this.tail[tailCount] = element;
+				this.count = count + 1;
+				return;
+			}
+
+			this.pushTail();
+			this.tail = new Object[WIDTH];
+			this.tail[0] = element;
+			this.count = count + 1;
+		}
+
+		private void pushTail()
+		{
+			if ((this.count >>> BITS) > 1 << this.shift)
+			{
+				// root overflow
+				final Object[] root = new Object[WIDTH];
+				root[0] = this.root;
+				root[1] = newPath(this.shift, this.tail);
+				this.root = root;
+				this.shift += BITS;
+				return;
+			}
+			this.root = TrieList.pushTail(this.count, this.shift, this.root, this.tail);
+		}
+
+		@Override
+		public TrieList<E> build()
+		{
+			if (this.tail == null)
+			{
+				return null;
+			}
+
+			final TrieList<E> list = new TrieList<>(this.root, this.shift, this.start, this.count - this.start,
+			                                        this.tail);
+			this.tail = null;
+			this.root = null;
+			return list;
+		}
+	}
+
+	private static final long serialVersionUID = -5861371549718917370L;
+
+	private static final int BITS  = 5;
+	private static final int WIDTH = 1 << BITS;
+	private static final int MASK  = WIDTH - 1;
+
+	private static final Object[] EMPTY_NODE = new Object[WIDTH];
+	private static final Object[] EMPTY_TAIL = new Object[0];
+
+	private static final TrieList EMPTY = new TrieList<>(EMPTY_NODE, BITS, 0, 0, EMPTY_TAIL);
+
+	/**
+	 * The root node of the trie. Inner nodes and leaves are arrays of length 32.
+	 */
+	private transient Object[] root;
+	private transient int      shift;
+
+	/**
+	 * The index in the trie of the first element of this list. Non-zero for sub lists.
+	 */
+	private transient int start;
+
+	private transient int      size;
+	private transient Object[] tail;
+
+	// Factory Methods
+
+	@NonNull
+	public static <E> TrieList<E> apply()
+	{
+		return (TrieList<E>) EMPTY;
+	}
+
+	@NonNull
+	@SafeVarargs
+	public static <E> TrieList<E> apply(@NonNull E... elements)
+	{
+		return from(elements);
+	}
+
+	@NonNull
+	public static <E> TrieList<E> from(E @NonNull [] array)
+	{
+		final Builder<E> builder = new Builder<>();
+		for (E element : array)
+		{
+			builder.add(element);
+		}
+		return builder.build();
+	}
+
+	@NonNull
+	public static <E> TrieList<E> from(@NonNull Iterable<? extends E> iterable)
+	{
+		if (iterable instanceof TrieList)
+		{
+			return (TrieList<E>) iterable;
+		}
+
+		final Builder<E> builder = new Builder<>();
+		for (E element : iterable)
+		{
+			builder.add(element);
+		}
+		return builder.build();
+	}
+
+	@NonNull
+	public static <E> TrieList<E> from(@NonNull Collection<? extends E> collection)
+	{
+		return from((Iterable<? extends E>) collection);
+	}
+
+	@NonNull
+	public static <E> Builder<E> builder()
+	{
+		return new Builder<>();
+	}
+
+	@NonNull
+	public static <E> Builder<E> builder(int capacity)
+	{
+		return new Builder<>(capacity);
+	}
+
+	// Constructors
+
+	private TrieList(Object[] root, int shift, int start, int size, Object[] tail)
+	{
+		this.root = root;
+		this.shift = shift;
+		this.start = start;
+		this.size = size;
+		this.tail = tail;
+	}
+
+	// Trie Operations
+
+	/**
+	 * @return the index in the trie of the first element in the tail of a trie with {@code count} elements
+	 */
+	private static int tailOffset(int count)
+	{
+		return count < WIDTH ? 0 : (count - 1 >>> BITS) << BITS;
+	}
+
+	private static Object[] newPath(int level, Object[] node)
+	{
+		if (level == 0)
+		{
+			return node;
+		}
+
+		final Object[] path = new Object[WIDTH];
+		path[0] = newPath(level - BITS, node);
+		return path;
+	}
+
+	/**
+	 * Copies the path to the last leaf of a trie with {@code count} elements, and appends the full tail as a new leaf.
+	 */
+	private static Object[] pushTail(int count, int level, Object[] parent, Object[] tail)
+	{
+		final int index = count - 1 >>> level & MASK;
+		final Object[] node = parent.clone();
+		if (level == BITS)
+		{
+			node[index] = tail;
+			return node;
+		}
+
+		final Object[] child = (Object[]) parent[index];
+		node[index] = child != null ? pushTail(count, level - BITS, child, tail) : newPath(level - BITS, tail);
+		return node;
+	}
+
+	private static Object[] updated(int level, Object[] node, int index, Object element)
+	{
+		final Object[] copy = node.clone();
+		if (level == 0)
+		{
+			copy[index & MASK] = element;
+			return copy;
+		}
+
+		final int childIndex = index >>> level & MASK;
+		copy[childIndex] = updated(level - BITS, (Object[]) node[childIndex], index, element);
+		return copy;
+	}
+
+	/**
+	 * Removes all leaves after the one that contains the element at the given index in the trie.
+	 */
+	private static Object[] truncated(int level, Object[] node, int lastIndex)
+	{
+		final int childIndex = lastIndex >>> level & MASK;
+		final Object[] copy = new Object[WIDTH];
+		System.arraycopy(node, 0, copy, 0, childIndex + 1);
+		if (level > BITS)
+		{
+			copy[childIndex] = truncated(level - BITS, (Object[]) node[childIndex], lastIndex);
+		}
+		return copy;
+	}
+
+	private int count()
+	{
+		return this.start + this.size;
+	}
+
+	/**
+	 * @return the leaf or tail that contains the element at the given index in the trie
+	 */
+	private Object[] arrayFor(int index)
+	{
+		if (index >= tailOffset(this.count()))
+		{
+			return this.tail;
+		}
+
+		Object[] node = this.root;
+		for (int level = this.shift; level > 0; level -= BITS)
+		{
+			node = (Object[]) node[index >>> level & MASK];
+		}
+		return node;
+	}
+
+	// Implementation Methods
+
+	@Override
+	public int size()
+	{
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return this.size == 0;
+	}
+
+	@NonNull
+	@Override
+	public Iterator<E> iterator()
+	{
+		return new Iterator<E>()
+		{
+			private final int end = TrieList.this.count();
+			private int      index = TrieList.this.start;
+			private Object[] array;
+
+			@Override
+			public boolean hasNext()
+			{
+				return this.index < this.end;
+			}
+
+			@Override
+			public E next()
+			{
+				final int index = this.index;
+				if (index >= this.end)
+				{
+					throw new NoSuchElementException();
+				}
+
+				if (this.array == null || (index & MASK) == 0)
+				{
+					this.array = TrieList.this.arrayFor(index);
+				}
+				this.index = index + 1;
+				return (E) this.array[index & MASK];
+			}
+
+			@NonNull
+			@Override
+			public String toString()
+			{
+				return "TrieListIterator(" + TrieList.this + ")";
+			}
+		};
+	}
+
+	@NonNull
+	@Override
+	public Iterator<E> reverseIterator()
+	{
+		return new Iterator<E>()
+		{
+			private int      index = TrieList.this.count() - 1;
+			private Object[] array;
+
+			@Override
+			public boolean hasNext()
+			{
+				return this.index >= TrieList.this.start;
+			}
+
+			@Override
+			public E next()
+			{
+				final int index = this.index;
+				if (index < TrieList.this.start)
+				{
+					throw new NoSuchElementException();
+				}
+
+				if (this.array == null || (index & MASK) == MASK)
+				{
+					this.array = TrieList.this.arrayFor(index);
+				}
+				this.index = index - 1;
+				return (E) this.array[index & MASK];
+			}
+
+			@NonNull
+			@Override
+			public String toString()
+			{
+				return "TrieListReverseIterator(" + TrieList.this + ")";
+			}
+		};
+	}
+
+	@Override
+	public void forEach(@NonNull Consumer<? super E> action)
+	{
+		final int end = this.count();
+		Object[] array = null;
+		for (int i = this.start; i < end; i++)
+		{
+			if (array == null || (i & MASK) == 0)
+			{
+				array = this.arrayFor(i);
+			}
+			action.accept((E) array[i & MASK]);
+		}
+	}
+
+	@Override
+	public E get(int index)
+	{
+		List.rangeCheck(index, this.size);
+		final int trieIndex = this.start + index;
+		return (E) this.arrayFor(trieIndex)[trieIndex & MASK];
+	}
+
+	/**
+	 * Returns a list with the element at the given index replaced. Only the path to the element is copied.
+	 */
+	@NonNull
+	public TrieList<E> updated(int index, E element)
+	{
+		List.rangeCheck(index, this.size);
+		final int trieIndex = this.start + index;
+		final int count = this.count();
+		final int tailOffset = tailOffset(count);
+
+		if (trieIndex >= tailOffset)
+		{
+			final Object[] tail = Arrays.copyOf(this.tail, count - tailOffset);
+			tail[trieIndex & MASK] = element;
+			return new TrieList<>(this.root, this.shift, this.start, this.size, tail);
+		}
+
+		final Object[] root = updated(this.shift, this.root, trieIndex, element);
+		return new TrieList<>(root, this.shift, this.start, this.size, this.tail);
+	}
+
+	@NonNull
+	@Override
+	public ImmutableList<E> subList(int startIndex, int length)
+	{
+		List.rangeCheck(startIndex, this.size);
+		List.rangeCheck(startIndex + length - 1, this.size);
+
+		if (length == this.size)
+		{
+			return this;
+		}
+		if (length <= WIDTH)
+		{
+			// copy short sub lists instead of retaining the whole trie
+			final Builder<E> builder = new Builder<>();
+			for (int i = 0; i < length; i++)
+			{
+				builder.add(this.get(startIndex + i));
+			}
+			return builder.build();
+		}
+
+		final int start = this.start + startIndex;
+		final int count = start + length;
+		if (count == this.count())
+		{
+			return new TrieList<>(this.root, this.shift, start, length, this.tail);
+		}
+
+		// make the leaf that contains the last element the new tail, and drop all leaves after it
+		final int tailOffset = tailOffset(count);
+		final Object[] tail = Arrays.copyOf(this.arrayFor(count - 1), count - tailOffset);
+
+		Object[] root = truncated(this.shift, this.root, tailOffset - 1);
+		int shift = this.shift;
+		while (shift > BITS && root[1] == null)
+		{
+			root = (Object[]) root[0];
+			shift -= BITS;
+		}
+		return new TrieList<>(root, shift, start, length, tail);
+	}
+
+	@NonNull
+	@Override
+	public TrieList<E> added(E element)
+	{
+		final int count = this.count();
+		final int tailCount = count - tailOffset(count);
+		if (tailCount < WIDTH)
+		{
+			final Object[] tail = Arrays.copyOf(this.tail, tailCount + 1);
+			tail[tailCount] = element;
+			return new TrieList<>(this.root, this.shift, this.start, this.size + 1, tail);
+		}
+
+		final Builder<E> builder = new Builder<>(this);
+		builder.add(element);
+		return builder.build();
+	}
+
+	@NonNull
+	@Override
+	public TrieList<E> union(@NonNull Collection<? extends E> collection)
+	{
+		if (collection.isEmpty())
+		{
+			return this;
+		}
+
+		final Builder<E> builder = new Builder<>(this);
+		for (E element : collection)
+		{
+			builder.add(element);
+		}
+		return builder.build();
+	}
+
+	@NonNull
+	@Override
+	public ImmutableList<E> removed(Object element)
+	{
+		return this.filtered(e -> !Objects.equals(e, element));
+	}
+
+	@NonNull
+	@Override
+	public ImmutableList<E> difference(@NonNull Collection<?> collection)
+	{
+		return this.filtered(e -> !collection.contains(e));
+	}
+
+	@NonNull
+	@Override
+	public ImmutableList<E> intersection(@NonNull Collection<? extends E> collection)
+	{
+		return this.filtered(collection::contains);
+	}
+
+	@NonNull
+	@Override
+	public <R> ImmutableList<R> mapped(@NonNull Function<? super E, ? extends R> mapper)
+	{
+		final Builder<R> builder = new Builder<>();
+		for (E element : this)
+		{
+			builder.add(mapper.apply(element));
+		}
+		return builder.build();
+	}
+
+	@NonNull
+	@Override
+	public <R> ImmutableList<R> flatMapped(@NonNull Function<? super E, ? extends @NonNull Iterable<? extends R>> mapper)
+	{
+		final Builder<R> builder = new Builder<>();
+		for (E element : this)
+		{
+			for (R result : mapper.apply(element))
+			{
+				builder.add(result);
+			}
+		}
+		return builder.build();
+	}
+
+	@NonNull
+	@Override
+	public ImmutableList<E> filtered(@NonNull Predicate<? super E> predicate)
+	{
+		final Builder<E> builder = new Builder<>();
+		for (E element : this)
+		{
+			if (predicate.test(element))
+			{
+				builder.add(element);
+			}
+		}
+
+		final TrieList<E> list = builder.build();
+		return list.size == this.size ? this : list;
+	}
+
+	@NonNull
+	@Override
+	public ImmutableList<E> reversed()
+	{
+		final Builder<E> builder = new Builder<>();
+		for (Iterator<E> iterator = this.reverseIterator(); iterator.hasNext(); )
+		{
+			builder.add(iterator.next());
+		}
+		return builder.build();
+	}
+
+	@NonNull
+	@Override
+	public ImmutableList<E> sorted()
+	{
+		final Object[] array = this.toArray();
+		Arrays.sort(array);
+		return new SortedArrayList<>((E[]) array, this.size, true, null);
+	}
+
+	@NonNull
+	@Override
+	public ImmutableList<E> sorted(@NonNull Comparator<? super E> comparator)
+	{
+		final Object[] array = this.toArray();
+		Arrays.sort((E[]) array, comparator);
+		return new SortedArrayList<>((E[]) array, this.size, true, comparator);
+	}
+
+	@NonNull
+	@Override
+	public ImmutableList<E> distinct()
+	{
+		final Object[] array = this.toArray();
+		final int size = Set.distinct(array, this.size);
+		return new ArrayList<>((E[]) array, size, true);
+	}
+
+	@NonNull
+	@Override
+	public ImmutableList<E> distinct(@NonNull Comparator<? super E> comparator)
+	{
+		final Object[] array = this.toArray();
+		final int size = Set.sortDistinct((E[]) array, this.size, comparator);
+		return new SortedArrayList<>((E[]) array, size, true, comparator);
+	}
+
+	@Override
+	public int indexOf(Object element)
+	{
+		int index = 0;
+		for (E e : this)
+		{
+			if (Objects.equals(element, e))
+			{
+				return index;
+			}
+			index++;
+		}
+		return -1;
+	}
+
+	@Override
+	public int lastIndexOf(Object element)
+	{
+		int index = this.size - 1;
+		for (Iterator<E> iterator = this.reverseIterator(); iterator.hasNext(); index--)
+		{
+			if (Objects.equals(element, iterator.next()))
+			{
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public void toArray(int index, Object @NonNull [] store)
+	{
+		for (E element : this)
+		{
+			store[index++] = element;
+		}
+	}
+
+	@NonNull
+	@Override
+	public ImmutableList<E> copy()
+	{
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public <RE> MutableList<RE> emptyCopy()
+	{
+		return MutableList.apply();
+	}
+
+	@NonNull
+	@Override
+	public <RE> MutableList<RE> emptyCopy(int capacity)
+	{
+		return MutableList.withCapacity(capacity);
+	}
+
+	@NonNull
+	@Override
+	public MutableList<E> mutable()
+	{
+		return MutableList.from(this);
+	}
+
+	@Override
+	public <RE> ImmutableList.@NonNull Builder<RE> immutableBuilder()
+	{
+		return builder();
+	}
+
+	@Override
+	public <RE> ImmutableList.@NonNull Builder<RE> immutableBuilder(int capacity)
+	{
+		return builder(capacity);
+	}
+
+	@Override
+	public java.util.@NonNull List<E> toJava()
+	{
+		final java.util.ArrayList<E> list = new java.util.ArrayList<>(this.size);
+		this.forEach(list::add);
+		return Collections.unmodifiableList(list);
+	}
+
+	@NonNull
+	@Override
+	public String toString()
+	{
+		return Collection.collectionToString(this);
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		return List.listEquals(this, obj);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return List.listHashCode(this);
+	}
+
+	private void writeObject(java.io.@NonNull ObjectOutputStream out) throws IOException
+	{
+		out.defaultWriteObject();
+
+		out.writeInt(this.size);
+		for (E element : this)
+		{
+			out.writeObject(element);
+		}
+	}
+
+	private void readObject(java.io.@NonNull ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+
+		final int size = in.readInt();
+		final Builder<E> builder = new Builder<>();
+		for (int i = 0; i < size; i++)
+		{
+			builder.add((E) in.readObject());
+		}
+
+		final TrieList<E> list = builder.build();
+		this.root = list.root;
+		this.shift = list.shift;
+		this.start = 0;
+		this.size = size;
+		this.tail = list.tail;
+	}
+}
@@ -0,0 +1,292 @@
+package dyvil.collection.impl;
+
+import dyvil.annotation.internal.NonNull;
+import dyvil.annotation.internal.Nullable;
+import dyvil.collection.*;
+import dyvil.tuple.Tuple;
+import dyvil.util.Option;
+import dyvil.util.Some;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Base class for thread-safe maps that delegate to a {@link ConcurrentMap} from {@code java.util.concurrent}. All
+ * single-key operations are atomic. Bulk operations such as {@link #filter(BiPredicate)} are applied entry by entry,
+ * and iterators are weakly consistent: they never throw {@link java.util.ConcurrentModificationException} and reflect
+ * some, but not necessarily all, modifications made after their creation.
+ * <p>
+ * Like the maps in {@code java.util.concurrent}, these maps do not permit {@code null} keys or values, so a {@code null}
+ * result always means that the key was not mapped.
+ */
+public abstract class AbstractConcurrentMap<K, V> implements MutableMap<K, V>
+{
+	private static final long serialVersionUID = 5412978432140396124L;
+
+	protected final ConcurrentMap<K, V> map;
+
+	// Constructors
+
+	protected AbstractConcurrentMap(ConcurrentMap<K, V> map)
+	{
+		this.map = map;
+	}
+
+	// Implementation Methods
+
+	@Override
+	public int size()
+	{
+		return this.map.size();
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return this.map.isEmpty();
+	}
+
+	@NonNull
+	@Override
+	public Iterator<Entry<K, V>> iterator()
+	{
+		final Iterator<java.util.Map.Entry<K, V>> iterator = this.map.entrySet().iterator();
+		return new Iterator<Entry<K, V>>()
+		{
+			@Override
+			public boolean hasNext()
+			{
+				return iterator.hasNext();
+			}
+
+			@Override
+			public Entry<K, V> next()
+			{
+				final java.util.Map.Entry<K, V> entry = iterator.next();
+				return new Tuple.Of2<>(entry.getKey(), entry.getValue());
+			}
+
+			@Override
+			public void remove()
+			{
+				iterator.remove();
+			}
+
+			@NonNull
+			@Override
+			public String toString()
+			{
+				return "EntryIterator(" + AbstractConcurrentMap.this + ")";
+			}
+		};
+	}
+
+	@NonNull
+	@Override
+	public Iterator<K> keyIterator()
+	{
+		return this.map.keySet().iterator();
+	}
+
+	@NonNull
+	@Override
+	public Iterator<V> valueIterator()
+	{
+		return this.map.values().iterator();
+	}
+
+	@Override
+	public void forEach(@NonNull BiConsumer<? super K, ? super V> action)
+	{
+		this.map.forEach(action);
+	}
+
+	@Override
+	public boolean containsKey(@Nullable Object key)
+	{
+		return key != null && this.map.containsKey(key);
+	}
+
+	@Override
+	public boolean containsValue(@Nullable Object value)
+	{
+		return value != null && this.map.containsValue(value);
+	}
+
+	@Override
+	public boolean contains(@Nullable Object key, @Nullable Object value)
+	{
+		return value != null && value.equals(this.get(key));
+	}
+
+	@Nullable
+	@Override
+	public V get(@Nullable Object key)
+	{
+		return key == null ? null : this.map.get(key);
+	}
+
+	@Nullable
+	@Override
+	public Entry<K, V> getEntry(@Nullable Object key)
+	{
+		final V value = this.get(key);
+		return value == null ? null : new Tuple.Of2<>((K) key, value);
+	}
+
+	@NonNull
+	@Override
+	public Option<V> getOption(@Nullable Object key)
+	{
+		final V value = this.get(key);
+		return value == null ? Option.apply() : new Some<>(value);
+	}
+
+	@Override
+	public void clear()
+	{
+		this.map.clear();
+	}
+
+	@Override
+	public void subscript_$eq(K key, V value)
+	{
+		this.map.put(key, value);
+	}
+
+	@Nullable
+	@Override
+	public V put(K key, V value)
+	{
+		return this.map.put(key, value);
+	}
+
+	@Override
+	public void putAll(@NonNull Map<? extends K, ? extends V> map)
+	{
+		for (Entry<? extends K, ? extends V> entry : map)
+		{
+			this.map.put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	@Override
+	public V putIfAbsent(K key, V value)
+	{
+		final V oldValue = this.map.putIfAbsent(key, value);
+		return oldValue != null ? oldValue : value;
+	}
+
+	/**
+	 * Returns the value mapped to the given key. If the key is not mapped, the value is computed using the given
+	 * {@code mapper} function and added to this map. The whole operation is atomic, so the function is applied at most
+	 * once per key even if multiple threads request the same key at the same time.
+	 *
+	 * @param key
+	 * 	the key
+	 * @param mapper
+	 * 	the function that computes the value for an unmapped key
+	 *
+	 * @return the current or the computed value, or {@code null} if the function returned {@code null}
+	 */
+	@Nullable
+	public V computeIfAbsent(K key, @NonNull Function<? super K, ? extends V> mapper)
+	{
+		return this.map.computeIfAbsent(key, mapper);
+	}
+
+	@Override
+	public boolean replace(K key, @Nullable V oldValue, V newValue)
+	{
+		return oldValue != null && this.map.replace(key, oldValue, newValue);
+	}
+
+	@Nullable
+	@Override
+	public V replace(K key, V newValue)
+	{
+		return this.map.replace(key, newValue);
+	}
+
+	@Nullable
+	@Override
+	public V removeKey(@Nullable Object key)
+	{
+		return key == null ? null : this.map.remove(key);
+	}
+
+	@Override
+	public boolean removeValue(@Nullable Object value)
+	{
+		if (value == null)
+		{
+			return false;
+		}
+
+		for (java.util.Map.Entry<K, V> entry : this.map.entrySet())
+		{
+			// only removes the entry if no other thread changed it in the meantime
+			if (value.equals(entry.getValue()) && this.map.remove(entry.getKey(), value))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean remove(@Nullable Object key, @Nullable Object value)
+	{
+		return key != null && value != null && this.map.remove(key, value);
+	}
+
+	@Override
+	public void mapValues(@NonNull BiFunction<? super K, ? super V, ? extends V> mapper)
+	{
+		this.map.replaceAll(mapper);
+	}
+
+	@Override
+	public void filter(@NonNull BiPredicate<? super K, ? super V> condition)
+	{
+		for (java.util.Map.Entry<K, V> entry : this.map.entrySet())
+		{
+			final K key = entry.getKey();
+			final V value = entry.getValue();
+			if (!condition.test(key, value))
+			{
+				this.map.remove(key, value);
+			}
+		}
+	}
+
+	@NonNull
+	@Override
+	public ImmutableMap<K, V> immutable()
+	{
+		return this.immutableCopy();
+	}
+
+	@NonNull
+	@Override
+	public String toString()
+	{
+		return Map.mapToString(this);
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		return Map.mapEquals(this, obj);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Map.mapHashCode(this);
+	}
+}
@@ -0,0 +1,174 @@
+package dyvil.collection.impl;
+
+import dyvil.annotation.internal.NonNull;
+import dyvil.annotation.internal.Nullable;
+import dyvil.collection.Collection;
+import dyvil.collection.Queue;
+
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Base class for thread-safe queues that delegate to a lock-free queue from {@code java.util.concurrent}. Offering and
+ * removing single elements is atomic, and iterators are weakly consistent. The bulk operations {@link
+ * ##map(Function)} and {@link ##flatMap(Function)} remove and re-offer every element once; they are not atomic with
+ * respect to other threads.
+ * <p>
+ * Like the queues in {@code java.util.concurrent}, these queues do not permit {@code null} elements, so a {@code null}
+ * result always means that the queue was empty.
+ */
+public abstract class AbstractConcurrentQueue<E> implements Queue<E>
+{
+	private static final long serialVersionUID = -3066785950934117530L;
+
+	protected final java.util.Queue<E> queue;
+
+	// Constructors
+
+	protected AbstractConcurrentQueue(java.util.Queue<E> queue)
+	{
+		this.queue = queue;
+	}
+
+	// Implementation Methods
+
+	protected abstract <R> AbstractConcurrentQueue<R> emptyCopy();
+
+	@Override
+	public int size()
+	{
+		return this.queue.size();
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return this.queue.isEmpty();
+	}
+
+	@NonNull
+	@Override
+	public Iterator<E> iterator()
+	{
+		return this.queue.iterator();
+	}
+
+	@Override
+	public boolean contains(@Nullable Object element)
+	{
+		return this.queue.contains(element);
+	}
+
+	@Nullable
+	@Override
+	public E element()
+	{
+		return this.queue.peek();
+	}
+
+	@Override
+	public void clear()
+	{
+		this.queue.clear();
+	}
+
+	@Override
+	public void offer(E element)
+	{
+		this.queue.offer(element);
+	}
+
+	@Nullable
+	@Override
+	public E remove()
+	{
+		return this.queue.poll();
+	}
+
+	@Override
+	public void map(@NonNull Function<? super E, ? extends E> mapper)
+	{
+		for (int i = this.queue.size(); i > 0; i--)
+		{
+			final E element = this.queue.poll();
+			if (element == null)
+			{
+				return;
+			}
+			this.queue.offer(mapper.apply(element));
+		}
+	}
+
+	@NonNull
+	@Override
+	public <R> Queue<R> mapped(@NonNull Function<? super E, ? extends R> mapper)
+	{
+		final AbstractConcurrentQueue<R> copy = this.emptyCopy();
+		for (E element : this.queue)
+		{
+			copy.queue.offer(mapper.apply(element));
+		}
+		return copy;
+	}
+
+	@Override
+	public void flatMap(@NonNull Function<? super E, ? extends @NonNull Iterable<? extends E>> mapper)
+	{
+		for (int i = this.queue.size(); i > 0; i--)
+		{
+			final E element = this.queue.poll();
+			if (element == null)
+			{
+				return;
+			}
+			for (E newElement : mapper.apply(element))
+			{
+				this.queue.offer(newElement);
+			}
+		}
+	}
+
+	@NonNull
+	@Override
+	public <R> Queue<R> flatMapped(@NonNull Function<? super E, ? extends @NonNull Iterable<? extends R>> mapper)
+	{
+		final AbstractConcurrentQueue<R> copy = this.emptyCopy();
+		for (E element : this.queue)
+		{
+			for (R newElement : mapper.apply(element))
+			{
+				copy.queue.offer(newElement);
+			}
+		}
+		return copy;
+	}
+
+	@Override
+	public void filter(@NonNull Predicate<? super E> predicate)
+	{
+		this.queue.removeIf(element -> !predicate.test(element));
+	}
+
+	@NonNull
+	@Override
+	public Queue<E> filtered(@NonNull Predicate<? super E> predicate)
+	{
+		final AbstractConcurrentQueue<E> copy = this.emptyCopy();
+		for (E element : this.queue)
+		{
+			if (predicate.test(element))
+			{
+				copy.queue.offer(element);
+			}
+		}
+		return copy;
+	}
+
+	@NonNull
+	@Override
+	public String toString()
+	{
+		return Collection.collectionToString(this);
+	}
+}
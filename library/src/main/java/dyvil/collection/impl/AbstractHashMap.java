@@ -17,90 +17,87 @@ import java.util.Objects;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
+/**
+ * Base class for hash maps that store their mappings in flat, parallel {@code keys}, {@code values} and {@code hashes}
+ * arrays using open addressing with linear probing. Removal uses backward-shift deletion, so the table never contains
+ * tombstones. No object is allocated per mapping; {@link HashEntry} views are only created when an {@link Entry} or an
+ * {@link ObjectRef} is requested.
+ */
 public abstract class AbstractHashMap<K, V> implements Map<K, V>
 {
-	protected static final class HashEntry<K, V> implements Entry<K, V>, ObjectRef<V>
+	/**
+	 * A view of the mapping for a key. The view remembers the slot of the mapping and only looks the key up again if
+	 * the mapping was moved by a rehash or a removal. If the mapping was removed, {@link #getValue()} returns {@code
+	 * null}, and {@link #get()} and {@link #set(Object)} throw an {@link InvalidReferenceException}, so a detached view
+	 * never changes the map.
+	 */
+	protected final class HashEntry implements Entry<K, V>, ObjectRef<V>
 	{
 		private static final long serialVersionUID = 6421167357975687099L;
 
-		@Nullable
-		public transient K               key;
-		@Nullable
-		public transient V               value;
-		public transient int             hash;
-		@Nullable
-		public transient HashEntry<K, V> next;
+		private final Object key;
+		private       int    index;
 
-		public HashEntry(K key, V value, int hash)
+		public HashEntry(int index)
 		{
-			this.key = key;
-			this.value = value;
-			this.hash = hash;
+			this.key = AbstractHashMap.this.keys[index];
+			this.index = index;
 		}
 
-		public HashEntry(K key, V value, int hash, HashEntry<K, V> next)
+		private int slot()
 		{
-			this.key = key;
-			this.value = value;
-			this.hash = hash;
-			this.next = next;
+			final Object[] keys = AbstractHashMap.this.keys;
+			final int index = this.index;
+			if (index >= 0 && index < keys.length && keys[index] == this.key)
+			{
+				return index;
+			}
+			return this.index = AbstractHashMap.this.slotIndex(unmaskNull(this.key));
 		}
 
 		@Nullable
 		@Override
-		public V get()
-		{
-			this.validateReference();
-			return this.value;
-		}
-
-		@Override
-		public void set(V value)
-		{
-			this.validateReference();
-			this.value = value;
-		}
-
-		private void validateReference()
+		public K getKey()
 		{
-			if (this.isInvalid())
-			{
-				throw new InvalidReferenceException("Entry was removed from Map");
-			}
+			return (K) unmaskNull(this.key);
 		}
 
 		@Nullable
 		@Override
-		public K getKey()
+		public V getValue()
 		{
-			return this.key;
+			final int index = this.slot();
+			return index < 0 ? null : (V) AbstractHashMap.this.values[index];
 		}
 
 		@Nullable
 		@Override
-		public V getValue()
+		public V get()
 		{
-			return this.value;
+			return (V) AbstractHashMap.this.values[this.validSlot()];
 		}
 
-		public void invalidate()
+		@Override
+		public void set(V value)
 		{
-			this.key = null;
-			this.value = null;
-			this.hash = -1;
-			this.next = null;
+			AbstractHashMap.this.values[this.validSlot()] = value;
 		}
 
-		private boolean isInvalid()
+		private int validSlot()
 		{
-			return this.hash == -1 && this.key == null;
+			final int index = this.slot();
+			if (index < 0)
+			{
+				throw new InvalidReferenceException("Entry was removed from Map");
+			}
+			return index;
 		}
 
-		@Nullable
+		@NonNull
 		@Override
 		public String toString()
 		{
-			return this.key + " -> " + this.value;
+			return this.getKey() + " -> " + this.getValue();
 		}
 
 		@Override
@@ -114,89 +111,62 @@ public abstract class AbstractHashMap<K, V> implements Map<K, V>
 		{
 			return Entry.entryHashCode(this);
 		}
-
-		private void writeObject(java.io.@NonNull ObjectOutputStream out) throws IOException
-		{
-			out.defaultWriteObject();
-
-			out.writeObject(this.key);
-			out.writeObject(this.value);
-			out.writeObject(this.next);
-		}
-
-		private void readObject(java.io.@NonNull ObjectInputStream in) throws IOException, ClassNotFoundException
-		{
-			in.defaultReadObject();
-
-			this.key = (K) in.readObject();
-			this.value = (V) in.readObject();
-			this.next = (HashEntry<K, V>) in.readObject();
-			this.hash = hash(this.key);
-		}
 	}
 
+	/**
+	 * Visits the slots in descending order, starting below a free slot. Backward-shift deletion only moves mappings
+	 * into the removed slot from slots above it, which this iterator has already visited, so {@link #remove()} neither
+	 * skips nor repeats a mapping.
+	 */
 	protected abstract class EntryIterator<E> implements Iterator<E>
 	{
-		@Nullable HashEntry<K, V> next;        // next entry to return
-		@Nullable HashEntry<K, V> current;    // current entry
-		int index;        // current slot
+		private final int end     = AbstractHashMap.this.freeSlot();
+		private       int next    = this.advance(this.end);
+		private       int current = -1;
 
-		EntryIterator()
+		private int advance(int index)
 		{
-			HashEntry<K, V>[] t = AbstractHashMap.this.entries;
-			this.current = this.next = null;
-			this.index = 0;
-			// advance to first entry
-			if (t != null && AbstractHashMap.this.size > 0)
+			final Object[] keys = AbstractHashMap.this.keys;
+			final int mask = keys.length - 1;
+			for (int i = (index - 1) & mask; i != this.end; i = (i - 1) & mask)
 			{
-				this.advance(t);
-			}
-		}
-
-		private void advance(HashEntry<K, V> @NonNull [] t)
-		{
-			while (true)
-			{
-				if (!(this.index < t.length && (this.next = t[this.index++]) == null))
+				if (keys[i] != null)
 				{
-					break;
+					return i;
 				}
 			}
+			return -1;
 		}
 
 		@Override
 		public final boolean hasNext()
 		{
-			return this.next != null;
+			return this.next >= 0;
 		}
 
-		@Nullable
-		final HashEntry<K, V> nextEntry()
+		protected final int nextIndex()
 		{
-			HashEntry<K, V>[] t;
-			HashEntry<K, V> e = this.next;
-			if (e == null)
+			final int index = this.next;
+			if (index < 0)
 			{
 				throw new NoSuchElementException();
 			}
-			if ((this.next = (this.current = e).next) == null && (t = AbstractHashMap.this.entries) != null)
-			{
-				this.advance(t);
-			}
-			return e;
+
+			this.current = index;
+			this.next = this.advance(index);
+			return index;
 		}
 
 		@Override
 		public final void remove()
 		{
-			HashEntry<K, V> e = this.current;
-			if (e == null)
+			if (this.current < 0)
 			{
 				throw new IllegalStateException();
 			}
 
-			AbstractHashMap.this.removeEntry(e);
-			this.current = null;
+			AbstractHashMap.this.removeSlot(this.current);
+			this.current = -1;
 		}
 	}
 
@@ -207,14 +177,22 @@ public abstract class AbstractHashMap<K, V> implements Map<K, V>
 	public static final float DEFAULT_LOAD_FACTOR = 0.75F;
 	public static final int   MAX_ARRAY_SIZE      = Integer.MAX_VALUE - 8;
 
-	protected transient int               size;
-	protected transient HashEntry<K, V>[] entries;
+	protected static final int    MAX_TABLE_SIZE = 1 << 30;
+	protected static final Object NULL           = new Object();
+
+	protected float loadFactor = DEFAULT_LOAD_FACTOR;
+
+	protected transient int      size;
+	protected transient int      threshold;
+	protected transient Object[] keys;
+	protected transient Object[] values;
+	protected transient int[]    hashes;
 
 	// Constructors
 
 	public AbstractHashMap()
 	{
-		this.entries = (HashEntry<K, V>[]) new HashEntry[DEFAULT_CAPACITY];
+		this(DEFAULT_CAPACITY);
 	}
 
 	public AbstractHashMap(int capacity)
@@ -223,7 +201,7 @@ public abstract class AbstractHashMap<K, V> implements Map<K, V>
 		{
 			throw new IllegalArgumentException("Invalid Capacity: " + capacity);
 		}
-		this.entries = (HashEntry<K, V>[]) new HashEntry[MathUtils.nextPowerOf2(grow(capacity))];
+		this.allocate(tableSize(capacity, DEFAULT_LOAD_FACTOR));
 	}
 
 	public AbstractHashMap(Entry<? extends K, ? extends V> @NonNull [] entries)
@@ -259,21 +237,12 @@ public abstract class AbstractHashMap<K, V> implements Map<K, V>
 
 	public AbstractHashMap(@NonNull AbstractHashMap<? extends K, ? extends V> map)
 	{
-		this(map.size);
+		// the tables of the other map are already valid, so they can simply be copied
 		this.size = map.size;
-
-		final HashEntry<K, V>[] hashEntries = this.entries;
-		final int length = hashEntries.length;
-
-		for (HashEntry<? extends K, ? extends V> hashEntry : map.entries)
-		{
-			for (; hashEntry != null; hashEntry = hashEntry.next)
-			{
-				final int hash = hashEntry.hash;
-				final int index = index(hash, length);
-				hashEntries[index] = new HashEntry<>(hashEntry.key, hashEntry.value, hash, hashEntries[index]);
-			}
-		}
+		this.keys = map.keys.clone();
+		this.values = map.values.clone();
+		this.hashes = map.hashes.clone();
+		this.updateThreshold(this.keys.length);
 	}
 
 	// Implementation Methods
@@ -295,74 +264,194 @@ public abstract class AbstractHashMap<K, V> implements Map<K, V>
 		return (int) ((size + 1) * GROWTH_FACTOR);
 	}
 
+	protected static int tableSize(int capacity, float loadFactor)
+	{
+		final int size = (int) Math.min(capacity / loadFactor + 1, MAX_TABLE_SIZE);
+		return size <= 2 ? 2 : MathUtils.nextPowerOf2(size);
+	}
+
+	/**
+	 * Returns the first slot to probe for the given hash. Linear probing is sensitive to clustering, so the hash is
+	 * scrambled once more to spread keys with sequential hash codes.
+	 */
+	protected static int slot(int hash, int mask)
+	{
+		final int h = hash * -1640531527;
+		return (h ^ h >>> 16) & mask;
+	}
+
+	public static Object maskNull(@Nullable Object key)
+	{
+		return key == null ? NULL : key;
+	}
+
+	@Nullable
+	public static Object unmaskNull(Object key)
+	{
+		return key == NULL ? null : key;
+	}
+
+	private void allocate(int length)
+	{
+		this.keys = new Object[length];
+		this.values = new Object[length];
+		this.hashes = new int[length];
+		this.updateThreshold(length);
+	}
+
+	protected void updateThreshold(int length)
+	{
+		// the table always keeps at least one free slot to terminate probe sequences
+		this.threshold = Math.min((int) (length * this.loadFactor), length - 1);
+	}
+
 	protected void flatten()
 	{
-		this.ensureCapacityInternal(this.entries.length << 1);
+		final int length = this.keys.length;
+		if (length >= MAX_TABLE_SIZE)
+		{
+			throw new IllegalStateException("Capacity exhausted");
+		}
+		this.ensureCapacityInternal(length << 1);
 	}
 
 	public void ensureCapacity(int newCapacity)
 	{
-		if (newCapacity > this.entries.length)
+		if (newCapacity > this.threshold)
 		{
-			this.ensureCapacityInternal(MathUtils.nextPowerOf2(newCapacity));
+			this.ensureCapacityInternal(tableSize(newCapacity, this.loadFactor));
 		}
 	}
 
-	protected void ensureCapacityInternal(int newCapacity)
+	protected void ensureCapacityInternal(int newLength)
 	{
-		HashEntry[] oldMap = this.entries;
-		int oldCapacity = oldMap.length;
+		final Object[] oldKeys = this.keys;
+		final Object[] oldValues = this.values;
+		final int[] oldHashes = this.hashes;
+		final int oldLength = oldKeys.length;
 
-		// overflow-conscious code
-		if (newCapacity - MAX_ARRAY_SIZE > 0)
+		if (newLength <= oldLength)
 		{
-			if (oldCapacity == MAX_ARRAY_SIZE)
+			return;
+		}
+
+		final Object[] keys = this.keys = new Object[newLength];
+		final Object[] values = this.values = new Object[newLength];
+		final int[] hashes = this.hashes = new int[newLength];
+		final int mask = newLength - 1;
+
+		for (int i = 0; i < oldLength; i++)
+		{
+			final Object key = oldKeys[i];
+			if (key == null)
+			{
+				continue;
+			}
+
+			final int hash = oldHashes[i];
+			int index = slot(hash, mask);
+			while (keys[index] != null)
 			{
-				// Keep running with MAX_ARRAY_SIZE buckets
-				return;
+				index = (index + 1) & mask;
 			}
-			newCapacity = MAX_ARRAY_SIZE;
+
+			keys[index] = key;
+			values[index] = oldValues[i];
+			hashes[index] = hash;
 		}
 
-		HashEntry[] newMap = this.entries = (HashEntry<K, V>[]) new HashEntry[newCapacity];
-		for (int i = oldCapacity; i-- > 0; )
+		this.updateThreshold(newLength);
+	}
+
+	/**
+	 * Returns the slot that holds the given key, or {@code -1} if the key is not mapped.
+	 */
+	protected int slotIndex(@Nullable Object key)
+	{
+		final Object maskedKey = maskNull(key);
+		final int hash = hash(key);
+		final Object[] keys = this.keys;
+		final int[] hashes = this.hashes;
+		final int mask = keys.length - 1;
+
+		for (int i = slot(hash, mask); ; i = (i + 1) & mask)
 		{
-			HashEntry e = oldMap[i];
-			while (e != null)
+			final Object k = keys[i];
+			if (k == null)
+			{
+				return -1;
+			}
+			if (k == maskedKey || hashes[i] == hash && maskedKey.equals(k))
 			{
-				int index = index(e.hash, newCapacity);
-				HashEntry next = e.next;
-				e.next = newMap[index];
-				newMap[index] = e;
-				e = next;
+				return i;
 			}
 		}
-
-		this.updateThreshold(newCapacity);
 	}
 
-	protected void updateThreshold(int newCapacity)
+	/**
+	 * Returns the slot that holds the given key, or the free slot at which it would have to be inserted. The caller
+	 * can distinguish the cases by checking {@code keys[index] == null}.
+	 */
+	protected int insertionSlot(@NonNull Object maskedKey, int hash)
 	{
+		final Object[] keys = this.keys;
+		final int[] hashes = this.hashes;
+		final int mask = keys.length - 1;
+
+		for (int i = slot(hash, mask); ; i = (i + 1) & mask)
+		{
+			final Object k = keys[i];
+			if (k == null || k == maskedKey || hashes[i] == hash && maskedKey.equals(k))
+			{
+				return i;
+			}
+		}
 	}
 
-	protected void putInternal(@Nullable K key, V value)
+	protected int freeSlot()
 	{
-		int hash = hash(key);
-		int i = index(hash, this.entries.length);
-		for (HashEntry<K, V> e = this.entries[i]; e != null; e = e.next)
+		final Object[] keys = this.keys;
+		for (int i = 0; ; i++)
 		{
-			Object k;
-			if (e.hash == hash && ((k = e.key) == key || key != null && key.equals(k)))
+			if (keys[i] == null)
 			{
-				e.value = value;
-				return;
+				return i;
 			}
 		}
+	}
+
+	protected void putInternal(@Nullable K key, V value)
+	{
+		final Object maskedKey = maskNull(key);
+		final int hash = hash(key);
+		final int index = this.insertionSlot(maskedKey, hash);
+
+		if (this.keys[index] != null)
+		{
+			this.values[index] = value;
+			return;
+		}
 
-		this.addEntry(hash, key, value, i);
+		this.addEntry(index, hash, maskedKey, value);
 	}
 
-	protected abstract void addEntry(int hash, K key, V value, int index);
+	/**
+	 * Adds a new mapping at the given free slot, growing the table first if the threshold was reached.
+	 */
+	protected void addEntry(int index, int hash, @NonNull Object maskedKey, V value)
+	{
+		if (this.size >= this.threshold)
+		{
+			// Rehash / flatten the table if the threshold is exceeded
+			this.flatten();
+			index = this.insertionSlot(maskedKey, hash);
+		}
+
+		this.keys[index] = maskedKey;
+		this.values[index] = value;
+		this.hashes[index] = hash;
+		this.size++;
+	}
 
 	private void putAllInternal(@NonNull Iterable<? extends @NonNull Entry<? extends K, ? extends V>> iterable)
 	{
@@ -380,46 +469,59 @@ public abstract class AbstractHashMap<K, V> implements Map<K, V>
 
 	private void loadDistinct(@NonNull Iterable<? extends @NonNull Entry<? extends K, ? extends V>> iterable)
 	{
-		final HashEntry<K, V>[] entries = this.entries;
-		final int length = this.entries.length;
+		final Object[] keys = this.keys;
+		final Object[] values = this.values;
+		final int[] hashes = this.hashes;
+		final int mask = keys.length - 1;
 		int size = 0;
 
+		// Assume unique keys
 		for (Entry<? extends K, ? extends V> entry : iterable)
 		{
 			final K key = entry.getKey();
 			final int hash = hash(key);
-			final int i = index(hash, length);
 
-			entries[i] = new HashEntry<>(key, entry.getValue(), hash, entries[i]);
+			int index = slot(hash, mask);
+			while (keys[index] != null)
+			{
+				index = (index + 1) & mask;
+			}
+
+			keys[index] = maskNull(key);
+			values[index] = entry.getValue();
+			hashes[index] = hash;
 			size++;
 		}
 		this.size = size;
 	}
 
-	protected void removeEntry(@NonNull HashEntry<K, V> entry)
+	/**
+	 * Removes the mapping in the given slot and shifts the following mappings of the probe sequence back, so that
+	 * every remaining key can still be found without tombstones.
+	 */
+	protected void removeSlot(int index)
 	{
-		AbstractHashMap.this.size--;
-		int index = index(entry.hash, AbstractHashMap.this.entries.length);
-		HashEntry<K, V> e = AbstractHashMap.this.entries[index];
+		final Object[] keys = this.keys;
+		final Object[] values = this.values;
+		final int[] hashes = this.hashes;
+		final int mask = keys.length - 1;
 
-		if (e == entry)
+		int free = index;
+		for (int i = (free + 1) & mask; keys[i] != null; i = (i + 1) & mask)
 		{
-			AbstractHashMap.this.entries[index] = entry.next;
-		}
-		else
-		{
-			HashEntry<K, V> prev;
-			do
+			final int home = slot(hashes[i], mask);
+			if (((i - home) & mask) >= ((i - free) & mask))
 			{
-				prev = e;
-				e = e.next;
+				keys[free] = keys[i];
+				values[free] = values[i];
+				hashes[free] = hashes[i];
+				free = i;
 			}
-			while (e != entry);
-
-			prev.next = entry.next;
 		}
 
-		entry.invalidate();
+		keys[free] = null;
+		values[free] = null;
+		this.size--;
 	}
 
 	@Override
@@ -440,11 +542,11 @@ public abstract class AbstractHashMap<K, V> implements Map<K, V>
 	{
 		return new EntryIterator<Entry<K, V>>()
 		{
-			@Nullable
+			@NonNull
 			@Override
-			public HashEntry<K, V> next()
+			public Entry<K, V> next()
 			{
-				return this.nextEntry();
+				return new HashEntry(this.nextIndex());
 			}
 
 			@NonNull
@@ -466,7 +568,7 @@ public abstract class AbstractHashMap<K, V> implements Map<K, V>
 			@Override
 			public K next()
 			{
-				return this.nextEntry().key;
+				return (K) unmaskNull(AbstractHashMap.this.keys[this.nextIndex()]);
 			}
 
 			@NonNull
@@ -488,7 +590,7 @@ public abstract class AbstractHashMap<K, V> implements Map<K, V>
 			@Override
 			public V next()
 			{
-				return this.nextEntry().value;
+				return (V) AbstractHashMap.this.values[this.nextIndex()];
 			}
 
 			@NonNull
@@ -503,12 +605,12 @@ public abstract class AbstractHashMap<K, V> implements Map<K, V>
 	@Override
 	public void forEach(@NonNull Consumer<? super Entry<K, V>> action)
 	{
-		for (HashEntry<K, V> e : this.entries)
+		final Object[] keys = this.keys;
+		for (int i = 0, length = keys.length; i < length; i++)
 		{
-			while (e != null)
+			if (keys[i] != null)
 			{
-				action.accept(e);
-				e = e.next;
+				action.accept(new HashEntry(i));
 			}
 		}
 	}
@@ -516,12 +618,14 @@ public abstract class AbstractHashMap<K, V> implements Map<K, V>
 	@Override
 	public void forEach(@NonNull BiConsumer<? super K, ? super V> action)
 	{
-		for (HashEntry<K, V> e : this.entries)
+		final Object[] keys = this.keys;
+		final Object[] values = this.values;
+		for (int i = 0, length = keys.length; i < length; i++)
 		{
-			while (e != null)
+			final Object key = keys[i];
+			if (key != null)
 			{
-				action.accept(e.key, e.value);
-				e = e.next;
+				action.accept((K) unmaskNull(key), (V) values[i]);
 			}
 		}
 	}
@@ -529,21 +633,19 @@ public abstract class AbstractHashMap<K, V> implements Map<K, V>
 	@Override
 	public boolean containsKey(Object key)
 	{
-		return this.get(key) != null;
+		return this.slotIndex(key) >= 0;
 	}
 
 	@Override
 	public boolean containsValue(Object value)
 	{
-		for (HashEntry<K, V> e : this.entries)
+		final Object[] keys = this.keys;
+		final Object[] values = this.values;
+		for (int i = 0, length = keys.length; i < length; i++)
 		{
-			while (e != null)
+			if (keys[i] != null && Objects.equals(values[i], value))
 			{
-				if (e.value.equals(value))
-				{
-					return true;
-				}
-				e = e.next;
+				return true;
 			}
 		}
 		return false;
@@ -552,57 +654,31 @@ public abstract class AbstractHashMap<K, V> implements Map<K, V>
 	@Override
 	public boolean contains(Object key, Object value)
 	{
-		HashEntry<K, V> entry = this.getEntryInternal(key);
-		return entry != null && Objects.equals(entry.value, value);
+		final int index = this.slotIndex(key);
+		return index >= 0 && Objects.equals(this.values[index], value);
 	}
 
 	@Override
 	public @Nullable V get(Object key)
 	{
-		HashEntry<K, V> entry = this.getEntryInternal(key);
-		return entry == null ? null : entry.value;
+		final int index = this.slotIndex(key);
+		return index < 0 ? null : (V) this.values[index];
 	}
 
 	@Nullable
 	@Override
 	public Entry<K, V> getEntry(Object key)
 	{
-		return this.getEntryInternal(key);
-	}
-
-	@Nullable
-	protected HashEntry<K, V> getEntryInternal(@Nullable Object key)
-	{
-		if (key == null)
-		{
-			for (HashEntry<K, V> e = this.entries[0]; e != null; e = e.next)
-			{
-				if (e.key == null)
-				{
-					return e;
-				}
-			}
-			return null;
-		}
-
-		int hash = hash(key);
-		for (HashEntry<K, V> e = this.entries[index(hash, this.entries.length)]; e != null; e = e.next)
-		{
-			Object k;
-			if (e.hash == hash && ((k = e.key) == key || key.equals(k)))
-			{
-				return e;
-			}
-		}
-		return null;
+		final int index = this.slotIndex(key);
+		return index < 0 ? null : new HashEntry(index);
 	}
 
 	@NonNull
 	@Override
 	public Option<V> getOption(Object key)
 	{
-		HashEntry<K, V> entry = this.getEntryInternal(key);
-		return entry == null ? Option.apply() : new Some<>(entry.value);
+		final int index = this.slotIndex(key);
+		return index < 0 ? Option.apply() : new Some<>((V) this.values[index]);
 	}
 
 	@NonNull
@@ -648,11 +724,8 @@ public abstract class AbstractHashMap<K, V> implements Map<K, V>
 	@Override
 	public java.util.Map<K, V> toJava()
 	{
-		java.util.HashMap<K, V> map = new java.util.HashMap<>(this.size);
-		for (Entry<K, V> entry : this)
-		{
-			map.put(entry.getKey(), entry.getValue());
-		}
+		final java.util.HashMap<K, V> map = new java.util.HashMap<>(this.size);
+		this.forEach(map::put);
 		return map;
 	}
 
@@ -665,12 +738,15 @@ public abstract class AbstractHashMap<K, V> implements Map<K, V>
 		}
 
 		final StringBuilder builder = new StringBuilder(Map.START_STRING);
+		final Object[] keys = this.keys;
+		final Object[] values = this.values;
 
-		for (HashEntry<K, V> entry : this.entries)
+		for (int i = 0, length = keys.length; i < length; i++)
 		{
-			for (; entry != null; entry = entry.next)
+			final Object key = keys[i];
+			if (key != null)
 			{
-				builder.append(entry.key).append(Map.KEY_VALUE_SEPARATOR_STRING).append(entry.value)
+				builder.append(unmaskNull(key)).append(Map.KEY_VALUE_SEPARATOR_STRING).append(values[i])
 				       .append(Map.ENTRY_SEPARATOR_STRING);
 			}
 		}
@@ -695,18 +771,21 @@ public abstract class AbstractHashMap<K, V> implements Map<K, V>
 	{
 		out.defaultWriteObject();
 
-		int len = this.entries.length;
+		final Object[] keys = this.keys;
+		final Object[] values = this.values;
+		final int len = keys.length;
 
 		out.writeInt(this.size);
 		out.writeInt(len);
 
 		// Write key-value pairs, sequentially
-		for (HashEntry<K, V> entry : this.entries)
+		for (int i = 0; i < len; i++)
 		{
-			for (HashEntry<K, V> subEntry = entry; subEntry != null; subEntry = subEntry.next)
+			final Object key = keys[i];
+			if (key != null)
 			{
-				out.writeObject(subEntry.key);
-				out.writeObject(subEntry.value);
+				out.writeObject(unmaskNull(key));
+				out.writeObject(values[i]);
 			}
 		}
 	}
@@ -715,11 +794,11 @@ public abstract class AbstractHashMap<K, V> implements Map<K, V>
 	{
 		in.defaultReadObject();
 
-		this.size = in.readInt();
-		int len = in.readInt();
+		final int size = in.readInt();
+		in.readInt(); // table length, the table is sized for the actual number of mappings instead
 
-		this.entries = (HashEntry<K, V>[]) new HashEntry[len];
-		for (int i = 0; i < len; i++)
+		this.allocate(tableSize(size, this.loadFactor));
+		for (int i = 0; i < size; i++)
 		{
 			this.putInternal((K) in.readObject(), (V) in.readObject());
 		}
@@ -3,48 +3,34 @@ package dyvil.collection.impl;
 import dyvil.annotation.internal.NonNull;
 import dyvil.annotation.internal.Nullable;
 import dyvil.collection.*;
-import dyvil.math.MathUtils;
 
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
-import java.util.Objects;
 import java.util.function.Consumer;
 
 import static dyvil.collection.impl.AbstractHashMap.*;
 
+/**
+ * Base class for hash sets that store their elements in flat {@code elements} and {@code hashes} arrays, using the same
+ * open addressing scheme as {@link AbstractHashMap}.
+ */
 public abstract class AbstractHashSet<E> implements Set<E>
 {
-	protected static final class HashElement<E>
-	{
-		public E              element;
-		public int            hash;
-		public HashElement<E> next;
-
-		public HashElement(E element, int hash)
-		{
-			this.element = element;
-			this.hash = hash;
-		}
-
-		public HashElement(E element, int hash, HashElement<E> next)
-		{
-			this.element = element;
-			this.hash = hash;
-			this.next = next;
-		}
-	}
-
 	private static final long serialVersionUID = -2574454530914084132L;
 
-	protected transient int              size;
-	protected transient HashElement<E>[] elements;
+	protected float loadFactor = DEFAULT_LOAD_FACTOR;
+
+	protected transient int      size;
+	protected transient int      threshold;
+	protected transient Object[] elements;
+	protected transient int[]    hashes;
 
 	// Constructors
 
 	public AbstractHashSet()
 	{
-		this.elements = (HashElement<E>[]) new HashElement[DEFAULT_CAPACITY];
+		this(DEFAULT_CAPACITY);
 	}
 
 	public AbstractHashSet(int capacity)
@@ -53,7 +39,7 @@ public abstract class AbstractHashSet<E> implements Set<E>
 		{
 			throw new IllegalArgumentException("Invalid Capacity: " + capacity);
 		}
-		this.elements = (HashElement<E>[]) new HashElement[MathUtils.nextPowerOf2(AbstractHashMap.grow(capacity))];
+		this.allocate(tableSize(capacity, DEFAULT_LOAD_FACTOR));
 	}
 
 	public AbstractHashSet(E @NonNull [] elements)
@@ -85,95 +71,150 @@ public abstract class AbstractHashSet<E> implements Set<E>
 
 	public AbstractHashSet(@NonNull AbstractHashSet<? extends E> elements)
 	{
-		this(elements.size);
+		// the tables of the other set are already valid, so they can simply be copied
 		this.size = elements.size;
+		this.elements = elements.elements.clone();
+		this.hashes = elements.hashes.clone();
+		this.updateThreshold(this.elements.length);
+	}
 
-		final HashElement<E>[] hashElements = this.elements;
-		final int length = hashElements.length;
+	// Implementation Methods
 
-		for (HashElement hashElement : elements.elements)
-		{
-			for (; hashElement != null; hashElement = hashElement.next)
-			{
-				final int hash = hashElement.hash;
-				final int index = index(hash, length);
-				hashElements[index] = new HashElement<>((E) hashElement.element, hash, hashElements[index]);
-			}
-		}
+	private void allocate(int length)
+	{
+		this.elements = new Object[length];
+		this.hashes = new int[length];
+		this.updateThreshold(length);
 	}
 
-	// Implementation Methods
+	protected void updateThreshold(int length)
+	{
+		// the table always keeps at least one free slot to terminate probe sequences
+		this.threshold = Math.min((int) (length * this.loadFactor), length - 1);
+	}
 
 	protected void flatten()
 	{
-		this.ensureCapacityInternal(this.elements.length << 1);
+		final int length = this.elements.length;
+		if (length >= MAX_TABLE_SIZE)
+		{
+			throw new IllegalStateException("Capacity exhausted");
+		}
+		this.ensureCapacityInternal(length << 1);
 	}
 
 	public void ensureCapacity(int newCapacity)
 	{
-		if (newCapacity > this.elements.length)
+		if (newCapacity > this.threshold)
 		{
-			this.ensureCapacity(MathUtils.nextPowerOf2(newCapacity));
+			this.ensureCapacityInternal(tableSize(newCapacity, this.loadFactor));
 		}
 	}
 
-	protected void ensureCapacityInternal(int newCapacity)
+	protected void ensureCapacityInternal(int newLength)
 	{
-		HashElement<E>[] oldMap = this.elements;
-		int oldCapacity = oldMap.length;
+		final Object[] oldElements = this.elements;
+		final int[] oldHashes = this.hashes;
+		final int oldLength = oldElements.length;
 
-		// overflow-conscious code
-		if (newCapacity - MAX_ARRAY_SIZE > 0)
+		if (newLength <= oldLength)
 		{
-			if (oldCapacity == MAX_ARRAY_SIZE)
-			{
-				// Keep running with MAX_ARRAY_SIZE buckets
-				return;
-			}
-			newCapacity = MAX_ARRAY_SIZE;
+			return;
 		}
 
-		@SuppressWarnings("unchecked") HashElement<E>[] newMap = this.elements = new HashElement[newCapacity];
+		final Object[] elements = this.elements = new Object[newLength];
+		final int[] hashes = this.hashes = new int[newLength];
+		final int mask = newLength - 1;
 
-		for (int i = oldCapacity; i-- > 0; )
+		for (int i = 0; i < oldLength; i++)
 		{
-			for (HashElement<E> e = oldMap[i]; e != null; )
+			final Object element = oldElements[i];
+			if (element == null)
 			{
-				int index = index(e.hash, newCapacity);
-				HashElement<E> next = e.next;
+				continue;
+			}
 
-				e.next = newMap[index];
-				newMap[index] = e;
-				e = next;
+			final int hash = oldHashes[i];
+			int index = slot(hash, mask);
+			while (elements[index] != null)
+			{
+				index = (index + 1) & mask;
 			}
+
+			elements[index] = element;
+			hashes[index] = hash;
 		}
 
-		this.updateThreshold(newCapacity);
+		this.updateThreshold(newLength);
+	}
+
+	/**
+	 * Returns the slot that holds the given element, or {@code -1} if the set does not contain it.
+	 */
+	protected int slotIndex(@Nullable Object element)
+	{
+		final Object maskedElement = maskNull(element);
+		final int hash = hash(element);
+		final Object[] elements = this.elements;
+		final int[] hashes = this.hashes;
+		final int mask = elements.length - 1;
+
+		for (int i = slot(hash, mask); ; i = (i + 1) & mask)
+		{
+			final Object e = elements[i];
+			if (e == null)
+			{
+				return -1;
+			}
+			if (e == maskedElement || hashes[i] == hash && maskedElement.equals(e))
+			{
+				return i;
+			}
+		}
 	}
 
-	protected void updateThreshold(int newCapacity)
+	protected int freeSlot()
 	{
+		final Object[] elements = this.elements;
+		for (int i = 0; ; i++)
+		{
+			if (elements[i] == null)
+			{
+				return i;
+			}
+		}
 	}
 
 	protected boolean addInternal(E element)
 	{
-		int hash = hash(element);
-		int i = index(hash, this.elements.length);
-		for (HashElement<E> e = this.elements[i]; e != null; e = e.next)
+		final Object maskedElement = maskNull(element);
+		final int hash = hash(element);
+		final Object[] elements = this.elements;
+		final int[] hashes = this.hashes;
+		final int mask = elements.length - 1;
+
+		int index = slot(hash, mask);
+		for (Object e; (e = elements[index]) != null; index = (index + 1) & mask)
 		{
-			Object key;
-			if (e.hash == hash && ((key = e.element) == element || Objects.equals(element, key)))
+			if (e == maskedElement || hashes[index] == hash && maskedElement.equals(e))
 			{
 				return false;
 			}
 		}
 
-		this.addElement(hash, element, i);
+		if (this.size >= this.threshold)
+		{
+			// Rehash / flatten the table if the threshold is exceeded
+			this.flatten();
+			return this.addInternal(element);
+		}
+
+		elements[index] = maskedElement;
+		hashes[index] = hash;
+		this.size++;
 		return true;
 	}
 
-	protected abstract void addElement(int hash, E element, int index);
-
 	protected void addAllInternal(@NonNull Iterable<? extends E> iterable)
 	{
 		for (E element : iterable)
@@ -190,21 +231,56 @@ public abstract class AbstractHashSet<E> implements Set<E>
 
 	private void loadDistinct(@NonNull Iterable<? extends E> iterable)
 	{
-		final HashElement<E>[] hashElements = this.elements;
-		final int length = hashElements.length;
+		final Object[] elements = this.elements;
+		final int[] hashes = this.hashes;
+		final int mask = elements.length - 1;
 		int size = 0;
 
 		// Assume unique elements
 		for (E element : iterable)
 		{
+			final int hash = hash(element);
+
+			int index = slot(hash, mask);
+			while (elements[index] != null)
+			{
+				index = (index + 1) & mask;
+			}
+
+			elements[index] = maskNull(element);
+			hashes[index] = hash;
 			size++;
-			int hash = hash(element);
-			int index = index(hash, length);
-			hashElements[index] = new HashElement<>(element, hash, hashElements[index]);
 		}
 		this.size = size;
 	}
 
+	/**
+	 * Removes the element in the given slot and shifts the following elements of the probe sequence back.
+	 *
+	 * @see AbstractHashMap#removeSlot(int)
+	 */
+	protected void removeSlot(int index)
+	{
+		final Object[] elements = this.elements;
+		final int[] hashes = this.hashes;
+		final int mask = elements.length - 1;
+
+		int free = index;
+		for (int i = (free + 1) & mask; elements[i] != null; i = (i + 1) & mask)
+		{
+			final int home = slot(hashes[i], mask);
+			if (((i - home) & mask) >= ((i - free) & mask))
+			{
+				elements[free] = elements[i];
+				hashes[free] = hashes[i];
+				free = i;
+			}
+		}
+
+		elements[free] = null;
+		this.size--;
+	}
+
 	@Override
 	public int size()
 	{
@@ -217,96 +293,68 @@ public abstract class AbstractHashSet<E> implements Set<E>
 	{
 		return new Iterator<E>()
 		{
-			@Nullable HashElement<E> next; // next entry to return
-			@Nullable HashElement<E> current; // current entry
-			int index; // current slot
+			// Visits the slots in descending order, starting below a free slot, so that remove() only moves elements
+			// that were already returned (see AbstractHashMap.EntryIterator)
+			private final int end     = AbstractHashSet.this.freeSlot();
+			private       int next    = this.advance(this.end);
+			private       int current = -1;
 
+			private int advance(int index)
 			{
-				HashElement<E>[] t = AbstractHashSet.this.elements;
-				this.current = this.next = null;
-				this.index = 0;
-
-				// advance to first entry
-				if (t != null && AbstractHashSet.this.size > 0)
+				final Object[] elements = AbstractHashSet.this.elements;
+				final int mask = elements.length - 1;
+				for (int i = (index - 1) & mask; i != this.end; i = (i - 1) & mask)
 				{
-					this.advance(t);
+					if (elements[i] != null)
+					{
+						return i;
+					}
 				}
+				return -1;
 			}
 
 			@Override
-			public final boolean hasNext()
+			public boolean hasNext()
 			{
-				return this.next != null;
+				return this.next >= 0;
 			}
 
 			@Override
-			public final E next()
+			public E next()
 			{
-				HashElement<E>[] t;
-				HashElement<E> e = this.next;
-				if (e == null)
+				final int index = this.next;
+				if (index < 0)
 				{
 					throw new NoSuchElementException();
 				}
-				if ((this.next = (this.current = e).next) == null && (t = AbstractHashSet.this.elements) != null)
-				{
-					this.advance(t);
-				}
-				return e.element;
-			}
 
-			private void advance(HashElement<E> @NonNull [] t)
-			{
-				//noinspection StatementWithEmptyBody
-				while (this.index < t.length && (this.next = t[this.index++]) == null);
+				this.current = index;
+				this.next = this.advance(index);
+				return (E) unmaskNull(AbstractHashSet.this.elements[index]);
 			}
 
 			@Override
-			public final void remove()
+			public void remove()
 			{
-				HashElement<E> e = this.current;
-				if (e == null)
+				if (this.current < 0)
 				{
 					throw new IllegalStateException();
 				}
 
-				AbstractHashSet.this.removeElement(e);
-				this.current = null;
+				AbstractHashSet.this.removeSlot(this.current);
+				this.current = -1;
 			}
 		};
 	}
 
-	protected void removeElement(@NonNull HashElement<E> element)
-	{
-		this.size--;
-		int index = index(element.hash, this.elements.length);
-		HashElement<E> e = this.elements[index];
-		if (e == element)
-		{
-			this.elements[index] = element.next;
-		}
-		else
-		{
-			HashElement<E> prev;
-			do
-			{
-				prev = e;
-				e = e.next;
-			}
-			while (e != element);
-
-			prev.next = element.next;
-		}
-	}
-
 	@Override
 	public void forEach(@NonNull Consumer<? super E> action)
 	{
-		for (HashElement<E> hashElement : this.elements)
+		for (Object element : this.elements)
 		{
-			for (; hashElement != null; hashElement = hashElement.next)
+			if (element != null)
 			{
-				action.accept(hashElement.element);
+				action.accept((E) unmaskNull(element));
 			}
 		}
 	}
@@ -314,29 +362,7 @@ public abstract class AbstractHashSet<E> implements Set<E>
 	@Override
 	public boolean contains(@Nullable Object element)
 	{
-		if (element == null)
-		{
-			for (HashElement<E> hashElement = this.elements[0]; hashElement != null; hashElement = hashElement.next)
-			{
-				if (hashElement.element == null)
-				{
-					return true;
-				}
-			}
-
-			return false;
-		}
-
-		int hash = hash(element);
-		int index = index(hash, this.elements.length);
-		for (HashElement<E> hashElement = this.elements[index]; hashElement != null; hashElement = hashElement.next)
-		{
-			if (hashElement.hash == hash && element.equals(hashElement.element))
-			{
-				return true;
-			}
-		}
-		return false;
+		return this.slotIndex(element) >= 0;
 	}
 
 	@NonNull
@@ -413,17 +439,14 @@ public abstract class AbstractHashSet<E> implements Set<E>
 	{
 		out.defaultWriteObject();
 
-		int len = this.elements.length;
-
 		out.writeInt(this.size);
-		out.writeInt(len);
+		out.writeInt(this.elements.length);
 
-		for (int i = 0; i < len; i++)
+		for (Object element : this.elements)
 		{
-			for (HashElement<E> element = this.elements[i]; element != null; element = element.next)
+			if (element != null)
 			{
-				out.writeObject(element.element);
-				out.writeByte(i);
+				out.writeObject(unmaskNull(element));
 			}
 		}
 	}
@@ -432,11 +455,11 @@ public abstract class AbstractHashSet<E> implements Set<E>
 	{
 		in.defaultReadObject();
 
-		this.size = in.readInt();
-		int len = in.readInt();
+		final int size = in.readInt();
+		in.readInt(); // table length, the table is sized for the actual number of elements instead
 
-		this.elements = (HashElement<E>[]) new HashElement[len];
-		for (int i = 0; i < len; i++)
+		this.allocate(tableSize(size, this.loadFactor));
+		for (int i = 0; i < size; i++)
 		{
 			this.addInternal((E) in.readObject());
 		}
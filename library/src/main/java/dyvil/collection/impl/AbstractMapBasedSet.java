@@ -52,7 +52,7 @@ public abstract class AbstractMapBasedSet<E> implements Set<E>
 	@Override
 	public <RE> MutableSet<RE> emptyCopy(int capacity)
 	{
-		return null;
+		return new dyvil.collection.mutable.MapBasedSet<>(this.map().emptyCopy(capacity));
 	}
 
 	@NonNull
@@ -0,0 +1,571 @@
+package dyvil.collection.impl;
+
+import dyvil.annotation.internal.NonNull;
+import dyvil.annotation.internal.Nullable;
+import dyvil.collection.Entry;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * A persistent hash array mapped trie, used by the immutable {@link dyvil.collection.immutable.HashMap} and {@link
+ * dyvil.collection.immutable.HashSet}.
+ * <p>
+ * Each node of the trie branches on five bits of the hash of a key, so lookups, insertions and removals take
+ * O(log<sub>32</sub> n) steps. Updates copy only the nodes on the path to the changed leaf and share all other nodes
+ * with the previous version. Keys with the same full hash are stored in a collision node.
+ * <p>
+ * All updates take an {@link Edit}. Nodes created by an in-place edit are owned by it and are modified in place by
+ * further updates with the same edit. This is used by builders and bulk operations to avoid copying the path on every
+ * insertion. Once the result has been published, the edit must no longer be used.
+ */
+public final class HashTrie
+{
+	// =============== Constants ===============
+
+	private static final int BITS  = 5;
+	private static final int MASK  = (1 << BITS) - 1;
+	private static final int DEPTH = 8;
+
+	// =============== Classes ===============
+
+	public static final class Edit
+	{
+		private final boolean inPlace;
+
+		/**
+		 * The change of the number of leaves caused by the last update.
+		 */
+		private int sizeDelta;
+
+		public Edit(boolean inPlace)
+		{
+			this.inPlace = inPlace;
+		}
+
+		public int getSizeDelta()
+		{
+			return this.sizeDelta;
+		}
+	}
+
+	public static final class Leaf<K, V> implements Entry<K, V>
+	{
+		private static final long serialVersionUID = -5027496326148930172L;
+
+		final K   key;
+		final V   value;
+		final int hash;
+
+		Leaf(K key, V value, int hash)
+		{
+			this.key = key;
+			this.value = value;
+			this.hash = hash;
+		}
+
+		@Override
+		public K getKey()
+		{
+			return this.key;
+		}
+
+		@Override
+		public V getValue()
+		{
+			return this.value;
+		}
+
+		boolean matches(Object key, int hash)
+		{
+			return this.hash == hash && Objects.equals(this.key, key);
+		}
+
+		@Override
+		public String toString()
+		{
+			return this.key + " -> " + this.value;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			return Entry.entryEquals(this, obj);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Entry.entryHashCode(this);
+		}
+	}
+
+	public abstract static class Node<K, V>
+	{
+		/**
+		 * The edit that may modify this node in place, or {@code null} if this node is persistent.
+		 */
+		final Edit owner;
+
+		/**
+		 * The leaves and sub-nodes of this node.
+		 */
+		Object[] array;
+
+		Node(Edit owner, Object[] array)
+		{
+			this.owner = owner;
+			this.array = array;
+		}
+
+		abstract Leaf<K, V> find(Object key, int hash, int shift);
+
+		abstract Node<K, V> put(Edit edit, K key, V value, int hash, int shift);
+
+		/**
+		 * @return the new node, a single leaf that should be inlined into the parent node, or {@code null} if the
+		 * node is empty
+		 */
+		abstract Object remove(Edit edit, Object key, int hash, int shift);
+
+		void forEach(@NonNull Consumer<? super Leaf<K, V>> action)
+		{
+			for (Object element : this.array)
+			{
+				if (element instanceof Leaf)
+				{
+					action.accept((Leaf<K, V>) element);
+				}
+				else
+				{
+					((Node<K, V>) element).forEach(action);
+				}
+			}
+		}
+	}
+
+	private static final class BitmapNode<K, V> extends Node<K, V>
+	{
+		int bitmap;
+
+		BitmapNode(Edit owner, int bitmap, Object[] array)
+		{
+			super(owner, array);
+			this.bitmap = bitmap;
+		}
+
+		@Override
+		Leaf<K, V> find(Object key, int hash, int shift)
+		{
+			final int bit = 1 << (hash >>> shift & MASK);
+			if ((this.bitmap & bit) == 0)
+			{
+				return null;
+			}
+
+			final Object element = this.array[Integer.bitCount(this.bitmap & bit - 1)];
+			if (element instanceof Leaf)
+			{
+				final Leaf<K, V> leaf = (Leaf<K, V>) element;
+				return leaf.matches(key, hash) ? leaf : null;
+			}
+			return ((Node<K, V>) element).find(key, hash, shift + BITS);
+		}
+
+		@Override
+		Node<K, V> put(Edit edit, K key, V value, int hash, int shift)
+		{
+			final int bit = 1 << (hash >>> shift & MASK);
+			final int index = Integer.bitCount(this.bitmap & bit - 1);
+			if ((this.bitmap & bit) == 0)
+			{
+				edit.sizeDelta = 1;
+				return this.inserted(edit, bit, index, new Leaf<>(key, value, hash));
+			}
+
+			final Object element = this.array[index];
+			if (element instanceof Leaf)
+			{
+				final Leaf<K, V> leaf = (Leaf<K, V>) element;
+				if (leaf.matches(key, hash))
+				{
+					if (leaf.value == value)
+					{
+						return this;
+					}
+					return this.replaced(edit, index, new Leaf<>(leaf.key, value, hash));
+				}
+
+				edit.sizeDelta = 1;
+				return this.replaced(edit, index, merge(edit, leaf, new Leaf<>(key, value, hash), shift + BITS));
+			}
+
+			final Node<K, V> node = (Node<K, V>) element;
+			return this.replaced(edit, index, node.put(edit, key, value, hash, shift + BITS));
+		}
+
+		@Override
+		Object remove(Edit edit, Object key, int hash, int shift)
+		{
+			final int bit = 1 << (hash >>> shift & MASK);
+			if ((this.bitmap & bit) == 0)
+			{
+				return this;
+			}
+
+			final int index = Integer.bitCount(this.bitmap & bit - 1);
+			final Object element = this.array[index];
+			final Object newElement;
+			if (element instanceof Leaf)
+			{
+				if (!((Leaf<K, V>) element).matches(key, hash))
+				{
+					return this;
+				}
+
+				edit.sizeDelta = -1;
+				newElement = null;
+			}
+			else
+			{
+				newElement = ((Node<K, V>) element).remove(edit, key, hash, shift + BITS);
+				if (newElement == element)
+				{
+					return this;
+				}
+			}
+
+			if (newElement != null)
+			{
+				if (this.array.length == 1 && newElement instanceof Leaf)
+				{
+					// a node with a single leaf is inlined into its parent
+					return newElement;
+				}
+				return this.replaced(edit, index, newElement);
+			}
+
+			switch (this.array.length)
+			{
+			case 1:
+				return null;
+			case 2:
+				final Object other = this.array[1 - index];
+				if (other instanceof Leaf)
+				{
+					return other;
+				}
+			}
+			return this.removed(edit, bit, index);
+		}
+
+		// --------------- Copying ---------------
+
+		private BitmapNode<K, V> editable(Edit edit)
+		{
+			if (this.owner == edit)
+			{
+				return this;
+			}
+			return new BitmapNode<>(edit.inPlace ? edit : null, this.bitmap, this.array.clone());
+		}
+
+		private BitmapNode<K, V> replaced(Edit edit, int index, Object element)
+		{
+			if (this.array[index] == element)
+			{
+				return this;
+			}
+
+			final BitmapNode<K, V> node = this.editable(edit);
+			node.array[index] = element;
+			return node;
+		}
+
+		private BitmapNode<K, V> inserted(Edit edit, int bit, int index, Object element)
+		{
+			final int length = this.array.length;
+			final Object[] array = new Object[length + 1];
+			System.arraycopy(this.array, 0, array, 0, index);
+			array[index] = element;
+			System.arraycopy(this.array, index, array, index + 1, length - index);
+
+			if (this.owner == edit)
+			{
+				this.bitmap |= bit;
+				this.array = array;
+				return this;
+			}
+			return new BitmapNode<>(edit.inPlace ? edit : null, this.bitmap | bit, array);
+		}
+
+		private BitmapNode<K, V> removed(Edit edit, int bit, int index)
+		{
+			final int length = this.array.length;
+			final Object[] array = new Object[length - 1];
+			System.arraycopy(this.array, 0, array, 0, index);
+			System.arraycopy(this.array, index + 1, array, index, length - index - 1);
+
+			if (this.owner == edit)
+			{
+				this.bitmap &= ~bit;
+				this.array = array;
+				return this;
+			}
+			return new BitmapNode<>(edit.inPlace ? edit : null, this.bitmap & ~bit, array);
+		}
+	}
+
+	private static final class CollisionNode<K, V> extends Node<K, V>
+	{
+		final int hash;
+
+		CollisionNode(Edit owner, int hash, Object[] array)
+		{
+			super(owner, array);
+			this.hash = hash;
+		}
+
+		private int indexOf(Object key)
+		{
+			for (int i = 0, length = this.array.length; i < length; i++)
+			{
+				if (Objects.equals(((Leaf<K, V>) this.array[i]).key, key))
+				{
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		Leaf<K, V> find(Object key, int hash, int shift)
+		{
+			if (hash != this.hash)
+			{
+				return null;
+			}
+
+			final int index = this.indexOf(key);
+			return index < 0 ? null : (Leaf<K, V>) this.array[index];
+		}
+
+		@Override
+		Node<K, V> put(Edit edit, K key, V value, int hash, int shift)
+		{
+			if (hash != this.hash)
+			{
+				// split this node by wrapping it in a bitmap node
+				final BitmapNode<K, V> node = new BitmapNode<>(edit.inPlace ? edit : null,
+				                                               1 << (this.hash >>> shift & MASK), new Object[] { this });
+				return node.put(edit, key, value, hash, shift);
+			}
+
+			final int index = this.indexOf(key);
+			final int length = this.array.length;
+			final Object[] array;
+			if (index >= 0)
+			{
+				final Leaf<K, V> leaf = (Leaf<K, V>) this.array[index];
+				if (leaf.value == value)
+				{
+					return this;
+				}
+
+				array = this.owner == edit ? this.array : this.array.clone();
+				array[index] = new Leaf<>(leaf.key, value, hash);
+			}
+			else
+			{
+				edit.sizeDelta = 1;
+				array = new Object[length + 1];
+				System.arraycopy(this.array, 0, array, 0, length);
+				array[length] = new Leaf<>(key, value, hash);
+			}
+
+			if (this.owner == edit)
+			{
+				this.array = array;
+				return this;
+			}
+			return new CollisionNode<>(edit.inPlace ? edit : null, hash, array);
+		}
+
+		@Override
+		Object remove(Edit edit, Object key, int hash, int shift)
+		{
+			final int index = hash == this.hash ? this.indexOf(key) : -1;
+			if (index < 0)
+			{
+				return this;
+			}
+
+			edit.sizeDelta = -1;
+			final int length = this.array.length;
+			if (length == 2)
+			{
+				return this.array[1 - index];
+			}
+
+			final Object[] array = new Object[length - 1];
+			System.arraycopy(this.array, 0, array, 0, index);
+			System.arraycopy(this.array, index + 1, array, index, length - index - 1);
+
+			if (this.owner == edit)
+			{
+				this.array = array;
+				return this;
+			}
+			return new CollisionNode<>(edit.inPlace ? edit : null, hash, array);
+		}
+	}
+
+	public abstract static class LeafIterator<K, V, R> implements Iterator<R>
+	{
+		private final Object[][] arrays  = new Object[DEPTH + 1][];
+		private final int[]      indices = new int[DEPTH + 1];
+		private       int        depth;
+
+		private Leaf<K, V> next;
+
+		public LeafIterator(@NonNull Node<K, V> root)
+		{
+			this.arrays[0] = root.array;
+			this.next = this.advance();
+		}
+
+		private Leaf<K, V> advance()
+		{
+			while (this.depth >= 0)
+			{
+				final Object[] array = this.arrays[this.depth];
+				final int index = this.indices[this.depth];
+				if (index >= array.length)
+				{
+					this.depth--;
+					continue;
+				}
+
+				this.indices[this.depth] = index + 1;
+				final Object element = array[index];
+				if (element instanceof Leaf)
+				{
+					return (Leaf<K, V>) element;
+				}
+
+				this.depth++;
+				this.arrays[this.depth] = ((Node<K, V>) element).array;
+				this.indices[this.depth] = 0;
+			}
+			return null;
+		}
+
+		protected abstract R get(@NonNull Leaf<K, V> leaf);
+
+		@Override
+		public boolean hasNext()
+		{
+			return this.next != null;
+		}
+
+		@Override
+		public R next()
+		{
+			final Leaf<K, V> leaf = this.next;
+			if (leaf == null)
+			{
+				throw new NoSuchElementException();
+			}
+
+			this.next = this.advance();
+			return this.get(leaf);
+		}
+	}
+
+	// =============== Static Fields ===============
+
+	private static final Node<?, ?> EMPTY = new BitmapNode<>(null, 0, new Object[0]);
+
+	// =============== Constructors ===============
+
+	private HashTrie()
+	{
+		// no instances
+	}
+
+	// =============== Static Methods ===============
+
+	@NonNull
+	public static <K, V> Node<K, V> empty()
+	{
+		return (Node<K, V>) EMPTY;
+	}
+
+	@Nullable
+	public static <K, V> Leaf<K, V> find(@NonNull Node<K, V> root, @Nullable Object key)
+	{
+		return root.find(key, AbstractHashMap.hash(key), 0);
+	}
+
+	/**
+	 * Associates the value with the key. The change of the number of leaves is stored in the edit.
+	 *
+	 * @return the new root node
+	 */
+	@NonNull
+	public static <K, V> Node<K, V> put(@NonNull Node<K, V> root, @NonNull Edit edit, K key, V value)
+	{
+		edit.sizeDelta = 0;
+		return root.put(edit, key, value, AbstractHashMap.hash(key), 0);
+	}
+
+	/**
+	 * Removes the key. The change of the number of leaves is stored in the edit.
+	 *
+	 * @return the new root node
+	 */
+	@NonNull
+	public static <K, V> Node<K, V> remove(@NonNull Node<K, V> root, @NonNull Edit edit, @Nullable Object key)
+	{
+		edit.sizeDelta = 0;
+		final Object result = root.remove(edit, key, AbstractHashMap.hash(key), 0);
+		if (result == null)
+		{
+			return empty();
+		}
+		if (result instanceof Leaf)
+		{
+			// the root is never inlined
+			final Leaf<K, V> leaf = (Leaf<K, V>) result;
+			return new BitmapNode<>(edit.inPlace ? edit : null, 1 << (leaf.hash & MASK), new Object[] { leaf });
+		}
+		return (Node<K, V>) result;
+	}
+
+	public static <K, V> void forEach(@NonNull Node<K, V> root, @NonNull Consumer<? super Leaf<K, V>> action)
+	{
+		root.forEach(action);
+	}
+
+	private static <K, V> Node<K, V> merge(Edit edit, Leaf<K, V> leaf1, Leaf<K, V> leaf2, int shift)
+	{
+		final Edit owner = edit.inPlace ? edit : null;
+		if (leaf1.hash == leaf2.hash)
+		{
+			return new CollisionNode<>(owner, leaf1.hash, new Object[] { leaf1, leaf2 });
+		}
+
+		// the hashes differ in at least one bit, so this terminates before the shift exceeds 31
+		final int index1 = leaf1.hash >>> shift & MASK;
+		final int index2 = leaf2.hash >>> shift & MASK;
+		if (index1 == index2)
+		{
+			return new BitmapNode<>(owner, 1 << index1, new Object[] { merge(edit, leaf1, leaf2, shift + BITS) });
+		}
+
+		final Object[] array = index1 < index2 ? new Object[] { leaf1, leaf2 } : new Object[] { leaf2, leaf1 };
+		return new BitmapNode<>(owner, 1 << index1 | 1 << index2, array);
+	}
+}
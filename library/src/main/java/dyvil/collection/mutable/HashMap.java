@@ -7,6 +7,7 @@ import dyvil.collection.impl.AbstractHashMap;
 import dyvil.lang.LiteralConvertible;
 import dyvil.ref.ObjectRef;
 
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
@@ -16,9 +17,6 @@ public class HashMap<K, V> extends AbstractHashMap<K, V> implements MutableMap<K
 {
 	private static final long serialVersionUID = -5390749229591621243L;
 
-	private           float loadFactor;
-	private transient int   threshold;
-
 	// Factory Methods
 
 	@NonNull
@@ -104,68 +102,48 @@ public class HashMap<K, V> extends AbstractHashMap<K, V> implements MutableMap<K
 		}
 
 		this.loadFactor = loadFactor;
-		this.threshold = (int) Math.min(capacity * loadFactor, MAX_ARRAY_SIZE + 1);
+		this.updateThreshold(this.keys.length);
+		this.ensureCapacity(capacity);
 	}
 
 	public HashMap(@NonNull Entry<? extends K, ? extends V> @NonNull [] entries)
 	{
 		super(entries);
-		this.defaultLoadFactor();
 	}
 
 	public HashMap(@NonNull Iterable<? extends @NonNull Entry<? extends K, ? extends V>> iterable)
 	{
 		super(iterable);
-		this.defaultLoadFactor();
 	}
 
 	public HashMap(@NonNull SizedIterable<? extends @NonNull Entry<? extends K, ? extends V>> iterable)
 	{
 		super(iterable);
-		this.defaultLoadFactor();
 	}
 
 	public HashMap(@NonNull Set<? extends @NonNull Entry<? extends K, ? extends V>> set)
 	{
 		super(set);
-		this.defaultLoadFactor();
 	}
 
 	public HashMap(@NonNull Map<? extends K, ? extends V> map)
 	{
 		super(map);
-		this.defaultLoadFactor();
 	}
 
 	public HashMap(@NonNull AbstractHashMap<? extends K, ? extends V> map)
 	{
 		super(map);
-		this.defaultLoadFactor();
 	}
 
 	// Implementation Methods
 
-	private void defaultLoadFactor()
-	{
-		this.loadFactor = DEFAULT_LOAD_FACTOR;
-		this.threshold = (int) (this.entries.length * DEFAULT_LOAD_FACTOR);
-	}
-
-	@Override
-	protected void updateThreshold(int newCapacity)
-	{
-		this.threshold = (int) Math.min(newCapacity * this.loadFactor, MAX_ARRAY_SIZE + 1);
-	}
-
 	@Override
 	public void clear()
 	{
 		this.size = 0;
-		int length = this.entries.length;
-		for (int i = 0; i < length; i++)
-		{
-			this.entries[i] = null;
-		}
+		Arrays.fill(this.keys, null);
+		Arrays.fill(this.values, null);
 	}
 
 	@Override
@@ -178,46 +156,27 @@ public class HashMap<K, V> extends AbstractHashMap<K, V> implements MutableMap<K
 	@Override
 	public ObjectRef<V> subscript_$amp(K key)
 	{
-		return this.getEntryInternal(key);
+		final int index = this.slotIndex(key);
+		return index >= 0 ? new HashEntry(index) : null;
 	}
 
 	@Nullable
 	@Override
 	public V put(@Nullable K key, V value)
 	{
-		int hash = hash(key);
-		int i = index(hash, this.entries.length);
-		for (HashEntry<K, V> e = this.entries[i]; e != null; e = e.next)
-		{
-			Object k;
-			if (e.hash == hash && ((k = e.key) == key || key != null && key.equals(k)))
-			{
-				V oldValue = e.value;
-				e.value = value;
-				return oldValue;
-			}
-		}
-
-		this.addEntry(hash, key, value, i);
-		return null;
-	}
+		final Object maskedKey = maskNull(key);
+		final int hash = hash(key);
+		final int index = this.insertionSlot(maskedKey, hash);
 
-	@Override
-	protected void addEntry(int hash, K key, V value, int index)
-	{
-		HashEntry<K, V>[] tab = this.entries;
-		if (this.size >= this.threshold)
+		if (this.keys[index] != null)
 		{
-			// Rehash / flatten the table if the threshold is exceeded
-			this.flatten();
-
-			tab = this.entries;
-			hash = hash(key);
-			index = index(hash, tab.length);
+			final V oldValue = (V) this.values[index];
+			this.values[index] = value;
+			return oldValue;
 		}
 
-		tab[index] = new HashEntry<>(key, value, hash, tab[index]);
-		this.size++;
+		this.addEntry(index, hash, maskedKey, value);
+		return null;
 	}
 
 	@Override
@@ -230,125 +189,74 @@ public class HashMap<K, V> extends AbstractHashMap<K, V> implements MutableMap<K
 	@Override
 	public V putIfAbsent(@Nullable K key, V value)
 	{
-		int hash = hash(key);
-		int i = index(hash, this.entries.length);
-		for (HashEntry<K, V> e = this.entries[i]; e != null; e = e.next)
+		final Object maskedKey = maskNull(key);
+		final int hash = hash(key);
+		final int index = this.insertionSlot(maskedKey, hash);
+
+		if (this.keys[index] != null)
 		{
-			Object k;
-			if (e.hash == hash && ((k = e.key) == key || key != null && key.equals(k)))
-			{
-				return e.value;
-			}
+			return (V) this.values[index];
 		}
 
-		this.addEntry(hash, key, value, i);
+		this.addEntry(index, hash, maskedKey, value);
 		return value;
 	}
 
 	@Override
 	public boolean replace(@Nullable K key, V oldValue, V newValue)
 	{
-		int hash = hash(key);
-		int i = index(hash, this.entries.length);
-		for (HashEntry<K, V> e = this.entries[i]; e != null; e = e.next)
+		final int index = this.slotIndex(key);
+		if (index < 0 || !Objects.equals(oldValue, this.values[index]))
 		{
-			Object k;
-			if (e.hash == hash && ((k = e.key) == key || key != null && key.equals(k)))
-			{
-				if (!Objects.equals(oldValue, newValue))
-				{
-					return false;
-				}
-				e.value = newValue;
-				return true;
-			}
+			return false;
 		}
 
-		return false;
+		this.values[index] = newValue;
+		return true;
 	}
 
 	@Nullable
 	@Override
 	public V replace(@Nullable K key, V newValue)
 	{
-		int hash = hash(key);
-		int i = index(hash, this.entries.length);
-		for (HashEntry<K, V> e = this.entries[i]; e != null; e = e.next)
+		final int index = this.slotIndex(key);
+		if (index < 0)
 		{
-			Object k;
-			if (e.hash == hash && ((k = e.key) == key || key != null && key.equals(k)))
-			{
-				V oldValue = e.value;
-				e.value = newValue;
-				return oldValue;
-			}
+			return null;
 		}
 
-		return null;
+		final V oldValue = (V) this.values[index];
+		this.values[index] = newValue;
+		return oldValue;
 	}
 
 	@Nullable
 	@Override
 	public V removeKey(@Nullable Object key)
 	{
-		int hash = hash(key);
-		int i = index(hash, this.entries.length);
-		HashEntry<K, V> prev = this.entries[i];
-		HashEntry<K, V> e = prev;
-
-		while (e != null)
+		final int index = this.slotIndex(key);
+		if (index < 0)
 		{
-			HashEntry<K, V> next = e.next;
-			Object k;
-			if (e.hash == hash && ((k = e.key) == key || key != null && key.equals(k)))
-			{
-				this.size--;
-				if (prev == e)
-				{
-					this.entries[i] = next;
-				}
-				else
-				{
-					prev.next = next;
-				}
-
-				return e.value;
-			}
-			prev = e;
-			e = next;
+			return null;
 		}
 
-		return null;
+		final V oldValue = (V) this.values[index];
+		this.removeSlot(index);
+		return oldValue;
 	}
 
 	@Override
 	public boolean removeValue(@Nullable Object value)
 	{
-		for (int i = 0; i < this.entries.length; i++)
-		{
-			HashEntry<K, V> prev = this.entries[i];
-			HashEntry<K, V> e = prev;
+		final Object[] keys = this.keys;
+		final Object[] values = this.values;
 
-			while (e != null)
+		for (int i = 0, length = keys.length; i < length; i++)
+		{
+			if (keys[i] != null && Objects.equals(value, values[i]))
 			{
-				HashEntry<K, V> next = e.next;
-				Object v = e.value;
-				if (v == value || value != null && value.equals(v))
-				{
-					this.size--;
-					if (prev == e)
-					{
-						this.entries[i] = next;
-					}
-					else
-					{
-						prev.next = next;
-					}
-
-					return true;
-				}
-				prev = e;
-				e = next;
+				this.removeSlot(i);
+				return true;
 			}
 		}
 
@@ -358,50 +266,28 @@ public class HashMap<K, V> extends AbstractHashMap<K, V> implements MutableMap<K
 	@Override
 	public boolean remove(@Nullable Object key, Object value)
 	{
-		int hash = hash(key);
-		int i = index(hash, this.entries.length);
-		HashEntry<K, V> prev = this.entries[i];
-		HashEntry<K, V> e = prev;
-
-		while (e != null)
+		final int index = this.slotIndex(key);
+		if (index < 0 || !Objects.equals(value, this.values[index]))
 		{
-			HashEntry<K, V> next = e.next;
-			Object k;
-			if (e.hash == hash && ((k = e.key) == key || key != null && key.equals(k)))
-			{
-				if (!Objects.equals(value, e.value))
-				{
-					return false;
-				}
-
-				this.size--;
-				if (prev == e)
-				{
-					this.entries[i] = next;
-				}
-				else
-				{
-					prev.next = next;
-				}
-
-				return true;
-			}
-			prev = e;
-			e = next;
+			return false;
 		}
 
-		return false;
+		this.removeSlot(index);
+		return true;
 	}
 
 	@Override
 	public void mapValues(@NonNull BiFunction<? super K, ? super V, ? extends V> mapper)
 	{
-		for (HashEntry<K, V> entry : this.entries)
+		final Object[] keys = this.keys;
+		final Object[] values = this.values;
+
+		for (int i = 0, length = keys.length; i < length; i++)
 		{
-			while (entry != null)
+			final Object key = keys[i];
+			if (key != null)
 			{
-				entry.value = mapper.apply(entry.key, entry.value);
-				entry = entry.next;
+				values[i] = mapper.apply((K) unmaskNull(key), (V) values[i]);
 			}
 		}
 	}
@@ -409,28 +295,18 @@ public class HashMap<K, V> extends AbstractHashMap<K, V> implements MutableMap<K
 	@Override
 	public void filter(@NonNull BiPredicate<? super K, ? super V> condition)
 	{
-		for (int i = 0; i < this.entries.length; i++)
-		{
-			HashEntry<K, V> prev = this.entries[i];
-			HashEntry<K, V> e = prev;
+		final Object[] keys = this.keys;
+		final Object[] values = this.values;
+		final int mask = keys.length - 1;
+		final int end = this.freeSlot();
 
-			while (e != null)
+		// Iterate downwards from a free slot, so that removeSlot only moves mappings that were already tested
+		for (int i = (end - 1) & mask; i != end; i = (i - 1) & mask)
+		{
+			final Object key = keys[i];
+			if (key != null && !condition.test((K) unmaskNull(key), (V) values[i]))
 			{
-				HashEntry<K, V> next = e.next;
-				if (!condition.test(e.key, e.value))
-				{
-					this.size--;
-					if (prev == e)
-					{
-						this.entries[i] = next;
-					}
-					else
-					{
-						prev.next = next;
-					}
-				}
-				prev = e;
-				e = next;
+				this.removeSlot(i);
 			}
 		}
 	}
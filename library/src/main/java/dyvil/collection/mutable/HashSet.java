@@ -7,9 +7,8 @@ import dyvil.collection.Set;
 import dyvil.collection.SizedIterable;
 import dyvil.collection.impl.AbstractHashSet;
 import dyvil.lang.LiteralConvertible;
-import dyvil.math.MathUtils;
 
-import java.util.Objects;
+import java.util.Arrays;
 import java.util.function.Function;
 
 import static dyvil.collection.impl.AbstractHashMap.*;
@@ -19,9 +18,6 @@ public class HashSet<E> extends AbstractHashSet<E> implements MutableSet<E>
 {
 	private static final long serialVersionUID = -993127062150101200L;
 
-	private           float loadFactor;
-	private transient int   threshold;
-
 	// Factory Methods
 
 	@NonNull
@@ -93,80 +89,42 @@ public class HashSet<E> extends AbstractHashSet<E> implements MutableSet<E>
 		}
 
 		this.loadFactor = loadFactor;
-		this.threshold = (int) (capacity * this.loadFactor);
+		this.updateThreshold(this.elements.length);
+		this.ensureCapacity(capacity);
 	}
 
 	public HashSet(E @NonNull [] elements)
 	{
 		super(elements);
-		this.defaultThreshold();
 	}
 
 	public HashSet(@NonNull Iterable<? extends E> iterable)
 	{
 		super(iterable);
-		this.defaultThreshold();
 	}
 
 	public HashSet(@NonNull SizedIterable<? extends E> iterable)
 	{
 		super(iterable);
-		this.defaultThreshold();
 	}
 
 	public HashSet(@NonNull Set<? extends E> set)
 	{
 		super(set);
-		this.defaultThreshold();
 	}
 
 	public HashSet(@NonNull AbstractHashSet<? extends E> hashSet)
 	{
 		super(hashSet);
-		this.defaultThreshold();
 	}
 
 	// Implementation Methods
 
-	private void defaultThreshold()
-	{
-		this.loadFactor = DEFAULT_LOAD_FACTOR;
-		this.threshold = (int) (this.elements.length * DEFAULT_LOAD_FACTOR);
-	}
-
-	@Override
-	protected void updateThreshold(int newCapacity)
-	{
-		this.threshold = (int) Math.min(newCapacity * this.loadFactor, MAX_ARRAY_SIZE + 1);
-	}
-
 	@Override
 	public void clear()
 	{
 		this.size = 0;
-		int length = this.elements.length;
-		for (int i = 0; i < length; i++)
-		{
-			this.elements[i] = null;
-		}
-	}
-
-	@Override
-	protected void addElement(int hash, E element, int index)
-	{
-		HashElement<E>[] tab = this.elements;
-		if (this.size >= this.threshold)
-		{
-			// Rehash / flatten the table if the threshold is exceeded
-			this.flatten();
-
-			tab = this.elements;
-			hash = hash(element);
-			index = index(hash, tab.length);
-		}
-
-		tab[index] = new HashElement<>(element, hash, tab[index]);
-		this.size++;
+		Arrays.fill(this.elements, null);
 	}
 
 	@Override
@@ -178,34 +136,14 @@ public class HashSet<E> extends AbstractHashSet<E> implements MutableSet<E>
 	@Override
 	public boolean remove(Object element)
 	{
-		int hash = hash(element);
-		int i = index(hash, this.elements.length);
-		HashElement<E> prev = this.elements[i];
-		HashElement<E> e = prev;
-
-		while (e != null)
+		final int index = this.slotIndex(element);
+		if (index < 0)
 		{
-			HashElement<E> next = e.next;
-			Object k;
-			if (e.hash == hash && ((k = e.element) == element || Objects.equals(element, k)))
-			{
-				this.size--;
-				if (prev == e)
-				{
-					this.elements[i] = next;
-				}
-				else
-				{
-					prev.next = next;
-				}
-
-				return true;
-			}
-			prev = e;
-			e = next;
+			return false;
 		}
 
-		return false;
+		this.removeSlot(index);
+		return true;
 	}
 
 	@Override
@@ -214,36 +152,20 @@ public class HashSet<E> extends AbstractHashSet<E> implements MutableSet<E>
 		// Other than flatMap, map allows us to inline the implementation,
 		// because we can be sure that the size will not grow, and no re-hash /
 		// table growing will be required.
-		int len = MathUtils.nextPowerOf2(this.size);
-		HashElement<E>[] newElements = (HashElement<E>[]) new HashElement[len];
-		int size = 0;
+		final Object[] oldElements = this.elements;
+		final int length = oldElements.length;
 
-		for (HashElement<E> element : this.elements)
+		this.elements = new Object[length];
+		this.hashes = new int[length];
+		this.size = 0;
+
+		for (Object element : oldElements)
 		{
-			outer:
-			for (; element != null; element = element.next)
+			if (element != null)
 			{
-				E newElement = mapper.apply(element.element);
-				int hash = hash(newElement);
-				int index = index(hash, len);
-				HashElement oldElement = newElements[index];
-
-				for (; oldElement != null; oldElement = oldElement.next)
-				{
-					if (oldElement.hash == hash && Objects.equals(oldElement.element, newElement))
-					{
-						// Object already present, don't add it
-						continue outer;
-					}
-				}
-
-				size++;
-				newElements[index] = new HashElement<>(newElement, hash, newElements[index]);
+				this.addInternal(mapper.apply((E) unmaskNull(element)));
 			}
 		}
-
-		this.elements = newElements;
-		this.size = size;
 	}
 
 	@Override
@@ -264,6 +186,7 @@ public class HashSet<E> extends AbstractHashSet<E> implements MutableSet<E>
 		// elements of the copy, which will be discarded anyway.
 		this.size = copy.size;
 		this.elements = copy.elements;
+		this.hashes = copy.hashes;
 		this.threshold = copy.threshold;
 	}
 
@@ -156,7 +156,7 @@ public class MapBasedSet<E> extends AbstractMapBasedSet<E> implements MutableSet
 	@Override
 	public boolean remove(Object element)
 	{
-		return this.map.removeKey(element);
+		return this.map.removeKey(element) != null;
 	}
 
 	@Override
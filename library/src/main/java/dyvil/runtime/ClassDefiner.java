@@ -0,0 +1,221 @@
+package dyvil.runtime;
+
+import dyvil.annotation.internal.NonNull;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static dyvil.reflect.LookupAccess.LOOKUP;
+import static dyvil.reflect.UnsafeAccess.UNSAFE;
+
+/**
+ * Defines the classes generated by the runtime metafactories and caches them by shape.
+ * <p>
+ * Where available (Java 15 and later), classes are defined as hidden classes with {@code
+ * MethodHandles.Lookup.defineHiddenClass}. Otherwise, they are defined as VM-anonymous classes with {@code
+ * Unsafe.defineAnonymousClass}, which no longer exists in Java 17.
+ * <p>
+ * A shape is the list of everything the bytecode of a generated class depends on. Call sites with the same shape can
+ * share the generated class. The cache of shared classes is attached to a base class, i.e. the implemented interface,
+ * and classes are only shared if the calling class was loaded by the same class loader as the base class. This makes
+ * sure that shared classes never keep the class loaders of their callers alive.
+ */
+public final class ClassDefiner
+{
+	// =============== Classes ===============
+
+	private static final class SharedClasses extends ClassValue<ConcurrentMap<List<Object>, MethodHandle>>
+	{
+		@Override
+		protected ConcurrentMap<List<Object>, MethodHandle> computeValue(Class<?> type)
+		{
+			return new ConcurrentHashMap<>();
+		}
+	}
+
+	// =============== Static Fields ===============
+
+	/**
+	 * {@code Lookup.defineHiddenClass(byte[], boolean, ClassOption...)}, or {@code null} if hidden classes are not
+	 * supported
+	 */
+	private static final MethodHandle DEFINE_HIDDEN_CLASS;
+
+	/**
+	 * An empty {@code ClassOption[]}
+	 */
+	private static final Object HIDDEN_CLASS_OPTIONS;
+
+	/**
+	 * {@code ClassOption[] { NESTMATE }}
+	 */
+	private static final Object NESTMATE_OPTIONS;
+
+	private static final SharedClasses SHARED_CLASSES = new SharedClasses();
+
+	static
+	{
+		MethodHandle defineHiddenClass = null;
+		Object options = null;
+		Object nestmateOptions = null;
+
+		try
+		{
+			final Class<?> optionClass = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+			options = Array.newInstance(optionClass, 0);
+			nestmateOptions = Array.newInstance(optionClass, 1);
+			Array.set(nestmateOptions, 0, optionClass.getField("NESTMATE").get(null));
+			final MethodType type = MethodType.methodType(MethodHandles.Lookup.class, byte[].class, boolean.class,
+			                                              options.getClass());
+			defineHiddenClass = MethodHandles.publicLookup()
+			                                 .findVirtual(MethodHandles.Lookup.class, "defineHiddenClass", type)
+			                                 .asFixedArity();
+		}
+		catch (ReflectiveOperationException ignored)
+		{
+			// Java 14 and older, use Unsafe.defineAnonymousClass
+		}
+
+		DEFINE_HIDDEN_CLASS = defineHiddenClass;
+		HIDDEN_CLASS_OPTIONS = options;
+		NESTMATE_OPTIONS = nestmateOptions;
+	}
+
+	// =============== Constructors ===============
+
+	private ClassDefiner()
+	{
+		// no instances
+	}
+
+	// =============== Static Methods ===============
+
+	// --------------- Defining Classes ---------------
+
+	public static boolean usesHiddenClasses()
+	{
+		return DEFINE_HIDDEN_CLASS != null;
+	}
+
+	/**
+	 * Defines and initializes the class in the package of the caller.
+	 *
+	 * @param caller
+	 * 	a lookup with full privileges on the calling class
+	 * @param bytes
+	 * 	the bytecode of the class. The class name must be in the same package as the caller.
+	 *
+	 * @return a lookup with full privileges on the new class
+	 */
+	public static MethodHandles.@NonNull Lookup defineClass(MethodHandles.@NonNull Lookup caller,
+		byte @NonNull [] bytes) throws ReflectiveOperationException
+	{
+		return define(caller, bytes, HIDDEN_CLASS_OPTIONS);
+	}
+
+	/**
+	 * Defines and initializes the class in the package of the caller, like {@link #defineClass(MethodHandles.Lookup,
+	 * byte[])}, but the new class can also access the private members of the caller. Hidden classes are defined as
+	 * nestmates of the caller, VM-anonymous classes use the caller as their host class.
+	 *
+	 * @param caller
+	 * 	a lookup with full privileges on the calling class
+	 * @param bytes
+	 * 	the bytecode of the class. The class name must be in the same package as the caller.
+	 *
+	 * @return a lookup with full privileges on the new class
+	 */
+	public static MethodHandles.@NonNull Lookup defineNestmate(MethodHandles.@NonNull Lookup caller,
+		byte @NonNull [] bytes) throws ReflectiveOperationException
+	{
+		return define(caller, bytes, NESTMATE_OPTIONS);
+	}
+
+	private static MethodHandles.@NonNull Lookup define(MethodHandles.@NonNull Lookup caller, byte @NonNull [] bytes,
+		Object options) throws ReflectiveOperationException
+	{
+		if (DEFINE_HIDDEN_CLASS == null)
+		{
+			final Class<?> theClass = UNSAFE.defineAnonymousClass(caller.lookupClass(), bytes, null);
+			UNSAFE.ensureClassInitialized(theClass);
+			return LOOKUP.in(theClass);
+		}
+
+		try
+		{
+			return (MethodHandles.Lookup) DEFINE_HIDDEN_CLASS.invoke(caller, bytes, true, options);
+		}
+		catch (ReflectiveOperationException | RuntimeException | Error ex)
+		{
+			throw ex;
+		}
+		catch (Throwable ex)
+		{
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	// --------------- Shared Classes ---------------
+
+	private static boolean isShareable(Class<?> caller, Class<?> base)
+	{
+		return caller.getClassLoader() == base.getClassLoader();
+	}
+
+	@NonNull
+	private static List<Object> key(Class<?> caller, Object[] shape)
+	{
+		// classes are defined in the package of the first caller, which has to be the same for all users
+		final String className = caller.getName();
+		final List<Object> key = new ArrayList<>(shape.length + 1);
+		key.add(className.substring(0, Math.max(0, className.lastIndexOf('.'))));
+		key.addAll(Arrays.asList(shape));
+		return key;
+	}
+
+	/**
+	 * Returns the constructor of a shared class previously registered with {@link #share(Class, Class, MethodHandle,
+	 * Object...)}.
+	 *
+	 * @param caller
+	 * 	the calling class
+	 * @param base
+	 * 	the class or interface implemented by the generated class
+	 * @param shape
+	 * 	the shape of the generated class
+	 *
+	 * @return the constructor, or {@code null} if there is no shared class for the given shape
+	 */
+	public static MethodHandle getShared(@NonNull Class<?> caller, @NonNull Class<?> base, Object @NonNull ... shape)
+	{
+		if (!isShareable(caller, base))
+		{
+			return null;
+		}
+		return SHARED_CLASSES.get(base).get(key(caller, shape));
+	}
+
+	/**
+	 * Registers the constructor of a generated class for the given shape, unless another thread registered one first.
+	 *
+	 * @return the registered constructor
+	 */
+	public static MethodHandle share(@NonNull Class<?> caller, @NonNull Class<?> base,
+		@NonNull MethodHandle constructor, Object @NonNull ... shape)
+	{
+		if (!isShareable(caller, base))
+		{
+			return constructor;
+		}
+
+		final MethodHandle existing = SHARED_CLASSES.get(base).putIfAbsent(key(caller, shape), constructor);
+		return existing != null ? existing : constructor;
+	}
+}
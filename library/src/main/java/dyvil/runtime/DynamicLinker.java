@@ -5,35 +5,267 @@ import dyvil.annotation.internal.NonNull;
 import java.lang.invoke.*;
 import java.lang.invoke.MethodHandles.Lookup;
 import java.lang.reflect.Method;
-
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Links dynamically dispatched method calls, i.e. extension methods with a fallback implementation and class methods.
+ * <p>
+ * Each call site starts out as an inline cache. When the call site is invoked with a new receiver class, the target
+ * method for that class is resolved and a guard that checks the receiver class is prepended to the chain of guards. Once
+ * the chain reaches {@link #MAX_DEPTH} guards, the call site becomes megamorphic and looks up the target method for the
+ * receiver class in a {@link ClassValue} instead of walking the chain on every call. Neither the relinking path nor the
+ * megamorphic path box the arguments of the call.
+ */
 public class DynamicLinker
 {
-	static class InliningCacheCallSite extends MutableCallSite
-	{
-		/**
-		 * Max supported class inheritance depth
-		 */
-		private static final int MAX_DEPTH = 256;
+	// =============== Constants ===============
+
+	/**
+	 * The maximum number of receiver classes a call site caches in its chain of guards before it becomes megamorphic.
+	 * Can be configured with the {@code dyvil.linker.maxDepth} system property.
+	 */
+	public static final int MAX_DEPTH = Integer.getInteger("dyvil.linker.maxDepth", 8);
 
+	// =============== Classes ===============
+
+	public static final class InliningCacheCallSite extends MutableCallSite
+	{
 		final Lookup       lookup;
 		final String       name;
 		final MethodHandle fallback;
-		int depth;
+		final boolean      classMethod;
+
+		/**
+		 * The megamorphic target cache, or {@code null} while this call site is polymorphic.
+		 */
+		private volatile ClassValue<MethodHandle> targets;
+
+		/**
+		 * The receiver classes and targets of the guards in the inline cache, in the order they were linked.
+		 */
+		private final Class<?>[]     linkedClasses = new Class<?>[MAX_DEPTH]; // guarded by this
+		private final MethodHandle[] linkedTargets = new MethodHandle[MAX_DEPTH]; // guarded by this
+
+		// --------------- Counters ---------------
 
-		InliningCacheCallSite(Lookup lookup, String name, @NonNull MethodType type, MethodHandle fallback)
+		private int depth;
+		private int relinks;
+		private int megamorphicTransitions;
+
+		InliningCacheCallSite(Lookup lookup, String name, @NonNull MethodType type, MethodHandle fallback,
+			boolean classMethod)
 		{
 			super(type);
 			this.lookup = lookup;
 			this.name = name;
 			this.fallback = fallback;
+			this.classMethod = classMethod;
+		}
+
+		// --------------- Diagnostics ---------------
+
+		/**
+		 * @return the name of the linked method
+		 */
+		public String getName()
+		{
+			return this.name;
+		}
+
+		/**
+		 * @return the number of guards in the inline cache of this call site
+		 */
+		public synchronized int getDepth()
+		{
+			return this.depth;
+		}
+
+		/**
+		 * @return the number of times a target method was resolved for a new receiver class
+		 */
+		public synchronized int getRelinks()
+		{
+			return this.relinks;
+		}
+
+		/**
+		 * @return the number of times this call site switched from the inline cache to megamorphic dispatch
+		 */
+		public synchronized int getMegamorphicTransitions()
+		{
+			return this.megamorphicTransitions;
+		}
+
+		public boolean isMegamorphic()
+		{
+			return this.targets != null;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "InliningCacheCallSite(name: " + this.name + ", type: " + this.type() + ", depth: " + this.getDepth()
+			       + ", relinks: " + this.getRelinks() + ", megamorphic: " + this.isMegamorphic() + ")";
+		}
+
+		// --------------- Resolution ---------------
+
+		private Class<?> receiverClass(Object receiver)
+		{
+			if (receiver == null)
+			{
+				throw new NullPointerException();
+			}
+			return this.classMethod ? (Class<?>) receiver : receiver.getClass();
+		}
+
+		/**
+		 * Resolves the target method for the given receiver class.
+		 *
+		 * @return the target method, with the exact type of this call site
+		 */
+		private MethodHandle resolve(Class<?> receiverClass) throws ReflectiveOperationException
+		{
+			final MethodType type = this.type();
+			final MethodType targetType = type.dropParameterTypes(0, 1);
+
+			if (this.classMethod)
+			{
+				final MethodHandle target = this.lookup.findStatic(receiverClass, this.name, targetType);
+				return MethodHandles.dropArguments(target.asFixedArity(), 0, Class.class).asType(type);
+			}
+
+			try
+			{
+				final Method implementationMethod = receiverClass.getMethod(this.name, targetType.parameterArray());
+				// Convert the implementation to a MethodHandle with the desired type
+				return this.lookup.unreflect(implementationMethod).asFixedArity().asType(type);
+			}
+			catch (NoSuchMethodException | IllegalAccessException ex)
+			{
+				if (this.fallback != null)
+				{
+					return this.fallback.asFixedArity().asType(type);
+				}
+				throw ex;
+			}
+		}
+
+		/**
+		 * Resolves the target method for a receiver class that is not yet handled by the current target of this call
+		 * site, and links it into the inline cache or switches to megamorphic dispatch. If another thread linked the
+		 * receiver class in the meantime, its target is returned without adding another guard.
+		 *
+		 * @return the target method, with the exact type of this call site
+		 */
+		synchronized MethodHandle relink(Object receiver) throws ReflectiveOperationException
+		{
+			final Class<?> receiverClass = this.receiverClass(receiver);
+
+			final ClassValue<MethodHandle> targets = this.targets;
+			if (targets != null)
+			{
+				// another thread switched to megamorphic dispatch
+				return targets.get(receiverClass);
+			}
+
+			final int depth = this.depth;
+			for (int i = 0; i < depth; i++)
+			{
+				if (this.linkedClasses[i] == receiverClass)
+				{
+					// another thread linked the receiver class after this thread missed the inline cache
+					return this.linkedTargets[i];
+				}
+			}
+
+			if (depth >= MAX_DEPTH)
+			{
+				this.targets = new TargetCache(this);
+				this.megamorphicTransitions++;
+				totalMegamorphicTransitions.incrementAndGet();
+				this.setTarget(dispatcher(this, SELECT_MEGAMORPHIC));
+				return this.targets.get(receiverClass);
+			}
+
+			final MethodHandle target = this.resolve(receiverClass);
+			this.relinks++;
+			totalRelinks.incrementAndGet();
+
+			final MethodType type = this.type();
+			MethodHandle test = (this.classMethod ? CHECK_ISCLASS : CHECK_CLASS).bindTo(receiverClass);
+			test = test.asType(test.type().changeParameterType(0, type.parameterType(0)));
+
+			// Creates a method that, when called, first tests the type of the first argument (the receiver) to be the
+			// required receiver type. If that succeeds, the target is called. Otherwise, the previous target is called,
+			// which ends with a call to this method.
+			final MethodHandle guard = MethodHandles.guardWithTest(test, target, this.getTarget());
+
+			// Set the guard method as the new callsite target to speed up further invocations
+			this.linkedClasses[depth] = receiverClass;
+			this.linkedTargets[depth] = target;
+			this.depth = depth + 1;
+			this.setTarget(guard);
+			return target;
+		}
+
+		MethodHandle selectMegamorphic(Object receiver)
+		{
+			return this.targets.get(this.receiverClass(receiver));
+		}
+
+		MethodHandle selectUnresolved(Object receiver) throws ReflectiveOperationException
+		{
+			return this.resolve(this.receiverClass(receiver));
 		}
 	}
 
-	private static final MethodHandle CHECK_CLASS;
-	private static final MethodHandle INVOKE_DYNAMIC;
+	private static final class TargetCache extends ClassValue<MethodHandle>
+	{
+		private final InliningCacheCallSite callSite;
 
+		TargetCache(InliningCacheCallSite callSite)
+		{
+			this.callSite = callSite;
+		}
+
+		@Override
+		protected MethodHandle computeValue(Class<?> type)
+		{
+			final InliningCacheCallSite callSite = this.callSite;
+			synchronized (callSite)
+			{
+				callSite.relinks++;
+			}
+			totalRelinks.incrementAndGet();
+
+			try
+			{
+				return callSite.resolve(type);
+			}
+			catch (ReflectiveOperationException ex)
+			{
+				// resolve again whenever the call site is invoked with this receiver class, such that every call
+				// throws a new exception with its own stack trace
+				return dispatcher(callSite, SELECT_UNRESOLVED);
+			}
+		}
+	}
+
+	// =============== Static Fields ===============
+
+	private static final MethodHandle CHECK_CLASS;
 	private static final MethodHandle CHECK_ISCLASS;
-	private static final MethodHandle INVOKE_CLASSMETHOD;
+
+	private static final MethodHandle SELECT_RELINK;
+	private static final MethodHandle SELECT_MEGAMORPHIC;
+	private static final MethodHandle SELECT_UNRESOLVED;
+
+	// --------------- Counters ---------------
+
+	private static final AtomicLong totalCallSites              = new AtomicLong();
+	private static final AtomicLong totalRelinks                = new AtomicLong();
+	private static final AtomicLong totalMegamorphicTransitions = new AtomicLong();
 
 	static
 	{
@@ -43,15 +275,13 @@ public class DynamicLinker
 			CHECK_CLASS = lookup.findStatic(DynamicLinker.class, "checkClass",
 			                                MethodType.methodType(boolean.class, Class.class, Object.class));
 
-			INVOKE_DYNAMIC = lookup.findStatic(DynamicLinker.class, "invokeDynamic", //
-			                                   MethodType.methodType(Object.class, InliningCacheCallSite.class,
-			                                                         Object[].class));
-
-			INVOKE_CLASSMETHOD = lookup.findStatic(DynamicLinker.class, "invokeClassMethod", MethodType.methodType(
-				Object.class, InliningCacheCallSite.class, Object[].class));
-
 			CHECK_ISCLASS = lookup.findStatic(DynamicLinker.class, "checkIsClass",
 			                                  MethodType.methodType(boolean.class, Class.class, Class.class));
+
+			final MethodType selectorType = MethodType.methodType(MethodHandle.class, Object.class);
+			SELECT_RELINK = lookup.findVirtual(InliningCacheCallSite.class, "relink", selectorType);
+			SELECT_MEGAMORPHIC = lookup.findVirtual(InliningCacheCallSite.class, "selectMegamorphic", selectorType);
+			SELECT_UNRESOLVED = lookup.findVirtual(InliningCacheCallSite.class, "selectUnresolved", selectorType);
 		}
 		catch (ReflectiveOperationException e)
 		{
@@ -59,37 +289,50 @@ public class DynamicLinker
 		}
 	}
 
+	// =============== Static Methods ===============
+
+	// --------------- Bootstrap Methods ---------------
+
 	public static @NonNull CallSite linkMethod(@NonNull Lookup lookup, @NonNull String name, @NonNull MethodType type)
 	{
-		return link(lookup, name, type, null, INVOKE_DYNAMIC);
+		return link(lookup, name, type, null, false);
 	}
 
 	public static @NonNull CallSite linkExtension(@NonNull Lookup lookup, @NonNull String name,
 		@NonNull MethodType type, @NonNull MethodHandle fallback)
 	{
-		return link(lookup, name, type, fallback, INVOKE_DYNAMIC);
+		return link(lookup, name, type, fallback, false);
 	}
 
 	public static @NonNull CallSite linkClassMethod(@NonNull Lookup lookup, @NonNull String name,
 		@NonNull MethodType type)
 	{
-		return link(lookup, name, type, null, INVOKE_CLASSMETHOD);
+		return link(lookup, name, type, null, true);
 	}
 
 	private static @NonNull CallSite link(@NonNull Lookup lookup, @NonNull String name, @NonNull MethodType type,
-		MethodHandle fallback, @NonNull MethodHandle dynamicTarget)
+		MethodHandle fallback, boolean classMethod)
 	{
-		final InliningCacheCallSite callSite = new InliningCacheCallSite(lookup, name, type, fallback);
-
-		// Creates a MethodHandle that, when called, passes the parameters to the 'invokeDynamic' method, with the above
-		// callSite as the first argument
-		final MethodHandle invokeDynamic = dynamicTarget.bindTo(callSite)
-		                                                .asCollector(Object[].class, type.parameterCount())
-		                                                .asType(type);
-		callSite.setTarget(invokeDynamic);
+		final InliningCacheCallSite callSite = new InliningCacheCallSite(lookup, name, type, fallback, classMethod);
+		callSite.setTarget(dispatcher(callSite, SELECT_RELINK));
+		totalCallSites.incrementAndGet();
 		return callSite;
 	}
 
+	/**
+	 * Creates a MethodHandle that, when called, passes the receiver to the selector method of the call site and invokes
+	 * the selected target method with all arguments.
+	 */
+	private static MethodHandle dispatcher(@NonNull InliningCacheCallSite callSite, @NonNull MethodHandle selector)
+	{
+		final MethodType type = callSite.type();
+		final MethodHandle select = selector.bindTo(callSite).asType(
+			MethodType.methodType(MethodHandle.class, type.parameterType(0)));
+		return MethodHandles.foldArguments(MethodHandles.exactInvoker(type), select);
+	}
+
+	// --------------- Guards ---------------
+
 	public static boolean checkClass(@NonNull Class<?> clazz, @NonNull Object receiver)
 	{
 		return receiver.getClass() == clazz;
@@ -100,91 +343,29 @@ public class DynamicLinker
 		return receiver == clazz;
 	}
 
-	public static Object invokeDynamic(@NonNull InliningCacheCallSite callSite, Object @NonNull [] args)
-		throws Throwable
-	{
-		final MethodType type = callSite.type();
-		if (callSite.depth >= InliningCacheCallSite.MAX_DEPTH)
-		{
-			// revert to a vtable call
-			return invokeVirtual(callSite, args, type);
-		}
-
-		final Object receiver = args[0];
-		if (receiver == null)
-		{
-			throw new NullPointerException();
-		}
+	// --------------- Diagnostics ---------------
 
-		final Class<?> receiverClass = receiver.getClass();
-
-		try
-		{
-			final Method implementationMethod = receiverClass.getMethod(callSite.name,
-			                                                            type.dropParameterTypes(0, 1).parameterArray());
-			// Convert the implementation to a MethodHandle with the desired type
-			final MethodHandle target = callSite.lookup.unreflect(implementationMethod).asType(type);
-			return invokeWith(callSite, args, type, receiverClass, target, CHECK_CLASS);
-		}
-		catch (NoSuchMethodException | IllegalAccessException ex)
-		{
-			final MethodHandle fallbackMethod = callSite.fallback;
-			if (fallbackMethod != null)
-			{
-				return invokeWith(callSite, args, type, receiverClass, fallbackMethod, CHECK_CLASS);
-			}
-
-			throw ex;
-		}
-	}
-
-	public static Object invokeClassMethod(@NonNull InliningCacheCallSite callSite, Object @NonNull [] args)
-		throws Throwable
+	/**
+	 * @return the number of call sites linked so far
+	 */
+	public static long getTotalCallSites()
 	{
-		final MethodType type = callSite.type();
-		if (callSite.depth >= InliningCacheCallSite.MAX_DEPTH)
-		{
-			// revert to a vtable call
-			return invokeVirtual(callSite, args, type);
-		}
-
-		final Class<?> receiver = (Class<?>) args[0];
-		final MethodType targetType = type.dropParameterTypes(0, 1);
-		final MethodHandle target = callSite.lookup.findStatic(receiver, callSite.name, targetType).asType(targetType);
-
-		return invokeWith(callSite, args, type, receiver, MethodHandles.dropArguments(target, 0, Class.class),
-		                  CHECK_ISCLASS);
+		return totalCallSites.get();
 	}
 
-	private static Object invokeVirtual(@NonNull InliningCacheCallSite callSite, Object @NonNull [] args,
-		@NonNull MethodType type) throws Throwable
+	/**
+	 * @return the number of times a target method was resolved for a new receiver class, across all call sites
+	 */
+	public static long getTotalRelinks()
 	{
-		final MethodHandle virtualTarget = callSite.lookup.findVirtual(type.parameterType(0), callSite.name,
-		                                                               type.dropParameterTypes(0, 1));
-		callSite.setTarget(virtualTarget);
-		return virtualTarget.invokeWithArguments(args);
+		return totalRelinks.get();
 	}
 
-	private static Object invokeWith(@NonNull InliningCacheCallSite callSite, Object @NonNull [] args,
-		@NonNull MethodType type, @NonNull Class<?> receiverClass, @NonNull MethodHandle target,
-		@NonNull MethodHandle receiverCheck) throws Throwable
+	/**
+	 * @return the number of call sites that became megamorphic
+	 */
+	public static long getTotalMegamorphicTransitions()
 	{
-		MethodHandle test = receiverCheck.bindTo(receiverClass);
-		test = test.asType(test.type().changeParameterType(0, type.parameterType(0)));
-
-		target = target.asFixedArity();
-
-		// Creates a method that, when called, first tests the type of the first argument (the receiver) to be the
-		// required receiver type. If that succeeds, the target is called. Otherwise, this invokeDynamic method is
-		// called again
-
-		final MethodHandle guard = MethodHandles.guardWithTest(test, target, callSite.getTarget());
-
-		// Set the guard method as the new callsite target to speed up further invocations
-		callSite.depth++;
-		callSite.setTarget(guard);
-
-		// Invoke the target and return the result
-		return target.invokeWithArguments(args);
+		return totalMegamorphicTransitions.get();
 	}
 }
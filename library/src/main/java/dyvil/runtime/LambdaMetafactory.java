@@ -27,8 +27,62 @@ public class LambdaMetafactory
 	{
 
 		AbstractLMF mf = new AnonymousClassLMF(caller, invokedType, invokedName, samMethodType, implMethod,
-		                                       instantiatedMethodType, toString);
+		                                       instantiatedMethodType, toString, null, null);
 		mf.validateMetafactoryArgs();
 		return mf.buildCallSite();
 	}
+
+	/**
+	 * Bootstrap method for lambda expressions whose functional interface declares a specialized variant of the
+	 * functional method for the type arguments of the lambda expression, e.g. {@code apply$II(I)I} for {@code int ->
+	 * int}. The lambda class implements the variant as well, so that callers of the variant can pass and receive
+	 * primitive values without boxing.
+	 */
+	public static CallSite specialized(MethodHandles.@NonNull Lookup caller, String invokedName,
+		                                  @NonNull MethodType invokedType, MethodType samMethodType,
+		                                  @NonNull MethodHandle implMethod, MethodType instantiatedMethodType,
+		                                  String specializedName, MethodType specializedType)
+		throws LambdaConversionException
+	{
+		String type = '<' + invokedType.returnType().getName() + "::" + invokedName + '>';
+		AbstractLMF mf = new AnonymousClassLMF(caller, invokedType, invokedName, samMethodType, implMethod,
+		                                       instantiatedMethodType, type, specializedName, specializedType);
+		mf.validateMetafactoryArgs();
+		return mf.buildCallSite();
+	}
+
+	/**
+	 * Bootstrap method for lambda expressions whose implementation class was generated at compile time. The class has
+	 * a constructor that takes the captured values, so no bytecode has to be generated at runtime. For lambdas without
+	 * captured values, a single instance is created and returned by the call site.
+	 */
+	public static CallSite precompiled(MethodHandles.@NonNull Lookup caller, String invokedName,
+		                                  @NonNull MethodType invokedType, @NonNull Class<?> lambdaClass)
+		throws LambdaConversionException
+	{
+		final MethodHandle constructor;
+		try
+		{
+			constructor = caller.findConstructor(lambdaClass, invokedType.changeReturnType(void.class));
+		}
+		catch (ReflectiveOperationException ex)
+		{
+			throw new LambdaConversionException("Exception finding constructor", ex);
+		}
+
+		if (invokedType.parameterCount() != 0)
+		{
+			return new ConstantCallSite(constructor.asType(invokedType));
+		}
+
+		try
+		{
+			final Object instance = constructor.invoke();
+			return new ConstantCallSite(MethodHandles.constant(invokedType.returnType(), instance));
+		}
+		catch (Throwable ex)
+		{
+			throw new LambdaConversionException("Exception instantiating lambda object", ex);
+		}
+	}
 }
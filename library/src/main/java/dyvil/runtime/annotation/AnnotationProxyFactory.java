@@ -3,29 +3,24 @@ package dyvil.runtime.annotation;
 import dyvil.annotation.internal.NonNull;
 import dyvil.reflect.Opcodes;
 import dyvil.runtime.BytecodeDump;
+import dyvil.runtime.ClassDefiner;
 import dyvilx.tools.asm.ClassWriter;
 import dyvilx.tools.asm.FieldVisitor;
 import dyvilx.tools.asm.MethodVisitor;
 import dyvilx.tools.asm.Type;
 import dyvilx.tools.asm.ASMConstants;
 
-import java.lang.invoke.CallSite;
-import java.lang.invoke.ConstantCallSite;
-import java.lang.invoke.MethodHandles;
-import java.lang.invoke.MethodType;
-import java.lang.reflect.Constructor;
+import java.lang.invoke.*;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import static dyvil.reflect.LookupAccess.LOOKUP;
 import static dyvil.reflect.Modifiers.*;
 import static dyvil.reflect.Opcodes.*;
-import static dyvil.reflect.UnsafeAccess.UNSAFE;
 import static dyvil.runtime.TypeConverter.*;
 
 public final class AnnotationProxyFactory
 {
-	private static final int    CLASSFILE_VERSION = 52;
-	private static final String NAME_FACTORY      = "get$Proxy";
+	private static final int CLASSFILE_VERSION = 52;
 
 	/**
 	 * Used to ensure that each spun class name is unique
@@ -57,6 +52,8 @@ public final class AnnotationProxyFactory
 	@NonNull
 	private final String className;
 
+	private final MethodHandles.Lookup caller;
+
 	private final Class targetClass;
 
 	@NonNull
@@ -71,6 +68,7 @@ public final class AnnotationProxyFactory
 		this.constructorType = invokedType.changeReturnType(Void.TYPE);
 		this.annotationType = invokedType.returnType();
 
+		this.caller = caller;
 		this.targetClass = caller.lookupClass();
 		this.className = this.targetClass.getName().replace('.', '/') + "$Annotation$" + counter.incrementAndGet();
 
@@ -87,48 +85,50 @@ public final class AnnotationProxyFactory
 		}
 		else
 		{
-			this.argDescs = this.argNames = null;
+			this.argDescs = this.argNames = new String[0];
 		}
 	}
 
 	@NonNull
 	public CallSite buildCallSite() throws Exception
 	{
-		final Class<?> innerClass = this.spinInnerClass();
-		if (this.parameterCount == 0)
-		{
-			final Constructor[] ctrs = innerClass.getDeclaredConstructors();
-			if (ctrs.length != 1)
-			{
-				final String message =
-					"Expected one annotation constructor for " + innerClass.getCanonicalName() + ", got " + ctrs.length;
-				throw new Exception(message);
-			}
+		// proxies for the same annotation type and members are interchangeable
+		final Object[] shape = { this.invokedType, Arrays.asList(this.argNames) };
 
+		MethodHandle constructor = ClassDefiner.getShared(this.targetClass, this.annotationType, shape);
+		if (constructor == null)
+		{
 			try
 			{
-				final Constructor ctr = ctrs[0];
-				ctr.setAccessible(true);
-				final Object inst = ctr.newInstance();
-				return new ConstantCallSite(MethodHandles.constant(this.annotationType, inst));
+				final MethodHandles.Lookup lookup = ClassDefiner.defineClass(this.caller, this.spinInnerClass());
+				constructor = lookup.findConstructor(lookup.lookupClass(), this.constructorType);
 			}
 			catch (ReflectiveOperationException e)
 			{
-				throw new Exception("Exception instantiating annotation proxy", e);
+				throw new Exception("Exception finding constructor", e);
 			}
+
+			constructor = ClassDefiner.share(this.targetClass, this.annotationType, constructor, shape);
 		}
+
+		final MethodHandle factory = constructor.asType(this.invokedType);
+		if (this.parameterCount != 0)
+		{
+			return new ConstantCallSite(factory);
+		}
+
 		try
 		{
-			UNSAFE.ensureClassInitialized(innerClass);
-			return new ConstantCallSite(LOOKUP.findStatic(innerClass, NAME_FACTORY, this.invokedType));
+			final Object inst = factory.invoke();
+			return new ConstantCallSite(MethodHandles.constant(this.annotationType, inst));
 		}
-		catch (ReflectiveOperationException e)
+		catch (Throwable e)
 		{
-			throw new Exception("Exception finding constructor", e);
+			throw new Exception("Exception instantiating annotation proxy", e);
 		}
 	}
 
-	private Class<?> spinInnerClass()
+	private byte[] spinInnerClass()
 	{
 		final String annotationItf = this.annotationType.getName().replace('.', '/');
 
@@ -139,15 +139,10 @@ public final class AnnotationProxyFactory
 
 		// Generate final fields to be filled in by constructor
 
-		if (this.parameterCount > 0)
+		for (int i = 0; i < this.parameterCount; i++)
 		{
-			for (int i = 0; i < this.parameterCount; i++)
-			{
-				FieldVisitor fv = classWriter
-					                  .visitField(PRIVATE | FINAL, this.argNames[i], this.argDescs[i], null, null);
-				fv.visitEnd();
-			}
-			this.generateFactory(classWriter);
+			FieldVisitor fv = classWriter.visitField(PRIVATE | FINAL, this.argNames[i], this.argDescs[i], null, null);
+			fv.visitEnd();
 		}
 
 		this.generateConstructor(classWriter);
@@ -160,32 +155,7 @@ public final class AnnotationProxyFactory
 		final byte[] bytes = classWriter.toByteArray();
 
 		BytecodeDump.dump(bytes, this.className);
-
-		// Define the generated class in this VM.
-		return UNSAFE.defineAnonymousClass(this.targetClass, bytes, null);
-	}
-
-	private void generateFactory(@NonNull ClassWriter classWriter)
-	{
-		final MethodVisitor factory = classWriter.visitMethod(PRIVATE | STATIC, NAME_FACTORY,
-		                                                      this.invokedType.toMethodDescriptorString(), null, null);
-		factory.visitCode();
-		factory.visitTypeInsn(NEW, this.className);
-		factory.visitInsn(Opcodes.DUP);
-
-		for (int typeIndex = 0, localIndex = 0; typeIndex < this.parameterCount; typeIndex++)
-		{
-			Class<?> argType = this.invokedType.parameterType(typeIndex);
-			factory.visitVarInsn(getLoadOpcode(argType), localIndex);
-			localIndex += getParameterSize(argType);
-		}
-
-		factory
-			.visitMethodInsn(INVOKESPECIAL, this.className, "<init>", this.constructorType.toMethodDescriptorString(),
-			                 false);
-		factory.visitInsn(ARETURN);
-		factory.visitMaxs(-1, -1);
-		factory.visitEnd();
+		return bytes;
 	}
 
 	private void generateConstructor(@NonNull ClassWriter classWriter)
@@ -4,27 +4,37 @@ import dyvil.annotation.internal.NonNull;
 import dyvil.reflect.Modifiers;
 import dyvil.reflect.Opcodes;
 import dyvil.runtime.BytecodeDump;
-import dyvil.runtime.TypeConverter;
+import dyvil.runtime.ClassDefiner;
+import dyvilx.tools.asm.ASMConstants;
 import dyvilx.tools.asm.ClassWriter;
 import dyvilx.tools.asm.FieldVisitor;
 import dyvilx.tools.asm.MethodVisitor;
 import dyvilx.tools.asm.Type;
-import dyvilx.tools.asm.ASMConstants;
 
 import java.lang.invoke.*;
-import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import static dyvil.reflect.LookupAccess.LOOKUP;
 import static dyvil.reflect.Modifiers.*;
 import static dyvil.reflect.Opcodes.*;
-import static dyvil.reflect.UnsafeAccess.UNSAFE;
 import static dyvil.runtime.TypeConverter.*;
 
+/**
+ * Spins lambda classes at runtime. The generated class is defined as a nestmate of the calling class and invokes the
+ * implementation method directly, so the JIT can inline it like any other call. Call sites with the same shape
+ * (functional interface, captured types, implementation method and {@code toString()}) share a single class, see
+ * {@link ClassDefiner}.
+ * <p>
+ * Implementation methods that a nestmate of the caller cannot invoke directly, i.e. protected methods in other packages
+ * and {@code super} method references, are invoked through a {@link MethodHandle} stored in a final field instead. In
+ * this case, the handle is not part of the shape.
+ */
 public final class AnonymousClassLMF extends AbstractLMF
 {
 	private static final int    CLASSFILE_VERSION = 52;
-	private static final String NAME_FACTORY      = "get$Lambda";
+	private static final String NAME_TARGET       = "target$";
+	private static final String DESC_TARGET       = "Ljava/lang/invoke/MethodHandle;";
 
 	/**
 	 * Used to ensure that each spun class name is unique
@@ -33,6 +43,23 @@ public final class AnonymousClassLMF extends AbstractLMF
 
 	/* See context values in AbstractValidatingLambdaMetafactory * */
 
+	/**
+	 * Lookup of the class calling the meta-factory, used to define the generated class
+	 */
+	@NonNull
+	private final MethodHandles.Lookup caller;
+
+	/**
+	 * Type of the implementation method handle, including the receiver "(CC,int)String"
+	 */
+	@NonNull
+	private final MethodType implHandleType;
+
+	/**
+	 * {@code true} if the implementation method is invoked through the method handle in the {@code target$} field
+	 */
+	private final boolean useImplHandle;
+
 	/**
 	 * Name of type containing implementation "CC"
 	 */
@@ -55,7 +82,7 @@ public final class AnonymousClassLMF extends AbstractLMF
 	private final Class<?> implMethodReturnClass;
 
 	/**
-	 * Generated class constructor type "(CC)void"
+	 * Generated class constructor type "(CC)void", or "(MethodHandle,CC)void" if the implementation handle is used
 	 */
 	private final MethodType constructorType;
 
@@ -89,18 +116,44 @@ public final class AnonymousClassLMF extends AbstractLMF
 	 */
 	private String toString;
 
+	/**
+	 * Name of the specialized variant of the SAM method that the generated class implements as well, e.g. "foo$I", or
+	 * {@code null}
+	 */
+	private final String specializedName;
+
+	/**
+	 * Type of the specialized variant of the SAM method "(int)Object", or {@code null}
+	 */
+	private final MethodType specializedType;
+
 	public AnonymousClassLMF(MethodHandles.@NonNull Lookup caller, @NonNull MethodType invokedType,
 		                        String samMethodName, MethodType samMethodType, @NonNull MethodHandle implMethod,
-		                        MethodType instantiatedMethodType, String toString) throws LambdaConversionException
+		                        MethodType instantiatedMethodType, String toString, String specializedName,
+		                        MethodType specializedType) throws LambdaConversionException
 	{
 		super(caller, invokedType, samMethodName, samMethodType, implMethod, instantiatedMethodType);
+		if (specializedType != null && specializedType.parameterCount() != samMethodType.parameterCount())
+		{
+			throw new LambdaConversionException(String.format(
+				"Incorrect number of parameters for specialized method %s%s; expected %d", specializedName,
+				specializedType, samMethodType.parameterCount()));
+		}
+
+		this.caller = caller;
+		this.implHandleType = implMethod.type();
+		this.useImplHandle = this.needsImplHandle();
 		this.implMethodClassName = getInternalName(this.implDefiningClass);
 		this.implMethodName = this.implInfo.getName();
 		this.implMethodDesc = this.implMethodType.toMethodDescriptorString();
 		this.implMethodReturnClass = this.implKind == MethodHandleInfo.REF_newInvokeSpecial ?
 			                             this.implDefiningClass :
 			                             this.implMethodType.returnType();
-		this.constructorType = invokedType.changeReturnType(Void.TYPE);
+
+		final MethodType constructorType = invokedType.changeReturnType(Void.TYPE);
+		this.constructorType = this.useImplHandle ?
+			                       constructorType.insertParameterTypes(0, MethodHandle.class) :
+			                       constructorType;
 		this.lambdaClassName = getInternalName(this.targetClass) + "$Lambda$" + counter.incrementAndGet();
 
 		this.cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
@@ -122,47 +175,88 @@ public final class AnonymousClassLMF extends AbstractLMF
 		}
 
 		this.toString = toString;
+		this.specializedName = specializedName;
+		this.specializedType = specializedType;
+	}
+
+	private boolean needsImplHandle()
+	{
+		if (this.implKind == MethodHandleInfo.REF_invokeSpecial)
+		{
+			// super method references; private methods of the caller itself are invoked directly
+			return this.implDefiningClass != this.targetClass;
+		}
+		if (this.implDefiningClass.getName().indexOf('/') >= 0)
+		{
+			// hidden classes cannot be referred to by name
+			return true;
+		}
+		// protected methods are only accessible to subclasses, which the nestmate is not
+		return Modifier.isProtected(this.implInfo.getModifiers()) && !samePackage(this.implDefiningClass,
+		                                                                          this.targetClass);
+	}
+
+	private static boolean samePackage(Class<?> class1, Class<?> class2)
+	{
+		if (class1.getClassLoader() != class2.getClassLoader())
+		{
+			return false;
+		}
+
+		final String name1 = class1.getName();
+		final String name2 = class2.getName();
+		final int index = name1.lastIndexOf('.');
+		return index == name2.lastIndexOf('.') && name1.regionMatches(0, name2, 0, Math.max(index, 0));
 	}
 
 	@NonNull
 	@Override
 	public CallSite buildCallSite() throws LambdaConversionException
 	{
-		final Class<?> innerClass = this.spinInnerClass();
-		if (this.parameterCount == 0)
+		// classes that invoke the implementation handle do not depend on the implementation method
+		final Object implementation = this.useImplHandle ?
+			                              this.implHandleType :
+			                              Arrays.asList(this.implKind, this.implDefiningClass, this.implMethodName,
+			                                            this.implMethodType);
+		final Object[] shape = { this.samMethodName, this.samMethodType, this.invokedType, implementation,
+			this.instantiatedMethodType, this.toString, this.specializedName, this.specializedType };
+
+		MethodHandle constructor = ClassDefiner.getShared(this.targetClass, this.samBase, shape);
+		if (constructor == null)
 		{
-			final Constructor[] ctrs = innerClass.getDeclaredConstructors();
-			if (ctrs.length != 1)
-			{
-				final String message =
-					"Expected one lambda constructor for " + innerClass.getCanonicalName() + ", got " + ctrs.length;
-				throw new LambdaConversionException(message);
-			}
-
 			try
 			{
-				final Constructor ctr = ctrs[0];
-				ctr.setAccessible(true);
-				final Object inst = ctr.newInstance();
-				return new ConstantCallSite(MethodHandles.constant(this.samBase, inst));
+				final MethodHandles.Lookup lookup = ClassDefiner.defineNestmate(this.caller, this.spinInnerClass());
+				constructor = lookup.findConstructor(lookup.lookupClass(), this.constructorType);
 			}
 			catch (ReflectiveOperationException e)
 			{
-				throw new LambdaConversionException("Exception instantiating lambda object", e);
+				throw new LambdaConversionException("Exception finding constructor", e);
 			}
+
+			constructor = ClassDefiner.share(this.targetClass, this.samBase, constructor, shape);
 		}
+
+		final MethodHandle factory = (this.useImplHandle ?
+			                              MethodHandles.insertArguments(constructor, 0, this.implMethod) :
+			                              constructor).asType(this.invokedType);
+		if (this.parameterCount != 0)
+		{
+			return new ConstantCallSite(factory);
+		}
+
 		try
 		{
-			UNSAFE.ensureClassInitialized(innerClass);
-			return new ConstantCallSite(LOOKUP.findStatic(innerClass, NAME_FACTORY, this.invokedType));
+			final Object inst = factory.invoke();
+			return new ConstantCallSite(MethodHandles.constant(this.samBase, inst));
 		}
-		catch (ReflectiveOperationException e)
+		catch (Throwable e)
 		{
-			throw new LambdaConversionException("Exception finding constructor", e);
+			throw new LambdaConversionException("Exception instantiating lambda object", e);
 		}
 	}
 
-	private Class<?> spinInnerClass() throws LambdaConversionException
+	private byte[] spinInnerClass()
 	{
 		String samIntf = getInternalName(this.samBase);
 
@@ -171,50 +265,31 @@ public final class AnonymousClassLMF extends AbstractLMF
 
 		// Generate final fields to be filled in by constructor
 
-		if (this.parameterCount != 0)
+		if (this.useImplHandle)
 		{
-			for (int i = 0; i < this.parameterCount; i++)
-			{
-				FieldVisitor fv = this.cw.visitField(PRIVATE | FINAL, this.argNames[i], this.argDescs[i], null, null);
-				fv.visitEnd();
-			}
-			this.generateFactory();
+			this.cw.visitField(PRIVATE | FINAL, NAME_TARGET, DESC_TARGET, null, null).visitEnd();
+		}
+		for (int i = 0; i < this.parameterCount; i++)
+		{
+			FieldVisitor fv = this.cw.visitField(PRIVATE | FINAL, this.argNames[i], this.argDescs[i], null, null);
+			fv.visitEnd();
 		}
 
 		this.generateConstructor();
 		this.generateToString();
 
-		this.generateSAM();
+		this.generateMethod(this.samMethodName, this.samMethodType);
+		if (this.specializedName != null)
+		{
+			// calls through the variant don't have to box their arguments and the return value
+			this.generateMethod(this.specializedName, this.specializedType);
+		}
 
 		this.cw.visitEnd();
 
 		final byte[] bytes = this.cw.toByteArray();
 		BytecodeDump.dump(bytes, this.lambdaClassName);
-
-		// Define the generated class in this VM.
-		return UNSAFE.defineAnonymousClass(this.targetClass, bytes, null);
-	}
-
-	private void generateFactory()
-	{
-		MethodVisitor m = this.cw
-			                  .visitMethod(PRIVATE | STATIC, NAME_FACTORY, this.invokedType.toMethodDescriptorString(),
-			                               null, null);
-		m.visitCode();
-		m.visitTypeInsn(NEW, this.lambdaClassName);
-		m.visitInsn(Opcodes.DUP);
-		int parameterCount = this.parameterCount;
-		for (int typeIndex = 0, varIndex = 0; typeIndex < parameterCount; typeIndex++)
-		{
-			Class<?> argType = this.invokedType.parameterType(typeIndex);
-			m.visitVarInsn(getLoadOpcode(argType), varIndex);
-			varIndex += getParameterSize(argType);
-		}
-		m.visitMethodInsn(INVOKESPECIAL, this.lambdaClassName, "<init>",
-		                  this.constructorType.toMethodDescriptorString(), false);
-		m.visitInsn(ARETURN);
-		m.visitMaxs(-1, -1);
-		m.visitEnd();
+		return bytes;
 	}
 
 	private void generateConstructor()
@@ -226,12 +301,19 @@ public final class AnonymousClassLMF extends AbstractLMF
 		ctor.visitCode();
 		ctor.visitVarInsn(ALOAD, 0);
 		ctor.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		int lvIndex = 1;
+		if (this.useImplHandle)
+		{
+			ctor.visitVarInsn(ALOAD, 0);
+			ctor.visitVarInsn(ALOAD, lvIndex++);
+			ctor.visitFieldInsn(PUTFIELD, this.lambdaClassName, NAME_TARGET, DESC_TARGET);
+		}
 		int parameterCount = this.parameterCount;
-		for (int i = 0, lvIndex = 0; i < parameterCount; i++)
+		for (int i = 0; i < parameterCount; i++)
 		{
 			ctor.visitVarInsn(ALOAD, 0);
 			Class<?> argType = this.invokedType.parameterType(i);
-			ctor.visitVarInsn(getLoadOpcode(argType), lvIndex + 1);
+			ctor.visitVarInsn(getLoadOpcode(argType), lvIndex);
 			lvIndex += getParameterSize(argType);
 			ctor.visitFieldInsn(PUTFIELD, this.lambdaClassName, this.argNames[i], this.argDescs[i]);
 		}
@@ -250,15 +332,18 @@ public final class AnonymousClassLMF extends AbstractLMF
 		mv.visitEnd();
 	}
 
-	private void generateSAM()
+	private void generateMethod(String name, MethodType type)
 	{
-		MethodVisitor mv = this.cw
-			                   .visitMethod(PUBLIC, this.samMethodName, this.samMethodType.toMethodDescriptorString(),
-			                                null, null);
+		MethodVisitor mv = this.cw.visitMethod(PUBLIC, name, type.toMethodDescriptorString(), null, null);
 
 		mv.visitCode();
 
-		if (this.implKind == MethodHandleInfo.REF_newInvokeSpecial)
+		if (this.useImplHandle)
+		{
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitFieldInsn(GETFIELD, this.lambdaClassName, NAME_TARGET, DESC_TARGET);
+		}
+		else if (this.implKind == MethodHandleInfo.REF_newInvokeSpecial)
 		{
 			mv.visitTypeInsn(NEW, this.implMethodClassName);
 			mv.visitInsn(DUP);
@@ -269,50 +354,56 @@ public final class AnonymousClassLMF extends AbstractLMF
 			mv.visitFieldInsn(GETFIELD, this.lambdaClassName, this.argNames[i], this.argDescs[i]);
 		}
 
-		this.convertArgumentTypes(mv, this.samMethodType);
+		this.convertArgumentTypes(mv, type);
 
-		// Invoke the method we want to forward to
-		mv.visitMethodInsn(invocationOpcode(this.implKind), this.implMethodClassName, this.implMethodName,
-		                   this.implMethodDesc, this.implDefiningClass.isInterface());
+		final Class<?> implReturnClass;
+		if (this.useImplHandle)
+		{
+			// The handle type includes the receiver of instance methods and returns the new instance for
+			// constructors, so all kinds of implementation methods are invoked the same way.
+			mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/invoke/MethodHandle", "invokeExact",
+			                   this.implHandleType.toMethodDescriptorString(), false);
+			implReturnClass = this.implHandleType.returnType();
+		}
+		else
+		{
+			// Invoke the method we want to forward to
+			mv.visitMethodInsn(this.implInvocationOpcode(), this.implMethodClassName, this.implMethodName,
+			                   this.implMethodDesc, this.implDefiningClass.isInterface());
+			implReturnClass = this.implMethodReturnClass;
+		}
 
 		// Convert the return value (if any) and return it
 		// Note: if adapting from non-void to void, the 'return'
 		// instruction will pop the unneeded result
-		Class<?> samReturnClass = this.samMethodType.returnType();
-		convertType(mv, this.implMethodReturnClass, samReturnClass, samReturnClass);
+		Class<?> samReturnClass = type.returnType();
+		convertType(mv, implReturnClass, samReturnClass, samReturnClass);
 		mv.visitInsn(getReturnOpcode(samReturnClass));
 		// Maxs computed by ClassWriter.COMPUTE_MAXS,these arguments ignored
 		mv.visitMaxs(-1, -1);
 		mv.visitEnd();
 	}
 
-	private void convertArgumentTypes(@NonNull MethodVisitor mv, @NonNull MethodType samType)
+	private int implInvocationOpcode()
 	{
-		int lvIndex = 0;
-		int samReceiverLength;
-		if (this.implIsInstanceMethod && this.parameterCount == 0)
+		if (this.implKind == MethodHandleInfo.REF_invokeSpecial && ClassDefiner.usesHiddenClasses())
 		{
-			samReceiverLength = 1;
-
-			// push receiver
-			Class<?> rcvrType = samType.parameterType(0);
-			mv.visitVarInsn(getLoadOpcode(rcvrType), lvIndex + 1);
-			lvIndex += getParameterSize(rcvrType);
-			convertType(mv, rcvrType, this.implDefiningClass, this.instantiatedMethodType.parameterType(0));
-		}
-		else
-		{
-			samReceiverLength = 0;
+			// private methods of the caller; nestmates invoke them like any other instance method
+			return this.implDefiningClass.isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL;
 		}
+		return invocationOpcode(this.implKind);
+	}
 
+	private void convertArgumentTypes(@NonNull MethodVisitor mv, @NonNull MethodType samType)
+	{
+		// the captured values are the first arguments of the handle, followed by the SAM arguments
 		int samParametersLength = samType.parameterCount();
-		int argOffset = this.implMethodType.parameterCount() - samParametersLength;
-		for (int i = samReceiverLength; i < samParametersLength; i++)
+		for (int i = 0, lvIndex = 1; i < samParametersLength; i++)
 		{
 			Class<?> argType = samType.parameterType(i);
-			mv.visitVarInsn(getLoadOpcode(argType), lvIndex + 1);
+			mv.visitVarInsn(getLoadOpcode(argType), lvIndex);
 			lvIndex += getParameterSize(argType);
-			convertType(mv, argType, this.implMethodType.parameterType(argOffset + i),
+			convertType(mv, argType, this.implHandleType.parameterType(this.parameterCount + i),
 			            this.instantiatedMethodType.parameterType(i));
 		}
 	}
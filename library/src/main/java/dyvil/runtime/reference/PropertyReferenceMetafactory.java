@@ -4,40 +4,38 @@ import dyvil.annotation.internal.NonNull;
 import dyvil.annotation.internal.Nullable;
 import dyvil.reflect.Opcodes;
 import dyvil.runtime.BytecodeDump;
+import dyvil.runtime.ClassDefiner;
 import dyvil.runtime.TypeConverter;
 import dyvilx.tools.asm.ASMConstants;
 import dyvilx.tools.asm.ClassWriter;
 import dyvilx.tools.asm.MethodVisitor;
 
 import java.lang.invoke.*;
-import java.lang.reflect.Constructor;
-import java.security.AccessController;
-import java.security.PrivilegedAction;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import static dyvil.reflect.LookupAccess.LOOKUP;
 import static dyvil.reflect.Modifiers.*;
 import static dyvil.reflect.Opcodes.*;
-import static dyvil.reflect.UnsafeAccess.UNSAFE;
-import static dyvil.runtime.TypeConverter.invocationOpcode;
 
 public class PropertyReferenceMetafactory
 {
 	private static final int    CLASS_VERSION = 52;
-	private static final String FACTORY_NAME  = "create$Ref";
 	private static final String RECEIVER_NAME = "$receiver";
+	private static final String GETTER_NAME   = "$getter";
+	private static final String SETTER_NAME   = "$setter";
+	private static final String HANDLE_DESC   = "Ljava/lang/invoke/MethodHandle;";
 
 	/**
 	 * Used to ensure that each spun class name is unique
 	 */
 	private static final AtomicInteger counter = new AtomicInteger(0);
 
-	private final Class<?> targetClass;
+	private final MethodHandles.Lookup caller;
+	private final Class<?>             targetClass;
 
 	@NonNull
-	private final MethodHandleInfo getterInfo;
+	private final MethodHandle getter;
 	@NonNull
-	private final MethodHandleInfo setterInfo;
+	private final MethodHandle setter;
 
 	@NonNull
 	private final String     className;
@@ -55,13 +53,15 @@ public class PropertyReferenceMetafactory
 	public PropertyReferenceMetafactory(MethodHandles.@NonNull Lookup caller, @NonNull MethodType invokedType,
 		                                   @NonNull MethodHandle getter, @NonNull MethodHandle setter)
 	{
+		this.caller = caller;
 		this.targetClass = caller.lookupClass();
 		this.factoryType = invokedType;
-		this.constructorType = invokedType.changeReturnType(void.class);
+		this.constructorType = invokedType.changeReturnType(void.class)
+		                                  .insertParameterTypes(0, MethodHandle.class, MethodHandle.class);
 		this.refClass = invokedType.returnType();
 
-		this.getterInfo = caller.revealDirect(getter);
-		this.setterInfo = caller.revealDirect(setter);
+		this.getter = getter;
+		this.setter = setter;
 
 		if (invokedType.parameterCount() == 0)
 		{
@@ -117,51 +117,44 @@ public class PropertyReferenceMetafactory
 	@NonNull
 	public CallSite buildCallSite() throws Exception
 	{
-		final Class<?> innerClass = this.spinInnerClass();
+		// the getter and setter are passed to the constructor, so only their types are part of the shape
+		final Object[] shape = { this.factoryType, this.getter.type(), this.setter.type() };
 
-		if (this.receiverType == null)
+		MethodHandle constructor = ClassDefiner.getShared(this.targetClass, this.refClass, shape);
+		if (constructor == null)
 		{
-			final Constructor[] ctrs = AccessController.doPrivileged((PrivilegedAction<Constructor[]>) () ->
-			{
-				Constructor<?>[] ctrs1 = innerClass.getDeclaredConstructors();
-				if (ctrs1.length == 1)
-				{
-					// The annotation implementing inner class constructor is
-					// private, set
-					// it accessible (by us) before creating the constant
-					// sole instance
-					ctrs1[0].setAccessible(true);
-				}
-				return ctrs1;
-			});
-			if (ctrs.length != 1)
-			{
-				throw new Exception("Expected one constructor for " + innerClass.getCanonicalName() + ", got "
-					                    + ctrs.length);
-			}
-
 			try
 			{
-				Object inst = ctrs[0].newInstance();
-				return new ConstantCallSite(MethodHandles.constant(this.refClass, inst));
+				final MethodHandles.Lookup lookup = ClassDefiner.defineClass(this.caller, this.spinInnerClass());
+				constructor = lookup.findConstructor(lookup.lookupClass(), this.constructorType);
 			}
 			catch (ReflectiveOperationException e)
 			{
-				throw new Exception("Exception instantiating property reference", e);
+				throw new Exception("Exception finding constructor", e);
 			}
+
+			constructor = ClassDefiner.share(this.targetClass, this.refClass, constructor, shape);
 		}
+
+		final MethodHandle factory = MethodHandles.insertArguments(constructor, 0, this.getter, this.setter)
+		                                          .asType(this.factoryType);
+		if (this.receiverType != null)
+		{
+			return new ConstantCallSite(factory);
+		}
+
 		try
 		{
-			UNSAFE.ensureClassInitialized(innerClass);
-			return new ConstantCallSite(LOOKUP.findStatic(innerClass, FACTORY_NAME, this.factoryType));
+			final Object inst = factory.invoke();
+			return new ConstantCallSite(MethodHandles.constant(this.refClass, inst));
 		}
-		catch (ReflectiveOperationException e)
+		catch (Throwable e)
 		{
-			throw new Exception("Exception finding constructor", e);
+			throw new Exception("Exception instantiating property reference", e);
 		}
 	}
 
-	private Class<?> spinInnerClass() throws Exception
+	private byte[] spinInnerClass() throws Exception
 	{
 		String refItf = TypeConverter.getInternalName(this.refClass);
 
@@ -171,6 +164,8 @@ public class PropertyReferenceMetafactory
 			.visit(CLASS_VERSION, PUBLIC | SYNTHETIC | ASMConstants.ACC_FINAL, this.className, null, "java/lang/Object",
 			       new String[] { refItf });
 
+		classWriter.visitField(PRIVATE | FINAL, GETTER_NAME, HANDLE_DESC, null, null).visitEnd();
+		classWriter.visitField(PRIVATE | FINAL, SETTER_NAME, HANDLE_DESC, null, null).visitEnd();
 		if (this.receiverType != null)
 		{
 			classWriter.visitField(PRIVATE, RECEIVER_NAME, this.receiverType, null, null).visitEnd();
@@ -178,11 +173,6 @@ public class PropertyReferenceMetafactory
 
 		this.generateConstructor(classWriter);
 
-		if (this.receiverType != null)
-		{
-			this.generateFactory(classWriter);
-		}
-
 		this.generateGetter(classWriter);
 		this.generateSetter(classWriter);
 		this.generateToString(classWriter);
@@ -191,26 +181,7 @@ public class PropertyReferenceMetafactory
 
 		final byte[] bytes = classWriter.toByteArray();
 		BytecodeDump.dump(bytes, this.className);
-		return UNSAFE.defineAnonymousClass(this.targetClass, bytes, null);
-	}
-
-	private void generateFactory(@NonNull ClassWriter classWriter)
-	{
-		final MethodVisitor factory = classWriter.visitMethod(PRIVATE | STATIC, FACTORY_NAME,
-		                                                      this.factoryType.toMethodDescriptorString(), null, null);
-		factory.visitCode();
-
-		factory.visitTypeInsn(Opcodes.NEW, this.className);
-		factory.visitInsn(Opcodes.DUP);
-
-		factory.visitVarInsn(ALOAD, 0);
-		factory
-			.visitMethodInsn(INVOKESPECIAL, this.className, "<init>", this.constructorType.toMethodDescriptorString(),
-			                 false);
-
-		factory.visitInsn(ARETURN);
-		factory.visitMaxs(-1, -1);
-		factory.visitEnd();
+		return bytes;
 	}
 
 	private void generateConstructor(@NonNull ClassWriter classWriter)
@@ -222,10 +193,17 @@ public class PropertyReferenceMetafactory
 		ctor.visitVarInsn(ALOAD, 0);
 		ctor.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
 
+		ctor.visitVarInsn(ALOAD, 0);
+		ctor.visitVarInsn(ALOAD, 1);
+		ctor.visitFieldInsn(PUTFIELD, this.className, GETTER_NAME, HANDLE_DESC);
+		ctor.visitVarInsn(ALOAD, 0);
+		ctor.visitVarInsn(ALOAD, 2);
+		ctor.visitFieldInsn(PUTFIELD, this.className, SETTER_NAME, HANDLE_DESC);
+
 		if (this.receiverType != null)
 		{
 			ctor.visitVarInsn(ALOAD, 0);
-			ctor.visitVarInsn(ALOAD, 1);
+			ctor.visitVarInsn(ALOAD, 3);
 			ctor.visitFieldInsn(PUTFIELD, this.className, RECEIVER_NAME, this.receiverType);
 		}
 
@@ -243,12 +221,16 @@ public class PropertyReferenceMetafactory
 		}
 	}
 
-	private void writeMethod(@NonNull MethodVisitor setter, @NonNull MethodHandleInfo handleInfo)
+	private void writeHandle(@NonNull MethodVisitor mv, @NonNull String name)
+	{
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitFieldInsn(Opcodes.GETFIELD, this.className, name, HANDLE_DESC);
+	}
+
+	private static void writeInvoke(@NonNull MethodVisitor mv, @NonNull MethodHandle handle)
 	{
-		setter.visitMethodInsn(invocationOpcode(handleInfo.getReferenceKind()),
-		                       TypeConverter.getInternalName(handleInfo.getDeclaringClass()), handleInfo.getName(),
-		                       handleInfo.getMethodType().toMethodDescriptorString(),
-		                       handleInfo.getDeclaringClass().isInterface());
+		mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/invoke/MethodHandle", "invokeExact",
+		                   handle.type().toMethodDescriptorString(), false);
 	}
 
 	private void generateGetter(@NonNull ClassWriter classWriter)
@@ -257,11 +239,11 @@ public class PropertyReferenceMetafactory
 
 		getter.visitCode();
 
+		this.writeHandle(getter, GETTER_NAME);
 		this.writeReceiver(getter);
-		this.writeMethod(getter, this.getterInfo);
+		writeInvoke(getter, this.getter);
 
-		TypeConverter.convertType(getter, this.getterInfo.getMethodType().returnType(), this.refTargetClass,
-		                          this.refTargetClass);
+		TypeConverter.convertType(getter, this.getter.type().returnType(), this.refTargetClass, this.refTargetClass);
 
 		getter.visitInsn(TypeConverter.getReturnOpcode(this.refTargetClass));
 		getter.visitMaxs(-1, -1);
@@ -270,20 +252,22 @@ public class PropertyReferenceMetafactory
 
 	private void generateSetter(@NonNull ClassWriter classWriter)
 	{
-		final MethodType setterType = this.setterInfo.getMethodType();
-		final Class<?> setterParamType = setterType.parameterType(0);
+		final MethodType setterType = this.setter.type();
+		// the value is the last parameter, after the receiver if there is one
+		final Class<?> setterParamType = setterType.parameterType(setterType.parameterCount() - 1);
 		final Class<?> setterReturnType = setterType.returnType();
 
 		MethodVisitor setter = classWriter.visitMethod(PUBLIC, "set", "(" + this.refTargetType + ")V", null, null);
 
 		setter.visitCode();
 
+		this.writeHandle(setter, SETTER_NAME);
 		this.writeReceiver(setter);
 
 		setter.visitVarInsn(TypeConverter.getLoadOpcode(this.refTargetClass), 1);
 		TypeConverter.convertType(setter, this.refTargetClass, setterParamType, setterParamType);
 
-		this.writeMethod(setter, this.setterInfo);
+		writeInvoke(setter, this.setter);
 
 		if (setterReturnType != void.class)
 		{
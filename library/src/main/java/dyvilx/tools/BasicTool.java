@@ -23,7 +23,7 @@ public abstract class BasicTool implements javax.tools.Tool
 	private PrintStream errorOutput;
 	private Logger      logger;
 
-	private int exitCode;
+	private volatile int exitCode;
 
 	protected abstract boolean useAnsiColors();
 
@@ -92,6 +92,22 @@ public abstract class BasicTool implements javax.tools.Tool
 		}
 	}
 
+	protected void closeLogger()
+	{
+		if (this.logger == null)
+		{
+			return;
+		}
+
+		// the logger is shared by all tools, so the handlers have to be removed for tools that run in the same VM
+		for (Handler handler : this.logger.getHandlers())
+		{
+			this.logger.removeHandler(handler);
+			handler.close();
+		}
+		this.logger = null;
+	}
+
 	public PrintStream getOutput()
 	{
 		return this.output;
@@ -127,7 +143,7 @@ public abstract class BasicTool implements javax.tools.Tool
 		this.exitCode = 1;
 	}
 
-	public void log(String message)
+	public synchronized void log(String message)
 	{
 		this.output.println(message);
 		if (this.logger != null)
@@ -136,7 +152,7 @@ public abstract class BasicTool implements javax.tools.Tool
 		}
 	}
 
-	public void warn(String message)
+	public synchronized void warn(String message)
 	{
 		if (this.useAnsiColors() && !message.isEmpty())
 		{
@@ -153,7 +169,7 @@ public abstract class BasicTool implements javax.tools.Tool
 		}
 	}
 
-	public void error(String message)
+	public synchronized void error(String message)
 	{
 		this.fail();
 		this.errorOutput.println(message);
@@ -164,7 +180,7 @@ public abstract class BasicTool implements javax.tools.Tool
 		}
 	}
 
-	public void error(String message, Throwable throwable)
+	public synchronized void error(String message, Throwable throwable)
 	{
 		this.fail();
 		this.errorOutput.println(message);
@@ -176,7 +192,7 @@ public abstract class BasicTool implements javax.tools.Tool
 		}
 	}
 
-	public void error(String className, String methodName, Throwable throwable)
+	public synchronized void error(String className, String methodName, Throwable throwable)
 	{
 		this.fail();
 
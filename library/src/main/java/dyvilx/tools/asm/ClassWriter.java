@@ -167,6 +167,14 @@ public class ClassWriter implements ClassVisitor
 			}
 		}
 	}
+
+	/**
+	 * @return the internal name of the class, or {@code null} if {@link #visit} was not called yet
+	 */
+	public String getInternalName()
+	{
+		return this.thisName;
+	}
 	
 	@Override
 	public final void visitSource(final String file, final String debug)
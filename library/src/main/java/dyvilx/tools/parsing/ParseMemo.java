@@ -0,0 +1,114 @@
+package dyvilx.tools.parsing;
+
+import dyvilx.tools.parsing.token.IToken;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A memo table for speculative parsing with a {@link TryParserManager}, shared by all parser managers that work on the
+ * same token stream. It records which speculative parses failed at which start token, so that repeated attempts of
+ * the same kind at the same position fail immediately instead of re-scanning the tokens. Successful parses are not
+ * recorded, because they have to run again to produce their AST.
+ * <p>
+ * In addition, the memo counts how many tokens were scanned by failed speculative parses, i.e. how many tokens had to
+ * be scanned again by the alternative that was parsed afterwards.
+ */
+public class ParseMemo
+{
+	// =============== Fields ===============
+
+	private final Map<Object, Map<IToken, Integer>> failures = new HashMap<>();
+
+	private int speculativeTokens;
+	private int rescannedTokens;
+	private int memoHits;
+	private int skippedTokens;
+
+	// =============== Properties ===============
+
+	/**
+	 * @return the number of tokens that were scanned by failed speculative parses
+	 */
+	public int getRescannedTokens()
+	{
+		return this.rescannedTokens;
+	}
+
+	/**
+	 * @return the number of speculative parses that failed immediately because of a recorded failure
+	 */
+	public int getMemoHits()
+	{
+		return this.memoHits;
+	}
+
+	/**
+	 * @return the number of tokens that did not have to be scanned because of recorded failures
+	 */
+	public int getSkippedTokens()
+	{
+		return this.skippedTokens;
+	}
+
+	// =============== Methods ===============
+
+	void countToken()
+	{
+		this.speculativeTokens++;
+	}
+
+	int getSpeculativeTokens()
+	{
+		return this.speculativeTokens;
+	}
+
+	void addRescannedTokens(int tokens)
+	{
+		this.rescannedTokens += tokens;
+	}
+
+	/**
+	 * @param kind
+	 * 	the kind of the speculative parse, as passed to {@link TryParserManager#tryParse(IParserManager, Parser, IToken,
+	 * 	int, Object)}
+	 * @param start
+	 * 	the first token of the speculative parse
+	 *
+	 * @return {@code true} if a parse of the given kind already failed at the given token
+	 */
+	public boolean hasFailed(Object kind, IToken start)
+	{
+		final Map<IToken, Integer> failures = this.failures.get(kind);
+		if (failures == null)
+		{
+			return false;
+		}
+
+		final Integer tokens = failures.get(start);
+		if (tokens == null)
+		{
+			return false;
+		}
+
+		this.memoHits++;
+		this.skippedTokens += tokens;
+		return true;
+	}
+
+	/**
+	 * Records that a parse of the given kind failed at the given token.
+	 *
+	 * @param kind
+	 * 	the kind of the speculative parse
+	 * @param start
+	 * 	the first token of the speculative parse
+	 * @param tokens
+	 * 	the number of tokens the parse scanned before it failed
+	 */
+	public void recordFailure(Object kind, IToken start, int tokens)
+	{
+		this.failures.computeIfAbsent(kind, k -> new IdentityHashMap<>()).put(start, tokens);
+	}
+}
@@ -24,6 +24,8 @@ public class ParserManager implements IParserManager
 	protected boolean       reparse;
 	protected boolean       hasStopped;
 
+	protected ParseMemo memo;
+
 	public ParserManager(Symbols symbols)
 	{
 		this.symbols = symbols;
@@ -48,6 +50,18 @@ public class ParserManager implements IParserManager
 		return this.tokens;
 	}
 
+	/**
+	 * @return the memo table used by speculative parses on the tokens of this parser manager, created on first access
+	 */
+	public ParseMemo getMemo()
+	{
+		if (this.memo == null)
+		{
+			this.memo = new ParseMemo();
+		}
+		return this.memo;
+	}
+
 	public void reset()
 	{
 		this.skip = 0;
@@ -0,0 +1,74 @@
+package dyvilx.tools.parsing;
+
+/**
+ * A single change to a source text, as reported by an editor: {@code removedLength} characters starting at {@code
+ * offset} are replaced with {@code insertedText}.
+ */
+public final class TextEdit
+{
+	// =============== Fields ===============
+
+	private final int    offset;
+	private final int    removedLength;
+	private final String insertedText;
+
+	// =============== Constructors ===============
+
+	public TextEdit(int offset, int removedLength, String insertedText)
+	{
+		if (offset < 0 || removedLength < 0)
+		{
+			throw new IllegalArgumentException("Negative offset or length");
+		}
+
+		this.offset = offset;
+		this.removedLength = removedLength;
+		this.insertedText = insertedText;
+	}
+
+	// =============== Properties ===============
+
+	public int getOffset()
+	{
+		return this.offset;
+	}
+
+	public int getRemovedLength()
+	{
+		return this.removedLength;
+	}
+
+	public String getInsertedText()
+	{
+		return this.insertedText;
+	}
+
+	/**
+	 * @return the offset of the end of the removed text in the old text
+	 */
+	public int getOldEnd()
+	{
+		return this.offset + this.removedLength;
+	}
+
+	/**
+	 * @return the offset of the end of the inserted text in the new text
+	 */
+	public int getNewEnd()
+	{
+		return this.offset + this.insertedText.length();
+	}
+
+	// =============== Methods ===============
+
+	public String apply(String text)
+	{
+		return text.substring(0, this.offset) + this.insertedText + text.substring(this.getOldEnd());
+	}
+
+	@Override
+	public String toString()
+	{
+		return "TextEdit(" + this.offset + ", " + this.removedLength + ", \"" + this.insertedText + "\")";
+	}
+}
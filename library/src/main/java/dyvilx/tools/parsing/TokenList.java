@@ -1,39 +1,219 @@
 package dyvilx.tools.parsing;
 
+import dyvil.lang.Name;
+import dyvilx.tools.parsing.lexer.Symbols;
+import dyvilx.tools.parsing.lexer.Tokens;
 import dyvilx.tools.parsing.token.IToken;
 import dyvilx.tools.parsing.token.StartToken;
+import dyvilx.tools.parsing.token.TokenBuffer;
 
+/**
+ * A linked list of tokens. Tokens added with the {@code append*} methods other than {@link #append(IToken)} are stored
+ * in a packed {@link TokenBuffer}, and token objects for them are only created when they are first accessed. Runs of
+ * packed tokens are linked implicitly, so appending them does not create any objects.
+ */
 public class TokenList implements Iterable<IToken>
 {
 	protected final IToken startToken;
 	protected       IToken endToken;
 
+	protected TokenBuffer buffer = new TokenBuffer();
+
+	/**
+	 * The buffer index of the last token, or {@code -1} if the last token is {@link #endToken}.
+	 */
+	protected int endIndex = -1;
+
+	/**
+	 * {@code true} as long as this list consists of all buffer tokens in order, optionally followed by the EOF token.
+	 */
+	protected boolean compact = true;
+
 	public TokenList()
 	{
 		this.startToken = this.endToken = new StartToken();
 	}
 
+	// --------------- Buffer ---------------
+
+	public TokenBuffer getBuffer()
+	{
+		return this.buffer;
+	}
+
+	public boolean isCompact()
+	{
+		return this.compact;
+	}
+
+	/**
+	 * Replaces the buffer of a {@linkplain #isCompact() compact} list, e.g. with a copy that contains additional
+	 * tokens. A trailing EOF token is kept.
+	 *
+	 * @param buffer
+	 * 	the new buffer
+	 */
+	public void replaceBuffer(TokenBuffer buffer)
+	{
+		this.replaceBuffer(buffer, this.endToken());
+	}
+
+	/**
+	 * Replaces the buffer of a {@linkplain #isCompact() compact} list and the EOF token that follows it.
+	 *
+	 * @param buffer
+	 * 	the new buffer
+	 * @param tail
+	 * 	the new EOF token, or {@code null} if the list should end with the last token of the buffer
+	 */
+	public void replaceBuffer(TokenBuffer buffer, IToken tail)
+	{
+		if (!this.compact)
+		{
+			throw new IllegalStateException("Cannot replace the buffer of a non-compact token list");
+		}
+
+		this.buffer = buffer;
+
+		final int size = buffer.size();
+		if (size == 0)
+		{
+			this.endIndex = -1;
+			if (tail == null)
+			{
+				this.endToken = this.startToken;
+				return;
+			}
+			this.startToken.setNext(tail);
+			tail.setPrev(this.startToken);
+			this.endToken = tail;
+			return;
+		}
+
+		final IToken first = buffer.get(0);
+		first.setPrev(this.startToken);
+		this.startToken.setNext(first);
+
+		if (tail == null)
+		{
+			this.endToken = this.startToken;
+			this.endIndex = size - 1;
+			return;
+		}
+
+		final IToken last = buffer.get(size - 1);
+		last.setNext(tail);
+		tail.setPrev(last);
+		this.endToken = tail;
+		this.endIndex = -1;
+	}
+
+	// --------------- Appending ---------------
+
+	private IToken end()
+	{
+		return this.endIndex >= 0 ? this.buffer.get(this.endIndex) : this.endToken;
+	}
+
 	public void append(IToken token)
 	{
-		token.setPrev(this.endToken);
-		this.endToken.setNext(token);
+		if (token.type() != Tokens.EOF)
+		{
+			this.compact = false;
+		}
+
+		final IToken end = this.end();
+		token.setPrev(end);
+		end.setNext(token);
 		this.endToken = token;
+		this.endIndex = -1;
+	}
+
+	private void appendIndex(int index)
+	{
+		if (this.endIndex >= 0 && this.endIndex == index - 1)
+		{
+			// implicitly linked
+			this.endIndex = index;
+			return;
+		}
+		if (index != 0 || this.endToken != this.startToken)
+		{
+			this.compact = false;
+		}
+
+		final IToken token = this.buffer.get(index);
+		final IToken end = this.end();
+		token.setPrev(end);
+		end.setNext(token);
+		this.endIndex = index;
+	}
+
+	public void appendSymbol(Symbols symbols, int type, int line, int startColumn)
+	{
+		this.appendIndex(this.buffer.addSymbol(symbols, type, line, startColumn));
+	}
+
+	public void appendIdentifier(Name name, int type, int line, int startColumn, int endColumn)
+	{
+		this.appendIndex(this.buffer.addIdentifier(name, type, line, line, startColumn, endColumn));
+	}
+
+	public void appendIdentifier(Name name, int type, int startLine, int endLine, int startColumn, int endColumn)
+	{
+		this.appendIndex(this.buffer.addIdentifier(name, type, startLine, endLine, startColumn, endColumn));
+	}
+
+	public void appendString(String value, int type, int startLine, int endLine, int startColumn, int endColumn)
+	{
+		this.appendIndex(this.buffer.addString(value, type, startLine, endLine, startColumn, endColumn));
+	}
+
+	public void appendInt(int value, int line, int startColumn, int endColumn)
+	{
+		this.appendIndex(this.buffer.addInt(value, line, startColumn, endColumn));
+	}
+
+	public void appendLong(long value, int line, int startColumn, int endColumn)
+	{
+		this.appendIndex(this.buffer.addLong(value, line, startColumn, endColumn));
+	}
+
+	public void appendFloat(float value, int line, int startColumn, int endColumn)
+	{
+		this.appendIndex(this.buffer.addFloat(value, line, startColumn, endColumn));
+	}
+
+	public void appendDouble(double value, int line, int startColumn, int endColumn)
+	{
+		this.appendIndex(this.buffer.addDouble(value, line, startColumn, endColumn));
 	}
 
 	public void addAll(TokenList tokens)
 	{
 		this.append(tokens.first());
 		this.endToken = tokens.last();
+		this.compact = false;
 	}
 
+	// --------------- Access ---------------
+
 	public IToken first()
 	{
 		return this.startToken.next();
 	}
 
+	/**
+	 * @return the EOF token of this list, or {@code null} if it does not end with one
+	 */
+	public IToken endToken()
+	{
+		return this.endIndex < 0 && this.endToken != this.startToken ? this.endToken : null;
+	}
+
 	public IToken last()
 	{
-		return this.endToken.prev();
+		return this.end().prev();
 	}
 
 	@Override
@@ -91,11 +91,47 @@ public class TryParserManager extends ParserManager
 	}
 
 	public boolean tryParse(IParserManager pm, Parser parser, IToken token, int flags)
+	{
+		return this.tryParse(pm, parser, token, flags, null);
+	}
+
+	/**
+	 * Speculatively parses the tokens starting at the given token with the given parser. If the parse fails, the token
+	 * iterator of the given parser manager is rewound to the start token.
+	 * <p>
+	 * If a memo key is given, a failed parse is recorded in the {@linkplain ParserManager#getMemo() memo table} of the
+	 * given parser manager, and later attempts with the same key at the same token fail immediately. Memo keys must only
+	 * be used if the outcome of the parse depends on nothing but the kind of parser and the tokens.
+	 *
+	 * @param pm
+	 * 	the parser manager whose tokens are parsed
+	 * @param parser
+	 * 	the parser
+	 * @param token
+	 * 	the first token to parse
+	 * @param flags
+	 * 	a combination of {@link #REPORT_ERRORS} and {@link #EXIT_ON_ROOT}
+	 * @param memoKey
+	 * 	the kind of parse for memoization, or {@code null} to disable memoization
+	 *
+	 * @return {@code true} if the parse was successful
+	 */
+	public boolean tryParse(IParserManager pm, Parser parser, IToken token, int flags, Object memoKey)
 	{
 		final TokenIterator tokens = pm.getTokens();
 		final MarkerList markers = pm.getMarkers();
 
+		// share the memo table with the enclosing parser manager, so that nested speculative parses use it too
+		final ParseMemo memo = pm instanceof ParserManager ? ((ParserManager) pm).getMemo() : null;
+		if (memoKey != null && memo != null && memo.hasFailed(memoKey, token))
+		{
+			return false;
+		}
+
 		this.reset(markers, tokens);
+		this.memo = memo;
+
+		final int startTokens = memo != null ? memo.getSpeculativeTokens() : 0;
 
 		// Have to rewind one token because the TryParserManager assumes the TokenIterator is at the beginning
 		// (i.e. no tokens have been returned by next() yet)
@@ -103,6 +139,16 @@ public class TryParserManager extends ParserManager
 
 		if (!this.parse(parser, markers, flags))
 		{
+			if (memo != null)
+			{
+				final int scannedTokens = memo.getSpeculativeTokens() - startTokens;
+				memo.addRescannedTokens(scannedTokens);
+				if (memoKey != null)
+				{
+					memo.recordFailure(memoKey, token, scannedTokens);
+				}
+			}
+
 			// Reset to the next token and restore split tokens
 			this.setNextAndReset(token);
 			return false;
@@ -143,6 +189,10 @@ public class TryParserManager extends ParserManager
 				{
 					break;
 				}
+				if (this.memo != null)
+				{
+					this.memo.countToken();
+				}
 			}
 
 			if (this.skip > 0)
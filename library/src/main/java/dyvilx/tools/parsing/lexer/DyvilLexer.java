@@ -1,9 +1,9 @@
 package dyvilx.tools.parsing.lexer;
 
 import dyvil.lang.Name;
+import dyvil.source.position.SourcePosition;
 import dyvilx.tools.parsing.TokenList;
 import dyvilx.tools.parsing.marker.MarkerList;
-import dyvilx.tools.parsing.token.*;
 
 import static dyvilx.tools.parsing.lexer.BaseSymbols.*;
 import static dyvilx.tools.parsing.lexer.Tokens.*;
@@ -35,6 +35,11 @@ public final class DyvilLexer extends Lexer
 		while (true)
 		{
 			final int currentChar = this.codePoint();
+			if (this.isResynchronized())
+			{
+				break loop;
+			}
+
 			switch (currentChar)
 			{
 			case 0:
@@ -98,27 +103,27 @@ public final class DyvilLexer extends Lexer
 			this.parseIdentifier('/', MOD_SYMBOL);
 			return;
 		case '(':
-			this.tokens.append(new SymbolToken(INSTANCE, OPEN_PARENTHESIS, this.line, this.column));
+			this.tokens.appendSymbol(INSTANCE, OPEN_PARENTHESIS, this.line, this.column);
 			this.advance();
 			return;
 		case ')':
-			this.tokens.append(new SymbolToken(INSTANCE, CLOSE_PARENTHESIS, this.line, this.column));
+			this.tokens.appendSymbol(INSTANCE, CLOSE_PARENTHESIS, this.line, this.column);
 			this.advance();
 			return;
 		case '[':
-			this.tokens.append(new SymbolToken(INSTANCE, OPEN_SQUARE_BRACKET, this.line, this.column));
+			this.tokens.appendSymbol(INSTANCE, OPEN_SQUARE_BRACKET, this.line, this.column);
 			this.advance();
 			return;
 		case ']':
-			this.tokens.append(new SymbolToken(INSTANCE, CLOSE_SQUARE_BRACKET, this.line, this.column));
+			this.tokens.appendSymbol(INSTANCE, CLOSE_SQUARE_BRACKET, this.line, this.column);
 			this.advance();
 			return;
 		case '{':
-			this.tokens.append(new SymbolToken(INSTANCE, OPEN_CURLY_BRACKET, this.line, this.column));
+			this.tokens.appendSymbol(INSTANCE, OPEN_CURLY_BRACKET, this.line, this.column);
 			this.advance();
 			return;
 		case '}':
-			this.tokens.append(new SymbolToken(INSTANCE, CLOSE_CURLY_BRACKET, this.line, this.column));
+			this.tokens.appendSymbol(INSTANCE, CLOSE_CURLY_BRACKET, this.line, this.column);
 			this.advance();
 			return;
 		case '.':
@@ -129,16 +134,16 @@ public final class DyvilLexer extends Lexer
 				this.parseIdentifier('.', MOD_DOT);
 				return;
 			}
-			this.tokens.append(new SymbolToken(INSTANCE, DOT, this.line, this.column));
+			this.tokens.appendSymbol(INSTANCE, DOT, this.line, this.column);
 			this.advance();
 			return;
 		}
 		case ';':
-			this.tokens.append(new SymbolToken(INSTANCE, SEMICOLON, this.line, this.column));
+			this.tokens.appendSymbol(INSTANCE, SEMICOLON, this.line, this.column);
 			this.advance();
 			return;
 		case ',':
-			this.tokens.append(new SymbolToken(INSTANCE, COMMA, this.line, this.column));
+			this.tokens.appendSymbol(INSTANCE, COMMA, this.line, this.column);
 			this.advance();
 			return;
 		case '_':
@@ -190,6 +195,7 @@ public final class DyvilLexer extends Lexer
 		// assert this.codePoint() == '`';
 
 		final int startColumn = this.column;
+		final int startLine = this.line;
 
 		this.advance();
 
@@ -224,9 +230,8 @@ public final class DyvilLexer extends Lexer
 				}
 
 				this.advance();
-				this.tokens.append(
-					new IdentifierToken(Name.from(this.buffer.toString()), SPECIAL_IDENTIFIER, this.line, startColumn,
-					                    this.column));
+				this.tokens.appendIdentifier(Name.from(this.buffer.toString()), SPECIAL_IDENTIFIER, startLine,
+				                             this.line, startColumn, this.column);
 				return;
 			}
 
@@ -240,6 +245,7 @@ public final class DyvilLexer extends Lexer
 		// assert this.codePoint() == '\'';
 
 		final int startColumn = this.column;
+		final int startLine = this.line;
 
 		this.advance();
 
@@ -272,9 +278,8 @@ public final class DyvilLexer extends Lexer
 				// Fallthrough
 			case '\'':
 				this.advance();
-				this.tokens.append(
-					new StringToken(this.buffer.toString(), SINGLE_QUOTED_STRING, this.line, this.line, startColumn,
-					                this.column));
+				this.tokens.appendString(this.buffer.toString(), SINGLE_QUOTED_STRING, startLine, this.line,
+				                         startColumn, this.column);
 				return;
 			}
 
@@ -306,9 +311,8 @@ public final class DyvilLexer extends Lexer
 				if (nextChar == '(')
 				{
 					this.advance2();
-					this.tokens.append(
-						new StringToken(this.buffer.toString(), stringPart ? STRING_PART : STRING_START, startLine,
-						                this.line, startColumn, this.column));
+					this.tokens.appendString(this.buffer.toString(), stringPart ? STRING_PART : STRING_START,
+					                         startLine, this.line, startColumn, this.column);
 
 					this.parseInterpolationValue();
 
@@ -329,9 +333,8 @@ public final class DyvilLexer extends Lexer
 				// Fallthrough
 			case '"':
 				this.advance();
-				this.tokens.append(
-					new StringToken(this.buffer.toString(), stringPart ? STRING_END : STRING, startLine, this.line,
-					                startColumn, this.column));
+				this.tokens.appendString(this.buffer.toString(), stringPart ? STRING_END : STRING, startLine,
+				                         this.line, startColumn, this.column);
 				return;
 			case '\r':
 				if (this.nextCodePoint() == '\n')
@@ -383,9 +386,8 @@ public final class DyvilLexer extends Lexer
 				// Fallthrough
 			case '"':
 				this.advance();
-				this.tokens.append(
-					new StringToken(this.buffer.toString(), VERBATIM_STRING, startLine, this.line, startColumn,
-					                this.column));
+				this.tokens.appendString(this.buffer.toString(), VERBATIM_STRING, startLine, this.line, startColumn,
+				                         this.column);
 				return;
 			case '\r':
 				if (this.nextCodePoint() == '\n')
@@ -449,12 +451,18 @@ public final class DyvilLexer extends Lexer
 			}
 
 			this.error("char.verbatim.invalid");
+			if (currentChar == '\n')
+			{
+				// keep line numbers in sync with the text
+				this.newLine();
+				continue;
+			}
 			this.advance(currentChar);
 		}
 
 		this.advance();
-		this.tokens.append(
-			new StringToken(this.buffer.toString(), VERBATIM_CHAR, startLine, this.line, startColumn, this.column));
+		this.tokens.appendString(this.buffer.toString(), VERBATIM_CHAR, startLine, this.line, startColumn,
+		                         this.column);
 	}
 
 	private void parseNumberLiteral(int currentChar)
@@ -640,66 +648,66 @@ public final class DyvilLexer extends Lexer
 			{
 			case 0: // int
 			{
-				final IntToken token = new IntToken(0, this.line, startColumn, this.column);
+				int value = 0;
 				try
 				{
-					token.setValue(Integer.parseInt(this.buffer.toString(), radix));
+					value = Integer.parseInt(this.buffer.toString(), radix);
 				}
 				catch (NumberFormatException ignored)
 				{
-					this.error(token, "literal.integer.invalid");
+					this.error(SourcePosition.apply(this.line, startColumn, this.column), "literal.integer.invalid");
 				}
 
-				this.tokens.append(token);
+				this.tokens.appendInt(value, this.line, startColumn, this.column);
 				return;
 			}
 			case 1: // long
 			{
-				final LongToken token = new LongToken(0, this.line, startColumn, this.column);
+				long value = 0L;
 				try
 				{
-					token.setValue(Long.parseLong(this.buffer.toString(), radix));
+					value = Long.parseLong(this.buffer.toString(), radix);
 				}
 				catch (NumberFormatException ignored)
 				{
-					this.error(token, "literal.long.invalid");
+					this.error(SourcePosition.apply(this.line, startColumn, this.column), "literal.long.invalid");
 				}
 
-				this.tokens.append(token);
+				this.tokens.appendLong(value, this.line, startColumn, this.column);
 				return;
 			}
 			case 2: // float
 			{
-				final FloatToken token = new FloatToken(0, this.line, startColumn, this.column);
+				float value = 0F;
 				try
 				{
-					token.setValue(Float.parseFloat(this.buffer.toString()));
+					value = Float.parseFloat(this.buffer.toString());
 				}
 				catch (NumberFormatException ignored)
 				{
-					this.error(token, "literal.float.invalid");
+					this.error(SourcePosition.apply(this.line, startColumn, this.column), "literal.float.invalid");
 				}
 
-				this.tokens.append(token);
+				this.tokens.appendFloat(value, this.line, startColumn, this.column);
 				return;
 			}
 			case 3: // double
 			{
-				final DoubleToken token = new DoubleToken(0, this.line, startColumn, this.column);
+				double value = 0D;
 				try
 				{
 					if (radix == 16)
 					{
 						this.buffer.insert(0, "0x");
 					}
-					token.setValue(Double.parseDouble(this.buffer.toString()));
+					value = Double.parseDouble(this.buffer.toString());
 				}
 				catch (NumberFormatException ignored)
 				{
-					this.error(token, "literal.double.invalid");
+					this.error(SourcePosition.apply(this.line, startColumn, this.column), "literal.double.invalid");
 				}
 
-				this.tokens.append(token);
+				this.tokens.appendDouble(value, this.line, startColumn, this.column);
 				return;
 			}
 			}
@@ -829,11 +837,11 @@ public final class DyvilLexer extends Lexer
 				final int keyword = this.symbols.getKeywordType(id);
 				if (keyword != 0)
 				{
-					this.tokens.append(new SymbolToken(this.symbols, keyword, this.line, startColumn));
+					this.tokens.appendSymbol(this.symbols, keyword, this.line, startColumn);
 					return;
 				}
-				this.tokens.append(
-					new IdentifierToken(Name.from(id), Tokens.LETTER_IDENTIFIER, this.line, startColumn, this.column));
+				this.tokens.appendIdentifier(Name.from(id), Tokens.LETTER_IDENTIFIER, this.line, startColumn,
+				                             this.column);
 				return;
 			}
 			case MOD_DOT:
@@ -888,11 +896,11 @@ public final class DyvilLexer extends Lexer
 			final int symbol = this.symbols.getSymbolType(id);
 			if (symbol != 0)
 			{
-				this.tokens.append(new SymbolToken(this.symbols, symbol, this.line, startColumn));
+				this.tokens.appendSymbol(this.symbols, symbol, this.line, startColumn);
 				return;
 			}
-			this.tokens.append(
-				new IdentifierToken(Name.from(id), Tokens.SYMBOL_IDENTIFIER, this.line, startColumn, this.column));
+			this.tokens.appendIdentifier(Name.from(id), Tokens.SYMBOL_IDENTIFIER, this.line, startColumn,
+			                             this.column);
 			return;
 		}
 	}
@@ -2,10 +2,12 @@ package dyvilx.tools.parsing.lexer;
 
 import dyvil.source.position.SourcePosition;
 import dyvil.util.MarkerLevel;
+import dyvilx.tools.parsing.TextEdit;
 import dyvilx.tools.parsing.TokenList;
 import dyvilx.tools.parsing.marker.Marker;
 import dyvilx.tools.parsing.marker.MarkerList;
 import dyvilx.tools.parsing.token.EndToken;
+import dyvilx.tools.parsing.token.TokenBuffer;
 
 public abstract class Lexer
 {
@@ -16,6 +18,17 @@ public abstract class Lexer
 	protected int       length;
 	protected TokenList tokens;
 
+	/**
+	 * {@code true} if this lexer appends to the token list of an enclosing lexer, see {@link #useSubLexer(Lexer)}.
+	 */
+	protected boolean subLexer;
+
+	/**
+	 * The relexing state while {@link #relex(TokenList, String, String, TextEdit, TokenBuffer.SemicolonRule)} is
+	 * running.
+	 */
+	Relexer relexer;
+
 	protected StringBuilder buffer = new StringBuilder();
 
 	protected int cursor;
@@ -56,7 +69,7 @@ public abstract class Lexer
 		while (true)
 		{
 			final int currentChar = this.codePoint();
-			if (currentChar == 0)
+			if (currentChar == 0 || this.isResynchronized())
 			{
 				break;
 			}
@@ -70,7 +83,10 @@ public abstract class Lexer
 
 	protected void init(String code, int cursor, int line, int column)
 	{
-		this.tokens = new TokenList();
+		if (!this.subLexer)
+		{
+			this.tokens = new TokenList();
+		}
 		this.code = code;
 		this.length = code.length();
 		this.cursor = cursor;
@@ -81,15 +97,51 @@ public abstract class Lexer
 
 	protected void finish()
 	{
+		if (this.subLexer)
+		{
+			return;
+		}
 		this.tokens.append(new EndToken(this.cursor, this.line));
 	}
 
 	protected abstract void parseCharacter(int c);
 
+	// Incremental Lexing
+
+	/**
+	 * Updates the given token list, which this kind of lexer produced from {@code oldText}, for an edit that changed
+	 * the text to {@code newText}. Only the tokens around the edit are re-lexed, and inferred semicolons are added
+	 * between them using the given rule. The positions of all following tokens are adjusted.
+	 *
+	 * @return the index of the first token of the old buffer that was reused after the edit, or the size of the old
+	 * buffer if the text was re-lexed until the end, or {@code -1} if the list is not compact and has to be re-lexed
+	 * entirely
+	 */
+	public int relex(TokenList tokens, String oldText, String newText, TextEdit edit,
+	                 TokenBuffer.SemicolonRule semicolonRule)
+	{
+		if (!tokens.isCompact())
+		{
+			return -1;
+		}
+		return new Relexer(this, tokens).relex(oldText, newText, edit, semicolonRule);
+	}
+
+	/**
+	 * @return {@code true} if the top-level tokenization loop should stop, because the remaining tokens can be reused
+	 * from a previous token list
+	 */
+	protected boolean isResynchronized()
+	{
+		return this.relexer != null && this.relexer.isResynchronized(this.tokens);
+	}
+
 	protected void useSubLexer(Lexer sublexer)
 	{
-		final TokenList tokens = sublexer.tokenize(this.code, this.cursor, this.line, this.column);
-		this.tokens.addAll(tokens);
+		// the sub-lexer appends directly to our token list, which keeps it compact
+		sublexer.tokens = this.tokens;
+		sublexer.subLexer = true;
+		sublexer.tokenize(this.code, this.cursor, this.line, this.column);
 
 		this.cursor = sublexer.getCursor();
 		this.line = sublexer.getLine();
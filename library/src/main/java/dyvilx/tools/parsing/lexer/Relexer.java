@@ -0,0 +1,304 @@
+package dyvilx.tools.parsing.lexer;
+
+import dyvilx.tools.parsing.TextEdit;
+import dyvilx.tools.parsing.TokenList;
+import dyvilx.tools.parsing.token.EndToken;
+import dyvilx.tools.parsing.token.IToken;
+import dyvilx.tools.parsing.token.TokenBuffer;
+
+/**
+ * Updates a compact token list for a {@link TextEdit} by re-lexing only the damaged region.
+ * <p>
+ * Lexing starts at the last top-level token that ends before the edit, because all tokens before it are unaffected.
+ * After the edit, each token produced by the lexer is compared with the token at the corresponding position in the old
+ * list. As soon as both are equal and neither is part of a string interpolation, the lexer is in the same state as it
+ * was in the old text, so the rest of the old tokens is reused with adjusted positions.
+ */
+final class Relexer
+{
+	// =============== Fields ===============
+
+	private final Lexer       lexer;
+	private final TokenList   tokens;
+	private final TokenBuffer oldTokens;
+
+	// --------------- Edit Positions ---------------
+
+	private int oldEndLine;
+	private int oldEndColumn;
+	private int newEndLine;
+	private int newEndColumn;
+
+	// --------------- Resynchronization ---------------
+
+	private int oldIndex;
+	private int oldDepth;
+	private int checkedSize;
+	private int newDepth;
+
+	private int resyncNew = -1;
+	private int resyncOld = -1;
+
+	// --------------- Temporary ---------------
+
+	private int line;
+	private int column;
+
+	// =============== Constructors ===============
+
+	Relexer(Lexer lexer, TokenList tokens)
+	{
+		this.lexer = lexer;
+		this.tokens = tokens;
+		this.oldTokens = tokens.getBuffer();
+	}
+
+	// =============== Static Methods ===============
+
+	private static boolean isBefore(int line1, int column1, int line2, int column2)
+	{
+		return line1 < line2 || line1 == line2 && column1 < column2;
+	}
+
+	private static int depthDelta(int type)
+	{
+		switch (type)
+		{
+		case Tokens.STRING_START:
+			return 1;
+		case Tokens.STRING_END:
+			return -1;
+		}
+		return 0;
+	}
+
+	// =============== Methods ===============
+
+	/**
+	 * Computes the line and column of the given offset, counting lines and columns the same way as {@link Lexer}.
+	 */
+	private void locate(String text, int offset)
+	{
+		int line = 1;
+		int column = 0;
+		for (int i = 0; i < offset; )
+		{
+			switch (text.charAt(i))
+			{
+			case '\r':
+				i += i + 1 < text.length() && text.charAt(i + 1) == '\n' ? 2 : 1;
+				line++;
+				column = 0;
+				continue;
+			case '\n':
+				i++;
+				line++;
+				column = 0;
+				continue;
+			}
+
+			i += Character.charCount(text.codePointAt(i));
+			column++;
+		}
+
+		this.line = line;
+		this.column = column;
+	}
+
+	/**
+	 * Computes the offset of the given line and column; the inverse of {@link #locate(String, int)}.
+	 */
+	private static int offset(String text, int line, int column)
+	{
+		final int length = text.length();
+		int i = 0;
+		for (int currentLine = 1; currentLine < line && i < length; i++)
+		{
+			switch (text.charAt(i))
+			{
+			case '\r':
+				if (i + 1 < length && text.charAt(i + 1) == '\n')
+				{
+					i++;
+				}
+				// Fallthrough
+			case '\n':
+				currentLine++;
+			}
+		}
+
+		for (; column > 0 && i < length; column--)
+		{
+			i += Character.charCount(text.codePointAt(i));
+		}
+		return i;
+	}
+
+	int relex(String oldText, String newText, TextEdit edit, TokenBuffer.SemicolonRule semicolonRule)
+	{
+		final TokenBuffer oldTokens = this.oldTokens;
+		final int oldSize = oldTokens.size();
+
+		this.locate(oldText, edit.getOffset());
+		final int startLine = this.line;
+		final int startColumn = this.column;
+
+		this.locate(oldText, edit.getOldEnd());
+		this.oldEndLine = this.line;
+		this.oldEndColumn = this.column;
+
+		this.locate(newText, edit.getNewEnd());
+		this.newEndLine = this.line;
+		this.newEndColumn = this.column;
+
+		// find the last top-level token that ends before the edit
+
+		int start = -1;
+		for (int i = 0, depth = 0; i < oldSize; i++)
+		{
+			if (!isBefore(oldTokens.startLine(i), oldTokens.startColumn(i), startLine, startColumn))
+			{
+				break;
+			}
+			if (depth == 0 && !oldTokens.isInferred(i) //
+			    && isBefore(oldTokens.endLine(i), oldTokens.endColumn(i), startLine, startColumn))
+			{
+				start = i;
+			}
+			depth += depthDelta(oldTokens.type(i));
+		}
+
+		final int prefixSize;
+		final TokenList lexed;
+
+		this.lexer.relexer = this;
+		try
+		{
+			if (start < 0)
+			{
+				prefixSize = 0;
+				lexed = this.lexer.tokenize(newText, 0, 1, 0);
+			}
+			else
+			{
+				final int line = oldTokens.startLine(start);
+				final int column = oldTokens.startColumn(start);
+
+				prefixSize = this.oldIndex = start;
+				lexed = this.lexer.tokenize(newText, offset(newText, line, column), line, column);
+			}
+		}
+		finally
+		{
+			this.lexer.relexer = null;
+		}
+
+		final TokenBuffer lexedTokens = lexed.getBuffer();
+		final TokenBuffer result = new TokenBuffer(oldSize + lexedTokens.size() + 16);
+		result.addRange(oldTokens, 0, prefixSize);
+
+		if (this.resyncOld < 0)
+		{
+			// lexed until the end of the text
+			result.addRange(lexedTokens, 0, lexedTokens.size(), semicolonRule);
+			this.tokens.replaceBuffer(result, lexed.endToken());
+			return oldSize;
+		}
+
+		result.addRange(lexedTokens, 0, this.resyncNew + 1, semicolonRule);
+		result.addRange(oldTokens, this.resyncOld + 1, oldSize, this.oldEndLine, this.oldEndColumn, this.newEndLine,
+		                this.newEndColumn);
+
+		final IToken oldEnd = this.tokens.endToken();
+		final IToken newEnd;
+		if (oldEnd == null)
+		{
+			newEnd = null;
+		}
+		else
+		{
+			final int index = oldEnd.startColumn() + newText.length() - oldText.length();
+			newEnd = new EndToken(index, oldEnd.startLine() + this.newEndLine - this.oldEndLine);
+		}
+		this.tokens.replaceBuffer(result, newEnd);
+		return this.resyncOld + 1;
+	}
+
+	/**
+	 * Called by the lexer after each top-level step.
+	 *
+	 * @return {@code true} if the last token produced by the lexer matches a token of the old list, such that the rest
+	 * of the old list can be reused
+	 */
+	boolean isResynchronized(TokenList lexed)
+	{
+		final TokenBuffer lexedTokens = lexed.getBuffer();
+		final int size = lexedTokens.size();
+		if (size == this.checkedSize)
+		{
+			return false;
+		}
+
+		for (int i = this.checkedSize; i < size; i++)
+		{
+			this.newDepth += depthDelta(lexedTokens.type(i));
+		}
+		this.checkedSize = size;
+
+		final int index = size - 1;
+		final int line = lexedTokens.startLine(index);
+		final int column = lexedTokens.startColumn(index);
+		if (this.newDepth != 0 || isBefore(line, column, this.newEndLine, this.newEndColumn))
+		{
+			return false;
+		}
+
+		// the position of the token in the old text
+		final int oldLine;
+		final int oldColumn;
+		if (line == this.newEndLine)
+		{
+			oldLine = this.oldEndLine;
+			oldColumn = column - this.newEndColumn + this.oldEndColumn;
+		}
+		else
+		{
+			oldLine = line - this.newEndLine + this.oldEndLine;
+			oldColumn = column;
+		}
+
+		final TokenBuffer oldTokens = this.oldTokens;
+		final int oldSize = oldTokens.size();
+		while (this.oldIndex < oldSize && (oldTokens.isInferred(this.oldIndex) || isBefore(
+			oldTokens.startLine(this.oldIndex), oldTokens.startColumn(this.oldIndex), oldLine, oldColumn)))
+		{
+			this.oldDepth += depthDelta(oldTokens.type(this.oldIndex));
+			this.oldIndex++;
+		}
+
+		final int oldIndex = this.oldIndex;
+		if (oldIndex >= oldSize || oldTokens.startLine(oldIndex) != oldLine
+		    || oldTokens.startColumn(oldIndex) != oldColumn
+		    || this.oldDepth + depthDelta(oldTokens.type(oldIndex)) != 0
+		    || !lexedTokens.isSameToken(index, oldTokens, oldIndex))
+		{
+			return false;
+		}
+
+		// the end positions have to match too, e.g. for multi-line strings
+		final int oldEndLine = oldTokens.endLine(oldIndex);
+		final int endLine = lexedTokens.endLine(index);
+		final int endColumn = lexedTokens.endColumn(index);
+		if (oldEndLine == this.oldEndLine ?
+			    endLine != this.newEndLine
+			    || endColumn != oldTokens.endColumn(oldIndex) - this.oldEndColumn + this.newEndColumn :
+			    endLine != oldEndLine - this.oldEndLine + this.newEndLine || endColumn != oldTokens.endColumn(oldIndex))
+		{
+			return false;
+		}
+
+		this.resyncNew = index;
+		this.resyncOld = oldIndex;
+		return true;
+	}
+}
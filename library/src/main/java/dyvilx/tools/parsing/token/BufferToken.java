@@ -0,0 +1,181 @@
+package dyvilx.tools.parsing.token;
+
+import dyvil.annotation.internal.NonNull;
+import dyvil.lang.Name;
+import dyvilx.tools.parsing.lexer.Symbols;
+import dyvilx.tools.parsing.lexer.Tokens;
+
+/**
+ * A view of a single token in a {@link TokenBuffer}. Unless {@link #setPrev(IToken)} or {@link #setNext(IToken)} was
+ * called, the neighbours of a view are the views of the adjacent tokens in the buffer.
+ */
+public final class BufferToken implements IToken
+{
+	private final TokenBuffer buffer;
+	private final int         index;
+
+	private IToken prev;
+	private IToken next;
+
+	BufferToken(TokenBuffer buffer, int index)
+	{
+		this.buffer = buffer;
+		this.index = index;
+	}
+
+	public int index()
+	{
+		return this.index;
+	}
+
+	@Override
+	public int type()
+	{
+		return this.buffer.types[this.index];
+	}
+
+	@Override
+	public Name nameValue()
+	{
+		return this.buffer.kinds[this.index] == TokenBuffer.IDENTIFIER ? (Name) this.buffer.values[this.index] : null;
+	}
+
+	@Override
+	public String stringValue()
+	{
+		final Object value = this.buffer.values[this.index];
+		switch (this.buffer.kinds[this.index])
+		{
+		case TokenBuffer.SYMBOL:
+			return ((Symbols) value).toString(this.type());
+		case TokenBuffer.IDENTIFIER:
+			return ((Name) value).unqualified;
+		case TokenBuffer.STRING:
+			return (String) value;
+		}
+		return null;
+	}
+
+	@Override
+	public int intValue()
+	{
+		return this.buffer.kinds[this.index] == TokenBuffer.INT ? (int) this.buffer.numbers[this.index] : 0;
+	}
+
+	@Override
+	public long longValue()
+	{
+		return this.buffer.kinds[this.index] == TokenBuffer.LONG ? this.buffer.numbers[this.index] : 0L;
+	}
+
+	@Override
+	public float floatValue()
+	{
+		return this.buffer.kinds[this.index] == TokenBuffer.FLOAT ?
+			       Float.intBitsToFloat((int) this.buffer.numbers[this.index]) :
+			       0F;
+	}
+
+	@Override
+	public double doubleValue()
+	{
+		return this.buffer.kinds[this.index] == TokenBuffer.DOUBLE ?
+			       Double.longBitsToDouble(this.buffer.numbers[this.index]) :
+			       0D;
+	}
+
+	@Override
+	public boolean isInferred()
+	{
+		return this.buffer.isInferred(this.index);
+	}
+
+	@Override
+	public int startColumn()
+	{
+		return this.buffer.startColumns[this.index];
+	}
+
+	@Override
+	public int endColumn()
+	{
+		return this.buffer.endColumns[this.index];
+	}
+
+	@Override
+	public int startLine()
+	{
+		return this.buffer.startLines[this.index];
+	}
+
+	@Override
+	public int endLine()
+	{
+		return this.buffer.endLines[this.index];
+	}
+
+	@Override
+	public void setPrev(@NonNull IToken prev)
+	{
+		this.prev = prev;
+	}
+
+	@Override
+	public void setNext(@NonNull IToken next)
+	{
+		this.next = next;
+	}
+
+	@Override
+	public @NonNull IToken prev()
+	{
+		if (this.prev != null)
+		{
+			return this.prev;
+		}
+		return this.index > 0 ? this.buffer.get(this.index - 1) : null;
+	}
+
+	@Override
+	public @NonNull IToken next()
+	{
+		if (this.next != null)
+		{
+			return this.next;
+		}
+		return this.index + 1 < this.buffer.size ? this.buffer.get(this.index + 1) : null;
+	}
+
+	@Override
+	public String toString()
+	{
+		switch (this.buffer.kinds[this.index])
+		{
+		case TokenBuffer.SYMBOL:
+			return "Symbol '" + this.stringValue() + '\'';
+		case TokenBuffer.IDENTIFIER:
+			return "Identifier '" + this.nameValue() + "\'";
+		case TokenBuffer.STRING:
+			final String s = '"' + this.stringValue() + '"';
+			switch (this.type())
+			{
+			case Tokens.STRING_START:
+				return "String Start " + s;
+			case Tokens.STRING_PART:
+				return "String Part " + s;
+			case Tokens.STRING_END:
+				return "String End " + s;
+			}
+			return "String " + s;
+		case TokenBuffer.INT:
+			return "Integer " + this.intValue();
+		case TokenBuffer.LONG:
+			return "Long " + this.longValue();
+		case TokenBuffer.FLOAT:
+			return "Float " + this.floatValue();
+		case TokenBuffer.DOUBLE:
+			return "Double " + this.doubleValue();
+		}
+		return "Inferred Semicolon";
+	}
+}
@@ -0,0 +1,427 @@
+package dyvilx.tools.parsing.token;
+
+import dyvil.lang.Name;
+import dyvilx.tools.parsing.lexer.BaseSymbols;
+import dyvilx.tools.parsing.lexer.Symbols;
+import dyvilx.tools.parsing.lexer.Tokens;
+
+import java.util.Arrays;
+
+/**
+ * A packed token stream. Instead of one object per token, the type, position and value of each token are stored in
+ * parallel arrays. {@link IToken} instances are only created when a token is accessed with {@link #get(int)}; these
+ * views navigate the stream by index, unless they are re-linked with {@link IToken#setNext(IToken)} or {@link
+ * IToken#setPrev(IToken)}.
+ * <p>
+ * Identifier tokens refer to the interned {@link Name} instances, and symbol and keyword tokens refer to the {@link
+ * Symbols} that produced them.
+ */
+public final class TokenBuffer
+{
+	// =============== Constants ===============
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	// --------------- Token Kinds ---------------
+
+	static final byte SYMBOL             = 0;
+	static final byte IDENTIFIER         = 1;
+	static final byte STRING             = 2;
+	static final byte INT                = 3;
+	static final byte LONG               = 4;
+	static final byte FLOAT              = 5;
+	static final byte DOUBLE             = 6;
+	static final byte INFERRED_SEMICOLON = 7;
+
+	// =============== Classes ===============
+
+	@FunctionalInterface
+	public interface SemicolonRule
+	{
+		/**
+		 * @return {@code true} if a semicolon should be inferred between the tokens at the given indices
+		 */
+		boolean inferSemicolon(TokenBuffer buffer, int prev, int next);
+	}
+
+	// =============== Fields ===============
+
+	byte[]   kinds;
+	int[]    types;
+	int[]    startLines;
+	int[]    endLines;
+	int[]    startColumns;
+	int[]    endColumns;
+	long[]   numbers; // int, long, float and double values
+	Object[] values; // Name, String or Symbols
+
+	private BufferToken[] views;
+
+	int size;
+
+	// =============== Constructors ===============
+
+	public TokenBuffer()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	public TokenBuffer(int capacity)
+	{
+		this.kinds = new byte[capacity];
+		this.types = new int[capacity];
+		this.startLines = new int[capacity];
+		this.endLines = new int[capacity];
+		this.startColumns = new int[capacity];
+		this.endColumns = new int[capacity];
+		this.numbers = new long[capacity];
+		this.values = new Object[capacity];
+	}
+
+	// =============== Properties ===============
+
+	public int size()
+	{
+		return this.size;
+	}
+
+	public int type(int index)
+	{
+		return this.types[index];
+	}
+
+	public int startLine(int index)
+	{
+		return this.startLines[index];
+	}
+
+	public int endLine(int index)
+	{
+		return this.endLines[index];
+	}
+
+	public int startColumn(int index)
+	{
+		return this.startColumns[index];
+	}
+
+	public int endColumn(int index)
+	{
+		return this.endColumns[index];
+	}
+
+	public boolean isInferred(int index)
+	{
+		return this.kinds[index] == INFERRED_SEMICOLON;
+	}
+
+	// =============== Methods ===============
+
+	// --------------- Adding Tokens ---------------
+
+	private int add(byte kind, int type, int startLine, int endLine, int startColumn, int endColumn)
+	{
+		final int index = this.size++;
+		if (index >= this.types.length)
+		{
+			this.grow(index << 1);
+		}
+
+		this.set(index, kind, type, startLine, endLine, startColumn, endColumn);
+		return index;
+	}
+
+	private void set(int index, byte kind, int type, int startLine, int endLine, int startColumn, int endColumn)
+	{
+		this.kinds[index] = kind;
+		this.types[index] = type;
+		this.startLines[index] = startLine;
+		this.endLines[index] = endLine;
+		this.startColumns[index] = startColumn;
+		this.endColumns[index] = endColumn;
+	}
+
+	private void grow(int capacity)
+	{
+		this.kinds = Arrays.copyOf(this.kinds, capacity);
+		this.types = Arrays.copyOf(this.types, capacity);
+		this.startLines = Arrays.copyOf(this.startLines, capacity);
+		this.endLines = Arrays.copyOf(this.endLines, capacity);
+		this.startColumns = Arrays.copyOf(this.startColumns, capacity);
+		this.endColumns = Arrays.copyOf(this.endColumns, capacity);
+		this.numbers = Arrays.copyOf(this.numbers, capacity);
+		this.values = Arrays.copyOf(this.values, capacity);
+
+		if (this.views != null)
+		{
+			this.views = Arrays.copyOf(this.views, capacity);
+		}
+	}
+
+	public int addSymbol(Symbols symbols, int type, int line, int startColumn)
+	{
+		final int index = this.add(SYMBOL, type, line, line, startColumn, startColumn + symbols.getLength(type));
+		this.values[index] = symbols;
+		return index;
+	}
+
+	public int addIdentifier(Name name, int type, int line, int startColumn, int endColumn)
+	{
+		return this.addIdentifier(name, type, line, line, startColumn, endColumn);
+	}
+
+	public int addIdentifier(Name name, int type, int startLine, int endLine, int startColumn, int endColumn)
+	{
+		final int index = this.add(IDENTIFIER, type, startLine, endLine, startColumn, endColumn);
+		this.values[index] = name;
+		return index;
+	}
+
+	public int addString(String value, int type, int startLine, int endLine, int startColumn, int endColumn)
+	{
+		final int index = this.add(STRING, type, startLine, endLine, startColumn, endColumn);
+		this.values[index] = value;
+		return index;
+	}
+
+	public int addInt(int value, int line, int startColumn, int endColumn)
+	{
+		final int index = this.add(INT, Tokens.INT, line, line, startColumn, endColumn);
+		this.numbers[index] = value;
+		return index;
+	}
+
+	public int addLong(long value, int line, int startColumn, int endColumn)
+	{
+		final int index = this.add(LONG, Tokens.LONG, line, line, startColumn, endColumn);
+		this.numbers[index] = value;
+		return index;
+	}
+
+	public int addFloat(float value, int line, int startColumn, int endColumn)
+	{
+		final int index = this.add(FLOAT, Tokens.FLOAT, line, line, startColumn, endColumn);
+		this.numbers[index] = Float.floatToRawIntBits(value);
+		return index;
+	}
+
+	public int addDouble(double value, int line, int startColumn, int endColumn)
+	{
+		final int index = this.add(DOUBLE, Tokens.DOUBLE, line, line, startColumn, endColumn);
+		this.numbers[index] = Double.doubleToRawLongBits(value);
+		return index;
+	}
+
+	public int addInferredSemicolon(int line, int column)
+	{
+		return this.add(INFERRED_SEMICOLON, BaseSymbols.SEMICOLON, line, line, column, column + 1);
+	}
+
+	private int copy(TokenBuffer source, int index)
+	{
+		final int target = this.add(source.kinds[index], source.types[index], source.startLines[index],
+		                            source.endLines[index], source.startColumns[index], source.endColumns[index]);
+		this.numbers[target] = source.numbers[index];
+		this.values[target] = source.values[index];
+		return target;
+	}
+
+	/**
+	 * Appends the tokens in the range {@code [from, to)} of the given buffer.
+	 */
+	public void addRange(TokenBuffer source, int from, int to)
+	{
+		for (int i = from; i < to; i++)
+		{
+			this.copy(source, i);
+		}
+	}
+
+	/**
+	 * Appends the tokens in the range {@code [from, to)} of the given buffer, inserting inferred semicolons between
+	 * adjacent tokens in that range as determined by the given rule.
+	 */
+	public void addRange(TokenBuffer source, int from, int to, SemicolonRule rule)
+	{
+		for (int i = from; i < to; i++)
+		{
+			if (i > from && rule.inferSemicolon(source, i - 1, i))
+			{
+				this.addInferredSemicolon(source.endLines[i - 1], source.endColumns[i - 1]);
+			}
+			this.copy(source, i);
+		}
+	}
+
+	/**
+	 * Appends the tokens in the range {@code [from, to)} of the given buffer, which must all start at or after the
+	 * position {@code (line, column)}, and moves them such that this position becomes {@code (newLine, newColumn)}.
+	 * Positions in the same line are moved horizontally, all following lines are moved vertically.
+	 */
+	public void addRange(TokenBuffer source, int from, int to, int line, int column, int newLine, int newColumn)
+	{
+		final int lineDelta = newLine - line;
+		final int columnDelta = newColumn - column;
+
+		for (int i = from; i < to; i++)
+		{
+			final int target = this.copy(source, i);
+			if (this.startLines[target] == line)
+			{
+				this.startColumns[target] += columnDelta;
+			}
+			if (this.endLines[target] == line)
+			{
+				this.endColumns[target] += columnDelta;
+			}
+			this.startLines[target] += lineDelta;
+			this.endLines[target] += lineDelta;
+		}
+	}
+
+	// --------------- Comparison ---------------
+
+	/**
+	 * @return {@code true} if the token at the given index has the same kind, type and value as the token at {@code
+	 * otherIndex} in the {@code other} buffer, regardless of their positions
+	 */
+	public boolean isSameToken(int index, TokenBuffer other, int otherIndex)
+	{
+		if (this.kinds[index] != other.kinds[otherIndex] || this.types[index] != other.types[otherIndex]
+		    || this.numbers[index] != other.numbers[otherIndex])
+		{
+			return false;
+		}
+
+		final Object value = this.values[index];
+		return value == null ? other.values[otherIndex] == null : value.equals(other.values[otherIndex]);
+	}
+
+	/**
+	 * Returns the index of the token that starts at the given position. Inferred semicolons are never returned.
+	 *
+	 * @return the token index, or {@code -1} if no token starts at the given position
+	 */
+	public int indexOf(int line, int column)
+	{
+		int low = 0;
+		int high = this.size;
+		while (low < high)
+		{
+			final int mid = (low + high) >>> 1;
+			final int midLine = this.startLines[mid];
+			if (midLine < line || midLine == line && this.startColumns[mid] < column)
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid;
+			}
+		}
+
+		for (; low < this.size && this.startLines[low] == line && this.startColumns[low] == column; low++)
+		{
+			if (this.kinds[low] != INFERRED_SEMICOLON)
+			{
+				return low;
+			}
+		}
+		return -1;
+	}
+
+	// --------------- Semicolon Inference ---------------
+
+	/**
+	 * Inserts inferred semicolons between all pairs of adjacent tokens for which the given rule returns {@code true}.
+	 * The tokens are moved in place, so the arrays of this buffer are reallocated at most once and no token views are
+	 * created. Since the indices of the moved tokens change, all views created before are discarded.
+	 *
+	 * @param rule
+	 * 	the semicolon inference rule
+	 *
+	 * @return the number of inferred semicolons
+	 */
+	public int inferSemicolons(SemicolonRule rule)
+	{
+		final int size = this.size;
+
+		int count = 0;
+		for (int i = 1; i < size; i++)
+		{
+			if (rule.inferSemicolon(this, i - 1, i))
+			{
+				count++;
+			}
+		}
+		if (count == 0)
+		{
+			return 0;
+		}
+
+		final int newSize = size + count;
+		if (newSize > this.types.length)
+		{
+			this.grow(newSize);
+		}
+		this.views = null;
+		this.size = newSize;
+
+		// move the tokens back to front, such that the rule only ever sees tokens that were not moved yet
+		int target = newSize - 1;
+		for (int i = size - 1, remaining = count; remaining > 0; i--)
+		{
+			final boolean infer = rule.inferSemicolon(this, i - 1, i);
+			this.move(i, target--);
+			if (infer)
+			{
+				final int line = this.endLines[i - 1];
+				final int column = this.endColumns[i - 1];
+				this.set(target, INFERRED_SEMICOLON, BaseSymbols.SEMICOLON, line, line, column, column + 1);
+				this.numbers[target] = 0L;
+				this.values[target] = null;
+				target--;
+				remaining--;
+			}
+		}
+		return count;
+	}
+
+	private void move(int from, int to)
+	{
+		this.kinds[to] = this.kinds[from];
+		this.types[to] = this.types[from];
+		this.startLines[to] = this.startLines[from];
+		this.endLines[to] = this.endLines[from];
+		this.startColumns[to] = this.startColumns[from];
+		this.endColumns[to] = this.endColumns[from];
+		this.numbers[to] = this.numbers[from];
+		this.values[to] = this.values[from];
+	}
+
+	// --------------- Views ---------------
+
+	/**
+	 * Returns the token view for the given index, creating it on first access. Repeated calls with the same index
+	 * return the same instance.
+	 *
+	 * @param index
+	 * 	the token index
+	 *
+	 * @return the token view
+	 */
+	public IToken get(int index)
+	{
+		if (this.views == null)
+		{
+			this.views = new BufferToken[this.types.length];
+		}
+
+		final BufferToken view = this.views[index];
+		if (view != null)
+		{
+			return view;
+		}
+		return this.views[index] = new BufferToken(this, index);
+	}
+}
@@ -31,6 +31,7 @@ public class CollectionTests
 		this.testList(EmptyList.apply());
 		this.testList(SingletonList.apply("abc"));
 		this.testList(this.testListBuilder(dyvil.collection.immutable.ArrayList.builder()));
+		this.testList(this.testListBuilder(dyvil.collection.immutable.TrieList.builder()));
 
 		this.testList(dyvil.collection.mutable.ArrayList.apply(SAMPLES));
 		this.testList(dyvil.collection.mutable.LinkedList.apply(SAMPLES));
@@ -39,7 +40,21 @@ public class CollectionTests
 	@Test
 	public void testMaps()
 	{
+		this.testMap(this.testMapBuilder(dyvil.collection.immutable.HashMap.builder()));
 
+		final ImmutableMap immutableMap = this.testMapBuilder(dyvil.collection.immutable.HashMap.builder());
+		this.testMap(dyvil.collection.mutable.HashMap.from(immutableMap));
+
+		// concurrent maps do not permit null keys or values
+		final MutableMap concurrentMap = new dyvil.collection.concurrent.ConcurrentHashMap();
+		for (Object s : SAMPLES)
+		{
+			if (s != null)
+			{
+				concurrentMap.put(s, s);
+			}
+		}
+		this.testMap(concurrentMap);
 	}
 
 	public void testQueryable(Queryable queryable)
@@ -111,7 +126,14 @@ public class CollectionTests
 
 	public void testMap(Map map)
 	{
-
+		Map copy = map.copy();
+		assertEquals("Map must be equal to it's copy: " + copy.getClass(), map, copy);
+		assertEquals("Map must be equal to it's mutable copy: " + map.getClass(), map, map.mutableCopy());
+
+		Map newMap = map.withEntry("newKey", "newValue");
+		assertEquals("withEntry does not work correctly: " + map.getClass(), map.size() + 1, newMap.size());
+		assertFalse("withEntry must not modify the original map: " + map.getClass(), map.containsKey("newKey"));
+		assertEquals("keyRemoved does not work correctly: " + map.getClass(), map, newMap.keyRemoved("newKey"));
 	}
 
 	public ImmutableList testListBuilder(ImmutableList.Builder builder)
@@ -149,7 +171,15 @@ public class CollectionTests
 
 	public ImmutableMap testMapBuilder(ImmutableMap.Builder builder)
 	{
-		return builder.build();
+		for (Object s : SAMPLES)
+		{
+			builder.put(s, s);
+		}
+
+		ImmutableMap map = builder.build();
+		assertFalse("Builder map must not be null", map == null);
+		assertEquals("Builder map has incorrect size", map.size(), SAMPLES.length);
+		return map;
 	}
 
 	public void testBuilderError(ImmutableCollection.Builder builder)
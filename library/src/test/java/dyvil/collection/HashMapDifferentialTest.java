@@ -0,0 +1,269 @@
+package dyvil.collection;
+
+import dyvil.collection.mutable.HashMap;
+import dyvil.collection.mutable.HashSet;
+import dyvil.ref.InvalidReferenceException;
+import dyvil.ref.ObjectRef;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs random operations on the open-addressing {@link HashMap} and {@link HashSet} and on their {@code java.util}
+ * counterparts, and checks that both always agree. Keys are drawn from a small range and many of them have colliding
+ * hash codes, so clusters form and removals have to shift the following keys backwards.
+ */
+public class HashMapDifferentialTest
+{
+	private static final int OPERATIONS = 50000;
+	private static final int KEY_RANGE  = 200;
+
+	/**
+	 * A key whose hash code only depends on {@code id / collisions}, so that groups of keys collide.
+	 */
+	private static final class Key
+	{
+		final int id;
+		final int collisions;
+
+		Key(int id, int collisions)
+		{
+			this.id = id;
+			this.collisions = collisions;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			return obj instanceof Key && ((Key) obj).id == this.id;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return this.id / this.collisions;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "Key(" + this.id + ")";
+		}
+	}
+
+	private static Key randomKey(Random random, int collisions)
+	{
+		final int id = random.nextInt(KEY_RANGE + 1) - 1;
+		return id < 0 ? null : new Key(id, collisions);
+	}
+
+	private static void assertSameMappings(java.util.Map<Key, Integer> expected, HashMap<Key, Integer> actual,
+		int collisions)
+	{
+		assertEquals(expected.size(), actual.size());
+		assertEquals(expected.containsKey(null), actual.containsKey(null));
+		assertEquals(expected.get(null), actual.get(null));
+		for (int id = 0; id < KEY_RANGE; id++)
+		{
+			final Key key = new Key(id, collisions);
+			assertEquals(key.toString(), expected.containsKey(key), actual.containsKey(key));
+			assertEquals(key.toString(), expected.get(key), actual.get(key));
+		}
+
+		final java.util.Map<Key, Integer> iterated = new java.util.HashMap<>();
+		for (Entry<Key, Integer> entry : actual)
+		{
+			assertFalse("duplicate " + entry, iterated.containsKey(entry.getKey()));
+			iterated.put(entry.getKey(), entry.getValue());
+		}
+		assertEquals(expected, iterated);
+	}
+
+	// =============== Map ===============
+
+	@Test
+	public void randomMapOperations()
+	{
+		for (int collisions : new int[] { 1, 8, KEY_RANGE })
+		{
+			this.randomMapOperations(new Random(collisions), collisions);
+		}
+	}
+
+	private void randomMapOperations(Random random, int collisions)
+	{
+		final java.util.Map<Key, Integer> expected = new java.util.HashMap<>();
+		final HashMap<Key, Integer> actual = new HashMap<>(2);
+
+		for (int i = 0; i < OPERATIONS; i++)
+		{
+			final Key key = randomKey(random, collisions);
+			final Integer value = random.nextInt(8) == 0 ? null : i;
+
+			switch (random.nextInt(8))
+			{
+			case 0:
+			case 1:
+				assertEquals(expected.remove(key), actual.removeKey(key));
+				break;
+			case 2:
+				// unlike java.util.Map, putIfAbsent returns the value in the map after the call, and keeps null values
+				if (!expected.containsKey(key))
+				{
+					expected.put(key, value);
+				}
+				assertEquals(expected.get(key), actual.putIfAbsent(key, value));
+				break;
+			case 3:
+				assertEquals(expected.replace(key, value), actual.replace(key, value));
+				break;
+			case 4:
+				final Integer oldValue = expected.get(key);
+				assertEquals(expected.replace(key, oldValue, value), actual.replace(key, oldValue, value));
+				break;
+			case 5:
+				assertEquals(expected.containsKey(key), actual.containsKey(key));
+				assertEquals(expected.get(key), actual.get(key));
+				break;
+			default:
+				assertEquals(expected.put(key, value), actual.put(key, value));
+			}
+
+			assertEquals(expected.size(), actual.size());
+			if (i % 1000 == 0)
+			{
+				assertSameMappings(expected, actual, collisions);
+			}
+		}
+
+		assertSameMappings(expected, actual, collisions);
+	}
+
+	@Test
+	public void iteratorRemove()
+	{
+		for (int collisions : new int[] { 1, 8, KEY_RANGE })
+		{
+			final Random random = new Random(collisions);
+			final java.util.Map<Key, Integer> expected = new java.util.HashMap<>();
+			final HashMap<Key, Integer> actual = new HashMap<>();
+
+			for (int round = 0; round < 20; round++)
+			{
+				for (int i = 0; i < KEY_RANGE / 2; i++)
+				{
+					final Key key = randomKey(random, collisions);
+					assertEquals(expected.put(key, i), actual.put(key, i));
+				}
+
+				final java.util.Map<Key, Integer> original = new java.util.HashMap<>(expected);
+				final java.util.Map<Key, Integer> visited = new java.util.HashMap<>();
+				for (Iterator<Entry<Key, Integer>> iterator = actual.iterator(); iterator.hasNext(); )
+				{
+					final Entry<Key, Integer> entry = iterator.next();
+					final Key key = entry.getKey();
+					assertFalse("duplicate " + entry, visited.containsKey(key));
+					visited.put(key, entry.getValue());
+
+					if (random.nextBoolean())
+					{
+						iterator.remove();
+						expected.remove(key);
+					}
+				}
+
+				// every mapping was visited exactly once, although removals shifted the following mappings
+				assertEquals(original, visited);
+				assertSameMappings(expected, actual, collisions);
+			}
+		}
+	}
+
+	@Test
+	public void detachedEntry()
+	{
+		final HashMap<Key, Integer> map = new HashMap<>();
+		final Key key = new Key(1, 1);
+		map.put(key, 1);
+
+		final Entry<Key, Integer> entry = map.getEntry(key);
+		final ObjectRef<Integer> ref = map.subscript_$amp(key);
+		assertNotNull(entry);
+
+		// the views follow the mapping when it is moved by a rehash
+		for (int id = 2; id < 100; id++)
+		{
+			map.put(new Key(id, 1), id);
+		}
+		ref.set(2);
+		assertEquals(Integer.valueOf(2), entry.getValue());
+
+		map.removeKey(key);
+		assertNull(entry.getValue());
+		try
+		{
+			ref.set(3);
+			fail("set on a removed entry");
+		}
+		catch (InvalidReferenceException ignored)
+		{
+		}
+
+		// a detached view never adds the mapping again
+		assertFalse(map.containsKey(key));
+		assertEquals(98, map.size());
+		assertNull(map.subscript_$amp(key));
+	}
+
+	// =============== Set ===============
+
+	@Test
+	public void randomSetOperations()
+	{
+		for (int collisions : new int[] { 1, 8, KEY_RANGE })
+		{
+			final Random random = new Random(collisions);
+			final java.util.Set<Key> expected = new java.util.HashSet<>();
+			final HashSet<Key> actual = new HashSet<>(2);
+
+			for (int i = 0; i < OPERATIONS; i++)
+			{
+				final Key key = randomKey(random, collisions);
+				if (random.nextInt(5) < 2)
+				{
+					assertEquals(expected.remove(key), actual.remove(key));
+				}
+				else
+				{
+					assertEquals(expected.add(key), actual.add(key));
+				}
+				assertEquals(expected.size(), actual.size());
+			}
+
+			final java.util.Set<Key> visited = new java.util.HashSet<>();
+			for (Iterator<Key> iterator = actual.iterator(); iterator.hasNext(); )
+			{
+				final Key key = iterator.next();
+				assertTrue("duplicate " + key, visited.add(key));
+				if (random.nextBoolean())
+				{
+					iterator.remove();
+					expected.remove(key);
+				}
+			}
+
+			assertEquals(expected.size(), actual.size());
+			for (Key key : expected)
+			{
+				assertTrue(actual.contains(key));
+			}
+			for (Key key : actual)
+			{
+				assertTrue(expected.contains(key));
+			}
+		}
+	}
+}
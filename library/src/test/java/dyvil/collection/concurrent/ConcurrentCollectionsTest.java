@@ -0,0 +1,385 @@
+package dyvil.collection.concurrent;
+
+import dyvil.collection.Entry;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the queue, deque, map and set semantics of the collections in {@code dyvil.collection.concurrent}, and runs
+ * operations that are documented to be atomic from several threads at once.
+ */
+public class ConcurrentCollectionsTest
+{
+	private static final int THREADS    = 8;
+	private static final int OPERATIONS = 10000;
+
+	@FunctionalInterface
+	private interface Task
+	{
+		void run(int thread) throws Exception;
+	}
+
+	/**
+	 * Runs the task on {@link #THREADS} threads that start at the same time, and rethrows the first failure.
+	 */
+	private static void runConcurrently(Task task) throws Throwable
+	{
+		final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+		final Throwable[] errors = new Throwable[THREADS];
+		final Thread[] threads = new Thread[THREADS];
+
+		for (int i = 0; i < THREADS; i++)
+		{
+			final int index = i;
+			threads[i] = new Thread(() -> {
+				try
+				{
+					barrier.await();
+					task.run(index);
+				}
+				catch (Throwable ex)
+				{
+					errors[index] = ex;
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+		for (Throwable error : errors)
+		{
+			if (error != null)
+			{
+				throw error;
+			}
+		}
+	}
+
+	// --------------- Queues ---------------
+
+	@Test
+	public void queueIsFifo()
+	{
+		final ConcurrentLinkedQueue<Integer> queue = ConcurrentLinkedQueue.apply(1, 2, 3);
+		queue.offer(4);
+
+		assertEquals(4, queue.size());
+		assertEquals((Integer) 1, queue.element());
+		assertTrue(queue.contains(3));
+		assertEquals("[1, 2, 3, 4]", queue.toString());
+
+		queue.map(i -> i * 10);
+		queue.filter(i -> i != 20);
+		assertEquals("[10, 30, 40]", queue.toString());
+
+		assertEquals((Integer) 10, queue.remove());
+		assertEquals((Integer) 30, queue.remove());
+		assertEquals((Integer) 40, queue.remove());
+		assertNull(queue.remove());
+		assertNull(queue.element());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void queueRejectsNull()
+	{
+		ConcurrentLinkedQueue.<String>apply().offer(null);
+	}
+
+	@Test
+	public void dequeQueueAndStackOperations()
+	{
+		final ConcurrentLinkedDeque<Integer> deque = ConcurrentLinkedDeque.apply(2, 3);
+
+		// queue operations add at the end and remove from the front
+		deque.offer(4);
+		assertEquals((Integer) 2, deque.element());
+
+		// stack operations add and remove at the front
+		deque.push(1);
+		assertEquals((Integer) 1, deque.peek());
+		assertEquals((Integer) 3, deque.peek(2));
+		assertNull(deque.peek(4));
+		assertEquals("[1, 2, 3, 4]", deque.toString());
+
+		final Iterator<Integer> reverse = deque.reverseIterator();
+		assertEquals((Integer) 4, reverse.next());
+		assertEquals((Integer) 3, reverse.next());
+
+		assertEquals((Integer) 1, deque.getFirst());
+		assertEquals((Integer) 4, deque.getLast());
+		assertEquals((Integer) 1, deque.pop());
+		assertEquals((Integer) 4, deque.removeLast());
+		assertEquals((Integer) 2, deque.remove());
+		assertEquals((Integer) 3, deque.removeFirst());
+		assertNull(deque.removeFirst());
+		assertNull(deque.removeLast());
+		assertNull(deque.getFirst());
+	}
+
+	@Test
+	public void dequeRemovesOccurrences()
+	{
+		final ConcurrentLinkedDeque<String> deque = ConcurrentLinkedDeque.apply("a", "b", "a", "c", "a");
+
+		assertTrue(deque.removeFirst("a"));
+		assertEquals("[b, a, c, a]", deque.toString());
+		assertTrue(deque.removeLast("a"));
+		assertEquals("[b, a, c]", deque.toString());
+		assertFalse(deque.removeLast("d"));
+		assertFalse(deque.removeFirst(null));
+
+		final ConcurrentLinkedDeque<String> copy = deque.copy();
+		copy.addFirst("z");
+		assertEquals("[b, a, c]", deque.toString());
+		assertEquals("[z, b, a, c]", copy.toString());
+	}
+
+	@Test
+	public void queueDeliversEveryElementOnce() throws Throwable
+	{
+		final ConcurrentLinkedDeque<Integer> deque = ConcurrentLinkedDeque.apply();
+		final ConcurrentHashSet<Integer> received = ConcurrentHashSet.apply();
+		final AtomicInteger duplicates = new AtomicInteger();
+
+		// half of the threads produce at either end, the other half consume from either end
+		runConcurrently(thread -> {
+			if (thread % 2 == 0)
+			{
+				for (int i = 0; i < OPERATIONS; i++)
+				{
+					final int element = thread * OPERATIONS + i;
+					if (i % 2 == 0)
+					{
+						deque.offer(element);
+					}
+					else
+					{
+						deque.push(element);
+					}
+				}
+				return;
+			}
+
+			for (int i = 0; i < OPERATIONS; i++)
+			{
+				final Integer element = thread % 4 == 1 ? deque.remove() : deque.removeLast();
+				if (element != null && !received.add(element))
+				{
+					duplicates.incrementAndGet();
+				}
+			}
+		});
+
+		for (Integer element = deque.remove(); element != null; element = deque.remove())
+		{
+			if (!received.add(element))
+			{
+				duplicates.incrementAndGet();
+			}
+		}
+
+		assertEquals(0, duplicates.get());
+		assertEquals(THREADS / 2 * OPERATIONS, received.size());
+	}
+
+	// --------------- Maps ---------------
+
+	@Test
+	public void treeMapIsSorted()
+	{
+		final ConcurrentTreeMap<String, Integer> map = ConcurrentTreeMap.apply();
+		map.put("c", 3);
+		map.put("a", 1);
+		map.put("b", 2);
+
+		assertEquals("a", map.firstKey());
+		assertEquals("c", map.lastKey());
+		assertEquals("[a, b, c]", keys(map.keyIterator()));
+		assertNull(map.get(null));
+		assertFalse(map.containsKey(null));
+
+		final ConcurrentTreeMap<String, Integer> reversed = new ConcurrentTreeMap<>(map, Collections.reverseOrder());
+		assertEquals("[c, b, a]", keys(reversed.keyIterator()));
+		assertEquals("[c, b, a]", keys(reversed.copy().keyIterator()));
+		assertEquals(map, reversed);
+
+		map.filter((key, value) -> value != 2);
+		assertEquals("[a, c]", keys(map.keyIterator()));
+		assertNull(ConcurrentTreeMap.apply().firstKey());
+	}
+
+	private static String keys(Iterator<String> iterator)
+	{
+		final StringBuilder builder = new StringBuilder("[");
+		while (iterator.hasNext())
+		{
+			builder.append(iterator.next());
+			if (iterator.hasNext())
+			{
+				builder.append(", ");
+			}
+		}
+		return builder.append(']').toString();
+	}
+
+	@Test
+	public void iteratorEntriesAreSnapshots()
+	{
+		final ConcurrentHashMap<String, Integer> map = ConcurrentHashMap.apply();
+		map.put("a", 1);
+
+		final Iterator<Entry<String, Integer>> iterator = map.iterator();
+		final Entry<String, Integer> entry = iterator.next();
+		final Entry<String, Integer> getEntry = map.getEntry("a");
+
+		// the entries keep the value they were created with, and cannot write through to the map
+		map.put("a", 2);
+		assertEquals((Integer) 1, entry.getValue());
+		assertEquals((Integer) 1, getEntry.getValue());
+		assertEquals((Integer) 2, map.get("a"));
+
+		// removing through the iterator still removes the current mapping of the key
+		iterator.remove();
+		assertFalse(map.containsKey("a"));
+		assertEquals("a", entry.getKey());
+	}
+
+	@Test
+	public void iterationIsWeaklyConsistent()
+	{
+		final ConcurrentHashMap<Integer, Integer> map = ConcurrentHashMap.apply();
+		for (int i = 0; i < 100; i++)
+		{
+			map.put(i, i);
+		}
+
+		// modifying the map while iterating never throws ConcurrentModificationException
+		int count = 0;
+		for (Iterator<Entry<Integer, Integer>> iterator = map.iterator(); iterator.hasNext(); count++)
+		{
+			final Entry<Integer, Integer> entry = iterator.next();
+			map.removeKey(entry.getKey() + 1);
+			map.put(entry.getKey() + 1000, 0);
+		}
+		assertTrue(count > 0);
+	}
+
+	@Test
+	public void computeIfAbsentAppliesOnce() throws Throwable
+	{
+		final ConcurrentHashMap<Integer, Integer> map = ConcurrentHashMap.apply();
+		final AtomicInteger computations = new AtomicInteger();
+
+		runConcurrently(thread -> {
+			for (int i = 0; i < 1000; i++)
+			{
+				final int value = map.computeIfAbsent(i, key -> {
+					computations.incrementAndGet();
+					return key * 2;
+				});
+				assertEquals(i * 2, value);
+			}
+		});
+
+		assertEquals(1000, computations.get());
+		assertEquals(1000, map.size());
+	}
+
+	@Test
+	public void replaceIsAtomic() throws Throwable
+	{
+		final ConcurrentTreeMap<String, Integer> map = ConcurrentTreeMap.apply();
+		map.put("counter", 0);
+		assertEquals((Integer) 0, map.putIfAbsent("counter", 5));
+
+		// increment the counter with compare-and-set loops
+		runConcurrently(thread -> {
+			for (int i = 0; i < OPERATIONS; i++)
+			{
+				Integer value;
+				do
+				{
+					value = map.get("counter");
+				}
+				while (!map.replace("counter", value, value + 1));
+			}
+		});
+
+		assertEquals((Integer) (THREADS * OPERATIONS), map.get("counter"));
+		assertFalse(map.replace("counter", null, 0));
+		assertFalse(map.remove("counter", 0));
+		assertTrue(map.remove("counter", THREADS * OPERATIONS));
+	}
+
+	// --------------- Sets ---------------
+
+	@Test
+	public void hashSet()
+	{
+		final ConcurrentHashSet<String> set = ConcurrentHashSet.apply("a", "b");
+
+		assertTrue(set.add("c"));
+		assertFalse(set.add("a"));
+		assertTrue(set.contains("b"));
+		assertTrue(set.remove("b"));
+		assertFalse(set.remove("b"));
+		assertFalse(set.remove("missing"));
+		assertEquals(2, set.size());
+	}
+
+	@Test
+	public void treeSetIsSorted()
+	{
+		final ConcurrentTreeSet<String> set = ConcurrentTreeSet.apply("c", "a", "b");
+		assertEquals("[a, b, c]", keys(set.iterator()));
+
+		final ConcurrentTreeSet<String> reversed = new ConcurrentTreeSet<>(Comparator.reverseOrder());
+		reversed.add("a");
+		reversed.add("c");
+		reversed.add("b");
+		assertEquals("[c, b, a]", keys(reversed.iterator()));
+
+		assertTrue(set.remove("b"));
+		assertFalse(set.remove("missing"));
+		assertEquals("[a, c]", keys(set.iterator()));
+	}
+
+	@Test
+	public void setsAddEachElementOnce() throws Throwable
+	{
+		final ConcurrentHashSet<Integer> hashSet = ConcurrentHashSet.apply();
+		final ConcurrentTreeSet<Integer> treeSet = ConcurrentTreeSet.apply();
+		final AtomicInteger hashAdded = new AtomicInteger();
+		final AtomicInteger treeAdded = new AtomicInteger();
+
+		// all threads add the same elements, but every element is only added by one of them
+		runConcurrently(thread -> {
+			for (int i = 0; i < OPERATIONS; i++)
+			{
+				if (hashSet.add(i))
+				{
+					hashAdded.incrementAndGet();
+				}
+				if (treeSet.add(i))
+				{
+					treeAdded.incrementAndGet();
+				}
+			}
+		});
+
+		assertEquals(OPERATIONS, hashAdded.get());
+		assertEquals(OPERATIONS, treeAdded.get());
+		assertEquals(OPERATIONS, hashSet.size());
+		assertEquals(OPERATIONS, treeSet.size());
+	}
+}
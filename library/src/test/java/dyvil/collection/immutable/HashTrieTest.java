@@ -0,0 +1,343 @@
+package dyvil.collection.immutable;
+
+import dyvil.collection.Entry;
+import dyvil.collection.ImmutableMap;
+import dyvil.collection.ImmutableSet;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Builds immutable {@link HashMap}s and {@link HashSet}s with builders, bulk constructors and bulk operations, which
+ * update the hash trie in place with a transient edit, and checks the results against their {@code java.util}
+ * counterparts. After every transient and persistent update, the maps and sets it started from must be unchanged.
+ */
+public class HashTrieTest
+{
+	private static final int OPERATIONS = 5000;
+	private static final int KEY_RANGE  = 2000;
+
+	/**
+	 * Tries with many leaves per node, a few full hash collisions per group, and a single collision node.
+	 */
+	private static final int[] COLLISIONS = { 1, 3, KEY_RANGE };
+
+	/**
+	 * A key whose hash code only depends on {@code id / collisions}, so that groups of keys collide.
+	 */
+	private static final class Key
+	{
+		final int id;
+		final int collisions;
+
+		Key(int id, int collisions)
+		{
+			this.id = id;
+			this.collisions = collisions;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			return obj instanceof Key && ((Key) obj).id == this.id;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return this.id / this.collisions;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "Key(" + this.id + ")";
+		}
+	}
+
+	private static Key randomKey(Random random, int collisions)
+	{
+		final int id = random.nextInt(KEY_RANGE + 1) - 1;
+		return id < 0 ? null : new Key(id, collisions);
+	}
+
+	private static java.util.Map<Key, Integer> randomMappings(Random random, int collisions, int count)
+	{
+		final java.util.Map<Key, Integer> mappings = new java.util.HashMap<>();
+		for (int i = 0; i < count; i++)
+		{
+			// small values are cached, so some puts store the same value again
+			mappings.put(randomKey(random, collisions), random.nextInt(200));
+		}
+		return mappings;
+	}
+
+	private static HashMap<Key, Integer> build(java.util.Map<Key, Integer> mappings)
+	{
+		final HashMap.Builder<Key, Integer> builder = HashMap.builder();
+		for (java.util.Map.Entry<Key, Integer> entry : mappings.entrySet())
+		{
+			builder.put(entry.getKey(), entry.getValue());
+		}
+		return builder.build();
+	}
+
+	private static dyvil.collection.mutable.HashMap<Key, Integer> mutable(java.util.Map<Key, Integer> mappings)
+	{
+		final dyvil.collection.mutable.HashMap<Key, Integer> map = dyvil.collection.mutable.HashMap.apply();
+		for (java.util.Map.Entry<Key, Integer> entry : mappings.entrySet())
+		{
+			map.put(entry.getKey(), entry.getValue());
+		}
+		return map;
+	}
+
+	private static void assertSameMappings(String message, java.util.Map<Key, Integer> expected,
+		ImmutableMap<Key, Integer> actual, int collisions)
+	{
+		assertEquals(message, expected.size(), actual.size());
+		assertEquals(message, expected.containsKey(null), actual.containsKey(null));
+		assertEquals(message, expected.get(null), actual.get(null));
+		for (int id = 0; id < KEY_RANGE; id++)
+		{
+			final Key key = new Key(id, collisions);
+			assertEquals(message + " " + key, expected.containsKey(key), actual.containsKey(key));
+			assertEquals(message + " " + key, expected.get(key), actual.get(key));
+		}
+
+		final java.util.Map<Key, Integer> iterated = new java.util.HashMap<>();
+		for (Entry<Key, Integer> entry : actual)
+		{
+			assertFalse(message + " duplicate " + entry, iterated.containsKey(entry.getKey()));
+			iterated.put(entry.getKey(), entry.getValue());
+		}
+		assertEquals(message, expected, iterated);
+	}
+
+	private static void assertSameElements(String message, java.util.Set<Key> expected, ImmutableSet<Key> actual,
+		int collisions)
+	{
+		assertEquals(message, expected.size(), actual.size());
+		assertEquals(message, expected.contains(null), actual.contains(null));
+		for (int id = 0; id < KEY_RANGE; id++)
+		{
+			final Key key = new Key(id, collisions);
+			assertEquals(message + " " + key, expected.contains(key), actual.contains(key));
+		}
+
+		final java.util.Set<Key> iterated = new java.util.HashSet<>();
+		for (Key key : actual)
+		{
+			assertTrue(message + " duplicate " + key, iterated.add(key));
+		}
+		assertEquals(message, expected, iterated);
+	}
+
+	// =============== Map ===============
+
+	@Test
+	public void builderAndBulkConstructors()
+	{
+		for (int collisions : COLLISIONS)
+		{
+			final Random random = new Random(collisions);
+			final java.util.Map<Key, Integer> expected = new java.util.HashMap<>();
+			final HashMap.Builder<Key, Integer> builder = HashMap.builder();
+			ImmutableMap<Key, Integer> persistent = HashMap.apply();
+
+			for (int i = 0; i < OPERATIONS; i++)
+			{
+				final Key key = randomKey(random, collisions);
+				final Integer value = random.nextInt(200);
+				expected.put(key, value);
+				builder.put(key, value);
+				persistent = persistent.withEntry(key, value);
+			}
+
+			final HashMap<Key, Integer> built = builder.build();
+			assertSameMappings("builder", expected, built, collisions);
+			assertSameMappings("withEntry", expected, persistent, collisions);
+			assertSameMappings("from mutable map", expected, HashMap.from(mutable(expected)), collisions);
+			assertSameMappings("from immutable map", expected, new HashMap<>((ImmutableMap<Key, Integer>) built),
+			                   collisions);
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void builderCannotBeReused()
+	{
+		final HashMap.Builder<String, Integer> builder = HashMap.builder();
+		builder.put("a", 1);
+		final HashMap<String, Integer> map = builder.build();
+
+		try
+		{
+			builder.put("b", 2);
+		}
+		finally
+		{
+			assertEquals(1, map.size());
+			assertFalse(map.containsKey("b"));
+		}
+	}
+
+	@Test
+	public void transientEditsKeepTheOriginal()
+	{
+		for (int collisions : COLLISIONS)
+		{
+			final Random random = new Random(collisions);
+			final java.util.Map<Key, Integer> expected = randomMappings(random, collisions, KEY_RANGE / 2);
+			final java.util.Map<Key, Integer> otherMappings = randomMappings(random, collisions, KEY_RANGE / 2);
+			final dyvil.collection.mutable.HashMap<Key, Integer> other = mutable(otherMappings);
+
+			// the trie of the built map is owned by the edit of the builder
+			final HashMap<Key, Integer> original = build(expected);
+
+			final java.util.Map<Key, Integer> union = new java.util.HashMap<>(expected);
+			union.putAll(otherMappings);
+			final ImmutableMap<Key, Integer> unionMap = original.union(other);
+			assertSameMappings("union", union, unionMap, collisions);
+			assertSameMappings("original after union", expected, original, collisions);
+
+			// the trie of the union is owned by its own edit, which must not be reused by further operations
+			final java.util.Map<Key, Integer> moreMappings = randomMappings(random, collisions, KEY_RANGE / 4);
+			final java.util.Map<Key, Integer> union2 = new java.util.HashMap<>(union);
+			union2.putAll(moreMappings);
+			assertSameMappings("second union", union2, unionMap.union(mutable(moreMappings)), collisions);
+			assertSameMappings("union after second union", union, unionMap, collisions);
+
+			final Key key = randomKey(random, collisions);
+			final java.util.Map<Key, Integer> withEntry = new java.util.HashMap<>(union);
+			withEntry.put(key, -1);
+			assertSameMappings("withEntry on union", withEntry, unionMap.withEntry(key, -1), collisions);
+			withEntry.remove(key);
+			assertSameMappings("keyRemoved on union", withEntry, unionMap.withEntry(key, -1).keyRemoved(key),
+			                   collisions);
+			assertSameMappings("union after withEntry", union, unionMap, collisions);
+
+			final java.util.Map<Key, Integer> filtered = new java.util.HashMap<>(expected);
+			filtered.values().removeIf(value -> value % 2 != 0);
+			assertSameMappings("filtered", filtered, original.filtered((k, v) -> v % 2 == 0), collisions);
+			assertSame(original, original.filtered((k, v) -> true));
+
+			final java.util.Map<Key, Integer> difference = new java.util.HashMap<>(expected);
+			difference.entrySet().removeIf(entry -> otherMappings.containsKey(entry.getKey()) && java.util.Objects
+				.equals(otherMappings.get(entry.getKey()), entry.getValue()));
+			assertSameMappings("difference", difference, original.difference(other), collisions);
+
+			final java.util.Map<Key, Integer> keyDifference = new java.util.HashMap<>(expected);
+			keyDifference.keySet().removeAll(otherMappings.keySet());
+			assertSameMappings("keyDifference", keyDifference,
+			                   original.keyDifference(dyvil.collection.mutable.ArrayList.from(otherMappings.keySet())),
+			                   collisions);
+
+			assertSameMappings("original", expected, original, collisions);
+		}
+	}
+
+	@Test
+	public void removalsCollapseTheTrie()
+	{
+		for (int collisions : COLLISIONS)
+		{
+			final Random random = new Random(collisions);
+			final java.util.Map<Key, Integer> expected = randomMappings(random, collisions, KEY_RANGE * 2);
+			final HashMap<Key, Integer> original = build(expected);
+
+			final java.util.List<Key> keys = new java.util.ArrayList<>(expected.keySet());
+			java.util.Collections.shuffle(keys, random);
+
+			// remove half of the keys persistently, and the other half with a transient edit
+			final java.util.Map<Key, Integer> remaining = new java.util.HashMap<>(expected);
+			ImmutableMap<Key, Integer> map = original;
+			final int half = keys.size() / 2;
+			for (int i = 0; i < half; i++)
+			{
+				final Key key = keys.get(i);
+				remaining.remove(key);
+				map = map.keyRemoved(key);
+				assertEquals(remaining.size(), map.size());
+			}
+			assertSameMappings("keyRemoved", remaining, map, collisions);
+
+			final ImmutableMap<Key, Integer> empty = map.keyDifference(
+				dyvil.collection.mutable.ArrayList.from(keys.subList(half, keys.size())));
+			assertSameMappings("keyDifference", new java.util.HashMap<>(), empty, collisions);
+			assertTrue(empty.isEmpty());
+			assertFalse(empty.iterator().hasNext());
+
+			// the emptied trie can be filled again
+			final Key key = new Key(0, collisions);
+			assertSameMappings("withEntry on empty", java.util.Collections.singletonMap(key, 1), empty.withEntry(key, 1),
+			                   collisions);
+
+			assertSameMappings("map after keyDifference", remaining, map, collisions);
+			assertSameMappings("original", expected, original, collisions);
+		}
+	}
+
+	// =============== Set ===============
+
+	@Test
+	public void setOperations()
+	{
+		for (int collisions : COLLISIONS)
+		{
+			final Random random = new Random(collisions);
+			final java.util.Set<Key> expected = randomMappings(random, collisions, KEY_RANGE / 2).keySet();
+			final java.util.Set<Key> other = randomMappings(random, collisions, KEY_RANGE / 2).keySet();
+			final dyvil.collection.mutable.HashSet<Key> otherSet = dyvil.collection.mutable.HashSet.from(other);
+
+			final HashSet.Builder<Key> builder = HashSet.builder();
+			ImmutableSet<Key> persistent = HashSet.apply();
+			for (Key key : expected)
+			{
+				builder.add(key);
+				builder.add(key);
+				persistent = persistent.added(key);
+			}
+
+			final ImmutableSet<Key> original = builder.build();
+			assertSameElements("builder", expected, original, collisions);
+			assertSameElements("added", expected, persistent, collisions);
+			assertSameElements("from array", expected, HashSet.from(expected.toArray(new Key[0])), collisions);
+
+			final java.util.Set<Key> union = new java.util.HashSet<>(expected);
+			union.addAll(other);
+			final ImmutableSet<Key> unionSet = original.union(otherSet);
+			assertSameElements("union", union, unionSet, collisions);
+
+			final java.util.Set<Key> difference = new java.util.HashSet<>(expected);
+			difference.removeAll(other);
+			assertSameElements("difference", difference, original.difference(otherSet), collisions);
+
+			final java.util.Set<Key> intersection = new java.util.HashSet<>(expected);
+			intersection.retainAll(other);
+			assertSameElements("intersection", intersection, original.intersection(otherSet), collisions);
+
+			final java.util.Set<Key> symmetricDifference = new java.util.HashSet<>(union);
+			symmetricDifference.removeAll(intersection);
+			final ImmutableSet<Key> symmetricDifferenceSet = original.symmetricDifference(otherSet);
+			assertSameElements("symmetricDifference", symmetricDifference, symmetricDifferenceSet, collisions);
+
+			// persistent updates of a transiently built set
+			final java.util.Set<Key> removed = new java.util.HashSet<>(union);
+			for (Key key : other)
+			{
+				removed.remove(key);
+			}
+			ImmutableSet<Key> removedSet = unionSet;
+			for (Key key : other)
+			{
+				removedSet = removedSet.removed(key);
+			}
+			assertSameElements("removed", removed, removedSet, collisions);
+
+			assertSameElements("union after removed", union, unionSet, collisions);
+			assertSameElements("original", expected, original, collisions);
+		}
+	}
+}
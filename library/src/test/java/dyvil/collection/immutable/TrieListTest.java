@@ -0,0 +1,224 @@
+package dyvil.collection.immutable;
+
+import dyvil.collection.ImmutableList;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Builds {@link TrieList}s whose sizes straddle the node boundaries of the trie and checks slices, updates, appends
+ * and removals against {@code java.util.ArrayList}. With 32 elements per node, the root overflows when the 1057th and
+ * the 32801st element are added, and trie paths are pushed every 32 elements.
+ */
+public class TrieListTest
+{
+	private static final int[] SIZES = {
+		0, 1, 31, 32, 33, 64, 65, 1024, 1025, 1055, 1056, 1057, 1088, 1089, 2000, 32768, 32769, 32799, 32800, 32801,
+		32832, 32833, 40000
+	};
+
+	private static final int OPERATIONS = 20;
+
+	private static TrieList<Integer> build(int size)
+	{
+		final TrieList.Builder<Integer> builder = TrieList.builder();
+		for (int i = 0; i < size; i++)
+		{
+			builder.add(i);
+		}
+		return builder.build();
+	}
+
+	private static java.util.List<Integer> range(int size)
+	{
+		final java.util.List<Integer> list = new java.util.ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+		{
+			list.add(i);
+		}
+		return list;
+	}
+
+	private static void assertSameElements(String message, java.util.List<Integer> expected,
+		ImmutableList<Integer> actual)
+	{
+		final int size = expected.size();
+		assertEquals(message, size, actual.size());
+		for (int i = 0; i < size; i++)
+		{
+			assertEquals(message, expected.get(i), actual.get(i));
+		}
+
+		int index = 0;
+		for (Integer element : actual)
+		{
+			assertEquals(message, expected.get(index++), element);
+		}
+		assertEquals(message, size, index);
+
+		for (Iterator<Integer> iterator = actual.reverseIterator(); iterator.hasNext(); )
+		{
+			assertEquals(message, expected.get(--index), iterator.next());
+		}
+		assertEquals(message, 0, index);
+	}
+
+	@Test
+	public void builderAndAdded()
+	{
+		for (int size : SIZES)
+		{
+			TrieList<Integer> added = TrieList.apply();
+			for (int i = 0; i < size; i++)
+			{
+				added = added.added(i);
+			}
+
+			final java.util.List<Integer> expected = range(size);
+			assertSameElements("builder " + size, expected, build(size));
+			assertSameElements("added " + size, expected, added);
+			assertEquals(expected, build(size).toJava());
+		}
+	}
+
+	@Test
+	public void unionAcrossRootOverflow()
+	{
+		final java.util.List<Integer> expected = range(40000);
+		TrieList<Integer> list = TrieList.apply();
+		for (int size = 0; size < 40000; )
+		{
+			// add chunks that end right before, at and after the root overflows
+			final int next = Math.min(40000, size + (size < 2000 ? 523 : 10007));
+			list = list.union(dyvil.collection.mutable.ArrayList.from(expected.subList(size, next)));
+			assertSameElements("union " + next, expected.subList(0, next), list);
+			size = next;
+		}
+	}
+
+	@Test
+	public void updated()
+	{
+		final Random random = new Random(1);
+		for (int size : SIZES)
+		{
+			if (size == 0)
+			{
+				continue;
+			}
+
+			final TrieList<Integer> list = build(size);
+			final java.util.List<Integer> expected = range(size);
+			for (int i = 0; i < OPERATIONS; i++)
+			{
+				// alternate between elements in trie leaves and in the tail
+				final int index = i % 2 == 0 ? random.nextInt(size) : size - 1 - random.nextInt(Math.min(size, 32));
+				final java.util.List<Integer> updatedExpected = new java.util.ArrayList<>(expected);
+				updatedExpected.set(index, -1);
+
+				assertSameElements("updated " + size + " at " + index, updatedExpected, list.updated(index, -1));
+			}
+
+			// the original list shares all unchanged nodes, but is never modified
+			assertSameElements("original " + size, expected, list);
+		}
+	}
+
+	@Test
+	public void subList()
+	{
+		final Random random = new Random(2);
+		for (int size : SIZES)
+		{
+			if (size == 0)
+			{
+				continue;
+			}
+
+			final TrieList<Integer> list = build(size);
+			final java.util.List<Integer> expected = range(size);
+			for (int i = 0; i < OPERATIONS; i++)
+			{
+				final int start = random.nextInt(size);
+				final int length = 1 + random.nextInt(size - start);
+				final java.util.List<Integer> subExpected = expected.subList(start, start + length);
+				final String message = "subList " + size + " [" + start + ", " + (start + length) + ")";
+
+				final TrieList<Integer> subList = (TrieList<Integer>) list.subList(start, length);
+				assertSameElements(message, subExpected, subList);
+
+				// updates, appends and nested slices on the truncated trie
+				final int index = random.nextInt(length);
+				final java.util.List<Integer> updatedExpected = new java.util.ArrayList<>(subExpected);
+				updatedExpected.set(index, -1);
+				assertSameElements(message + " updated at " + index, updatedExpected, subList.updated(index, -1));
+
+				final java.util.List<Integer> addedExpected = new java.util.ArrayList<>(subExpected);
+				TrieList<Integer> added = subList;
+				for (int j = random.nextInt(100); j > 0; j--)
+				{
+					added = added.added(-j);
+					addedExpected.add(-j);
+				}
+				assertSameElements(message + " added", addedExpected, added);
+
+				final int nestedStart = random.nextInt(length);
+				final int nestedLength = 1 + random.nextInt(length - nestedStart);
+				assertSameElements(message + " nested", subExpected.subList(nestedStart, nestedStart + nestedLength),
+				                   subList.subList(nestedStart, nestedLength));
+
+				assertSameElements(message + " original", subExpected, subList);
+			}
+			assertSameElements("original " + size, expected, list);
+		}
+	}
+
+	@Test
+	public void subListOverCopyThreshold()
+	{
+		final TrieList<Integer> list = build(32801);
+		final java.util.List<Integer> expected = range(32801);
+
+		// sub lists of up to 32 elements are copied, longer ones share the trie
+		for (int start : new int[] { 0, 1, 31, 32, 1023, 1024, 1055, 1056, 32767, 32768 })
+		{
+			for (int length : new int[] { 32, 33, 64, 65, 1025 })
+			{
+				if (start + length <= 32801)
+				{
+					assertSameElements("subList [" + start + ", " + (start + length) + ")",
+					                   expected.subList(start, start + length), list.subList(start, length));
+				}
+			}
+		}
+
+		// the whole list is returned as is, and a suffix shares the tail of the original list
+		assertSame(list, list.subList(0, 32801));
+		assertSameElements("suffix", expected.subList(1000, 32801), list.subList(1000, 31801));
+	}
+
+	@Test
+	public void removed()
+	{
+		for (int size : SIZES)
+		{
+			final TrieList<Integer> list = build(size);
+			for (int element : new int[] { 0, 31, 32, 1023, 1024, 1055, 1056, 32767, 32768, 32800, size - 1 })
+			{
+				if (element < 0 || element >= size)
+				{
+					continue;
+				}
+
+				final java.util.List<Integer> expected = range(size);
+				expected.remove((Integer) element);
+				assertSameElements("removed " + element + " from " + size, expected, list.removed((Integer) element));
+			}
+
+			assertSame(list, list.removed(-1));
+		}
+	}
+}
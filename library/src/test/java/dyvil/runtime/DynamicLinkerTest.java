@@ -0,0 +1,175 @@
+package dyvil.runtime;
+
+import org.junit.Test;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.*;
+import java.util.concurrent.CyclicBarrier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Invokes call sites linked by the {@link DynamicLinker} with more receiver classes than the inline cache holds, and
+ * checks the depth limit, the switch to megamorphic dispatch and the counters of the call site.
+ */
+public class DynamicLinkerTest
+{
+	private static final MethodType SIZE_TYPE = MethodType.methodType(int.class, Object.class);
+
+	/**
+	 * Receivers of {@link #MAX_DEPTH} + 1 different classes with a public {@code size()} method.
+	 */
+	private static final Object[] RECEIVERS = {
+		new ArrayList<>(Arrays.asList(1)), new LinkedList<>(Arrays.asList(1, 2)), new ArrayDeque<>(Arrays.asList(1)),
+		new Vector<>(Arrays.asList(1, 2)), new HashSet<>(Arrays.asList(1)), new TreeSet<>(Arrays.asList(1, 2)),
+		new LinkedHashSet<>(Arrays.asList(1)), new HashMap<>(Collections.singletonMap(1, 2)),
+		new TreeMap<>(Collections.singletonMap(1, 2)),
+	};
+
+	private static final int MAX_DEPTH = RECEIVERS.length - 1;
+
+	private static DynamicLinker.InliningCacheCallSite linkSize()
+	{
+		return (DynamicLinker.InliningCacheCallSite) DynamicLinker.linkMethod(MethodHandles.lookup(), "size",
+		                                                                      SIZE_TYPE);
+	}
+
+	private static int invoke(MethodHandle invoker, Object receiver) throws Throwable
+	{
+		return (int) invoker.invokeExact(receiver);
+	}
+
+	private static int expectedSize(Object receiver)
+	{
+		return receiver instanceof Map ? ((Map<?, ?>) receiver).size() : ((Collection<?>) receiver).size();
+	}
+
+	@Test
+	public void depthLimitAndMegamorphicTransition() throws Throwable
+	{
+		assertEquals("the receivers must exceed the default depth", MAX_DEPTH, DynamicLinker.MAX_DEPTH);
+
+		final long totalRelinks = DynamicLinker.getTotalRelinks();
+		final long totalTransitions = DynamicLinker.getTotalMegamorphicTransitions();
+
+		final DynamicLinker.InliningCacheCallSite callSite = linkSize();
+		final MethodHandle invoker = callSite.dynamicInvoker();
+
+		for (int i = 0; i < MAX_DEPTH; i++)
+		{
+			final Object receiver = RECEIVERS[i];
+			assertEquals(expectedSize(receiver), invoke(invoker, receiver));
+			assertEquals(i + 1, callSite.getDepth());
+			assertEquals(i + 1, callSite.getRelinks());
+			assertFalse(callSite.isMegamorphic());
+		}
+
+		// receivers of linked classes hit their guards
+		for (int i = 0; i < MAX_DEPTH; i++)
+		{
+			assertEquals(expectedSize(RECEIVERS[i]), invoke(invoker, RECEIVERS[i]));
+		}
+		assertEquals(MAX_DEPTH, callSite.getDepth());
+		assertEquals(MAX_DEPTH, callSite.getRelinks());
+
+		// one more receiver class switches to megamorphic dispatch, without adding another guard
+		final Object last = RECEIVERS[MAX_DEPTH];
+		assertEquals(expectedSize(last), invoke(invoker, last));
+		assertTrue(callSite.isMegamorphic());
+		assertEquals(1, callSite.getMegamorphicTransitions());
+		assertEquals(MAX_DEPTH, callSite.getDepth());
+		assertEquals(MAX_DEPTH + 1, callSite.getRelinks());
+
+		// the megamorphic cache resolves every receiver class once
+		for (Object receiver : RECEIVERS)
+		{
+			assertEquals(expectedSize(receiver), invoke(invoker, receiver));
+			assertEquals(expectedSize(receiver), invoke(invoker, receiver));
+		}
+		assertEquals(2 * MAX_DEPTH + 1, callSite.getRelinks());
+		assertEquals(1, callSite.getMegamorphicTransitions());
+
+		assertTrue(DynamicLinker.getTotalRelinks() - totalRelinks >= 2 * MAX_DEPTH + 1);
+		assertTrue(DynamicLinker.getTotalMegamorphicTransitions() - totalTransitions >= 1);
+	}
+
+	@Test
+	public void concurrentMissesLinkOneGuard() throws Throwable
+	{
+		final int threads = 16;
+		final CyclicBarrier barrier = new CyclicBarrier(threads);
+		final DynamicLinker.InliningCacheCallSite callSite = linkSize();
+		final MethodHandle invoker = callSite.dynamicInvoker();
+		final Object receiver = RECEIVERS[0];
+		final Throwable[] errors = new Throwable[threads];
+
+		final Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++)
+		{
+			final int index = i;
+			workers[i] = new Thread(() -> {
+				try
+				{
+					barrier.await();
+					assertEquals(expectedSize(receiver), invoke(invoker, receiver));
+				}
+				catch (Throwable ex)
+				{
+					errors[index] = ex;
+				}
+			});
+			workers[i].start();
+		}
+		for (Thread worker : workers)
+		{
+			worker.join();
+		}
+
+		for (Throwable error : errors)
+		{
+			if (error != null)
+			{
+				throw error;
+			}
+		}
+		assertEquals(1, callSite.getDepth());
+		assertEquals(1, callSite.getRelinks());
+	}
+
+	@Test
+	public void unresolvedTargetThrowsNewExceptions() throws Throwable
+	{
+		final DynamicLinker.InliningCacheCallSite callSite = linkSize();
+		final MethodHandle invoker = callSite.dynamicInvoker();
+
+		final Throwable polymorphic = assertThrowsNoSuchMethod(invoker);
+		assertNotSame(polymorphic, assertThrowsNoSuchMethod(invoker));
+		assertEquals(0, callSite.getDepth());
+
+		for (Object receiver : RECEIVERS)
+		{
+			invoke(invoker, receiver);
+		}
+		assertTrue(callSite.isMegamorphic());
+
+		// the megamorphic cache keeps the failed resolution, but every call throws its own exception
+		final Throwable megamorphic = assertThrowsNoSuchMethod(invoker);
+		assertNotSame(megamorphic, assertThrowsNoSuchMethod(invoker));
+	}
+
+	private static Throwable assertThrowsNoSuchMethod(MethodHandle invoker) throws Throwable
+	{
+		try
+		{
+			invoke(invoker, "no size method");
+		}
+		catch (NoSuchMethodException ex)
+		{
+			return ex;
+		}
+		fail("NoSuchMethodException expected");
+		return null;
+	}
+}
@@ -0,0 +1,298 @@
+package dyvil.runtime.lambda;
+
+import dyvil.runtime.LambdaMetafactory;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+import static org.junit.Assert.*;
+
+/**
+ * Links lambda call sites through the {@link LambdaMetafactory} and checks that the generated classes invoke the
+ * implementation method directly, which call sites share a class, and the {@code toString()} of the lambda objects.
+ */
+public class AnonymousClassLMFTest
+{
+	@FunctionalInterface
+	public interface IntOp
+	{
+		int apply(int x);
+	}
+
+	@FunctionalInterface
+	public interface ToInt<T>
+	{
+		int apply(T value);
+	}
+
+	/**
+	 * A functional interface with specialized variants, like the ones the compiler generates for {@code @Specialized}
+	 * type parameters.
+	 */
+	@FunctionalInterface
+	@SuppressWarnings("unchecked")
+	public interface Fn<P, R>
+	{
+		R apply(P value);
+
+		default int apply$II(int value)
+		{
+			return (Integer) this.apply((P) (Integer) value);
+		}
+
+		default Object apply$IL(int value)
+		{
+			return this.apply((P) (Integer) value);
+		}
+	}
+
+	private static final MethodType INT_OP_TYPE = MethodType.methodType(int.class, int.class);
+
+	private static int twice(int x)
+	{
+		return x * 2;
+	}
+
+	private static int square(int x)
+	{
+		return x * x;
+	}
+
+	private static int add(int captured, int x)
+	{
+		return captured + x;
+	}
+
+	/**
+	 * Links a call site for an {@link IntOp} with the given implementation method.
+	 *
+	 * @return the factory of the call site, which takes the captured values
+	 */
+	private static MethodHandle link(MethodHandles.Lookup caller, String implName, String toString,
+		Class<?>... capturedTypes) throws Throwable
+	{
+		final MethodType invokedType = MethodType.methodType(IntOp.class, capturedTypes);
+		final MethodHandle impl = caller.findStatic(caller.lookupClass(), implName,
+		                                            INT_OP_TYPE.insertParameterTypes(0, capturedTypes));
+		return LambdaMetafactory.metafactory(caller, "apply", invokedType, INT_OP_TYPE, impl, INT_OP_TYPE, toString)
+		                        .getTarget();
+	}
+
+	private static IntOp lambda(String implName, String toString) throws Throwable
+	{
+		return (IntOp) link(MethodHandles.lookup(), implName, toString).invoke();
+	}
+
+	private static void assertInvokesDirectly(Class<?> lambdaClass)
+	{
+		for (Field field : lambdaClass.getDeclaredFields())
+		{
+			assertNotEquals(field.toString(), MethodHandle.class, field.getType());
+		}
+	}
+
+	@Test
+	public void invokesPrivateImplementationDirectly() throws Throwable
+	{
+		final IntOp lambda = lambda("twice", "twice");
+		assertEquals(42, lambda.apply(21));
+		assertInvokesDirectly(lambda.getClass());
+		assertTrue(lambda.getClass().isSynthetic());
+	}
+
+	@Test
+	public void capturesValues() throws Throwable
+	{
+		final MethodHandle factory = link(MethodHandles.lookup(), "add", "add", int.class);
+		final IntOp plus40 = (IntOp) factory.invoke(40);
+		final IntOp plus1 = (IntOp) factory.invoke(1);
+
+		assertEquals(42, plus40.apply(2));
+		assertEquals(3, plus1.apply(2));
+		assertSame(plus40.getClass(), plus1.getClass());
+		assertInvokesDirectly(plus40.getClass());
+	}
+
+	@Test
+	public void invokesInstanceMethodOfReceiver() throws Throwable
+	{
+		final MethodHandles.Lookup caller = MethodHandles.lookup();
+		final MethodType samType = MethodType.methodType(int.class, Object.class);
+		final MethodHandle impl = caller.findVirtual(String.class, "length", MethodType.methodType(int.class));
+		@SuppressWarnings("unchecked") final ToInt<String> length = (ToInt<String>) LambdaMetafactory
+			.metafactory(caller, "apply", MethodType.methodType(ToInt.class), samType, impl,
+			             MethodType.methodType(int.class, String.class)).getTarget().invoke();
+
+		assertEquals(3, length.apply("abc"));
+		assertInvokesDirectly(length.getClass());
+	}
+
+	@Test
+	public void sameShapeSharesClass() throws Throwable
+	{
+		final IntOp first = lambda("square", "square");
+		final IntOp second = lambda("square", "square");
+		assertNotSame(first, second);
+		assertSame(first.getClass(), second.getClass());
+		assertEquals(49, second.apply(7));
+
+		// the implementation method and the toString are part of the shape
+		assertNotSame(first.getClass(), lambda("twice", "square").getClass());
+		assertNotSame(first.getClass(), lambda("square", "other").getClass());
+	}
+
+	@Test
+	public void toStringIsConstant() throws Throwable
+	{
+		assertEquals("int -> int", lambda("twice", "int -> int").toString());
+
+		// without an explicit string, the interface and the method name are used
+		final MethodHandles.Lookup caller = MethodHandles.lookup();
+		final IntOp lambda = (IntOp) LambdaMetafactory
+			.metafactory(caller, "apply", MethodType.methodType(IntOp.class), INT_OP_TYPE,
+			             caller.findStatic(AnonymousClassLMFTest.class, "twice", INT_OP_TYPE), INT_OP_TYPE)
+			.getTarget().invoke();
+		assertEquals("<" + IntOp.class.getName() + "::apply>", lambda.toString());
+	}
+
+	private static String describe(int x)
+	{
+		return "#" + x;
+	}
+
+	@Test
+	public void implementsSpecializedVariant() throws Throwable
+	{
+		final MethodHandles.Lookup caller = MethodHandles.lookup();
+		final MethodType samType = MethodType.methodType(Object.class, Object.class);
+		final MethodHandle impl = caller.findStatic(caller.lookupClass(), "twice", INT_OP_TYPE);
+		@SuppressWarnings("unchecked") final Fn<Integer, Integer> lambda = (Fn<Integer, Integer>) LambdaMetafactory
+			.specialized(caller, "apply", MethodType.methodType(Fn.class), samType, impl, INT_OP_TYPE, "apply$II",
+			             INT_OP_TYPE).getTarget().invoke();
+
+		assertEquals(42, lambda.apply$II(21));
+		assertEquals((Integer) 42, lambda.apply(21));
+		assertEquals("<" + Fn.class.getName() + "::apply>", lambda.toString());
+
+		// the variant is declared by the lambda class, so it does not box through the default method
+		assertEquals(lambda.getClass(), lambda.getClass().getMethod("apply$II", int.class).getDeclaringClass());
+		assertInvokesDirectly(lambda.getClass());
+
+		// lambdas without the variant use a different class
+		final Object plain = LambdaMetafactory.metafactory(caller, "apply", MethodType.methodType(Fn.class), samType,
+		                                                   impl, INT_OP_TYPE).getTarget().invoke();
+		assertNotSame(lambda.getClass(), plain.getClass());
+		assertEquals(Fn.class, plain.getClass().getMethod("apply$II", int.class).getDeclaringClass());
+	}
+
+	@Test
+	public void specializedVariantWithReferenceType() throws Throwable
+	{
+		final MethodHandles.Lookup caller = MethodHandles.lookup();
+		final MethodType implType = MethodType.methodType(String.class, int.class);
+		final MethodHandle impl = caller.findStatic(caller.lookupClass(), "describe", implType);
+		final MethodType variantType = MethodType.methodType(Object.class, int.class);
+		@SuppressWarnings("unchecked") final Fn<Integer, String> lambda = (Fn<Integer, String>) LambdaMetafactory
+			.specialized(caller, "apply", MethodType.methodType(Fn.class),
+			             MethodType.methodType(Object.class, Object.class), impl, implType, "apply$IL", variantType)
+			.getTarget().invoke();
+
+		assertEquals("#7", lambda.getClass().getMethod("apply$IL", int.class).invoke(lambda, 7));
+		assertEquals("#8", lambda.apply(8));
+	}
+
+	@Test(expected = LambdaConversionException.class)
+	public void specializedVariantMustHaveSameParameterCount() throws Throwable
+	{
+		final MethodHandles.Lookup caller = MethodHandles.lookup();
+		LambdaMetafactory.specialized(caller, "apply", MethodType.methodType(Fn.class),
+		                              MethodType.methodType(Object.class, Object.class),
+		                              caller.findStatic(caller.lookupClass(), "twice", INT_OP_TYPE), INT_OP_TYPE,
+		                              "apply$II", MethodType.methodType(int.class));
+	}
+
+	// --------------- Class Loaders ---------------
+
+	/**
+	 * Loaded by a separate class loader in {@link #otherClassLoaderDoesNotShare()}.
+	 */
+	public static final class Caller
+	{
+		public static MethodHandles.Lookup lookup()
+		{
+			return MethodHandles.lookup();
+		}
+
+		private static int twice(int x)
+		{
+			return x * 2;
+		}
+	}
+
+	/**
+	 * Loads its own copy of {@link Caller}, and delegates all other classes to the class loader of this test.
+	 */
+	private static final class CallerLoader extends ClassLoader
+	{
+		CallerLoader()
+		{
+			super(AnonymousClassLMFTest.class.getClassLoader());
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException
+		{
+			if (!name.equals(Caller.class.getName()))
+			{
+				return super.loadClass(name, resolve);
+			}
+
+			final String resource = name.replace('.', '/') + ".class";
+			try (InputStream input = this.getParent().getResourceAsStream(resource))
+			{
+				final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				final byte[] buffer = new byte[4096];
+				for (int read; (read = input.read(buffer)) > 0; )
+				{
+					bytes.write(buffer, 0, read);
+				}
+				return this.defineClass(name, bytes.toByteArray(), 0, bytes.size());
+			}
+			catch (IOException ex)
+			{
+				throw new ClassNotFoundException(name, ex);
+			}
+		}
+	}
+
+	@Test
+	public void otherClassLoaderDoesNotShare() throws Throwable
+	{
+		final CallerLoader loader = new CallerLoader();
+		final Class<?> callerCopy = loader.loadClass(Caller.class.getName());
+		assertNotSame(Caller.class, callerCopy);
+
+		final MethodHandles.Lookup copyLookup = (MethodHandles.Lookup) callerCopy.getMethod("lookup").invoke(null);
+		final IntOp first = (IntOp) link(copyLookup, "twice", "twice").invoke();
+		final IntOp second = (IntOp) link(copyLookup, "twice", "twice").invoke();
+		final IntOp original = (IntOp) link(Caller.lookup(), "twice", "twice").invoke();
+
+		assertEquals(42, first.apply(21));
+		assertEquals(42, original.apply(21));
+
+		// the interface was loaded by another class loader, so the classes of the copy are not cached
+		assertSame(loader, first.getClass().getClassLoader());
+		assertNotSame(first.getClass(), second.getClass());
+		assertNotSame(first.getClass(), original.getClass());
+
+		// callers from the class loader of the interface still share
+		assertSame(original.getClass(), ((IntOp) link(Caller.lookup(), "twice", "twice").invoke()).getClass());
+	}
+}
@@ -52,6 +52,7 @@ public final class DyvilREPL
 		registerCommand(new DebugCommand());
 		registerCommand(new DumpCommand());
 		registerCommand(new ExitCommand());
+		registerCommand(new GCCommand());
 		registerCommand(new HelpCommand());
 		registerCommand(new JavapCommand());
 		registerCommand(new LibraryCommand());
@@ -187,7 +188,7 @@ public final class DyvilREPL
 		final MarkerList markers = this.context.getMarkers();
 		final TokenList tokens = new DyvilLexer(markers, DyvilSymbols.INSTANCE).tokenize(code);
 
-		SemicolonInference.inferSemicolons(tokens.first());
+		SemicolonInference.inferSemicolons(tokens);
 
 		this.parser.reset();
 		new ParserManager(DyvilSymbols.INSTANCE, tokens.iterator(), markers).parse(this.parser);
@@ -0,0 +1,60 @@
+package dyvilx.tools.repl.command;
+
+import dyvilx.tools.repl.DyvilREPL;
+import dyvilx.tools.repl.context.REPLClassLoader;
+import dyvilx.tools.repl.lang.I18n;
+
+import java.io.PrintStream;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+
+public class GCCommand implements ICommand
+{
+	@Override
+	public String getName()
+	{
+		return "gc";
+	}
+
+	@Override
+	public String[] getAliases()
+	{
+		return new String[] { "stats" };
+	}
+
+	@Override
+	public String getUsage()
+	{
+		return ":gc";
+	}
+
+	@Override
+	public void execute(DyvilREPL repl, String args)
+	{
+		System.gc();
+
+		final PrintStream output = repl.getOutput();
+		final REPLClassLoader classLoader = repl.getClassLoader();
+
+		output.println(I18n.get("command.gc.snippets", classLoader.getSnippetCount()));
+		output.println(I18n.get("command.gc.classes", classLoader.getLiveClassCount(),
+		                        classLoader.getDefinedClassCount(), classLoader.getRetainedClassCount()));
+
+		final ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+		output.println(I18n.get("command.gc.jvm_classes", classLoading.getLoadedClassCount(),
+		                        classLoading.getUnloadedClassCount()));
+
+		final Runtime runtime = Runtime.getRuntime();
+		output.println(I18n.get("command.gc.heap", (runtime.totalMemory() - runtime.freeMemory()) >> 10,
+		                        runtime.maxMemory() >> 10));
+
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+		{
+			if ("Metaspace".equals(pool.getName()))
+			{
+				output.println(I18n.get("command.gc.metaspace", pool.getUsage().getUsed() >> 10));
+			}
+		}
+	}
+}
@@ -2,92 +2,319 @@ package dyvilx.tools.repl.context;
 
 import dyvil.annotation.internal.NonNull;
 import dyvil.io.Files;
+import dyvil.reflect.Modifiers;
 import dyvil.reflect.ReflectUtils;
 import dyvilx.tools.compiler.ast.header.ICompilable;
+import dyvilx.tools.compiler.backend.ClassFormat;
 import dyvilx.tools.compiler.backend.classes.ClassWriter;
 import dyvilx.tools.repl.DyvilREPL;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Loads the classes generated for REPL inputs.
+ * <p>
+ * The classes of each input are defined by a separate {@link SnippetClassLoader}, so they can be unloaded as soon as
+ * they are no longer needed. This class loader is the parent of all snippet class loaders and finds the classes of
+ * other inputs by name. These classes are only referenced weakly, and are kept alive by {@linkplain #retain(Class)
+ * retained} classes that declare methods, properties or classes, and by the snippet class loaders of later inputs that
+ * refer to them.
+ * <p>
+ * The only class this class loader defines itself is the {@linkplain #VALUES_CLASS value store}. Once an input was
+ * evaluated, the values of its variables are {@linkplain #addValue(Object) moved} to the value store, and later inputs
+ * read and write them there instead of in the class of the input.
+ */
 public class REPLClassLoader extends ClassLoader
 {
+	// =============== Classes ===============
+
+	/**
+	 * Defines the classes of a single REPL input.
+	 */
+	public static final class SnippetClassLoader extends ClassLoader
+	{
+		private final REPLClassLoader replLoader;
+
+		private final Map<String, ICompilable> compilables = new HashMap<>();
+
+		SnippetClassLoader(REPLClassLoader parent)
+		{
+			super(parent);
+			this.replLoader = parent;
+		}
+
+		public void register(ICompilable compilable)
+		{
+			this.compilables.put(getClassName(compilable), compilable);
+		}
+
+		public Class<?> initialize(ICompilable compilable)
+		{
+			try
+			{
+				final String className = getClassName(compilable);
+				return this.replLoader.initialize(this.loadClass(className));
+			}
+			catch (ClassNotFoundException ignored)
+			{
+				return null;
+			}
+		}
+
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException
+		{
+			final ICompilable compilable = this.compilables.remove(name);
+			if (compilable == null)
+			{
+				return super.findClass(name);
+			}
+
+			final DyvilREPL repl = this.replLoader.repl;
+			try
+			{
+				final byte[] bytecode = ClassWriter.compile(compilable);
+				dumpClass(repl, compilable, bytecode);
+
+				final Class<?> theClass = this.defineClass(name, bytecode, 0, bytecode.length);
+				this.replLoader.classDefined(name, theClass);
+				return theClass;
+			}
+			catch (Throwable throwable)
+			{
+				throwable.printStackTrace(repl.getErrorOutput());
+				return super.findClass(name);
+			}
+		}
+	}
+
+	private static final class ClassReference extends WeakReference<Class<?>>
+	{
+		final String name;
+
+		ClassReference(String name, Class<?> theClass, ReferenceQueue<Class<?>> queue)
+		{
+			super(theClass, queue);
+			this.name = name;
+		}
+	}
+
+	// =============== Constants ===============
+
+	/**
+	 * The internal name of the value store class. Its only member is the public static field {@link #VALUES_FIELD},
+	 * which holds the values of all stored variables and is replaced with a larger array when it runs out of space.
+	 */
+	public static final String VALUES_CLASS = "replgen/REPL$Values";
+	public static final String VALUES_FIELD = "values";
+	public static final String VALUES_DESC  = "[Ljava/lang/Object;";
+
+	// =============== Fields ===============
+
 	private final DyvilREPL repl;
 
-	private Map<String, ICompilable> compilables = new HashMap<>();
+	private final Map<String, ClassReference> classes   = new HashMap<>();
+	private final ReferenceQueue<Class<?>>    collected = new ReferenceQueue<>();
+	private final List<Class<?>>              retained  = new ArrayList<>();
+
+	private final java.lang.reflect.Field valuesField;
+	private       Object[]                values = new Object[16];
+	private       int                     valueCount;
+
+	// --------------- Counters ---------------
+
+	private int snippets;
+	private int definedClasses;
+
+	// =============== Constructors ===============
 
 	public REPLClassLoader(DyvilREPL repl)
 	{
 		super(REPLClassLoader.class.getClassLoader());
 		this.repl = repl;
+		this.valuesField = this.defineValuesClass();
 	}
 
-	private static void dumpClass(DyvilREPL repl, ICompilable compilable, byte[] bytes)
+	// =============== Methods ===============
+
+	// --------------- Snippets ---------------
+
+	/**
+	 * @return a new class loader for the classes of the next REPL input
+	 */
+	public SnippetClassLoader newSnippetLoader()
 	{
-		final File dumpDir = repl.getConfig().getDumpDir();
-		if (dumpDir == null)
-		{
-			return;
-		}
+		this.snippets++;
+		return new SnippetClassLoader(this);
+	}
 
-		final String fileName = compilable.getFileName();
-		try
+	/**
+	 * Keeps the given class alive for the rest of the session, e.g. because it declares methods that later inputs may
+	 * call.
+	 */
+	public synchronized void retain(Class<?> theClass)
+	{
+		if (theClass != null)
 		{
-			Files.writeData(new File(dumpDir, fileName), bytes);
+			this.retained.add(theClass);
 		}
-		catch (IOException e)
+	}
+
+	synchronized void classDefined(String name, Class<?> theClass)
+	{
+		this.expungeCollected();
+		this.definedClasses++;
+		this.classes.put(name, new ClassReference(name, theClass, this.collected));
+	}
+
+	private void expungeCollected()
+	{
+		ClassReference reference;
+		while ((reference = (ClassReference) this.collected.poll()) != null)
 		{
-			e.printStackTrace(repl.getErrorOutput());
+			// the name may have been reused by a class that is still alive
+			this.classes.remove(reference.name, reference);
 		}
 	}
 
 	@Override
-	protected Class<?> findClass(String name) throws ClassNotFoundException
+	protected synchronized Class<?> findClass(String name) throws ClassNotFoundException
 	{
-		final ICompilable compilable = this.compilables.remove(name);
-		if (compilable == null)
+		final ClassReference reference = this.classes.get(name);
+		final Class<?> theClass = reference != null ? reference.get() : null;
+		if (theClass == null)
 		{
-			return super.findClass(name);
+			throw new ClassNotFoundException(name);
 		}
+		return theClass;
+	}
 
+	// --------------- Values ---------------
+
+	private java.lang.reflect.Field defineValuesClass()
+	{
+		final ClassWriter writer = new ClassWriter();
+		writer.visit(ClassFormat.CLASS_VERSION, ClassFormat.ACC_SUPER | Modifiers.PUBLIC | Modifiers.FINAL
+		                                        | Modifiers.SYNTHETIC, VALUES_CLASS, null, "java/lang/Object", null);
+		writer.visitField(Modifiers.PUBLIC | Modifiers.STATIC, VALUES_FIELD, VALUES_DESC, null, null).visitEnd();
+		writer.visitEnd();
+
+		final byte[] bytecode = writer.toByteArray();
+		final Class<?> valuesClass = this.defineClass(VALUES_CLASS.replace('/', '.'), bytecode, 0, bytecode.length);
 		try
 		{
-			final byte[] bytecode = ClassWriter.compile(compilable);
-			dumpClass(this.repl, compilable, bytecode);
-			return this.defineClass(name, bytecode, 0, bytecode.length);
+			final java.lang.reflect.Field field = valuesClass.getField(VALUES_FIELD);
+			field.set(null, this.values);
+			return field;
 		}
-		catch (Throwable throwable)
+		catch (ReflectiveOperationException ex)
 		{
-			throwable.printStackTrace(this.repl.getErrorOutput());
-			return super.findClass(name);
+			throw new Error(ex);
 		}
 	}
 
-	public static @NonNull String getClassName(ICompilable compilable)
+	/**
+	 * Adds the given value to the value store.
+	 *
+	 * @return the index of the value, which generated code uses to access it
+	 */
+	public synchronized int addValue(Object value)
 	{
-		return compilable.getInternalName().replace('/', '.');
+		if (this.valueCount == this.values.length)
+		{
+			this.values = Arrays.copyOf(this.values, this.valueCount << 1);
+			try
+			{
+				this.valuesField.set(null, this.values);
+			}
+			catch (IllegalAccessException ex)
+			{
+				throw new Error(ex);
+			}
+		}
+
+		this.values[this.valueCount] = value;
+		return this.valueCount++;
+	}
+
+	/**
+	 * @return the current value at the given index of the value store, which may have been changed by the inputs that
+	 * were evaluated since it was {@linkplain #addValue(Object) added}
+	 */
+	public synchronized Object getValue(int index)
+	{
+		return this.values[index];
+	}
+
+	// --------------- Statistics ---------------
+
+	/**
+	 * @return the number of REPL inputs that were compiled to classes
+	 */
+	public int getSnippetCount()
+	{
+		return this.snippets;
+	}
+
+	/**
+	 * @return the number of classes defined for all REPL inputs
+	 */
+	public synchronized int getDefinedClassCount()
+	{
+		return this.definedClasses;
+	}
+
+	/**
+	 * @return the number of classes defined for REPL inputs that have not been unloaded yet
+	 */
+	public synchronized int getLiveClassCount()
+	{
+		this.expungeCollected();
+		return this.classes.size();
 	}
 
-	public void register(ICompilable iclass)
+	/**
+	 * @return the number of classes that are kept alive for the rest of the session
+	 */
+	public synchronized int getRetainedClassCount()
 	{
-		this.compilables.put(getClassName(iclass), iclass);
+		return this.retained.size();
 	}
 
-	public Class<?> initialize(ICompilable compilable)
+	// --------------- Class Definition ---------------
+
+	private static void dumpClass(DyvilREPL repl, ICompilable compilable, byte[] bytes)
 	{
+		final File dumpDir = repl.getConfig().getDumpDir();
+		if (dumpDir == null)
+		{
+			return;
+		}
+
+		final String fileName = compilable.getFileName();
 		try
 		{
-			final String className = getClassName(compilable);
-			return this.initialize(this.loadClass(className));
+			Files.writeData(new File(dumpDir, fileName), bytes);
 		}
-		catch (ClassNotFoundException ignored)
+		catch (IOException e)
 		{
-			return null;
+			e.printStackTrace(repl.getErrorOutput());
 		}
 	}
 
+	public static @NonNull String getClassName(ICompilable compilable)
+	{
+		return compilable.getInternalName().replace('/', '.');
+	}
+
 	private Class<?> initialize(Class<?> theClass)
 	{
 		try
@@ -53,6 +53,8 @@ public class REPLContext extends AbstractHeader implements IDefaultContext, IMem
 
 	protected final DyvilREPL repl;
 
+	protected final REPLInterpreter interpreter;
+
 	// Persistent members
 
 	private final Map<Name, IField>    fields     = new IdentityHashMap<>();
@@ -74,6 +76,7 @@ public class REPLContext extends AbstractHeader implements IDefaultContext, IMem
 	{
 		super(Name.fromRaw("REPL"));
 		this.repl = repl;
+		this.interpreter = new REPLInterpreter(repl);
 	}
 
 	// Getters
@@ -134,22 +137,79 @@ public class REPLContext extends AbstractHeader implements IDefaultContext, IMem
 			this.currentClass.foldConstants();
 		}
 
+		if (this.interpret())
+		{
+			this.printErrors();
+			this.cleanup();
+			return;
+		}
+
 		this.currentClass.cleanup(this, this.currentClass);
 
 		final Class<?> theClass = this.compileAndLoad();
 
+		boolean retainClass = false;
 		for (Member member : this.members)
 		{
-			this.processMember(member, theClass);
+			retainClass |= this.processMember(member, theClass);
+		}
+
+		if (retainClass)
+		{
+			this.repl.getClassLoader().retain(theClass);
 		}
 
 		this.printErrors();
 		this.cleanup();
 	}
 
+	/**
+	 * Evaluates inputs that consist of a single simple expression or final variable with the {@link REPLInterpreter},
+	 * without generating a class.
+	 *
+	 * @return {@code true} if the input was evaluated
+	 */
+	private boolean interpret()
+	{
+		if (this.members.size() != 1 || !(this.members.get(0) instanceof REPLVariable))
+		{
+			return false;
+		}
+
+		final REPLVariable variable = (REPLVariable) this.members.get(0);
+		final IValue value = variable.getValue();
+		if (value == null || !variable.hasModifier(Modifiers.FINAL) || variable.hasModifier(Modifiers.LAZY)
+		    || variable.getProperty() != null || !REPLInterpreter.isSupportedType(variable.getType()))
+		{
+			return false;
+		}
+
+		final REPLInterpreter.Node node = this.interpreter.compile(value);
+		if (node == null)
+		{
+			return false;
+		}
+
+		final Object result;
+		try
+		{
+			result = node.evaluate();
+		}
+		catch (Throwable throwable)
+		{
+			throwable.printStackTrace(this.repl.getErrorOutput());
+			return true;
+		}
+
+		variable.setInterpretedValue(REPLInterpreter.convert(result, variable.getType()));
+		this.processMember(variable, null);
+		return true;
+	}
+
 	private Class<?> compileAndLoad()
 	{
-		final REPLClassLoader classLoader = this.repl.getClassLoader();
+		// every input gets its own class loader, so its classes can be unloaded once they are no longer used
+		final REPLClassLoader.SnippetClassLoader classLoader = this.repl.getClassLoader().newSnippetLoader();
 
 		// Compile all inner class
 		for (ICompilable innerClass : this.innerClassList)
@@ -165,7 +225,10 @@ public class REPLContext extends AbstractHeader implements IDefaultContext, IMem
 		return classLoader.initialize(this.currentClass);
 	}
 
-	private void processMember(Member member, Class<?> theClass)
+	/**
+	 * @return {@code true} if later inputs may refer to the given class through the member
+	 */
+	private boolean processMember(Member member, Class<?> theClass)
 	{
 		switch (member.getKind())
 		{
@@ -173,7 +236,7 @@ public class REPLContext extends AbstractHeader implements IDefaultContext, IMem
 			if (Types.isVoid(member.getType()))
 			{
 				// Don't register the variable
-				return;
+				return false;
 			}
 
 			if (member instanceof REPLVariable)
@@ -183,8 +246,10 @@ public class REPLContext extends AbstractHeader implements IDefaultContext, IMem
 				replVariable.updateValue(this.repl);
 			}
 
+			// variables whose value could not be moved to the value store keep the class alive
 			this.fields.put(member.getName(), (IField) member);
-			break;
+			this.printColored(member.toString());
+			return false;
 		case METHOD:
 			this.processMethod((IMethod) member);
 			break;
@@ -202,6 +267,7 @@ public class REPLContext extends AbstractHeader implements IDefaultContext, IMem
 		}
 
 		this.printColored(member.toString());
+		return true;
 	}
 
 	private void printColored(String colorize)
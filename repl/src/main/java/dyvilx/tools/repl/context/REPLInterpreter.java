@@ -0,0 +1,385 @@
+package dyvilx.tools.repl.context;
+
+import dyvil.reflect.Modifiers;
+import dyvilx.tools.compiler.ast.classes.IClass;
+import dyvilx.tools.compiler.ast.expression.IValue;
+import dyvilx.tools.compiler.ast.expression.access.FieldAccess;
+import dyvilx.tools.compiler.ast.expression.access.MethodCall;
+import dyvilx.tools.compiler.ast.field.IDataMember;
+import dyvilx.tools.compiler.ast.field.IField;
+import dyvilx.tools.compiler.ast.member.ClassMember;
+import dyvilx.tools.compiler.ast.method.IMethod;
+import dyvilx.tools.compiler.ast.parameter.ArgumentList;
+import dyvilx.tools.compiler.ast.parameter.ParameterList;
+import dyvilx.tools.compiler.ast.type.IType;
+import dyvilx.tools.compiler.ast.type.builtin.PrimitiveType;
+import dyvilx.tools.compiler.ast.type.builtin.Types;
+import dyvilx.tools.repl.DyvilREPL;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Evaluates simple REPL inputs by walking the resolved AST instead of generating and loading a class.
+ * <p>
+ * Only a small subset of expressions is supported: literals, reads of REPL variables and other fields, and calls of
+ * methods that are linked statically, which includes the arithmetic operators of the primitive types. The methods and
+ * fields are invoked through method handles that are cached per member. All other inputs are compiled as usual.
+ */
+public class REPLInterpreter
+{
+	// =============== Classes ===============
+
+	@FunctionalInterface
+	public interface Node
+	{
+		Object evaluate() throws Throwable;
+	}
+
+	private static final class CachedHandle
+	{
+		final String       owner;
+		final MethodHandle handle;
+
+		CachedHandle(String owner, MethodHandle handle)
+		{
+			this.owner = owner;
+			this.handle = handle;
+		}
+	}
+
+	// =============== Fields ===============
+
+	private final DyvilREPL repl;
+
+	/**
+	 * The method handles of the members used by interpreted inputs. The members are referenced weakly, so the classes of
+	 * REPL inputs can still be unloaded.
+	 */
+	private final Map<ClassMember, CachedHandle> handles = new WeakHashMap<>();
+
+	// =============== Constructors ===============
+
+	public REPLInterpreter(DyvilREPL repl)
+	{
+		this.repl = repl;
+	}
+
+	// =============== Static Methods ===============
+
+	/**
+	 * @return {@code true} if the values of the given type can be stored in an interpreted {@link REPLVariable}, i.e.
+	 * if they can be converted back to a literal
+	 */
+	public static boolean isSupportedType(IType type)
+	{
+		if (Types.isVoid(type))
+		{
+			return true;
+		}
+		if (!type.isPrimitive())
+		{
+			return "java/lang/String".equals(type.getInternalName());
+		}
+
+		switch (type.getTypecode())
+		{
+		case PrimitiveType.BOOLEAN_CODE:
+		case PrimitiveType.CHAR_CODE:
+		case PrimitiveType.INT_CODE:
+		case PrimitiveType.LONG_CODE:
+		case PrimitiveType.FLOAT_CODE:
+		case PrimitiveType.DOUBLE_CODE:
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Converts a boxed primitive value to the wrapper class of the given type. This is necessary where the generated
+	 * code would apply a primitive conversion, e.g. after calling a method with an erased return type.
+	 */
+	public static Object convert(Object value, IType type)
+	{
+		if (!type.isPrimitive() || !(value instanceof Number || value instanceof Character))
+		{
+			return value;
+		}
+
+		final Number number = value instanceof Character ? (Number) (int) (Character) value : (Number) value;
+		switch (type.getTypecode())
+		{
+		case PrimitiveType.CHAR_CODE:
+			return (char) number.intValue();
+		case PrimitiveType.INT_CODE:
+			return number.intValue();
+		case PrimitiveType.LONG_CODE:
+			return number.longValue();
+		case PrimitiveType.FLOAT_CODE:
+			return number.floatValue();
+		case PrimitiveType.DOUBLE_CODE:
+			return number.doubleValue();
+		}
+		return value;
+	}
+
+	// =============== Methods ===============
+
+	// --------------- Compilation ---------------
+
+	/**
+	 * Converts the given expression to an evaluation tree. All methods and fields are resolved in this step, so an
+	 * expression is either evaluated completely or not at all.
+	 *
+	 * @return the evaluation tree, or {@code null} if the expression is not supported
+	 */
+	public Node compile(IValue value)
+	{
+		switch (value.valueTag())
+		{
+		case IValue.NULL:
+		case IValue.BOOLEAN:
+		case IValue.CHAR:
+		case IValue.INT:
+		case IValue.LONG:
+		case IValue.FLOAT:
+		case IValue.DOUBLE:
+		case IValue.STRING:
+			final Object constant = value.toObject();
+			return () -> constant;
+		case IValue.FIELD_ACCESS:
+			return value instanceof FieldAccess ? this.compileFieldAccess((FieldAccess) value) : null;
+		case IValue.METHOD_CALL:
+			return value instanceof MethodCall ? this.compileMethodCall((MethodCall) value) : null;
+		}
+		return null;
+	}
+
+	private Node compileFieldAccess(FieldAccess access)
+	{
+		final IDataMember member = access.getField();
+		if (!(member instanceof IField) || member.hasModifier(Modifiers.LAZY))
+		{
+			return null;
+		}
+
+		if (member instanceof REPLVariable)
+		{
+			final REPLVariable variable = (REPLVariable) member;
+			if (variable.isInterpreted())
+			{
+				final Object value = variable.getRuntimeValue();
+				return () -> value;
+			}
+			if (variable.isStored())
+			{
+				// the value may be changed by later inputs
+				return variable::getStoredValue;
+			}
+		}
+
+		final MethodHandle getter = this.getter((IField) member);
+		if (getter == null)
+		{
+			return null;
+		}
+
+		if (member.isStatic())
+		{
+			// the receiver of static fields is not evaluated
+			return () -> getter.invoke();
+		}
+
+		final IValue receiver = access.getReceiver();
+		final Node receiverNode = receiver != null ? this.compile(receiver) : null;
+		if (receiverNode == null)
+		{
+			return null;
+		}
+		return () -> getter.invoke(receiverNode.evaluate());
+	}
+
+	private Node compileMethodCall(MethodCall call)
+	{
+		final IMethod method = call.getMethod();
+		if (method == null || method.isTypeParametric() // type arguments may be reified
+		    || method.hasModifier(Modifiers.EXTENSION) && !method.isStatic() && !method.hasModifier(Modifiers.FINAL))
+		{
+			// dynamically dispatched extension method
+			return null;
+		}
+
+		IValue receiver = call.getReceiver();
+		if (receiver != null && receiver.isIgnoredClassAccess())
+		{
+			if (receiver.getType().hasTag(IType.TYPE_VAR))
+			{
+				return null;
+			}
+			receiver = null;
+		}
+
+		final ParameterList parameters = method.getParameters();
+		final ArgumentList arguments = call.getArguments();
+		final int startIndex = receiver != null && method.hasModifier(Modifiers.INFIX) && !parameters.isEmpty() ? 1 : 0;
+		if (!arguments.hasParameterOrder() || arguments.size() != parameters.size() - startIndex)
+		{
+			return null;
+		}
+
+		// see AbstractMethod.writeReceiver
+		final boolean passReceiver;
+		Node ignoredReceiver = null;
+		if (!method.isStatic())
+		{
+			if (receiver == null)
+			{
+				return null;
+			}
+			passReceiver = true;
+		}
+		else if (receiver == null || startIndex == 1)
+		{
+			passReceiver = receiver != null;
+		}
+		else
+		{
+			passReceiver = false;
+			ignoredReceiver = this.compile(receiver);
+			if (ignoredReceiver == null)
+			{
+				return null;
+			}
+		}
+
+		final int offset = passReceiver ? 1 : 0;
+		final Node[] nodes = new Node[offset + arguments.size()];
+		if (passReceiver && (nodes[0] = this.compile(receiver)) == null)
+		{
+			return null;
+		}
+		for (int i = 0, count = arguments.size(); i < count; i++)
+		{
+			if ((nodes[offset + i] = this.compile(arguments.get(i))) == null)
+			{
+				return null;
+			}
+		}
+
+		final MethodHandle handle = this.method(method, receiver);
+		if (handle == null)
+		{
+			return null;
+		}
+
+		final Node receiverNode = ignoredReceiver;
+		return () -> {
+			if (receiverNode != null)
+			{
+				receiverNode.evaluate();
+			}
+
+			final Object[] values = new Object[nodes.length];
+			for (int i = 0; i < nodes.length; i++)
+			{
+				values[i] = nodes[i].evaluate();
+			}
+			return handle.invokeWithArguments(values);
+		};
+	}
+
+	// --------------- Method Handles ---------------
+
+	private Class<?> loadClass(String internalName) throws ClassNotFoundException
+	{
+		// not Class.forName, which would keep the classes of REPL inputs alive
+		return this.repl.getClassLoader().loadClass(internalName.replace('/', '.'));
+	}
+
+	private MethodHandle getter(IField field)
+	{
+		final CachedHandle cached = this.handles.get(field);
+		if (cached != null)
+		{
+			return cached.handle;
+		}
+
+		final MethodHandle handle;
+		try
+		{
+			final java.lang.reflect.Field javaField;
+			if (field instanceof REPLVariable)
+			{
+				final Class<?> runtimeClass = ((REPLVariable) field).getRuntimeClass();
+				if (runtimeClass == null)
+				{
+					return null;
+				}
+
+				javaField = runtimeClass.getDeclaredField(field.getInternalName());
+				javaField.setAccessible(true);
+			}
+			else
+			{
+				final IClass enclosingClass = field.getEnclosingClass();
+				if (enclosingClass == null)
+				{
+					return null;
+				}
+				javaField = this.loadClass(enclosingClass.getInternalName()).getField(field.getInternalName());
+			}
+
+			handle = MethodHandles.publicLookup().unreflectGetter(javaField);
+		}
+		catch (ReflectiveOperationException | LinkageError | SecurityException ignored)
+		{
+			return null;
+		}
+
+		this.handles.put(field, new CachedHandle(null, handle));
+		return handle;
+	}
+
+	private MethodHandle method(IMethod method, IValue receiver)
+	{
+		final IClass enclosingClass = method.getEnclosingClass();
+		if (enclosingClass == null)
+		{
+			return null;
+		}
+
+		// see AbstractMethod.writeInvoke
+		final boolean invokeStatic = method.isStatic() || method.hasModifier(Modifiers.EXTENSION);
+		final String owner = invokeStatic ? enclosingClass.getInternalName() : receiver.getType().getInternalName();
+
+		final CachedHandle cached = this.handles.get(method);
+		if (cached != null && owner.equals(cached.owner))
+		{
+			return cached.handle;
+		}
+
+		final MethodHandle handle;
+		try
+		{
+			final Class<?> ownerClass = this.loadClass(owner);
+			final MethodType type = MethodType.fromMethodDescriptorString(method.getDescriptor(),
+			                                                              ownerClass.getClassLoader());
+			final String name = method.getInternalName();
+			final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+			handle = (invokeStatic ? lookup.findStatic(ownerClass, name, type) :
+				          lookup.findVirtual(ownerClass, name, type)).asFixedArity();
+		}
+		catch (ReflectiveOperationException | LinkageError | IllegalArgumentException | TypeNotPresentException |
+			       SecurityException ignored)
+		{
+			return null;
+		}
+
+		this.handles.put(method, new CachedHandle(owner, handle));
+		return handle;
+	}
+}
@@ -4,10 +4,12 @@ import dyvil.annotation.internal.NonNull;
 import dyvil.array.ObjectArray;
 import dyvil.lang.Name;
 import dyvil.reflect.Modifiers;
+import dyvil.reflect.Opcodes;
 import dyvil.source.position.SourcePosition;
 import dyvilx.tools.compiler.ast.attribute.AttributeList;
 import dyvilx.tools.compiler.ast.context.IContext;
 import dyvilx.tools.compiler.ast.expression.IValue;
+import dyvilx.tools.compiler.ast.expression.WriteableExpression;
 import dyvilx.tools.compiler.ast.field.Field;
 import dyvilx.tools.compiler.ast.type.IType;
 import dyvilx.tools.compiler.ast.type.builtin.Types;
@@ -27,6 +29,19 @@ public class REPLVariable extends Field
 	private Class<?> runtimeClass;
 	private Object   displayValue;
 
+	/**
+	 * {@code true} if the value of this variable was computed by the {@link REPLInterpreter}. Such variables do not have
+	 * a runtime class; their value is inlined as a literal.
+	 */
+	private boolean interpreted;
+
+	/**
+	 * The index of the value of this variable in the {@linkplain REPLClassLoader#getValue(int) value store}, or {@code
+	 * -1}. Once the value is stored, later inputs read and write it there, so the class of the input that defined this
+	 * variable can be unloaded.
+	 */
+	private int valueIndex = -1;
+
 	public REPLVariable(REPLContext context, Name name, IValue value)
 	{
 		this(context, value.getPosition(), name, Types.UNKNOWN, AttributeList.of(Modifiers.FINAL));
@@ -44,6 +59,38 @@ public class REPLVariable extends Field
 		this.runtimeClass = theClass;
 	}
 
+	protected Class<?> getRuntimeClass()
+	{
+		return this.runtimeClass;
+	}
+
+	public boolean isInterpreted()
+	{
+		return this.interpreted;
+	}
+
+	protected Object getRuntimeValue()
+	{
+		return this.displayValue;
+	}
+
+	protected boolean isStored()
+	{
+		return this.valueIndex >= 0;
+	}
+
+	protected Object getStoredValue()
+	{
+		return this.context.repl.getClassLoader().getValue(this.valueIndex);
+	}
+
+	protected void setInterpretedValue(Object value)
+	{
+		this.interpreted = true;
+		this.value = IValue.fromObject(value);
+		this.displayValue = value;
+	}
+
 	protected void updateValue(DyvilREPL repl)
 	{
 		if (this.runtimeClass == null || this.type == Types.VOID)
@@ -94,6 +141,13 @@ public class REPLVariable extends Field
 
 		this.value = IValue.fromObject(result);
 		this.displayValue = result;
+
+		if (this.property == null && !this.hasModifier(Modifiers.LAZY))
+		{
+			// move the value out of the class, so the class does not have to stay loaded
+			this.valueIndex = repl.getClassLoader().addValue(result);
+			this.runtimeClass = null;
+		}
 	}
 
 	@Override
@@ -119,6 +173,69 @@ public class REPLVariable extends Field
 		}
 	}
 
+	@Override
+	public void writeGet(@NonNull MethodWriter writer, WriteableExpression receiver, int lineNumber)
+		throws BytecodeException
+	{
+		if (this.interpreted)
+		{
+			this.value.writeExpression(writer, this.type);
+			return;
+		}
+		if (this.valueIndex >= 0)
+		{
+			this.writeValueSlot(writer);
+			writer.visitInsn(Opcodes.AALOAD);
+			Types.OBJECT.writeCast(writer, this.type, lineNumber);
+			return;
+		}
+		super.writeGet(writer, receiver, lineNumber);
+	}
+
+	@Override
+	public void writeSet(@NonNull MethodWriter writer, WriteableExpression receiver, @NonNull WriteableExpression value,
+		int lineNumber) throws BytecodeException
+	{
+		if (this.valueIndex < 0)
+		{
+			super.writeSet(writer, receiver, value, lineNumber);
+			return;
+		}
+
+		this.writeValueSlot(writer);
+		value.writeExpression(writer, this.type);
+		this.type.writeCast(writer, Types.OBJECT, lineNumber);
+		writer.visitInsn(Opcodes.AASTORE);
+	}
+
+	@Override
+	public void writeSetCopy(@NonNull MethodWriter writer, WriteableExpression receiver,
+		@NonNull WriteableExpression value, int lineNumber) throws BytecodeException
+	{
+		if (this.valueIndex < 0)
+		{
+			super.writeSetCopy(writer, receiver, value, lineNumber);
+			return;
+		}
+
+		this.writeValueSlot(writer);
+		value.writeExpression(writer, this.type);
+		this.type.writeCast(writer, Types.OBJECT, lineNumber);
+		writer.visitInsn(Opcodes.DUP_X2);
+		writer.visitInsn(Opcodes.AASTORE);
+		Types.OBJECT.writeCast(writer, this.type, lineNumber);
+	}
+
+	/**
+	 * Pushes the value array and the index of this variable.
+	 */
+	private void writeValueSlot(MethodWriter writer) throws BytecodeException
+	{
+		writer.visitFieldInsn(Opcodes.GETSTATIC, REPLClassLoader.VALUES_CLASS, REPLClassLoader.VALUES_FIELD,
+		                      REPLClassLoader.VALUES_DESC);
+		writer.visitLdcInsn(this.valueIndex);
+	}
+
 	@Override
 	public void writeClassInit(MethodWriter writer) throws BytecodeException
 	{
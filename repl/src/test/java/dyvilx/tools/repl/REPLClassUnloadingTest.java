@@ -0,0 +1,128 @@
+package dyvilx.tools.repl;
+
+import dyvil.lang.Name;
+import dyvilx.tools.compiler.ast.field.IField;
+import dyvilx.tools.repl.context.REPLVariable;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the classes of compiled inputs are unloaded once the values of their variables were moved to the value
+ * store of the {@link dyvilx.tools.repl.context.REPLClassLoader}, and that later inputs still read and write these
+ * values.
+ */
+public class REPLClassUnloadingTest
+{
+	private static final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+	private static DyvilREPL repl;
+
+	@BeforeClass
+	public static void launch()
+	{
+		repl = new DyvilREPL(new PrintStream(output, true));
+		repl.launch(new String[0]);
+	}
+
+	private static String evaluate(String input)
+	{
+		output.reset();
+		repl.processInput(input);
+		return output.toString();
+	}
+
+	private static REPLVariable variable(String name)
+	{
+		final IField field = repl.getContext().getFields().get(Name.fromRaw(name));
+		assertNotNull("variable " + name + " is not defined", field);
+		return (REPLVariable) field;
+	}
+
+	/**
+	 * @return the name of the newest {@code res<N>} variable
+	 */
+	private static String lastResult()
+	{
+		int index = -1;
+		for (Name name : repl.getContext().getFields().keySet())
+		{
+			final String raw = name.unqualified;
+			if (raw.startsWith("res"))
+			{
+				index = Math.max(index, Integer.parseInt(raw.substring(3)));
+			}
+		}
+		assertTrue("no result variable", index >= 0);
+		return "res" + index;
+	}
+
+	/**
+	 * @return a weak reference to the class loader that defined the class of the given variable
+	 */
+	private static WeakReference<ClassLoader> snippetLoader(String variable) throws ClassNotFoundException
+	{
+		final String className = variable(variable).getEnclosingClass().getInternalName().replace('/', '.');
+		final ClassLoader loader = repl.getClassLoader().loadClass(className).getClassLoader();
+		assertNotSame(repl.getClassLoader(), loader);
+		return new WeakReference<>(loader);
+	}
+
+	/**
+	 * Runs {@code :gc} until the referenced object was collected.
+	 */
+	private static void assertCollected(WeakReference<?> reference) throws InterruptedException
+	{
+		for (int i = 0; i < 20 && reference.get() != null; i++)
+		{
+			evaluate(":gc");
+			Thread.sleep(10);
+		}
+		assertNull("the snippet class loader was not collected", reference.get());
+	}
+
+	@Test
+	public void resultClassIsUnloaded() throws Exception
+	{
+		// string interpolation is compiled, so the result gets a class
+		evaluate("\"x\\(40 + 2)\"");
+		final String result = lastResult();
+		assertFalse(variable(result).isInterpreted());
+
+		final WeakReference<ClassLoader> loader = snippetLoader(result);
+		final int defined = repl.getClassLoader().getDefinedClassCount();
+		assertCollected(loader);
+		assertTrue(repl.getClassLoader().getLiveClassCount() < defined);
+
+		// the value is still available to later inputs
+		evaluate("var resultLength = " + result + ".length()");
+		assertEquals("3", variable("resultLength").getValue().toString());
+		evaluate("var resultText = " + result + " + \"!\"");
+		evaluate("var textLength = resultText.length()");
+		assertEquals("4", variable("textLength").getValue().toString());
+	}
+
+	@Test
+	public void variableClassIsUnloaded() throws Exception
+	{
+		evaluate("var number = 40 + 2");
+		final WeakReference<ClassLoader> loader = snippetLoader("number");
+
+		// the method is retained, but reads the variable from the value store instead of the class
+		evaluate("func nextNumber() -> int { number += 1; return number }");
+		assertCollected(loader);
+
+		evaluate("var first = nextNumber()");
+		assertEquals("43", variable("first").getValue().toString());
+		evaluate("number = 100");
+		evaluate("var second = nextNumber()");
+		assertEquals("101", variable("second").getValue().toString());
+		evaluate("var copy = number");
+		assertEquals("101", variable("copy").getValue().toString());
+	}
+}
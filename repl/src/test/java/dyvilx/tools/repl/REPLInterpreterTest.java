@@ -0,0 +1,114 @@
+package dyvilx.tools.repl;
+
+import dyvil.lang.Name;
+import dyvilx.tools.compiler.ast.field.IField;
+import dyvilx.tools.repl.context.REPLVariable;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that inputs evaluated by the {@link dyvilx.tools.repl.context.REPLInterpreter} give the same results as
+ * compiled inputs, and that they interact correctly with compiled inputs.
+ */
+public class REPLInterpreterTest
+{
+	private static final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+	private static DyvilREPL repl;
+
+	@BeforeClass
+	public static void launch()
+	{
+		repl = new DyvilREPL(new PrintStream(output, true));
+		repl.launch(new String[0]);
+	}
+
+	private static String evaluate(String input)
+	{
+		output.reset();
+		repl.processInput(input);
+		return output.toString();
+	}
+
+	private static REPLVariable variable(String name)
+	{
+		final IField field = repl.getContext().getFields().get(Name.fromRaw(name));
+		assertNotNull("variable " + name + " is not defined", field);
+		return (REPLVariable) field;
+	}
+
+	private static String value(String name)
+	{
+		return variable(name).getValue().toString();
+	}
+
+	@Test
+	public void interpretedMatchesCompiled()
+	{
+		final String[] expressions = {
+			"42", "1 + 2 * 3", "7 / 2", "7 % 3", "-5 >> 1", "1L << 40", "7.0 / 2", "1.5F * 2", "3 < 4", "!true",
+			"'a'", "\"abc\"", "Math.max(3, 9)", "Integer.MAX_VALUE", "\"abc\".length()",
+		};
+
+		for (int i = 0; i < expressions.length; i++)
+		{
+			final String expression = expressions[i];
+			final String printed = evaluate("let interpreted" + i + " = " + expression) + evaluate(
+				"var compiled" + i + " = " + expression);
+
+			assertTrue(expression + ": " + printed, variable("interpreted" + i).isInterpreted());
+			assertFalse(expression, variable("compiled" + i).isInterpreted());
+			assertEquals(expression, value("compiled" + i), value("interpreted" + i));
+		}
+	}
+
+	@Test
+	public void compiledInputReadsInterpretedVariable()
+	{
+		evaluate("let base = 20 + 1");
+		assertTrue(variable("base").isInterpreted());
+
+		// the compiled input has no class to read 'base' from, so the value is inlined as a literal
+		evaluate("var doubled = base * 2");
+		assertFalse(variable("doubled").isInterpreted());
+		assertEquals("42", value("doubled"));
+
+		evaluate("func baseTimes(factor: int) -> int = base * factor");
+		evaluate("var tripled = baseTimes(3)");
+		assertEquals("63", value("tripled"));
+
+		// interpreted inputs read interpreted variables too
+		evaluate("let plusOne = base + 1");
+		assertTrue(variable("plusOne").isInterpreted());
+		assertEquals("22", value("plusOne"));
+	}
+
+	@Test
+	public void unsupportedNodeFallsBackWithoutSideEffects()
+	{
+		evaluate("var counter = 0");
+		evaluate("func bump() -> int { counter += 1; return counter }");
+
+		// bump() alone could be interpreted, but the string interpolation cannot, so the whole input is compiled
+		final String printed = evaluate("let bumped = bump() + \"\\(counter)\".length()");
+		assertFalse(printed, variable("bumped").isInterpreted());
+		assertEquals("2", value("bumped"));
+
+		// bump() was called exactly once, by the compiled input
+		evaluate("var count = counter");
+		assertEquals("1", value("count"));
+
+		// a supported input calls it once as well
+		evaluate("let bumpedAgain = bump()");
+		assertTrue(variable("bumpedAgain").isInterpreted());
+		assertEquals("2", value("bumpedAgain"));
+
+		evaluate("var countAgain = counter");
+		assertEquals("2", value("countAgain"));
+	}
+}